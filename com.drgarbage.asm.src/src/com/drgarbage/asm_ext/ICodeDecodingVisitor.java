@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.asm_ext;
+
+/**
+ * A code visitor which decodes the bytecode of a method itself.
+ * <code>visitCode</code> is called before any instruction of the 
+ * method is read. If the visitor returns <code>false</code> the 
+ * reader does not decode the code attribute: the labels, instructions, 
+ * try catch blocks, frames, line numbers, local variables and code 
+ * attributes are not visited, only <code>visitMaxs</code> is called.
+ * If the visitor returns <code>true</code> the code attribute is 
+ * visited as usual, <code>visitCode</code> is not called again.
+ */
+public interface ICodeDecodingVisitor extends ICodeVisitor {
+}
@@ -32,6 +32,7 @@ package org.objectweb.asm;
 import java.io.IOException;
 import java.io.InputStream;
 
+import com.drgarbage.asm_ext.ICodeDecodingVisitor;
 import com.drgarbage.asm_ext.ICodeVisitor;
 import com.drgarbage.asm_ext.IConstantPoolVisitor;
 import com.drgarbage.asm_ext.ILocalVariableTableVisitor;
@@ -1065,8 +1066,22 @@ public class ClassReader {
         int codeLength = readInt(u + 4);
         u += 8;
 
-        // reads the bytecode to find the labels
         int codeStart = u;
+
+        /* Dr. Garbage specific extension */
+        if (mv instanceof ICodeDecodingVisitor
+                && !((ICodeDecodingVisitor) mv).visitCode(b, codeStart, codeLength)) {
+            /*
+             * the visitor decodes the code attribute itself: the labels,
+             * instructions, try catch blocks, frames and code attributes
+             * are not visited
+             */
+            mv.visitMaxs(maxStack, maxLocals);
+            return;
+        }
+        /* Dr. Garbage specific extension */
+
+        // reads the bytecode to find the labels
         int codeEnd = u + codeLength;
         Label[] labels = context.labels = new Label[codeLength + 2];
         readLabel(codeLength + 1, labels);
@@ -1548,7 +1563,7 @@ public class ClassReader {
         }
         
         /* Dr. Garbage specific extension */
-        if (mv instanceof ICodeVisitor) {
+        if (mv instanceof ICodeVisitor && !(mv instanceof ICodeDecodingVisitor)) {
             ICodeVisitor cv = (ICodeVisitor) mv;
             cv.visitCode(b, codeStart, codeLength);
         }
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecodevisualizer.operandstack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.asm.render.impl.LocalVariableTable;
+import com.drgarbage.asm.render.intf.IInstructionLine;
+import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.ConstantPoolParser;
+import com.drgarbage.bytecode.ExceptionTableEntry;
+import com.drgarbage.bytecode.InstructionStream;
+import com.drgarbage.bytecode.constant_pool.AbstractConstantPoolEntry;
+import com.drgarbage.bytecode.instructions.AbstractInstruction;
+import com.drgarbage.bytecode.instructions.Opcodes;
+import com.drgarbage.bytecodevisualizer.operandstack.OperandStack.OperandStackEntry;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+import com.drgarbage.controlflowgraph.intf.INodeListExt;
+
+/**
+ * Test class for {@link com.drgarbage.bytecodevisualizer.operandstack.OperandStack}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class OperandStackTest extends TestCase implements Opcodes {
+
+	/**
+	 * Creates the constant pool of a class <code>T</code> with the
+	 * fields <code>String s</code> (index 6) and <code>Object o</code>
+	 * (index 10).
+	 * @return the constant pool
+	 * @throws IOException
+	 */
+	private static AbstractConstantPoolEntry[] createConstantPool() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(ByteCodeConstants.TAG_UTF8);
+		out.writeUTF("T");
+		out.writeByte(ByteCodeConstants.TAG_CLASS);
+		out.writeShort(1);
+		writeField(out, 3, "s", "Ljava/lang/String;");
+		writeField(out, 7, "o", "Ljava/lang/Object;");
+		out.close();
+
+		return new ConstantPoolParser(bytes.toByteArray(), 0, 11).parse();
+	}
+
+	/**
+	 * Writes the name, descriptor, name and type and field
+	 * reference entries of a field of the class at index 2.
+	 * @param out the output
+	 * @param index the index of the first entry
+	 * @param name the field name
+	 * @param descriptor the field descriptor
+	 * @throws IOException
+	 */
+	private static void writeField(DataOutputStream out, int index,
+			String name, String descriptor) throws IOException {
+		out.writeByte(ByteCodeConstants.TAG_UTF8);
+		out.writeUTF(name);
+		out.writeByte(ByteCodeConstants.TAG_UTF8);
+		out.writeUTF(descriptor);
+		out.writeByte(ByteCodeConstants.TAG_NAME_AND_TYPE);
+		out.writeShort(index);
+		out.writeShort(index + 1);
+		out.writeByte(ByteCodeConstants.TAG_FIELDREF);
+		out.writeShort(2);
+		out.writeShort(index + 2);
+	}
+
+	/**
+	 * Calculates the operand stacks of the code.
+	 * @param values the bytes of the code
+	 * @return the operand stack
+	 * @throws IOException
+	 */
+	private static OperandStack createOperandStack(int... values) throws IOException {
+		byte[] b = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			b[i] = (byte) values[i];
+		}
+
+		List<IInstructionLine> lines = new ArrayList<IInstructionLine>();
+		for (final AbstractInstruction i : new InstructionStream(b, 0, b.length)) {
+			final int line = lines.size();
+			lines.add(new IInstructionLine() {
+				public AbstractInstruction getInstruction() {
+					return i;
+				}
+				public int getLine() {
+					return line;
+				}
+			});
+		}
+
+		AbstractConstantPoolEntry[] constantPool = createConstantPool();
+		return new OperandStack(lines, constantPool,
+				new LocalVariableTable(constantPool, false), new ExceptionTableEntry[0]);
+	}
+
+	/**
+	 * Returns the stacks before the instruction at the given offset.
+	 * @param operandStack the operand stack
+	 * @param offset the offset of the instruction
+	 * @return the stacks
+	 */
+	private static List<Stack<OperandStackEntry>> getStackBefore(OperandStack operandStack, int offset) {
+		INodeListExt nodes = operandStack.getOperandStackGraph().getNodeList();
+		for (int i = 0; i < nodes.size(); i++) {
+			INodeExt n = nodes.getNodeExt(i);
+			if (n.getByteCodeOffset() == offset && n.getData() != null) {
+				return operandStack.getStackBefore(n);
+			}
+		}
+
+		fail("no instruction at " + offset);
+		return null;
+	}
+
+	/**
+	 * A <code>String</code> and an <code>Object</code> reference
+	 * are merged into one stack at the join point.
+	 * @throws IOException
+	 */
+	public void testReferenceJoin() throws IOException {
+		OperandStack operandStack = createOperandStack(
+				OPCODE_ICONST_0,            /* 0 */
+				OPCODE_IFEQ, 0, 9,          /* 1 */
+				OPCODE_GETSTATIC, 0, 6,     /* 4 */
+				OPCODE_GOTO, 0, 6,          /* 7 */
+				OPCODE_GETSTATIC, 0, 10,    /* 10 */
+				OPCODE_ARETURN);            /* 13 */
+
+		List<Stack<OperandStackEntry>> stacks = getStackBefore(operandStack, 13);
+		assertEquals(1, stacks.size());
+		assertEquals(1, stacks.get(0).size());
+
+		OperandStackEntry e = stacks.get(0).get(0);
+		assertEquals(OperandStack.L_REFERENCE, e.getVarType());
+		assertEquals(2, e.getValues().size());
+		assertTrue(e.getValues().contains("T.s"));
+		assertTrue(e.getValues().contains("T.o"));
+	}
+
+	/**
+	 * A <code>char</code> and an <code>int</code> are merged into
+	 * one stack of the type <code>int</code> at the join point.
+	 * @throws IOException
+	 */
+	public void testIntegerJoin() throws IOException {
+		OperandStack operandStack = createOperandStack(
+				OPCODE_ICONST_0,            /* 0 */
+				OPCODE_IFEQ, 0, 8,          /* 1 */
+				OPCODE_ICONST_2,            /* 4 */
+				OPCODE_I2C,                 /* 5 */
+				OPCODE_GOTO, 0, 4,          /* 6 */
+				OPCODE_ICONST_1,            /* 9 */
+				OPCODE_IRETURN);            /* 10 */
+
+		List<Stack<OperandStackEntry>> stacks = getStackBefore(operandStack, 10);
+		assertEquals(1, stacks.size());
+		assertEquals(1, stacks.get(0).size());
+
+		OperandStackEntry e = stacks.get(0).get(0);
+		assertEquals(OperandStack.I_INT, e.getVarType());
+		assertEquals(2, e.getValues().size());
+		assertTrue(e.getValues().contains("2"));
+		assertTrue(e.getValues().contains("1"));
+		assertEquals(1, operandStack.getMaxStackSize());
+	}
+}
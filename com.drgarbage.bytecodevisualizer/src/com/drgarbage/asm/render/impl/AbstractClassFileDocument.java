@@ -21,8 +21,9 @@ import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -57,9 +58,11 @@ import com.drgarbage.bytecode.BytecodeUtils;
 import com.drgarbage.bytecode.ConstantPoolParser;
 import com.drgarbage.bytecode.ExceptionTableEntry;
 import com.drgarbage.bytecode.InstructionParser;
+import com.drgarbage.bytecode.InstructionStream;
 import com.drgarbage.bytecode.LineNumberTableEntry;
 import com.drgarbage.bytecode.LocalVariableTableEntry;
 import com.drgarbage.bytecode.LocalVariableTypeTableEntry;
+import com.drgarbage.bytecode.StackMapFrame;
 import com.drgarbage.bytecode.ByteCodeConstants.Align;
 import com.drgarbage.bytecode.constant_pool.AbstractConstantPoolEntry;
 import com.drgarbage.bytecode.constant_pool.ConstantClassInfo;
@@ -93,6 +96,7 @@ import com.drgarbage.bytecode.instructions.TableSwitchInstruction;
 import com.drgarbage.bytecode.instructions.LookupSwitchInstruction.MatchOffsetEntry;
 import com.drgarbage.bytecodevisualizer.BytecodeVisualizerPlugin;
 import com.drgarbage.bytecodevisualizer.preferences.BytecodeVisualizerPreferenceConstats;
+import com.drgarbage.core.AnalysisCache;
 import com.drgarbage.core.CoreConstants;
 import com.drgarbage.javasrc.JavaAnnotations;
 import com.drgarbage.javasrc.JavaKeywords;
@@ -193,10 +197,10 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 				}
 			}
 			public int getEndLine() {
-				return endLine;
+				return endLine == ByteCodeConstants.INVALID_OFFSET ? endLine : endLine + lineShift;
 			}
 			public int getStartLine() {
-				return startLine;
+				return startLine == ByteCodeConstants.INVALID_OFFSET ? startLine : startLine + lineShift;
 			}
 		
 		}
@@ -326,10 +330,10 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 							}
 						}
 			
-						public void computeHandlersEnds(Map<Integer, AbstractInstruction> offsetInstructionMap) {
+						public void computeHandlersEnds(InstructionStream instructions) {
 							if (enclosedTryBlocks != null) {
 								for (TryBlock t : enclosedTryBlocks) {
-									t.computeHandlersEnds(offsetInstructionMap);
+									t.computeHandlersEnds(instructions);
 								}
 							}
 			
@@ -348,7 +352,7 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 								if (lastCatchBlock != null
 										&& lastCatchBlock.endOffset == ByteCodeConstants.INVALID_OFFSET) {
 			
-									AbstractInstruction inst = offsetInstructionMap.get(endOffset);
+									AbstractInstruction inst = instructions.getInstructionAt(endOffset);
 									int gotoTarget = Integer.MAX_VALUE;
 									if (inst instanceof BranchInstruction) {
 										BranchInstruction bi = (BranchInstruction) inst;
@@ -365,7 +369,7 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 							}
 			
 							if (finallyBlock != null) {
-								AbstractInstruction inst = offsetInstructionMap.get(endOffset);
+								AbstractInstruction inst = instructions.getInstructionAt(endOffset);
 								int gotoTarget = Integer.MAX_VALUE;
 								if (inst instanceof BranchInstruction) {
 									if (inst instanceof BranchInstruction) {
@@ -461,8 +465,27 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 			protected int firstLine = ByteCodeConstants.INVALID_LINE;
 	
 			private ArrayList<IInstructionLine> instructionLines = new ArrayList<IInstructionLine>();
+
+			/**
+			 * Bytecode offsets and document lines of the instruction lines 
+			 * in ascending order, built on the first lookup.
+			 */
+			private int[] instructionOffsets;
+			private int[] instructionDocLines;
+
+			/**
+			 * Index of the line number table, built on the first lookup:
+			 * the source lines in ascending order combined with the index
+			 * of the table entry (<code>line &lt;&lt; 32 | index</code>), the 
+			 * maximum of the source lines of the entries <code>1..i</code> 
+			 * and the start PCs of the entries, <code>null</code> if the table
+			 * is not sorted by the start PC.
+			 */
+			private long[] lineNumberIndex;
+			private int[] lineNumberMaxLines;
+			private int[] lineNumberStartPcs;
 			
-			private List<AbstractInstruction> instructions;
+			private InstructionStream instructions;
 	
 			protected boolean isConstructor = false;
 			
@@ -470,6 +493,7 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 	
 			private LineNumberTableEntry[] lineNumberTable;
 			private ExceptionTableEntry[] exceptionTable;
+			private StackMapFrame[] stackMapTable;
 			protected ILocalVariableTable localVariableTable;
 
 			/**
@@ -478,7 +502,6 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 	         */
 	        protected MethodVisitor mv;
 			protected String name;
-			private Map<Integer, AbstractInstruction> offsetInstructionMap;
 			private TryBlock openedTryBlock;
 			private List<TryBlock> rootTryBlocks;
 			protected String signature;
@@ -486,6 +509,37 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 			private int max_locals = ByteCodeConstants.INVALID_OFFSET;
 			
 			private List<ITryBlock> tryBlocks;
+
+			/**
+			 * <code>false</code> if only a placeholder has been 
+			 * rendered instead of the instructions of the method.
+			 */
+			private boolean bodyRendered = true;
+
+			/**
+			 * Length of the code and indentation of the body, the
+			 * character offset and length of the placeholder in the
+			 * document if the body has not been rendered.
+			 */
+			private int codeLength;
+			private int bodyIndent;
+			private int placeholderOffset;
+			private int placeholderLength;
+
+			/**
+			 * The array and the offset of the code if the body is 
+			 * rendered on demand and the code has not been decoded
+			 * yet, otherwise <code>null</code>.
+			 */
+			private byte[] codeBytes;
+			private int codeOffset;
+
+			/**
+			 * Number of lines the method has been moved since its 
+			 * body has been rendered. The lines of the instructions
+			 * and blocks are stored as rendered.
+			 */
+			private int lineShift = 0;
 			
 			/**
 	         * Constructs a new {@link AbstractMethodRenderer}.
@@ -541,6 +595,7 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 			 * @see com.drgarbage.asm.render.intf.IMethodSection#getExceptionTable()
 			 */
 			public ExceptionTableEntry[] getExceptionTable() {
+				decodeCode();
 				return exceptionTable;
 			}
 
@@ -548,12 +603,21 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 			 * @see com.drgarbage.asm.render.intf.IMethodSection#isExceptionTableAvailable()
 			 */
 			public boolean isExceptionTableAvailable() {
+				decodeCode();
 				if(exceptionTable == null || exceptionTable.length == 0){
 					return false;
 				}
 				
 				return true;
 			}
+
+			/* (non-Javadoc)
+			 * @see com.drgarbage.asm.render.intf.IMethodSection#getStackMapTable()
+			 */
+			public StackMapFrame[] getStackMapTable() {
+				decodeCode();
+				return stackMapTable;
+			}
 			
 			/* (non-Javadoc)
 			 * @see com.drgarbage.asm.render.intf.IMethodSection#getMaxStack()
@@ -573,45 +637,73 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 	         * @see com.drgarbage.asm.render.intf.IMethodSection#findOffsetLine(int)
 	         */
 	        public int findOffsetLine(int offset) {
-				List<IInstructionLine> ils = getInstructionLines();
-				if (ils != null && ils.size() > 0) {
-					for (IInstructionLine il : ils) {
-						if (il.getInstruction().getOffset() == offset) {
-							return il.getLine();
-						}
-					}
+				int i = findInstructionIndex(offset);
+				if (i >= 0) {
+					return instructionDocLines[i];
 				}
 				return IInstructionLine.INVALID_LINE;
 			}
+
+			/**
+			 * Builds the offset and line index of the instruction lines
+			 * if the instruction lines have been changed.
+			 */
+			private void buildInstructionIndex() {
+				int n = instructionLines.size();
+				if (instructionOffsets != null && instructionOffsets.length == n) {
+					return;
+				}
+
+				int[] offsets = new int[n];
+				int[] lines = new int[n];
+				for (int i = 0; i < n; i++) {
+					IInstructionLine il = instructionLines.get(i);
+					offsets[i] = il.getInstruction().getOffset();
+					lines[i] = il.getLine();
+				}
+				instructionOffsets = offsets;
+				instructionDocLines = lines;
+			}
+
+			/**
+			 * Returns the index of the instruction line with the given offset.
+			 * @param offset bytecode offset
+			 * @return the index or -1 if not found
+			 */
+			private int findInstructionIndex(int offset) {
+				buildInstructionIndex();
+				int i = Arrays.binarySearch(instructionOffsets, offset);
+				return i >= 0 ? i : -1;
+			}
 	
 	        /* (non-Javadoc)
 			 * @see com.drgarbage.asm.render.intf.IMethodSection#getDocLine(int)
 			 */
 			public int getBytecodeLine(int sourceCodeLine) {
+				decodeCode();
 				if (lineNumberTable == null || lineNumberTable.length == 0
 						|| sourceCodeLine == ByteCodeConstants.INVALID_OFFSET
 						
 						/* if there are no instructions we will find nothing either */
-						|| instructionLines.size() == 0
+						|| (bodyRendered && instructionLines.size() == 0)
 				) {
 					return ByteCodeConstants.INVALID_OFFSET;
 				}
-	
+
 				int offset = lookUpLineNumberTableForStartPC(sourceCodeLine);
+
+				if (!bodyRendered) {
+					/* the line belongs to this method, the instructions are not rendered yet */
+					return offset == ByteCodeConstants.INVALID_OFFSET ? ByteCodeConstants.INVALID_OFFSET : firstLine;
+				}
 	
-				int byteCodeDocLine = ByteCodeConstants.INVALID_OFFSET;
-				int n = instructionLines.size();
-				for (int i = 0; i < n; i++) {
-					IInstructionLine  il = instructionLines.get(i);
-					
-					if (offset == il.getInstruction().getOffset()) {
-						byteCodeDocLine = il.getLine();
-						break;
-					}
+				int i = findInstructionIndex(offset);
+				if (i >= 0) {
+					return instructionDocLines[i];
 				}
 				
 				/* not found */
-				return byteCodeDocLine;
+				return ByteCodeConstants.INVALID_OFFSET;
 			}
 	
 	        /**
@@ -670,21 +762,15 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 				}
 	
 				
-				int offset = ByteCodeConstants.INVALID_OFFSET;
-				int n = instructionLines.size();
-				for (int i = 0; i < n; i++) {
-					IInstructionLine  il = instructionLines.get(i);
-					if (byteCodeDocLine <= il.getLine()) {
-						offset = il.getInstruction().getOffset();
-						break;
-					}
-				}
-				if (offset == ByteCodeConstants.INVALID_OFFSET) {
-					/* if we have not found it yet
-					 * we are after the last instruction 
+				/* the first instruction at or after the line */
+				buildInstructionIndex();
+				int i = lowerBound(instructionDocLines, byteCodeDocLine);
+				if (i == instructionDocLines.length) {
+					/* we are after the last instruction 
 					 * let us use the offset of the last instruction */
-					offset = instructionLines.get(n -1).getInstruction().getOffset();
+					i--;
 				}
+				int offset = instructionOffsets[i];
 	
 				return lookUpLineNumberTable(offset);
 			}
@@ -702,11 +788,19 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 			public boolean hasCode() {
 				return !isNative() && !isAbstract();
 			}
+
+	        /* (non-Javadoc)
+			 * @see com.drgarbage.asm.render.intf.IMethodSection#isBodyRendered()
+			 */
+			public boolean isBodyRendered() {
+				return bodyRendered;
+			}
 	
 	        /* (non-Javadoc)
 			 * @see com.drgarbage.asm.render.intf.IMethodSection#hasLineNumberTable()
 			 */
 			public boolean hasLineNumberTable() {
+				decodeCode();
 				return lineNumberTable != null ;
 			}
 	
@@ -754,6 +848,20 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 						return en.getLineNumber();
 					}
 					
+					buildLineNumberIndex();
+					if (lineNumberStartPcs != null) {
+						/* 
+						 * The table is sorted by the start PC: the first entry 
+						 * with the offset or the entry before the first greater 
+						 * start PC, the same result as the linear search below.
+						 */
+						int i = lowerBound(lineNumberStartPcs, offset);
+						if (i < lineNumberStartPcs.length && lineNumberStartPcs[i] == offset) {
+							return lineNumberTable[i].getLineNumber();
+						}
+						return lineNumberTable[Math.max(i - 1, 0)].getLineNumber();
+					}
+
 					/* find offset */
 					LineNumberTableEntry lastEntry = null;				
 					for (int i = 0; i < lineNumberTable.length; i++) {
@@ -779,24 +887,68 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 			 */
 			private int lookUpLineNumberTableForStartPC(int oneBasedsourceCodeLine) {
 				if (oneBasedsourceCodeLine != ByteCodeConstants.INVALID_OFFSET) {
-					
-					/* find startPointCode */
-					LineNumberTableEntry lastEntry = null;				
-					for (int i = 0; i < lineNumberTable.length; i++) {
-						LineNumberTableEntry en = lineNumberTable[i];
-						if (oneBasedsourceCodeLine == en.getLineNumber()) {
-							return en.getStartPc();
-						}
-						else if (lastEntry != null && oneBasedsourceCodeLine < en.getLineNumber()) {
-							return lastEntry.getStartPc();
-						}
-						lastEntry = en;
+					buildLineNumberIndex();
+
+					/* 
+					 * The entries are checked in the table order: the first entry with 
+					 * the line wins, unless an entry with a greater line comes first.
+					 * In this case the start PC of the entry before is returned.
+					 */
+					int exact = Integer.MAX_VALUE;
+					long key = (long) oneBasedsourceCodeLine << 32;
+					int i = lowerBound(lineNumberIndex, key);
+					if (i < lineNumberIndex.length && (lineNumberIndex[i] >>> 32) == oneBasedsourceCodeLine) {
+						exact = (int) lineNumberIndex[i];
+					}
+
+					int greater = lowerBound(lineNumberMaxLines, oneBasedsourceCodeLine + 1);
+					if (exact < greater) {
+						return lineNumberTable[exact].getStartPc();
+					}
+					if (greater < lineNumberMaxLines.length) {
+						return lineNumberTable[greater - 1].getStartPc();
 					}
 				}
 	
 				/* not found */
 				return ByteCodeConstants.INVALID_OFFSET;
 			}
+
+			/**
+			 * Builds the index of the line number table.
+			 */
+			private void buildLineNumberIndex() {
+				if (lineNumberIndex != null) {
+					return;
+				}
+
+				int n = lineNumberTable.length;
+				long[] index = new long[n];
+				int[] maxLines = new int[n];
+				int[] startPcs = new int[n];
+				boolean sorted = true;
+				int max = Integer.MIN_VALUE;
+				for (int i = 0; i < n; i++) {
+					LineNumberTableEntry en = lineNumberTable[i];
+					index[i] = ((long) en.getLineNumber() << 32) | i;
+
+					/* the first entry is never compared with a greater line */
+					if (i > 0 && en.getLineNumber() > max) {
+						max = en.getLineNumber();
+					}
+					maxLines[i] = max;
+
+					startPcs[i] = en.getStartPc();
+					if (i > 0 && startPcs[i] < startPcs[i - 1]) {
+						sorted = false;
+					}
+				}
+				Arrays.sort(index);
+
+				lineNumberMaxLines = maxLines;
+				lineNumberStartPcs = sorted ? startPcs : null;
+				lineNumberIndex = index;
+			}
 	
 	        private void renderLineNumberTable(LineNumberTableEntry[] lineNumberTable) {
 				if (lineNumberTable == null) {
@@ -971,6 +1123,15 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 					}
 	        }
 	
+	        private void renderBodyPlaceholder(int codeLength) {
+	        	appendCommentBegin();
+	        	appendSpace();
+	        	sb.append(formatXBytesOfCodeNotRendered.format(new Object[] {Integer.valueOf(codeLength)}));
+	        	appendSpace();
+	        	appendCommentEnd();
+	        	appendNewline();
+	        }
+
 	        private void renderMaxs() {
 					appendNewline();
 					appendCommentBegin();
@@ -1130,24 +1291,93 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 			}
 	
 	        public boolean visitCode(byte[] bytes, int offset, int length) {
-				IndexedInstructionParser parser = new IndexedInstructionParser(bytes, offset, length);
-				instructions = parser.parse();
-				offsetInstructionMap = parser.offsetInstructionMap;
-				
-	
-				/* load try blocks */
-				exceptionTable = parser.parseExceptionTable();
-				
-				HashSet<String> attributeNames = new HashSet<String>();
-				attributeNames.add(ByteCodeConstants.LINE_NUMBER_TABLE);
-				attributeNames.add(ByteCodeConstants.LOCAL_VARIABLE_TABLE);
-				attributeNames.add(ByteCodeConstants.LOCAL_VARIABLE_TYPE_TABLE);
-				
-				Map<String, Object> attrs = parser.parseAttributes(attributeNames, constantPool);
+				codeLength = length;
+				if (renderMethodBodiesOnDemand) {
+					/* 
+					 * only the local variables are read for the signature, 
+					 * the code is decoded when the body is rendered 
+					 */
+					codeBytes = bytes;
+					codeOffset = offset;
+					InstructionParser parser = new InstructionParser(bytes, offset, length);
+					parser.skipCode();
+
+					HashSet<String> attributeNames = new HashSet<String>();
+					attributeNames.add(ByteCodeConstants.LOCAL_VARIABLE_TABLE);
+					attributeNames.add(ByteCodeConstants.LOCAL_VARIABLE_TYPE_TABLE);
+					setLocalVariableTable(parser.parseAttributes(attributeNames, constantPool));
+
+					renderSignature();
+
+					bodyRendered = false;
+					bodyIndent = indent;
+					placeholderOffset = sb.length();
+					renderBodyPlaceholder(length);
+					placeholderLength = sb.length() - placeholderOffset;
+				}
+				else {
+					decodeCode(bytes, offset, length, getDecodedMethod(bytes, name, descriptor));
+					renderSignature();
+					renderBody(length);
+				}
+
+				return true;
+			}
+
+			/**
+			 * Decodes the code of the method if the body is rendered 
+			 * on demand and the code has not been decoded yet.
+			 */
+			private void decodeCode() {
+				if (codeBytes != null) {
+					byte[] bytes = codeBytes;
+					codeBytes = null;
+					decodeCode(bytes, codeOffset, codeLength, null);
+				}
+			}
+
+			/**
+			 * Decodes the instructions, the exception table and the 
+			 * attributes of the code.
+			 * @param bytes the array containing the code
+			 * @param offset the offset of the code
+			 * @param length the length of the code
+			 * @param attrs the method decoded by the {@link AnalysisCache} 
+			 *    or <code>null</code> if the code has to be decoded
+			 */
+			private void decodeCode(byte[] bytes, int offset, int length, Map<String, Object> attrs) {
+				if (attrs != null) {
+					/* decoded once per class file and shared with the other views */
+					instructions = (InstructionStream)attrs.get(ByteCodeConstants.CODE);
+					exceptionTable = (ExceptionTableEntry[])attrs.get(ByteCodeConstants.EXCEPTION_TABLE);
+				}
+				else {
+					InstructionParser parser = new InstructionParser(bytes, offset, length);
+					instructions = parser.parse();
+
+					/* load try blocks */
+					exceptionTable = parser.parseExceptionTable();
+
+					HashSet<String> attributeNames = new HashSet<String>();
+					attributeNames.add(ByteCodeConstants.LINE_NUMBER_TABLE);
+					attributeNames.add(ByteCodeConstants.LOCAL_VARIABLE_TABLE);
+					attributeNames.add(ByteCodeConstants.LOCAL_VARIABLE_TYPE_TABLE);
+					attributeNames.add(ByteCodeConstants.STACK_MAP_TABLE);
+
+					attrs = parser.parseAttributes(attributeNames, constantPool);
+				}
 				
 				
 				lineNumberTable = (LineNumberTableEntry[])attrs.get(ByteCodeConstants.LINE_NUMBER_TABLE);
-				
+				stackMapTable = (StackMapFrame[])attrs.get(ByteCodeConstants.STACK_MAP_TABLE);
+				setLocalVariableTable(attrs);
+			}
+
+			/**
+			 * Creates the local variable table from the decoded attributes.
+			 * @param attrs the attributes of the code
+			 */
+			private void setLocalVariableTable(Map<String, Object> attrs) {
 				LocalVariableTableEntry[] varTableEntries = (LocalVariableTableEntry[])attrs.get(ByteCodeConstants.LOCAL_VARIABLE_TABLE);
 				LocalVariableTypeTableEntry[] varTypeTable = (LocalVariableTypeTableEntry[])attrs.get(ByteCodeConstants.LOCAL_VARIABLE_TYPE_TABLE);
 				localVariableTable = createLocalVariableTable(varTableEntries != null);
@@ -1161,9 +1391,16 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 						localVariableTable.addLocalVariableTypeTableEntry(entry);
 					}
 				}
-				
-				renderSignature();
-				
+			}
+
+			/**
+			 * Renders the instructions, the try blocks and the tables of the method.
+			 * The code is decoded if it has not been decoded yet.
+			 * @param length the length of the code
+			 */
+			private void renderBody(int length) {
+				decodeCode();
+
 				if (exceptionTable != null && exceptionTable.length > 0) {
 	
 	
@@ -1190,7 +1427,7 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 					TryBlock dummyParentTryBlock = new TryBlock(null, 0, length);
 					for (TryBlock tb : rootTryBlocks) {
 						tb.enclosingTryBlock = dummyParentTryBlock;
-						tb.computeHandlersEnds(offsetInstructionMap);
+						tb.computeHandlersEnds(instructions);
 					}
 				}
 	
@@ -1248,8 +1485,29 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 				if(showExceptionTable){
 					renderExceptionTable();
 				}
+			}
 
-				return true;
+			/**
+			 * Shifts the lines of the method starting at the given line.
+			 * @param line the first line to shift
+			 * @param lineDelta the number of lines to shift
+			 * @param offset the first character offset to shift
+			 * @param offsetDelta the number of characters to shift
+			 */
+			private void shiftLines(int line, int lineDelta, int offset, int offsetDelta) {
+				if (!bodyRendered && placeholderOffset >= offset) {
+					placeholderOffset += offsetDelta;
+				}
+				if (firstLine >= line) {
+					firstLine += lineDelta;
+					lineShift += lineDelta;
+
+					/* the index keeps the shifted lines */
+					instructionOffsets = null;
+				}
+				if (lastLine >= line) {
+					lastLine += lineDelta;
+				}
 			}
 	
 	        public void visitEnd() {
@@ -1466,14 +1724,10 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 	
 				int offset = lookUpLineNumberTableForStartPC(sourceCodeLine +1);
 				if (offset != ByteCodeConstants.INVALID_OFFSET) {
-
-					List<IInstructionLine> lines = getInstructionLines();
-					for (IInstructionLine line : lines) {
-						if (offset == line.getInstruction().getOffset()) {
-							return line;
-						}
+					int i = findInstructionIndex(offset);
+					if (i >= 0) {
+						return instructionLines.get(i);
 					}
-					
 				}
 				return null;
 			}
@@ -1774,24 +2028,6 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
         }
     }
 
-	public static class IndexedInstructionParser extends InstructionParser {
-		private HashMap<Integer, AbstractInstruction> offsetInstructionMap = new HashMap<Integer, AbstractInstruction>();
-	
-	
-		public IndexedInstructionParser(byte[] code, int offset, int length) {
-			super(code, offset, length);
-		}
-
-
-		@Override
-		protected AbstractInstruction parseNextInstruction(boolean wide) throws IOException {
-			AbstractInstruction instruction = super.parseNextInstruction(wide);
-			offsetInstructionMap.put(instruction.getOffset(), instruction);
-			return instruction;
-		}
-	
-	}
-
 	protected class InstructionRenderer implements IInstructionLine {
 	
 			protected boolean commentOpened = false;
@@ -2155,7 +2391,10 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 			 * @see com.drgarbage.asm.render.intf.IInstructionLine#getLine()
 			 */
 			public int getLine() {
-				return line;
+				if (methodRenderer == null || line == INVALID_LINE) {
+					return line;
+				}
+				return line + methodRenderer.lineShift;
 			}
 	
 			protected void openCommentIfNeeded() {
@@ -2676,6 +2915,7 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 	protected ArrayList<IFieldSection> fieldSections = new ArrayList<IFieldSection>();
 
 	protected MessageFormat formatCoversBytesXToY = new MessageFormat(ByteCodeConstants.COVERS_BYTES_X_TO_Y);
+	protected MessageFormat formatXBytesOfCodeNotRendered = new MessageFormat(ByteCodeConstants.X_BYTES_OF_CODE_NOT_RENDERED);
 	protected ArrayList<String> headerLines;
 	protected int indent = 0;
 
@@ -2684,8 +2924,35 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 	protected int[] methodBorderLines;
 	protected ArrayList<Integer> methodBorderLinesList = new ArrayList<Integer>();
 	protected ArrayList<IMethodSection> methodSections = new ArrayList<IMethodSection>();
+
+	/**
+	 * Line interval index of the method sections sorted by
+	 * the first line, built on the first lookup.
+	 */
+	private IMethodSection[] indexedMethodSections;
+	private int[] methodFirstLines;
+	private int[] methodLastLines;
+	private int indexedMethodSectionCount;
 	protected String name;
 	protected boolean renderTryCatchFinallyBlocks = false;
+
+	/**
+	 * If <code>true</code> only the signatures of the methods are rendered,
+	 * the bodies are rendered by {@link #renderMethodBody(IMethodSection)}.
+	 */
+	protected boolean renderMethodBodiesOnDemand = false;
+
+	/**
+	 * The class file set by {@link #setClassBytes(byte[])} or 
+	 * <code>null</code>. The methods of this array are looked up in
+	 * the {@link AnalysisCache}.
+	 */
+	private byte[] classBytes;
+
+	/**
+	 * The decoded methods of {@link #classBytes}, loaded on the first use.
+	 */
+	private Map<String, Map<String, Object>> decodedMethods;
 	protected StringBuffer sb = new StringBuffer();
 
 	protected boolean showConstantPool = false;
@@ -2712,6 +2979,7 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 			showExceptionTable = store.getBoolean(CLASS_FILE_ATTR_SHOW_EXCEPTION_TABLE);
 			showMaxs= store.getBoolean(CLASS_FILE_ATTR_SHOW_MAXS);
 			renderTryCatchFinallyBlocks = store.getBoolean(CLASS_FILE_ATTR_RENDER_TRYCATCH_BLOCKS);
+			renderMethodBodiesOnDemand = store.getBoolean(CLASS_FILE_ATTR_RENDER_METHOD_BODIES_ON_DEMAND);
 			
 			if (BRANCH_TARGET_ADDRESS_ABSOLUTE.equals(
 					store.getString(BRANCH_TARGET_ADDRESS_RENDERING)
@@ -2722,6 +2990,133 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 
 
 	}
+	/**
+	 * Returns the key of a method used in the set 
+	 * of the rendered method bodies.
+	 * @param name the method name
+	 * @param descriptor the method descriptor
+	 * @return the key
+	 */
+	public static String getMethodKey(String name, String descriptor) {
+		return AnalysisCache.getMethodKey(name, descriptor);
+	}
+
+	/**
+	 * Sets the class file the document is read from. The code of the 
+	 * methods is taken from the {@link AnalysisCache} if the 
+	 * <code>ClassReader</code> reads this array. Code read from 
+	 * any other source is decoded by the document.
+	 * @param classBytes the class file or <code>null</code>
+	 */
+	public void setClassBytes(byte[] classBytes) {
+		this.classBytes = classBytes;
+		decodedMethods = null;
+	}
+
+	/**
+	 * Returns the decoded method from the {@link AnalysisCache}
+	 * if the code belongs to the class file set by 
+	 * {@link #setClassBytes(byte[])}.
+	 * @param bytes the array passed to the code visitor
+	 * @param name the method name
+	 * @param descriptor the method descriptor
+	 * @return the attributes of the method or <code>null</code>
+	 */
+	protected Map<String, Object> getDecodedMethod(byte[] bytes, String name, String descriptor) {
+		if (classBytes == null || bytes != classBytes) {
+			/* e.g. the code of a method read by the debugger */
+			return null;
+		}
+		if (decodedMethods == null) {
+			decodedMethods = AnalysisCache.getDefault().getDecodedMethods(classBytes);
+		}
+		return decodedMethods.get(getMethodKey(name, descriptor));
+	}
+
+	/**
+	 * Returns <code>true</code> if only the signatures of the methods are
+	 * rendered and the bodies are rendered on demand.
+	 * @return true or false
+	 */
+	public boolean isRenderMethodBodiesOnDemand() {
+		return renderMethodBodiesOnDemand;
+	}
+
+	/**
+	 * Renders the body of a method which has been rendered with a 
+	 * placeholder. The placeholder line is replaced by the body, the 
+	 * lines of the following methods are shifted. The other methods 
+	 * are not rendered again.
+	 * 
+	 * @param methodSection a method section of this document
+	 * @return the text which replaces the placeholder line
+	 *    <code>getFirstLine() + 1</code> of the method or 
+	 *    <code>null</code> if the body has already been rendered
+	 */
+	public String renderMethodBody(IMethodSection methodSection) {
+		if (!(methodSection instanceof AbstractMethodRenderer) || methodSection.isBodyRendered()) {
+			return null;
+		}
+
+		AbstractMethodRenderer m = (AbstractMethodRenderer) methodSection;
+		int line = m.firstLine + 1;
+
+		/* render into a separate buffer starting at the line of the placeholder */
+		StringBuffer documentBuffer = sb;
+		int documentLineCount = lineCount;
+		int documentIndent = indent;
+		String body;
+		int bodyLines;
+		try {
+			sb = new StringBuffer();
+			sb.append(JavaLexicalConstants.NEWLINE); /* indent the first line */
+			lineCount = line;
+			indent = m.bodyIndent;
+			m.lineShift = 0;
+			m.renderBody(m.codeLength);
+			body = sb.substring(1);
+			bodyLines = lineCount - line;
+		}
+		finally {
+			sb = documentBuffer;
+			lineCount = documentLineCount;
+			indent = documentIndent;
+		}
+
+		sb.replace(m.placeholderOffset, m.placeholderOffset + m.placeholderLength, body);
+		m.bodyRendered = true;
+
+		/* the lines after the placeholder */
+		int lineDelta = bodyLines - 1;
+		int offsetDelta = body.length() - m.placeholderLength;
+		int offset = m.placeholderOffset + m.placeholderLength;
+		for (IMethodSection ms : methodSections) {
+			if (ms != m && ms instanceof AbstractMethodRenderer) {
+				((AbstractMethodRenderer) ms).shiftLines(line + 1, lineDelta, offset, offsetDelta);
+			}
+		}
+		if (m.lastLine != ByteCodeConstants.INVALID_LINE) {
+			m.lastLine += lineDelta;
+		}
+
+		for (IFieldSection fs : fieldSections) {
+			if (fs instanceof FieldRenderer && ((FieldRenderer) fs).documentLine > line) {
+				((FieldRenderer) fs).documentLine += lineDelta;
+			}
+		}
+		if (methodBorderLines != null) {
+			for (int i = 0; i < methodBorderLines.length; i++) {
+				if (methodBorderLines[i] > line) {
+					methodBorderLines[i] += lineDelta;
+				}
+			}
+		}
+		indexedMethodSections = null;
+		lineCount += lineDelta;
+
+		return body;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.drgarbage.asm.render.intf.IClassFileDocument#addFieldSection(com.drgarbage.asm.render.intf.IFieldSection)
 	 */
@@ -3264,15 +3659,94 @@ public abstract class AbstractClassFileDocument extends ClassVisitor
 	 * @see com.drgarbage.classfile.render.intf.IClassFileDocument#findMethod(int)
 	 */
 	public IMethodSection findMethodSection(int line) {
+		buildMethodSectionIndex();
+
+		/* the last method starting at or before the line */
+		int i = lowerBound(methodFirstLines, line + 1) - 1;
+		if (i >= 0 && methodLastLines[i] >= line) {
+			return indexedMethodSections[i];
+		}
+		return null;
+	}
+
+	/**
+	 * Builds the line interval index of the method sections
+	 * if methods have been added.
+	 */
+	private void buildMethodSectionIndex() {
+		if (indexedMethodSections != null && indexedMethodSectionCount == methodSections.size()) {
+			return;
+		}
+
+		List<IMethodSection> list = new ArrayList<IMethodSection>(methodSections.size());
 		for (IMethodSection ms : methodSections) {
 			if (ms.getFirstLine() != ByteCodeConstants.INVALID_OFFSET
-					&& ms.getFirstLine() <= line
-					&& ms.getLastLine() != ByteCodeConstants.INVALID_OFFSET
-					&& ms.getLastLine() >= line) {
-				return ms;
+					&& ms.getLastLine() != ByteCodeConstants.INVALID_OFFSET) {
+				list.add(ms);
 			}
 		}
-		return null;
+
+		/* the methods are rendered one after another, the intervals do not overlap */
+		Collections.sort(list, new Comparator<IMethodSection>() {
+			public int compare(IMethodSection ms1, IMethodSection ms2) {
+				return ms1.getFirstLine() < ms2.getFirstLine() ? -1 
+						: (ms1.getFirstLine() == ms2.getFirstLine() ? 0 : 1);
+			}
+		});
+
+		int n = list.size();
+		methodFirstLines = new int[n];
+		methodLastLines = new int[n];
+		for (int i = 0; i < n; i++) {
+			methodFirstLines[i] = list.get(i).getFirstLine();
+			methodLastLines[i] = list.get(i).getLastLine();
+		}
+		indexedMethodSections = list.toArray(new IMethodSection[n]);
+		indexedMethodSectionCount = methodSections.size();
+	}
+
+	/**
+	 * Returns the index of the first element which is 
+	 * greater than or equal to the key.
+	 * @param a array sorted in ascending order
+	 * @param key the key
+	 * @return the index or the length of the array
+	 */
+	private static int lowerBound(int[] a, int key) {
+		int low = 0;
+		int high = a.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (a[mid] < key) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the index of the first element which is 
+	 * greater than or equal to the key.
+	 * @param a array sorted in ascending order
+	 * @param key the key
+	 * @return the index or the length of the array
+	 */
+	private static int lowerBound(long[] a, long key) {
+		int low = 0;
+		int high = a.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (a[mid] < key) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
 	}
 
 	/* (non-Javadoc)
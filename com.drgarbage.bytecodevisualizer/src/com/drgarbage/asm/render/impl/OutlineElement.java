@@ -272,6 +272,24 @@ public class OutlineElement extends ClassVisitor implements IJavaElement, IParen
 		this.documentLine = documentLine;
 	}
 
+	/**
+	 * Shifts the document lines of this element and its 
+	 * children starting at the given line.
+	 * @param line the first line to shift
+	 * @param delta the number of lines
+	 */
+	public void shiftBytecodeDocumentLines(int line, int delta) {
+		if (documentLine >= line) {
+			documentLine += delta;
+		}
+
+		for (IJavaElement child : children) {
+			if (child instanceof OutlineElement) {
+				((OutlineElement) child).shiftBytecodeDocumentLines(line, delta);
+			}
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see com.drgarbage.classfile.render.intf.IOutlineElement#getSourceCodeDocumentLine()
 	 */
@@ -271,6 +271,9 @@ public class JDIClassFileDocument extends AbstractClassFileDocument {
 		this.referenceType = referenceType;
 		this.debugTargetName = debugTargetName;
 		this.classVisitor = classVisitor;
+		
+		/* the class cannot be read again to render a method body later */
+		renderMethodBodiesOnDemand = false;
 	}
 	
 	/**
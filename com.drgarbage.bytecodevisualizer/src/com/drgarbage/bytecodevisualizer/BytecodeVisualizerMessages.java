@@ -55,6 +55,7 @@ public class BytecodeVisualizerMessages extends NLS {
 	public static String GeneralPreferencePage_chk_Show_Constant_Pool;
 	public static String GeneralPreferencePage_chk_Show_Maxs;
 	public static String GeneralPreferencePage_chk_Render_try_catch_blocks;
+	public static String GeneralPreferencePage_chk_Render_method_bodies_on_demand;
 
 	public static String GeneralPreferencePage_radioGroup_Branch_Target_Address_Rendering;
 	public static String GeneralPreferencePage_radio_Absolute;
@@ -181,6 +182,10 @@ public class BytecodeVisualizerMessages extends NLS {
 	public static String OSA_No_Loop;
 	public static String OSA_Loop_Based_success;
 	public static String OSA_Loop_Based_error;
+	public static String OSA_Frame_Based_Analysis;
+	public static String OSA_No_Frames;
+	public static String OSA_Frame_Based_success;
+	public static String OSA_Frame_Based_error;
 	
 	public static String OSA_statistic;
 	public static String OSA_instruction_obj_missing;
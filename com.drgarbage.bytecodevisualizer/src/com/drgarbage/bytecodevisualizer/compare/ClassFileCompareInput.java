@@ -1,19 +1,27 @@
 package com.drgarbage.bytecodevisualizer.compare;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
 import org.eclipse.compare.CompareConfiguration;
 import org.eclipse.compare.CompareEditorInput;
 import org.eclipse.compare.CompareUI;
 import org.eclipse.compare.CompareViewerPane;
+import org.eclipse.compare.ITypedElement;
 import org.eclipse.compare.Splitter;
 import org.eclipse.compare.internal.CompareContentViewerSwitchingPane;
 import org.eclipse.compare.internal.CompareMessages;
 import org.eclipse.compare.internal.CompareUIPlugin;
 import org.eclipse.compare.internal.ViewerDescriptor;
+import org.eclipse.compare.structuremergeviewer.DiffNode;
 import org.eclipse.compare.structuremergeviewer.Differencer;
 import org.eclipse.compare.structuremergeviewer.ICompareInput;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.jdt.ui.ISharedImages;
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.Separator;
@@ -36,9 +44,18 @@ import org.eclipse.swt.widgets.ToolBar;
 import org.eclipse.ui.IReusableEditor;
 import org.eclipse.ui.PlatformUI;
 
+import com.drgarbage.asm.render.impl.ClassFileDocument;
+import com.drgarbage.asm.render.intf.IFieldSection;
+import com.drgarbage.asm.render.intf.IMethodSection;
 import com.drgarbage.bytecodevisualizer.BytecodeVisualizerConstants;
 import com.drgarbage.bytecodevisualizer.BytecodeVisualizerPlugin;
+import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.compare.ClassComparator;
+import com.drgarbage.bytecode.compare.ClassDifference;
+import com.drgarbage.bytecode.compare.ClassDifference.MemberDifference;
+import com.drgarbage.bytecode.compare.ClassFingerprint;
 import com.drgarbage.core.img.CoreImg;
+import com.drgarbage.io.IoUtils;
 
 /**
  * A compare operation input which can present its results in a compare editor.
@@ -123,10 +140,40 @@ public class ClassFileCompareInput extends CompareEditorInput {
             cc.setLeftLabel(left.getName());
             cc.setRightLabel(right.getName());
 
-            setTitle(ClassFileMergeViewer.CLASS_FILE_MERGEVIEWER_TITLE
-                + left.getElementName()+ " - " + right.getElementName()); //$NON-NLS-1$
-            Differencer differencer = new Differencer();
+            String title = ClassFileMergeViewer.CLASS_FILE_MERGEVIEWER_TITLE
+                + left.getElementName()+ " - " + right.getElementName(); //$NON-NLS-1$
+            setTitle(title);
             monitor.beginTask("Class file comparing...", 30); //$NON-NLS-1$
+
+            /* 
+             * Equal class files have no differences. Otherwise the members 
+             * are compared structurally, in the source view only the text of
+             * the changed members is compared. The whole text is compared if
+             * all members are structurally identical, because the fingerprints
+             * ignore e.g. the version, the annotations, the signatures and 
+             * the debug attributes.
+             */
+            byte[] leftBytes = readClassFile(left);
+            byte[] rightBytes = readClassFile(right);
+            if(leftBytes != null && Arrays.equals(leftBytes, rightBytes)){
+                return null;
+            }
+
+            ClassDifference diff = compareStructure(leftBytes, rightBytes);
+            monitor.worked(10);
+            if(diff != null && !diff.isIdentical()){
+                setTitle(title + " (" + diff.getSummary() + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+
+            if(diff != null && diff.getKind() == ClassDifference.KIND_CHANGED
+                    && left.getType().equals(CompareElement.TYPE_JAVA)){
+                DiffNode root = createStructure(diff, leftBytes, rightBytes);
+                if(root != null){
+                    return root;
+                }
+            }
+
+            Differencer differencer = new Differencer();
             IProgressMonitor sub = new SubProgressMonitor(monitor, 10);
             try {
                 sub.beginTask("Class File comparing...", 100); //$NON-NLS-1$
@@ -142,6 +189,183 @@ public class ClassFileCompareInput extends CompareEditorInput {
         }
     }
     
+    /**
+     * Compares two class files by the hashes of the normalized members.
+     * @param leftBytes the left class file or <code>null</code>
+     * @param rightBytes the right class file or <code>null</code>
+     * @return the difference or <code>null</code> if the class 
+     *          files could not be read
+     * @see ClassComparator
+     */
+    private static ClassDifference compareStructure(byte[] leftBytes, byte[] rightBytes) {
+        if(leftBytes == null || rightBytes == null){
+            return null;
+        }
+
+        try {
+            return new ClassComparator().compare(leftBytes, rightBytes);
+        } catch (IllegalArgumentException e) {
+            /* not a valid class file, the text comparison shows the content */
+            BytecodeVisualizerPlugin.log(e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates the compare structure of a structural difference. The 
+     * children of the root are the class header and the changed, added 
+     * and removed members. They hold the rendered text of the member,
+     * so that only the text of the changed members is compared.
+     * @param diff the difference of the class files
+     * @param leftBytes the left class file
+     * @param rightBytes the right class file
+     * @return the root node or <code>null</code> if the class 
+     *          files could not be rendered
+     */
+    private DiffNode createStructure(ClassDifference diff, byte[] leftBytes, byte[] rightBytes) {
+        ClassFileDocument leftDoc;
+        ClassFileDocument rightDoc;
+        try {
+            leftDoc = CompareElement.createClassFileDocument(leftBytes);
+            rightDoc = CompareElement.createClassFileDocument(rightBytes);
+        } catch (CoreException e) {
+            BytecodeVisualizerPlugin.log(e);
+            return null;
+        }
+
+        /* a body rendered on demand shifts the lines of the following members */
+        for(MemberDifference m: diff.getMemberDifferences()){
+            renderMethodBody(leftDoc, m);
+            renderMethodBody(rightDoc, m);
+        }
+
+        String type = left.getType();
+        String[] leftLines = leftDoc.toString().split("\n", -1); //$NON-NLS-1$
+        String[] rightLines = rightDoc.toString().split("\n", -1); //$NON-NLS-1$
+
+        DiffNode root = new DiffNode(null, Differencer.CHANGE, null, left, right);
+        if(diff.isHeaderChanged()){
+            /* the node is added to its parent */
+            String name = diff.getClassName();
+            new DiffNode(root, Differencer.CHANGE, null, 
+                    new MemberCompareElement(name, type, ISharedImages.IMG_OBJS_CLASS, 
+                            getLines(leftLines, leftDoc.getClassSignatureDocumentLine(), leftDoc.getClassSignatureDocumentLine())), 
+                    new MemberCompareElement(name, type, ISharedImages.IMG_OBJS_CLASS, 
+                            getLines(rightLines, rightDoc.getClassSignatureDocumentLine(), rightDoc.getClassSignatureDocumentLine())));
+        }
+
+        for(MemberDifference m: diff.getMemberDifferences()){
+            ITypedElement l = null;
+            ITypedElement r = null;
+            int kind = Differencer.CHANGE;
+            if(m.getKind() == ClassDifference.KIND_ADDED){
+                kind = Differencer.ADDITION;
+            }
+            else{
+                l = createMemberElement(m, leftDoc, leftLines, type);
+            }
+
+            if(m.getKind() == ClassDifference.KIND_REMOVED){
+                kind = Differencer.DELETION;
+            }
+            else{
+                r = createMemberElement(m, rightDoc, rightLines, type);
+            }
+
+            new DiffNode(root, kind, null, l, r);
+        }
+
+        return root;
+    }
+
+    /**
+     * Renders the body of a method if the bodies of the document
+     * are rendered on demand.
+     * @param doc the document
+     * @param m the member
+     */
+    private static void renderMethodBody(ClassFileDocument doc, MemberDifference m) {
+        if(m.getMemberType() != ClassFingerprint.MEMBER_TYPE_METHOD || !doc.isRenderMethodBodiesOnDemand()){
+            return;
+        }
+
+        IMethodSection ms = doc.findMethodSection(m.getName(), m.getDescriptor());
+        if(ms != null){
+            doc.renderMethodBody(ms);
+        }
+    }
+
+    /**
+     * Creates the compare element of a member of the document.
+     * @param m the member
+     * @param doc the document
+     * @param lines the lines of the document
+     * @param type the type of the compare element
+     * @return the element
+     */
+    private static MemberCompareElement createMemberElement(MemberDifference m, 
+            ClassFileDocument doc, String[] lines, String type) {
+        if(m.getMemberType() == ClassFingerprint.MEMBER_TYPE_FIELD){
+            IFieldSection fs = doc.findFieldSection(m.getName());
+            int line = fs == null ? ByteCodeConstants.INVALID_LINE : fs.getBytecodeDocumentLine();
+            return new MemberCompareElement(m.getName(), type, 
+                    ISharedImages.IMG_FIELD_DEFAULT, getLines(lines, line, line));
+        }
+
+        IMethodSection ms = doc.findMethodSection(m.getName(), m.getDescriptor());
+        String text = ms == null ? "" : getLines(lines, ms.getFirstLine(), ms.getLastLine()); //$NON-NLS-1$
+        return new MemberCompareElement(m.getName() + m.getDescriptor(), type, 
+                ISharedImages.IMG_OBJS_DEFAULT, text);
+    }
+
+    /**
+     * Returns the given lines of a document.
+     * @param lines the lines of the document
+     * @param first the first line, 0-based
+     * @param last the last line
+     * @return the text or an empty string if the
+     *          lines are not valid
+     */
+    private static String getLines(String[] lines, int first, int last) {
+        if(first < 0 || last < first || last >= lines.length){
+            return ""; //$NON-NLS-1$
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for(int i = first; i <= last; i++){
+            sb.append(lines[i]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads the class file of the element.
+     * @param element the compare element
+     * @return the bytes or <code>null</code> if the class
+     *          file could not be read
+     */
+    private static byte[] readClassFile(CompareElement element) {
+        try {
+            InputStream in = ClassFileMergeViewer.createStream(element.getJavaElement());
+            if(in == null){
+                return null;
+            }
+
+            try {
+                return IoUtils.readFully(in, -1);
+            } finally {
+                in.close();
+            }
+        } catch (CoreException e) {
+            BytecodeVisualizerPlugin.log(e);
+        } catch (IOException e) {
+            BytecodeVisualizerPlugin.log(e);
+        }
+
+        return null;
+    }
+
     /* (non-Javadoc)
      * @see org.eclipse.compare.CompareEditorInput#findContentViewer(org.eclipse.jface.viewers.Viewer, 
      * 		org.eclipse.compare.structuremergeviewer.ICompareInput, org.eclipse.swt.widgets.Composite)
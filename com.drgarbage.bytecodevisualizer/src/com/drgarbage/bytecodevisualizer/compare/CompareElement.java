@@ -16,9 +16,7 @@
 
 package com.drgarbage.bytecodevisualizer.compare;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.InputStream;
 
 import org.eclipse.compare.BufferedContent;
@@ -174,17 +172,6 @@ public class CompareElement extends BufferedContent implements ITypedElement, IS
     			for(int i = 0; i < max; i++){
     				bytes[i] = (byte) stream.read();
     			}
-
-    			InputStream in= new ByteArrayInputStream(bytes);
-    			DataInputStream din = new DataInputStream(new BufferedInputStream(in));
-
-    			ClassFileOutlineElement cv = new ClassFileOutlineElement();
-    			doc = new ClassFileDocument(cv);
-    			cv.setClassFileDocument(doc);
-
-    			ClassReader cr = new ClassReader(din, doc);
-    			cr.accept(doc, 0);
-
     		} catch (Exception e) {
     			throw new CoreException(new Status(IStatus.ERROR, 
     					BytecodeVisualizerPlugin.PLUGIN_ID, 
@@ -192,6 +179,8 @@ public class CompareElement extends BufferedContent implements ITypedElement, IS
     					e));
     		}
 
+    		doc = createClassFileDocument(bytes);
+
     		if(doc != null){
 
     			char[] content = doc.toString().toCharArray();
@@ -210,4 +199,28 @@ public class CompareElement extends BufferedContent implements ITypedElement, IS
     		return new ByteArrayInputStream(bytes);
     	}
     }
+
+    /**
+     * Renders the class file as a Java like text.
+     * @param bytes the class file
+     * @return the document
+     * @throws CoreException if the class file could not be read
+     */
+    static ClassFileDocument createClassFileDocument(byte[] bytes) throws CoreException {
+    	try {
+    		ClassFileOutlineElement cv = new ClassFileOutlineElement();
+    		ClassFileDocument doc = new ClassFileDocument(cv);
+    		cv.setClassFileDocument(doc);
+    		doc.setClassBytes(bytes);
+
+    		ClassReader cr = new ClassReader(bytes, doc);
+    		cr.accept(doc, 0);
+    		return doc;
+    	} catch (Exception e) {
+    		throw new CoreException(new Status(IStatus.ERROR, 
+    				BytecodeVisualizerPlugin.PLUGIN_ID, 
+    				e.getMessage(), 
+    				e));
+    	}
+    }
 }
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecodevisualizer.compare;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.eclipse.compare.IEncodedStreamContentAccessor;
+import org.eclipse.compare.ITypedElement;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.ui.ISharedImages;
+import org.eclipse.jdt.ui.JavaUI;
+import org.eclipse.swt.graphics.Image;
+
+/**
+ * The rendered text of a class member or of the class header. The
+ * elements are the children of the compare structure created from
+ * the structural difference of two class files, so that only the text
+ * of the changed members is compared.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class MemberCompareElement implements ITypedElement, IEncodedStreamContentAccessor {
+
+	private static final String CHARSET = "UTF-8"; //$NON-NLS-1$
+
+	private String name;
+	private String type;
+	private String imageKey;
+	private String text;
+
+	/**
+	 * Creates an element.
+	 * @param name the name displayed in the structure viewer
+	 * @param type the type of the compared class files, see {@link CompareElement#getType()}
+	 * @param imageKey the key of the image, one of the {@link ISharedImages} 
+	 *         constants. The image is created in the UI thread.
+	 * @param text the rendered text of the member
+	 */
+	public MemberCompareElement(String name, String type, String imageKey, String text) {
+		super();
+		this.name = name;
+		this.type = type;
+		this.imageKey = imageKey;
+		this.text = text;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.compare.ITypedElement#getName()
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.compare.ITypedElement#getType()
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.compare.ITypedElement#getImage()
+	 */
+	public Image getImage() {
+		return JavaUI.getSharedImages().getImage(imageKey);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.compare.IStreamContentAccessor#getContents()
+	 */
+	public InputStream getContents() throws CoreException {
+		try {
+			return new ByteArrayInputStream(text.getBytes(CHARSET));
+		} catch (UnsupportedEncodingException e) {
+			/* UTF-8 is supported by every JVM */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.compare.IEncodedStreamContentAccessor#getCharset()
+	 */
+	public String getCharset() throws CoreException {
+		return CHARSET;
+	}
+}
@@ -16,8 +16,6 @@
 
 package com.drgarbage.bytecodevisualizer.editors;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -25,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -55,6 +54,7 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.javaeditor.IClassFileEditorInput;
 import org.eclipse.jdt.ui.text.IJavaPartitions;
 import org.eclipse.jdt.ui.text.JavaTextTools;
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.source.IAnnotationModel;
 import org.eclipse.ui.IEditorInput;
@@ -64,10 +64,12 @@ import org.eclipse.ui.ide.FileStoreEditorInput;
 import org.eclipse.ui.texteditor.IDocumentProvider;
 
 import com.drgarbage.asm.ClassReader;
+import com.drgarbage.asm.render.impl.AbstractClassFileDocument;
 import com.drgarbage.asm.render.impl.ClassFileDocument;
 import com.drgarbage.asm.render.impl.ClassFileOutlineElement;
 import com.drgarbage.asm.render.intf.IClassFileDocument;
 import com.drgarbage.asm.render.intf.IDocumentUpdateListener;
+import com.drgarbage.asm.render.intf.IMethodSection;
 import com.drgarbage.bytecode.BytecodeUtils;
 import com.drgarbage.bytecode.jdi.JDIClassFileDocument;
 import com.drgarbage.bytecode.jdi.dialogs.SelectDebugTargetDialog;
@@ -77,6 +79,7 @@ import com.drgarbage.bytecodevisualizer.BytecodeVisualizerPlugin;
 import com.drgarbage.bytecodevisualizer.preferences.BytecodeVisualizerPreferenceConstats;
 import com.drgarbage.core.CoreConstants;
 import com.drgarbage.io.FileExtensions;
+import com.drgarbage.io.IoUtils;
 import com.drgarbage.javasrc.JavaLexicalConstants;
 import com.sun.jdi.ReferenceType;
 
@@ -112,6 +115,12 @@ public class BytecodeDocumentProvider extends FileDocumentProvider {
 	 */
 	private ArrayList<IDocumentUpdateListener> documentUpdateListeners;
 
+	/**
+	 * The document if the method bodies are rendered 
+	 * on demand, otherwise <code>null</code>.
+	 */
+	private IDocument bytecodeDocument;
+
 	/**
 	 * Constructor.
 	 * @param part bytecode editor
@@ -308,15 +317,10 @@ public class BytecodeDocumentProvider extends FileDocumentProvider {
 					
 					classFileDocument = doc;
 					classFileOutlineElement = outlineElement;
+					bytecodeDocument = null;
 					
 					/* fire update document events */
-					if (documentUpdateListeners != null) {
-						Iterator<IDocumentUpdateListener> it = documentUpdateListeners.iterator();
-						while (it.hasNext()) {
-							IDocumentUpdateListener l = it.next();
-							l.documentUpdated(classFileDocument);
-						}
-					}
+					fireDocumentUpdated();
 					
 					return true;
 				}
@@ -415,23 +419,25 @@ public class BytecodeDocumentProvider extends FileDocumentProvider {
 	 * @see org.eclipse.ui.editors.text.StorageDocumentProvider#setDocumentContent(org.eclipse.jface.text.IDocument, java.io.InputStream, java.lang.String)
 	 */
 	protected void setDocumentContent(IDocument document, InputStream contentStream, String encoding) throws CoreException {		
-		DataInputStream in = null;
 		try {
-			/* buffer only if necessary */
-			if (contentStream instanceof BufferedInputStream) {
-				in = new DataInputStream(contentStream);
-			}
-			else {
-				in = new DataInputStream(new BufferedInputStream(contentStream));
-			}
+			byte[] bytes = IoUtils.readFully(contentStream, -1);
 			ClassFileOutlineElement outlineElement = new ClassFileOutlineElement();
 	        ClassFileDocument doc = new ClassFileDocument(outlineElement);
 	        outlineElement.setClassFileDocument(doc);
-	        ClassReader cr = new ClassReader(in, doc);
+	        doc.setClassBytes(bytes);
+	        ClassReader cr = new ClassReader(bytes, doc);
 	        cr.accept(doc, 0);
 
 			document.set(doc.toString());
 			
+			if (doc.isRenderMethodBodiesOnDemand()) {
+				/* keep the document to insert the method bodies later */
+				bytecodeDocument = document;
+			}
+			else {
+				bytecodeDocument = null;
+			}
+			
 			classFileDocument = doc;
 			classFileOutlineElement = outlineElement;
 
@@ -442,14 +448,88 @@ public class BytecodeDocumentProvider extends FileDocumentProvider {
 			e.printStackTrace();
 		}
 		finally {
-			if (in != null) {
+			try {
+				contentStream.close();
+			} catch (IOException e) {}
+		}
+
+		/* fire update document events */
+		fireDocumentUpdated();
+	}
+
+	/**
+	 * Returns <code>true</code> if the method bodies of the current
+	 * document are rendered on demand.
+	 * @return true or false
+	 */
+	public boolean isRenderMethodBodiesOnDemand() {
+		return bytecodeDocument != null;
+	}
+
+	/**
+	 * Renders the bodies of the given methods if the method bodies are 
+	 * rendered on demand. Only the placeholder line of each method is 
+	 * replaced in the document, the lines of the following sections 
+	 * are shifted by the class file document.
+	 * The document update listeners are fired if the document has changed.
+	 * 
+	 * @param methods the method sections of the current document
+	 * @return <code>true</code> if the document has been updated
+	 */
+	public boolean renderMethodBodies(List<IMethodSection> methods) {
+		if (bytecodeDocument == null 
+				|| !(classFileDocument instanceof AbstractClassFileDocument)) {
+			return false;
+		}
+
+		AbstractClassFileDocument doc = (AbstractClassFileDocument) classFileDocument;
+		boolean changed = false;
+
+		/* the document is not modified by the user, do not mark it dirty */
+		ElementInfo info = getElementInfo(classFileEditor.getEditorInput());
+		if (info != null) {
+			bytecodeDocument.removeDocumentListener(info);
+		}
+		try {
+			for (IMethodSection m : methods) {
+				if (m.isBodyRendered()) {
+					continue;
+				}
+
+				int line = m.getFirstLine() + 1;
+				int lineCount = doc.getLineCount();
+				String body = doc.renderMethodBody(m);
+				if (body == null) {
+					continue;
+				}
+				changed = true;
+
+				if (classFileOutlineElement != null) {
+					classFileOutlineElement.shiftBytecodeDocumentLines(line + 1, doc.getLineCount() - lineCount);
+				}
+
 				try {
-					in.close();
-				} catch (IOException e) {}
+					bytecodeDocument.replace(bytecodeDocument.getLineOffset(line), 
+							bytecodeDocument.getLineLength(line), body);
+				} catch (BadLocationException e) {
+					/* the document is out of sync, should never happen */
+					bytecodeDocument.set(doc.toString());
+				}
+			}
+		}
+		finally {
+			if (info != null) {
+				bytecodeDocument.addDocumentListener(info);
 			}
 		}
 
-		/* fire update document events */
+		if (changed) {
+			fireDocumentUpdated();
+		}
+		return changed;
+	}
+
+	private void fireDocumentUpdated() {
 		if (documentUpdateListeners != null) {
 			Iterator<IDocumentUpdateListener> it = documentUpdateListeners.iterator();
 			while (it.hasNext()) {
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -85,6 +86,7 @@ import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextSelection;
+import org.eclipse.jface.text.IViewportListener;
 import org.eclipse.jface.text.TextSelection;
 import org.eclipse.jface.text.source.IAnnotationModel;
 import org.eclipse.jface.text.source.ISourceViewer;
@@ -130,6 +132,7 @@ import org.eclipse.swt.layout.FormLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Listener;
@@ -327,6 +330,17 @@ public class BytecodeEditor extends JavaEditor
 	 */
 	protected  List<IClassFileEditorSelectionListener> lineSelectionListener = new ArrayList<IClassFileEditorSelectionListener>();
 	
+	/**
+	 * Renders the bodies of the methods scrolled into view
+	 * if the method bodies are rendered on demand.
+	 */
+	private IViewportListener methodBodyViewportListener = new IViewportListener(){
+
+		public void viewportChanged(int verticalOffset) {
+			scheduleRenderVisibleMethodBodies();
+		}
+	};
+	
 	private ISelectionChangedListener outlineListener = new ISelectionChangedListener(){
 
 		public void selectionChanged(SelectionChangedEvent event) {
@@ -734,6 +748,9 @@ public class BytecodeEditor extends JavaEditor
 					}
 				}
 			});
+			
+			viewer.addViewportListener(methodBodyViewportListener);
+			scheduleRenderVisibleMethodBodies();
 		}
 
 		int index = addPage(c);
@@ -1223,6 +1240,9 @@ public class BytecodeEditor extends JavaEditor
 					viewer.doOperation(ProjectionViewer.TOGGLE);
 				}
 			});
+			
+			viewer.addViewportListener(methodBodyViewportListener);
+			scheduleRenderVisibleMethodBodies();
 		}
 
 	}
@@ -1288,9 +1308,86 @@ public class BytecodeEditor extends JavaEditor
 		if(operandStackViewPage != null){
 			operandStackViewPage.setInput(null);
 		}
+		
+		/* methods which are still visible without their bodies */
+		scheduleRenderVisibleMethodBodies();
 	}
 
 
+	/**
+	 * Renders the body of the given method if it has not been rendered yet.
+	 * The method section is updated in place.
+	 * @param m the method section
+	 * @return the method section
+	 */
+	private IMethodSection renderMethodBody(IMethodSection m) {
+		if (!m.isBodyRendered()) {
+			byteCodeDocumentProvider.renderMethodBodies(Collections.singletonList(m));
+		}
+		
+		return m;
+	}
+
+	/**
+	 * Renders the visible method bodies after the current event
+	 * has been processed, the document is not changed while the 
+	 * viewer is scrolling.
+	 */
+	private void scheduleRenderVisibleMethodBodies() {
+		if (byteCodeDocumentProvider.isRenderMethodBodiesOnDemand()) {
+			Display.getDefault().asyncExec(new Runnable() {
+				public void run() {
+					renderVisibleMethodBodies();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Renders the bodies of the methods which are visible in the 
+	 * bytecode viewer and have not been rendered yet.
+	 */
+	private void renderVisibleMethodBodies() {
+		ISourceViewer viewer = getSourceViewer();
+		IClassFileDocument doc = byteCodeDocumentProvider.getClassFileDocument();
+		if (viewer == null || viewer.getTextWidget() == null 
+				|| viewer.getTextWidget().isDisposed() || doc == null) {
+			return;
+		}
+		
+		int top = viewer.getTopIndex();
+		int bottom = viewer.getBottomIndex();
+
+		/* the method sections are in the order of the document, find the first visible one */
+		List<IMethodSection> methods = doc.getMethodSections();
+		int low = 0;
+		int high = methods.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (methods.get(mid).getLastLine() < top) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+
+		List<IMethodSection> visibleMethods = null;
+		for (int i = low; i < methods.size() && methods.get(i).getFirstLine() <= bottom; i++) {
+			IMethodSection m = methods.get(i);
+			if (!m.isBodyRendered()) {
+				if (visibleMethods == null) {
+					visibleMethods = new ArrayList<IMethodSection>();
+				}
+				visibleMethods.add(m);
+			}
+		}
+		
+		if (visibleMethods != null) {
+			byteCodeDocumentProvider.renderMethodBodies(visibleMethods);
+		}
+	}
+
 	private void doHandleCursorPositionChanged(){
 		IClassFileDocument doc = byteCodeDocumentProvider.getClassFileDocument(); 
 		if(doc != null){
@@ -1300,6 +1397,9 @@ public class BytecodeEditor extends JavaEditor
 			if(doc.isLineInMethod(line/* changed to 0-based */)){
 				IMethodSection m = byteCodeDocumentProvider.getClassFileDocument().findMethodSection(line/* changed to 0-based */);
 				if(m!= null){
+					/* render the body when the cursor enters the method */
+					m = renderMethodBody(m);
+					
 					if(fOutlinePage!= null) {
 						fOutlinePage.setSelection(m);
 					}
@@ -2243,6 +2343,15 @@ public class BytecodeEditor extends JavaEditor
 					List<IMethodSection> methods = byteCodeDocumentProvider.getClassFileDocument().getMethodSections();
 		
 					int bytecodeLine = resolveLineNumberIntoBytecode(methods, sourceCodeLine + 1);
+					if (bytecodeLine != ByteCodeConstants.INVALID_OFFSET) {
+						IMethodSection m = byteCodeDocumentProvider.getClassFileDocument().findMethodSection(bytecodeLine);
+						if (m != null && !m.isBodyRendered()) {
+							/* the line is in a method which has not been rendered yet */
+							renderMethodBody(m);
+							methods = byteCodeDocumentProvider.getClassFileDocument().getMethodSections();
+							bytecodeLine = resolveLineNumberIntoBytecode(methods, sourceCodeLine + 1);
+						}
+					}
 					if (bytecodeLine != ByteCodeConstants.INVALID_OFFSET) {
 						selectLineAndReveal(bytecodeLine - 1); /* convert to 0-based lines */
 					}
@@ -2489,7 +2598,8 @@ public class BytecodeEditor extends JavaEditor
 								methodName,
 								IJavaElement.METHOD);
 					}
-					else{						
+					else{
+						methodSection = renderMethodBody(methodSection);
 						selectLineAndRevaluate2(methodSection.getBytecodeLine(line) - 1, markLine);
 					}
 					break;
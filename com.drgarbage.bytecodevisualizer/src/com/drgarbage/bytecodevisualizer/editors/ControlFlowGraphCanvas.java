@@ -16,8 +16,11 @@
 
 package com.drgarbage.bytecodevisualizer.editors;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.List;
 
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.draw2d.ColorConstants;
 import org.eclipse.draw2d.Figure;
 import org.eclipse.draw2d.FigureCanvas;
@@ -25,10 +28,14 @@ import org.eclipse.draw2d.IFigure;
 import org.eclipse.draw2d.Label;
 import org.eclipse.draw2d.LightweightSystem;
 import org.eclipse.draw2d.LineBorder;
+import org.eclipse.draw2d.Viewport;
 import org.eclipse.draw2d.geometry.Dimension;
 import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.Rectangle;
 import org.eclipse.swt.events.ControlEvent;
 import org.eclipse.swt.events.ControlListener;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Composite;
@@ -42,6 +49,7 @@ import com.drgarbage.bytecodevisualizer.preferences.BytecodeVisualizerPreference
 import com.drgarbage.core.CoreMessages;
 import com.drgarbage.core.img.CoreImg;
 import com.drgarbage.draw2d.ControlFlowGraphFigure;
+import com.drgarbage.draw2d.ControlFlowGraphFigureJob;
 import com.drgarbage.utils.Messages;
 
 
@@ -118,10 +126,25 @@ public class ControlFlowGraphCanvas extends FigureCanvas implements IDocumentUpd
 
 			public void controlResized(ControlEvent e) {
 				rootFigure.setSize(w, h);
+				updateVisibleArea();
 			}
 			
 		});
+
+		/* create the figures of the virtualized graphs while scrolling */
+		getViewport().addPropertyChangeListener(Viewport.PROPERTY_VIEW_LOCATION, new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent evt) {
+				updateVisibleArea();
+			}
+		});
 		
+		/* stop building the graphs */
+		this.addDisposeListener(new DisposeListener() {
+
+			public void widgetDisposed(DisposeEvent e) {
+				Job.getJobManager().cancel(ControlFlowGraphCanvas.this);
+			}
+		});
 	}
 	
 	/**
@@ -169,25 +192,47 @@ public class ControlFlowGraphCanvas extends FigureCanvas implements IDocumentUpd
 	public void init(int lineHeght, IClassFileDocument classFileDocument){
 		this.lineHight = lineHeght;
 		
+		/* the figures of the previous document are not built any more */
+		Job.getJobManager().cancel(this);
+		
 		rootFigure.removeAll();
 		createLineSelector();
 		
 		boolean renderGraphs = BytecodeVisualizerPlugin.getDefault().getPreferenceStore().
 				getBoolean(BytecodeVisualizerPreferenceConstats.GRAPH_PANEL_ATTR_RENDER_GRAPHS);
 
+		ControlFlowGraphFigureJob job = new ControlFlowGraphFigureJob(this, getDisplay()){
+			protected void figureAdded(ControlFlowGraphFigure figure) {
+				if(visibleLayer){
+					figure.viewBasicBlockGraph();
+				}
+				figure.setVisibleArea(getViewport().getClientArea());
+
+				if( w < figure.getSize().width){
+					w = figure.getSize().width;
+					rootFigure.setSize(w, h);
+				}
+			}
+		};
+
 		if(renderGraphs){
 			if (classFileDocument != null) {
 				List<IMethodSection> methods = classFileDocument.getMethodSections();
 				for(IMethodSection m : methods){
 					if(m.hasCode()){
 
-						ControlFlowGraphFigure controlFlowGraphFigure = new ControlFlowGraphFigure(lineHeght, m);
+						/* 
+						 * The graph is built by the job, a placeholder
+						 * is displayed until the figure is ready.
+						 */
+						ControlFlowGraphFigure controlFlowGraphFigure = new ControlFlowGraphFigure(lineHeght);
 						controlFlowGraphFigure.setLocation(new Point(0, m.getFirstLine() * lineHeght));
-						rootFigure.add(controlFlowGraphFigure);
 
-						if( w < controlFlowGraphFigure.getSize().width){
-							w = controlFlowGraphFigure.getSize().width;
-						}
+						IFigure placeholder = ControlFlowGraphFigureJob.createPlaceholder();
+						placeholder.setLocation(new Point(10, (m.getFirstLine() + 1) * lineHeght));
+						rootFigure.add(placeholder);
+
+						job.add(controlFlowGraphFigure, m, placeholder);
 					}
 				}
 			}
@@ -227,7 +272,24 @@ public class ControlFlowGraphCanvas extends FigureCanvas implements IDocumentUpd
 		else {
 			h = (classFileDocument.getLineCount() + 1) * lineHeght;
 		}
-		rootFigure.setSize(w, h);		
+		rootFigure.setSize(w, h);
+		
+		if(!job.isEmpty()){
+			job.schedule();
+		}
+	}
+
+	/**
+	 * Passes the visible area of the viewport to the graph figures.
+	 * @see ControlFlowGraphFigure#setVisibleArea(Rectangle)
+	 */
+	private void updateVisibleArea(){
+		Rectangle area = getViewport().getClientArea();
+		for(Object o : rootFigure.getChildren()){
+			if(o instanceof ControlFlowGraphFigure){
+				((ControlFlowGraphFigure)o).setVisibleArea(area);
+			}
+		}
 	}
 
 	/**
@@ -19,7 +19,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EmptyStackException;
 import java.util.Enumeration;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,6 +38,7 @@ import com.drgarbage.asm.render.intf.ILocalVariableTable;
 import com.drgarbage.bytecode.ByteCodeConstants;
 import com.drgarbage.bytecode.BytecodeUtils;
 import com.drgarbage.bytecode.ExceptionTableEntry;
+import com.drgarbage.bytecode.StackMapFrame;
 import com.drgarbage.bytecode.constant_pool.AbstractConstantPoolEntry;
 import com.drgarbage.bytecode.constant_pool.ConstantClassInfo;
 import com.drgarbage.bytecode.constant_pool.ConstantDoubleInfo;
@@ -78,11 +82,19 @@ public class OperandStack implements Opcodes{
 	private AbstractConstantPoolEntry[] classConstantPool;
 	private ILocalVariableTable localVariableTable;
 	private ExceptionTableEntry[] exceptionTable;
+	private Map<Integer, StackMapFrame> stackMapFrames;
 	private IDirectedGraphExt graph;
 	private IEdgeListExt backEdges;
 	private int maxStackSize;
-	private boolean stackError = false;
 	private Map<Integer, String> tmpLocalVariableTable;
+
+	/* 
+	 * the stack combinations of the last enumeration, the stacks before 
+	 * and after the same node are requested one after the other 
+	 */
+	private INodeExt combinationsNode;
+	private Map<INodeExt, List<Stack<OperandStackEntry>>> combinations;
+	private Set<INodeExt> limitedCombinations;
 	
 	/* statistic counters for time and memory complexity */
 	private long elapsedTime = -1, memoryConsumption = -1;
@@ -105,6 +117,19 @@ public class OperandStack implements Opcodes{
 
 	public static int UNKNOWN_SIZE = -1;
 
+	/**
+	 * Maximal number of alternative values kept in a merged
+	 * stack entry. Further values are represented by "...".
+	 */
+	private static final int MAX_MERGED_VALUES = 8;
+
+	/**
+	 * Maximal number of stack combinations enumerated before
+	 * and after an instruction. The number of combinations may
+	 * grow exponentially with the number of branches.
+	 */
+	public static final int MAX_STACK_COMBINATIONS = 32;
+
 	/**
 	 * Operand Stack property constants to
 	 * address the node stack property 
@@ -113,7 +138,13 @@ public class OperandStack implements Opcodes{
 	public static enum OperandStackPropertyConstants{
 		NODE_INSTR_OBJECT,
 		NODE_STACK,
-		ERROR_EXCEPTION
+		ERROR_EXCEPTION,
+
+		/**
+		 * Message describing a stack map frame which does
+		 * not match the calculated stack.
+		 */
+		FRAME_ERROR
 	}
 	
 	/* Operand Stack specific constants */
@@ -237,10 +268,35 @@ public class OperandStack implements Opcodes{
 			AbstractConstantPoolEntry[] cPool,
 			ILocalVariableTable locVarTable,
 			ExceptionTableEntry[] excepTable){
+		this(instructions, cPool, locVarTable, excepTable, null);
+	}
+
+	/**
+	 * Creates the operand stack object for the given method. The
+	 * frames of the <code>StackMapTable</code> attribute are used as
+	 * known stack states at branch targets: they seed the stack if it
+	 * cannot be calculated from the predecessors and replace calculated
+	 * stacks which do not match the frame.
+	 * @param cPool reference to the constant pool of the class
+	 * @param instructions byte code instructions of the method 
+	 * @param stackMapTable the stack map frames or <code>null</code>
+	 */
+	public OperandStack(List<IInstructionLine> instructions,
+			AbstractConstantPoolEntry[] cPool,
+			ILocalVariableTable locVarTable,
+			ExceptionTableEntry[] excepTable,
+			StackMapFrame[] stackMapTable){
 		classConstantPool = cPool;
 		localVariableTable = locVarTable;
 		exceptionTable = excepTable;
 		maxStackSize = 0;
+
+		if(stackMapTable != null && stackMapTable.length != 0){
+			stackMapFrames = new HashMap<Integer, StackMapFrame>();
+			for(StackMapFrame frame: stackMapTable){
+				stackMapFrames.put(Integer.valueOf(frame.getOffset()), frame);
+			}
+		}
 		
 		/* local variable table */
 		tmpLocalVariableTable = new TreeMap<Integer, String>();
@@ -374,9 +430,11 @@ public class OperandStack implements Opcodes{
 	}
 
 	/**
-	 * Calculates and returns the maximal number of stack combinations
-	 * in the current operand stack.
+	 * Returns the maximal number of stacks in the merged stack 
+	 * frames before an instruction. Stacks are only kept apart if 
+	 * their types differ.
 	 * @return max number of stack combination
+	 * @see #getStackCombinationsBefore(INodeExt)
 	 */
 	public int getMaxNumberOfStackCombinations() {
 		int maxNumberOfStacksCombinations = 0;
@@ -466,13 +524,20 @@ public class OperandStack implements Opcodes{
 		/* remove back edges (loops) from the graph */
 		removeBackEdges(graph);
 
-		/* parse the graph */
-		List<INodeExt> listOfStartNodes = getAllStartNodes(graph);
-		for(INodeExt n: listOfStartNodes){
-			stackError = false;
-			parseGraph(n);
+		/* assign the property maps to the instruction nodes */
+		INodeListExt nodes = graph.getNodeList();
+		for(int i = 0; i < nodes.size(); i++){
+			INodeExt n = nodes.getNodeExt(i);
+			Object o = n.getData();
+			if(o instanceof IInstructionLine){
+				Map<OperandStackPropertyConstants, Object> nodeMap = new HashMap<OperandStackPropertyConstants, Object>();
+				nodeMap.put(OperandStackPropertyConstants.NODE_INSTR_OBJECT, o);
+				n.setData(nodeMap);
+			}
 		}
 
+		/* propagate the stack frames */
+		parseGraph();
 	}
 
 	/**
@@ -499,82 +564,50 @@ public class OperandStack implements Opcodes{
 	}
 
 	/**
-	 * Returns the list of all nodes with incoming degree of 0.
-	 * @param graph control flow graph
-	 * @return list of start nodes
+	 * Propagates the stack frames through the graph. The back edges
+	 * have been removed, so the nodes are processed in topological
+	 * order: a node is put on the worklist as soon as all its
+	 * predecessors have been processed. The frames of the predecessors
+	 * are merged at join points, therefore each node and each edge
+	 * is processed exactly once.
 	 */
-	private List<INodeExt> getAllStartNodes(IDirectedGraphExt graph){
-		List<INodeExt> listOfStartNodes= new ArrayList<INodeExt>();
+	private void parseGraph(){
+		LinkedList<INodeExt> worklist = new LinkedList<INodeExt>();
+
 		INodeListExt nodes = graph.getNodeList();
 		for(int i = 0; i < nodes.size(); i++){
 			INodeExt n = nodes.getNodeExt(i);
-			if(n.getIncomingEdgeList().size() == 0){
-				listOfStartNodes.add(n);
+			n.setCounter(n.getIncomingEdgeList().size());
+			if(n.getCounter() == 0){
+				worklist.add(n);
 			}
 		}
 
-		return listOfStartNodes;
-	}
-
-	/**
-	 * Topological sort.
-	 * @param n start node of the graph
-	 */
-	private void parseGraph(INodeExt n){
-		INodeExt node = n;
-		while(node != null){
-
-			if(node.isVisited()){
-				return;
-			}
-
-			IEdgeListExt inList = node.getIncomingEdgeList();
-			for(int j = 0; j < inList.size(); j++){
-				if(!inList.getEdgeExt(j).isVisited()){
-					return;
-				}
-			}
+		while(!worklist.isEmpty()){
+			INodeExt node = worklist.removeFirst();
 
 			/* Calculate the operand stack and assign it to the current node */
-			Object o = node.getData();    		
-			if(o instanceof IInstructionLine){
-				IInstructionLine iLine = (IInstructionLine) o;
-				Map<OperandStackPropertyConstants, Object> nodeMap = new HashMap<OperandStackPropertyConstants, Object>();
-				nodeMap.put(OperandStackPropertyConstants.NODE_INSTR_OBJECT, node.getData());
-				node.setData(nodeMap);
+			Map<OperandStackPropertyConstants, Object> nodeMap = getNodeMap(node);
+			if(nodeMap != null){
+				IInstructionLine iLine = (IInstructionLine) nodeMap.get(OperandStackPropertyConstants.NODE_INSTR_OBJECT);
 				try{
-					if(!stackError){
-						calculateOperandStack(node, iLine.getInstruction());
-					}
+					calculateOperandStack(node, iLine.getInstruction());
 				}
 				catch(EmptyStackException e){
 					/* Stack underFlow */
-					stackError = true;
 					nodeMap.put(OperandStackPropertyConstants.ERROR_EXCEPTION, e);
 				}
 			}
 
-			node.setVisited(true);
-
 			IEdgeListExt outList = node.getOutgoingEdgeList();
-			if(outList.size() == 0){
-				return;
-			}
-
-			if(outList.size() == 1){
-				IEdgeExt edge = outList.getEdgeExt(0);
-				edge.setVisited(true);
-				node = edge.getTarget();
-			}
-			else{ 		
-				for(int i = 0; i < outList.size(); i++){
-					IEdgeExt edge = outList.getEdgeExt(i);
-					edge.setVisited(true);
-
-					parseGraph(edge.getTarget());
+			for(int i = 0; i < outList.size(); i++){
+				INodeExt target = outList.getEdgeExt(i).getTarget();
+				target.setCounter(target.getCounter() - 1);
+				if(target.getCounter() == 0){
+					worklist.add(target);
 				}
 			}
-		} 
+		}
 	}
 
 	/**
@@ -584,25 +617,31 @@ public class OperandStack implements Opcodes{
 	 */
 	private void calculateOperandStack(INodeExt node, AbstractInstruction i){
 
-		List<Stack<OperandStackEntry>> listOfStacks = getStackBefore(node, i); 
+		List<Stack<OperandStackEntry>> listOfStacksBefore = getStackBefore(node, i);
 
-		for(Stack<OperandStackEntry> s: listOfStacks){
-			processInstruction(i, s);
+		/* the stack map frames are the stack states checked by the verifier */
+		if(stackMapFrames != null){
+			StackMapFrame frame = stackMapFrames.get(Integer.valueOf(node.getByteCodeOffset()));
+			if(frame != null){
+				listOfStacksBefore = reconcileFrame(node, frame, listOfStacksBefore);
+			}
 		}
 
-		/* remove duplicates */
-		Map<String, Stack<OperandStackEntry>> m = new TreeMap<String, Stack<OperandStackEntry>>();
-		for(Stack<OperandStackEntry> s: listOfStacks){
-			m.put(stackToString(s, OpstackRepresenation.ALL), s);
+		if(listOfStacksBefore.size() == 0){
+			/* none of the predecessors has a stack, the stack is undefined */
+			return;
 		}
 
-		listOfStacks.clear();
-		for(Stack<OperandStackEntry> s : m.values()){
-			Stack<OperandStackEntry> stack = new Stack<OperandStackEntry>();    	
-			stack.addAll(s);
-			listOfStacks.add(stack);    		    	
+		List<Stack<OperandStackEntry>> listOfStacks = new ArrayList<Stack<OperandStackEntry>>();
+		for(Stack<OperandStackEntry> s: listOfStacksBefore){
+			Stack<OperandStackEntry> stack = copyStack(s);
+			processInstruction(i, stack);
+			listOfStacks.add(stack);
 		}
 
+		/* different stacks may have the same types after the instruction */
+		listOfStacks = mergeStacks(listOfStacks);
+
 		/* update the maxStackSize */
 		for(Stack<OperandStackEntry> e: listOfStacks){
 			int stackSize = 0;
@@ -616,118 +655,618 @@ public class OperandStack implements Opcodes{
 		}
 
 		/* assign the property object */
-		NodeStackProperty prop = new NodeStackProperty(listOfStacks);
+		NodeStackProperty prop = new NodeStackProperty(listOfStacksBefore, listOfStacks);
+		getNodeMap(node).put(OperandStackPropertyConstants.NODE_STACK, prop);
+	}
+
+	/**
+	 * Reconciles the calculated stacks with the stack map frame of the
+	 * instruction. The matching stacks are kept because they carry the
+	 * values. If no calculated stack matches, the analysis continues with
+	 * the stack of the frame, so that an error is not propagated to the
+	 * successors. Stacks not matching the frame are assigned to the node 
+	 * as {@link OperandStackPropertyConstants#FRAME_ERROR}.
+	 * @param node the node
+	 * @param frame the stack map frame at the offset of the node
+	 * @param listOfStacks the calculated stacks
+	 * @return list of stacks
+	 */
+	private List<Stack<OperandStackEntry>> reconcileFrame(INodeExt node, 
+			StackMapFrame frame, List<Stack<OperandStackEntry>> listOfStacks){
+		List<Stack<OperandStackEntry>> result = new ArrayList<Stack<OperandStackEntry>>();
+		List<Stack<OperandStackEntry>> mismatches = new ArrayList<Stack<OperandStackEntry>>();
+		for(Stack<OperandStackEntry> s: listOfStacks){
+			if(matchesFrame(s, frame)){
+				result.add(s);
+			}
+			else{
+				mismatches.add(s);
+			}
+		}
+
+		if(mismatches.size() != 0){
+			StringBuffer buf = new StringBuffer("stack map frame ");
+			buf.append(frameToString(frame));
+			buf.append(" does not match the calculated stack ");
+			buf.append(stackListToString(mismatches, OpstackRepresenation.TYPES));
+			getNodeMap(node).put(OperandStackPropertyConstants.FRAME_ERROR, buf.toString());
+		}
+
+		if(result.size() == 0){
+			result.add(createFrameStack(frame));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns <code>true</code> if the stack has the same size as the
+	 * stack of the frame and all entries are compatible with the
+	 * verification types, otherwise <code>false</code>.
+	 * @param stack the calculated stack
+	 * @param frame the stack map frame
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	private static boolean matchesFrame(Stack<OperandStackEntry> stack, StackMapFrame frame){
+		StackMapFrame.VerificationTypeInfo[] types = frame.getStack();
+		if(stack.size() != types.length){
+			return false;
+		}
 
+		for(int k = 0; k < types.length; k++){
+			if(!isCompatible(stack.get(k).getVarType(), types[k])){
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks if the type of a stack entry is compatible with the verification type.
+	 * @param varType the type of the stack entry
+	 * @param type the verification type
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	private static boolean isCompatible(String varType, StackMapFrame.VerificationTypeInfo type){
+		if(varType == null || varType.length() == 0){
+			return true;
+		}
+
+		char c = varType.charAt(0);
+		switch(type.getTag()){
+		case StackMapFrame.ITEM_TOP:
+			return true;
+		case StackMapFrame.ITEM_INTEGER:
+			return c == ByteCodeConstants.I_INT || c == ByteCodeConstants.C_CHAR
+				|| c == ByteCodeConstants.S_SHORT || c == ByteCodeConstants.B_BYTE
+				|| c == ByteCodeConstants.Z_BOOLEAN || c == '?';
+		case StackMapFrame.ITEM_FLOAT:
+			return c == ByteCodeConstants.F_FLOAT || c == '?';
+		case StackMapFrame.ITEM_LONG:
+			return c == ByteCodeConstants.J_LONG;
+		case StackMapFrame.ITEM_DOUBLE:
+			return c == ByteCodeConstants.D_DOUBLE;
+		default:
+			/* references */
+			return c == ByteCodeConstants.L_REFERENCE || c == '[' || c == '?';
+		}
+	}
+
+	/**
+	 * Creates the stack described by the frame. The values
+	 * are the type names in angle brackets.
+	 * @param frame the stack map frame
+	 * @return the stack
+	 */
+	private Stack<OperandStackEntry> createFrameStack(StackMapFrame frame){
+		Stack<OperandStackEntry> stack = new Stack<OperandStackEntry>();
+		for(StackMapFrame.VerificationTypeInfo type: frame.getStack()){
+			stack.push(new OperandStackEntry(null, 
+					type.isCategory2() ? 8 : 4, 
+					String.valueOf(type.getDescriptorType()), 
+					JavaLexicalConstants.LT + type.toString(classConstantPool) + JavaLexicalConstants.GT));
+		}
+
+		return stack;
+	}
+
+	/**
+	 * Returns the string representation of the stack of the frame.
+	 * @param frame the stack map frame
+	 * @return the string
+	 */
+	private String frameToString(StackMapFrame frame){
+		StackMapFrame.VerificationTypeInfo[] types = frame.getStack();
+		if(types.length == 0){
+			return EMPTY_STACK;
+		}
+
+		StringBuffer buf = new StringBuffer();
+		for(int k = 0; k < types.length; k++){
+			if(k != 0){
+				buf.append(", ");
+			}
+			buf.append(types[k].toString(classConstantPool));
+		}
+
+		return buf.toString();
+	}
+
+	/**
+	 * Returns the property map assigned to the node.
+	 * @param node the node
+	 * @return the map or <code>null</code> if the node does not represent an instruction
+	 */
+	private static Map<OperandStackPropertyConstants, Object> getNodeMap(INodeExt node){
 		Object o = node.getData();
 		if(o instanceof Map){
 			@SuppressWarnings("unchecked")
 			Map<OperandStackPropertyConstants, Object> nodeMap = (Map<OperandStackPropertyConstants, Object>) o;
-			nodeMap.put(OperandStackPropertyConstants.NODE_STACK, prop);		
+			return nodeMap;
 		}
 
+		return null;
+	}
+
+	/**
+	 * Returns the stack property assigned to the node.
+	 * @param node the node
+	 * @return the property or <code>null</code> if the stack is undefined
+	 */
+	private static NodeStackProperty getNodeStackProperty(INodeExt node){
+		Map<OperandStackPropertyConstants, Object> nodeMap = getNodeMap(node);
+		if(nodeMap != null){
+			return (NodeStackProperty) nodeMap.get(OperandStackPropertyConstants.NODE_STACK);
+		}
+
+		return null;
 	}
 
-	
 	/**
-	 * Calculates all possible stack states for the given node before the corresponding 
-	 * byte code instruction has been executed.
+	 * Returns the stack frame for the given node before the corresponding 
+	 * byte code instruction has been executed. The frame contains one stack
+	 * for each list of types reaching the instruction, the values of stacks
+	 * with the same types are merged.
 	 * @param node is a vertex in the control flow graph
 	 * @return list of stacks
+	 * @see #getStackCombinationsBefore(INodeExt)
 	 */
 	public List<Stack<OperandStackEntry>> getStackBefore(INodeExt node){
+		NodeStackProperty nsp = getNodeStackProperty(node);
+		if(nsp != null){
+			return nsp.getStackBefore();
+		}
+
 		return getStackBefore(node, null);
 	}
 	
 	/**
-	 * Calculates all possible stack states for the given node before the corresponding 
-	 * byte code instruction has been executed.
+	 * Calculates the stack frame for the given node before the corresponding 
+	 * byte code instruction has been executed by merging the frames of
+	 * all predecessors.
 	 * @param node is a vertex in the control flow graph
 	 * @param i byte instruction object
 	 * @return list of stacks
 	 */
 	public List<Stack<OperandStackEntry>> getStackBefore(INodeExt node, AbstractInstruction i){
-		List<Stack<OperandStackEntry>> listOfStacks = new ArrayList<Stack<OperandStackEntry>>();
 		IEdgeListExt incEdgeList = node.getIncomingEdgeList();
 
 		/* entry nodes */
 		if(incEdgeList.size() == 0){
-			if(node.getByteCodeOffset() != 0){
-				/* 
-				 * The start node is initialized with an empty stack.
-				 * For start nodes of exception handlers the exception 
-				 * objects have to be put onto the stack.
-				 */
-				Set<String> exceptionList = new TreeSet<String>();
-				for(ExceptionTableEntry ete: exceptionTable){
-					if(node.getByteCodeOffset() == ete.getHandlerPc()){
-						
-						if(ete.getCatchType() != 0){ /* index = 0 has no references in the constant pool */
-							String className = getConstantPoolClassName(ete.getCatchType(), classConstantPool);
-							exceptionList.add(JavaLexicalConstants.LT + className + JavaLexicalConstants.GT);
-						}
-						else{
-							exceptionList.add(ANY_EXCEPTION);
-							if(i != null){
-								/* handle special case: store unnamed variable */
-								if(isStoreIstruction(i.getOpcode())){
-									String name = getLocalVariableName(i);
-									if(name == null){
-										if (i instanceof ILocalVariableIndexProvider){
-											int index = ((ILocalVariableIndexProvider)i).getLocalVariableIndex();
-											tmpLocalVariableTable.put(index, ANY_EXCEPTION);
-										}
-									}
-								}
-							}
-						}
+			return mergeStacks(getEntryStacks(node, i));
+		}
+
+		List<Stack<OperandStackEntry>> listOfStacks = new ArrayList<Stack<OperandStackEntry>>();
+		for(int j = 0; j < incEdgeList.size(); j++){
+			NodeStackProperty nsp = getNodeStackProperty(incEdgeList.getEdgeExt(j).getSource());
+			if(nsp != null){
+				for(Stack<OperandStackEntry> s: nsp.getStackAfter()){
+					listOfStacks.add(copyStack(s));
+				}
+			}
+		}
+
+		return mergeStacks(listOfStacks);
+	}
+
+	/**
+	 * Enumerates all possible stack states for the given node before the
+	 * corresponding byte code instruction has been executed. Unlike
+	 * {@link #getStackBefore(INodeExt)} the stacks are not merged. The
+	 * number of combinations may grow exponentially with the number of
+	 * branches, they are computed on demand from the predecessors
+	 * of the node only. At most {@link #MAX_STACK_COMBINATIONS} stacks
+	 * are enumerated for each instruction.
+	 * @param node is a vertex in the control flow graph
+	 * @return list of stacks
+	 * @see #isStackCombinationsLimited(INodeExt)
+	 */
+	public List<Stack<OperandStackEntry>> getStackCombinationsBefore(INodeExt node){
+		enumerateStackCombinations(node);
+		return getStackCombinationsBefore(node, combinations, new HashSet<INodeExt>(limitedCombinations));
+	}
+
+	/**
+	 * Enumerates all possible stack states for the given node after the
+	 * corresponding byte code instruction has been executed.
+	 * @param node is a vertex in the control flow graph
+	 * @return list of stacks
+	 * @see #getStackCombinationsBefore(INodeExt)
+	 */
+	public List<Stack<OperandStackEntry>> getStackCombinationsAfter(INodeExt node){
+		enumerateStackCombinations(node);
+		List<Stack<OperandStackEntry>> listOfStacks = new ArrayList<Stack<OperandStackEntry>>();
+		List<Stack<OperandStackEntry>> sl = combinations.get(node);
+		if(sl != null){
+			for(Stack<OperandStackEntry> s: sl){
+				listOfStacks.add(copyStack(s));
+			}
+		}
+
+		return listOfStacks;
+	}
+
+	/**
+	 * Returns <code>true</code> if not all stack combinations before or
+	 * after the instruction of the given node have been enumerated 
+	 * because their number exceeds {@link #MAX_STACK_COMBINATIONS}
+	 * here or at one of the predecessors, otherwise <code>false</code>.
+	 * @param node is a vertex in the control flow graph
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	public boolean isStackCombinationsLimited(INodeExt node){
+		enumerateStackCombinations(node);
+		return limitedCombinations.contains(node);
+	}
+
+	/**
+	 * Enumerates the stack combinations after the instructions of
+	 * the given node and all its predecessors. The result is kept
+	 * until the combinations of another node are requested.
+	 * @param node is a vertex in the control flow graph
+	 */
+	private void enumerateStackCombinations(INodeExt node){
+		if(node == combinationsNode){
+			return;
+		}
+
+		/* collect the predecessors and count their incoming edges */
+		Map<INodeExt, Integer> counters = new HashMap<INodeExt, Integer>();
+		LinkedList<INodeExt> worklist = new LinkedList<INodeExt>();
+		worklist.add(node);
+		counters.put(node, Integer.valueOf(node.getIncomingEdgeList().size()));
+		while(!worklist.isEmpty()){
+			IEdgeListExt inList = worklist.removeFirst().getIncomingEdgeList();
+			for(int j = 0; j < inList.size(); j++){
+				INodeExt source = inList.getEdgeExt(j).getSource();
+				if(!counters.containsKey(source)){
+					counters.put(source, Integer.valueOf(source.getIncomingEdgeList().size()));
+					worklist.add(source);
+				}
+			}
+		}
+
+		for(Map.Entry<INodeExt, Integer> e: counters.entrySet()){
+			if(e.getValue().intValue() == 0){
+				worklist.add(e.getKey());
+			}
+		}
+
+		/* process the predecessors in topological order */
+		Map<INodeExt, List<Stack<OperandStackEntry>>> result = new HashMap<INodeExt, List<Stack<OperandStackEntry>>>();
+		Set<INodeExt> limited = new HashSet<INodeExt>();
+		while(!worklist.isEmpty()){
+			INodeExt n = worklist.removeFirst();
+
+			Map<OperandStackPropertyConstants, Object> nodeMap = getNodeMap(n);
+			if(nodeMap != null){
+				AbstractInstruction i = ((IInstructionLine) nodeMap.get(OperandStackPropertyConstants.NODE_INSTR_OBJECT)).getInstruction();
+				List<Stack<OperandStackEntry>> listOfStacks = getStackCombinationsBefore(n, result, limited);
+				try{
+					for(Stack<OperandStackEntry> s: listOfStacks){
+						processInstruction(i, s);
 					}
+					result.put(n, removeDuplicates(listOfStacks));
 				}
-				
-				for(String e: exceptionList){
-					Stack<OperandStackEntry> startStack = new Stack<OperandStackEntry>();
-					startStack.add(new OperandStackEntry(null, 4, L_REFERENCE, e));
-					listOfStacks.add(startStack);
+				catch(EmptyStackException e){
+					/* Stack underFlow, the stack of the node is undefined */
 				}
 			}
-			
-			/* add an empty stack entry */
-			if(listOfStacks.size() == 0){
-				listOfStacks.add(new Stack<OperandStackEntry>());
+
+			IEdgeListExt outList = n.getOutgoingEdgeList();
+			for(int j = 0; j < outList.size(); j++){
+				INodeExt target = outList.getEdgeExt(j).getTarget();
+				Integer counter = counters.get(target);
+				if(counter != null){
+					counters.put(target, Integer.valueOf(counter.intValue() - 1));
+					if(counter.intValue() == 1){
+						worklist.add(target);
+					}
+				}
 			}
-			
+		}
+
+		combinationsNode = node;
+		combinations = result;
+		limitedCombinations = limited;
+	}
+
+	/**
+	 * Returns copies of the stack combinations of the predecessors of the
+	 * node. The stacks not matching the stack map frame of the instruction
+	 * are removed. If the number of combinations exceeds 
+	 * {@link #MAX_STACK_COMBINATIONS} the list is cut and the node is 
+	 * added to the limited nodes. 
+	 * @param node is a vertex in the control flow graph
+	 * @param combinations the stack combinations of the predecessors
+	 * @param limited the nodes with incomplete combinations
+	 * @return list of stacks
+	 */
+	private List<Stack<OperandStackEntry>> getStackCombinationsBefore(INodeExt node, 
+			Map<INodeExt, List<Stack<OperandStackEntry>>> combinations,
+			Set<INodeExt> limited){
+		IEdgeListExt incEdgeList = node.getIncomingEdgeList();
 
+		List<Stack<OperandStackEntry>> listOfStacks = new ArrayList<Stack<OperandStackEntry>>();
+		if(incEdgeList.size() == 0){
+			/* entry nodes */
+			listOfStacks = getEntryStacks(node, null);
 		}
 		else{
-			Map<String, Stack<OperandStackEntry>> m = new TreeMap<String, Stack<OperandStackEntry>>();
 			for(int j = 0; j < incEdgeList.size(); j++){
-				Object o = incEdgeList.getEdgeExt(j).getSource().getData();
-				if(o instanceof Map){
-					@SuppressWarnings("unchecked")
-					Map<OperandStackPropertyConstants, Object> nodeMap = (Map<OperandStackPropertyConstants, Object>) o;
-					o = nodeMap.get(OperandStackPropertyConstants.NODE_STACK);
-					if(o != null){
-						NodeStackProperty nsp = (NodeStackProperty) o;
-						List<Stack<OperandStackEntry>> sl = nsp.getStackAfter(); 				
-
-						for(Stack<OperandStackEntry> s: sl){
-							/* no duplicates */
-							m.put(stackToString(s, OpstackRepresenation.ALL), s);
-						}
+				INodeExt source = incEdgeList.getEdgeExt(j).getSource();
+				List<Stack<OperandStackEntry>> sl = combinations.get(source);
+				if(sl != null){
+					listOfStacks.addAll(sl);
+				}
+				if(limited.contains(source)){
+					limited.add(node);
+				}
+			}
+		}
+
+		listOfStacks = removeDuplicates(listOfStacks);
+
+		/* the stack map frames are the stack states checked by the verifier */
+		if(stackMapFrames != null){
+			StackMapFrame frame = stackMapFrames.get(Integer.valueOf(node.getByteCodeOffset()));
+			if(frame != null){
+				List<Stack<OperandStackEntry>> matching = new ArrayList<Stack<OperandStackEntry>>();
+				for(Stack<OperandStackEntry> s: listOfStacks){
+					if(matchesFrame(s, frame)){
+						matching.add(s);
 					}
 				}
+				if(matching.size() == 0){
+					matching.add(createFrameStack(frame));
+				}
+				listOfStacks = matching;
 			}
+		}
 
-			/* copy to the list */
-			for(Stack<OperandStackEntry> s : m.values()){
-				Stack<OperandStackEntry> stack = new Stack<OperandStackEntry>();    	
-				stack.addAll(s);
-				listOfStacks.add(stack);    		    	
+		if(listOfStacks.size() > MAX_STACK_COMBINATIONS){
+			listOfStacks = listOfStacks.subList(0, MAX_STACK_COMBINATIONS);
+			limited.add(node);
+		}
+
+		/* copy to the list */
+		List<Stack<OperandStackEntry>> result = new ArrayList<Stack<OperandStackEntry>>();
+		for(Stack<OperandStackEntry> s : listOfStacks){
+			result.add(copyStack(s));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the stacks of an entry node. The start node is initialized
+	 * with an empty stack. For start nodes of exception handlers the 
+	 * exception objects have to be put onto the stack, one stack is 
+	 * created for each exception type.
+	 * @param node entry node
+	 * @param i byte instruction object or <code>null</code>
+	 * @return list of stacks
+	 */
+	private List<Stack<OperandStackEntry>> getEntryStacks(INodeExt node, AbstractInstruction i){
+		List<Stack<OperandStackEntry>> listOfStacks = new ArrayList<Stack<OperandStackEntry>>();
+
+		if(node.getByteCodeOffset() != 0){
+			Set<String> exceptionList = new TreeSet<String>();
+			for(ExceptionTableEntry ete: exceptionTable){
+				if(node.getByteCodeOffset() == ete.getHandlerPc()){
+					
+					if(ete.getCatchType() != 0){ /* index = 0 has no references in the constant pool */
+						String className = getConstantPoolClassName(ete.getCatchType(), classConstantPool);
+						exceptionList.add(JavaLexicalConstants.LT + className + JavaLexicalConstants.GT);
+					}
+					else{
+						exceptionList.add(ANY_EXCEPTION);
+						if(i != null){
+							/* handle special case: store unnamed variable */
+							if(isStoreIstruction(i.getOpcode())){
+								String name = getLocalVariableName(i);
+								if(name == null){
+									if (i instanceof ILocalVariableIndexProvider){
+										int index = ((ILocalVariableIndexProvider)i).getLocalVariableIndex();
+										tmpLocalVariableTable.put(index, ANY_EXCEPTION);
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+			
+			for(String e: exceptionList){
+				Stack<OperandStackEntry> startStack = new Stack<OperandStackEntry>();
+				startStack.add(new OperandStackEntry(null, 4, L_REFERENCE, e));
+				listOfStacks.add(startStack);
 			}
 		}
+		
+		/* add an empty stack entry */
+		if(listOfStacks.size() == 0){
+			listOfStacks.add(new Stack<OperandStackEntry>());
+		}
 
 		return listOfStacks;
 	}
 
+	/**
+	 * Removes the stacks with equal types and values from the list.
+	 * @param listOfStacks list of stacks
+	 * @return list of stacks without duplicates
+	 */
+	private static List<Stack<OperandStackEntry>> removeDuplicates(List<Stack<OperandStackEntry>> listOfStacks){
+		Map<String, Stack<OperandStackEntry>> m = new TreeMap<String, Stack<OperandStackEntry>>();
+		for(Stack<OperandStackEntry> s: listOfStacks){
+			m.put(stackToString(s, OpstackRepresenation.ALL), s);
+		}
+
+		return new ArrayList<Stack<OperandStackEntry>>(m.values());
+	}
+
+	/**
+	 * Merges the stacks with the same list of verification types (see 
+	 * {@link #getVerificationType(String)}). The entries of the merged 
+	 * stack keep all distinct values of the corresponding entries as 
+	 * alternatives. Stacks with different sizes or verification types 
+	 * are not merged, they are reported by the operand stack analysis.
+	 * The stacks in the list are modified.
+	 * @param listOfStacks list of stacks
+	 * @return list of merged stacks
+	 */
+	private List<Stack<OperandStackEntry>> mergeStacks(List<Stack<OperandStackEntry>> listOfStacks){
+		if(listOfStacks.size() < 2){
+			return listOfStacks;
+		}
+
+		Map<String, Stack<OperandStackEntry>> m = new TreeMap<String, Stack<OperandStackEntry>>();
+		for(Stack<OperandStackEntry> s: listOfStacks){
+			StringBuffer buf = new StringBuffer();
+			for(OperandStackEntry ose: s){
+				buf.append(getVerificationType(ose.getVarType()));
+				buf.append(',');
+			}
+			String types = buf.toString();
+			Stack<OperandStackEntry> merged = m.get(types);
+			if(merged == null){
+				m.put(types, s);
+			}
+			else{
+				for(int k = 0; k < merged.size(); k++){
+					merged.set(k, mergeEntries(merged.get(k), s.get(k)));
+				}
+			}
+		}
+
+		return new ArrayList<Stack<OperandStackEntry>>(m.values());
+	}
+
+	/**
+	 * Returns the verification type of a stack entry type, as
+	 * the verifier merges the stacks at join points:
+	 * <code>I</code> for <code>int</code>, <code>boolean</code>, 
+	 * <code>byte</code>, <code>char</code> and <code>short</code>, 
+	 * <code>F</code>, <code>J</code>, <code>D</code> and <code>L</code>
+	 * for all references including arrays, <code>null</code> and 
+	 * uninitialized objects. Unknown types are returned unchanged.
+	 * @param varType the type of the stack entry
+	 * @return the verification type
+	 */
+	private static String getVerificationType(String varType){
+		if(varType == null || varType.length() == 0){
+			return varType;
+		}
+
+		switch(varType.charAt(0)){
+		case ByteCodeConstants.I_INT:
+		case ByteCodeConstants.Z_BOOLEAN:
+		case ByteCodeConstants.B_BYTE:
+		case ByteCodeConstants.C_CHAR:
+		case ByteCodeConstants.S_SHORT:
+			return I_INT;
+		case ByteCodeConstants.F_FLOAT:
+			return F_FLOAT;
+		case ByteCodeConstants.J_LONG:
+			return J_LONG;
+		case ByteCodeConstants.D_DOUBLE:
+			return D_DOUBLE;
+		case ByteCodeConstants.L_REFERENCE:
+		case '[':
+			return L_REFERENCE;
+		default:
+			return varType;
+		}
+	}
+
+	/**
+	 * Merges two stack entries of the same verification type.
+	 * The merged entry has the verification type if the types 
+	 * of the entries are different.
+	 * @param e1 first entry
+	 * @param e2 second entry
+	 * @return the first entry if it already contains all values
+	 *  and the type of the second entry, otherwise a new merged entry
+	 */
+	private OperandStackEntry mergeEntries(OperandStackEntry e1, OperandStackEntry e2){
+		if(e1 == e2){
+			return e1;
+		}
+
+		String varType = e1.getVarType();
+		boolean sameType = (varType == null) ? e2.getVarType() == null : varType.equals(e2.getVarType());
+		if(!sameType){
+			varType = getVerificationType(varType);
+		}
+
+		List<String> values = null;
+		boolean truncated = e1.truncated;
+		for(String v: e2.getValues()){
+			if(!e1.getValues().contains(v) && (values == null || !values.contains(v))){
+				if(values == null){
+					values = new ArrayList<String>(e1.getValues());
+				}
+
+				if(values.size() < MAX_MERGED_VALUES){
+					values.add(v);
+				}
+				else{
+					truncated = true;
+				}
+			}
+		}
+
+		if(e2.truncated && !truncated){
+			truncated = true;
+			if(values == null){
+				values = new ArrayList<String>(e1.getValues());
+			}
+		}
+
+		if(values == null){
+			if(sameType){
+				return e1;
+			}
+			values = new ArrayList<String>(e1.getValues());
+		}
+
+		return new OperandStackEntry(e1.getBytecodeInstruction(), e1.getLength(), varType, values, truncated);
+	}
+
+	/**
+	 * Returns a shallow copy of the stack. The stack entries
+	 * are never modified and can be shared.
+	 * @param s the stack
+	 * @return the copy
+	 */
+	private static Stack<OperandStackEntry> copyStack(Stack<OperandStackEntry> s){
+		Stack<OperandStackEntry> stack = new Stack<OperandStackEntry>();
+		stack.addAll(s);
+		return stack;
+	}
+
 	/**
 	 * Updates the stack by interpreting the byte code
 	 * operation.  
@@ -1809,6 +2348,18 @@ public class OperandStack implements Opcodes{
 		private String varType;
 		private String value;
 
+		/**
+		 * Alternative values of a merged entry,
+		 * <code>null</code> if the entry has a single value.
+		 */
+		private List<String> values;
+
+		/**
+		 * <code>true</code> if not all alternative values
+		 * of a merged entry have been kept.
+		 */
+		private boolean truncated = false;
+
 		public OperandStackEntry(AbstractInstruction i, int length, String varType, String value) {
 			super();
 			bytecodeInstruction = i;
@@ -1817,6 +2368,33 @@ public class OperandStack implements Opcodes{
 			this.value = value;
 		}
 
+		/**
+		 * Creates a merged entry.
+		 * @param i the instruction of the first merged entry
+		 * @param length the length of the entry
+		 * @param varType the type of the entry
+		 * @param values the alternative values
+		 * @param truncated <code>true</code> if not all values have been kept
+		 */
+		OperandStackEntry(AbstractInstruction i, int length, String varType, List<String> values, boolean truncated) {
+			this(i, length, varType, (String) null);
+			this.values = values;
+			this.truncated = truncated;
+
+			StringBuffer buf = new StringBuffer();
+			for(String v: values){
+				if(buf.length() != 0){
+					buf.append(JavaLexicalConstants.PIPE);
+				}
+				buf.append(v);
+			}
+			if(truncated){
+				buf.append(JavaLexicalConstants.PIPE);
+				buf.append("...");
+			}
+			value = buf.toString();
+		}
+
 		public AbstractInstruction getBytecodeInstruction() {
 			return bytecodeInstruction;
 		}
@@ -1831,6 +2409,17 @@ public class OperandStack implements Opcodes{
 			return value;
 		}
 
+		/**
+		 * Returns the alternative values of a merged entry.
+		 * @return list of values
+		 */
+		public List<String> getValues() {
+			if(values == null){
+				return Collections.singletonList(value);
+			}
+			return values;
+		}
+
 		public String toString(){
 			return value + "," + varType;
 		}
@@ -1841,6 +2430,7 @@ public class OperandStack implements Opcodes{
 	 * states to the nodes in the control flow graph.
 	 */
 	public class NodeStackProperty {
+		private List<Stack<OperandStackEntry>> _stackBefore = new ArrayList<Stack<OperandStackEntry>>();
 		private List<Stack<OperandStackEntry>> _stackAfter = new ArrayList<Stack<OperandStackEntry>>();
 		private int stackSize[] = null;
 
@@ -1850,11 +2440,29 @@ public class OperandStack implements Opcodes{
 		 *        the corresponding byte code instruction
 		 */
 		public NodeStackProperty(List<Stack<OperandStackEntry>> stackAfter) {
+			this(null, stackAfter);
+		}
+
+		/**
+		 * Creates a property stack object
+		 * @param stackBefore stack state before executing 
+		 *        the corresponding byte code instruction
+		 * @param stackAfter stack state after executing 
+		 *        the corresponding byte code instruction
+		 */
+		public NodeStackProperty(List<Stack<OperandStackEntry>> stackBefore, List<Stack<OperandStackEntry>> stackAfter) {
+			if(stackBefore != null){
+				_stackBefore.addAll(stackBefore);
+			}
 			if(stackAfter != null){
 				_stackAfter.addAll(stackAfter);
 			}
 		}
 
+		public List<Stack<OperandStackEntry>> getStackBefore() {
+			return _stackBefore;
+		}
+
 		public List<Stack<OperandStackEntry>> getStackAfter() {
 			return _stackAfter;
 		}
@@ -30,6 +30,7 @@ import com.drgarbage.asm.render.intf.IInstructionLine;
 import com.drgarbage.asm.render.intf.IMethodSection;
 import com.drgarbage.bytecode.ByteCodeConstants;
 import com.drgarbage.bytecode.BytecodeUtils;
+import com.drgarbage.bytecode.StackMapFrame;
 import com.drgarbage.bytecode.instructions.AbstractInstruction;
 import com.drgarbage.bytecode.instructions.Opcodes;
 import com.drgarbage.bytecodevisualizer.BytecodeVisualizerMessages;
@@ -88,6 +89,9 @@ public class OperandStackAnalysis {
 		buf.append(loopBasedAnalysis(opStack, method));
 		buf.append(JavaLexicalConstants.NEWLINE);
 
+		buf.append(frameBasedAnalysis(opStack, method));
+		buf.append(JavaLexicalConstants.NEWLINE);
+
 		buf.append(statistics(opStack, method));
 		buf.append(JavaLexicalConstants.NEWLINE);
 
@@ -955,13 +959,9 @@ public class OperandStackAnalysis {
 												+ CoreMessages.Warning.length()
 												+ 2));
 										buf.append("Bytcode addresses: ");
-										buf.append(ret.lastElement()
-												.getBytecodeInstruction()
-												.getOffset());
+										buf.append(getOffset(ret.lastElement()));
 										buf.append(" and ");
-										buf.append(s.lastElement()
-												.getBytecodeInstruction()
-												.getOffset());
+										buf.append(getOffset(s.lastElement()));
 										buf.append(JavaLexicalConstants.COMMA);
 										buf.append(JavaLexicalConstants.SPACE);
 										buf.append("possibly dead branch.");
@@ -1093,6 +1093,75 @@ public class OperandStackAnalysis {
 		return buf.toString();
 	}
 
+	/**
+	 * Returns a text representing the comparison of the calculated stacks
+	 * with the frames of the <code>StackMapTable</code> attribute.
+	 * 
+	 * @return string
+	 */
+	public static String frameBasedAnalysis(OperandStack opStack,
+			IMethodSection method) {
+		boolean errorOrWarning = false;
+
+		String header = BytecodeVisualizerMessages.OSA_Frame_Based_Analysis;
+		StringBuffer buf = new StringBuffer(header);
+		buf.append(JavaLexicalConstants.NEWLINE);
+		String headerLine = createHeaderLine(header.length() * 3);
+		buf.append(headerLine);
+		buf.append(JavaLexicalConstants.NEWLINE);
+
+		StackMapFrame[] frames = method.getStackMapTable();
+		if (frames == null || frames.length == 0) {
+			buf.append(BytecodeVisualizerMessages.OSA_No_Frames);
+			buf.append(JavaLexicalConstants.NEWLINE);
+		} else {
+			INodeListExt nodeList = opStack.getOperandStackGraph()
+					.getNodeList();
+			for (int i = 0; i < nodeList.size(); i++) {
+				INodeExt n = nodeList.getNodeExt(i);
+				Object o = n.getData();
+				if (o instanceof Map) {
+					@SuppressWarnings("unchecked")
+					Map<OperandStackPropertyConstants, Object> nodeMap = (Map<OperandStackPropertyConstants, Object>) o;
+					o = nodeMap.get(OperandStackPropertyConstants.FRAME_ERROR);
+					if (o != null) {
+						errorOrWarning = true;
+						buf.append(n.getByteCodeOffset());
+						buf.append(JavaLexicalConstants.SPACE);
+						buf.append(n.getByteCodeString());
+						buf.append(JavaLexicalConstants.COLON);
+						buf.append(JavaLexicalConstants.SPACE);
+						buf.append(CoreMessages.Error);
+						buf.append(JavaLexicalConstants.COLON);
+						buf.append(JavaLexicalConstants.SPACE);
+						buf.append(o);
+						buf.append(JavaLexicalConstants.DOT);
+						buf.append(JavaLexicalConstants.NEWLINE);
+					}
+				}
+			}
+
+			buf.append(frames.length);
+			buf.append(frames.length == 1 ? " frame has" : " frames have");
+			buf.append(" been checked.");
+			buf.append(JavaLexicalConstants.NEWLINE);
+		}
+
+		buf.append(headerLine);
+
+		if (errorOrWarning == false) {
+			buf.append(JavaLexicalConstants.NEWLINE);
+			buf.append(BytecodeVisualizerMessages.OSA_Frame_Based_success);
+		} else {
+			buf.append(JavaLexicalConstants.NEWLINE);
+			buf.append(BytecodeVisualizerMessages.OSA_Frame_Based_error);
+		}
+		buf.append(JavaLexicalConstants.NEWLINE);
+		buf.append(JavaLexicalConstants.NEWLINE);
+
+		return buf.toString();
+	}
+
 	/**
 	 * Returns statistics of the current operand stack object.
 	 * 
@@ -1166,6 +1235,21 @@ public class OperandStackAnalysis {
 		return buf.toString();
 	}
 
+	/**
+	 * Returns the offset of the instruction which has pushed the entry
+	 * onto the stack. Exception objects are pushed by the virtual machine.
+	 * 
+	 * @param ose
+	 * @return the offset or <code>?</code> if the entry has no instruction
+	 */
+	private static String getOffset(OperandStackEntry ose) {
+		AbstractInstruction i = ose.getBytecodeInstruction();
+		if (i == null) {
+			return "?";
+		}
+		return String.valueOf(i.getOffset());
+	}
+
 	/**
 	 * Counts the if instructions in the given instruction list.
 	 * 
@@ -35,6 +35,7 @@ public interface BytecodeVisualizerPreferenceConstats {
 	public static final String CLASS_FILE_ATTR_SHOW_MAXS = classFileAttributePreferencesPrefix + "show_maxs";
 	public static final String CLASS_FILE_ATTR_RENDER_TRYCATCH_BLOCKS = classFileAttributePreferencesPrefix + "render_tryCatchBlocks";
 	public static final String CLASS_FILE_ATTR_SHOW_SOURCE_LINE_NUMBERS = classFileAttributePreferencesPrefix + "render_sourceLineNumbers";
+	public static final String CLASS_FILE_ATTR_RENDER_METHOD_BODIES_ON_DEMAND = classFileAttributePreferencesPrefix + "render_methodBodiesOnDemand";
 
 	
 	public static final String tabHandlingPrefix = "TAB_HANDLING_";	
@@ -44,6 +44,7 @@ public class BytecodeVisualizerPreferenceInitializer extends
 		
 		store.setDefault(CLASS_FILE_ATTR_RENDER_TRYCATCH_BLOCKS, true);
 		store.setDefault(CLASS_FILE_ATTR_SHOW_SOURCE_LINE_NUMBERS, true);
+		store.setDefault(CLASS_FILE_ATTR_RENDER_METHOD_BODIES_ON_DEMAND, false);
 		
 		store.setDefault(CLASS_FILE_ATTR_SHOW_MAXS, false);
 		
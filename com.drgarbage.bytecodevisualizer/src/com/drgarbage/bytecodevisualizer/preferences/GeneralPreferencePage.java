@@ -86,6 +86,9 @@ public class GeneralPreferencePage
 		
 		ed= new IndentBooleanFieldEditor(CLASS_FILE_ATTR_RENDER_TRYCATCH_BLOCKS, BytecodeVisualizerMessages.GeneralPreferencePage_chk_Render_try_catch_blocks, getFieldEditorParent());
 		addField(ed);
+		
+		ed= new IndentBooleanFieldEditor(CLASS_FILE_ATTR_RENDER_METHOD_BODIES_ON_DEMAND, BytecodeVisualizerMessages.GeneralPreferencePage_chk_Render_method_bodies_on_demand, getFieldEditorParent());
+		addField(ed);
 
 		addVerticalSpace();
 		
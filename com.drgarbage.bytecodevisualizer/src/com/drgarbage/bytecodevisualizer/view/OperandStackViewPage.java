@@ -792,6 +792,10 @@ public abstract class OperandStackViewPage extends Page {
 					Node n = (Node)treeSel.getFirstElement();
 					Object o = n.getObject();
 
+					if(opstackRepresenationFormat == OpstackRepresenation.ALL){
+						showStackCombinations(n);
+					}
+
 					if(o instanceof IInstructionLine){
 						IInstructionLine i = (IInstructionLine)o;
 						editor.selectLineAndRevaluate2(i.getLine());
@@ -1124,7 +1128,8 @@ public abstract class OperandStackViewPage extends Page {
 			operandStack = new OperandStack(instructions, 
 					ic.getConstantPool(), 
 					methodInput.getLocalVariableTable(),
-					methodInput.getExceptionTable());
+					methodInput.getExceptionTable(),
+					methodInput.getStackMapTable());
 			INodeListExt nodeList = operandStack.getOperandStackGraph().getNodeList();
 			for(int i = 0; i < nodeList.size(); i++){
 				INodeExt n = nodeList.getNodeExt(i);
@@ -1138,6 +1143,7 @@ public abstract class OperandStackViewPage extends Page {
 					if(o != null){
 						iLine = (IInstructionLine) o;
 						Node node = treeMap.get(iLine.getLine());
+						node.setGraphNode(n);
 
 						o = nodeMap.get(OperandStackPropertyConstants.NODE_STACK);
 						if(o != null){
@@ -1191,6 +1197,37 @@ public abstract class OperandStackViewPage extends Page {
 		}
 	}
 
+	/**
+	 * Replaces the merged stacks of the node by all stack 
+	 * combinations. The combinations are enumerated on demand
+	 * for the selected instruction only. If the number of combinations
+	 * has been limited, the lists end with "...".
+	 * @param node the selected node
+	 */
+	private void showStackCombinations(Node node){
+		INodeExt n = node.getGraphNode();
+		if(n == null || node.isCombinationsShown() || operandStack == null){
+			return;
+		}
+
+		String stackAfter = OperandStack.stackListToString(operandStack.getStackCombinationsAfter(n));
+		if(stackAfter.length() == 0){
+			/* the stack is undefined */
+			return;
+		}
+
+		String stackBefore = OperandStack.stackListToString(operandStack.getStackCombinationsBefore(n));
+		if(operandStack.isStackCombinationsLimited(n)){
+			stackBefore += " | ..."; //$NON-NLS-1$
+			stackAfter += " | ..."; //$NON-NLS-1$
+		}
+
+		node.setOperandStackBefore(stackBefore);
+		node.setOperandStackAfter(stackAfter);
+		node.setCombinationsShown(true);
+		treeViewer.update(node, null);
+	}
+
 	private void fillTreeMap(Node root){
 		for(Node n: root.getChildren()){
 			fillTreeMap(n);
@@ -1219,6 +1256,8 @@ public abstract class OperandStackViewPage extends Page {
 		Object obj;
 		String operandStackBefore, operandStackAfter;
 		int depth[];
+		INodeExt graphNode;
+		boolean combinationsShown = false;
 
 		public Object getObject() {
 			return obj;
@@ -1279,6 +1318,22 @@ public abstract class OperandStackViewPage extends Page {
 		public void setDepth(int depth[]) {
 			this.depth = depth;
 		}
+
+		public INodeExt getGraphNode() {
+			return graphNode;
+		}
+
+		public void setGraphNode(INodeExt graphNode) {
+			this.graphNode = graphNode;
+		}
+
+		public boolean isCombinationsShown() {
+			return combinationsShown;
+		}
+
+		public void setCombinationsShown(boolean combinationsShown) {
+			this.combinationsShown = combinationsShown;
+		}
 	}
 }
 
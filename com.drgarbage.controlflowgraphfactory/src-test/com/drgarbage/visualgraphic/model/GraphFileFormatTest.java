@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.visualgraphic.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.draw2d.Graphics;
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.draw2d.geometry.Point;
+
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
+
+/**
+ * Test class for {@link com.drgarbage.visualgraphic.model.GraphFileFormat}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class GraphFileFormatTest extends TestCase {
+
+	private static final String LABEL = "12  iload_1"; //$NON-NLS-1$
+
+	private static VertexBase addVertex(ControlFlowGraphDiagram diagram, VertexBase vb,
+			String label, int x, int y, int width, int height) {
+		vb.setLabel(label);
+		vb.setLocation(new Point(x, y));
+		vb.setSize(new Dimension(width, height));
+		diagram.addChild(vb);
+		return vb;
+	}
+
+	/**
+	 * Creates a diagram with negative and extreme coordinates,
+	 * repeated labels and non ASCII characters.
+	 * @return the diagram
+	 */
+	private static ControlFlowGraphDiagram createDiagram() {
+		ControlFlowGraphDiagram diagram = new ControlFlowGraphDiagram();
+		diagram.setPropertyValue(ControlFlowGraphDiagram.NAME_PROP, "T.m(I)V"); //$NON-NLS-1$
+
+		VertexBase start = addVertex(diagram, new StartVertex(), "START", -20, -30, 60, 20); //$NON-NLS-1$
+		VertexBase block = addVertex(diagram, new BasicBlockVertex(), " B0 := {\n  0  ldc \"\u00e4\u20ac\"\n }", //$NON-NLS-1$
+				100000, 5, 300, 70);
+		block.setToolTip("Basic Block: B0"); //$NON-NLS-1$
+		block.setLongDescrUsed(true);
+		VertexBase v1 = addVertex(diagram, new RectangularVertex(), LABEL, Integer.MAX_VALUE, -70000, 1, 0);
+		VertexBase v2 = addVertex(diagram, new RectangularVertex(), LABEL, Integer.MIN_VALUE, 0, 200, 40);
+		VertexBase decision = addVertex(diagram, new DecisionVertex(), "if_icmplt", 0, Integer.MIN_VALUE, 64, 64); //$NON-NLS-1$
+		VertexBase exit = addVertex(diagram, new ExitVertex(), "EXIT", 0, 0, 60, 20); //$NON-NLS-1$
+
+		new Connection(start, block);
+		new Connection(block, v1);
+		new Connection(v1, v2);
+		Connection c = new Connection(v2, decision);
+		c.setLabel("true"); //$NON-NLS-1$
+		c = new Connection(decision, v1);
+		c.setLabel("true"); //$NON-NLS-1$
+		c.setLineStyle(Graphics.LINE_DASH);
+		c = new Connection(v1, exit);
+		c.setLineStyle(Graphics.LINE_DASH);
+		c.setEdgeType(IEdgeType.EDGE_TYPE_EXCEPTION);
+		c = new Connection(decision, exit);
+		c.setLabel("false"); //$NON-NLS-1$
+
+		return diagram;
+	}
+
+	private static void assertDiagramEquals(ControlFlowGraphDiagram expected, ControlFlowGraphDiagram actual) {
+		assertEquals(expected.getPropertyValue(ControlFlowGraphDiagram.NAME_PROP),
+				actual.getPropertyValue(ControlFlowGraphDiagram.NAME_PROP));
+		assertEquals(expected.getIdCounter(), actual.getIdCounter());
+
+		List<VertexBase> ev = expected.getChildren();
+		List<VertexBase> av = actual.getChildren();
+		assertEquals(ev.size(), av.size());
+		for (int i = 0; i < ev.size(); i++) {
+			VertexBase e = ev.get(i);
+			VertexBase a = av.get(i);
+			assertEquals(e.getClass(), a.getClass());
+			assertEquals(e.getId(), a.getId());
+			assertEquals(e.getLabel(), a.getLabel());
+			assertEquals(e.getToolTip(), a.getToolTip());
+			assertEquals(e.isLongDescrUsed(), a.isLongDescrUsed());
+			assertEquals(e.getLocation(), a.getLocation());
+			assertEquals(e.getSize(), a.getSize());
+
+			List<Connection> ec = e.getSourceConnections();
+			List<Connection> ac = a.getSourceConnections();
+			assertEquals(ec.size(), ac.size());
+			for (int j = 0; j < ec.size(); j++) {
+				assertSame(a, ac.get(j).getSource());
+				assertEquals(ev.indexOf(ec.get(j).getTarget()), av.indexOf(ac.get(j).getTarget()));
+				assertEquals(ec.get(j).getLabel(), ac.get(j).getLabel());
+				assertEquals(ec.get(j).getLineStyle(), ac.get(j).getLineStyle());
+				assertEquals(ec.get(j).getEdgeType(), ac.get(j).getEdgeType());
+			}
+		}
+	}
+
+	/**
+	 * The diagram written in the binary format is read unchanged.
+	 * The coordinates are written as zigzag deltas, the deltas
+	 * between the extreme values overflow.
+	 * @throws IOException
+	 */
+	public void testRoundTrip() throws IOException {
+		ControlFlowGraphDiagram diagram = createDiagram();
+		byte[] bytes = GraphFileFormat.toByteArray(diagram);
+
+		ControlFlowGraphDiagram read = GraphFileFormat.readDiagram(new ByteArrayInputStream(bytes));
+		assertDiagramEquals(diagram, read);
+
+		/* a new vertex gets a new id */
+		VertexBase vb = new RectangularVertex();
+		read.addChild(vb);
+		assertEquals(diagram.getIdCounter() + 1, vb.getId());
+
+		/* the diagram read is written in the same way */
+		byte[] bytes2 = GraphFileFormat.toByteArray(GraphFileFormat.readDiagram(new ByteArrayInputStream(bytes)));
+		assertEquals(bytes.length, bytes2.length);
+		for (int i = 0; i < bytes.length; i++) {
+			assertEquals(bytes[i], bytes2[i]);
+		}
+	}
+
+	/**
+	 * A string used several times is written only once.
+	 * @throws IOException
+	 */
+	public void testInternedStrings() throws IOException {
+		byte[] bytes = GraphFileFormat.toByteArray(createDiagram());
+		assertEquals(1, count(bytes, LABEL.getBytes("UTF-8"))); //$NON-NLS-1$
+		assertEquals(1, count(bytes, "true".getBytes("UTF-8"))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, count(bytes, "\u00e4\u20ac".getBytes("UTF-8"))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static int count(byte[] bytes, byte[] pattern) {
+		int count = 0;
+		for (int i = 0; i + pattern.length <= bytes.length; i++) {
+			int j = 0;
+			while (j < pattern.length && bytes[i + j] == pattern[j]) {
+				j++;
+			}
+			if (j == pattern.length) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Diagrams saved with the Java serialization by older
+	 * versions are still read.
+	 * @throws IOException
+	 */
+	public void testLegacyFormat() throws IOException {
+		ControlFlowGraphDiagram diagram = createDiagram();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(diagram);
+		oos.close();
+
+		ControlFlowGraphDiagram read = GraphFileFormat.readDiagram(new ByteArrayInputStream(out.toByteArray()));
+		assertDiagramEquals(diagram, read);
+	}
+
+	/**
+	 * Truncated and foreign files are rejected.
+	 */
+	public void testInvalidFile() throws IOException {
+		byte[] bytes = GraphFileFormat.toByteArray(createDiagram());
+		for (int len = 0; len < bytes.length; len += 7) {
+			byte[] b = new byte[len];
+			System.arraycopy(bytes, 0, b, 0, len);
+			try {
+				GraphFileFormat.readDiagram(new ByteArrayInputStream(b));
+				fail("IOException expected"); //$NON-NLS-1$
+			} catch (IOException e) {
+				/* expected */
+			}
+		}
+
+		try {
+			GraphFileFormat.readDiagram(new ByteArrayInputStream("digraph {}".getBytes("UTF-8"))); //$NON-NLS-1$ //$NON-NLS-2$
+			fail("IOException expected"); //$NON-NLS-1$
+		} catch (IOException e) {
+			/* expected */
+		}
+	}
+}
@@ -205,6 +205,9 @@ public class ControlFlowFactoryMessages extends NLS {
 	public static String GraphCompare_BottomUpAlgorithm_Text;
 	public static String GraphCompare_BottomUpMaxCommonAlgorithm_Text;
 	public static String GraphCompare_TopDownMaxCommonAlgorithm_Text;
+	public static String GraphCompare_StructuralDiff_Text;
+	public static String GraphCompare_StructuralDiff_ToolTip;
+	public static String GraphCompare_Job_Name;
 	public static String GraphCompare_ResetGraphsView_Text;
 	public static String GraphCompare_SwapGraphs_Text;
 	public static String GraphCompare_Error_Coudl_not_open_or_create_diagram;
@@ -16,10 +16,7 @@
 
 package com.drgarbage.controlflowgraphfactory.actions;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.text.MessageFormat;
 
@@ -51,10 +48,12 @@ import org.eclipse.ui.part.FileEditorInput;
 
 import com.drgarbage.controlflowgraphfactory.ControlFlowFactoryMessages;
 import com.drgarbage.controlflowgraphfactory.ControlFlowFactoryPlugin;
+import com.drgarbage.controlflowgraphfactory.export.AbstractExport2;
 import com.drgarbage.core.CoreMessages;
 import com.drgarbage.io.FileExtensions;
 import com.drgarbage.utils.Messages;
 import com.drgarbage.visualgraphic.model.ControlFlowGraphDiagram;
+import com.drgarbage.visualgraphic.model.ControlFlowGraphDiagramFactory;
 
 /**
  * Utils for control flow factory actions.
@@ -92,21 +91,12 @@ public class ActionUtils {
 						new WorkspaceModifyOperation() { /* run this operation */
 							public void execute(final IProgressMonitor monitor) {
 								try {
-									ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-									ObjectOutputStream oos = new ObjectOutputStream(out);
-									oos.writeObject(controlFlowGraphDiagram);
-									oos.close();
-									
 									/* delete if exists */
 									if(file.exists()){
 										file.delete(false, monitor);
 									} 
 
-									file.create(
-										new ByteArrayInputStream(out.toByteArray()), /* contents */
-										true, 		/* keep saving, even if IFile is out of sync with the Workspace */
-										monitor); 	/* progress monitor */
+									ControlFlowGraphDiagramFactory.writeGraphFile(file, controlFlowGraphDiagram, null, monitor);
 								} catch (StackOverflowError e) {
 									//Messages.error(StackOverflowError.class.getName() + PreferencesMessages.ExceptionAdditionalMessage);
 									ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR, ControlFlowFactoryPlugin.PLUGIN_ID, StackOverflowError.class.getName(), e));
@@ -159,16 +149,19 @@ public class ActionUtils {
 	}
 	
 	/**
-	 * Save a text content in a file and open an Editor.
+	 * Export a diagram in a file and open an Editor. The
+	 * exported content is written directly into the file.
 	 * @param path
 	 * @param parent
 	 * @param page
-	 * @param content
+	 * @param exporter
+	 * @param controlFlowGraphDiagram
 	 */
 	public static void saveContentInFileAndOpenEditor(IPath path, 
 			final Shell parent, 
 			final IWorkbenchPage page, 
-			final String content,
+			final AbstractExport2 exporter,
+			final ControlFlowGraphDiagram controlFlowGraphDiagram,
 			final boolean openEditor){
 
 		final IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(path);        
@@ -189,10 +182,7 @@ public class ActionUtils {
 									file.delete(false, monitor);
 								} 
 
-								file.create(
-										new ByteArrayInputStream(content.getBytes()), /* contents */
-										true,         /* keep saving, even if IFile is out of sync with the Workspace */
-										monitor);     /* progress monitor */
+								ControlFlowGraphDiagramFactory.writeGraphFile(file, controlFlowGraphDiagram, exporter, monitor);
 							} catch
 							(StackOverflowError e) {
 								//Messages.error(StackOverflowError.class.getName() + PreferencesMessages.ExceptionAdditionalMessage);
@@ -209,6 +199,15 @@ public class ActionUtils {
 										Status(IStatus.ERROR, ControlFlowFactoryPlugin.PLUGIN_ID,
 												CoreException.class.getName(), ce));
 
+								return;
+							} catch
+							(IOException ioe) {
+								Messages.error(IOException.class.getName() +	CoreMessages.ExceptionAdditionalMessage);
+
+								ControlFlowFactoryPlugin.getDefault().getLog().log(new
+										Status(IStatus.ERROR, ControlFlowFactoryPlugin.PLUGIN_ID,
+												IOException.class.getName(), ioe));
+
 								return;
 							}
 						}
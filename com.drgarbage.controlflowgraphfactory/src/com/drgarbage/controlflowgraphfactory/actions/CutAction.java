@@ -126,6 +126,7 @@ implements ISelectionChangedListener
 				Connection newCon = new Connection(source, target);
 				newCon.setLabel(con.getLabel());
 				newCon.setLineStyle(con.getLineStyle());
+				newCon.setEdgeType(con.getEdgeType());
 		}
 		
 		Clipboard.getDefault().setContents(newElements);
@@ -16,7 +16,6 @@
 
 package com.drgarbage.controlflowgraphfactory.actions;
 
-import java.io.StringWriter;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -47,7 +46,6 @@ import com.drgarbage.controlflowgraphfactory.ControlFlowFactoryMessages;
 import com.drgarbage.controlflowgraphfactory.ControlFlowFactoryPlugin;
 import com.drgarbage.controlflowgraphfactory.dialogs.ExportGraphSaveAsDialog;
 import com.drgarbage.controlflowgraphfactory.export.AbstractExport2;
-import com.drgarbage.controlflowgraphfactory.export.ExportException;
 import com.drgarbage.controlflowgraphfactory.export.GraphDOTExport;
 import com.drgarbage.controlflowgraphfactory.export.GraphMlExport;
 import com.drgarbage.controlflowgraphfactory.export.GraphXMLExport;
@@ -273,15 +271,7 @@ public abstract class GenerateGraphAction implements IObjectActionDelegate {
 					throw new IllegalStateException("Unexpected export format '"+ graphSpecification.getExportFormat() +"'.");
 				}
 				exporter.setGraphSpecification(graphSpecification);
-				StringWriter sb = new StringWriter();
-				try {
-					exporter.write(controlFlowGraphDiagram, sb);
-				} catch (ExportException e) {
-					/* This will never happen as
-					 * StringBuilder.append(*) does not throw IOException*/
-					throw new RuntimeException(e);
-				}
-				ActionUtils.saveContentInFileAndOpenEditor(path, shell, page, sb.toString(), graphSpecification.isOpenInEditor());
+				ActionUtils.saveContentInFileAndOpenEditor(path, shell, page, exporter, controlFlowGraphDiagram, graphSpecification.isOpenInEditor());
 				break;
 				
 		}
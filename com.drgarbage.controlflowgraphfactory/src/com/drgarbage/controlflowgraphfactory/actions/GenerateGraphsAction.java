@@ -209,21 +209,7 @@ public abstract class GenerateGraphsAction implements IObjectActionDelegate {
 	throws JavaModelException{
 		
 		try {
-			if(type.isInterface() || type.isEnum() || type.isAnnotation()){
-				String msg = MessageFormat.format(
-						ControlFlowFactoryMessages.ERROR_ClassFile_is_Interface_Enum_Annotation, 
-						new Object[] {type.getFullyQualifiedName()});
-				if(!suppressMessages){	
-					Messages.info(msg);
-				}
-				else{
-					ControlFlowFactoryPlugin.getDefault().getLog().log(
-							new Status(IStatus.WARNING,
-									ControlFlowFactoryPlugin.PLUGIN_ID, 
-									msg
-									)
-					);
-				}
+			if(!isClassType(type, suppressMessages)){
 				return Result.OK;
 			}
 		} catch (JavaModelException e) {
@@ -238,6 +224,81 @@ public abstract class GenerateGraphsAction implements IObjectActionDelegate {
 			return Result.ERROR;
 		}
 		
+		/* create folder structure */
+		try {
+			IFolder folder = createFolderForType(type, lf, root);
+			Result result = createGraphs(new Shell(), folder, type, createMonitor, overwriteAll, suppressMessages);
+			ActionUtils.showInPackageExplorer(folder, suppressMessages);
+			return result;
+		} catch (CoreException e) {
+			ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR,ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage() , e));
+			if(!suppressMessages){
+				Messages.error(e.getMessage() + CoreMessages.ExceptionAdditionalMessage);
+			}
+		} catch (InvocationTargetException e) {
+			ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR,ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage() , e));
+			if(!suppressMessages){
+				Messages.error(e.getMessage() + CoreMessages.ExceptionAdditionalMessage);
+			}
+		} catch (InterruptedException e) {
+			ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR,ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage() , e));
+			if(!suppressMessages){
+				Messages.error(e.getMessage() + CoreMessages.ExceptionAdditionalMessage);
+			}
+		} catch (IOException e) {
+			ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR,ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage() , e));
+			if(!suppressMessages){
+				Messages.error(e.getMessage() + CoreMessages.ExceptionAdditionalMessage);
+			}
+		}		
+		
+		return Result.ERROR;
+	}
+
+	/**
+	 * Checks if graphs can be created for the given type.
+	 * Interfaces, enums and annotations are reported and skipped.
+	 * @param type
+	 * @param suppressMessages
+	 * @return <code>true</code> if the type is a class
+	 * @throws JavaModelException
+	 */
+	private static boolean isClassType(IType type, boolean suppressMessages) 
+	throws JavaModelException{
+		if(type.isInterface() || type.isEnum() || type.isAnnotation()){
+			String msg = MessageFormat.format(
+					ControlFlowFactoryMessages.ERROR_ClassFile_is_Interface_Enum_Annotation, 
+					new Object[] {type.getFullyQualifiedName()});
+			if(!suppressMessages){	
+				Messages.info(msg);
+			}
+			else{
+				ControlFlowFactoryPlugin.getDefault().getLog().log(
+						new Status(IStatus.WARNING,
+								ControlFlowFactoryPlugin.PLUGIN_ID, 
+								msg
+								)
+				);
+			}
+			return false;
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Creates the folder structure for the graphs of the given type.
+	 * @param type
+	 * @param target directory as LocalFile
+	 * @param workspace root
+	 * @return the folder
+	 * @throws CoreException 
+	 */
+	private IFolder createFolderForType(IType type, 
+			LocalFile lf, 
+			IWorkspaceRoot root) 
+	throws CoreException{
+		
 		URI localFileURI = lf.toURI();
 		URI rootURI = root.getLocationURI();
 		
@@ -268,35 +329,34 @@ public abstract class GenerateGraphsAction implements IObjectActionDelegate {
 			buf.append(type.getElementName());
 		}
 
-		/* create folder structure */
-		try {
-			IFolder folder = createFolder(root, buf.toString());
-			Result result = createGraphs(new Shell(), folder, type, createMonitor, overwriteAll, suppressMessages);
-			ActionUtils.showInPackageExplorer(folder, suppressMessages);
-			return result;
-		} catch (CoreException e) {
-			ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR,ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage() , e));
-			if(!suppressMessages){
-				Messages.error(e.getMessage() + CoreMessages.ExceptionAdditionalMessage);
-			}
-		} catch (InvocationTargetException e) {
-			ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR,ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage() , e));
-			if(!suppressMessages){
-				Messages.error(e.getMessage() + CoreMessages.ExceptionAdditionalMessage);
-			}
-		} catch (InterruptedException e) {
-			ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR,ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage() , e));
-			if(!suppressMessages){
-				Messages.error(e.getMessage() + CoreMessages.ExceptionAdditionalMessage);
-			}
-		} catch (IOException e) {
-			ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR,ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage() , e));
-			if(!suppressMessages){
-				Messages.error(e.getMessage() + CoreMessages.ExceptionAdditionalMessage);
-			}
-		}		
-		
-		return Result.ERROR;
+		return createFolder(root, buf.toString());
+	}
+
+	/**
+	 * Creates graphs for the given types in one batch.
+	 * The graphs of all types are generated in parallel.
+	 * 
+	 * @param monitor
+	 * @param folders
+	 * @param types
+	 * @param overwriteAll
+	 * @return Result: OK, YES_TO_ALL, NO_TO_ALL, ERROR, CANCELED
+	 * @throws CoreException
+	 */
+	protected Result createGraphs(
+			IProgressMonitor monitor, 
+			IFolder[] folders, 
+			IType[] types, 
+			boolean overwriteAll)
+	throws CoreException 
+	{
+		IGraphSpecification spec = new DefaultGraphSpecification(getGraphSpecification());
+		spec.setGraphType(graphType);
+		spec.setOverwriteAll(overwriteAll);
+		spec.setSupressMessages(true);
+
+		return ControlFlowGraphDiagramFactory.buildAndSaveControlFlowDiagrams(
+				monitor, folders, types, spec);
 	}
 
 	public IGraphSpecification getGraphSpecification() {
@@ -370,26 +430,38 @@ public abstract class GenerateGraphsAction implements IObjectActionDelegate {
 							}
 						}
 
-						final int ticks = classFiles.length;
+						final int ticks = listOfTypes.size();
 						monitor.beginTask(ControlFlowFactoryMessages.ProgressDialogCreateGraphs, ticks);
 
-						boolean yes_To_All = false;
+						/* prepare the folders, the graphs are created in one batch */
+						List<IType> types = new ArrayList<IType>();
+						List<IFolder> folders = new ArrayList<IFolder>();
 						for(IType t: listOfTypes){
-							monitor.subTask(t.getElementName());
-							Result res = createGraphsForType(t, localFile, root, false, yes_To_All, true);
-							if(res ==  Result.NO_TO_ALL){ 
-								monitor.done();
-								return;
-							}
-							else if(res == Result.YES_TO_ALL){
-								yes_To_All = true;
-							}
-							else if(res == Result.ERROR){
+							try {
+								if(!isClassType(t, true)){
+									monitor.worked(1);
+									continue;
+								}
+								folders.add(createFolderForType(t, localFile, root));
+								types.add(t);
+							} catch (CoreException e) {
+								ControlFlowFactoryPlugin.getDefault().getLog().log(new Status(IStatus.ERROR,ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage() , e));
 								monitor0.setErrorDuringExecution(true);
+								monitor.worked(1);
 							}
+						}
 
-							monitor.worked(1);
-						}								
+						Result res = createGraphs(monitor, 
+								folders.toArray(new IFolder[folders.size()]), 
+								types.toArray(new IType[types.size()]), 
+								false);
+						if(res == Result.ERROR){
+							monitor0.setErrorDuringExecution(true);
+						}
+
+						for(IFolder folder: folders){
+							ActionUtils.showInPackageExplorer(folder, true);
+						}
 
 						monitor.done();
 					}
@@ -18,21 +18,22 @@ package com.drgarbage.controlflowgraphfactory.compare;
 
 
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 import org.eclipse.compare.CompareConfiguration;
 import org.eclipse.compare.CompareUI;
 import org.eclipse.compare.IStreamContentAccessor;
 import org.eclipse.compare.contentmergeviewer.ContentMergeViewer;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.draw2d.ColorConstants;
 import org.eclipse.draw2d.FigureCanvas;
 import org.eclipse.draw2d.FreeformViewport;
@@ -49,11 +50,13 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.ScrollBar;
 
 import com.drgarbage.algorithms.SpanningTreeFinder;
 import com.drgarbage.algorithms.BottomUpMaxCommonSubtreeIsomorphism;
 import com.drgarbage.algorithms.BottomUpSubtreeIsomorphism;
+import com.drgarbage.algorithms.StructuralGraphMatching;
 import com.drgarbage.algorithms.TopDownMaxCommonSubtreeIsomorphism;
 import com.drgarbage.algorithms.TopDownSubtreeIsomorphism;
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
@@ -71,12 +74,15 @@ import com.drgarbage.controlflowgraphfactory.compare.actions.CompareMouseActions
 import com.drgarbage.controlflowgraphfactory.compare.actions.CompareZoomInAction;
 import com.drgarbage.controlflowgraphfactory.compare.actions.CompareZoomOutAction;
 import com.drgarbage.controlflowgraphfactory.compare.actions.ResetCompareGraphsViewAction;
+import com.drgarbage.controlflowgraphfactory.compare.actions.StructuralDiffAction;
 import com.drgarbage.controlflowgraphfactory.compare.actions.SwapGraphsAction;
 import com.drgarbage.controlflowgraphfactory.compare.actions.TopDownMaxCommonAlgAction;
 import com.drgarbage.core.CoreMessages;
 import com.drgarbage.utils.Messages;
 import com.drgarbage.visualgraphic.editparts.DiagramEditPartFactory;
+import com.drgarbage.visualgraphic.model.Connection;
 import com.drgarbage.visualgraphic.model.ControlFlowGraphDiagram;
+import com.drgarbage.visualgraphic.model.GraphFileFormat;
 import com.drgarbage.visualgraphic.model.VertexBase;
 
 /**
@@ -108,6 +114,94 @@ public class GraphMergeViewer extends ContentMergeViewer {
 	final static Color YELLOW      		= new Color(null, 255, 255, 0);
 	
 	private ArrayList<CompareMouseActions> mouseEventsList = new ArrayList<CompareMouseActions>();
+
+	/* the last scheduled compare job */
+	private CompareJob compareJob;
+
+	/**
+	 * Job comparing the graphs outside of the UI thread. The job
+	 * belongs to the family of the viewer and is canceled if the
+	 * viewer is reset. The result is displayed in the UI thread.
+	 */
+	private abstract class CompareJob extends Job {
+
+		CompareJob() {
+			super(ControlFlowFactoryMessages.GraphCompare_Job_Name);
+			setPriority(Job.SHORT);
+		}
+
+		/**
+		 * Compares the graphs.
+		 * @param monitor the progress monitor
+		 * @return the mapped nodes or <code>null</code>
+		 * @throws ControlFlowGraphException
+		 */
+		protected abstract Map<INodeExt, INodeExt> compare(IProgressMonitor monitor) 
+			throws ControlFlowGraphException;
+
+		/**
+		 * Displays the mapped nodes. The method is called in the UI thread.
+		 * @param map the mapped nodes or <code>null</code>
+		 */
+		protected abstract void show(Map<INodeExt, INodeExt> map);
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
+		 */
+		public boolean belongsTo(Object family) {
+			return family == GraphMergeViewer.this;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+		 */
+		protected IStatus run(IProgressMonitor monitor) {
+			Map<INodeExt, INodeExt> map = null;
+			try {
+				map = compare(monitor);
+			} catch (final ControlFlowGraphException e) {
+				ControlFlowFactoryPlugin.log(e);
+				asyncExec(new Runnable() {
+					public void run() {
+						Messages.error(e.getMessage());
+					}
+				});
+				return Status.OK_STATUS;
+			} finally {
+				monitor.done();
+			}
+
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+
+			final Map<INodeExt, INodeExt> result = map;
+			asyncExec(new Runnable() {
+				public void run() {
+					show(result);
+				}
+			});
+
+			return Status.OK_STATUS;
+		}
+
+		private void asyncExec(final Runnable runnable) {
+			final Control control = getControl();
+			if (control == null || control.isDisposed()) {
+				return;
+			}
+
+			control.getDisplay().asyncExec(new Runnable() {
+				public void run() {
+					/* the viewer may have been reset or closed in the meantime */
+					if (compareJob == CompareJob.this && !control.isDisposed()) {
+						runnable.run();
+					}
+				}
+			});
+		}
+	}
+
 	/**
 	 * Creates a graph merge viewer.
 	 * 
@@ -198,6 +292,7 @@ public class GraphMergeViewer extends ContentMergeViewer {
 		toolBarManager.add(new TopDownMaxCommonAlgAction(this));
 		//toolBarManager.add(new BottomUpSubtreeAlgAction(this));
 		toolBarManager.add(new BottomUpMaxCommonAlgAction(this));
+		toolBarManager.add(new StructuralDiffAction(this));
 		
 		toolBarManager.add(new Separator());
 		toolBarManager.add(new ResetCompareGraphsViewAction(this));
@@ -264,9 +359,7 @@ public class GraphMergeViewer extends ContentMergeViewer {
 				if (sca != null) {
 					try {
 						stream = sca.getContents();
-						ObjectInputStream in = new ObjectInputStream(stream);
-						diagram = (ControlFlowGraphDiagram) in.readObject();
-						in.close();
+						diagram = GraphFileFormat.readDiagram(stream);
 						stream.close();
 
 					} catch (CoreException ex) {
@@ -277,10 +370,6 @@ public class GraphMergeViewer extends ContentMergeViewer {
 						ControlFlowFactoryPlugin.log(e);
 						Messages.error(ControlFlowFactoryMessages.GraphCompare_Error_Coudl_not_open_or_create_diagram 
 								+ CoreMessages.ExceptionAdditionalMessage);;
-					} catch (ClassNotFoundException e) {
-						ControlFlowFactoryPlugin.log(e);
-						Messages.error(ControlFlowFactoryMessages.GraphCompare_Error_Coudl_not_open_or_create_diagram 
-								+ CoreMessages.ExceptionAdditionalMessage);;
 					}
 				}
 			}
@@ -330,11 +419,7 @@ public class GraphMergeViewer extends ContentMergeViewer {
 	 * @throws IOException
 	 */
 	private byte[] modelToByteArray(ControlFlowGraphDiagram model) throws IOException{
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		ObjectOutputStream oos = new ObjectOutputStream(out);
-		oos.writeObject(model);
-		oos.close();
-		return out.toByteArray();
+		return GraphFileFormat.toByteArray(model);
 	}
 	
 	/* (non-Javadoc)
@@ -456,47 +541,42 @@ public class GraphMergeViewer extends ContentMergeViewer {
 	}
 	
 	/**
-	 * Executes the top down subtree algorithm.
+	 * Executes the top down maximum common subtree algorithm. 
+	 * The spanning trees are compared by a background job.
 	 * @throws ControlFlowGraphException 
 	 */
 	public void doTopDownMaxCommonAlg() throws ControlFlowGraphException {
 		
 		doResetViewer();
-		IDirectedGraphExt cfgLeft = LayoutAlgorithmsUtils.generateGraph(diagramLeft);		
-		IDirectedGraphExt cfgRight = LayoutAlgorithmsUtils.generateGraph(diagramRight);
-		
-		
-		/*convert graphs to trees */
-		ISpanningTree leftTree = new SpanningTreeFinder(cfgLeft).find();
-		ISpanningTree rightTree = new SpanningTreeFinder(cfgRight).find();
+		final IDirectedGraphExt cfgLeft = LayoutAlgorithmsUtils.generateGraph(diagramLeft);		
+		final IDirectedGraphExt cfgRight = LayoutAlgorithmsUtils.generateGraph(diagramRight);
 		
-		IEdgeListExt edgeLeftGraph = cfgLeft.getEdgeList();
-		IEdgeListExt edgeLeftTree = leftTree.getEdgeList();
-		List removedEdges = new ArrayList();
-		
-		boolean flag = false;
-		for(int i = 0; i < edgeLeftGraph.size(); i++){
-			for(int j = 0; j < edgeLeftTree.size(); j++){
-				if(edgeLeftGraph.getEdgeExt(i).equals(edgeLeftTree.getEdgeExt(j))){
-					flag = true;
-				}	
+		schedule(new CompareJob() {
+			protected Map<INodeExt, INodeExt> compare(IProgressMonitor monitor) 
+				throws ControlFlowGraphException {
+				monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+
+				/*convert graphs to trees */
+				ISpanningTree leftTree = new SpanningTreeFinder(cfgLeft).find();
+				ISpanningTree rightTree = new SpanningTreeFinder(cfgRight).find();
+
+				/* start to compare graphs */
+				TopDownMaxCommonSubtreeIsomorphism compare = new TopDownMaxCommonSubtreeIsomorphism();
+				return compare.execute(leftTree, rightTree);
 			}
-			if(!flag){
-				removedEdges.add(edgeLeftGraph.getEdgeExt(i));
+
+			protected void show(Map<INodeExt, INodeExt> map) {
+				showMappedNodes(map);
 			}
-			flag = false;
-		}
-		
-		TopDownMaxCommonSubtreeIsomorphism compare = new TopDownMaxCommonSubtreeIsomorphism();
-		/* start to compare graphs */
-		Map<INodeExt, INodeExt> map = null;
-		try {
-			map = compare.execute(leftTree, rightTree);
-		} catch (ControlFlowGraphException e) {
-			ControlFlowFactoryPlugin.log(e);
-			Messages.error(e.getMessage());
-		}
-		
+		});
+	}
+
+	/**
+	 * Highlights the mapped nodes of the top down maximum common 
+	 * subtree algorithm.
+	 * @param map the mapped nodes
+	 */
+	private void showMappedNodes(Map<INodeExt, INodeExt> map) {
 		if (map == null) {
 			Messages.info("Map containing equivalent nodes was null", 
 							"The left graph might have more nodes than the right graph.\n" + 
@@ -611,11 +691,125 @@ public class GraphMergeViewer extends ContentMergeViewer {
 		/*add mouse listeners to highlight mapped nodes*/
 		mouseHighLightListeners(map);
 	}
+
+	/**
+	 * Executes the structural graph difference. In contrast to the 
+	 * subtree algorithms all edges of the control flow graphs including 
+	 * the back edges are compared. The nodes are matched by a background 
+	 * job, see {@link StructuralGraphMatching}. The identical nodes are 
+	 * highlighted green, the changed nodes yellow and the nodes found only 
+	 * in one of the graphs red. The edges without counterpart are red.
+	 */
+	public void doStructuralDiffAlg() {
+		
+		doResetViewer();
+		final IDirectedGraphExt cfgLeft = LayoutAlgorithmsUtils.generateGraph(diagramLeft);		
+		final IDirectedGraphExt cfgRight = LayoutAlgorithmsUtils.generateGraph(diagramRight);
+		
+		schedule(new CompareJob() {
+			private StructuralGraphMatching matching;
+
+			protected Map<INodeExt, INodeExt> compare(final IProgressMonitor monitor) {
+				monitor.beginTask(getName(), StructuralGraphMatching.TOTAL_WORK);
+				matching = new StructuralGraphMatching() {
+					protected String getContent(INodeExt node) {
+						return getVertexContent((VertexBase) node.getData());
+					}
+
+					protected boolean isCanceled() {
+						return monitor.isCanceled();
+					}
+
+					protected void worked(int work) {
+						monitor.worked(work);
+					}
+				};
+
+				return matching.execute(cfgLeft, cfgRight);
+			}
+
+			protected void show(Map<INodeExt, INodeExt> map) {
+				if (map == null) {
+					return;
+				}
+
+				colorNodes(cfgLeft, RED);
+				colorNodes(cfgRight, RED);
+
+				Set<INodeExt> changed = matching.getChangedNodes();
+				for (Map.Entry<INodeExt, INodeExt> entry : map.entrySet()) {
+					Color c = changed.contains(entry.getKey()) ? YELLOW : GREEN;
+					((VertexBase) entry.getKey().getData()).setColor(c);
+					((VertexBase) entry.getValue().getData()).setColor(c);
+				}
+
+				Set<IEdgeExt> unmatched = matching.getUnmatchedEdges(cfgLeft, cfgRight);
+				colorEdges(cfgLeft, unmatched);
+				colorEdges(cfgRight, unmatched);
+
+				/*add mouse listeners to highlight mapped nodes*/
+				mouseHighLightListeners(map);
+			}
+		});
+	}
+
+	/**
+	 * Returns the instructions of a vertex. The instructions of a basic 
+	 * block are displayed either as label or as tool tip.
+	 * @param vertex the vertex
+	 * @return the instructions
+	 */
+	private static String getVertexContent(VertexBase vertex) {
+		String label = vertex.getLabel();
+		String toolTip = vertex.getToolTip();
+		if (toolTip != null && toolTip.indexOf(":= {") != -1) { //$NON-NLS-1$
+			return toolTip;
+		}
+
+		return label == null ? "" : label; //$NON-NLS-1$
+	}
+
+	private static void colorNodes(IDirectedGraphExt graph, Color color) {
+		for (int i = 0; i < graph.getNodeList().size(); i++) {
+			((VertexBase) graph.getNodeList().getNodeExt(i).getData()).setColor(color);
+		}
+	}
+
+	/**
+	 * Sets the color of the unmatched edges to red and 
+	 * the color of all other edges to black.
+	 * @param graph the graph
+	 * @param unmatched the unmatched edges
+	 */
+	private static void colorEdges(IDirectedGraphExt graph, Set<IEdgeExt> unmatched) {
+		IEdgeListExt edges = graph.getEdgeList();
+		for (int i = 0; i < edges.size(); i++) {
+			IEdgeExt e = edges.getEdgeExt(i);
+			if (e.getData() instanceof Connection) {
+				Color c = unmatched.contains(e) ? RED : ColorConstants.black;
+				((Connection) e.getData()).setColor(c);
+			}
+		}
+	}
+
+	/**
+	 * Schedules the compare job. The previous job has 
+	 * been canceled by {@link #doResetViewer()}.
+	 * @param job the job
+	 */
+	private void schedule(CompareJob job) {
+		compareJob = job;
+		job.schedule();
+	}
 	
 	/**
 	 * Resets the viewer and update the input.
 	 */
 	public void doResetViewer(){
+		/* cancel the running compare job */
+		compareJob = null;
+		Job.getJobManager().cancel(this);
+
 		setInput(fRight, diagramRight);
 		setInput(fLeft, diagramLeft);
 		
@@ -19,8 +19,7 @@ package com.drgarbage.controlflowgraphfactory.editors;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
@@ -123,6 +122,7 @@ import com.drgarbage.visualgraphic.editparts.DiagramEditPartFactory;
 import com.drgarbage.visualgraphic.editparts.OutlineTreeEditPartFactory;
 import com.drgarbage.visualgraphic.model.ControlFlowGraphDiagram;
 import com.drgarbage.visualgraphic.model.ControlFlowGraphDiagramFactory;
+import com.drgarbage.visualgraphic.model.GraphFileFormat;
 
 /**
  * A graphical editor with flyout palette that can edit .garph files. The
@@ -357,9 +357,8 @@ public class ControlFlowGraphEditor extends GraphicalEditorWithFlyoutPalette
 	}
 
 	private void createOutputStream(OutputStream os) throws IOException {
-		ObjectOutputStream oos = new ObjectOutputStream(os);
-		oos.writeObject(getModel());
-		oos.close();
+		GraphFileFormat.writeDiagram(getModel(), os);
+		os.close();
 	}
 
 	/*
@@ -581,9 +580,13 @@ public class ControlFlowGraphEditor extends GraphicalEditorWithFlyoutPalette
 		super.setInput(input);
 		try {
 			IFile file = ((IFileEditorInput) input).getFile();
-			ObjectInputStream in = new ObjectInputStream(file.getContents());
-			diagram = (ControlFlowGraphDiagram) in.readObject();
-			in.close();
+			InputStream in = file.getContents();
+			try {
+				diagram = GraphFileFormat.readDiagram(in);
+			}
+			finally {
+				in.close();
+			}
 			setPartName(file.getName());
 			
 			/* init name */
@@ -593,8 +596,6 @@ public class ControlFlowGraphEditor extends GraphicalEditorWithFlyoutPalette
 			handleLoadException(e);
 		} catch (CoreException e) {
 			handleLoadException(e);
-		} catch (ClassNotFoundException e) {
-			handleLoadException(e);
 		}
 
 		if (!editorSaving) {
@@ -154,7 +154,6 @@ public abstract class AbstractExport extends AbstractExport2 {
 	 */
 	protected void appendNodesAndEdges(List<VertexBase> nodes, Appendable buf) throws IOException{
 
-		List<Connection> connections = new ArrayList<Connection>();
 		Iterator<VertexBase> it = nodes.iterator();
 		VertexBase vb = null;
 		while(it.hasNext()){
@@ -167,23 +166,26 @@ public abstract class AbstractExport extends AbstractExport2 {
 
 			/* append vertex info */
 			appendVertex(vb, buf);
-
-			/* build connection list */
-			List<Connection> targetConnection = vb.getTargetConnections();
-			Iterator<Connection> itTargetConnections = targetConnection.iterator();
-			while(itTargetConnections.hasNext()){
-				connections.add(itTargetConnections.next());
-			}
 		}
 
-		/*append connection list */
-		Iterator<Connection> allConnections = connections.iterator();
-		Connection con = null;         
-		while(allConnections.hasNext()){
-			con = allConnections.next();
+		/* 
+		 * append the connections in a second pass over the vertices,
+		 * the connections are written directly without collecting them
+		 */
+		it = nodes.iterator();
+		while(it.hasNext()){
+			vb = it.next();
+			if(!graphSpecification.isExportComments()){
+				if(vb instanceof CommentElement){
+					continue;
+				}
+			}
 
-			/* append connection info */
-			appendEdge(con, buf);
+			List<Connection> targetConnection = vb.getTargetConnections();
+			for (int i = 0; i < targetConnection.size(); i++) {
+				/* append connection info */
+				appendEdge(targetConnection.get(i), buf);
+			}
 		}
 
 	}
@@ -199,6 +201,16 @@ public abstract class AbstractExport extends AbstractExport2 {
 	protected ArrayList<String> createHeaderCommentLines() {
 		ArrayList<String> headerLines = new ArrayList<String>(8);
 		
+		if (ControlFlowFactoryPlugin.getDefault() == null) {
+			/* headless export, the bundle resources are not available */
+			String msg = MessageFormat.format(ByteCodeConstants.Generated_by_x, new Object[] {CoreConstants.CONTROL_FLOW_GRAPH_FACTORY});
+			headerLines.add(msg);
+			
+			SimpleDateFormat sdf = new SimpleDateFormat(CoreConstants.ISO_DATE_TIME_FORMAT_FULL);
+			headerLines.add(ByteCodeConstants.Retrieved_on + ": " + sdf.format(new Date()));
+			return headerLines;
+		}
+		
 		Bundle bundle = ControlFlowFactoryPlugin.getDefault().getBundle();
 		if (bundle == null) {
 			/* this should not happen */
@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.controlflowgraphfactory.export;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.controlflowgraph.BatchGraphGenerator;
+import com.drgarbage.controlflowgraph.ControlFlowGraphException;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.graph.DefaultGraphSpecification;
+import com.drgarbage.graph.GraphConstants;
+import com.drgarbage.graph.IGraphSpecification;
+import com.drgarbage.io.FileExtensions;
+import com.drgarbage.visualgraphic.model.ControlFlowGraphDiagram;
+import com.drgarbage.visualgraphic.model.ControlFlowGraphDiagramFactory;
+
+/**
+ * Command line exporter of control flow graphs. Generates the graphs
+ * of all classes of a jar file or a directory and writes them in the
+ * DOT, GraphML or GraphXML format. The files are named and placed
+ * the same way as by the <i>Generate Graphs</i> actions.
+ * <br>
+ * The exporter runs without workbench, the jars of the plugins and of
+ * the draw2d, SWT and OSGi libraries they reference have to be on the
+ * class path. No display is created.
+ * <pre>
+ * BatchGraphExport [options] &lt;jar or directory&gt; &lt;output directory&gt;
+ *   -type bytecode|basicblock|source   graph type, default bytecode
+ *   -format dot|graphml|graphxml       export format, default dot
+ *   -threads n                         number of worker threads
+ *   -startnode -exitnode -backedge     create virtual nodes and edges
+ *   -exceptionedges                    create edges to the exception handlers
+ *   -comments -decorations -geometry   export options
+ *   -quiet                             no timing output per class
+ * </pre>
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class BatchGraphExport implements BatchGraphGenerator.IGraphHandler {
+
+	private static final String USAGE =
+		"Usage: BatchGraphExport [options] <jar or directory> <output directory>\n" //$NON-NLS-1$
+		+ "  -type bytecode|basicblock|source   graph type, default bytecode\n" //$NON-NLS-1$
+		+ "  -format dot|graphml|graphxml       export format, default dot\n" //$NON-NLS-1$
+		+ "  -threads n                         number of worker threads\n" //$NON-NLS-1$
+		+ "  -startnode -exitnode -backedge     create virtual nodes and edges\n" //$NON-NLS-1$
+		+ "  -exceptionedges                    create edges to the exception handlers\n" //$NON-NLS-1$
+		+ "  -comments -decorations -geometry   export options\n" //$NON-NLS-1$
+		+ "  -quiet                             no timing output per class"; //$NON-NLS-1$
+
+	private File outputDirectory;
+	private IGraphSpecification spec;
+
+	/**
+	 * Creates the exporter.
+	 * @param outputDirectory the root directory of the exported files
+	 * @param spec the graph specification
+	 */
+	public BatchGraphExport(File outputDirectory, IGraphSpecification spec) {
+		super();
+		this.outputDirectory = outputDirectory;
+		this.spec = spec;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.drgarbage.controlflowgraph.BatchGraphGenerator.IGraphHandler#handleGraph(java.lang.String, java.lang.String, java.lang.String, com.drgarbage.controlflowgraph.intf.IDirectedGraphExt)
+	 */
+	public void handleGraph(String className, String methodName,
+			String methodDescriptor, IDirectedGraphExt graph)
+			throws IOException, ControlFlowGraphException {
+
+		ControlFlowGraphDiagram diagram = ControlFlowGraphDiagramFactory.buildDiagram(graph, spec.getGraphType());
+		if (diagram == null) {
+			throw new ControlFlowGraphException("Diagram could not be created."); //$NON-NLS-1$
+		}
+
+		String elementName = className.substring(className.lastIndexOf('.') + 1);
+
+		if (methodName.equals(ByteCodeConstants.INIT)) {
+			methodName = "init"; //$NON-NLS-1$
+		}
+
+		if (methodName.equals(ByteCodeConstants.CLINIT)) {
+			methodName = "clinit"; //$NON-NLS-1$
+		}
+
+		/* set name property */
+		diagram.setPropertyValue(ByteCodeConstants.NAME, elementName + "." //$NON-NLS-1$
+				+ methodName + methodDescriptor);
+
+		AbstractExport2 exporter = null;
+		String extension = null;
+		switch (spec.getExportFormat()) {
+		case GraphConstants.EXPORT_FORMAT_DOT:
+			exporter = new GraphDOTExport();
+			extension = FileExtensions.DOT;
+			break;
+		case GraphConstants.EXPORT_FORMAT_GRAPHXML:
+			exporter = new GraphXMLExport();
+			extension = FileExtensions.XML;
+			break;
+		case GraphConstants.EXPORT_FORMAT_GRAPHML:
+			exporter = new GraphMlExport();
+			extension = FileExtensions.GRAPHML;
+			break;
+		default:
+			throw new IllegalStateException("Unexpected export format."); //$NON-NLS-1$
+		}
+		exporter.setGraphSpecification(spec);
+
+		/* same folder structure as created by the generate graphs actions */
+		File folder = new File(outputDirectory, className.replace('.', File.separatorChar).replace('$', File.separatorChar));
+		if (!folder.isDirectory() && !folder.mkdirs() && !folder.isDirectory()) {
+			throw new IOException("Could not create the directory " + folder); //$NON-NLS-1$
+		}
+
+		String fileName = elementName + "." + methodName //$NON-NLS-1$
+				+ methodDescriptor.replace('/', '.') + "." //$NON-NLS-1$
+				+ GraphConstants.graphTypeSuffixes[spec.getGraphType()]
+				+ "." + FileExtensions.GRAPH + "." + extension; //$NON-NLS-1$ //$NON-NLS-2$
+
+		Writer out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(new File(folder, fileName))));
+		try {
+			exporter.write(diagram, out);
+		} catch (ExportException e) {
+			IOException ioe = new IOException(e.getMessage());
+			ioe.initCause(e);
+			throw ioe;
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Runs the exporter.
+	 * @param args see the class comment
+	 */
+	public static void main(String[] args) {
+		DefaultGraphSpecification spec = new DefaultGraphSpecification();
+		spec.setGraphType(GraphConstants.GRAPH_TYPE_BYTECODE_GRAPH);
+		spec.setExportFormat(GraphConstants.EXPORT_FORMAT_DOT);
+		spec.setSupressMessages(true);
+		spec.setOverwriteAll(true);
+
+		boolean startNode = false;
+		boolean exitNode = false;
+		boolean backEdge = false;
+		boolean exceptionEdges = false;
+		boolean quiet = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		File input = null;
+		File output = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (arg.equals("-type")) { //$NON-NLS-1$
+					spec.setGraphType(parseGraphType(args[++i]));
+				}
+				else if (arg.equals("-format")) { //$NON-NLS-1$
+					spec.setExportFormat(parseExportFormat(args[++i]));
+				}
+				else if (arg.equals("-threads")) { //$NON-NLS-1$
+					threads = Integer.parseInt(args[++i]);
+				}
+				else if (arg.equals("-startnode")) { //$NON-NLS-1$
+					startNode = true;
+				}
+				else if (arg.equals("-exitnode")) { //$NON-NLS-1$
+					exitNode = true;
+				}
+				else if (arg.equals("-backedge")) { //$NON-NLS-1$
+					backEdge = true;
+				}
+				else if (arg.equals("-exceptionedges")) { //$NON-NLS-1$
+					exceptionEdges = true;
+				}
+				else if (arg.equals("-comments")) { //$NON-NLS-1$
+					spec.setExportComments(true);
+				}
+				else if (arg.equals("-decorations")) { //$NON-NLS-1$
+					spec.setExportDecorations(true);
+				}
+				else if (arg.equals("-geometry")) { //$NON-NLS-1$
+					spec.setExportGeometry(true);
+				}
+				else if (arg.equals("-quiet")) { //$NON-NLS-1$
+					quiet = true;
+				}
+				else if (arg.startsWith("-")) { //$NON-NLS-1$
+					throw new IllegalArgumentException("Unknown option " + arg); //$NON-NLS-1$
+				}
+				else if (input == null) {
+					input = new File(arg);
+				}
+				else if (output == null) {
+					output = new File(arg);
+				}
+				else {
+					throw new IllegalArgumentException("Unexpected argument " + arg); //$NON-NLS-1$
+				}
+			}
+
+			if (input == null || output == null) {
+				throw new IllegalArgumentException("Input and output have to be specified."); //$NON-NLS-1$
+			}
+
+			if (!input.exists()) {
+				throw new IllegalArgumentException(input + " does not exist."); //$NON-NLS-1$
+			}
+		} catch (RuntimeException e) {
+			/* IllegalArgumentException, NumberFormatException or missing option value */
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+		}
+
+		BatchGraphGenerator generator = new BatchGraphGenerator(spec.getGraphType());
+		generator.setCreateStartVertex(startNode);
+		generator.setCreateExitVertex(exitNode);
+		generator.setCreateBackEdge(backEdge);
+		generator.setCreateExceptionEdges(exceptionEdges);
+		generator.setThreads(threads);
+		generator.setVerbose(!quiet);
+
+		try {
+			BatchGraphGenerator.Statistics stat = generator.run(input, new BatchGraphExport(output, spec));
+			System.exit(stat.getErrors() == 0 ? 0 : 2);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.exit(1);
+		}
+	}
+
+	private static int parseGraphType(String s) {
+		if (s.equals("bytecode")) { //$NON-NLS-1$
+			return GraphConstants.GRAPH_TYPE_BYTECODE_GRAPH;
+		}
+		else if (s.equals("basicblock")) { //$NON-NLS-1$
+			return GraphConstants.GRAPH_TYPE_BASICBLOCK_GRAPH;
+		}
+		else if (s.equals("source")) { //$NON-NLS-1$
+			return GraphConstants.GRAPH_TYPE_SOURCE_GRAPH;
+		}
+
+		throw new IllegalArgumentException("Unknown graph type " + s); //$NON-NLS-1$
+	}
+
+	private static int parseExportFormat(String s) {
+		if (s.equals("dot")) { //$NON-NLS-1$
+			return GraphConstants.EXPORT_FORMAT_DOT;
+		}
+		else if (s.equals("graphml")) { //$NON-NLS-1$
+			return GraphConstants.EXPORT_FORMAT_GRAPHML;
+		}
+		else if (s.equals("graphxml")) { //$NON-NLS-1$
+			return GraphConstants.EXPORT_FORMAT_GRAPHXML;
+		}
+
+		throw new IllegalArgumentException("Unknown export format " + s); //$NON-NLS-1$
+	}
+}
@@ -24,6 +24,7 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.draw2d.Graphics;
 import org.eclipse.swt.graphics.RGB;
 
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
 import com.drgarbage.controlflowgraphfactory.ControlFlowFactoryMessages;
 import com.drgarbage.controlflowgraphfactory.ControlFlowFactoryPlugin;
 import com.drgarbage.core.preferences.CorePreferenceConstants;
@@ -83,6 +84,11 @@ import com.drgarbage.visualgraphic.model.VertexBase;
  */
 public class GraphDOTExport extends AbstractExport {
 
+	/**
+	 * The color of the exception edges.
+	 */
+	private static final RGB EXCEPTION_EDGE_COLOR = new RGB(255, 0, 0);
+
 	private static void appendAttribute(String attribute, double value, Appendable buf) throws IOException {
 		buf
 		.append(attribute)
@@ -131,6 +137,16 @@ public class GraphDOTExport extends AbstractExport {
 		;
 	}
 	
+	private static void appendColor(RGB color, Appendable buf) throws IOException{
+		buf
+		.append(DotAttributes.color)
+		.append(DotLexicalConstants.EQUALS)
+		.append(DotLexicalConstants.QUOTE)
+		.append(DotUtils.toHexColor(color.red, color.green, color.blue))
+		.append(DotLexicalConstants.QUOTE)
+		;
+	}
+	
 	private static void appendFixedsize(String bool, Appendable buf) throws IOException {
 		buf
 		.append(DotAttributes.fixedsize)
@@ -214,7 +230,14 @@ public class GraphDOTExport extends AbstractExport {
 		
 		DotUtils.appendQuotedLabel(con.getLabel().trim(), buf);
 		
-		if(graphSpecification.isExportDecorations()){
+		if(con.getEdgeType() == IEdgeType.EDGE_TYPE_EXCEPTION){
+			/* exception edges are always marked */
+			appendCommaSpace(buf);
+			appendStyle(DotValues.style.dashed, buf);
+			appendCommaSpace(buf);
+			appendColor(EXCEPTION_EDGE_COLOR, buf);
+		}
+		else if(graphSpecification.isExportDecorations()){
 			buf
 			.append(DotLexicalConstants.COMMA)
 			.append(DotLexicalConstants.SPACE)
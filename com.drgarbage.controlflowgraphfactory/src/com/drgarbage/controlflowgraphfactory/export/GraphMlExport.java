@@ -16,18 +16,13 @@
 
 package com.drgarbage.controlflowgraphfactory.export;
 
-import java.io.StringReader;
+import java.io.IOException;
 import java.util.List;
 
 import org.eclipse.draw2d.geometry.Dimension;
 import org.eclipse.draw2d.geometry.Point;
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.XMLFilter;
-import org.xml.sax.XMLReader;
-import org.xml.sax.helpers.AttributesImpl;
 
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
 import com.drgarbage.graphml.GraphMlAttributeValues;
 import com.drgarbage.graphml.GraphMlAttributes;
 import com.drgarbage.graphml.GraphMlConstants;
@@ -46,200 +41,183 @@ import com.drgarbage.visualgraphic.model.ReturnVertex;
 import com.drgarbage.visualgraphic.model.StartVertex;
 import com.drgarbage.visualgraphic.model.SwitchVertex;
 import com.drgarbage.visualgraphic.model.VertexBase;
-import com.drgarbage.xml.XmlConstants;
+import com.drgarbage.xml.XmlWriter;
 
 public class GraphMlExport extends AbstractXMLExport {
 	
-	protected class GraphMlFilter extends GraphFilter {
-
-
-		public GraphMlFilter(ControlFlowGraphDiagram diagram, XMLReader parent) {
-			super(diagram, parent);
+	@Override
+	protected void writeDocument(ControlFlowGraphDiagram diagram, XmlWriter out) throws IOException {
+		out.startElement(GraphMlElements.graphml)
+			.attribute(GraphMlConstants.XMLNS, GraphMlConstants.NAMESPACE)
+			.attribute(GraphMlConstants.XMLNS_XSI, GraphMlConstants.XSI_NAMESPACE)
+			.attribute(GraphMlConstants.XSI_SCHEMA_LOCATION, GraphMlConstants.SCHEMA_LOCATION)
+			.attribute(GraphMlAttributes.id, GraphMlAttributeValues.DEFAULT_GRAPH_ID)
+			.attribute(GraphMlAttributes.edgedefault, GraphMlAttributeValues.directed);
+
+		if (graphSpecification.isExportGeometry()) {
+			declareGeometry(out);
 		}
-
-		@Override
-		public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
-			
-			if (GraphMlElements.graphml.equals(name)) {
-				/* the only element expected in the stub */
-				
-				AttributesImpl newAttributes = new AttributesImpl();
-				
-				newAttributes.setAttributes(atts); /* set attributes, like xmlns, xmlns:xsi or xsi:schemaLocation */
-				newAttributes.addAttribute("", "", GraphMlAttributes.id, XmlConstants.CDATA, GraphMlAttributeValues.DEFAULT_GRAPH_ID);
-				newAttributes.addAttribute("", "", GraphMlAttributes.edgedefault, XmlConstants.CDATA, GraphMlAttributeValues.directed);
-
-				super.startElement(uri, localName, name, newAttributes);
-			}
-			else {
-				return;
-			}
-			
-			if (graphSpecification.isExportGeometry()) {
-				declareGeometry(uri);
-			}
-			if (graphSpecification.isExportDecorations()) {
-				declareDecorations(uri);
-			}
-			
-			super.startElement(uri, "", q(GraphMlElements.graph), null);
-			
-			/* export the rest */
+		if (graphSpecification.isExportDecorations()) {
+			declareDecorations(out);
+		}
+		declareEdgeType(out);
+		
+		out.startElement(GraphMlElements.graph);
+		
+		/* nodes */
+		List<VertexBase> vertices = diagram.getChildren();
+		if (vertices != null && vertices.size() > 0) {
 			
-			/* nodes */
-			List<VertexBase> vertices = diagram.getChildren();
-			if (vertices != null && vertices.size() > 0) {
+			for (VertexBase v : vertices) {
 				
-				for (VertexBase v : vertices) {
-					
-					if(!graphSpecification.isExportComments() && v instanceof CommentElement){
-							continue;
-					}
+				if(!graphSpecification.isExportComments() && v instanceof CommentElement){
+						continue;
+				}
 
-					appendVertex(v, uri);
+				appendVertex(v, out);
 
-					/* In GraphML there is no order defined for the appearance of node and edge elements 
-					 * see http://graphml.graphdrawing.org/primer/graphml-primer.html#Graph 
-					 * */
-					List<Connection> ingoingEdges = v.getTargetConnections();
-					if (ingoingEdges != null && ingoingEdges.size() > 0) {
-						for (Connection edge : ingoingEdges) {
-							appendEdge(edge, uri);
-						}
+				/* In GraphML there is no order defined for the appearance of node and edge elements 
+				 * see http://graphml.graphdrawing.org/primer/graphml-primer.html#Graph 
+				 * */
+				List<Connection> ingoingEdges = v.getTargetConnections();
+				if (ingoingEdges != null && ingoingEdges.size() > 0) {
+					for (Connection edge : ingoingEdges) {
+						appendEdge(edge, out);
 					}
-					
 				}
 				
 			}
 			
-			// super.endElement(uri, "", q(GraphMlElements.graph));
-
 		}
 		
-		protected void appendEdge(Connection edge, String uri) throws SAXException {
-			AttributesImpl atts = new AttributesImpl();
-			
-			atts.addAttribute(uri, "", GraphMlAttributes.source, XmlConstants.CDATA, GraphMlAttributeValues.nodeIdPrefix + edge.getSource().getId());
-			atts.addAttribute(uri, "", GraphMlAttributes.target, XmlConstants.CDATA, GraphMlAttributeValues.nodeIdPrefix + edge.getTarget().getId());
-			
-			super.startElement(uri, "", q(GraphMlElements.edge), atts);
-			super.endElement(uri, "", q(GraphMlElements.edge));
+		out.endElement(); /* graph */
+		out.endElement(); /* graphml */
+	}
+		
+	protected void appendEdge(Connection edge, XmlWriter out) throws IOException {
+		out.startElement(GraphMlElements.edge)
+			.attribute(GraphMlAttributes.source, GraphMlAttributeValues.nodeIdPrefix + edge.getSource().getId())
+			.attribute(GraphMlAttributes.target, GraphMlAttributeValues.nodeIdPrefix + edge.getTarget().getId());
+		
+		if (edge.getEdgeType() == IEdgeType.EDGE_TYPE_EXCEPTION) {
+			appendAttribute(out, GraphMlCustomAttributes.edgetype, GraphMlCustomAttributes.edgetype_exception);
 		}
+		
+		out.endElement(); /* edge */
+	}
 
-		protected void appendVertex(VertexBase v, String uri) throws SAXException {
-			
-			AttributesImpl atts = new AttributesImpl();
-			
-			atts.addAttribute(uri, "", GraphMlAttributes.id, XmlConstants.CDATA, GraphMlAttributeValues.nodeIdPrefix + v.getId());
-			
-			super.startElement(uri, "", q(GraphMlElements.node), atts);
-			
-			if (graphSpecification.isExportGeometry()) {
-				Point p = v.getLocation();
-				appendAttribute(uri, GraphMlCustomAttributes.x, String.valueOf(p.x));
-				appendAttribute(uri, GraphMlCustomAttributes.y, String.valueOf(p.y));
-				Dimension d = v.getSize();
-				appendAttribute(uri, GraphMlCustomAttributes.width, String.valueOf(d.width));
-				appendAttribute(uri, GraphMlCustomAttributes.height, String.valueOf(d.height));
-			}
-			if (graphSpecification.isExportDecorations()) {
-				//FIXME: where do I get the color from
-//				Color rgb = ?;
-//				appendAttribute(uri, GraphMlCustomAttributes.color, DotUtils.toHexColor(rgb.r, rgb.g, rgb.b));
-				
-				appendAttribute(uri, GraphMlCustomAttributes.type, toNodeType(v));
-				appendAttribute(uri, GraphMlCustomAttributes.label, v.getLabel().trim());
-				
-			}
-
-			
-			super.endElement(uri, "", q(GraphMlElements.node));
-			
-		}
+	protected void appendVertex(VertexBase v, XmlWriter out) throws IOException {
 		
-		protected String toNodeType(VertexBase vb) {
-			if(vb instanceof DecisionVertex){
-				return GraphMlCustomAttributes.type_decision;
-			}
-			else if(vb instanceof GetVertex){
-				return GraphMlCustomAttributes.type_get;
-			}
-			else if(vb instanceof GotoJumpVertex){
-				return GraphMlCustomAttributes.type_jump;
-			}
-			else if(vb instanceof InvokeVertex){
-				return GraphMlCustomAttributes.type_invoke;
-			}
-			else if(vb instanceof RectangularVertex){
-				return GraphMlCustomAttributes.type_instruction;
-			}
-			else if(vb instanceof ReturnVertex){
-				return GraphMlCustomAttributes.type_return;
-			}
-			else if(vb instanceof StartVertex){
-				return GraphMlCustomAttributes.type_start;
-			}
-			else if(vb instanceof ExitVertex){
-				return GraphMlCustomAttributes.type_exit;
-			}
-			else if(vb instanceof SwitchVertex){
-				return GraphMlCustomAttributes.type_switch;
-			}
-			else if(vb instanceof CommentElement){
-				return GraphMlCustomAttributes.type_comment;
-			}
-			else {
-				throw new IllegalStateException("Unexpected vertex type '"+ vb.getClass().getName() +"'");
-			}		
-		}
+		out.startElement(GraphMlElements.node)
+			.attribute(GraphMlAttributes.id, GraphMlAttributeValues.nodeIdPrefix + v.getId());
 		
-		protected void appendAttribute(String uri, String key, String value) throws SAXException {
-			AttributesImpl atts = new AttributesImpl();
-			atts.addAttribute(uri, "", GraphMlAttributes.key, XmlConstants.CDATA, toAttributeId(key));
-			super.startElement(uri, "", q(GraphMlElements.data), atts);
-			super.characters(value.toCharArray(), 0, value.length());
-			super.endElement(uri, "", q(GraphMlElements.data));
-		}
-		protected void declareAttribute(String uri, String key, String type) throws SAXException {
-			AttributesImpl atts = new AttributesImpl();
+		if (graphSpecification.isExportGeometry()) {
+			Point p = v.getLocation();
+			appendAttribute(out, GraphMlCustomAttributes.x, String.valueOf(p.x));
+			appendAttribute(out, GraphMlCustomAttributes.y, String.valueOf(p.y));
+			Dimension d = v.getSize();
+			appendAttribute(out, GraphMlCustomAttributes.width, String.valueOf(d.width));
+			appendAttribute(out, GraphMlCustomAttributes.height, String.valueOf(d.height));
+		}
+		if (graphSpecification.isExportDecorations()) {
+			//FIXME: where do I get the color from
+//			Color rgb = ?;
+//			appendAttribute(out, GraphMlCustomAttributes.color, DotUtils.toHexColor(rgb.r, rgb.g, rgb.b));
 			
-			atts.addAttribute(uri, "", GraphMlAttributes.id, XmlConstants.CDATA, toAttributeId(key));
-			atts.addAttribute(uri, "", GraphMlAttributes.for_, XmlConstants.CDATA, GraphMlElements.node);
-			atts.addAttribute(uri, "", GraphMlAttributes.attr_name, XmlConstants.CDATA, key);
-			atts.addAttribute(uri, "", GraphMlAttributes.attr_type, XmlConstants.CDATA, type);
+			appendAttribute(out, GraphMlCustomAttributes.type, toNodeType(v));
+			appendAttribute(out, GraphMlCustomAttributes.label, v.getLabel().trim());
 			
-			super.startElement(uri, "", q(GraphMlElements.key), atts);
-			super.endElement(uri, "", q(GraphMlElements.key));
 		}
+
+		out.endElement(); /* node */
 		
-		protected void declareGeometry(String uri) throws SAXException {
-			declareAttribute(uri, GraphMlCustomAttributes.x, GraphMlAttributeValues.int_);
-			declareAttribute(uri, GraphMlCustomAttributes.y, GraphMlAttributeValues.int_);
-			declareAttribute(uri, GraphMlCustomAttributes.width, GraphMlAttributeValues.int_);
-			declareAttribute(uri, GraphMlCustomAttributes.height, GraphMlAttributeValues.int_);
-		}
+	}
 		
-		protected void declareDecorations(String uri) throws SAXException {
-			declareAttribute(uri, GraphMlCustomAttributes.color, GraphMlAttributeValues.string);
-			declareAttribute(uri, GraphMlCustomAttributes.type, GraphMlAttributeValues.string);
-			declareAttribute(uri, GraphMlCustomAttributes.label, GraphMlAttributeValues.string);
+	protected String toNodeType(VertexBase vb) {
+		if(vb instanceof DecisionVertex){
+			return GraphMlCustomAttributes.type_decision;
 		}
-		
-		private String toAttributeId(String key) {
-			return GraphMlAttributeValues.attributeIdPrefix + key;
+		else if(vb instanceof GetVertex){
+			return GraphMlCustomAttributes.type_get;
 		}
+		else if(vb instanceof GotoJumpVertex){
+			return GraphMlCustomAttributes.type_jump;
+		}
+		else if(vb instanceof InvokeVertex){
+			return GraphMlCustomAttributes.type_invoke;
+		}
+		else if(vb instanceof RectangularVertex){
+			return GraphMlCustomAttributes.type_instruction;
+		}
+		else if(vb instanceof ReturnVertex){
+			return GraphMlCustomAttributes.type_return;
+		}
+		else if(vb instanceof StartVertex){
+			return GraphMlCustomAttributes.type_start;
+		}
+		else if(vb instanceof ExitVertex){
+			return GraphMlCustomAttributes.type_exit;
+		}
+		else if(vb instanceof SwitchVertex){
+			return GraphMlCustomAttributes.type_switch;
+		}
+		else if(vb instanceof CommentElement){
+			return GraphMlCustomAttributes.type_comment;
+		}
+		else {
+			throw new IllegalStateException("Unexpected vertex type '"+ vb.getClass().getName() +"'");
+		}		
+	}
+		
+	protected void appendAttribute(XmlWriter out, String key, String value) throws IOException {
+		out.startElement(GraphMlElements.data)
+			.attribute(GraphMlAttributes.key, toAttributeId(key))
+			.text(value)
+			.endElement();
 	}
 
-	@Override
-	protected InputSource createExportStub() {
-		StringReader r = new StringReader(GraphMlConstants.GRAPH_ML_EXPORT_STUB);
-		InputSource result = new InputSource(r);
-		return result;
+	protected void declareAttribute(XmlWriter out, String key, String type) throws IOException {
+		out.startElement(GraphMlElements.key)
+			.attribute(GraphMlAttributes.id, toAttributeId(key))
+			.attribute(GraphMlAttributes.for_, GraphMlElements.node)
+			.attribute(GraphMlAttributes.attr_name, key)
+			.attribute(GraphMlAttributes.attr_type, type)
+			.endElement();
 	}
 
-	@Override
-	protected XMLFilter createXmlFilter(ControlFlowGraphDiagram diagram, XMLReader xmlReader) {
-		return new GraphMlFilter(diagram, xmlReader);
+	/**
+	 * Declares the type of the edges. Only the exception 
+	 * edges specify the type, the default is <code>normal</code>.
+	 * @param out the writer
+	 * @throws IOException
+	 */
+	protected void declareEdgeType(XmlWriter out) throws IOException {
+		out.startElement(GraphMlElements.key)
+			.attribute(GraphMlAttributes.id, toAttributeId(GraphMlCustomAttributes.edgetype))
+			.attribute(GraphMlAttributes.for_, GraphMlElements.edge)
+			.attribute(GraphMlAttributes.attr_name, GraphMlCustomAttributes.edgetype)
+			.attribute(GraphMlAttributes.attr_type, GraphMlAttributeValues.string)
+			.startElement(GraphMlElements.default_)
+			.text(GraphMlCustomAttributes.edgetype_normal)
+			.endElement()
+			.endElement();
+	}
+		
+	protected void declareGeometry(XmlWriter out) throws IOException {
+		declareAttribute(out, GraphMlCustomAttributes.x, GraphMlAttributeValues.int_);
+		declareAttribute(out, GraphMlCustomAttributes.y, GraphMlAttributeValues.int_);
+		declareAttribute(out, GraphMlCustomAttributes.width, GraphMlAttributeValues.int_);
+		declareAttribute(out, GraphMlCustomAttributes.height, GraphMlAttributeValues.int_);
+	}
+		
+	protected void declareDecorations(XmlWriter out) throws IOException {
+		declareAttribute(out, GraphMlCustomAttributes.color, GraphMlAttributeValues.string);
+		declareAttribute(out, GraphMlCustomAttributes.type, GraphMlAttributeValues.string);
+		declareAttribute(out, GraphMlCustomAttributes.label, GraphMlAttributeValues.string);
+	}
+		
+	private String toAttributeId(String key) {
+		return GraphMlAttributeValues.attributeIdPrefix + key;
 	}
 
 }
@@ -21,6 +21,7 @@ import java.io.IOException;
 import org.eclipse.draw2d.Graphics;
 
 import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
 import com.drgarbage.visualgraphic.model.Connection;
 import com.drgarbage.visualgraphic.model.ControlFlowGraphDiagram;
 import com.drgarbage.visualgraphic.model.VertexBase;
@@ -44,6 +45,9 @@ public class GraphXMLExport extends AbstractExport {
 		buf.append(String.valueOf(con.getSource().getId()));
 		buf.append("\" target=\"");
 		buf.append(String.valueOf(con.getTarget().getId()));
+		if(con.getEdgeType() == IEdgeType.EDGE_TYPE_EXCEPTION){
+			buf.append("\" class=\"exception");
+		}
 		buf.append("\">\n");
 		
 		/* set label */
@@ -60,7 +64,9 @@ public class GraphXMLExport extends AbstractExport {
 				buf.append("dashed");
 			else
 				buf.append("unknown");
-			buf.append("\" linewidth=\"1.2\" colour=\"black\"/>\n");
+			buf.append("\" linewidth=\"1.2\" colour=\"");
+			buf.append(con.getEdgeType() == IEdgeType.EDGE_TYPE_EXCEPTION ? "red" : "black");
+			buf.append("\"/>\n");
 			//buf.append("       <fill fillstyle=\"none\"/>\n");
 			buf.append("    </style>\n");
 		}
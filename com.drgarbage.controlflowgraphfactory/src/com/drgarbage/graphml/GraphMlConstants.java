@@ -17,13 +17,11 @@
 package com.drgarbage.graphml;
 
 public interface GraphMlConstants {
-	public static final String GRAPH_ML_EXPORT_STUB = 
-		"<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
-		+"<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\""  
-		+" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
-		+" xsi:schemaLocation=\"http://graphml.graphdrawing.org/xmlns http://graphml.graphdrawing.org/xmlns/1.0/graphml.xsd\">"
-		+"<graph>"
-		+"</graph>"
-		+"</graphml>"
-		;
+	public static final String NAMESPACE = "http://graphml.graphdrawing.org/xmlns";
+	public static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+	public static final String SCHEMA_LOCATION = "http://graphml.graphdrawing.org/xmlns http://graphml.graphdrawing.org/xmlns/1.0/graphml.xsd";
+	
+	public static final String XMLNS = "xmlns";
+	public static final String XMLNS_XSI = "xmlns:xsi";
+	public static final String XSI_SCHEMA_LOCATION = "xsi:schemaLocation";
 }
@@ -35,4 +35,7 @@ public interface GraphMlCustomAttributes {
 	public static final String type_exit = "exit";
 	public static final String type_switch = "switch";
 	public static final String type_comment = "comment";
+	public static final String edgetype = "edgetype";
+	public static final String edgetype_normal = "normal";
+	public static final String edgetype_exception = "exception";
 }
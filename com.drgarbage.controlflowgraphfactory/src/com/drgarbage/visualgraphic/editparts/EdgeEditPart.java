@@ -19,6 +19,7 @@ package com.drgarbage.visualgraphic.editparts;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 
+import org.eclipse.draw2d.ColorConstants;
 import org.eclipse.draw2d.IFigure;
 import org.eclipse.draw2d.Label;
 import org.eclipse.draw2d.MidpointLocator;
@@ -34,6 +35,7 @@ import org.eclipse.gef.editpolicies.ConnectionEndpointEditPolicy;
 import org.eclipse.gef.requests.GroupRequest;
 import org.eclipse.swt.graphics.Color;
 
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
 import com.drgarbage.visualgraphic.commands.ConnectionDeleteCommand;
 import com.drgarbage.visualgraphic.model.Connection;
 import com.drgarbage.visualgraphic.model.IDirectEditLabelModel;
@@ -104,6 +106,7 @@ class EdgeEditPart extends AbstractConnectionEditPart implements PropertyChangeL
 		PolylineConnection connection = (PolylineConnection) super.createFigure();
 		connection.setTargetDecoration(new PolygonDecoration()); // arrow at target endpoint
 		connection.setLineStyle(getCastedModel().getLineStyle());  // line drawing style
+		connection.setForegroundColor(getConnectionColor());
 		
 		String labelText = "empty";
 		Object o = getModel();
@@ -159,7 +162,8 @@ class EdgeEditPart extends AbstractConnectionEditPart implements PropertyChangeL
 		if (Connection.LINESTYLE_PROP.equals(property)) {
 			((PolylineConnection) getFigure()).setLineStyle(getCastedModel().getLineStyle());
 		}
-		else if (Connection.COLOR_PROP.equals(property)) {
+		else if (Connection.COLOR_PROP.equals(property)
+				|| Connection.EDGE_TYPE_PROP.equals(property)) {
 			refreshColors();
 		}
 		else if(Connection.TEXT_LABEL_PROP.equals(property)){
@@ -179,8 +183,21 @@ class EdgeEditPart extends AbstractConnectionEditPart implements PropertyChangeL
 	 * Notifies parent container of changed color.
 	 */
 	protected void refreshColors() {
+		getFigure().setForegroundColor(getConnectionColor());
+	}
+
+	/**
+	 * Returns the color of the connection. Exception edges
+	 * are drawn in red unless a color has been set.
+	 * @return the color or <code>null</code> if the color
+	 *          of the parent figure is used
+	 */
+	private Color getConnectionColor() {
 		Color c = getCastedModel().getColor();
-		getFigure().setForegroundColor(c);
+		if (c == null && getCastedModel().getEdgeType() == IEdgeType.EDGE_TYPE_EXCEPTION) {
+			c = ColorConstants.red;
+		}
+		return c;
 	}
 
 }
\ No newline at end of file
@@ -20,6 +20,8 @@ import org.eclipse.swt.graphics.Color;
 import org.eclipse.ui.views.properties.ComboBoxPropertyDescriptor;
 import org.eclipse.ui.views.properties.IPropertyDescriptor;
 import org.eclipse.ui.views.properties.TextPropertyDescriptor;
+
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
 import org.eclipse.draw2d.Graphics;
 
 /**
@@ -54,6 +56,9 @@ public class Connection extends ModelElement implements IDirectEditLabelModel {
 	/** Property ID to use then the color of this connection is modified. */
 	public static final String COLOR_PROP = "Conection.Color";
 
+	/** Property ID to use then the edge type of this connection is modified. */
+	public static final String EDGE_TYPE_PROP = "Connection.EdgeType";
+
 	private static IPropertyDescriptor[] descriptors;
 	private static final String SOLID_STR = "Solid";
 	private static final String DASHED_STR = "Dashed";
@@ -73,6 +78,9 @@ public class Connection extends ModelElement implements IDirectEditLabelModel {
 	
 	/** Label of this connection */
 	private String label = "";
+
+	/** Type of the edge, one of the {@link IEdgeType} constants */
+	private int edgeType = IEdgeType.EDGE_TYPE_SIMPLE;
 	
 	static {
 //		descriptors[0] = new ComboBoxPropertyDescriptor(LINESTYLE_PROP, LINESTYLE_PROP, 
@@ -254,6 +262,24 @@ public class Connection extends ModelElement implements IDirectEditLabelModel {
 		return connectionColor;
 	}
 	
+	/**
+	 * Returns the type of the edge represented by this connection.
+	 * @return {@link IEdgeType#EDGE_TYPE_SIMPLE} or {@link IEdgeType#EDGE_TYPE_EXCEPTION}
+	 */
+	public int getEdgeType() {
+		return edgeType;
+	}
+
+	/**
+	 * Sets the type of the edge represented by this connection.
+	 * Exception edges are drawn and exported in a distinct style.
+	 * @param edgeType {@link IEdgeType#EDGE_TYPE_SIMPLE} or {@link IEdgeType#EDGE_TYPE_EXCEPTION}
+	 */
+	public void setEdgeType(int edgeType) {
+		this.edgeType = edgeType;
+		firePropertyChange(EDGE_TYPE_PROP, null, new Integer(edgeType));
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
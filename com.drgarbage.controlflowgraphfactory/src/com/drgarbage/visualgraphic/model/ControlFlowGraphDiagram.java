@@ -85,6 +85,24 @@ public class ControlFlowGraphDiagram extends ModelElement {
 		return uniqueIdCounter;
 	}
 
+	/**
+	 * Returns the current value of the id counter.
+	 * Used by the {@link GraphFileFormat}.
+	 * @return the last assigned id
+	 */
+	int getIdCounter() {
+		return uniqueIdCounter;
+	}
+
+	/**
+	 * Sets the id counter after the children have been
+	 * restored by the {@link GraphFileFormat}.
+	 * @param uniqueIdCounter the last assigned id
+	 */
+	void setIdCounter(int uniqueIdCounter) {
+		this.uniqueIdCounter = uniqueIdCounter;
+	}
+
 	/**
 	 * Return a List of vertices in this diagram. The returned List should not
 	 * be modified.
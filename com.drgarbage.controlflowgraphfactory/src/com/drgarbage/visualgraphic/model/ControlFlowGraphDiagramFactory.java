@@ -16,25 +16,42 @@
 
 package com.drgarbage.visualgraphic.model;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectOutputStream;
-import java.io.StringWriter;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.draw2d.Graphics;
 import org.eclipse.draw2d.geometry.Dimension;
 import org.eclipse.draw2d.geometry.Point;
@@ -52,8 +69,8 @@ import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.actions.WorkspaceModifyOperation;
 
 import com.drgarbage.algorithms.HierarchicalLayout;
-import com.drgarbage.asm.visitor.AllCodeVisitor;
 import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.ExceptionTableEntry;
 import com.drgarbage.bytecode.LineNumberTableEntry;
 import com.drgarbage.bytecode.instructions.AbstractInstruction;
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
@@ -62,6 +79,7 @@ import com.drgarbage.controlflowgraph.intf.IBasicBlock;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
 import com.drgarbage.controlflowgraph.intf.INodeListExt;
 import com.drgarbage.controlflowgraph.intf.INodeType;
@@ -75,6 +93,7 @@ import com.drgarbage.controlflowgraphfactory.export.GraphDOTExport;
 import com.drgarbage.controlflowgraphfactory.export.GraphMlExport;
 import com.drgarbage.controlflowgraphfactory.export.GraphXMLExport;
 import com.drgarbage.controlflowgraphfactory.preferences.ControlFlowFactoryPreferenceConstants;
+import com.drgarbage.core.AnalysisCache;
 import com.drgarbage.core.CoreMessages;
 import com.drgarbage.core.img.CoreImg;
 import com.drgarbage.graph.GraphConstants;
@@ -301,8 +320,48 @@ public class ControlFlowGraphDiagramFactory {
 		return createSourceCodeGraphDiagram(graph);
 	}
 
+	/**
+	 * Creates the diagram for a graph generated by the
+	 * {@link ControlFlowGraphGenerator}. The method does not require
+	 * a running workbench, if the plugin is not active the default
+	 * preferences are used.
+	 * 
+	 * @param graph the graph
+	 * @param graphType one of the GRAPH_TYPE constants of {@link GraphConstants}
+	 * @return diagram
+	 */
+	public static ControlFlowGraphDiagram buildDiagram(IDirectedGraphExt graph,
+			int graphType) {
+		switch (graphType) {
+		case GraphConstants.GRAPH_TYPE_BYTECODE_GRAPH:
+			return createControlFlowDiagram(graph);
+		case GraphConstants.GRAPH_TYPE_BASICBLOCK_GRAPH:
+			return createBasicBlockDiagram(graph);
+		case GraphConstants.GRAPH_TYPE_SOURCE_GRAPH:
+			return createSourceCodeGraphDiagram(graph);
+		default:
+			throw new IllegalStateException("Unexpected graph type '"+ graphType +"'");
+		}
+	}
+
 	/* private methods */
 
+	/**
+	 * Returns a boolean preference of the control flow graph factory
+	 * or <code>false</code> if the plugin is not running.
+	 * 
+	 * @param name the preference name
+	 * @return the value
+	 */
+	private static boolean getBooleanPreference(String name) {
+		ControlFlowFactoryPlugin plugin = ControlFlowFactoryPlugin.getDefault();
+		if (plugin == null) {
+			return false;
+		}
+
+		return plugin.getPreferenceStore().getBoolean(name);
+	}
+
 	/**
 	 * Creates graph diagram.
 	 * 
@@ -403,10 +462,7 @@ public class ControlFlowGraphDiagramFactory {
 	private static ControlFlowGraphDiagram createBasicBlockDiagram(
 			IDirectedGraphExt basicBlockGraph) {
 
-		boolean createBasicBlockLongDescr = ControlFlowFactoryPlugin
-		.getDefault()
-		.getPreferenceStore()
-		.getBoolean(ControlFlowFactoryPreferenceConstants.GENERATE_BASIC_BLOCK_LONG_DESCR);
+		boolean createBasicBlockLongDescr = getBooleanPreference(ControlFlowFactoryPreferenceConstants.GENERATE_BASIC_BLOCK_LONG_DESCR);
 
 		
 		/* build Diagram */
@@ -486,10 +542,7 @@ public class ControlFlowGraphDiagramFactory {
 	private static ControlFlowGraphDiagram createSourceCodeGraphDiagram(
 			IDirectedGraphExt graph) {
 		
-		boolean createSourcecodeBlockLongDescr = ControlFlowFactoryPlugin
-		.getDefault()
-		.getPreferenceStore()
-		.getBoolean(ControlFlowFactoryPreferenceConstants.GENERATE_SOURSECODE_BLOCK_LONG_DESCR);
+		boolean createSourcecodeBlockLongDescr = getBooleanPreference(ControlFlowFactoryPreferenceConstants.GENERATE_SOURSECODE_BLOCK_LONG_DESCR);
 		
 		int nodeWeigth = 78;
 		int nodeHeight = 36;
@@ -740,9 +793,12 @@ public class ControlFlowGraphDiagramFactory {
 				c.setLabel((String) edge.getData());
 			}
 
+			c.setEdgeType(edge.getEdgeType());
+
 			if (edge.getSource().getVertexType() == INodeType.NODE_TYPE_EXIT
 					|| edge.getSource().getVertexType() == INodeType.NODE_TYPE_START
-					|| edge.getTarget().getVertexType() == INodeType.NODE_TYPE_EXIT) {
+					|| edge.getTarget().getVertexType() == INodeType.NODE_TYPE_EXIT
+					|| edge.getEdgeType() == IEdgeType.EDGE_TYPE_EXCEPTION) {
 				c.setLineStyle(Graphics.LINE_DASH);
 			} else {
 				c.setLineStyle(Graphics.LINE_SOLID);
@@ -760,11 +816,7 @@ public class ControlFlowGraphDiagramFactory {
 		}
 
 		/* create additions */
-		boolean copyLineNumberTable = ControlFlowFactoryPlugin
-				.getDefault()
-				.getPreferenceStore()
-				.getBoolean(
-						ControlFlowFactoryPreferenceConstants.COPY_LINE_NUMBER_TABLE);
+		boolean copyLineNumberTable = getBooleanPreference(ControlFlowFactoryPreferenceConstants.COPY_LINE_NUMBER_TABLE);
 
 		if (copyLineNumberTable) {
 			Object o = attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
@@ -811,21 +863,20 @@ public class ControlFlowGraphDiagramFactory {
 	}
 
 	/**
-	 * Return the input stream for the given class. The result may be null, if
+	 * Return the class file of the given class. The result may be null, if
 	 * the class has not been compiled.
 	 * 
 	 * @param type
-	 * @return input stream
+	 * @return the bytes of the class file
 	 * @throws CoreException
 	 * @throws IOException
 	 */
-	private static InputStream getInputStream(IType type) throws CoreException,
+	private static byte[] getClassBytes(IType type) throws CoreException,
 			IOException {
 
 		if (type.isBinary()) {
 			IClassFile classFile = type.getClassFile();
-			byte[] bytes = classFile.getBytes();
-			return new ByteArrayInputStream(bytes);
+			return classFile.getBytes();
 		} else {
 			String[] classpath = JavaRuntime
 					.computeDefaultRuntimeClassPath(type.getJavaProject());
@@ -841,7 +892,7 @@ public class ControlFlowGraphDiagramFactory {
 
 			String name = type.getTypeQualifiedName();
 
-			return JavaLangUtils.findResource(classpath, packageName, name);
+			return JavaLangUtils.findClassBytes(classpath, packageName, name);
 		}
 	}
 
@@ -864,9 +915,9 @@ public class ControlFlowGraphDiagramFactory {
 			boolean createMonitor)
 			throws CoreException, InvocationTargetException,
 			InterruptedException, IOException {
-		final InputStream in = getInputStream(type);
+		final byte[] bytes = getClassBytes(type);
 
-		if (in == null) {
+		if (bytes == null) {
 			String msg = MessageFormat.format(
 					ControlFlowFactoryMessages.ClassFileInputNotCreated,
 					new Object[] { type.getElementName() });
@@ -901,7 +952,7 @@ public class ControlFlowGraphDiagramFactory {
 									ticks);
 					try {
 						generateControlFlowGraphs(monitor, folder,
-								getElementName(type), in, spec);
+								getElementName(type), bytes, spec);
 					} catch (IOException e) {
 						ControlFlowFactoryPlugin.getDefault().getLog().log(
 								new Status(IStatus.ERROR,
@@ -930,7 +981,7 @@ public class ControlFlowGraphDiagramFactory {
 		} else {
 			try {
 				res = generateControlFlowGraphs(null, folder,
-						getElementName(type), in, spec);
+						getElementName(type), bytes, spec);
 			} catch (ControlFlowGraphException e) {
 				ControlFlowFactoryPlugin.getDefault().getLog().log(
 						new Status(IStatus.ERROR,
@@ -963,213 +1014,268 @@ public class ControlFlowGraphDiagramFactory {
 	}
 
 	/**
-	 * Starts process.
+	 * Generates graphs for the given types. The class files are parsed and
+	 * the graphs are built and exported by the shared worker pool, the files
+	 * are written in the calling thread in the order of the types and methods,
+	 * so that the overwrite prompts appear in the same order as before.
+	 * All files are written in one workspace operation. 
 	 * 
-	 * @param monitor
-	 * @param folder
-	 * @param elementName
-	 * @param in
-	 * @param graphType
-	 * @param exportDecorations 
-	 * @param exportGeometry 
-	 * @param exportComments 
-	 * @return result: OK, YES_TO_ALL, NO_TO_ALL, ERROR
-	 * @throws IOException
-	 * @throws ControlFlowGraphException
+	 * @param monitor the progress monitor, one tick per type
+	 * @param folders the target folders of the types
+	 * @param types the types
+	 * @param spec the graph specification
+	 * @return Result: OK, YES_TO_ALL, NO_TO_ALL, ERROR, CANCELED
+	 * @throws CoreException
 	 */
-	private static Result generateControlFlowGraphs(IProgressMonitor monitor,
-			final IFolder folder, final String elementName,
-			final InputStream in,
-			IGraphSpecification spec) throws IOException, ControlFlowGraphException {
-
-		boolean yes_To_All = false;
-		if (spec.isOverwriteAll()) {
-			yes_To_All = true;
-		}
-
-		AllCodeVisitor codeVisitor = ControlFlowGraphGenerator
-				.getClassFileVisitor(in);
-		for (Map<String, Object> attr : codeVisitor.getInstructionLists()) {
-
-			if (monitor != null && monitor.isCanceled()) {
-				return Result.CANCELED;
-			}
-
-			String name = (String) attr.get(ByteCodeConstants.NAME);
-			String signature = (String) attr.get(ByteCodeConstants.DESCRIPTOR);
-
-			if (monitor != null)
-				monitor.subTask(name);
-
-			List<AbstractInstruction> instructions = (List<AbstractInstruction>) attr.get(ByteCodeConstants.CODE);
-
-			/* get preferences */
-			IPreferenceStore store = ControlFlowFactoryPlugin.getDefault()
-					.getPreferenceStore();
-			boolean createStartNode = store
-					.getBoolean(ControlFlowFactoryPreferenceConstants.GENERATE_START_NODE);
-			boolean createExitNode = store
-					.getBoolean(ControlFlowFactoryPreferenceConstants.GENERATE_EXIT_NODE);
-			boolean createBackEdge = store
-					.getBoolean(ControlFlowFactoryPreferenceConstants.GENERATE_BACK_EDGE);
+	public static Result buildAndSaveControlFlowDiagrams(
+			final IProgressMonitor monitor, final IFolder[] folders,
+			final IType[] types, final IGraphSpecification spec)
+			throws CoreException {
+
+		final GraphOptions options = new GraphOptions();
+		BatchOperation op = new BatchOperation() {
+
+			/* (non-Javadoc)
+			 * @see com.drgarbage.visualgraphic.model.ControlFlowGraphDiagramFactory.BatchOperation#execute()
+			 */
+			Result execute() throws CoreException {
+				boolean yes_To_All = spec.isOverwriteAll();
+				boolean error = false;
+
+				/* submit the next classes while the current one is written */
+				LinkedList<Future<List<Future<GraphFile>>>> pending = new LinkedList<Future<List<Future<GraphFile>>>>();
+				int next = 0;
+				for (int i = 0; i < types.length; i++) {
+					while (next < types.length && next < i + CLASS_WINDOW) {
+						pending.add(submitClass(folders[next], types[next], spec, options));
+						next++;
+					}
 
-			IDirectedGraphExt cfg = null;
-			ControlFlowGraphDiagram diagram = null;
-			LineNumberTableEntry[] lineNumberTable = null;
-			Object o;
-			switch (spec.getGraphType()) {
-			case GraphConstants.GRAPH_TYPE_BYTECODE_GRAPH:
+					Future<List<Future<GraphFile>>> graphs = pending.removeFirst();
+					if (monitor != null && monitor.isCanceled()) {
+						cancel(graphs);
+						cancelAll(pending);
+						return Result.CANCELED;
+					}
 
-				o = attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+					if (graphs == null) {
+						/* the input stream has not been created, the error is already logged */
+						error = true;
+						if (monitor != null) {
+							monitor.worked(1);
+						}
+						continue;
+					}
 
-				if (o != null) {
-					lineNumberTable = (LineNumberTableEntry[]) o;
-				}
+					IProgressMonitor sub = null;
+					if (monitor != null) {
+						monitor.subTask(types[i].getElementName());
+						sub = new SubProgressMonitor(monitor, 1);
+					}
 
-				cfg = ControlFlowGraphGenerator.generateControlFlowGraph(
-						instructions, lineNumberTable, createStartNode,
-						createExitNode, createBackEdge);
+					Result r;
+					try {
+						r = writeGraphs(sub, graphs, yes_To_All);
+					} catch (IOException e) {
+						ControlFlowFactoryPlugin.getDefault().getLog().log(
+								new Status(IStatus.ERROR,
+										ControlFlowFactoryPlugin.PLUGIN_ID, e
+												.getMessage(), e));
+						r = Result.ERROR;
+					} catch (ControlFlowGraphException e) {
+						ControlFlowFactoryPlugin.getDefault().getLog().log(
+								new Status(IStatus.ERROR,
+										ControlFlowFactoryPlugin.PLUGIN_ID, e
+												.getMessage(), e));
+						r = Result.ERROR;
+					} finally {
+						if (sub != null) {
+							sub.done();
+						}
+					}
 
-				if (cfg == null) {
-					// Messages.error(ControlFlowFactoryMessages.DiagramIsNullMessage);
-					// return Result.ERROR;
-					throw new ControlFlowGraphException(
-							ControlFlowFactoryMessages.DiagramIsNullMessage);
+					if (r == Result.NO_TO_ALL || r == Result.CANCELED) {
+						cancelAll(pending);
+						return r;
+					} else if (r == Result.YES_TO_ALL) {
+						yes_To_All = true;
+					} else if (r == Result.ERROR) {
+						error = true;
+					}
 				}
 
-				diagram = createControlFlowDiagram(cfg);
-				break;
-			case GraphConstants.GRAPH_TYPE_BASICBLOCK_GRAPH:
-				o = attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
-
-				if (o != null) {
-					lineNumberTable = (LineNumberTableEntry[]) o;
+				if (error) {
+					return Result.ERROR;
 				}
 
-				cfg = ControlFlowGraphGenerator.generateBasicBlockGraph(
-						instructions, lineNumberTable, createStartNode,
-						createExitNode, createBackEdge);
-
-				if (cfg == null) {
-					// Messages.error(ControlFlowFactoryMessages.DiagramIsNullMessage);
-					// return Result.ERROR;
-					throw new ControlFlowGraphException(
-							ControlFlowFactoryMessages.DiagramIsNullMessage);
+				if (yes_To_All) {
+					return Result.YES_TO_ALL;
 				}
 
-				diagram = createBasicBlockDiagram(cfg);
-				break;
-			case GraphConstants.GRAPH_TYPE_SOURCE_GRAPH:
-
-				o = attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+				return Result.OK;
+			}
+		};
+
+		try {
+			return runBatch(op);
+		} catch (IOException e) {
+			/* never thrown, the errors are handled per type */
+			throw new IllegalStateException(e);
+		} catch (ControlFlowGraphException e) {
+			/* never thrown, the errors are handled per type */
+			throw new IllegalStateException(e);
+		}
+	}
 
-				if (o == null) {
-					// Messages.error(ControlFlowFactoryMessages.ERROR_LineNumberTable_is_Missing
-					// + name + signature);
-					// return Result.ERROR;
-					throw new ControlFlowGraphException(
-							ControlFlowFactoryMessages.ERROR_LineNumberTable_is_Missing
-									+ name + signature);
-				}
+	/**
+	 * Creates the input stream of the type and submits the class task
+	 * to the worker pool. Errors are logged.
+	 * 
+	 * @param folder
+	 * @param type
+	 * @param spec
+	 * @param options
+	 * @return the future of the class task or <code>null</code> if the
+	 *         input stream could not be created
+	 */
+	private static Future<List<Future<GraphFile>>> submitClass(IFolder folder,
+			IType type, IGraphSpecification spec, GraphOptions options) {
+		try {
+			byte[] bytes = getClassBytes(type);
+			if (bytes == null) {
+				String msg = MessageFormat.format(
+						ControlFlowFactoryMessages.ClassFileInputNotCreated,
+						new Object[] { type.getElementName() });
+				ControlFlowFactoryPlugin.getDefault().getLog().log(
+						new Status(IStatus.ERROR,
+								ControlFlowFactoryPlugin.PLUGIN_ID, msg));
+				return null;
+			}
 
-				lineNumberTable = (LineNumberTableEntry[]) o;
-				cfg = ControlFlowGraphGenerator.generateSourceCodeGraph(
-						instructions, lineNumberTable, createStartNode,
-						createExitNode, createBackEdge);
+			return getExecutor().submit(
+					new ClassGraphTask(folder, getElementName(type), bytes, spec,
+							options));
+		} catch (CoreException e) {
+			ControlFlowFactoryPlugin.getDefault().getLog().log(
+					new Status(IStatus.ERROR,
+							ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage(), e));
+		} catch (IOException e) {
+			ControlFlowFactoryPlugin.getDefault().getLog().log(
+					new Status(IStatus.ERROR,
+							ControlFlowFactoryPlugin.PLUGIN_ID, e.getMessage(), e));
+		}
 
-				if (cfg == null) {
-					// Messages.error(ControlFlowFactoryMessages.DiagramIsNullMessage);
-					// return Result.ERROR;
-					throw new ControlFlowGraphException(
-							ControlFlowFactoryMessages.DiagramIsNullMessage);
-				}
+		return null;
+	}
 
-				diagram = createSourceCodeGraphDiagram(cfg);
-				break;
-			default:
-				throw new IllegalStateException("Unexpected graph type '"+ spec.getGraphType() +"'");
+	/**
+	 * Starts process.
+	 * 
+	 * @param monitor
+	 * @param folder
+	 * @param elementName
+	 * @param bytes the class file
+	 * @param spec 
+	 * @return result: OK, YES_TO_ALL, NO_TO_ALL, ERROR
+	 * @throws IOException
+	 * @throws ControlFlowGraphException
+	 * @throws CoreException 
+	 */
+	private static Result generateControlFlowGraphs(final IProgressMonitor monitor,
+			final IFolder folder, final String elementName,
+			final byte[] bytes,
+			final IGraphSpecification spec) throws IOException,
+			ControlFlowGraphException, CoreException {
+
+		final Future<List<Future<GraphFile>>> graphs = getExecutor().submit(
+				new ClassGraphTask(folder, elementName, bytes, spec,
+						new GraphOptions()));
+
+		return runBatch(new BatchOperation() {
+
+			/* (non-Javadoc)
+			 * @see com.drgarbage.visualgraphic.model.ControlFlowGraphDiagramFactory.BatchOperation#execute()
+			 */
+			Result execute() throws IOException, ControlFlowGraphException,
+					CoreException {
+				return writeGraphs(monitor, graphs, spec.isOverwriteAll());
 			}
+		});
+	}
 
-			if (diagram == null) {
-				// Messages.error(ControlFlowFactoryMessages.DiagramIsNullMessage);
-				// return Result.ERROR;
-				throw new ControlFlowGraphException(
-						ControlFlowFactoryMessages.DiagramIsNullMessage);
-			}
+	/**
+	 * Writes the graphs of one class in the order of the methods.
+	 * The remaining tasks are canceled if the process is canceled
+	 * or a task has failed.
+	 * 
+	 * @param monitor
+	 * @param graphs the future of the class task
+	 * @param yes_To_All <code>true</code> if existing files are overwritten
+	 * @return result: OK, YES_TO_ALL, NO_TO_ALL, ERROR, CANCELED
+	 * @throws IOException
+	 * @throws ControlFlowGraphException
+	 */
+	private static Result writeGraphs(IProgressMonitor monitor,
+			Future<List<Future<GraphFile>>> graphs, boolean yes_To_All)
+			throws IOException, ControlFlowGraphException {
+
+		List<Future<GraphFile>> files;
+		try {
+			files = getResult(graphs);
+		} catch (InterruptedException e) {
+			cancel(graphs);
+			Thread.currentThread().interrupt();
+			return Result.CANCELED;
+		}
 
-			if (name.equals(ByteCodeConstants.INIT)) {
-				name = "init"; //$NON-NLS-1$
+		for (int i = 0; i < files.size(); i++) {
+			if (monitor != null && monitor.isCanceled()) {
+				cancel(files, i);
+				return Result.CANCELED;
 			}
 
-			if (name.equals(ByteCodeConstants.CLINIT)) {
-				name = "clinit"; //$NON-NLS-1$
+			GraphFile graphFile;
+			try {
+				graphFile = getResult(files.get(i));
+			} catch (InterruptedException e) {
+				cancel(files, i);
+				Thread.currentThread().interrupt();
+				return Result.CANCELED;
+			} catch (IOException e) {
+				cancel(files, i);
+				throw e;
+			} catch (ControlFlowGraphException e) {
+				cancel(files, i);
+				throw e;
+			} catch (RuntimeException e) {
+				cancel(files, i);
+				throw e;
 			}
 
-			/* set name property */
-			diagram.setPropertyValue(ByteCodeConstants.NAME, elementName + "."
-					+ name + signature);
-
-			String fileName = elementName + "." + name
-					+ signature.replace('/', '.') + "."
-					+ GraphConstants.graphTypeSuffixes[spec.getGraphType()];
-			IPath pathToFile = folder.getFullPath().append(fileName)
-					.addFileExtension(FileExtensions.GRAPH);
+			if (monitor != null) {
+				monitor.subTask(graphFile.name);
+			}
 
 			try {
 				Result r;
-				
-				switch (spec.getExportFormat()) {
-				case GraphConstants.EXPORT_FORMAT_DRGARBAGE_GRAPH:
-					final IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(pathToFile);
-					r = saveDiagram(file, diagram, monitor, yes_To_All);
-					break;
-				default:
-					
-					AbstractExport2 exporter = null;
-					
-					switch (spec.getExportFormat()) {
-					case GraphConstants.EXPORT_FORMAT_DOT:
-						exporter = new GraphDOTExport();
-						pathToFile = pathToFile.addFileExtension(FileExtensions.DOT);
-						break;
-					case GraphConstants.EXPORT_FORMAT_GRAPHXML:
-						exporter = new GraphXMLExport();
-						pathToFile = pathToFile.addFileExtension(FileExtensions.XML);
-						break;
-					case GraphConstants.EXPORT_FORMAT_GRAPHML:
-						exporter = new GraphMlExport();
-						pathToFile = pathToFile.addFileExtension(FileExtensions.GRAPHML);
-						break;
-					default:
-						throw new IllegalStateException("Unexpected export format.");
-					}
-					
-					
-					exporter.setGraphSpecification(spec);
-					StringWriter sb = new StringWriter();
-					try {
-						exporter.write(diagram, sb);
-					} catch (ExportException e) {
-						/*
-						 * This will never happen as StringWriter.append(*)
-						 * does not throw IOException
-						 */
-						throw new RuntimeException(e);
-					}
-
-					final IFile file2 = ResourcesPlugin.getWorkspace().getRoot()
-							.getFile(pathToFile);
-					r = saveContentToFile(file2, sb.toString(), monitor,
+				IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(
+						graphFile.path);
+				if (graphFile.exporter == null) {
+					r = saveDiagram(file, graphFile, monitor, yes_To_All);
+				} else {
+					r = saveContentToFile(file, graphFile, monitor,
 							yes_To_All);
 				}
-				
+
 				if (r == Result.NO) {
 					continue;
 				} else if (r == Result.NO_TO_ALL) {
+					cancel(files, i + 1);
 					return Result.NO_TO_ALL;
 				} else if (r == Result.YES_TO_ALL) {
 					yes_To_All = true;
-				} else if( r == Result.CANCELED){
+				} else if (r == Result.CANCELED) {
+					cancel(files, i + 1);
 					return Result.CANCELED;
 				}
 
@@ -1180,9 +1286,9 @@ public class ControlFlowGraphDiagramFactory {
 										.getMessage(), e));
 				// Messages.error(e.getMessage() +
 				// CoreMessages.ExceptionAdditionalMessage);
+				cancel(files, i + 1);
 				return Result.ERROR;
 			}
-
 		}
 
 		if (yes_To_All) {
@@ -1192,16 +1298,185 @@ public class ControlFlowGraphDiagramFactory {
 		return Result.OK;
 	}
 
-	private static Result saveDiagram(IFile file,
-			ControlFlowGraphDiagram diagram, IProgressMonitor monitor,
-			boolean yes_To_All) throws IOException, CoreException {
+	/**
+	 * Builds the graph of a method and returns the diagram.
+	 * 
+	 * @param attr the method attributes
+	 * @param graphType the graph type
+	 * @param options the generator options
+	 * @return diagram
+	 * @throws ControlFlowGraphException
+	 */
+	private static ControlFlowGraphDiagram createDiagram(
+			Map<String, Object> attr, int graphType, GraphOptions options)
+			throws ControlFlowGraphException {
+
+		String name = (String) attr.get(ByteCodeConstants.NAME);
+		String signature = (String) attr.get(ByteCodeConstants.DESCRIPTOR);
+
+		@SuppressWarnings("unchecked")
+		List<AbstractInstruction> instructions = (List<AbstractInstruction>) attr.get(ByteCodeConstants.CODE);
+
+		IDirectedGraphExt cfg = null;
+		ControlFlowGraphDiagram diagram = null;
+		LineNumberTableEntry[] lineNumberTable = null;
+		Object o;
+		switch (graphType) {
+		case GraphConstants.GRAPH_TYPE_BYTECODE_GRAPH:
+
+			o = attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+
+			if (o != null) {
+				lineNumberTable = (LineNumberTableEntry[]) o;
+			}
+
+			cfg = ControlFlowGraphGenerator.generateControlFlowGraph(
+					instructions, lineNumberTable, options.createStartNode,
+					options.createExitNode, options.createBackEdge);
+
+			if (cfg == null) {
+				throw new ControlFlowGraphException(
+						ControlFlowFactoryMessages.DiagramIsNullMessage);
+			}
+
+			diagram = createControlFlowDiagram(cfg);
+			break;
+		case GraphConstants.GRAPH_TYPE_BASICBLOCK_GRAPH:
+			o = attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+
+			if (o != null) {
+				lineNumberTable = (LineNumberTableEntry[]) o;
+			}
+
+			cfg = ControlFlowGraphGenerator.generateBasicBlockGraph(
+					instructions, (ExceptionTableEntry[]) attr.get(ByteCodeConstants.EXCEPTION_TABLE),
+					lineNumberTable, options.createStartNode,
+					options.createExitNode, options.createBackEdge);
+
+			if (cfg == null) {
+				throw new ControlFlowGraphException(
+						ControlFlowFactoryMessages.DiagramIsNullMessage);
+			}
+
+			diagram = createBasicBlockDiagram(cfg);
+			break;
+		case GraphConstants.GRAPH_TYPE_SOURCE_GRAPH:
+
+			o = attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+
+			if (o == null) {
+				throw new ControlFlowGraphException(
+						ControlFlowFactoryMessages.ERROR_LineNumberTable_is_Missing
+								+ name + signature);
+			}
+
+			lineNumberTable = (LineNumberTableEntry[]) o;
+			cfg = ControlFlowGraphGenerator.generateSourceCodeGraph(
+					instructions, lineNumberTable, options.createStartNode,
+					options.createExitNode, options.createBackEdge);
 
-		/* save graph */
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
+			if (cfg == null) {
+				throw new ControlFlowGraphException(
+						ControlFlowFactoryMessages.DiagramIsNullMessage);
+			}
 
-		ObjectOutputStream oos = new ObjectOutputStream(out);
-		oos.writeObject(diagram);
-		oos.close();
+			diagram = createSourceCodeGraphDiagram(cfg);
+			break;
+		default:
+			throw new IllegalStateException("Unexpected graph type '"+ graphType +"'");
+		}
+
+		if (diagram == null) {
+			throw new ControlFlowGraphException(
+					ControlFlowFactoryMessages.DiagramIsNullMessage);
+		}
+
+		return diagram;
+	}
+
+	/**
+	 * Builds the graph of a method and selects the exporter. The
+	 * content is written later by the calling thread directly
+	 * into the file.
+	 * 
+	 * @param folder
+	 * @param elementName
+	 * @param attr the method attributes
+	 * @param spec
+	 * @param options
+	 * @return the graph file
+	 * @throws IOException
+	 * @throws ControlFlowGraphException
+	 */
+	private static GraphFile createGraphFile(IFolder folder,
+			String elementName, Map<String, Object> attr,
+			IGraphSpecification spec, GraphOptions options)
+			throws IOException, ControlFlowGraphException {
+
+		String name = (String) attr.get(ByteCodeConstants.NAME);
+		String signature = (String) attr.get(ByteCodeConstants.DESCRIPTOR);
+
+		ControlFlowGraphDiagram diagram = createDiagram(attr,
+				spec.getGraphType(), options);
+
+		GraphFile graphFile = new GraphFile();
+		graphFile.name = name;
+
+		if (name.equals(ByteCodeConstants.INIT)) {
+			name = "init"; //$NON-NLS-1$
+		}
+
+		if (name.equals(ByteCodeConstants.CLINIT)) {
+			name = "clinit"; //$NON-NLS-1$
+		}
+
+		/* set name property */
+		diagram.setPropertyValue(ByteCodeConstants.NAME, elementName + "."
+				+ name + signature);
+
+		String fileName = elementName + "." + name
+				+ signature.replace('/', '.') + "."
+				+ GraphConstants.graphTypeSuffixes[spec.getGraphType()];
+		IPath pathToFile = folder.getFullPath().append(fileName)
+				.addFileExtension(FileExtensions.GRAPH);
+
+		switch (spec.getExportFormat()) {
+		case GraphConstants.EXPORT_FORMAT_DRGARBAGE_GRAPH:
+			/* save graph */
+			break;
+		default:
+
+			AbstractExport2 exporter = null;
+
+			switch (spec.getExportFormat()) {
+			case GraphConstants.EXPORT_FORMAT_DOT:
+				exporter = new GraphDOTExport();
+				pathToFile = pathToFile.addFileExtension(FileExtensions.DOT);
+				break;
+			case GraphConstants.EXPORT_FORMAT_GRAPHXML:
+				exporter = new GraphXMLExport();
+				pathToFile = pathToFile.addFileExtension(FileExtensions.XML);
+				break;
+			case GraphConstants.EXPORT_FORMAT_GRAPHML:
+				exporter = new GraphMlExport();
+				pathToFile = pathToFile.addFileExtension(FileExtensions.GRAPHML);
+				break;
+			default:
+				throw new IllegalStateException("Unexpected export format.");
+			}
+
+			exporter.setGraphSpecification(spec);
+			graphFile.exporter = exporter;
+		}
+
+		graphFile.diagram = diagram;
+		graphFile.path = pathToFile;
+		return graphFile;
+	}
+
+	private static Result saveDiagram(IFile file,
+			GraphFile graphFile, IProgressMonitor monitor,
+			boolean yes_To_All) throws IOException, CoreException {
 
 		/* delete if exists */
 		if (file.exists()) {
@@ -1231,10 +1506,7 @@ public class ControlFlowGraphDiagramFactory {
 		}
 		
 		try{
-			file.create(new ByteArrayInputStream(out.toByteArray()), /* contents */
-					true, /* keep saving, even if IFile is out of sync with the Workspace */
-					monitor); /* progress monitor */
-
+			writeGraphFile(file, graphFile.diagram, graphFile.exporter, monitor);
 		}
 		catch(CoreException ce){			
 			ControlFlowFactoryPlugin.getDefault().getLog().log(
@@ -1264,7 +1536,7 @@ public class ControlFlowGraphDiagramFactory {
 		return Result.OK;
 	}
 
-	private static Result saveContentToFile(IFile file, String content,
+	private static Result saveContentToFile(IFile file, GraphFile graphFile,
 			IProgressMonitor monitor, boolean yes_To_All) throws IOException,
 			CoreException {
 
@@ -1295,9 +1567,7 @@ public class ControlFlowGraphDiagramFactory {
 
 		}
 
-		file.create(new ByteArrayInputStream(content.getBytes()), /* contents */
-		true, /* keep saving, even if IFile is out of sync with the Workspace */
-		monitor); /* progress monitor */
+		writeGraphFile(file, graphFile.diagram, graphFile.exporter, monitor);
 
 		if (monitor != null)
 			monitor.worked(1);
@@ -1310,6 +1580,424 @@ public class ControlFlowGraphDiagramFactory {
 
 	}
 
+	/**
+	 * Creates the file and writes the diagram in one pass. The content 
+	 * is exported by a worker thread into a pipe, the file is created 
+	 * from the other end of the pipe while the export is running.
+	 * 
+	 * @param file the resource, must not exist
+	 * @param diagram the diagram
+	 * @param exporter the exporter or <code>null</code> for the graph file format
+	 * @param monitor
+	 * @throws IOException
+	 * @throws CoreException
+	 */
+	public static void writeGraphFile(IFile file,
+			ControlFlowGraphDiagram diagram, AbstractExport2 exporter,
+			IProgressMonitor monitor) throws IOException, CoreException {
+
+		ExportInputStream in = new ExportInputStream(diagram, exporter);
+		try {
+			file.create(in, /* contents */
+					true, /* keep saving, even if IFile is out of sync with the Workspace */
+					monitor); /* progress monitor */
+		} catch (CoreException e) {
+			/* report the failure of the export rather than the write error */
+			in.checkExport();
+			throw e;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the diagram in the graph file format or
+	 * with the given exporter.
+	 * 
+	 * @param diagram the diagram
+	 * @param exporter the exporter or <code>null</code>
+	 * @param out the output stream, not closed
+	 * @throws IOException
+	 */
+	private static void writeContent(ControlFlowGraphDiagram diagram,
+			AbstractExport2 exporter, OutputStream out) throws IOException {
+
+		if (exporter == null) {
+			GraphFileFormat.writeDiagram(diagram, out);
+			return;
+		}
+
+		Writer w = new BufferedWriter(new OutputStreamWriter(out));
+		try {
+			exporter.write(diagram, w);
+			w.flush();
+		} catch (ExportException e) {
+			IOException ioe = new IOException(e.getMessage());
+			ioe.initCause(e);
+			throw ioe;
+		}
+	}
+
+	/* parallel graph generation */
+
+	/**
+	 * Maximal number of classes parsed ahead of the class being written.
+	 */
+	private static final int CLASS_WINDOW = 2 * Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The shared worker pool, created on first use.
+	 */
+	private static ExecutorService executor;
+
+	/**
+	 * Returns the shared worker pool. The pool has one daemon thread
+	 * per processor, idle threads are terminated.
+	 * 
+	 * @return the executor
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			int threads = Runtime.getRuntime().availableProcessors();
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+					30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						private int count = 0;
+
+						public synchronized Thread newThread(Runnable r) {
+							Thread t = new Thread(r,
+									"Control Flow Graph Generator " + (++count)); //$NON-NLS-1$
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+
+		return executor;
+	}
+
+	/**
+	 * Returns the result of the task. The exceptions thrown by the task
+	 * are rethrown unwrapped.
+	 * 
+	 * @param future
+	 * @return result
+	 * @throws IOException
+	 * @throws ControlFlowGraphException
+	 * @throws InterruptedException
+	 */
+	private static <T> T getResult(Future<T> future) throws IOException,
+			ControlFlowGraphException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable t = e.getCause();
+			if (t instanceof IOException) {
+				throw (IOException) t;
+			} else if (t instanceof ControlFlowGraphException) {
+				throw (ControlFlowGraphException) t;
+			} else if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			} else if (t instanceof Error) {
+				throw (Error) t;
+			}
+
+			throw new RuntimeException(t);
+		}
+	}
+
+	/**
+	 * Cancels the method tasks starting from the given index.
+	 * 
+	 * @param files
+	 * @param from
+	 */
+	private static void cancel(List<Future<GraphFile>> files, int from) {
+		for (int i = from; i < files.size(); i++) {
+			files.get(i).cancel(false);
+		}
+	}
+
+	/**
+	 * Cancels the class task and the method tasks already submitted by it.
+	 * 
+	 * @param graphs the future of the class task or <code>null</code>
+	 */
+	private static void cancel(Future<List<Future<GraphFile>>> graphs) {
+		if (graphs == null) {
+			return;
+		}
+
+		if (graphs.cancel(false)) {
+			return;
+		}
+
+		try {
+			cancel(graphs.get(), 0);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			/* nothing to cancel */
+		} catch (CancellationException e) {
+			/* nothing to cancel */
+		}
+	}
+
+	/**
+	 * Cancels all pending class tasks.
+	 * 
+	 * @param pending
+	 */
+	private static void cancelAll(List<Future<List<Future<GraphFile>>>> pending) {
+		for (Future<List<Future<GraphFile>>> graphs : pending) {
+			cancel(graphs);
+		}
+	}
+
+	/**
+	 * Runs the operation as one workspace operation. The resource change
+	 * notifications are sent once at the end.
+	 * 
+	 * @param op
+	 * @return result of the operation
+	 * @throws IOException
+	 * @throws ControlFlowGraphException
+	 * @throws CoreException
+	 */
+	private static Result runBatch(BatchOperation op) throws IOException,
+			ControlFlowGraphException, CoreException {
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.run(op, workspace.getRoot(), IWorkspace.AVOID_UPDATE, null);
+
+		if (op.ioException != null) {
+			throw op.ioException;
+		}
+
+		if (op.graphException != null) {
+			throw op.graphException;
+		}
+
+		return op.result;
+	}
+
+	/**
+	 * Workspace operation writing the graph files.
+	 */
+	private static abstract class BatchOperation implements IWorkspaceRunnable {
+		Result result;
+		IOException ioException;
+		ControlFlowGraphException graphException;
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.core.resources.IWorkspaceRunnable#run(org.eclipse.core.runtime.IProgressMonitor)
+		 */
+		public void run(IProgressMonitor monitor) throws CoreException {
+			try {
+				result = execute();
+			} catch (IOException e) {
+				ioException = e;
+			} catch (ControlFlowGraphException e) {
+				graphException = e;
+			}
+		}
+
+		/**
+		 * Executes the operation.
+		 * 
+		 * @return result: OK, YES_TO_ALL, NO_TO_ALL, ERROR, CANCELED
+		 * @throws IOException
+		 * @throws ControlFlowGraphException
+		 * @throws CoreException
+		 */
+		abstract Result execute() throws IOException,
+				ControlFlowGraphException, CoreException;
+	}
+
+	/**
+	 * Generator options read once from the preference store.
+	 */
+	private static class GraphOptions {
+		final boolean createStartNode;
+		final boolean createExitNode;
+		final boolean createBackEdge;
+
+		GraphOptions() {
+			IPreferenceStore store = ControlFlowFactoryPlugin.getDefault()
+					.getPreferenceStore();
+			createStartNode = store
+					.getBoolean(ControlFlowFactoryPreferenceConstants.GENERATE_START_NODE);
+			createExitNode = store
+					.getBoolean(ControlFlowFactoryPreferenceConstants.GENERATE_EXIT_NODE);
+			createBackEdge = store
+					.getBoolean(ControlFlowFactoryPreferenceConstants.GENERATE_BACK_EDGE);
+		}
+	}
+
+	/**
+	 * Graph file prepared by a worker thread.
+	 */
+	private static class GraphFile {
+		/** method name shown in the progress monitor */
+		String name;
+		IPath path;
+		ControlFlowGraphDiagram diagram;
+		/** <code>null</code> for the graph file format */
+		AbstractExport2 exporter;
+	}
+
+	/**
+	 * Input stream of an exported diagram. The export is submitted
+	 * to the worker pool and writes into a pipe read by this stream.
+	 * A failure of the export is thrown at the end of the stream,
+	 * closing the stream cancels the export.
+	 */
+	private static class ExportInputStream extends InputStream {
+
+		/**
+		 * Size of the pipe buffer.
+		 */
+		private static final int PIPE_SIZE = 64 * 1024;
+
+		private final PipedInputStream in;
+		private final Future<Object> export;
+
+		ExportInputStream(final ControlFlowGraphDiagram diagram,
+				final AbstractExport2 exporter) throws IOException {
+			in = new PipedInputStream(PIPE_SIZE);
+			final PipedOutputStream out = new PipedOutputStream(in);
+			export = getExecutor().submit(new Callable<Object>() {
+
+				/* (non-Javadoc)
+				 * @see java.util.concurrent.Callable#call()
+				 */
+				public Object call() throws IOException {
+					try {
+						writeContent(diagram, exporter, out);
+					}
+					finally {
+						out.close();
+					}
+					return null;
+				}
+			});
+		}
+
+		/**
+		 * Rethrows the exception thrown by the export, if the
+		 * export has been finished.
+		 * @throws IOException
+		 */
+		void checkExport() throws IOException {
+			if (export.isDone() && !export.isCancelled()) {
+				waitForExport();
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#read()
+		 */
+		public int read() throws IOException {
+			int b = in.read();
+			if (b < 0) {
+				waitForExport();
+			}
+			return b;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#read(byte[], int, int)
+		 */
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = in.read(b, off, len);
+			if (n < 0) {
+				waitForExport();
+			}
+			return n;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#available()
+		 */
+		public int available() throws IOException {
+			return in.available();
+		}
+
+		/**
+		 * Waits for the end of the export at the end of the stream,
+		 * a truncated content is never returned as complete.
+		 * @throws IOException
+		 */
+		private void waitForExport() throws IOException {
+			try {
+				getResult(export);
+			} catch (ControlFlowGraphException e) {
+				IOException ioe = new IOException(e.getMessage());
+				ioe.initCause(e);
+				throw ioe;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#close()
+		 */
+		public void close() throws IOException {
+			/* the export fails writing into the closed pipe */
+			export.cancel(false);
+			in.close();
+		}
+	}
+
+	/**
+	 * Parses a class file and submits one task per method.
+	 */
+	private static class ClassGraphTask implements Callable<List<Future<GraphFile>>> {
+		private final IFolder folder;
+		private final String elementName;
+		private final byte[] bytes;
+		private final IGraphSpecification spec;
+		private final GraphOptions options;
+
+		ClassGraphTask(IFolder folder, String elementName, byte[] bytes,
+				IGraphSpecification spec, GraphOptions options) {
+			this.folder = folder;
+			this.elementName = elementName;
+			this.bytes = bytes;
+			this.spec = spec;
+			this.options = options;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public List<Future<GraphFile>> call() throws IOException {
+			Map<String, Map<String, Object>> methods = AnalysisCache
+					.getDefault().getDecodedMethods(bytes);
+
+			List<Future<GraphFile>> files = new ArrayList<Future<GraphFile>>();
+			for (final Map<String, Object> attr : methods.values()) {
+				files.add(getExecutor().submit(new Callable<GraphFile>() {
+
+					/* (non-Javadoc)
+					 * @see java.util.concurrent.Callable#call()
+					 */
+					public GraphFile call() throws IOException,
+							ControlFlowGraphException {
+						return createGraphFile(folder, elementName, attr, spec,
+								options);
+					}
+				}));
+			}
+
+			return files;
+		}
+	}
+
 	public static int openConfirm(Shell parent, String title, String message) {
 		MessageDialog dialog = new MessageDialog(parent, title,
 				CoreImg.aboutDrGarbageIcon_16x16.createImage(), message,
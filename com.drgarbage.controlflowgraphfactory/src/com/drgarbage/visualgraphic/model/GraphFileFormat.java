@@ -0,0 +1,505 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.visualgraphic.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.draw2d.Graphics;
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.draw2d.geometry.Point;
+
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
+
+/**
+ * Binary file format of the control flow graph diagrams (<code>.graph</code> files).
+ * <br>
+ * Layout of the version 1:
+ * <pre>
+ * magic      4 bytes "DGGF"
+ * version    varint
+ * name       string
+ * idCounter  varint
+ * vertices   varint count, then per vertex:
+ *              type byte, id varint, label string, tooltip string, flags byte,
+ *              x, y, width, height as zigzag varint deltas to the previous vertex
+ * edges      varint count, then per edge:
+ *              source index varint, target index varint, label string, style byte
+ * </pre>
+ * A string is written as varint <code>0</code> for <code>null</code>,
+ * <code>1</code> followed by the UTF-8 length and bytes for the first occurrence
+ * or <code>index + 2</code> for a string already written. Both the writer and
+ * the reader work in one pass over the stream.
+ * <br>
+ * The bit 0 of the style byte is set for dashed lines,
+ * the bit 1 for exception edges.
+ * <br>
+ * The colors of the vertices and connections are not stored, they are set
+ * only temporarily by the compare viewer.
+ * <br>
+ * Files written by older versions with the Java serialization are
+ * recognized and read with an {@link ObjectInputStream}.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class GraphFileFormat {
+
+	/**
+	 * The magic number "DGGF".
+	 */
+	private static final int MAGIC = 0x44474746;
+
+	/**
+	 * The current version of the format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The first two bytes of a java serialization stream.
+	 */
+	private static final int SERIALIZATION_MAGIC = 0xACED;
+
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	/* vertex types */
+	private static final int TYPE_RECTANGULAR = 0;
+	private static final int TYPE_DECISION = 1;
+	private static final int TYPE_RETURN = 2;
+	private static final int TYPE_GOTO_JUMP = 3;
+	private static final int TYPE_SWITCH = 4;
+	private static final int TYPE_INVOKE = 5;
+	private static final int TYPE_GET = 6;
+	private static final int TYPE_START = 7;
+	private static final int TYPE_EXIT = 8;
+	private static final int TYPE_BASIC_BLOCK = 9;
+	private static final int TYPE_COMMENT = 10;
+	private static final int TYPE_ROUNDED_RECTANGULAR = 11;
+
+	/* vertex flags */
+	private static final int FLAG_LONG_DESCR = 1;
+
+	/* edge styles */
+	private static final int LINE_DASH = 1;
+	private static final int EXCEPTION_EDGE = 2;
+
+	private GraphFileFormat() {
+		/* static methods only */
+	}
+
+	/**
+	 * Writes the diagram in the current format. The stream is not closed.
+	 * @param diagram the diagram
+	 * @param out the output stream
+	 * @throws IOException if the diagram could not be written
+	 */
+	public static void writeDiagram(ControlFlowGraphDiagram diagram, OutputStream out) throws IOException {
+		BinaryWriter w = new BinaryWriter(new BufferedOutputStream(out));
+		w.writeDiagram(diagram);
+		w.flush();
+	}
+
+	/**
+	 * Returns the diagram encoded in the current format.
+	 * @param diagram the diagram
+	 * @return the content of a graph file
+	 * @throws IOException if the diagram could not be written
+	 */
+	public static byte[] toByteArray(ControlFlowGraphDiagram diagram) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeDiagram(diagram, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Reads a diagram written in the current format or with the
+	 * Java serialization by older versions. The stream is not closed.
+	 * @param in the input stream
+	 * @return the diagram
+	 * @throws IOException if the content is not a valid graph file
+	 */
+	public static ControlFlowGraphDiagram readDiagram(InputStream in) throws IOException {
+		BufferedInputStream bin = new BufferedInputStream(in);
+		bin.mark(4);
+		int b0 = bin.read();
+		int b1 = bin.read();
+		bin.reset();
+		if (b0 < 0 || b1 < 0) {
+			throw new EOFException();
+		}
+
+		if (((b0 << 8) | b1) == SERIALIZATION_MAGIC) {
+			return readSerializedDiagram(bin);
+		}
+
+		return new BinaryReader(bin).readDiagram();
+	}
+
+	/**
+	 * Reads a diagram saved by the Java serialization.
+	 * @param in the input stream
+	 * @return the diagram
+	 * @throws IOException if the stream could not be read
+	 */
+	private static ControlFlowGraphDiagram readSerializedDiagram(InputStream in) throws IOException {
+		ObjectInputStream ois = new ObjectInputStream(in);
+		try {
+			return (ControlFlowGraphDiagram) ois.readObject();
+		} catch (ClassNotFoundException e) {
+			IOException ioe = new IOException(e.getMessage());
+			ioe.initCause(e);
+			throw ioe;
+		} catch (ClassCastException e) {
+			IOException ioe = new IOException(e.getMessage());
+			ioe.initCause(e);
+			throw ioe;
+		}
+	}
+
+	/**
+	 * Returns the type tag of the vertex.
+	 * @param vb the vertex
+	 * @return type tag
+	 * @throws IOException if the vertex class is not supported
+	 */
+	private static int getVertexType(VertexBase vb) throws IOException {
+		/* subclasses are checked first */
+		if (vb instanceof StartVertex) {
+			return TYPE_START;
+		} else if (vb instanceof ExitVertex) {
+			return TYPE_EXIT;
+		} else if (vb instanceof RoundedRectangularVertex) {
+			return TYPE_ROUNDED_RECTANGULAR;
+		} else if (vb instanceof RectangularVertex) {
+			return TYPE_RECTANGULAR;
+		} else if (vb instanceof DecisionVertex) {
+			return TYPE_DECISION;
+		} else if (vb instanceof ReturnVertex) {
+			return TYPE_RETURN;
+		} else if (vb instanceof GotoJumpVertex) {
+			return TYPE_GOTO_JUMP;
+		} else if (vb instanceof SwitchVertex) {
+			return TYPE_SWITCH;
+		} else if (vb instanceof InvokeVertex) {
+			return TYPE_INVOKE;
+		} else if (vb instanceof GetVertex) {
+			return TYPE_GET;
+		} else if (vb instanceof BasicBlockVertex) {
+			return TYPE_BASIC_BLOCK;
+		} else if (vb instanceof CommentElement) {
+			return TYPE_COMMENT;
+		}
+
+		throw new IOException("Unsupported vertex type " + vb.getClass().getName()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Creates a vertex of the given type.
+	 * @param type the type tag
+	 * @return the vertex
+	 * @throws IOException if the type is unknown
+	 */
+	private static VertexBase createVertex(int type) throws IOException {
+		switch (type) {
+		case TYPE_RECTANGULAR:
+			return new RectangularVertex();
+		case TYPE_DECISION:
+			return new DecisionVertex();
+		case TYPE_RETURN:
+			return new ReturnVertex();
+		case TYPE_GOTO_JUMP:
+			return new GotoJumpVertex();
+		case TYPE_SWITCH:
+			return new SwitchVertex();
+		case TYPE_INVOKE:
+			return new InvokeVertex();
+		case TYPE_GET:
+			return new GetVertex();
+		case TYPE_START:
+			return new StartVertex();
+		case TYPE_EXIT:
+			return new ExitVertex();
+		case TYPE_BASIC_BLOCK:
+			return new BasicBlockVertex();
+		case TYPE_COMMENT:
+			return new CommentElement();
+		case TYPE_ROUNDED_RECTANGULAR:
+			return new RoundedRectangularVertex();
+		default:
+			throw new IOException("Invalid vertex type " + type); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Writer of the binary format.
+	 */
+	private static class BinaryWriter {
+		private OutputStream out;
+		private Map<String, Integer> strings = new HashMap<String, Integer>();
+
+		BinaryWriter(OutputStream out) {
+			this.out = out;
+		}
+
+		void writeDiagram(ControlFlowGraphDiagram diagram) throws IOException {
+			writeInt(MAGIC);
+			writeVarInt(VERSION);
+
+			Object name = diagram.getPropertyValue(ControlFlowGraphDiagram.NAME_PROP);
+			writeString(name == null ? null : name.toString());
+			writeVarInt(diagram.getIdCounter());
+
+			List<VertexBase> vertices = diagram.getChildren();
+			Map<VertexBase, Integer> index = new IdentityHashMap<VertexBase, Integer>(vertices.size() * 2);
+			writeVarInt(vertices.size());
+
+			int x = 0, y = 0, width = 0, height = 0;
+			for (int i = 0; i < vertices.size(); i++) {
+				VertexBase vb = vertices.get(i);
+				index.put(vb, Integer.valueOf(i));
+
+				out.write(getVertexType(vb));
+				writeVarInt(vb.getId());
+				writeString(vb.getLabel());
+				writeString(vb.getToolTip());
+				out.write(vb.isLongDescrUsed() ? FLAG_LONG_DESCR : 0);
+
+				Point p = vb.getLocation();
+				Dimension d = vb.getSize();
+				writeSignedVarInt(p.x - x);
+				writeSignedVarInt(p.y - y);
+				writeSignedVarInt(d.width - width);
+				writeSignedVarInt(d.height - height);
+				x = p.x;
+				y = p.y;
+				width = d.width;
+				height = d.height;
+			}
+
+			List<Connection> connections = new ArrayList<Connection>();
+			for (VertexBase vb : vertices) {
+				for (Connection c : vb.getSourceConnections()) {
+					if (index.containsKey(c.getTarget())) {
+						connections.add(c);
+					}
+				}
+			}
+
+			writeVarInt(connections.size());
+			for (Connection c : connections) {
+				writeVarInt(index.get(c.getSource()).intValue());
+				writeVarInt(index.get(c.getTarget()).intValue());
+				writeString(c.getLabel());
+				int style = 0;
+				if (c.getLineStyle() == Graphics.LINE_DASH) {
+					style |= LINE_DASH;
+				}
+				if (c.getEdgeType() == IEdgeType.EDGE_TYPE_EXCEPTION) {
+					style |= EXCEPTION_EDGE;
+				}
+				out.write(style);
+			}
+		}
+
+		void writeString(String s) throws IOException {
+			if (s == null) {
+				writeVarInt(0);
+				return;
+			}
+
+			Integer i = strings.get(s);
+			if (i != null) {
+				writeVarInt(i.intValue() + 2);
+				return;
+			}
+
+			strings.put(s, Integer.valueOf(strings.size()));
+			byte[] b = s.getBytes(UTF_8);
+			writeVarInt(1);
+			writeVarInt(b.length);
+			out.write(b);
+		}
+
+		void writeInt(int v) throws IOException {
+			out.write(v >>> 24);
+			out.write(v >>> 16);
+			out.write(v >>> 8);
+			out.write(v);
+		}
+
+		void writeVarInt(int v) throws IOException {
+			while ((v & ~0x7F) != 0) {
+				out.write((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			out.write(v);
+		}
+
+		void writeSignedVarInt(int v) throws IOException {
+			/* zigzag encoding */
+			writeVarInt((v << 1) ^ (v >> 31));
+		}
+
+		void flush() throws IOException {
+			out.flush();
+		}
+	}
+
+	/**
+	 * Reader of the binary format.
+	 */
+	private static class BinaryReader {
+		private InputStream in;
+		private List<String> strings = new ArrayList<String>();
+
+		BinaryReader(InputStream in) {
+			this.in = in;
+		}
+
+		ControlFlowGraphDiagram readDiagram() throws IOException {
+			if (readInt() != MAGIC) {
+				throw new IOException("Not a graph file."); //$NON-NLS-1$
+			}
+
+			int version = readVarInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported graph file version " + version + "."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+
+			ControlFlowGraphDiagram diagram = new ControlFlowGraphDiagram();
+			String name = readString();
+			if (name != null) {
+				diagram.setPropertyValue(ControlFlowGraphDiagram.NAME_PROP, name);
+			}
+			int idCounter = readVarInt();
+
+			int n = readVarInt();
+			VertexBase[] vertices = new VertexBase[n];
+			int x = 0, y = 0, width = 0, height = 0;
+			for (int i = 0; i < n; i++) {
+				VertexBase vb = createVertex(readByte());
+				int id = readVarInt();
+				vb.setLabel(readString());
+				vb.setToolTip(readString());
+				vb.setLongDescrUsed((readByte() & FLAG_LONG_DESCR) != 0);
+
+				x += readSignedVarInt();
+				y += readSignedVarInt();
+				width += readSignedVarInt();
+				height += readSignedVarInt();
+				vb.setLocation(new Point(x, y));
+				vb.setSize(new Dimension(width, height));
+
+				diagram.addChild(vb);
+				vb.setId(id);
+				vertices[i] = vb;
+			}
+			diagram.setIdCounter(idCounter);
+
+			int m = readVarInt();
+			for (int i = 0; i < m; i++) {
+				int source = readVarInt();
+				int target = readVarInt();
+				if (source >= n || target >= n) {
+					throw new IOException("Invalid edge " + source + " -> " + target + "."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				}
+
+				Connection c = new Connection(vertices[source], vertices[target]);
+				c.setLabel(readString());
+				int style = readByte();
+				c.setLineStyle((style & LINE_DASH) != 0 ? Graphics.LINE_DASH : Graphics.LINE_SOLID);
+				if ((style & EXCEPTION_EDGE) != 0) {
+					c.setEdgeType(IEdgeType.EDGE_TYPE_EXCEPTION);
+				}
+			}
+
+			return diagram;
+		}
+
+		String readString() throws IOException {
+			int i = readVarInt();
+			if (i == 0) {
+				return null;
+			}
+
+			if (i > 1) {
+				if (i - 2 >= strings.size()) {
+					throw new IOException("Invalid string reference " + i + "."); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				return strings.get(i - 2);
+			}
+
+			int len = readVarInt();
+			byte[] b = new byte[len];
+			readFully(b);
+			String s = new String(b, UTF_8);
+			strings.add(s);
+			return s;
+		}
+
+		int readByte() throws IOException {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			return b;
+		}
+
+		int readInt() throws IOException {
+			return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+		}
+
+		int readVarInt() throws IOException {
+			int v = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = readByte();
+				v |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return v;
+				}
+			}
+			throw new IOException("Malformed varint."); //$NON-NLS-1$
+		}
+
+		int readSignedVarInt() throws IOException {
+			int v = readVarInt();
+			return (v >>> 1) ^ -(v & 1);
+		}
+
+		void readFully(byte[] b) throws IOException {
+			int off = 0;
+			while (off < b.length) {
+				int len = in.read(b, off, b.length - off);
+				if (len < 0) {
+					throw new EOFException();
+				}
+				off += len;
+			}
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.xml;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming XML writer. Elements, attributes and text are
+ * written immediately to the underlying output, only the names of
+ * the open elements are kept. The output is indented by two spaces,
+ * elements with text content only are written on one line.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class XmlWriter {
+
+	private static final String INDENT = "  ";
+
+	private Appendable out;
+
+	/**
+	 * Names of the open elements.
+	 */
+	private List<String> elements = new ArrayList<String>();
+
+	/**
+	 * <code>true</code> if the start tag of the current element is not closed yet.
+	 */
+	private boolean startTagOpen = false;
+
+	/**
+	 * <code>true</code> if the current element has child elements.
+	 */
+	private boolean hasChildren = false;
+
+	/**
+	 * <code>true</code> if the current element contains text.
+	 */
+	private boolean hasText = false;
+
+	/**
+	 * Creates a writer.
+	 * @param out the output
+	 */
+	public XmlWriter(Appendable out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes the start tag of an element. The tag is left
+	 * open for attributes until the next content is written.
+	 * @param name the element name
+	 * @throws IOException
+	 */
+	public XmlWriter startElement(String name) throws IOException {
+		closeStartTag();
+		if (!elements.isEmpty() || hasChildren) {
+			newLine();
+		}
+		indent(elements.size());
+		out.append('<').append(name);
+		elements.add(name);
+		startTagOpen = true;
+		hasChildren = false;
+		hasText = false;
+		return this;
+	}
+
+	/**
+	 * Writes an attribute of the current element.
+	 * @param name the attribute name
+	 * @param value the attribute value
+	 * @throws IOException
+	 */
+	public XmlWriter attribute(String name, String value) throws IOException {
+		if (!startTagOpen) {
+			throw new IllegalStateException("Attribute '" + name + "' written outside of a start tag.");
+		}
+		out.append(' ').append(name).append("=\"");
+		appendEscaped(value, true);
+		out.append('"');
+		return this;
+	}
+
+	/**
+	 * Writes the text content of the current element.
+	 * @param text the text
+	 * @throws IOException
+	 */
+	public XmlWriter text(String text) throws IOException {
+		closeStartTag();
+		appendEscaped(text, false);
+		hasText = true;
+		return this;
+	}
+
+	/**
+	 * Writes the end tag of the current element. An element
+	 * without content is written as an empty element tag.
+	 * @throws IOException
+	 */
+	public XmlWriter endElement() throws IOException {
+		String name = elements.remove(elements.size() - 1);
+		if (startTagOpen) {
+			out.append("/>");
+			startTagOpen = false;
+		}
+		else {
+			if (hasChildren && !hasText) {
+				newLine();
+				indent(elements.size());
+			}
+			out.append("</").append(name).append('>');
+		}
+
+		/* the parent element has at least this child */
+		hasChildren = true;
+		hasText = false;
+		return this;
+	}
+
+	/**
+	 * Closes all open elements and terminates the last line.
+	 * @throws IOException
+	 */
+	public void endDocument() throws IOException {
+		while (!elements.isEmpty()) {
+			endElement();
+		}
+		newLine();
+	}
+
+	private void closeStartTag() throws IOException {
+		if (startTagOpen) {
+			out.append('>');
+			startTagOpen = false;
+		}
+	}
+
+	private void newLine() throws IOException {
+		out.append('\n');
+	}
+
+	private void indent(int level) throws IOException {
+		for (int i = 0; i < level; i++) {
+			out.append(INDENT);
+		}
+	}
+
+	private void appendEscaped(String s, boolean attribute) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '<':
+				out.append("&lt;");
+				break;
+			case '>':
+				out.append("&gt;");
+				break;
+			case '&':
+				out.append("&amp;");
+				break;
+			case '"':
+				if (attribute) {
+					out.append("&quot;");
+				}
+				else {
+					out.append(c);
+				}
+				break;
+			case '\n':
+				if (attribute) {
+					out.append("&#10;");
+				}
+				else {
+					out.append(c);
+				}
+				break;
+			default:
+				out.append(c);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.drgarbage.algorithms;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.controlflowgraph.ControlFlowGraphException;
+import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
+import com.drgarbage.controlflowgraph.intf.IBasicBlock;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+
+/**
+ * Test class for {@link com.drgarbage.algorithms.BasicBlockGraphVisitor}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class BasicBlockGraphVisitorTest extends TestCase {
+
+	/**
+	 * The basic blocks are created for the graph:
+	 * <pre>
+	 *   v0 -> v1 -> v2
+	 *    |     ^
+	 *    +-> v3
+	 * </pre>
+	 * The blocks and the edge mapping are kept by the visitor,
+	 * the nodes and edges of the input graph are not changed.
+	 * @throws ControlFlowGraphException
+	 */
+	public void testInputNotModified() throws ControlFlowGraphException {
+		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
+		INodeExt[] v = new INodeExt[4];
+		for(int i = 0; i < v.length; i++){
+			v[i] = GraphExtentionFactory.createNodeExtention("v" + i);
+			graph.getNodeList().add(v[i]);
+		}
+		IEdgeExt e01 = GraphExtentionFactory.createEdgeExtention(v[0], v[1]);
+		IEdgeExt e12 = GraphExtentionFactory.createEdgeExtention(v[1], v[2]);
+		IEdgeExt e03 = GraphExtentionFactory.createEdgeExtention(v[0], v[3]);
+		IEdgeExt e31 = GraphExtentionFactory.createEdgeExtention(v[3], v[1]);
+		e03.setData("true");
+		graph.getEdgeList().add(e01);
+		graph.getEdgeList().add(e12);
+		graph.getEdgeList().add(e03);
+		graph.getEdgeList().add(e31);
+
+		BasicBlockGraphVisitor visitor = new BasicBlockGraphVisitor();
+		visitor.start(graph);
+		IDirectedGraphExt bbGraph = visitor.getBasicBlockGraph();
+		assertEquals(3, bbGraph.getNodeList().size());
+		assertEquals(3, bbGraph.getEdgeList().size());
+
+		IBasicBlock b0 = visitor.getBasicBlock(v[0]);
+		IBasicBlock b1 = visitor.getBasicBlock(v[1]);
+		IBasicBlock b3 = visitor.getBasicBlock(v[3]);
+		assertSame(b1, visitor.getBasicBlock(v[2]));
+		assertNotSame(b0, b1);
+		assertNotSame(b3, b1);
+		assertEquals(2, b1.getBasicBlockVertices().size());
+
+		/* the edges entering a block are mapped, the edge inside a block is not */
+		IEdgeExt e = visitor.getBasicBlockEdge(e03);
+		assertSame(b0, e.getSource());
+		assertSame(b3, e.getTarget());
+		assertEquals("true", e.getData());
+		assertSame(b3, visitor.getBasicBlockEdge(e31).getSource());
+		assertSame(b1, visitor.getBasicBlockEdge(e01).getTarget());
+		assertNull(visitor.getBasicBlockEdge(e12));
+
+		for(int i = 0; i < v.length; i++){
+			assertNull(v[i].getBasicBlockReference());
+		}
+		assertEquals("true", e03.getData());
+		assertNull(e01.getData());
+	}
+}
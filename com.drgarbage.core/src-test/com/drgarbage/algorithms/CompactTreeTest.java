@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.algorithms;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.controlflowgraph.ControlFlowGraphException;
+import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+
+/**
+ * Test class for {@link com.drgarbage.algorithms.CompactTree}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class CompactTreeTest extends TestCase {
+
+	/**
+	 * Creates the tree:
+	 * <pre>
+	 *       r
+	 *     /   \
+	 *    a     b
+	 *    |
+	 *    c
+	 * </pre>
+	 * The children of the root are added in the given order.
+	 * @param prefix the prefix of the node names
+	 * @param swap <code>true</code> if the children of the root are swapped
+	 * @return the tree
+	 */
+	private IDirectedGraphExt createTree(String prefix, boolean swap) {
+		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
+		INodeExt r = addNode(graph, prefix + "r");
+		INodeExt a = addNode(graph, prefix + "a");
+		INodeExt b = addNode(graph, prefix + "b");
+		INodeExt c = addNode(graph, prefix + "c");
+
+		if(swap){
+			graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(r, b));
+			graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(r, a));
+		}
+		else{
+			graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(r, a));
+			graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(r, b));
+		}
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(a, c));
+
+		return graph;
+	}
+
+	private INodeExt addNode(IDirectedGraphExt graph, String name) {
+		INodeExt n = GraphExtentionFactory.createNodeExtention(name);
+		graph.getNodeList().add(n);
+		return n;
+	}
+
+	/**
+	 * Creates a path of nodes.
+	 * @param count the number of nodes
+	 * @return the path
+	 */
+	private IDirectedGraphExt createPath(int count) {
+		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
+		INodeExt last = addNode(graph, "v0");
+		for(int i = 1; i < count; i++){
+			INodeExt n = addNode(graph, "v" + i);
+			graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(last, n));
+			last = n;
+		}
+		return graph;
+	}
+
+	/**
+	 * The nodes are numbered in preorder, the sizes
+	 * and heights of the subtrees are computed.
+	 */
+	public void testStructure() {
+		IDirectedGraphExt graph = createTree("", false);
+		CompactTree tree = new CompactTree(graph, CompactTree.findRoot(graph));
+
+		assertEquals(4, tree.size());
+		assertEquals("r", tree.getNode(0).getData());
+		assertEquals("a", tree.getNode(1).getData());
+		assertEquals("c", tree.getNode(2).getData());
+		assertEquals("b", tree.getNode(3).getData());
+
+		assertEquals(-1, tree.getParent(0));
+		assertEquals(2, tree.getChildCount(0));
+		assertEquals(1, tree.getChild(0, 0));
+		assertEquals(3, tree.getChild(0, 1));
+		assertEquals(4, tree.getSize(0));
+		assertEquals(2, tree.getHeight(0));
+		assertEquals(2, tree.getSize(1));
+		assertEquals(0, tree.getHeight(3));
+	}
+
+	/**
+	 * Isomorphic trees get the same labels, the order
+	 * of the children does not matter.
+	 */
+	public void testLabels() {
+		IDirectedGraphExt g1 = createTree("v", false);
+		IDirectedGraphExt g2 = createTree("w", true);
+		CompactTree t1 = new CompactTree(g1, CompactTree.findRoot(g1));
+		CompactTree t2 = new CompactTree(g2, CompactTree.findRoot(g2));
+		CompactTree.computeLabels(t1, t2);
+
+		assertEquals(t1.getLabel(0), t2.getLabel(0));
+		assertEquals(CompactTree.LEAF_LABEL, t1.getLabel(2));
+		assertFalse(t1.getLabel(0) == t1.getLabel(1));
+
+		Map<INodeExt, INodeExt> map = new HashMap<INodeExt, INodeExt>();
+		CompactTree.mapIsomorphicSubtrees(t1, 0, t2, 0, map);
+		assertEquals(4, map.size());
+		for(Map.Entry<INodeExt, INodeExt> entry: map.entrySet()){
+			assertEquals(entry.getKey().getData().toString().substring(1),
+					entry.getValue().getData().toString().substring(1));
+		}
+	}
+
+	/**
+	 * Only the edges of the edge list are tree edges, the back edges
+	 * of the graph do not prevent the comparison of the spanning trees.
+	 * @throws ControlFlowGraphException
+	 */
+	public void testBackEdges() throws ControlFlowGraphException {
+		IDirectedGraphExt[] graphs = new IDirectedGraphExt[2];
+		for(int k = 0; k < graphs.length; k++){
+			graphs[k] = GraphExtentionFactory.createDirectedGraphExtention();
+			INodeExt v0 = addNode(graphs[k], "v0");
+			INodeExt v1 = addNode(graphs[k], "v1");
+			INodeExt v2 = addNode(graphs[k], "v2");
+			graphs[k].getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v0, v1));
+			graphs[k].getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v1, v2));
+			graphs[k].getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v2, v1));
+		}
+
+		TopDownMaxCommonSubtreeIsomorphism compare = new TopDownMaxCommonSubtreeIsomorphism();
+		Map<INodeExt, INodeExt> map = compare.execute(graphs[0], graphs[1]);
+		assertEquals(3, map.size());
+	}
+
+	/**
+	 * A deep tree does not overflow the thread stack.
+	 * @throws ControlFlowGraphException
+	 */
+	public void testDeepTree() throws ControlFlowGraphException {
+		int count = 10000;
+		TopDownMaxCommonSubtreeIsomorphism compare = new TopDownMaxCommonSubtreeIsomorphism();
+		Map<INodeExt, INodeExt> map = compare.execute(createPath(count), createPath(count + 1));
+		assertEquals(count, map.size());
+	}
+}
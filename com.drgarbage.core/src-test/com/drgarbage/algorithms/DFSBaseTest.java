@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.controlflowgraph.ControlFlowGraphException;
+import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+
+/**
+ * Test class for {@link com.drgarbage.algorithms.DFSBase}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class DFSBaseTest extends TestCase {
+
+	/**
+	 * Records the calls of the visitor hooks.
+	 */
+	private static class RecordingDFS extends DFSForward {
+		private List<String> calls = new ArrayList<String>();
+
+		public void visitNode(INodeExt node) {
+			calls.add("visitNode " + node.getData());
+		}
+
+		public void postVisitNode(INodeExt node) {
+			calls.add("postVisitNode " + node.getData());
+		}
+
+		public void visitEdge(IEdgeExt edge) {
+			calls.add("visitEdge " + edge.getSource().getData() + "->" + edge.getTarget().getData());
+		}
+
+		public void postVisitEdge(IEdgeExt edge) {
+			calls.add("postVisitEdge " + edge.getSource().getData() + "->" + edge.getTarget().getData());
+		}
+
+		protected void postHandling() throws ControlFlowGraphException {
+			/* nothing to do */
+		}
+	}
+
+	/**
+	 * Creates the graph:
+	 * <pre>
+	 *   v0 -> v1 -> v2
+	 *    |     ^
+	 *    +-> v3
+	 * </pre>
+	 * @return the graph
+	 */
+	private IDirectedGraphExt createTestGraph() {
+		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
+		INodeExt[] v = new INodeExt[4];
+		for(int i = 0; i < v.length; i++){
+			v[i] = GraphExtentionFactory.createNodeExtention("v" + i);
+			graph.getNodeList().add(v[i]);
+		}
+
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v[0], v[1]));
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v[1], v[2]));
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v[0], v[3]));
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v[3], v[1]));
+
+		return graph;
+	}
+
+	/**
+	 * The hooks are called in the order of the recursive search.
+	 * @throws ControlFlowGraphException
+	 */
+	public void testVisitOrder() throws ControlFlowGraphException {
+		RecordingDFS dfs = new RecordingDFS();
+		dfs.start(createTestGraph());
+
+		String[] expected = {
+				"visitNode v0",
+				"visitEdge v0->v1",
+				"visitNode v1",
+				"visitEdge v1->v2",
+				"visitNode v2",
+				"postVisitNode v2",
+				"postVisitEdge v1->v2",
+				"postVisitNode v1",
+				"postVisitEdge v0->v1",
+				"visitEdge v0->v3",
+				"visitNode v3",
+				"visitEdge v3->v1",
+				"postVisitEdge v3->v1",
+				"postVisitNode v3",
+				"postVisitEdge v0->v3",
+				"postVisitNode v0"
+		};
+
+		assertEquals(expected.length, dfs.calls.size());
+		for(int i = 0; i < expected.length; i++){
+			assertEquals(expected[i], dfs.calls.get(i));
+		}
+	}
+
+	/**
+	 * A deep graph does not overflow the thread stack.
+	 * The back edge from the last to the first node is found.
+	 */
+	public void testDeepGraph() {
+		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
+		int count = 100000;
+		INodeExt first = GraphExtentionFactory.createNodeExtention("v0");
+		graph.getNodeList().add(first);
+		INodeExt last = first;
+		for(int i = 1; i < count; i++){
+			INodeExt n = GraphExtentionFactory.createNodeExtention("v" + i);
+			graph.getNodeList().add(n);
+			graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(last, n));
+			last = n;
+		}
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(last, first));
+
+		IEdgeListExt backEdges = SpanningTreeFinder.findBackEdges(graph);
+		assertEquals(1, backEdges.size());
+		assertSame(last, backEdges.getEdgeExt(0).getSource());
+		assertSame(first, backEdges.getEdgeExt(0).getTarget());
+	}
+}
@@ -18,6 +18,7 @@ package com.drgarbage.algorithms;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -452,7 +453,130 @@ public class HungarianMethodTest extends TestCase {
     	}
     	System.out.println("OK: sum = " + weight);
 	}
-	
-	
-	
+
+	/**
+	 * The dense assignment of random rectangular matrices is 
+	 * compared with the minimum found by trying all assignments.
+	 */
+	public void testAssign() {
+		Random random = new Random(17);
+		for(int k = 0; k < 200; k++){
+			int n = 1 + random.nextInt(5);
+			int m = 1 + random.nextInt(5);
+			long[][] cost = new long[n][m];
+			for(int i = 0; i < n; i++){
+				for(int j = 0; j < m; j++){
+					cost[i][j] = random.nextInt(41) - 20;
+				}
+			}
+
+			int[] assignment = HungarianMethod.assign(cost);
+			assertEquals(n, assignment.length);
+
+			long sum = 0;
+			int count = 0;
+			boolean[] used = new boolean[m];
+			for(int i = 0; i < n; i++){
+				if(assignment[i] >= 0){
+					assertFalse(used[assignment[i]]);
+					used[assignment[i]] = true;
+					sum += cost[i][assignment[i]];
+					count++;
+				}
+			}
+			assertEquals(Math.min(n, m), count);
+
+			long[] best = findBestAssignment(cost, null, 0, new boolean[m]);
+			assertEquals(best[1], sum);
+		}
+	}
+
+	/**
+	 * The sparse assignment of random matrices with missing elements
+	 * is compared with the minimum found by trying all assignments.
+	 * The maximum number of rows has to be assigned.
+	 */
+	public void testAssignSparse() {
+		Random random = new Random(23);
+		for(int k = 0; k < 200; k++){
+			int n = 1 + random.nextInt(6);
+			int m = 1 + random.nextInt(6);
+			long[][] cost = new long[n][m];
+			boolean[][] present = new boolean[n][m];
+			int[] start = new int[n + 1];
+			for(int i = 0; i < n; i++){
+				for(int j = 0; j < m; j++){
+					cost[i][j] = random.nextInt(41) - 20;
+					present[i][j] = random.nextInt(3) > 0;
+					if(present[i][j]){
+						start[i + 1]++;
+					}
+				}
+				start[i + 1] += start[i];
+			}
+
+			int[] column = new int[start[n]];
+			long[] elements = new long[start[n]];
+			int pos = 0;
+			for(int i = 0; i < n; i++){
+				for(int j = 0; j < m; j++){
+					if(present[i][j]){
+						column[pos] = j;
+						elements[pos++] = cost[i][j];
+					}
+				}
+			}
+
+			int[] assignment = HungarianMethod.assignSparse(n, m, start, column, elements);
+
+			long sum = 0;
+			int count = 0;
+			boolean[] used = new boolean[m];
+			for(int i = 0; i < n; i++){
+				if(assignment[i] >= 0){
+					assertTrue(assignment[i] >= start[i] && assignment[i] < start[i + 1]);
+					int j = column[assignment[i]];
+					assertFalse(used[j]);
+					used[j] = true;
+					sum += cost[i][j];
+					count++;
+				}
+			}
+
+			long[] best = findBestAssignment(cost, present, 0, new boolean[m]);
+			assertEquals(best[0], count);
+			assertEquals(best[1], sum);
+		}
+	}
+
+	/**
+	 * Tries all assignments of the rows starting with the row 
+	 * <code>i</code>.
+	 * @param cost the cost matrix
+	 * @param present the existing elements or <code>null</code>
+	 * @param i the row
+	 * @param used the assigned columns
+	 * @return the maximum number of assigned rows and the 
+	 *         minimum sum for this number
+	 */
+	private long[] findBestAssignment(long[][] cost, boolean[][] present, int i, boolean[] used){
+		if(i == cost.length){
+			return new long[]{0, 0};
+		}
+
+		/* the row is not assigned */
+		long[] best = findBestAssignment(cost, present, i + 1, used);
+		for(int j = 0; j < used.length; j++){
+			if(!used[j] && (present == null || present[i][j])){
+				used[j] = true;
+				long[] r = findBestAssignment(cost, present, i + 1, used);
+				used[j] = false;
+				if(r[0] + 1 > best[0] || (r[0] + 1 == best[0] && r[1] + cost[i][j] < best[1])){
+					best = new long[]{r[0] + 1, r[1] + cost[i][j]};
+				}
+			}
+		}
+
+		return best;
+	}
 }
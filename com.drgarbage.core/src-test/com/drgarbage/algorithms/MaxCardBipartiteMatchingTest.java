@@ -16,7 +16,9 @@
 package com.drgarbage.algorithms;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import junit.framework.TestCase;
@@ -453,4 +455,75 @@ public class MaxCardBipartiteMatchingTest extends TestCase {
 		
 		assertEquals(2, m.getMatchedEdges().size());
 	}
+
+	/**
+	 * The matching of random adjacency arrays is compared with 
+	 * the number of edges found by simple augmenting paths.
+	 */
+	public final void testMatch() {
+		Random random = new Random(31);
+		for(int k = 0; k < 200; k++){
+			int n = 1 + random.nextInt(8);
+			int m = 1 + random.nextInt(8);
+			boolean[][] edges = new boolean[n][m];
+			int[] start = new int[n + 1];
+			int[] adjacent = new int[n * m];
+			int pos = 0;
+			for(int i = 0; i < n; i++){
+				start[i] = pos;
+				for(int j = 0; j < m; j++){
+					edges[i][j] = random.nextInt(4) == 0;
+					if(edges[i][j]){
+						adjacent[pos++] = j;
+					}
+				}
+			}
+			start[n] = pos;
+
+			int[] matched = MaxCardBipartiteMatching.match(n, m, start, adjacent);
+
+			int count = 0;
+			boolean[] used = new boolean[m];
+			for(int i = 0; i < n; i++){
+				if(matched[i] >= 0){
+					assertTrue(matched[i] >= start[i] && matched[i] < start[i + 1]);
+					assertFalse(used[adjacent[matched[i]]]);
+					used[adjacent[matched[i]]] = true;
+					count++;
+				}
+			}
+
+			int[] owner = new int[m];
+			Arrays.fill(owner, -1);
+			int expected = 0;
+			for(int i = 0; i < n; i++){
+				if(augment(edges, i, owner, new boolean[m])){
+					expected++;
+				}
+			}
+			assertEquals(expected, count);
+		}
+	}
+
+	/**
+	 * Searches an augmenting path starting at the node <code>i</code>.
+	 * @param edges the adjacency matrix
+	 * @param i the node of the first partition
+	 * @param owner the matched nodes of the second partition
+	 * @param visited the visited nodes of the second partition
+	 * @return <code>true</code> if the matching has been augmented
+	 */
+	private boolean augment(boolean[][] edges, int i, int[] owner, boolean[] visited){
+		for(int j = 0; j < owner.length; j++){
+			if(edges[i][j] && !visited[j]){
+				visited[j] = true;
+				if(owner[j] < 0 || augment(edges, owner[j], owner, visited)){
+					owner[j] = i;
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
 }
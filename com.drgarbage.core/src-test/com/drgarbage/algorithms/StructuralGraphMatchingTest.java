@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.algorithms;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+
+/**
+ * Test class for {@link com.drgarbage.algorithms.StructuralGraphMatching}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class StructuralGraphMatchingTest extends TestCase {
+
+	private INodeExt addNode(IDirectedGraphExt graph, String content) {
+		INodeExt n = GraphExtentionFactory.createNodeExtention(content);
+		graph.getNodeList().add(n);
+		return n;
+	}
+
+	private IEdgeExt addEdge(IDirectedGraphExt graph, INodeExt source, INodeExt target) {
+		IEdgeExt e = GraphExtentionFactory.createEdgeExtention(source, target);
+		graph.getEdgeList().add(e);
+		return e;
+	}
+
+	/**
+	 * Creates the content of a basic block.
+	 * @param instructions the instructions
+	 * @return the content
+	 */
+	private static String block(String... instructions) {
+		StringBuilder sb = new StringBuilder(" B0 := {\n");
+		for(int i = 0; i < instructions.length; i++){
+			sb.append("  ").append(i).append("  ").append(instructions[i]).append('\n');
+		}
+		return sb.append(" }").toString();
+	}
+
+	/**
+	 * Creates the graph of a loop:
+	 * <pre>
+	 *   START -> B0 -> B1 -> B2 -> EXIT
+	 *                  ^     |
+	 *                  +-----+
+	 * </pre>
+	 * If <code>insert</code> is <code>true</code> the block
+	 * B3 is inserted into the body of the loop and the offsets
+	 * of the following blocks are shifted.
+	 * @param insert <code>true</code> if a block is inserted
+	 * @return the nodes START, B0, B1, B2, EXIT and B3
+	 */
+	private INodeExt[] createLoop(IDirectedGraphExt graph, boolean insert) {
+		int shift = insert ? 4 : 0;
+		INodeExt start = addNode(graph, "START");
+		INodeExt b0 = addNode(graph, " B0 := {\n  0  iconst_0\n  1  istore_1\n  2  goto 8\n }");
+		INodeExt b1 = addNode(graph, " B1 := {\n  " + (5 + shift)
+				+ "  iinc 1 1\n }");
+		INodeExt b2 = addNode(graph, " B2 := {\n  " + (8 + shift) + "  iload_1\n  "
+				+ (9 + shift) + "  bipush 10\n  " + (11 + shift) + "  if_icmplt " + (5 + shift) + "\n }");
+		INodeExt exit = addNode(graph, "EXIT");
+
+		addEdge(graph, start, b0);
+		addEdge(graph, b0, b2);
+		addEdge(graph, b2, b1);
+		addEdge(graph, b2, exit);
+
+		INodeExt b3 = null;
+		if(insert){
+			b3 = addNode(graph, " B3 := {\n  " + 5 + "  getstatic #2\n  8  invokevirtual #3\n }");
+			addEdge(graph, b1, b3);
+			addEdge(graph, b3, b2);
+		}
+		else{
+			addEdge(graph, b1, b2);
+		}
+
+		return new INodeExt[]{start, b0, b1, b2, exit, b3};
+	}
+
+	/**
+	 * The offsets and branch targets are removed from the instructions.
+	 */
+	public void testInstructions() {
+		List<String> list = StructuralGraphMatching.getInstructions(
+				" B2 := {\n  8  iload_1\n  9  bipush 10\n  11  if_icmplt 5\n }");
+		assertEquals(3, list.size());
+		assertEquals("iload_1", list.get(0));
+		assertEquals("bipush 10", list.get(1));
+		assertEquals("if_icmplt", list.get(2));
+
+		list = StructuralGraphMatching.getInstructions(" 12  goto 5 ");
+		assertEquals(1, list.size());
+		assertEquals("goto", list.get(0));
+	}
+
+	/**
+	 * Identical graphs are matched completely.
+	 */
+	public void testIdentical() {
+		IDirectedGraphExt g1 = GraphExtentionFactory.createDirectedGraphExtention();
+		IDirectedGraphExt g2 = GraphExtentionFactory.createDirectedGraphExtention();
+		INodeExt[] n1 = createLoop(g1, false);
+		INodeExt[] n2 = createLoop(g2, false);
+
+		StructuralGraphMatching m = new StructuralGraphMatching();
+		Map<INodeExt, INodeExt> map = m.execute(g1, g2);
+		assertEquals(5, map.size());
+		for(int i = 0; i < 5; i++){
+			assertSame(n2[i], map.get(n1[i]));
+		}
+		assertEquals(0, m.getDistance());
+		assertTrue(m.getChangedNodes().isEmpty());
+		assertTrue(m.getUnmatchedEdges(g1, g2).isEmpty());
+	}
+
+	/**
+	 * Matching a node to its counterpart with the same label
+	 * and the same matched neighbors costs nothing.
+	 */
+	public void testIdenticalNeighborhoodCost() {
+		IDirectedGraphExt g1 = GraphExtentionFactory.createDirectedGraphExtention();
+		IDirectedGraphExt g2 = GraphExtentionFactory.createDirectedGraphExtention();
+		INodeExt a1 = addNode(g1, block("iconst_0", "istore_1"));
+		INodeExt b1 = addNode(g1, block("iload_1", "ireturn"));
+		addEdge(g1, a1, b1);
+		INodeExt a2 = addNode(g2, block("iconst_0", "istore_1"));
+		INodeExt b2 = addNode(g2, block("iload_1", "ireturn"));
+		addEdge(g2, a2, b2);
+
+		StructuralGraphMatching m = new StructuralGraphMatching();
+		Map<INodeExt, INodeExt> map = m.execute(g1, g2);
+		assertSame(a2, map.get(a1));
+		assertSame(b2, map.get(b1));
+		assertEquals(0, m.computeCost(0, 0));
+		assertEquals(0, m.computeCost(1, 1));
+	}
+
+	/**
+	 * A block inserted into a loop is not matched, the shifted
+	 * blocks and the back edge are matched.
+	 */
+	public void testInsertedBlock() {
+		IDirectedGraphExt g1 = GraphExtentionFactory.createDirectedGraphExtention();
+		IDirectedGraphExt g2 = GraphExtentionFactory.createDirectedGraphExtention();
+		INodeExt[] n1 = createLoop(g1, false);
+		INodeExt[] n2 = createLoop(g2, true);
+
+		StructuralGraphMatching m = new StructuralGraphMatching();
+		Map<INodeExt, INodeExt> map = m.execute(g1, g2);
+		assertEquals(5, map.size());
+		for(int i = 0; i < 5; i++){
+			assertSame(n2[i], map.get(n1[i]));
+		}
+		assertFalse(map.containsValue(n2[5]));
+		assertTrue(m.getChangedNodes().isEmpty());
+
+		/* B1 -> B2 is replaced by B1 -> B3 -> B2 */
+		Set<IEdgeExt> edges = m.getUnmatchedEdges(g1, g2);
+		assertEquals(3, edges.size());
+		assertEquals(4, m.getDistance());
+	}
+
+	/**
+	 * Changed blocks are matched by their n-grams and neighbors.
+	 */
+	public void testChangedBlock() {
+		IDirectedGraphExt g1 = GraphExtentionFactory.createDirectedGraphExtention();
+		IDirectedGraphExt g2 = GraphExtentionFactory.createDirectedGraphExtention();
+		INodeExt[] n1 = createLoop(g1, false);
+		INodeExt[] n2 = createLoop(g2, false);
+		n2[3].setData(" B2 := {\n  8  iload_1\n  9  bipush 20\n  11  if_icmplt 5\n }");
+		n2[1].setData(" B0 := {\n  0  iconst_1\n  1  istore_1\n  2  goto 8\n }");
+
+		StructuralGraphMatching m = new StructuralGraphMatching();
+		Map<INodeExt, INodeExt> map = m.execute(g1, g2);
+		assertEquals(5, map.size());
+		for(int i = 0; i < 5; i++){
+			assertSame(n2[i], map.get(n1[i]));
+		}
+
+		Set<INodeExt> changed = m.getChangedNodes();
+		assertEquals(4, changed.size());
+		assertTrue(changed.contains(n1[3]));
+		assertTrue(changed.contains(n2[1]));
+		assertEquals(2, m.getDistance());
+	}
+
+	/**
+	 * Blocks without any similarity are not matched.
+	 */
+	public void testUnrelatedBlocks() {
+		IDirectedGraphExt g1 = GraphExtentionFactory.createDirectedGraphExtention();
+		IDirectedGraphExt g2 = GraphExtentionFactory.createDirectedGraphExtention();
+		addNode(g1, " B0 := {\n  0  iconst_0\n  1  ireturn\n }");
+		addNode(g2, " B0 := {\n  0  aload_0\n  1  athrow\n }");
+
+		StructuralGraphMatching m = new StructuralGraphMatching();
+		Map<INodeExt, INodeExt> map = m.execute(g1, g2);
+		assertTrue(map.isEmpty());
+		assertEquals(2, m.getDistance());
+	}
+
+	/**
+	 * The cheapest candidate is matched, independent
+	 * of the order of the candidates.
+	 */
+	public void testCheaperLaterCandidate() {
+		for(int order = 0; order < 2; order++){
+			IDirectedGraphExt g1 = GraphExtentionFactory.createDirectedGraphExtention();
+			IDirectedGraphExt g2 = GraphExtentionFactory.createDirectedGraphExtention();
+			INodeExt v = addNode(g1, block("iadd", "isub", "imul", "idiv", "irem"));
+			INodeExt w1 = null;
+			INodeExt w2 = null;
+			if(order == 0){
+				w1 = addNode(g2, block("iadd", "isub", "nop", "pop", "dup"));
+				w2 = addNode(g2, block("iadd", "isub", "imul", "idiv", "ineg"));
+			}
+			else{
+				w2 = addNode(g2, block("iadd", "isub", "imul", "idiv", "ineg"));
+				w1 = addNode(g2, block("iadd", "isub", "nop", "pop", "dup"));
+			}
+
+			Map<INodeExt, INodeExt> map = new StructuralGraphMatching().execute(g1, g2);
+			assertEquals(1, map.size());
+			assertSame(w2, map.get(v));
+			assertFalse(map.containsValue(w1));
+		}
+	}
+
+	/**
+	 * Only the cheapest candidates are kept if a node
+	 * has more candidates than the limit.
+	 */
+	public void testManyCandidates() {
+		for(int position = 0; position <= 10; position += 5){
+			IDirectedGraphExt g1 = GraphExtentionFactory.createDirectedGraphExtention();
+			IDirectedGraphExt g2 = GraphExtentionFactory.createDirectedGraphExtention();
+			INodeExt v = addNode(g1, block("iadd", "isub", "imul", "idiv", "irem"));
+			INodeExt best = null;
+			for(int i = 0; i <= 10; i++){
+				if(i == position){
+					best = addNode(g2, block("iadd", "isub", "imul", "idiv", "ineg"));
+				}
+				else if(i % 2 == 0){
+					addNode(g2, block("iadd", "isub", "nop", "pop", "dup"));
+				}
+				else{
+					addNode(g2, block("iadd", "isub", "imul", "pop", "dup"));
+				}
+			}
+
+			Map<INodeExt, INodeExt> map = new StructuralGraphMatching().execute(g1, g2);
+			assertEquals(1, map.size());
+			assertSame(best, map.get(v));
+		}
+	}
+}
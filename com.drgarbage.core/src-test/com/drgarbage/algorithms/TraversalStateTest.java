@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+import com.drgarbage.controlflowgraph.intf.MarkEnum;
+
+/**
+ * Test class for {@link com.drgarbage.algorithms.TraversalState}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class TraversalStateTest extends TestCase {
+
+	/**
+	 * Creates the graph:
+	 * <pre>
+	 *   v0 -> v1 -> v2 -> v3
+	 *          ^     |
+	 *          +-----+
+	 * </pre>
+	 * @return the graph
+	 */
+	private IDirectedGraphExt createTestGraph() {
+		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
+		INodeExt[] v = new INodeExt[4];
+		for(int i = 0; i < v.length; i++){
+			v[i] = GraphExtentionFactory.createNodeExtention("v" + i);
+			graph.getNodeList().add(v[i]);
+		}
+
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v[0], v[1]));
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v[1], v[2]));
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v[2], v[3]));
+		graph.getEdgeList().add(GraphExtentionFactory.createEdgeExtention(v[2], v[1]));
+
+		return graph;
+	}
+
+	/**
+	 * Asserts that no node and no edge of the graph is visited or marked.
+	 * @param graph the graph
+	 */
+	private static void assertUnmodified(IDirectedGraphExt graph) {
+		for(int i = 0; i < graph.getNodeList().size(); i++){
+			INodeExt n = graph.getNodeList().getNodeExt(i);
+			assertFalse(n.isVisited());
+			assertEquals(MarkEnum.DEFAULT, n.getMark());
+		}
+
+		for(int i = 0; i < graph.getEdgeList().size(); i++){
+			IEdgeExt e = graph.getEdgeList().getEdgeExt(i);
+			assertFalse(e.isVisited());
+			assertEquals(MarkEnum.DEFAULT, e.getMark());
+		}
+	}
+
+	/**
+	 * The ids are assigned in the order of the node and edge lists,
+	 * unknown elements get the next free id.
+	 */
+	public void testIds() {
+		IDirectedGraphExt graph = createTestGraph();
+		TraversalState state = new TraversalState(graph);
+
+		for(int i = 0; i < graph.getNodeList().size(); i++){
+			assertEquals(i, state.getId(graph.getNodeList().getNodeExt(i)));
+		}
+		for(int i = 0; i < graph.getEdgeList().size(); i++){
+			assertEquals(i, state.getId(graph.getEdgeList().getEdgeExt(i)));
+		}
+
+		INodeExt n = GraphExtentionFactory.createNodeExtention("n");
+		assertEquals(4, state.getId(n));
+		assertEquals(4, state.getId(n));
+
+		IEdgeExt e = GraphExtentionFactory.createEdgeExtention(n, n);
+		assertEquals(4, state.getId(e));
+	}
+
+	/**
+	 * The flags and values are kept in the state,
+	 * the graph is not modified.
+	 */
+	public void testFlagsAndValues() {
+		IDirectedGraphExt graph = createTestGraph();
+		TraversalState state = new TraversalState(graph);
+
+		INodeExt n = graph.getNodeList().getNodeExt(1);
+		IEdgeExt e = graph.getEdgeList().getEdgeExt(2);
+
+		state.setVisited(n, true);
+		state.setVisited(e, true);
+		state.setMarked(n, true);
+		state.setMarked(e, true);
+		state.setValue(e, 42);
+
+		assertTrue(state.isVisited(n));
+		assertTrue(state.isVisited(e));
+		assertTrue(state.isMarked(n));
+		assertTrue(state.isMarked(e));
+		assertEquals(42, state.getValue(e));
+		assertFalse(state.isVisited(graph.getNodeList().getNodeExt(0)));
+		assertEquals(0, state.getValue(graph.getEdgeList().getEdgeExt(0)));
+		assertUnmodified(graph);
+
+		/* values of elements added after the creation of the state */
+		IEdgeExt e2 = null;
+		for(int i = 0; i < 20; i++){
+			e2 = GraphExtentionFactory.createEdgeExtention(n, n);
+			state.setValue(e2, i);
+		}
+		assertEquals(19, state.getValue(e2));
+
+		state.clearVisited();
+		assertFalse(state.isVisited(n));
+		assertFalse(state.isVisited(e));
+		assertTrue(state.isMarked(n));
+		assertEquals(42, state.getValue(e));
+
+		state.clear();
+		assertFalse(state.isMarked(n));
+		assertFalse(state.isMarked(e));
+		assertEquals(0, state.getValue(e));
+	}
+
+	/**
+	 * The back edges are found again on the same graph,
+	 * the graph is not modified by the DFS.
+	 */
+	public void testFindBackEdges() {
+		IDirectedGraphExt graph = createTestGraph();
+
+		for(int i = 0; i < 2; i++){
+			IEdgeListExt backEdges = SpanningTreeFinder.findBackEdges(graph);
+			assertEquals(1, backEdges.size());
+			assertEquals("v2", backEdges.getEdgeExt(0).getSource().getData());
+			assertEquals("v1", backEdges.getEdgeExt(0).getTarget().getData());
+			assertUnmodified(graph);
+		}
+	}
+
+	/**
+	 * The weights of the graph are not modified by the Hungarian method.
+	 */
+	public void testHungarianMethodKeepsWeights() {
+		int [][] weights = {
+				{10, 9, 3},
+				{ 5, 6, 7},
+				{ 1, 4, 8}
+		};
+
+		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
+		List<INodeExt> partA = new ArrayList<INodeExt>();
+		List<INodeExt> partB = new ArrayList<INodeExt>();
+		for(int i = 0; i < weights.length; i++){
+			INodeExt a = GraphExtentionFactory.createNodeExtention("a" + i);
+			graph.getNodeList().add(a);
+			partA.add(a);
+
+			INodeExt b = GraphExtentionFactory.createNodeExtention("b" + i);
+			graph.getNodeList().add(b);
+			partB.add(b);
+		}
+
+		for(int i = 0; i < weights.length; i++){
+			for(int j = 0; j < weights.length; j++){
+				IEdgeExt edge = GraphExtentionFactory.createEdgeExtention(partA.get(i), partB.get(j));
+				edge.setCounter(weights[i][j]);
+				graph.getEdgeList().add(edge);
+			}
+		}
+
+		for(int k = 0; k < 2; k++){
+			List<IEdgeExt> edges = new HungarianMethod().execute(graph, partA, partB);
+			assertEquals(3, edges.size());
+
+			int weight = 0;
+			for(IEdgeExt e : edges){
+				weight += e.getCounter();
+			}
+			assertEquals(10, weight);
+
+			for(int i = 0; i < graph.getEdgeList().size(); i++){
+				IEdgeExt e = graph.getEdgeList().getEdgeExt(i);
+				int a = partA.indexOf(e.getSource());
+				int b = partB.indexOf(e.getTarget());
+				assertEquals(weights[a][b], e.getCounter());
+			}
+			assertUnmodified(graph);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.drgarbage.bytecode;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+
+/**
+ * Test class for {@link com.drgarbage.bytecode.ByteCursor}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ByteCursorTest extends TestCase {
+
+	private static final byte[] BYTES = {
+		0x55,                                           /* not in the region */
+		(byte) 0xFF, (byte) 0xFE,                       /* 0 short */
+		(byte) 0x80, 0x00, 0x00, 0x01,                  /* 2 int */
+		0x3F, (byte) 0xF0, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, /* 6 double 1.0 */
+		0x00, 0x03, 'a', (byte) 0xC3, (byte) 0xA4,      /* 14 UTF "a\u00e4" */
+		0x55                                            /* not in the region */
+	};
+
+	/**
+	 * The values are read big endian like by a
+	 * {@link DataInputStream}, the byte count is relative
+	 * to the start of the region.
+	 * @throws IOException
+	 */
+	public void testRead() throws IOException {
+		ByteCursor c = new ByteCursor(BYTES, 1, BYTES.length - 2);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(BYTES, 1, BYTES.length - 2));
+
+		assertEquals(0, c.getByteCount());
+		assertEquals(in.readShort(), c.readShort());
+		assertEquals(2, c.getByteCount());
+		assertEquals(in.readInt(), c.readInt());
+		assertEquals(in.readDouble(), c.readDouble(), 0.0);
+		assertEquals(in.readUTF(), c.readUTF());
+		assertEquals(19, c.getByteCount());
+		assertEquals(0, c.remaining());
+
+		c.seek(0);
+		assertEquals(0xFFFE, c.readUnsignedShort());
+		assertEquals(0xFF, c.peekUnsignedByte(0));
+		assertEquals(4, c.skipBytes(4));
+		assertEquals(6, c.getByteCount());
+		byte[] b = new byte[4];
+		c.readFully(b, 1, 3);
+		assertEquals(0x3F, b[1]);
+		assertEquals(0x00, b[3]);
+	}
+
+	/**
+	 * Reading beyond the end of the region fails, the bytes
+	 * after the region are not read.
+	 * @throws IOException
+	 */
+	public void testEndOfRegion() throws IOException {
+		ByteCursor c = new ByteCursor(BYTES, 1, 3);
+		c.readShort();
+		try {
+			c.readShort();
+			fail("EOFException expected");
+		} catch (EOFException e) {
+			/* expected */
+		}
+		assertEquals(0, c.remaining());
+		assertEquals(3, c.getByteCount());
+
+		c.seek(0);
+		assertEquals(3, c.skipBytes(10));
+		assertEquals(0, c.skipBytes(1));
+
+		try {
+			c.seek(4);
+			fail("IndexOutOfBoundsException expected");
+		} catch (IndexOutOfBoundsException e) {
+			/* expected */
+		}
+
+		try {
+			new ByteCursor(BYTES, BYTES.length - 1, 2);
+			fail("IndexOutOfBoundsException expected");
+		} catch (IndexOutOfBoundsException e) {
+			/* expected */
+		}
+	}
+
+	/**
+	 * The cursor reads a buffer at absolute positions, the
+	 * position, limit and byte order of the buffer are kept.
+	 * Direct buffers are read like heap buffers.
+	 * @throws IOException
+	 */
+	public void testBuffer() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BYTES.length);
+		buffer.put(BYTES);
+		buffer.position(3);
+		buffer.limit(7);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		ByteCursor c = new ByteCursor(buffer);
+		assertEquals(0x80000001, c.readInt());
+		assertEquals(0, c.remaining());
+
+		c = new ByteCursor(buffer, 1, BYTES.length - 2);
+		assertEquals(-2, c.readShort());
+		c.seek(6);
+		byte[] b = new byte[8];
+		c.readFully(b);
+		assertEquals(0x3F, b[0]);
+		assertEquals((byte) 0xF0, b[1]);
+
+		assertEquals(3, buffer.position());
+		assertEquals(7, buffer.limit());
+		assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+	}
+
+	/**
+	 * Lines end with LF, CR or CR LF.
+	 * @throws IOException
+	 */
+	public void testReadLine() throws IOException {
+		ByteCursor c = new ByteCursor("a\r\nb\rc\nd".getBytes("ISO-8859-1"));
+		assertEquals("a", c.readLine());
+		assertEquals("b", c.readLine());
+		assertEquals("c", c.readLine());
+		assertEquals("d", c.readLine());
+		assertNull(c.readLine());
+	}
+}
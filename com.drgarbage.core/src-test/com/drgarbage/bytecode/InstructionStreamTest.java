@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecode;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.bytecode.instructions.BranchInstruction;
+import com.drgarbage.bytecode.instructions.ImmediateShortInstruction;
+import com.drgarbage.bytecode.instructions.IncrementInstruction;
+import com.drgarbage.bytecode.instructions.LookupSwitchInstruction;
+import com.drgarbage.bytecode.instructions.Opcodes;
+import com.drgarbage.bytecode.instructions.TableSwitchInstruction;
+
+/**
+ * Test class for {@link com.drgarbage.bytecode.InstructionStream}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class InstructionStreamTest extends TestCase implements Opcodes {
+
+	private static byte[] bytes(int... values) {
+		byte[] b = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			b[i] = (byte) values[i];
+		}
+		return b;
+	}
+
+	/**
+	 * The offsets and opcodes are scanned without creating
+	 * the instruction objects.
+	 * @throws IOException
+	 */
+	public void testOffsets() throws IOException {
+		byte[] code = bytes(
+				OPCODE_ICONST_0,
+				OPCODE_ISTORE_1,
+				OPCODE_SIPUSH, 0xFF, 0xFE,
+				OPCODE_GOTO, 0xFF, 0xFB,
+				OPCODE_RETURN);
+		InstructionStream s = new InstructionStream(code, 0, code.length);
+
+		assertEquals(5, s.size());
+		assertEquals(0, s.getOffset(0));
+		assertEquals(2, s.getOffset(2));
+		assertEquals(5, s.getOffset(3));
+		assertEquals(8, s.getOffset(4));
+		assertEquals(OPCODE_GOTO, s.getOpcode(3));
+
+		assertEquals(3, s.getIndex(5));
+		assertEquals(-1, s.getIndex(3));
+		assertEquals(-1, s.getIndex(-1));
+		assertEquals(-1, s.getIndex(code.length));
+		assertNull(s.getInstructionAt(6));
+
+		try {
+			s.getOffset(5);
+			fail("IndexOutOfBoundsException expected");
+		} catch (IndexOutOfBoundsException e) {
+			/* expected */
+		}
+	}
+
+	/**
+	 * The branch offsets and increments are sign extended,
+	 * the constant pool indices are unsigned.
+	 * @throws IOException
+	 */
+	public void testSignExtension() throws IOException {
+		byte[] code = bytes(
+				OPCODE_LDC_W, 0xFF, 0xFE,
+				OPCODE_GOTO, 0xFF, 0xFD,
+				OPCODE_IINC, 1, 0xFF);
+		InstructionStream s = new InstructionStream(code, 0, code.length);
+
+		assertEquals(0xFFFE, ((ImmediateShortInstruction) s.get(0)).getImmediateShort());
+		assertEquals(-3, ((BranchInstruction) s.get(1)).getBranchOffset());
+		assertEquals(-1, ((IncrementInstruction) s.get(2)).getIncrementConst());
+		assertSame(s.get(1), s.getInstructionAt(3));
+		assertEquals(3, s.get(1).getOffset());
+	}
+
+	/**
+	 * The operands of an instruction prefixed
+	 * by <code>wide</code> are two bytes longer.
+	 * @throws IOException
+	 */
+	public void testWide() throws IOException {
+		byte[] code = bytes(
+				OPCODE_WIDE, OPCODE_IINC, 0x01, 0x00, 0xFF, 0x00,
+				OPCODE_WIDE, OPCODE_ILOAD, 0x01, 0x00,
+				OPCODE_IRETURN);
+		InstructionStream s = new InstructionStream(code, 0, code.length);
+
+		assertEquals(5, s.size());
+		assertEquals(1, s.getOffset(1));
+		assertEquals(6, s.getOffset(2));
+		assertEquals(7, s.getOffset(3));
+		assertEquals(10, s.getOffset(4));
+
+		IncrementInstruction iinc = (IncrementInstruction) s.get(1);
+		assertEquals(256, iinc.getLocalVariableIndex());
+		assertEquals(-256, iinc.getIncrementConst());
+	}
+
+	/**
+	 * The padding of the switches is aligned to the start of the code,
+	 * not to the start of the array.
+	 * @throws IOException
+	 */
+	public void testSwitches() throws IOException {
+		byte[] code = bytes(
+				0x55, 0x55, 0x55,                 /* bytes before the code */
+				OPCODE_ILOAD_0,                   /* 0 */
+				OPCODE_TABLESWITCH, 0, 0,         /* 1, padding 2..3 */
+				0, 0, 0, 36,                      /* 4 default */
+				0, 0, 0, 1,                       /* 8 low */
+				0, 0, 0, 2,                       /* 12 high */
+				0, 0, 0, 32,                      /* 16 */
+				0xFF, 0xFF, 0xFF, 0xFF,           /* 20 */
+				OPCODE_ILOAD_0,                   /* 24 */
+				OPCODE_LOOKUPSWITCH, 0, 0,        /* 25, padding 26..27 */
+				0, 0, 0, 11,                      /* 28 default */
+				0, 0, 0, 1,                       /* 32 npairs */
+				0xFF, 0xFF, 0xFF, 0xF6,           /* 36 match */
+				0, 0, 0, 11,                      /* 40 offset */
+				OPCODE_RETURN);                   /* 44 */
+		InstructionStream s = new InstructionStream(code, 3, code.length - 3);
+
+		assertEquals(5, s.size());
+		assertEquals(24, s.getOffset(2));
+		assertEquals(25, s.getOffset(3));
+		assertEquals(44, s.getOffset(4));
+
+		TableSwitchInstruction table = (TableSwitchInstruction) s.get(1);
+		assertEquals(1, table.getLow());
+		assertEquals(2, table.getHigh());
+		assertEquals(-1, table.getJumpOffsets()[1]);
+
+		LookupSwitchInstruction lookup = (LookupSwitchInstruction) s.get(3);
+		assertEquals(1, lookup.getMatchOffsetPairs().size());
+		assertEquals(-10, lookup.getMatchOffsetPairs().get(0).getMatch());
+	}
+
+	/**
+	 * Invalid opcodes and instructions crossing the end
+	 * of the code are rejected.
+	 */
+	public void testInvalidCode() {
+		assertInvalid(bytes(0xCB));
+		assertInvalid(bytes(OPCODE_NOP, OPCODE_SIPUSH, 0x00));
+		assertInvalid(bytes(OPCODE_TABLESWITCH, 0, 0, 0, 0, 0, 0, 0));
+		assertInvalid(bytes(OPCODE_LOOKUPSWITCH, 0, 0, 0, 0, 0, 0, 0, 0x7F, 0xFF, 0xFF, 0xFF));
+
+		/* the bytes after the region are not part of the code */
+		byte[] code = bytes(OPCODE_NOP, OPCODE_GOTO, 0x00, 0x00);
+		try {
+			new InstructionStream(code, 0, 3);
+			fail("IOException expected");
+		} catch (IOException e) {
+			/* expected */
+		}
+	}
+
+	private void assertInvalid(byte[] code) {
+		try {
+			new InstructionStream(code, 0, code.length);
+			fail("IOException expected");
+		} catch (IOException e) {
+			/* expected */
+		}
+	}
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecode;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.bytecode.StackMapFrame.VerificationTypeInfo;
+import com.drgarbage.bytecode.constant_pool.AbstractConstantPoolEntry;
+import com.drgarbage.bytecode.constant_pool.ConstantUtf8Info;
+import com.drgarbage.bytecode.instructions.Opcodes;
+
+/**
+ * Test class for {@link com.drgarbage.bytecode.StackMapFrame}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class StackMapFrameTest extends TestCase {
+
+	private static byte[] bytes(int... values) {
+		byte[] b = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			b[i] = (byte) values[i];
+		}
+		return b;
+	}
+
+	/**
+	 * Reads the frames from the bytes.
+	 * @param count the number of frames
+	 * @param values the bytes of the frames
+	 * @return the frames
+	 * @throws IOException
+	 */
+	private static StackMapFrame[] read(int count, int... values) throws IOException {
+		ByteCursor in = new ByteCursor(bytes(values));
+		StackMapFrame[] frames = new StackMapFrame[count];
+		StackMapFrame previous = null;
+		for (int i = 0; i < count; i++) {
+			frames[i] = new StackMapFrame();
+			frames[i].read(in, previous);
+			previous = frames[i];
+		}
+		assertEquals(0, in.remaining());
+		return frames;
+	}
+
+	private static void assertTypes(int[] tags, VerificationTypeInfo[] types) {
+		assertEquals(tags.length, types.length);
+		for (int i = 0; i < tags.length; i++) {
+			assertEquals(tags[i], types[i].getTag());
+		}
+	}
+
+	/**
+	 * The offset of the first frame is the delta, the offsets
+	 * of the following frames are the offset of the previous
+	 * frame plus the delta plus one.
+	 * @throws IOException
+	 */
+	public void testOffsets() throws IOException {
+		StackMapFrame[] frames = read(4,
+				5,                      /* same, delta 5 */
+				0,                      /* same, delta 0 */
+				63,                     /* same, delta 63 */
+				251, 0x01, 0x00);       /* same extended, delta 256 */
+
+		assertEquals(5, frames[0].getOffset());
+		assertEquals(6, frames[1].getOffset());
+		assertEquals(70, frames[2].getOffset());
+		assertEquals(327, frames[3].getOffset());
+	}
+
+	/**
+	 * The same frames have no locals and an empty stack.
+	 * @throws IOException
+	 */
+	public void testSame() throws IOException {
+		StackMapFrame[] frames = read(2,
+				10,
+				StackMapFrame.SAME_FRAME_EXTENDED, 0x00, 0x02);
+
+		assertEquals(StackMapFrame.SAME, frames[0].getFrameType());
+		assertEquals(10, frames[0].getOffset());
+		assertEquals(0, frames[0].getLocals().length);
+		assertEquals(0, frames[0].getStack().length);
+
+		assertEquals(StackMapFrame.SAME_FRAME_EXTENDED, frames[1].getFrameType());
+		assertEquals(13, frames[1].getOffset());
+		assertEquals(0, frames[1].getLocals().length);
+		assertEquals(0, frames[1].getStack().length);
+	}
+
+	/**
+	 * The same locals 1 stack item frames have one
+	 * entry on the stack.
+	 * @throws IOException
+	 */
+	public void testSameLocals1StackItem() throws IOException {
+		StackMapFrame[] frames = read(3,
+				64 + 3, StackMapFrame.ITEM_INTEGER,
+				127, StackMapFrame.ITEM_OBJECT, 0x00, 0x0C,
+				StackMapFrame.SAME_LOCALS_1_STACK_ITEM_EXTENDED, 0x01, 0x00, StackMapFrame.ITEM_DOUBLE);
+
+		assertEquals(StackMapFrame.SAME_LOCALS_1_STACK_ITEM, frames[0].getFrameType());
+		assertEquals(3, frames[0].getOffset());
+		assertTypes(new int[]{StackMapFrame.ITEM_INTEGER}, frames[0].getStack());
+
+		assertEquals(StackMapFrame.SAME_LOCALS_1_STACK_ITEM, frames[1].getFrameType());
+		assertEquals(67, frames[1].getOffset());
+		assertTypes(new int[]{StackMapFrame.ITEM_OBJECT}, frames[1].getStack());
+		assertEquals(12, frames[1].getStack()[0].getIndex());
+
+		assertEquals(StackMapFrame.SAME_LOCALS_1_STACK_ITEM_EXTENDED, frames[2].getFrameType());
+		assertEquals(324, frames[2].getOffset());
+		assertTypes(new int[]{StackMapFrame.ITEM_DOUBLE}, frames[2].getStack());
+		assertTrue(frames[2].getStack()[0].isCategory2());
+		assertEquals(0, frames[2].getLocals().length);
+	}
+
+	/**
+	 * The chop frames remove one to three locals.
+	 * @throws IOException
+	 */
+	public void testChop() throws IOException {
+		StackMapFrame[] frames = read(3,
+				248, 0x00, 0x04,
+				249, 0x00, 0x00,
+				250, 0x00, 0x01);
+
+		for (int i = 0; i < frames.length; i++) {
+			assertEquals(StackMapFrame.CHOP, frames[i].getFrameType());
+			assertEquals(3 - i, frames[i].getChoppedLocals());
+			assertEquals(0, frames[i].getStack().length);
+		}
+		assertEquals(4, frames[0].getOffset());
+		assertEquals(5, frames[1].getOffset());
+		assertEquals(7, frames[2].getOffset());
+	}
+
+	/**
+	 * The append frames add one to three locals.
+	 * @throws IOException
+	 */
+	public void testAppend() throws IOException {
+		StackMapFrame[] frames = read(2,
+				252, 0x00, 0x08, StackMapFrame.ITEM_LONG,
+				254, 0x00, 0x02, StackMapFrame.ITEM_FLOAT,
+						StackMapFrame.ITEM_UNINITIALIZED, 0x00, 0x05,
+						StackMapFrame.ITEM_TOP);
+
+		assertEquals(StackMapFrame.APPEND, frames[0].getFrameType());
+		assertEquals(8, frames[0].getOffset());
+		assertTypes(new int[]{StackMapFrame.ITEM_LONG}, frames[0].getLocals());
+		assertEquals(0, frames[0].getStack().length);
+
+		assertEquals(StackMapFrame.APPEND, frames[1].getFrameType());
+		assertEquals(11, frames[1].getOffset());
+		assertTypes(new int[]{StackMapFrame.ITEM_FLOAT, StackMapFrame.ITEM_UNINITIALIZED,
+				StackMapFrame.ITEM_TOP}, frames[1].getLocals());
+		assertEquals(5, frames[1].getLocals()[1].getIndex());
+	}
+
+	/**
+	 * The full frames contain all locals and the stack.
+	 * @throws IOException
+	 */
+	public void testFull() throws IOException {
+		StackMapFrame[] frames = read(2,
+				StackMapFrame.FULL_FRAME, 0x00, 0x11,
+						0x00, 0x02, StackMapFrame.ITEM_UNINITIALIZED_THIS, StackMapFrame.ITEM_INTEGER,
+						0x00, 0x02, StackMapFrame.ITEM_NULL, StackMapFrame.ITEM_OBJECT, 0x00, 0x03,
+				StackMapFrame.FULL_FRAME, 0x00, 0x00,
+						0x00, 0x00,
+						0x00, 0x00);
+
+		assertEquals(StackMapFrame.FULL_FRAME, frames[0].getFrameType());
+		assertEquals(17, frames[0].getOffset());
+		assertTypes(new int[]{StackMapFrame.ITEM_UNINITIALIZED_THIS, StackMapFrame.ITEM_INTEGER}, frames[0].getLocals());
+		assertTypes(new int[]{StackMapFrame.ITEM_NULL, StackMapFrame.ITEM_OBJECT}, frames[0].getStack());
+		assertEquals(3, frames[0].getStack()[1].getIndex());
+		assertEquals(ByteCodeConstants.L_REFERENCE, frames[0].getStack()[0].getDescriptorType());
+
+		assertEquals(18, frames[1].getOffset());
+		assertEquals(0, frames[1].getLocals().length);
+		assertEquals(0, frames[1].getStack().length);
+	}
+
+	/**
+	 * The reserved frame types are rejected.
+	 */
+	public void testReserved() {
+		for (int type = 128; type < StackMapFrame.SAME_LOCALS_1_STACK_ITEM_EXTENDED; type += 59) {
+			assertReserved(type);
+		}
+		assertReserved(StackMapFrame.SAME_LOCALS_1_STACK_ITEM_EXTENDED - 1);
+	}
+
+	private static void assertReserved(int type) {
+		try {
+			read(1, type, 0x00, 0x00);
+			fail("IOException expected");
+		} catch (IOException e) {
+			/* expected */
+		}
+	}
+
+	/**
+	 * A <code>StackMapTable</code> with a reserved frame type is dropped,
+	 * the following attributes of the code are still read.
+	 */
+	public void testInvalidStackMapTable() {
+		AbstractConstantPoolEntry[] constantPool = new AbstractConstantPoolEntry[3];
+		ConstantUtf8Info name = new ConstantUtf8Info(constantPool);
+		name.setString(ByteCodeConstants.STACK_MAP_TABLE);
+		constantPool[1] = name;
+		name = new ConstantUtf8Info(constantPool);
+		name.setString(ByteCodeConstants.LINE_NUMBER_TABLE);
+		constantPool[2] = name;
+
+		byte[] code = bytes(
+				Opcodes.OPCODE_RETURN,
+				0x00, 0x00,                         /* exception table */
+				0x00, 0x02,                         /* attributes */
+				0x00, 0x01, 0x00, 0x00, 0x00, 0x06, /* StackMapTable */
+				0x00, 0x02, 5, 128, 0x00, 0x00,
+				0x00, 0x02, 0x00, 0x00, 0x00, 0x06, /* LineNumberTable */
+				0x00, 0x01, 0x00, 0x00, 0x00, 0x07);
+		InstructionParser parser = new InstructionParser(code, 0, 1);
+		assertEquals(1, parser.parse().size());
+		assertEquals(0, parser.parseExceptionTable().length);
+
+		Set<String> attributeNames = new HashSet<String>();
+		attributeNames.add(ByteCodeConstants.STACK_MAP_TABLE);
+		attributeNames.add(ByteCodeConstants.LINE_NUMBER_TABLE);
+		Map<String, Object> attrs = parser.parseAttributes(attributeNames, constantPool);
+
+		assertNull(attrs.get(ByteCodeConstants.STACK_MAP_TABLE));
+		LineNumberTableEntry[] lines = (LineNumberTableEntry[]) attrs.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+		assertEquals(1, lines.length);
+		assertEquals(7, lines[0].getLineNumber());
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.drgarbage.bytecode.compare;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.asm.ClassWriter;
+import com.drgarbage.asm.Label;
+import com.drgarbage.asm.MethodVisitor;
+import com.drgarbage.asm.Opcodes;
+import com.drgarbage.bytecode.compare.ClassDifference.MemberDifference;
+
+/**
+ * Test class for {@link com.drgarbage.bytecode.compare.ClassComparator}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ClassComparatorTest extends TestCase {
+
+	private File root;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		root = File.createTempFile("compare", "");
+		root.delete();
+		root.mkdirs();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		delete(root);
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+
+	private static void write(File file, byte[] content) throws IOException {
+		file.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Creates a class with the method <code>int m(int)</code>,
+	 * which consists of two basic blocks.
+	 * @param name the internal class name
+	 * @param constant the constant returned by the second block
+	 * @param method <code>true</code> if the method <code>void n()</code>
+	 *          is created
+	 * @return the class file
+	 */
+	private static byte[] createClass(String name, int constant, boolean method) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "m", "(I)I", null, null);
+		mv.visitCode();
+		Label zero = new Label();
+		mv.visitVarInsn(Opcodes.ILOAD, 0);
+		mv.visitJumpInsn(Opcodes.IFEQ, zero);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitLabel(zero);
+		mv.visitIntInsn(Opcodes.BIPUSH, constant);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		if (method) {
+			mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "n", "()V", null, null);
+			mv.visitCode();
+			mv.visitInsn(Opcodes.RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Equal class files are identical, the changed method is
+	 * compared by its basic blocks.
+	 */
+	public void testChangedMethod() {
+		ClassComparator comparator = new ClassComparator();
+		byte[] a = createClass("p/A", 5, true);
+		ClassDifference diff = comparator.compare(a, a.clone());
+		assertTrue(diff.isIdentical());
+		assertEquals("p.A", diff.getClassName());
+
+		diff = comparator.compare(a, createClass("p/A", 6, true));
+		assertEquals(ClassDifference.KIND_CHANGED, diff.getKind());
+		assertFalse(diff.isHeaderChanged());
+		assertEquals(1, diff.getIdenticalMembers());
+		assertEquals(1, diff.getMemberDifferences().size());
+
+		MemberDifference m = diff.getMemberDifferences().get(0);
+		assertEquals(ClassDifference.KIND_CHANGED, m.getKind());
+		assertEquals(ClassFingerprint.MEMBER_TYPE_METHOD, m.getMemberType());
+		assertEquals("m", m.getName());
+		assertEquals("(I)I", m.getDescriptor());
+		assertEquals(3, m.getLeftBlocks());
+		assertEquals(3, m.getRightBlocks());
+		assertEquals(2, m.getCommonBlocks());
+		assertEquals("1 changed, 0 added, 0 removed, 1 identical", diff.getSummary());
+	}
+
+	/**
+	 * The members are matched by their names and descriptors.
+	 */
+	public void testAddedAndRemovedMembers() {
+		ClassComparator comparator = new ClassComparator();
+		byte[] a = createClass("p/A", 5, false);
+		byte[] b = createClass("p/A", 5, true);
+
+		ClassDifference diff = comparator.compare(a, b);
+		assertEquals(ClassDifference.KIND_CHANGED, diff.getKind());
+		assertEquals(1, diff.getMemberDifferences().size());
+		assertEquals(ClassDifference.KIND_ADDED, diff.getMemberDifferences().get(0).getKind());
+		assertEquals("n", diff.getMemberDifferences().get(0).getName());
+
+		diff = comparator.compare(b, a);
+		assertEquals(1, diff.getMemberDifferences().size());
+		assertEquals(ClassDifference.KIND_REMOVED, diff.getMemberDifferences().get(0).getKind());
+	}
+
+	/**
+	 * The classes of two directories are compared by name. A
+	 * malformed class is reported as error, the other classes
+	 * are still compared.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void testDirectories() throws IOException, InterruptedException {
+		File left = new File(root, "left");
+		File right = new File(root, "right");
+		write(new File(left, "p/A.class"), createClass("p/A", 5, true));
+		write(new File(right, "p/A.class"), createClass("p/A", 5, true));
+		write(new File(left, "p/B.class"), createClass("p/B", 5, true));
+		write(new File(right, "p/B.class"), createClass("p/B", 6, true));
+		write(new File(left, "p/C.class"), createClass("p/C", 5, true));
+		write(new File(right, "p/D.class"), createClass("p/D", 5, true));
+		write(new File(left, "p/E.class"), createClass("p/E", 5, true));
+		write(new File(right, "p/E.class"), new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0});
+
+		ClassComparator comparator = new ClassComparator();
+		comparator.setThreads(2);
+		List<ClassDifference> diffs = comparator.compare(left, right);
+		assertEquals(4, diffs.size());
+
+		assertEquals("p.B", diffs.get(0).getClassName());
+		assertEquals(ClassDifference.KIND_CHANGED, diffs.get(0).getKind());
+		assertEquals("p.C", diffs.get(1).getClassName());
+		assertEquals(ClassDifference.KIND_REMOVED, diffs.get(1).getKind());
+		assertEquals("p.D", diffs.get(2).getClassName());
+		assertEquals(ClassDifference.KIND_ADDED, diffs.get(2).getKind());
+
+		ClassDifference error = diffs.get(3);
+		assertEquals("p.E", error.getClassName());
+		assertEquals(ClassDifference.KIND_ERROR, error.getKind());
+		assertNotNull(error.getErrorMessage());
+		assertTrue(error.getSummary().startsWith("error: "));
+	}
+
+	/**
+	 * The command line prints one line per class
+	 * and one indented line per member.
+	 */
+	public void testPrint() {
+		ClassComparator comparator = new ClassComparator();
+		List<ClassDifference> diffs = new ArrayList<ClassDifference>();
+		diffs.add(comparator.compare(createClass("p/A", 5, false), createClass("p/A", 6, true)));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes);
+		BatchClassCompare.print(diffs, out, true);
+		out.flush();
+		String[] lines = bytes.toString().split("\\r?\\n");
+		assertEquals(3, lines.length);
+		assertEquals("p.A: 1 changed, 1 added, 0 removed, 0 identical", lines[0]);
+		assertTrue(lines[1].startsWith("  changed m(I)I"));
+		assertEquals("  added n()V", lines[2]);
+
+		bytes.reset();
+		BatchClassCompare.print(diffs, out, false);
+		out.flush();
+		assertEquals(1, bytes.toString().split("\\r?\\n").length);
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.drgarbage.bytecode.compare;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.asm.ClassWriter;
+import com.drgarbage.asm.FieldVisitor;
+import com.drgarbage.asm.Label;
+import com.drgarbage.asm.MethodVisitor;
+import com.drgarbage.asm.Opcodes;
+import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.compare.ClassFingerprint.Member;
+import com.drgarbage.bytecode.instructions.IConstantPoolIndexProvider;
+
+/**
+ * Test class for {@link com.drgarbage.bytecode.compare.ClassFingerprint}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ClassFingerprintTest extends TestCase {
+
+	private static final String M = ClassFingerprint.getMemberKey(ClassFingerprint.MEMBER_TYPE_METHOD, "m", "(Ljava/lang/Object;)I");
+	private static final String N = ClassFingerprint.getMemberKey(ClassFingerprint.MEMBER_TYPE_METHOD, "n", "()V");
+	private static final String F = ClassFingerprint.getMemberKey(ClassFingerprint.MEMBER_TYPE_FIELD, "f", "I");
+
+	/**
+	 * Creates the class <code>p/A</code> with the field <code>f</code>
+	 * and the methods <code>int m(Object)</code> and <code>void n()</code>.
+	 * @param reorder <code>true</code> if the constants of the method
+	 *          <code>m</code> are created before the other constants
+	 * @param padding the number of unused constants created before the
+	 *          constants of the methods
+	 * @param constant the constant returned by <code>m</code>
+	 * @param lineNumbers <code>true</code> if a line number table is created
+	 * @return the class file
+	 */
+	static byte[] createClass(boolean reorder, int padding, int constant, boolean lineNumbers) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		if (reorder) {
+			cw.newConst("x");
+			cw.newUTF8("(Ljava/lang/Object;)I");
+			cw.newUTF8("m");
+		}
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, "p/A", null, "java/lang/Object", null);
+		for (int i = 0; i < padding; i++) {
+			cw.newUTF8("c" + i);
+		}
+
+		FieldVisitor fv = cw.visitField(Opcodes.ACC_PRIVATE, "f", "I", null, null);
+		fv.visitEnd();
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "m", "(Ljava/lang/Object;)I", null, null);
+		mv.visitCode();
+		Label start = new Label();
+		mv.visitLabel(start);
+		if (lineNumbers) {
+			mv.visitLineNumber(5, start);
+		}
+		Label equal = new Label();
+		mv.visitLdcInsn("x");
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitJumpInsn(Opcodes.IF_ACMPEQ, equal);
+		mv.visitIntInsn(Opcodes.BIPUSH, constant);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitLabel(equal);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "n", "()V", null, null);
+		mv.visitCode();
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void assertSameMembers(ClassFingerprint expected, ClassFingerprint actual) {
+		assertEquals(expected.getClassName(), actual.getClassName());
+		assertEquals(expected.getHeaderHash(), actual.getHeaderHash());
+		assertEquals(expected.getMembers().size(), actual.getMembers().size());
+		for (Member m : expected.getMembers()) {
+			assertEquals(m.getKey(), m.getHash(), actual.getMember(m.getKey()).getHash());
+		}
+	}
+
+	/**
+	 * The constants are resolved to their symbols, a reordered
+	 * constant pool and the line numbers do not change the hashes.
+	 */
+	public void testReorderedConstantPool() {
+		ClassFingerprint a = ClassFingerprint.create(createClass(false, 0, 0, false));
+		ClassFingerprint b = ClassFingerprint.create(createClass(true, 0, 0, true));
+
+		int indexA = ((IConstantPoolIndexProvider) a.getMember(M).getInstructions().get(0)).getConstantPoolIndex();
+		int indexB = ((IConstantPoolIndexProvider) b.getMember(M).getInstructions().get(0)).getConstantPoolIndex();
+		assertTrue(indexA != indexB);
+		assertFalse(a.getContentHash().equals(b.getContentHash()));
+
+		assertSameMembers(a, b);
+	}
+
+	/**
+	 * A constant with an index above 255 is loaded by <code>ldc_w</code>,
+	 * the following branches are shifted. The branch targets are
+	 * compared as instruction indices.
+	 */
+	public void testShiftedBranches() {
+		ClassFingerprint a = ClassFingerprint.create(createClass(false, 0, 0, false));
+		ClassFingerprint b = ClassFingerprint.create(createClass(false, 300, 0, false));
+
+		assertEquals(ByteCodeConstants.OPCODE_LDC, a.getMember(M).getInstructions().get(0).getOpcode());
+		assertEquals(ByteCodeConstants.OPCODE_LDC_W, b.getMember(M).getInstructions().get(0).getOpcode());
+		assertEquals(6, a.getMember(M).getInstructions().get(3).getOffset());
+		assertEquals(7, b.getMember(M).getInstructions().get(3).getOffset());
+		assertEquals("ldc \"x\"", b.getMember(M).getOperations()[0]);
+
+		assertSameMembers(a, b);
+	}
+
+	/**
+	 * Only the hash of the changed method changes.
+	 */
+	public void testChangedMethod() {
+		ClassFingerprint a = ClassFingerprint.create(createClass(false, 0, 0, false));
+		ClassFingerprint b = ClassFingerprint.create(createClass(true, 300, 7, true));
+
+		assertEquals(3, b.getMembers().size());
+		assertEquals(a.getHeaderHash(), b.getHeaderHash());
+		assertFalse(a.getMember(M).getHash().equals(b.getMember(M).getHash()));
+		assertEquals(a.getMember(N).getHash(), b.getMember(N).getHash());
+		assertEquals(a.getMember(F).getHash(), b.getMember(F).getHash());
+		assertNull(a.getMember(F).getInstructions());
+	}
+
+	/**
+	 * Truncated class files are rejected.
+	 */
+	public void testInvalidClassFile() {
+		byte[] bytes = createClass(false, 0, 0, false);
+		for (int len = 0; len < bytes.length; len += 17) {
+			try {
+				ClassFingerprint.create(Arrays.copyOf(bytes, len));
+				fail("IllegalArgumentException expected");
+			} catch (IllegalArgumentException e) {
+				/* expected */
+			}
+		}
+	}
+}
@@ -0,0 +1,332 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.drgarbage.controlflowgraph;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.bytecode.ExceptionTableEntry;
+import com.drgarbage.bytecode.InstructionStream;
+import com.drgarbage.bytecode.instructions.AbstractInstruction;
+import com.drgarbage.bytecode.instructions.Opcodes;
+import com.drgarbage.controlflowgraph.intf.IBasicBlock;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+import com.drgarbage.controlflowgraph.intf.INodeListExt;
+import com.drgarbage.controlflowgraph.intf.INodeType;
+
+/**
+ * Test class for the basic block graphs of 
+ * {@link com.drgarbage.controlflowgraph.ControlFlowGraphGenerator}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ControlFlowGraphGeneratorTest extends TestCase implements Opcodes {
+
+	private static List<AbstractInstruction> code(int... values) throws IOException {
+		byte[] b = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			b[i] = (byte) values[i];
+		}
+		return new InstructionStream(b, 0, b.length);
+	}
+
+	private static int getCodeLength(List<AbstractInstruction> instructions) {
+		return ((InstructionStream) instructions).getCodeLength();
+	}
+
+	/**
+	 * Describes the basic blocks by the offsets of their instructions
+	 * followed by the edges and their labels, e.g.
+	 * <code>B1[0 1] B2[4] B1->B2:true</code>. Exception
+	 * edges are described by <code>=&gt;</code>.
+	 * @param graph the basic block graph
+	 * @return the description
+	 */
+	private static String describe(IDirectedGraphExt graph) {
+		StringBuffer buf = new StringBuffer();
+		INodeListExt nodes = graph.getNodeList();
+		for (int i = 0; i < nodes.size(); i++) {
+			IBasicBlock bb = (IBasicBlock) nodes.getNodeExt(i);
+			INodeListExt vertices = bb.getBasicBlockVertices();
+			buf.append(bb.getData()).append('[');
+			for (int j = 0; j < vertices.size(); j++) {
+				if (j > 0) {
+					buf.append(' ');
+				}
+				buf.append(vertices.getNodeExt(j).getByteCodeOffset());
+			}
+			buf.append("] ");
+		}
+
+		IEdgeListExt edges = graph.getEdgeList();
+		for (int i = 0; i < edges.size(); i++) {
+			IEdgeExt e = edges.getEdgeExt(i);
+			buf.append(e.getSource().getData())
+				.append(e.getEdgeType() == IEdgeType.EDGE_TYPE_EXCEPTION ? "=>" : "->")
+				.append(e.getTarget().getData());
+			if (e.getData() != null) {
+				buf.append(':').append(e.getData());
+			}
+			buf.append(' ');
+		}
+
+		return buf.toString().trim();
+	}
+
+	private static String describe(BitSet leaders) {
+		return leaders.toString();
+	}
+
+	/**
+	 * Describes the edges of an instruction graph
+	 * by the bytecode offsets of the nodes.
+	 * @param graph the instruction graph
+	 * @param edgeType the type of the edges
+	 * @return the description, e.g. <code>1->5</code>
+	 */
+	private static String describeEdges(IDirectedGraphExt graph, int edgeType) {
+		StringBuffer buf = new StringBuffer();
+		IEdgeListExt edges = graph.getEdgeList();
+		for (int i = 0; i < edges.size(); i++) {
+			IEdgeExt e = edges.getEdgeExt(i);
+			if (e.getEdgeType() == edgeType) {
+				buf.append(e.getSource().getByteCodeOffset()).append("->")
+					.append(e.getTarget().getByteCodeOffset()).append(' ');
+			}
+		}
+
+		return buf.toString().trim();
+	}
+
+	/**
+	 * A table switch ends a basic block, every target starts one.
+	 * The edges are labeled by the keys and <code>default</code>.
+	 * @throws IOException
+	 */
+	public void testTableSwitch() throws IOException {
+		List<AbstractInstruction> instructions = code(
+				OPCODE_ILOAD_0,                   /* 0 */
+				OPCODE_TABLESWITCH, 0, 0,         /* 1, padding 2..3 */
+				0, 0, 0, 27,                      /* 4 default -> 28 */
+				0, 0, 0, 0,                       /* 8 low */
+				0, 0, 0, 1,                       /* 12 high */
+				0, 0, 0, 23,                      /* 16 -> 24 */
+				0, 0, 0, 25,                      /* 20 -> 26 */
+				OPCODE_ICONST_0, OPCODE_IRETURN,  /* 24 */
+				OPCODE_ICONST_1, OPCODE_IRETURN,  /* 26 */
+				OPCODE_ICONST_2, OPCODE_IRETURN); /* 28 */
+
+		assertEquals("{0, 24, 26, 28}", describe(ControlFlowGraphGenerator.findLeaders(
+				instructions, getCodeLength(instructions), null, false)));
+		assertEquals("B1[0 1] B2[24 25] B3[26 27] B4[28 29] "
+				+ "B1->B2:0 B1->B3:1 B1->B4:default",
+				describe(ControlFlowGraphGenerator.createBasicBlockGraph(instructions, null, false)));
+	}
+
+	/**
+	 * A lookup switch ends a basic block, the default target
+	 * may be the target of a key as well.
+	 * @throws IOException
+	 */
+	public void testLookupSwitch() throws IOException {
+		List<AbstractInstruction> instructions = code(
+				OPCODE_ILOAD_0,                   /* 0 */
+				OPCODE_LOOKUPSWITCH, 0, 0,        /* 1, padding 2..3 */
+				0, 0, 0, 27,                      /* 4 default -> 28 */
+				0, 0, 0, 2,                       /* 8 npairs */
+				0xFF, 0xFF, 0xFF, 0xFF,           /* 12 match -1 */
+				0, 0, 0, 27,                      /* 16 -> 28 */
+				0, 0, 0, 5,                       /* 20 match 5 */
+				0, 0, 0, 29,                      /* 24 -> 30 */
+				OPCODE_ICONST_0, OPCODE_IRETURN,  /* 28 */
+				OPCODE_ICONST_1, OPCODE_IRETURN); /* 30 */
+
+		assertEquals("B1[0 1] B2[28 29] B3[30 31] "
+				+ "B1->B2:-1 B1->B3:5 B1->B2:default",
+				describe(ControlFlowGraphGenerator.createBasicBlockGraph(instructions, null, false)));
+	}
+
+	/**
+	 * The target of a goto starts a basic block even if the goto
+	 * is its only predecessor. Conditional branches are labeled
+	 * by <code>true</code> and <code>false</code>, a goto has no label.
+	 * @throws IOException
+	 */
+	public void testGotoTarget() throws IOException {
+		List<AbstractInstruction> instructions = code(
+				OPCODE_ILOAD_0,                   /* 0 */
+				OPCODE_IFEQ, 0, 7,                /* 1 -> 8 */
+				OPCODE_ICONST_0,                  /* 4 */
+				OPCODE_GOTO, 0, 5,                /* 5 -> 10 */
+				OPCODE_ICONST_1,                  /* 8 */
+				OPCODE_IRETURN,                   /* 9 */
+				OPCODE_IRETURN);                  /* 10 */
+
+		assertEquals("{0, 4, 8, 10}", describe(ControlFlowGraphGenerator.findLeaders(
+				instructions, getCodeLength(instructions), null, false)));
+		assertEquals("B1[0 1] B2[4 5] B3[8 9] B4[10] "
+				+ "B1->B3:true B1->B2:false B2->B4",
+				describe(ControlFlowGraphGenerator.createBasicBlockGraph(instructions, null, false)));
+	}
+
+	/**
+	 * The instructions following a return or athrow start a basic
+	 * block, dead code has no incoming edges. A block not ending
+	 * with a branch falls through to the next block.
+	 * @throws IOException
+	 */
+	public void testDeadCode() throws IOException {
+		List<AbstractInstruction> instructions = code(
+				OPCODE_ALOAD_0,                   /* 0 */
+				OPCODE_ATHROW,                    /* 1 */
+				OPCODE_ICONST_0,                  /* 2 dead */
+				OPCODE_IRETURN,                   /* 3 */
+				OPCODE_NOP,                       /* 4 dead */
+				OPCODE_GOTO, 0xFF, 0xFF,          /* 5 -> 4 */
+				OPCODE_RETURN);                   /* 8 dead */
+
+		assertEquals("{0, 2, 4, 8}", describe(ControlFlowGraphGenerator.findLeaders(
+				instructions, getCodeLength(instructions), null, false)));
+		assertEquals("B1[0 1] B2[2 3] B3[4 5] B4[8] B3->B3",
+				describe(ControlFlowGraphGenerator.createBasicBlockGraph(instructions, null, false)));
+	}
+
+	/**
+	 * The start of an exception handler is a leader. The range of
+	 * the handler is only split if the exception edges are created.
+	 * @throws IOException
+	 */
+	public void testHandlerStart() throws IOException {
+		List<AbstractInstruction> instructions = code(
+				OPCODE_ICONST_1,                  /* 0 */
+				OPCODE_ICONST_0,                  /* 1 try start */
+				OPCODE_IDIV,                      /* 2 */
+				OPCODE_IRETURN,                   /* 3 try end */
+				OPCODE_NOP,                       /* 4 */
+				OPCODE_ASTORE_0,                  /* 5 handler */
+				OPCODE_ICONST_M1,                 /* 6 */
+				OPCODE_IRETURN);                  /* 7 */
+		ExceptionTableEntry[] exceptionTable = {new ExceptionTableEntry(1, 3, 5, 0)};
+		int codeLength = getCodeLength(instructions);
+
+		assertEquals("{0, 4}", describe(ControlFlowGraphGenerator.findLeaders(
+				instructions, codeLength, null, false)));
+		assertEquals("{0, 4, 5}", describe(ControlFlowGraphGenerator.findLeaders(
+				instructions, codeLength, exceptionTable, false)));
+		assertEquals("{0, 1, 3, 4, 5}", describe(ControlFlowGraphGenerator.findLeaders(
+				instructions, codeLength, exceptionTable, true)));
+
+		assertEquals("B1[0 1 2 3] B2[4] B3[5 6 7] B2->B3",
+				describe(ControlFlowGraphGenerator.createBasicBlockGraph(instructions, exceptionTable, false)));
+	}
+
+	/**
+	 * If the exception edges are created, the start and the end of
+	 * the try range are leaders. One exception edge is created from
+	 * each covered block to the handler, even if several entries
+	 * cover the block.
+	 * @throws IOException
+	 */
+	public void testExceptionEdges() throws IOException {
+		List<AbstractInstruction> instructions = code(
+				OPCODE_ICONST_1,                  /* 0 */
+				OPCODE_ICONST_0,                  /* 1 try start */
+				OPCODE_IDIV,                      /* 2 */
+				OPCODE_IRETURN,                   /* 3 try end */
+				OPCODE_NOP,                       /* 4 */
+				OPCODE_ASTORE_0,                  /* 5 handler */
+				OPCODE_ICONST_M1,                 /* 6 */
+				OPCODE_IRETURN);                  /* 7 */
+		ExceptionTableEntry[] exceptionTable = {
+				new ExceptionTableEntry(1, 3, 5, 0),
+				new ExceptionTableEntry(0, 4, 5, 0)};
+
+		assertEquals("B1[0] B2[1 2] B3[3] B4[4] B5[5 6 7] "
+				+ "B1->B2 B2->B3 B4->B5 B2=>B5 B1=>B5 B3=>B5",
+				describe(ControlFlowGraphGenerator.createBasicBlockGraph(instructions, exceptionTable, true)));
+
+		/* no exception table, no exception edges */
+		assertEquals("B1[0 1 2 3] B2[4 5 6 7]",
+				describe(ControlFlowGraphGenerator.createBasicBlockGraph(instructions, null, true)));
+	}
+
+	/**
+	 * In the instruction graph the exception edges leave
+	 * the first instruction of each covered block.
+	 * @throws IOException
+	 * @throws ControlFlowGraphException
+	 */
+	public void testInstructionGraphExceptionEdges() throws IOException, ControlFlowGraphException {
+		List<AbstractInstruction> instructions = code(
+				OPCODE_ILOAD_0,                   /* 0 try start */
+				OPCODE_IFEQ, 0, 5,                /* 1 -> 6 */
+				OPCODE_ICONST_0,                  /* 4 */
+				OPCODE_IRETURN,                   /* 5 */
+				OPCODE_ICONST_1,                  /* 6 */
+				OPCODE_IRETURN,                   /* 7 try end */
+				OPCODE_ASTORE_1,                  /* 8 handler */
+				OPCODE_ICONST_M1,                 /* 9 */
+				OPCODE_IRETURN);                  /* 10 */
+		ExceptionTableEntry[] exceptionTable = {new ExceptionTableEntry(0, 8, 8, 0)};
+
+		IDirectedGraphExt graph = ControlFlowGraphGenerator.generateControlFlowGraph(
+				instructions, exceptionTable, null, false, false, false, false);
+		assertEquals("0->8 4->8 6->8", describeEdges(graph, IEdgeType.EDGE_TYPE_EXCEPTION));
+
+		graph = ControlFlowGraphGenerator.generateControlFlowGraph(
+				instructions, null, null, false, false, false, false);
+		assertEquals("", describeEdges(graph, IEdgeType.EDGE_TYPE_EXCEPTION));
+	}
+
+	/**
+	 * The virtual exit vertex is connected to the blocks without
+	 * outgoing edges other than exception edges.
+	 * @throws IOException
+	 * @throws ControlFlowGraphException
+	 */
+	public void testExitVertex() throws IOException, ControlFlowGraphException {
+		List<AbstractInstruction> instructions = code(
+				OPCODE_ALOAD_0,                   /* 0 try start */
+				OPCODE_ATHROW,                    /* 1 */
+				OPCODE_ASTORE_0,                  /* 2 try end, handler */
+				OPCODE_RETURN);                   /* 3 */
+		ExceptionTableEntry[] exceptionTable = {new ExceptionTableEntry(0, 2, 2, 0)};
+
+		IDirectedGraphExt graph = ControlFlowGraphGenerator.generateBasicBlockGraph(
+				instructions, exceptionTable, null, false, true, false, true);
+		StringBuffer buf = new StringBuffer();
+		IEdgeListExt edges = graph.getEdgeList();
+		for (int i = 0; i < edges.size(); i++) {
+			IEdgeExt e = edges.getEdgeExt(i);
+			INodeExt target = e.getTarget();
+			if (target.getVertexType() == INodeType.NODE_TYPE_EXIT) {
+				assertEquals(IEdgeType.EDGE_TYPE_SIMPLE, e.getEdgeType());
+				buf.append(e.getSource().getData()).append(' ');
+			}
+		}
+		assertEquals("B1 B2", buf.toString().trim());
+	}
+}
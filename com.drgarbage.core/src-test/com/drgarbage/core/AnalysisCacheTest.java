@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.drgarbage.core;
+
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.drgarbage.asm.ClassWriter;
+import com.drgarbage.asm.Label;
+import com.drgarbage.asm.MethodVisitor;
+import com.drgarbage.asm.Opcodes;
+import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.LineNumberTableEntry;
+
+/**
+ * Test class for {@link com.drgarbage.core.AnalysisCache}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class AnalysisCacheTest extends TestCase {
+
+	/**
+	 * Creates a class with the method <code>int m(int)</code>.
+	 * @param constant the constant added in the method
+	 * @return the class file
+	 */
+	private static byte[] createClass(int constant) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, "p/T", null, "java/lang/Object", null);
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "m", "(I)I", null, null);
+		mv.visitCode();
+		Label start = new Label();
+		mv.visitLabel(start);
+		mv.visitLineNumber(7, start);
+		mv.visitVarInsn(Opcodes.ILOAD, 0);
+		mv.visitIntInsn(Opcodes.BIPUSH, constant);
+		mv.visitInsn(Opcodes.IADD);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * The least recently used entries are evicted when the
+	 * total weight exceeds the maximum weight.
+	 */
+	public void testEviction() {
+		AnalysisCache cache = new AnalysisCache(100);
+		cache.put("a", null, "k", "A", 40);
+		cache.put("b", null, "k", "B", 40);
+		assertEquals(80, cache.getWeight());
+
+		/* a is used, b is the least recently used entry */
+		assertEquals("A", cache.get("a", null, "k"));
+		cache.put("c", null, "k", "C", 40);
+		assertEquals(80, cache.getWeight());
+		assertNull(cache.get("b", null, "k"));
+		assertEquals("A", cache.get("a", null, "k"));
+		assertEquals("C", cache.get("c", null, "k"));
+
+		/* a replaced entry counts only once */
+		cache.put("c", null, "k", "C2", 10);
+		assertEquals(50, cache.getWeight());
+
+		/* an entry heavier than the maximum is kept alone */
+		cache.put("d", null, "k", "D", 500);
+		assertEquals(500, cache.getWeight());
+		assertNull(cache.get("a", null, "k"));
+		assertEquals("D", cache.get("d", null, "k"));
+
+		cache.setMaxWeight(1000);
+		cache.put("e", null, "k", "E", 100);
+		cache.setMaxWeight(100);
+		assertEquals(100, cache.getWeight());
+		assertNull(cache.get("d", null, "k"));
+	}
+
+	/**
+	 * The entries are keyed by the content hash, the method
+	 * and the kind. Removing a class file removes all its entries.
+	 */
+	public void testKeys() {
+		AnalysisCache cache = new AnalysisCache(100);
+		cache.put("a", null, "k", "A", 1);
+		cache.put("a", "m()V", "k", "Am", 1);
+		cache.put("a", "m()V", "l", "Aml", 1);
+		cache.put("b", "m()V", "k", "Bm", 1);
+
+		assertEquals("A", cache.get("a", null, "k"));
+		assertEquals("Am", cache.get("a", "m()V", "k"));
+		assertEquals("Aml", cache.get("a", "m()V", "l"));
+		assertNull(cache.get("a", "n()V", "k"));
+
+		cache.remove("a");
+		assertEquals(1, cache.getWeight());
+		assertNull(cache.get("a", "m()V", "k"));
+		assertEquals("Bm", cache.get("b", "m()V", "k"));
+	}
+
+	/**
+	 * The content hash is the SHA-1 of the bytes, equal content
+	 * in different arrays has the same hash.
+	 * @throws Exception
+	 */
+	public void testContentHash() throws Exception {
+		byte[] abc = "abc".getBytes("US-ASCII");
+		assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", AnalysisCache.getContentHash(abc));
+		assertEquals(AnalysisCache.getContentHash(abc),
+				AnalysisCache.getContentHash("xabcx".getBytes("US-ASCII"), 1, 3));
+		assertFalse(AnalysisCache.getContentHash(abc).equals(
+				AnalysisCache.getContentHash("abd".getBytes("US-ASCII"))));
+	}
+
+	/**
+	 * A class file is decoded once per content, a copy of
+	 * the array is found in the cache, a changed class is not.
+	 */
+	public void testDecodedMethods() {
+		AnalysisCache cache = new AnalysisCache(AnalysisCache.DEFAULT_MAX_WEIGHT);
+		byte[] bytes = createClass(10);
+		Map<String, Map<String, Object>> methods = cache.getDecodedMethods(bytes);
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, methods.size());
+
+		Map<String, Object> m = methods.get(AnalysisCache.getMethodKey("m", "(I)I"));
+		assertEquals(4, ((List<?>) m.get(ByteCodeConstants.CODE)).size());
+		assertEquals("m", m.get(ByteCodeConstants.NAME));
+
+		Map<String, Object> m1 = cache.getDecodedMethod(bytes.clone(), "m", "(I)I");
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+		assertSame(m.get(ByteCodeConstants.CODE), m1.get(ByteCodeConstants.CODE));
+
+		Map<String, Object> m2 = cache.getDecodedMethod(createClass(11), "m", "(I)I");
+		assertEquals(2, cache.getMissCount());
+		assertFalse(m.get(ByteCodeConstants.CODE_HASH).equals(m2.get(ByteCodeConstants.CODE_HASH)));
+		assertNull(cache.getDecodedMethod(bytes, "n", "()V"));
+	}
+
+	/**
+	 * The decoded methods can not be changed through
+	 * the returned maps and tables.
+	 */
+	public void testUnmodifiable() {
+		AnalysisCache cache = new AnalysisCache(AnalysisCache.DEFAULT_MAX_WEIGHT);
+		byte[] bytes = createClass(10);
+		Map<String, Map<String, Object>> methods = cache.getDecodedMethods(bytes);
+		Map<String, Object> m = methods.get(AnalysisCache.getMethodKey("m", "(I)I"));
+
+		try {
+			methods.clear();
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException e) {
+			/* expected */
+		}
+		try {
+			m.remove(ByteCodeConstants.CODE);
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException e) {
+			/* expected */
+		}
+		try {
+			((List<?>) m.get(ByteCodeConstants.CODE)).remove(0);
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException e) {
+			/* expected */
+		}
+
+		LineNumberTableEntry[] lines = (LineNumberTableEntry[]) m.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+		assertEquals(1, lines.length);
+		lines[0] = null;
+
+		m = cache.getDecodedMethod(bytes, "m", "(I)I");
+		lines = (LineNumberTableEntry[]) m.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+		assertNotNull(lines[0]);
+		assertEquals(7, lines[0].getLineNumber());
+	}
+}
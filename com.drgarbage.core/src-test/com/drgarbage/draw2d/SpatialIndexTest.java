@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.drgarbage.draw2d;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.draw2d.geometry.Rectangle;
+
+/**
+ * Test class for {@link com.drgarbage.draw2d.SpatialIndex}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class SpatialIndexTest extends TestCase {
+
+	private SpatialIndex<String> createIndex() {
+		SpatialIndex<String> index = new SpatialIndex<String>(10);
+		index.add(new Rectangle(0, 2, 50, 5), "A");      /* bucket 0 */
+		index.add(new Rectangle(0, 15, 50, 16), "B");    /* buckets 1 to 3 */
+		index.add(new Rectangle(100, 15, 50, 3), "C");   /* bucket 1, right of A and B */
+		index.add(new Rectangle(0, 72, 50, 3), "D");     /* bucket 7 */
+		return index;
+	}
+
+	/**
+	 * A query finds the objects of all buckets the area
+	 * intersects, only the objects intersecting the area.
+	 */
+	public void testQuery() {
+		SpatialIndex<String> index = createIndex();
+		assertEquals(4, index.size());
+
+		/* buckets 0 to 2 */
+		Set<String> result = new HashSet<String>();
+		index.query(new Rectangle(0, 5, 60, 20), result);
+		assertEquals(2, result.size());
+		assertTrue(result.contains("A"));
+		assertTrue(result.contains("B"));
+
+		/* B is found from its last bucket */
+		result.clear();
+		index.query(new Rectangle(10, 28, 5, 1), result);
+		assertEquals(1, result.size());
+		assertTrue(result.contains("B"));
+
+		/* empty buckets and buckets behind the last one */
+		result.clear();
+		index.query(new Rectangle(0, 40, 60, 20), result);
+		assertTrue(result.isEmpty());
+		index.query(new Rectangle(0, 70, 60, 1000), result);
+		assertEquals(1, result.size());
+		assertTrue(result.contains("D"));
+	}
+
+	/**
+	 * Objects and areas with negative coordinates
+	 * are stored in the first bucket.
+	 */
+	public void testNegativeY() {
+		SpatialIndex<String> index = createIndex();
+		index.add(new Rectangle(0, -30, 50, 10), "N");
+		index.add(new Rectangle(0, -5, 50, 20), "M");    /* buckets 0 and 1 */
+
+		Set<String> result = new HashSet<String>();
+		index.query(new Rectangle(0, -40, 60, 15), result);
+		assertEquals(1, result.size());
+		assertTrue(result.contains("N"));
+
+		result.clear();
+		index.query(new Rectangle(0, -100, 60, 97), result);
+		assertEquals(2, result.size());
+		assertTrue(result.contains("M"));
+
+		result.clear();
+		index.query(new Rectangle(0, 12, 60, 1), result);
+		assertTrue(result.contains("M"));
+		assertFalse(result.contains("N"));
+	}
+
+	/**
+	 * An object stored in several buckets is added once per
+	 * bucket the area intersects, as documented.
+	 */
+	public void testDuplicates() {
+		SpatialIndex<String> index = createIndex();
+		List<String> result = new ArrayList<String>();
+		index.query(new Rectangle(0, 0, 60, 40), result);
+		assertEquals(4, result.size());
+		assertEquals(1, count(result, "A"));
+		assertEquals(3, count(result, "B"));
+
+		/* within one bucket the object is added once */
+		result.clear();
+		index.query(new Rectangle(0, 21, 60, 2), result);
+		assertEquals(1, result.size());
+	}
+
+	private static int count(List<String> list, String s) {
+		int n = 0;
+		for (String t : list) {
+			if (t.equals(s)) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * The index is empty after clear, the bucket height must be positive.
+	 */
+	public void testClear() {
+		SpatialIndex<String> index = createIndex();
+		index.clear();
+		assertEquals(0, index.size());
+		List<String> result = new ArrayList<String>();
+		index.query(new Rectangle(0, 0, 1000, 1000), result);
+		assertTrue(result.isEmpty());
+
+		try {
+			new SpatialIndex<String>(0);
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+}
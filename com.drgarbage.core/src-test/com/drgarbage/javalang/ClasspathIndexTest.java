@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.javalang;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Test class for {@link com.drgarbage.javalang.ClasspathIndex}
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ClasspathIndexTest extends TestCase {
+
+	private File root;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		root = File.createTempFile("classpath", "");
+		root.delete();
+		root.mkdirs();
+		ClasspathIndex.clearCache();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		ClasspathIndex.clearCache();
+		delete(root);
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+
+	private static void write(File file, int content) throws IOException {
+		file.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static File createJar(File file, String name, int content) throws IOException {
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+		try {
+			out.putNextEntry(new JarEntry(name));
+			out.write(content);
+			out.closeEntry();
+		}
+		finally {
+			out.close();
+		}
+		return file;
+	}
+
+	/**
+	 * The first entry of the class path containing the
+	 * class is used, directories are indexed like jar files.
+	 * @throws IOException
+	 */
+	public void testPrecedence() throws IOException {
+		File jar = createJar(new File(root, "a.jar"), "p/q/A.class", 1);
+		File dir = new File(root, "bin");
+		write(new File(dir, "p/q/A.class"), 2);
+		write(new File(dir, "p/B.class"), 3);
+
+		ClasspathIndex index = ClasspathIndex.getIndex(new String[]{jar.getPath(), dir.getPath()});
+		assertEquals(1, index.findClassBytes("p.q", "A")[0]);
+		assertEquals(3, index.findClassBytes("p", "B")[0]);
+		assertNull(index.findClassBytes("p", "C"));
+		assertNull(index.findClassBytes(null, "A"));
+
+		index = ClasspathIndex.getIndex(new String[]{dir.getPath(), jar.getPath()});
+		assertEquals(2, index.findClassBytes("p.q", "A")[0]);
+	}
+
+	/**
+	 * Reading a removed class file results in a check of the
+	 * index, which also finds the classes created since the
+	 * last check.
+	 * @throws IOException
+	 */
+	public void testChangedDirectory() throws IOException {
+		File dir = new File(root, "bin");
+		write(new File(dir, "p/A.class"), 1);
+
+		ClasspathIndex index = ClasspathIndex.getIndex(new String[]{dir.getPath()});
+		assertNull(index.findClassBytes("p", "B"));
+
+		write(new File(dir, "p/B.class"), 2);
+		new File(dir, "p/A.class").delete();
+
+		assertNull(index.findClassBytes("p", "A"));
+		assertEquals(2, index.findClassBytes("p", "B")[0]);
+	}
+
+	/**
+	 * A class file created right after a lookup is found
+	 * without waiting for the next check of the index.
+	 * @throws IOException
+	 */
+	public void testCreatedClass() throws IOException {
+		File jar = createJar(new File(root, "a.jar"), "p/C.class", 3);
+		File dir = new File(root, "bin");
+		write(new File(dir, "p/A.class"), 1);
+
+		ClasspathIndex index = ClasspathIndex.getIndex(new String[]{dir.getPath(), jar.getPath()});
+		assertEquals(1, index.findClassBytes("p", "A")[0]);
+		assertEquals(3, index.findClassBytes("p", "C")[0]);
+
+		write(new File(dir, "p/A$1.class"), 2);
+		assertEquals(2, index.findClassBytes("p", "A$1")[0]);
+		assertEquals(3, index.findClassBytes("p", "C")[0]);
+		assertNull(index.findClassBytes("p", "D"));
+	}
+}
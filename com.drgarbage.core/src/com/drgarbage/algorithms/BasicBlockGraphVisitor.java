@@ -17,7 +17,9 @@
 package com.drgarbage.algorithms;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
 import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
@@ -30,9 +32,11 @@ import com.drgarbage.controlflowgraph.intf.INodeListExt;
 import com.drgarbage.logger.TraceTopics;
 
 /**
- *  Creates a basic block graph.
+ *  Creates a basic block graph. The input graph is not modified,
+ *  the basic blocks of the nodes and the edges of the basic block
+ *  graph created for the edges of the input graph are kept by the
+ *  visitor.
  *
- *  @author Sergej Alekseev  
  *  @version $Revision$
  *  $Id$
  */
@@ -46,6 +50,17 @@ public class BasicBlockGraphVisitor extends DFSForward {
 	
 	private IBasicBlock bb = null;
 	private int basicBlockCounter = 0;
+
+	/**
+	 * The basic block of each visited node.
+	 */
+	private Map<INodeExt, IBasicBlock> basicBlockReferences = new IdentityHashMap<INodeExt, IBasicBlock>();
+
+	/**
+	 * The edge of the basic block graph created for an edge 
+	 * of the input graph entering the first node of a basic block.
+	 */
+	private Map<IEdgeExt, IEdgeExt> edgeMapping = new IdentityHashMap<IEdgeExt, IEdgeExt>();
 	
 	
 	public BasicBlockGraphVisitor(){
@@ -63,7 +78,7 @@ public class BasicBlockGraphVisitor extends DFSForward {
 	public void visitEdge(IEdgeExt edge) {
 		if(debug)log("visit EDGE: " + edge.getSource().getByteCodeOffset() + "->" + edge.getTarget().getByteCodeOffset());
 		if(openBB){
-			if(edge.getTarget().isVisited()){			
+			if(state.isVisited(edge.getTarget())){			
 				openBB = false;
 				if(debug)log("target visited");
 			}
@@ -95,7 +110,7 @@ public class BasicBlockGraphVisitor extends DFSForward {
 			
 			/* add vertex to the basicblock */
 			bb.addVertex(node);
-			node.setBasicBlockReference(bb);
+			basicBlockReferences.put(node, bb);
 			if(debug)log("   add " + node.getByteCodeOffset() + " to BB=" + bb.getData());
 			
 			/* close basic block */
@@ -126,7 +141,7 @@ public class BasicBlockGraphVisitor extends DFSForward {
 			
 			/* add vertex to the basicblock */
 			bb.addVertex(node);
-			node.setBasicBlockReference(bb);
+			basicBlockReferences.put(node, bb);
 			if(debug)log("   add " + node.getByteCodeOffset() + " to BB=" + bb.getData());
 			
 			return;
@@ -144,7 +159,7 @@ public class BasicBlockGraphVisitor extends DFSForward {
 			
 			/* add vertex to the basicblock */		
 			bb.addVertex(node);
-			node.setBasicBlockReference(bb);
+			basicBlockReferences.put(node, bb);
 			if(debug)log("   add " + node.getByteCodeOffset() + " to BB=" + bb.getData());
 
 			return;
@@ -162,7 +177,7 @@ public class BasicBlockGraphVisitor extends DFSForward {
 			
 			/* add vertex to the basicblock	*/			
 			bb.addVertex(node);
-			node.setBasicBlockReference(bb);
+			basicBlockReferences.put(node, bb);
 			if(debug)log("   add " + node.getByteCodeOffset() + " to BB=" + bb.getData());			
 			
 		    /* close basicblock */
@@ -187,7 +202,7 @@ public class BasicBlockGraphVisitor extends DFSForward {
 			
 			/* add vertex to the basicblock	*/
 			bb.addVertex(node);
-			node.setBasicBlockReference(bb);
+			basicBlockReferences.put(node, bb);
 			if(debug)log("   add " + node.getByteCodeOffset() + " to BB=" + bb.getData());
 		}
 		
@@ -217,10 +232,11 @@ public class BasicBlockGraphVisitor extends DFSForward {
 			if(incomimgList.size() != 0){				
 				for(int i = 0; i < incomimgList.size(); i++){
 					oldEdge = incomimgList.getEdgeExt(i);
-					newEdge = GraphExtentionFactory.createEdgeExtention(oldEdge.getSource().getBasicBlockReference(), n);
+					newEdge = GraphExtentionFactory.createEdgeExtention(basicBlockReferences.get(oldEdge.getSource()), n);
 					newEdge.setData(oldEdge.getData()); /* copy edge label */
+					newEdge.setEdgeType(oldEdge.getEdgeType());
 					basicBlockEdges.add(newEdge);
-					oldEdge.setData(newEdge);
+					edgeMapping.put(oldEdge, newEdge);
 				}
 			}
 		}
@@ -235,6 +251,27 @@ public class BasicBlockGraphVisitor extends DFSForward {
 	public IDirectedGraphExt getBasicBlockGraph() {
 		return basicBlockGraph;
 	}
+
+	/**
+	 * Returns the basic block of a node of the input graph.
+	 * @param node the node
+	 * @return the basic block or <code>null</code> if the node 
+	 *          has not been visited
+	 */
+	public IBasicBlock getBasicBlock(INodeExt node) {
+		return basicBlockReferences.get(node);
+	}
+
+	/**
+	 * Returns the edge of the basic block graph created for an edge
+	 * of the input graph.
+	 * @param edge the edge of the input graph
+	 * @return the edge of the basic block graph or <code>null</code> 
+	 *          if the edge does not enter a basic block
+	 */
+	public IEdgeExt getBasicBlockEdge(IEdgeExt edge) {
+		return edgeMapping.get(edge);
+	}
 	
 	
 	private static void printBasicBlockGraph(IDirectedGraphExt graph){
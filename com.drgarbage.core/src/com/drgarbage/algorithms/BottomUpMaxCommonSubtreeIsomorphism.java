@@ -16,21 +16,15 @@
 
 package com.drgarbage.algorithms;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.PriorityQueue;
-import java.util.Set;
 
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
-import com.drgarbage.controlflowgraph.intf.INodeListExt;
 
 /**
  * Implements the Bottom-Up Unordered Maximum Common Subtree Isomorphism algorithm.
@@ -90,20 +84,6 @@ import com.drgarbage.controlflowgraph.intf.INodeListExt;
  */
 public class BottomUpMaxCommonSubtreeIsomorphism {
 	
-	private int knownEquivalenceClasses = 1;
-	private HashMap<ArrayList<Integer>, Integer> childrenclassesToParentclassMap = new HashMap<ArrayList<Integer>, Integer>();
-	
-	/**
-	 * Structure needed for node prioritization.
-	 * 
-	 * For the ordering see {@link BottomUpMaxCommonSubtreeIsomorphism.NodePriorityComparator}
-	 */
-	protected class PriorityTuple {
-		protected INodeExt node;
-		protected int size;
-		protected int equivalenceClass;
-	}
-	
 	/**
 	 * Comparator used to prioritize nodes.
 	 * 
@@ -118,41 +98,38 @@ public class BottomUpMaxCommonSubtreeIsomorphism {
 	 * 
 	 * @see java.util.Comparator
 	 */
-	private class NodePriorityComparator implements Comparator<PriorityTuple> {
+	private static class NodePriorityComparator implements Comparator<Integer> {
 
-		public int compare(PriorityTuple pt1, PriorityTuple pt2) {
-			
-			if (pt2.size - pt1.size == 0) {
-				return pt1.equivalenceClass - pt2.equivalenceClass;
-			}
+		private CompactTree tree;
 
-			return pt2.size - pt1.size;
+		NodePriorityComparator(CompactTree tree) {
+			this.tree = tree;
 		}
-	}
-	/**
-	 * gets a root from tree
-	 * @param tree
-	 * @return
-	 * @throws ControlFlowGraphException if the input structure has no root.
-	 */
-	private INodeExt getRootFromTree(IDirectedGraphExt tree) throws ControlFlowGraphException{
-		
-		INodeExt root = null;
-		for (int i = 0; i < tree.getNodeList().size(); i++) {
-			INodeExt n = tree.getNodeList().getNodeExt(i);
-			if (n.getIncomingEdgeList().size() == 0) {
-				root = n;
-			}
+
+		public int compare(Integer n1, Integer n2) {
+			return compare(tree, n1.intValue(), tree, n2.intValue());
 		}
 
-		if (root == null) {
-			throw new ControlFlowGraphException(
-					"The tree has no root. The graph is propably not a tree.");
+		/**
+		 * Compares the priority of two nodes of the same or different trees.
+		 * @param tree1 the tree of the first node
+		 * @param v the first node
+		 * @param tree2 the tree of the second node
+		 * @param w the second node
+		 * @return a negative integer, zero, or a positive integer as the first
+		 *  node has a higher, the same or a lesser priority than the second node
+		 */
+		static int compare(CompactTree tree1, int v, CompactTree tree2, int w) {
+			int size1 = tree1.getSize(v);
+			int size2 = tree2.getSize(w);
+			if (size2 - size1 == 0) {
+				return tree1.getLabel(v) - tree2.getLabel(w);
+			}
+
+			return size2 - size1;
 		}
-		
-		return root;
 	}
-	
+
 	/**
 	 * Starts the bottom-up unordered maximum common subtree isomorphism algorithm.
 	 * The Algorithm works only with spanning trees. Gets root nodes from each input spanning tree
@@ -168,8 +145,12 @@ public class BottomUpMaxCommonSubtreeIsomorphism {
 			throws ControlFlowGraphException {
 
 		/* get root nodes */
-		INodeExt leftRoot = getRootFromTree(leftTree);
-		INodeExt rightRoot = getRootFromTree(rightTree);
+		INodeExt leftRoot = CompactTree.findRoot(leftTree);
+		INodeExt rightRoot = CompactTree.findRoot(rightTree);
+		if (leftRoot == null || rightRoot == null) {
+			throw new ControlFlowGraphException(
+					"The tree has no root. The graph is propably not a tree.");
+		}
 		
 		Map<INodeExt, INodeExt> mappedNodes = null;
 		mappedNodes = executeBottomUpMaxCommon(leftTree, leftRoot, rightTree, rightRoot);
@@ -179,10 +160,12 @@ public class BottomUpMaxCommonSubtreeIsomorphism {
 
 	/**
 	 * Executes the Bottom-Up Unordered Maximum Common Subtree Isomorphism Algorithm.
+	 * The trees are converted to the {@link CompactTree} representation,
+	 * the nodes of the graphs are only used to return the result.
 	 * 
-	 * @param leftGraph the graph <code>T_1</code>
+	 * @param leftSpanningTree the graph <code>T_1</code>
 	 * @param leftRoot the root node of the left graph
-	 * @param rightGraph the graph <code>T_2</code>
+	 * @param rightSpanningTree the graph <code>T_2</code>
 	 * @param rightRoot the root node of the right graph
 	 * @return the map of matched nodes
 	 */
@@ -190,21 +173,23 @@ public class BottomUpMaxCommonSubtreeIsomorphism {
 			IDirectedGraphExt leftSpanningTree, INodeExt leftRoot,
 			IDirectedGraphExt rightSpanningTree, INodeExt rightRoot) {
 		
+		CompactTree left = new CompactTree(leftSpanningTree, leftRoot);
+		CompactTree right = new CompactTree(rightSpanningTree, rightRoot);
+
 		/* partition the sets of nodes of both graphs in bottom-up subtree isomorphism equivalence classes */
-		HashMap<INodeExt, Integer> leftNodeToClassMap = partitionInIsomorphismEquivalenceClasses(leftSpanningTree);
-		HashMap<INodeExt, Integer> rightNodeToClassMap = partitionInIsomorphismEquivalenceClasses(rightSpanningTree);
+		partitionInIsomorphismEquivalenceClasses(left, right);
 		
 		/* find largest common subtree */
-		Map<INodeExt, INodeExt> M;
-		M = findLargestCommonSubtreeRoot(leftSpanningTree, leftNodeToClassMap, rightSpanningTree, rightNodeToClassMap);
+		int[] roots = findLargestCommonSubtreeRoot(left, right);
 		
 		/* if no common subtree root was found */
-		if (M == null) {
+		if (roots == null) {
 			return null;
 		}
 		
 		/* fill map with equivalent nodes */
-		mapIsomorphicNodes(leftSpanningTree, leftNodeToClassMap, rightNodeToClassMap, M);
+		Map<INodeExt, INodeExt> M = new HashMap<INodeExt, INodeExt>();
+		CompactTree.mapIsomorphicSubtrees(left, roots[0], right, roots[1], M);
 		
 		return M;
 	}
@@ -264,59 +249,24 @@ public class BottomUpMaxCommonSubtreeIsomorphism {
 	 * nodes) as keys and integers (equivalence class of the children's
 	 * parent) as values.
 	 * 
-	 * @param graph tree to be partitioned into equivalence classes
-	 * @return returns node to class map
+	 * The map contains a list of integers (equivalence classes of children
+	 * nodes) as keys and integers (equivalence class of the children's
+	 * parent) as values. The equivalence classes are the canonical
+	 * labels of {@link CompactTree#computeLabels(CompactTree, CompactTree)}.
+	 * 
+	 * @param left tree <code>T_1</code> to be partitioned into equivalence classes
+	 * @param right tree <code>T_2</code> to be partitioned into equivalence classes
 	 */
-	private HashMap<INodeExt, Integer> partitionInIsomorphismEquivalenceClasses(
-			IDirectedGraphExt graph) {
+	private void partitionInIsomorphismEquivalenceClasses(
+			CompactTree left, CompactTree right) {
 		
-		HashMap<INodeExt, Integer> nodeToClassMap = new HashMap<INodeExt, Integer>();
-		
-		INodeListExt nodeList = TreeTraversal.doPostorderTreeListTraversal(graph);
-		
-		for (int i = 0; i < nodeList.size(); i++) {
-			INodeExt node = nodeList.getNodeExt(i);
-			
-			/* all leaves have the equivalence class of 1 */
-			if (node.getOutgoingEdgeList().size() == 0) {
-				nodeToClassMap.put(node, 1);
-			}
-
-			else {
-				/* equivalence classes of children of current node */
-				ArrayList<Integer> childclassesList = new ArrayList<Integer>();
-
-				for (int j = 0; j < node.getOutgoingEdgeList().size(); j++) {
-					INodeExt child = node.getOutgoingEdgeList().getEdgeExt(j).getTarget();
-
-					/* fill list with equivalence classes of children nodes */
-					childclassesList.add(nodeToClassMap.get(child));
-				}
-				
-				Collections.sort(childclassesList);
-				
-				/* if a node with the same equivalence classes of children nodes already exists,
-				 * assign the same equivalence class to that node */
-				if (childrenclassesToParentclassMap.containsKey(childclassesList)) {
-					nodeToClassMap.put(node, childrenclassesToParentclassMap.get(childclassesList));
-				}
-
-				/* otherwise create new equivalence class */
-				else {
-					childrenclassesToParentclassMap.put(childclassesList, ++knownEquivalenceClasses);
-					nodeToClassMap.put(node, knownEquivalenceClasses);
-				}
-			}
-		}
+		CompactTree.computeLabels(left, right);
 		
 		debug(" === equivalence classes:");
 		debug("node to class map:");
-		printNodeToClassMap(nodeToClassMap);
-		debug("\nchildrenclasses to parentclass map:");
-		debug(childrenclassesToParentclassMap.toString());
+		printNodeToClassMap(left);
+		printNodeToClassMap(right);
 		debug(" ========================");
-		
-		return nodeToClassMap;
 	}
 	
 	/**
@@ -331,46 +281,35 @@ public class BottomUpMaxCommonSubtreeIsomorphism {
 	 * in both queues belong to the same equivalence class.
 	 * </pre>
 	 * 
-	 * In Valientes example the returned map contains the nodes (v8, w12).
+	 * In Valientes example the returned nodes are (v8, w12).
 	 * 
 	 * For the ordering see {@link BottomUpMaxCommonSubtreeIsomorphism.NodePriorityComparator}
 	 * 
-	 * @param leftGraph the graph <code>T_1</code>
-	 * @param leftNodeToClassMap node to class map of left tree
-	 * @param rightGraph the graph <code>T_2</code>
-	 * @param rightNodeToClassMap node to class map of right tree
-	 * @return returns map containing the equivalent subtree root nodes of both trees
+	 * @param left the tree <code>T_1</code>
+	 * @param right the tree <code>T_2</code>
+	 * @return returns the equivalent subtree root nodes of both trees
+	 *  or <code>null</code> if the trees have no common subtree
 	 */
-	private Map<INodeExt, INodeExt> findLargestCommonSubtreeRoot(
-			IDirectedGraphExt leftGraph,
-			HashMap<INodeExt, Integer> leftNodeToClassMap,
-			IDirectedGraphExt rightGraph,
-			HashMap<INodeExt, Integer> rightNodeToClassMap) {
-		
-		PriorityQueue<PriorityTuple> leftQ;
-		PriorityQueue<PriorityTuple> rightQ;
-		
-		leftQ = prioritizeNodes(leftGraph, leftNodeToClassMap);
-		rightQ = prioritizeNodes(rightGraph, rightNodeToClassMap);
+	private int[] findLargestCommonSubtreeRoot(CompactTree left, CompactTree right) {
 		
-		NodePriorityComparator priorityComparator = new NodePriorityComparator();
+		Integer[] leftQ = prioritizeNodes(left);
+		Integer[] rightQ = prioritizeNodes(right);
 		
-		while (!leftQ.isEmpty() && !rightQ.isEmpty()) {
-			PriorityTuple leftPT = leftQ.peek();
-			PriorityTuple rightPT = rightQ.peek();
+		int i = 0;
+		int j = 0;
+		while (i < leftQ.length && j < rightQ.length) {
+			int v = leftQ[i].intValue();
+			int w = rightQ[j].intValue();
 			
-			if (leftNodeToClassMap.get(leftPT.node) == rightNodeToClassMap.get(rightPT.node)) {
-				Map<INodeExt, INodeExt> M = new HashMap<INodeExt, INodeExt>();
-				M.put(leftPT.node, rightPT.node);
-				
-				return M;
+			if (left.getLabel(v) == right.getLabel(w)) {
+				return new int[]{v, w};
 			}
 			
-			/* if leftPT has a lesser priority than rightPT, remove leftPT from leftQ */
-			if (priorityComparator.compare(leftPT, rightPT) < 0) {
-				leftQ.poll();
-			} else { /* otherwise remove rightPT from rightQ */
-				rightQ.poll();
+			/* if v has a lesser priority than w, remove v from leftQ */
+			if (NodePriorityComparator.compare(left, v, right, w) < 0) {
+				i++;
+			} else { /* otherwise remove w from rightQ */
+				j++;
 			}
 		}
 		
@@ -380,91 +319,22 @@ public class BottomUpMaxCommonSubtreeIsomorphism {
 	/**
 	 * Prioritizes nodes in a Tree.
 	 * 
-	 * Uses a {@link java.util.PriorityQueue}
-	 * 
 	 * For the ordering see {@link BottomUpMaxCommonSubtreeIsomorphism.NodePriorityComparator}
 	 * 
-	 * @param graph contains the nodes which are to prioritize
-	 * @param nodeToClassMap node equivalence classes, needed for prioritization
-	 * @return returns priority queue containing all nodes of the passed graph
-	 * 
-	 * @see java.util.PriorityQueue
+	 * @param tree contains the nodes which are to prioritize
+	 * @return returns the nodes of the tree sorted by priority
 	 */
-	private PriorityQueue<PriorityTuple> prioritizeNodes(
-			IDirectedGraphExt graph,
-			HashMap<INodeExt, Integer> nodeToClassMap) {
-		
-		PriorityQueue<PriorityTuple> Q = new PriorityQueue<PriorityTuple>(50, new NodePriorityComparator());
-		
-		INodeListExt postorderNodeList = TreeTraversal.doPostorderTreeListTraversal(graph);
-		Map<INodeExt, Integer> sizes= new HashMap<INodeExt, Integer>();
+	private Integer[] prioritizeNodes(CompactTree tree) {
 		
-		for (int i = 0; i < postorderNodeList.size(); i++) {
-			INodeExt node = postorderNodeList.getNodeExt(i);
-			
-			/* calculate sizes */
-			int size = 1; /* leaves have size of 1 */
-			
-			/* if node is not a leaf */
-			for (int j = 0; j < node.getOutgoingEdgeList().size(); j++) {
-				INodeExt child = node.getOutgoingEdgeList().getEdgeExt(j).getTarget();
-				
-				size += sizes.get(child);
-			}
-			
-			sizes.put(node, size);
-			
-			PriorityTuple pt = new PriorityTuple();
-			
-			pt.node = node;
-			pt.size = size;
-			pt.equivalenceClass = nodeToClassMap.get(node);
-			
-			Q.add(pt);
+		Integer[] Q = new Integer[tree.size()];
+		for (int v = 0; v < Q.length; v++) {
+			Q[v] = Integer.valueOf(v);
 		}
+		Arrays.sort(Q, new NodePriorityComparator(tree));
 		
 		return Q;
 	}
 	
-	/**
-	 * Inserts equivalent nodes of T_1 and T_2 into the passed map M.
-	 * 
-	 * @param leftGraph the left tree
-	 * @param leftNodeToClassMap node equivalence classes of left tree
-	 * @param rightNodeToClassMap node equivalence classes of right tree
-	 * @param M map prefilled with the root nodes of the largest common subtree of T_1 and T_2
-	 */
-	private void mapIsomorphicNodes(IDirectedGraphExt leftGraph,
-			HashMap<INodeExt, Integer> leftNodeToClassMap,
-			HashMap<INodeExt, Integer> rightNodeToClassMap,
-			Map<INodeExt, INodeExt> M) {
-		
-		/* build preordered list of the nodes of the left subtree */
-		INodeExt leftSubtreeRoot = (INodeExt)M.keySet().toArray()[0]; /* map contains only one set with subtree roots */
-		INodeListExt leftPreorderNodeList = TreeTraversal.doPreorderTreeListTraversal(leftGraph, leftSubtreeRoot);
-		
-		Set<INodeExt> isMapped = new HashSet<INodeExt>();
-		
-		/* map maximum common subtree isomorphic nodes */
-		for (int i = 1; i < leftPreorderNodeList.size(); i++) {
-			INodeExt leftNode = leftPreorderNodeList.getNodeExt(i);
-			
-			INodeExt leftNodeParent = leftNode.getIncomingEdgeList().getEdgeExt(0).getSource();
-			
-			INodeExt rightNode = M.get(leftNodeParent);
-			
-			for (int j = 0; j < rightNode.getOutgoingEdgeList().size(); j++) {
-				INodeExt rightChild = rightNode.getOutgoingEdgeList().getEdgeExt(j).getTarget();
-				
-				if (leftNodeToClassMap.get(leftNode) == rightNodeToClassMap.get(rightChild) && !isMapped.contains(rightChild)) {
-					M.put(leftNode, rightChild);
-					isMapped.add(rightChild);
-					break;
-				}
-			}
-		}
-	}
-	
 	/* 
 	 * The Methods in this section are used for purely debugging purposes 
 	 */
@@ -528,16 +398,16 @@ public class BottomUpMaxCommonSubtreeIsomorphism {
 	}
 	
 	/**
-	 * Prints a map of nodes and their equivalence class.
-	 * @param nodeToClassMap the map
+	 * Prints the nodes of a tree and their equivalence class.
+	 * @param tree the tree
 	 */
-	static void printNodeToClassMap(HashMap<INodeExt, Integer> nodeToClassMap){
+	static void printNodeToClassMap(CompactTree tree){
 		if(!DEBUG) return;
 		
-		for(Entry<INodeExt, Integer> entry : nodeToClassMap.entrySet()){
-			System.out.println(entry.getKey().getData()
+		for(int v = 0; v < tree.size(); v++){
+			System.out.println(tree.getNode(v).getData()
 					+ " = "
-					+ entry.getValue());
+					+ tree.getLabel(v));
 		}
 	}
 }
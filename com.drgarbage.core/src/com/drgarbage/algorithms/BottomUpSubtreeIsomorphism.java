@@ -16,19 +16,13 @@
 
 package com.drgarbage.algorithms;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
-import com.drgarbage.controlflowgraph.intf.GraphUtils;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
-import com.drgarbage.controlflowgraph.intf.INodeListExt;
 
 /**
  * Implements the Bottom-Up Unordered Subtree Isomorphism algorithm. The implementation is
@@ -99,9 +93,6 @@ import com.drgarbage.controlflowgraph.intf.INodeListExt;
  * $Id$
  */
 public class BottomUpSubtreeIsomorphism {
-	
-	private int knownEquivalenceClasses = 1;
-	private HashMap<ArrayList<Integer>, Integer> childrenclassesToParentclassMap = new HashMap<ArrayList<Integer>, Integer>();
 
 	/**
 	 * Executes the Bottom-Up Unordered Subtree Isomorphism Algorithm.
@@ -116,27 +107,13 @@ public class BottomUpSubtreeIsomorphism {
 			throws ControlFlowGraphException {
 
 		/* get root nodes */
-		INodeExt leftRoot = null;
-		for (int i = 0; i < leftGraph.getNodeList().size(); i++) {
-			INodeExt n = leftGraph.getNodeList().getNodeExt(i);
-			if (n.getIncomingEdgeList().size() == 0) {
-				leftRoot = n;
-			}
-		}
-
+		INodeExt leftRoot = CompactTree.findRoot(leftGraph);
 		if (leftRoot == null) {
 			throw new ControlFlowGraphException(
 					"The left tree has no root. The graph is propably not a tree.");
 		}
 
-		INodeExt rightRoot = null;
-		for (int i = 0; i < rightGraph.getNodeList().size(); i++) {
-			INodeExt n = rightGraph.getNodeList().getNodeExt(i);
-			if (n.getIncomingEdgeList().size() == 0) {
-				rightRoot = n;
-			}
-		}
-
+		INodeExt rightRoot = CompactTree.findRoot(rightGraph);
 		if (rightRoot == null) {
 			throw new ControlFlowGraphException(
 					"The right tree has no root. The graph is propably not a tree.");
@@ -147,46 +124,35 @@ public class BottomUpSubtreeIsomorphism {
 
 	/**
 	 * Executes the Bottom-Up Unordered Subtree Isomorphism Algorithm.
+	 * The trees are converted to the {@link CompactTree} representation,
+	 * the nodes of the graphs are only used to return the result.
 	 * 
 	 * @param leftGraph the graph <code>T_1</code>
 	 * @param leftRoot the root node of the left graph
 	 * @param rightGraph the graph <code>T_2</code>
 	 * @param rightRoot the root node of the right graph
-	 * @return the map of matched nodes
+	 * @return the map of matched nodes or <code>null</code> if
+	 * the left tree is larger than the right tree
 	 */
 	public Map<INodeExt, INodeExt> bottomUpUnorderedSubtreeIsomorphism(
 			IDirectedGraphExt leftGraph, INodeExt leftRoot,
 			IDirectedGraphExt rightGraph, INodeExt rightRoot) {
 		
+		CompactTree left = new CompactTree(leftGraph, leftRoot);
+		CompactTree right = new CompactTree(rightGraph, rightRoot);
+
 		/* check tree size */
-		if(leftGraph.getNodeList().size() > rightGraph.getNodeList().size()){
+		if(left.size() > right.size()){
 			return null;
 		}
 		
-//		IEdgeListExt backEdgesCfgLeft = removeBackEdges(leftGraph);
-//		IEdgeListExt backEdgesCfgRight = removeBackEdges(rightGraph);
-//		
-//		IDirectedGraphExt leftSpanningTree = Algorithms.doSpanningTreeAlgorithm(leftGraph, false);
-//		IDirectedGraphExt rightSpanningTree = Algorithms.doSpanningTreeAlgorithm(rightGraph, false);
-		
-		/* clear tree graphs */
-		GraphUtils.clearGraph(leftGraph);
-		GraphUtils.clearGraphColorMarks(leftGraph);
-		GraphUtils.clearGraph(rightGraph);
-		GraphUtils.clearGraphColorMarks(rightGraph);
-		
 		/* partition the sets of nodes of both graphs in bottom-up subtree isomorphism equivalence classes */
-		HashMap<INodeExt, Integer> leftNodeToClassMap = partitionInIsomorphismEquivalenceClasses(leftGraph);
-		HashMap<INodeExt, Integer> rightNodeToClassMap = partitionInIsomorphismEquivalenceClasses(rightGraph);
+		partitionInIsomorphismEquivalenceClasses(left, right);
 		
 		/* test equivalence classes of the root of T_1 and each of the nodes of T_2
 		 * and create map of equivalent nodes
 		 */
-		Map<INodeExt, INodeExt> M;
-		
-		M = mapIsomorphicNodes(leftGraph, leftRoot, leftNodeToClassMap, rightGraph, rightNodeToClassMap);
-		
-		return M;
+		return mapIsomorphicNodes(left, right);
 	}
 
 	/**
@@ -242,59 +208,24 @@ public class BottomUpSubtreeIsomorphism {
 	 * nodes) as keys and integers (equivalence class of the children's
 	 * parent) as values.
 	 * 
-	 * @param graph tree to be partitioned into equivalence classes
-	 * @return returns node to class map
+	 * The map contains a list of integers (equivalence classes of children
+	 * nodes) as keys and integers (equivalence class of the children's
+	 * parent) as values. The equivalence classes are the canonical
+	 * labels of {@link CompactTree#computeLabels(CompactTree, CompactTree)}.
+	 * 
+	 * @param left tree <code>T_1</code> to be partitioned into equivalence classes
+	 * @param right tree <code>T_2</code> to be partitioned into equivalence classes
 	 */
-	private HashMap<INodeExt, Integer> partitionInIsomorphismEquivalenceClasses(
-			IDirectedGraphExt graph) {
-		
-		HashMap<INodeExt, Integer> nodeToClassMap = new HashMap<INodeExt, Integer>();
+	private void partitionInIsomorphismEquivalenceClasses(
+			CompactTree left, CompactTree right) {
 		
-		INodeListExt postorderNodeList = TreeTraversal.doPostorderTreeListTraversal(graph);
-		
-		for (int i = 0; i < postorderNodeList.size(); i++) {
-			INodeExt node = postorderNodeList.getNodeExt(i);
-			
-			/* all leaves have the equivalence class of 1 */
-			if (node.getOutgoingEdgeList().size() == 0) {
-				nodeToClassMap.put(node, 1);
-			}
-
-			else {
-				/* equivalence classes of children of current node */
-				ArrayList<Integer> childclassesList = new ArrayList<Integer>();
-
-				for (int j = 0; j < node.getOutgoingEdgeList().size(); j++) {
-					INodeExt child = node.getOutgoingEdgeList().getEdgeExt(j).getTarget();
-
-					/* fill list with equivalence classes of children nodes */
-					childclassesList.add(nodeToClassMap.get(child));
-				}
-				
-				Collections.sort(childclassesList);
-				
-				/* if a node with the same equivalence classes of children nodes already exists,
-				 * assign the same equivalence class to that node */
-				if (childrenclassesToParentclassMap.containsKey(childclassesList)) {
-					nodeToClassMap.put(node, childrenclassesToParentclassMap.get(childclassesList));
-				}
-
-				/* otherwise create new equivalence class */
-				else {
-					childrenclassesToParentclassMap.put(childclassesList, ++knownEquivalenceClasses);
-					nodeToClassMap.put(node, knownEquivalenceClasses);
-				}
-			}
-		}
+		CompactTree.computeLabels(left, right);
 		
 		debug(" === equivalence classes:");
 		debug("node to class map:");
-		printNodeToClassMap(nodeToClassMap);
-		debug("\nchildrenclasses to parentclass map:");
-		debug(childrenclassesToParentclassMap.toString());
+		printNodeToClassMap(left);
+		printNodeToClassMap(right);
 		debug(" ========================");
-		
-		return nodeToClassMap;
 	}
 	
 	/**
@@ -322,30 +253,25 @@ public class BottomUpSubtreeIsomorphism {
 	 *		v1      w10
 	 * </pre>
 	 * 
-	 * @param leftGraph the left graph
-	 * @param leftRoot root of the left graph
-	 * @param leftNodeToClassMap map containing the equivalence class of the nodes in the left graph
-	 * @param rightGraph the right graph
-	 * @param rightNodeToClassMap map containing the equivalence class of the nodes in the right graph
+	 * <br>
+	 * The first node of T_2 in preorder which belongs to the equivalence
+	 * class of the root of T_1 is used. Mapping the nodes of T_1 to
+	 * equivalent nodes in the subtree of T_2 during preorder traversal
+	 * of T_1, guarantees that the bottom-up subtree isomorphism mapping
+	 * preserves the structure of tree T_1, see
+	 * {@link CompactTree#mapIsomorphicSubtrees(CompactTree, int, CompactTree, int, Map)}.
+	 * 
+	 * @param left the left tree
+	 * @param right the right tree
 	 * @return returns map with isomorphic nodes
 	 */
-	private Map<INodeExt, INodeExt> mapIsomorphicNodes(
-			IDirectedGraphExt leftGraph, INodeExt leftRoot,
-			HashMap<INodeExt, Integer> leftNodeToClassMap,
-			IDirectedGraphExt rightGraph,
-			HashMap<INodeExt, Integer> rightNodeToClassMap) {
+	private Map<INodeExt, INodeExt> mapIsomorphicNodes(CompactTree left, CompactTree right) {
 		
 		Map<INodeExt, INodeExt> M = new HashMap<INodeExt, INodeExt>();
 		
-		for (int i = 0; i < rightGraph.getNodeList().size(); i++) {
-			INodeExt rightNode = rightGraph.getNodeList().getNodeExt(i);
-			
-			if (leftNodeToClassMap.get(leftRoot).equals(rightNodeToClassMap.get(rightNode))) {
-				M.put(leftRoot, rightNode);
-				M.putAll(buildMap(leftRoot, leftNodeToClassMap, rightNode, rightNodeToClassMap));
-			}
-			
-			if (M.size() == leftGraph.getNodeList().size()) {
+		for (int w = 0; w < right.size(); w++) {
+			if (left.getLabel(0) == right.getLabel(w)) {
+				CompactTree.mapIsomorphicSubtrees(left, 0, right, w, M);
 				break;
 			}
 		}
@@ -353,61 +279,7 @@ public class BottomUpSubtreeIsomorphism {
 		return M;
 	}
 	
-	/**
-	 * Mapping the nodes of the left graph to equivalent nodes in the
-	 * subtree of the right graph rooted in the right graph at node v.
-	 * 
-	 * Citation from: "Algorithms on Trees and Graphs":
-	 * <pre>
-	 * Mapping the nodes of T_1 to equivalent nodes in the subtree of
-	 * T_2 during preorder traversal of T_1, guarantees that the
-	 * bottom-up subtree isomorphism mapping preserves he structure of
-	 * tree T_1. In the following recurse procedure, each of the
-	 * children of node r_1 &isin; V_1 is mapped to some unmapped child
-	 * of node r_2 &isin; V_2 belonging to the same equivalence class.
-	 * </pre>
-	 * 
-	 * @param leftNode node in the left graph
-	 * @param leftNodeToClassMap map containing the equivalence class of the nodes in the left graph
-	 * @param rightNode node in the right graph
-	 * @param rightNodeToClassMap map containing the equivalence class of the nodes in the right graph
-	 * @return returns map, key is a node in the left graph, value the equivalent node in the subtree of the right graph
-	 */
-	private Map<INodeExt, INodeExt> buildMap (
-			INodeExt leftNode,
-			HashMap<INodeExt, Integer> leftNodeToClassMap,
-			INodeExt rightNode,
-			HashMap<INodeExt, Integer> rightNodeToClassMap) {
-		
-		HashMap<INodeExt, INodeExt> map = new HashMap<INodeExt, INodeExt>();
-		ArrayList<INodeExt> l = new ArrayList<INodeExt>();
-
-		for (int i = 0; i < rightNode.getOutgoingEdgeList().size(); i++) {
-			l.add(rightNode.getOutgoingEdgeList().getEdgeExt(i).getTarget());
-		}
-
-		INodeExt v, w;
-
-		for (int i = 0; i < leftNode.getOutgoingEdgeList().size(); i++) {
-			v = leftNode.getOutgoingEdgeList().getEdgeExt(i).getTarget();
-
-			Iterator<INodeExt> items = l.iterator();
-			while (items.hasNext()) {
-				w = items.next();
-				if (leftNodeToClassMap.get(v) == rightNodeToClassMap.get(w)) {
-					map.put(v, w);
-					items.remove();
-					
-					map.putAll(buildMap(v, leftNodeToClassMap, w, rightNodeToClassMap));
-										
-					break;
-				}
-			}
-		}
-		return map;
-	}
-	
-	/* 
+	/*  
 	 * The Methods in this section are used for purely debugging purposes 
 	 */
 	
@@ -470,16 +342,16 @@ public class BottomUpSubtreeIsomorphism {
 	}
 	
 	/**
-	 * Prints a map of nodes and their equivalence class.
-	 * @param nodeToClassMap the map
+	 * Prints the nodes of a tree and their equivalence class.
+	 * @param tree the tree
 	 */
-	static void printNodeToClassMap(HashMap<INodeExt, Integer> nodeToClassMap){
+	static void printNodeToClassMap(CompactTree tree){
 		if(!DEBUG) return;
 		
-		for(Entry<INodeExt, Integer> entry : nodeToClassMap.entrySet()){
-			System.out.println(entry.getKey().getData()
+		for(int v = 0; v < tree.size(); v++){
+			System.out.println(tree.getNode(v).getData()
 					+ " = "
-					+ entry.getValue());
+					+ tree.getLabel(v));
 		}
 	}
 }
@@ -16,7 +16,7 @@
 
 package com.drgarbage.algorithms;
 
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.TreeMap;
 
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
@@ -190,6 +190,7 @@ public class ByteCodeSimpleLayout extends DFSBase {
 			throw new ControlFlowGraphException("Can't start DFS. Vertex List is empty.");
 		}
 		
+		state = new TraversalState(graph);
 		INodeExt node = null;
 		for(int i = 0; i < nodeList.size(); i++ ){
 			node = nodeList.getNodeExt(i);
@@ -241,7 +242,7 @@ public class ByteCodeSimpleLayout extends DFSBase {
 	        		IEdgeExt e = null;
 					for (int j = 0; j < outList.size(); j++){			 
 						 e = outList.getEdgeExt(j);
-						 if(!e.getTarget().isVisited() && e.getTarget().getX() == -1){
+						 if(!state.isVisited(e.getTarget()) && e.getTarget().getX() == -1){
 							 tm.put(new Integer(e.getTarget().getByteCodeOffset()), e.getTarget()); 
 						 }
 					}
@@ -258,7 +259,7 @@ public class ByteCodeSimpleLayout extends DFSBase {
 			default:
 				if( outList.size() > 0){
 					e = outList.getEdgeExt(0);
-					if(!e.getTarget().isVisited() && e.getTarget().getX() == -1){
+					if(!state.isVisited(e.getTarget()) && e.getTarget().getX() == -1){
 						e.getTarget().setX(node.getX());
 					}
 				}
@@ -282,63 +283,111 @@ public class ByteCodeSimpleLayout extends DFSBase {
 		activeNode = null;
 	}
 
-	protected void dfs(INodeExt node){
-		if(stopRecurion)
-			return;
+	/**
+	 * Stack of the nodes being visited, the index of the next
+	 * outgoing edge and the outgoing edges of the switch nodes
+	 * sorted by the y coordinate of the targets.
+	 */
+	private INodeExt[] stackNodes = new INodeExt[16];
+	private int[] stackEdges = new int[16];
+	private IEdgeExt[][] stackSwitchEdges = new IEdgeExt[16][];
 
-		if(node.isVisited())
+	/**
+	 * Visits the nodes reachable from the given node. A node is
+	 * visited if all its incoming edges have been visited. The outgoing
+	 * edges of a switch node are visited in the order of the y coordinate
+	 * of their targets. The search is implemented by an explicit stack.
+	 * @param node the start node
+	 */
+	protected void dfs(INodeExt node){
+		if(stopRecurion || state.isVisited(node))
 			return;
-		
-		node.setVisited(true);
 
-		//vertex visitor hook
-		visitNode(node);
-		
-		if(node.getVertexType() == INodeType.NODE_TYPE_SWITCH){
+		int depth = push(node, 0);
+		while(depth > 0){
+			INodeExt n = stackNodes[depth - 1];
+			IEdgeExt[] switchEdges = stackSwitchEdges[depth - 1];
+			int i = stackEdges[depth - 1]++;
 
-			IEdgeListExt outList = node.getOutgoingEdgeList();
 			IEdgeExt e = null;
-			//sort by Y
-	     	TreeMap<Object, IEdgeExt> tm = new TreeMap<Object, IEdgeExt>();
-			for(int i = 0; i < outList.size(); i++){		
-				e = outList.getEdgeExt(i);
-				tm.put(new Integer(e.getTarget().getY()), e); 
+			if(switchEdges != null){
+				if(i < switchEdges.length){
+					e = switchEdges[i];
+				}
+			}
+			else{
+				IEdgeListExt outList = n.getOutgoingEdgeList();
+				if(i < outList.size()){
+					e = outList.getEdgeExt(i);
+					state.setVisited(e, true);
+
+					/* count the visited incoming edges of the target */
+					state.setValue(e.getTarget(), state.getValue(e.getTarget()) + 1);
+				}
 			}
-			
-			Iterator<IEdgeExt> it = tm.values().iterator();
-			while(it.hasNext()){
-				e = it.next();
 
-				if(allIncomingEdgesVisited(e.getTarget()))
-					dfs(e.getTarget());
+			if(e == null){
+				stackNodes[--depth] = null;
+				stackSwitchEdges[depth] = null;
+				continue;
+			}
+
+			INodeExt next = e.getTarget();
+			if(!stopRecurion && !state.isVisited(next) && allIncomingEdgesVisited(next)){
+				depth = push(next, depth);
 			}
-		
 		}
-		else{
+	}
+
+	/**
+	 * Visits a node and pushes it on the stack.
+	 * @param node the node
+	 * @param depth the current depth of the stack
+	 * @return the new depth of the stack
+	 */
+	private int push(INodeExt node, int depth){
+		state.setVisited(node, true);
+
+		//vertex visitor hook
+		visitNode(node);
+
+		if(depth == stackNodes.length){
+			stackNodes = Arrays.copyOf(stackNodes, depth * 2);
+			stackEdges = Arrays.copyOf(stackEdges, depth * 2);
+			stackSwitchEdges = Arrays.copyOf(stackSwitchEdges, depth * 2);
+		}
+
+		IEdgeExt[] switchEdges = null;
+		if(node.getVertexType() == INodeType.NODE_TYPE_SWITCH){
 			IEdgeListExt outList = node.getOutgoingEdgeList();
-			IEdgeExt e = null;
-			for(int i = 0; i < outList.size(); i++){		
-				e = outList.getEdgeExt(i);
-				e.setVisited(true);
 
-				if(allIncomingEdgesVisited(e.getTarget()))
-					dfs(e.getTarget());
+			//sort by Y
+			TreeMap<Integer, IEdgeExt> tm = new TreeMap<Integer, IEdgeExt>();
+			for(int i = 0; i < outList.size(); i++){
+				IEdgeExt e = outList.getEdgeExt(i);
+				tm.put(Integer.valueOf(e.getTarget().getY()), e);
 			}
+			switchEdges = tm.values().toArray(new IEdgeExt[tm.size()]);
 		}
-	
+
+		stackNodes[depth] = node;
+		stackEdges[depth] = 0;
+		stackSwitchEdges[depth] = switchEdges;
+
+		return depth + 1;
 	}
-	
-	//TODO: optimize
+
+	/**
+	 * Returns <code>true</code> if all incoming edges of the node
+	 * have been visited. The visited incoming edges are counted
+	 * in the value of the node.
+	 * @param n the node
+	 * @return <code>true</code> or <code>false</code>
+	 */
 	private boolean allIncomingEdgesVisited(INodeExt n){
-		IEdgeListExt edgeList = n.getIncomingEdgeList();
-		for(int i = 0; i < edgeList.size(); i++){
-			if(!edgeList.getEdgeExt(i).isVisited())
-				return false;
-		}
-		
-		return true;		
+		return state.getValue(n) >= n.getIncomingEdgeList().size();
 	}
-	
+
 	/* (non-Javadoc)
 	 * @see com.drgarbage.algorithms.DFSBase#postVisitNode(com.drgarbage.controlflowgraph.intf.INodeExt)
 	 */
@@ -0,0 +1,445 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.algorithms;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+import com.drgarbage.controlflowgraph.intf.INodeListExt;
+
+/**
+ * Array representation of a tree for the subtree isomorphism
+ * algorithms. The nodes are numbered in preorder, the root has
+ * the index 0. The parent, the children, the size and the height
+ * of the subtrees are kept in integer arrays, the nodes of the
+ * graph are only needed to map the result back.
+ * <br>
+ * Only the edges of the edge list of the graph are tree edges.
+ * This allows to use a spanning tree which shares the nodes with
+ * the original graph, the back edges and cross edges in the edge
+ * lists of the nodes are ignored. If a node is reached by more
+ * than one edge, only the first edge in preorder is used.
+ * <br>
+ * The canonical labels computed by
+ * {@link #computeLabels(CompactTree, CompactTree)} are the
+ * bottom-up subtree isomorphism equivalence classes of
+ * Aho, Hopcroft and Ullman: two subtrees have the same label
+ * if and only if they are isomorphic.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class CompactTree {
+
+	/**
+	 * The label of the leaves.
+	 */
+	public static final int LEAF_LABEL = 1;
+
+	private INodeExt[] nodes;
+	private int[] parent;
+	private int[] childStart;
+	private int[] children;
+	private int[] size;
+	private int[] height;
+	private int[] label;
+
+	/**
+	 * Returns the last node of the node list without incoming
+	 * tree edges.
+	 * @param graph the graph
+	 * @return the root or <code>null</code> if the graph has no root
+	 */
+	public static INodeExt findRoot(IDirectedGraphExt graph) {
+		Map<INodeExt, INodeExt> targets = new IdentityHashMap<INodeExt, INodeExt>();
+		IEdgeListExt edges = graph.getEdgeList();
+		for(int i = 0; i < edges.size(); i++){
+			INodeExt target = edges.getEdgeExt(i).getTarget();
+			targets.put(target, target);
+		}
+
+		INodeExt root = null;
+		INodeListExt nodeList = graph.getNodeList();
+		for(int i = 0; i < nodeList.size(); i++){
+			INodeExt n = nodeList.getNodeExt(i);
+			if(!targets.containsKey(n)){
+				root = n;
+			}
+		}
+
+		return root;
+	}
+
+	/**
+	 * Creates the array representation of the tree rooted at
+	 * the given node. Only the nodes reachable from the root
+	 * are included.
+	 * @param graph the tree
+	 * @param root the root of the tree
+	 */
+	public CompactTree(IDirectedGraphExt graph, INodeExt root) {
+
+		/* dense ids of the nodes in the order of the node list */
+		Map<INodeExt, Integer> ids = new IdentityHashMap<INodeExt, Integer>();
+		INodeListExt nodeList = graph.getNodeList();
+		for(int i = 0; i < nodeList.size(); i++){
+			getId(ids, nodeList.getNodeExt(i));
+		}
+
+		/* outgoing tree edges of the nodes in the order of the edge list */
+		IEdgeListExt edges = graph.getEdgeList();
+		int[] edgeSource = new int[edges.size()];
+		int[] edgeTarget = new int[edges.size()];
+		for(int i = 0; i < edges.size(); i++){
+			IEdgeExt e = edges.getEdgeExt(i);
+			edgeSource[i] = getId(ids, e.getSource());
+			edgeTarget[i] = getId(ids, e.getTarget());
+		}
+		int rootId = getId(ids, root);
+
+		INodeExt[] byId = new INodeExt[ids.size()];
+		for(Map.Entry<INodeExt, Integer> entry: ids.entrySet()){
+			byId[entry.getValue().intValue()] = entry.getKey();
+		}
+
+		int[] outStart = new int[byId.length + 1];
+		for(int i = 0; i < edgeSource.length; i++){
+			outStart[edgeSource[i] + 1]++;
+		}
+		for(int i = 0; i < byId.length; i++){
+			outStart[i + 1] += outStart[i];
+		}
+		int[] out = new int[edgeSource.length];
+		int[] fill = Arrays.copyOf(outStart, byId.length);
+		for(int i = 0; i < edgeSource.length; i++){
+			out[fill[edgeSource[i]]++] = edgeTarget[i];
+		}
+
+		/* number the nodes in preorder, the stack keeps pairs of id and parent */
+		int[] preorder = new int[byId.length];
+		Arrays.fill(preorder, -1);
+		int[] stack = new int[2 * (edgeSource.length + 1)];
+		int top = 0;
+		stack[top++] = rootId;
+		stack[top++] = -1;
+		int count = 0;
+		nodes = new INodeExt[byId.length];
+		parent = new int[byId.length];
+		while(top > 0){
+			int p = stack[--top];
+			int id = stack[--top];
+			if(preorder[id] != -1){
+				continue; /* not a tree edge */
+			}
+
+			preorder[id] = count;
+			nodes[count] = byId[id];
+			parent[count] = p;
+			count++;
+
+			/* push in reverse order, so that the first child is visited first */
+			for(int k = outStart[id + 1] - 1; k >= outStart[id]; k--){
+				int target = out[k];
+				if(preorder[target] == -1){
+					stack[top++] = target;
+					stack[top++] = preorder[id];
+				}
+			}
+		}
+		nodes = Arrays.copyOf(nodes, count);
+		parent = Arrays.copyOf(parent, count);
+
+		/* the children of a node have increasing preorder numbers */
+		childStart = new int[count + 1];
+		for(int i = 1; i < count; i++){
+			childStart[parent[i] + 1]++;
+		}
+		for(int i = 0; i < count; i++){
+			childStart[i + 1] += childStart[i];
+		}
+		children = new int[Math.max(count - 1, 0)];
+		fill = Arrays.copyOf(childStart, count);
+		for(int i = 1; i < count; i++){
+			children[fill[parent[i]]++] = i;
+		}
+
+		/* the children are processed before their parent in reverse preorder */
+		size = new int[count];
+		height = new int[count];
+		for(int i = count - 1; i >= 0; i--){
+			size[i]++;
+			if(i > 0){
+				size[parent[i]] += size[i];
+				if(height[i] + 1 > height[parent[i]]){
+					height[parent[i]] = height[i] + 1;
+				}
+			}
+		}
+	}
+
+	private static int getId(Map<INodeExt, Integer> ids, INodeExt node) {
+		Integer id = ids.get(node);
+		if(id == null){
+			id = Integer.valueOf(ids.size());
+			ids.put(node, id);
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * Returns the number of nodes of the tree.
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the node of the graph.
+	 * @param v the index of the node
+	 * @return the node
+	 */
+	public INodeExt getNode(int v) {
+		return nodes[v];
+	}
+
+	/**
+	 * Returns the parent of a node.
+	 * @param v the index of the node
+	 * @return the index of the parent or -1 for the root
+	 */
+	public int getParent(int v) {
+		return parent[v];
+	}
+
+	/**
+	 * Returns the number of children of a node.
+	 * @param v the index of the node
+	 * @return the number of children
+	 */
+	public int getChildCount(int v) {
+		return childStart[v + 1] - childStart[v];
+	}
+
+	/**
+	 * Returns a child of a node. The children are in the order
+	 * of the edge list of the graph.
+	 * @param v the index of the node
+	 * @param k the number of the child
+	 * @return the index of the child
+	 */
+	public int getChild(int v, int k) {
+		return children[childStart[v] + k];
+	}
+
+	/**
+	 * Returns the number of nodes of the subtree rooted at a node.
+	 * @param v the index of the node
+	 * @return the size of the subtree
+	 */
+	public int getSize(int v) {
+		return size[v];
+	}
+
+	/**
+	 * Returns the height of the subtree rooted at a node.
+	 * The leaves have the height 0.
+	 * @param v the index of the node
+	 * @return the height of the subtree
+	 */
+	public int getHeight(int v) {
+		return height[v];
+	}
+
+	/**
+	 * Returns the canonical label of the subtree rooted at a node.
+	 * @param v the index of the node
+	 * @return the label
+	 * @see #computeLabels(CompactTree, CompactTree)
+	 */
+	public int getLabel(int v) {
+		return label[v];
+	}
+
+	/**
+	 * Returns the nodes in postorder.
+	 * @return the indices of the nodes
+	 */
+	public int[] getPostorder() {
+		int[] postorder = new int[nodes.length];
+		if(nodes.length == 0){
+			return postorder;
+		}
+
+		/* the stack keeps the nodes and the number of the next child */
+		int[] stackNode = new int[height[0] + 1];
+		int[] stackChild = new int[height[0] + 1];
+		int top = 0;
+		int count = 0;
+		stackNode[0] = 0;
+		stackChild[0] = 0;
+		while(top >= 0){
+			int v = stackNode[top];
+			int k = stackChild[top];
+			if(k < getChildCount(v)){
+				stackChild[top]++;
+				top++;
+				stackNode[top] = getChild(v, k);
+				stackChild[top] = 0;
+			}
+			else{
+				postorder[count++] = v;
+				top--;
+			}
+		}
+
+		return postorder;
+	}
+
+	/**
+	 * Partitions the nodes of both trees in bottom-up subtree isomorphism
+	 * equivalence classes. The leaves get the label {@link #LEAF_LABEL}.
+	 * All other nodes are processed in postorder, first the nodes of
+	 * the left tree. The sorted list of the labels of the children is
+	 * looked up in a dictionary shared by both trees. If the list is
+	 * not found, the next free label is assigned to the list.
+	 * <br>
+	 * The labeling takes <code>O(n log d)</code> time, where <code>d</code>
+	 * is the maximal number of children of a node.
+	 *
+	 * @param left the left tree
+	 * @param right the right tree
+	 */
+	public static void computeLabels(CompactTree left, CompactTree right) {
+		Map<LabelKey, Integer> dictionary = new HashMap<LabelKey, Integer>();
+		left.computeLabels(dictionary);
+		right.computeLabels(dictionary);
+	}
+
+	private void computeLabels(Map<LabelKey, Integer> dictionary) {
+		label = new int[nodes.length];
+		int[] postorder = getPostorder();
+		for(int i = 0; i < postorder.length; i++){
+			int v = postorder[i];
+			int p = getChildCount(v);
+			if(p == 0){
+				label[v] = LEAF_LABEL;
+				continue;
+			}
+
+			int[] childLabels = new int[p];
+			for(int k = 0; k < p; k++){
+				childLabels[k] = label[getChild(v, k)];
+			}
+			Arrays.sort(childLabels);
+
+			LabelKey key = new LabelKey(childLabels);
+			Integer l = dictionary.get(key);
+			if(l == null){
+				l = Integer.valueOf(dictionary.size() + LEAF_LABEL + 1);
+				dictionary.put(key, l);
+			}
+			label[v] = l.intValue();
+		}
+	}
+
+	/**
+	 * Maps the nodes of two isomorphic subtrees. The children of
+	 * the nodes are sorted by the labels, so that the children with
+	 * the same label are mapped to each other.
+	 *
+	 * @param left the left tree
+	 * @param v the root of the subtree of the left tree
+	 * @param right the right tree
+	 * @param w the root of the subtree of the right tree
+	 * @param map the map of the matched nodes
+	 * @see #computeLabels(CompactTree, CompactTree)
+	 */
+	public static void mapIsomorphicSubtrees(CompactTree left, int v,
+			CompactTree right, int w, Map<INodeExt, INodeExt> map) {
+
+		int[] stack = new int[2 * left.getSize(v)];
+		int top = 0;
+		stack[top++] = v;
+		stack[top++] = w;
+		while(top > 0){
+			int y = stack[--top];
+			int x = stack[--top];
+			map.put(left.getNode(x), right.getNode(y));
+
+			long[] leftChildren = left.sortChildrenByLabel(x);
+			long[] rightChildren = right.sortChildrenByLabel(y);
+			for(int k = 0; k < leftChildren.length; k++){
+				stack[top++] = (int)leftChildren[k];
+				stack[top++] = (int)rightChildren[k];
+			}
+		}
+	}
+
+	/**
+	 * Returns the children of a node sorted by the labels. The label is
+	 * kept in the upper and the index of the child in the lower 32 bits.
+	 * @param v the index of the node
+	 * @return the sorted children
+	 */
+	private long[] sortChildrenByLabel(int v) {
+		int p = getChildCount(v);
+		long[] sorted = new long[p];
+		for(int k = 0; k < p; k++){
+			int child = getChild(v, k);
+			sorted[k] = ((long)label[child] << 32) | child;
+		}
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Key of the dictionary of the labels.
+	 */
+	private static class LabelKey {
+		private int[] labels;
+		private int hash;
+
+		LabelKey(int[] labels) {
+			this.labels = labels;
+			this.hash = Arrays.hashCode(labels);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode() {
+			return hash;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals(Object obj) {
+			if(!(obj instanceof LabelKey)){
+				return false;
+			}
+			return Arrays.equals(labels, ((LabelKey)obj).labels);
+		}
+	}
+}
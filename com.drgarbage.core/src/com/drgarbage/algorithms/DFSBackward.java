@@ -22,7 +22,9 @@ import com.drgarbage.controlflowgraph.intf.INodeExt;
 
 /**
  *  Depth first search backward algorithm. Traversing 
- *  is allowed only in arc backward direction.
+ *  is allowed only in arc backward direction. The search is 
+ *  implemented by {@link DFSBase#dfs(INodeExt)}, the incoming
+ *  edges are followed to their source nodes.
  *
  *  @author Sergej Alekseev  
  *  @version $Revision$
@@ -30,33 +32,20 @@ import com.drgarbage.controlflowgraph.intf.INodeExt;
  */
 public abstract class DFSBackward extends DFSBase {
 
-	protected void dfs(INodeExt node){
-		if(stopRecurion)
-			return;
-
-		if(node.isVisited())
-			return;
-		
-		node.setVisited(true);
-
-		/* vertex visitor hook */
-		visitNode(node);
-		
-		IEdgeListExt inList = node.getIncomingEdgeList();
-		IEdgeExt e = null;
-		for(int i = 0; i < inList.size(); i++){
-			e = inList.getEdgeExt(i);
-
-			/* edge visitor hook */
-			visitEdge(e);
+	/* (non-Javadoc)
+	 * @see com.drgarbage.algorithms.DFSBase#getEdgeList(com.drgarbage.controlflowgraph.intf.INodeExt)
+	 */
+	@Override
+	protected IEdgeListExt getEdgeList(INodeExt node){
+		return node.getIncomingEdgeList();
+	}
 
-			dfs(e.getSource());
-			
-			/* edge post visitor hook */
-			postVisitEdge(e);
-		}
-		
-		postVisitNode(node);
+	/* (non-Javadoc)
+	 * @see com.drgarbage.algorithms.DFSBase#getAdjacentNode(com.drgarbage.controlflowgraph.intf.IEdgeExt)
+	 */
+	@Override
+	protected INodeExt getAdjacentNode(IEdgeExt edge){
+		return edge.getSource();
 	}
 	
 	/* (non-Javadoc)
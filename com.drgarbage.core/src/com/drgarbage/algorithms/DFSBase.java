@@ -16,9 +16,12 @@
 
 package com.drgarbage.algorithms;
 
+import java.util.Arrays;
+
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
 import com.drgarbage.controlflowgraph.intf.INodeListExt;
 import com.drgarbage.core.CorePlugin;
@@ -38,6 +41,12 @@ import com.drgarbage.core.CorePlugin;
  *      / \           / \
  *     4   5        10   11
  *  </pre>            
+ *  
+ *  The search uses an explicit stack instead of the recursion,
+ *  the depth of the graph is not limited by the size of the 
+ *  thread stack. The edges are iterated by index, no iterator
+ *  objects are created, the search is linear in the number of
+ *  nodes and edges.
  *               
  *  @author Sergej Alekseev  
  *  @version $Revision$
@@ -72,6 +81,7 @@ public abstract class DFSBase {
 			throw new ControlFlowGraphException("Can't start DFS. Vertex List is empty.");
 		}
 
+		state = new TraversalState(graph);
 		for(int i = 0; i < nodeList.size(); i++ ){
 			dfs(nodeList.getNodeExt(i));
 		}
@@ -91,15 +101,138 @@ public abstract class DFSBase {
 			throw new ControlFlowGraphException("Can't start DFS. Start Vertex '" + start.toString()+ "' not found." );
 		}
 
+		state = new TraversalState(graph);
 		dfs(start);
 		
 		postHandling();
 	}
 	
-	protected abstract void dfs(INodeExt node);
+	/**
+	 * Depth first search from the given node. The visitor hooks
+	 * are called in the same order as by the recursive search:
+	 * <pre>
+	 *   dfs(node):
+	 *     visitNode(node)
+	 *     for all edges e of the node:
+	 *       visitEdge(e)
+	 *       if the adjacent node is not visited: dfs(adjacent node)
+	 *       postVisitEdge(e)
+	 *     postVisitNode(node)
+	 * </pre>
+	 * @param node the start node
+	 * @see #getEdgeList(INodeExt)
+	 * @see #getAdjacentNode(IEdgeExt)
+	 */
+	protected void dfs(INodeExt node){
+		if(stopRecurion)
+			return;
+
+		if(state.isVisited(node))
+			return;
+
+		int depth = push(node, 0);
+		while(depth > 0){
+			INodeExt top = stackNodes[depth - 1];
+			IEdgeListExt edges = getEdgeList(top);
+			int i = stackEdges[depth - 1];
+
+			if(i < edges.size()){
+				stackEdges[depth - 1] = i + 1;
+				IEdgeExt e = edges.getEdgeExt(i);
+				state.setVisited(e, true);
+
+				/* edge visitor hook */
+				visitEdge(e);
+
+				INodeExt next = getAdjacentNode(e);
+				if(!stopRecurion && !state.isVisited(next)){
+					/* descend, the edge is post visited on return */
+					depth = push(next, depth);
+					continue;
+				}
+
+				/* edge post visitor hook */
+				postVisitEdge(e);
+			}
+			else{
+				/* node post visitor hook */
+				postVisitNode(top);
+
+				depth--;
+				stackNodes[depth] = null;
+				if(depth > 0){
+					/* edge post visitor hook of the edge to the finished node */
+					INodeExt parent = stackNodes[depth - 1];
+					postVisitEdge(getEdgeList(parent).getEdgeExt(stackEdges[depth - 1] - 1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks the node as visited, calls the vertex visitor hook
+	 * and puts the node on the stack.
+	 * @param node the node
+	 * @param depth the current depth of the stack
+	 * @return the new depth of the stack
+	 */
+	private int push(INodeExt node, int depth){
+		state.setVisited(node, true);
+
+		if(depth == stackNodes.length){
+			stackNodes = Arrays.copyOf(stackNodes, depth * 2);
+			stackEdges = Arrays.copyOf(stackEdges, depth * 2);
+		}
+		stackNodes[depth] = node;
+		stackEdges[depth] = 0;
+
+		/* vertex visitor hook */
+		visitNode(node);
+
+		return depth + 1;
+	}
+
+	/**
+	 * Returns the edges the search follows from the node.
+	 * The default implementation returns the outgoing edges.
+	 * @param node the node
+	 * @return the list of edges
+	 */
+	protected IEdgeListExt getEdgeList(INodeExt node){
+		return node.getOutgoingEdgeList();
+	}
+
+	/**
+	 * Returns the node the search reaches by the edge.
+	 * The default implementation returns the target.
+	 * @param edge the edge
+	 * @return the adjacent node
+	 */
+	protected INodeExt getAdjacentNode(IEdgeExt edge){
+		return edge.getTarget();
+	}
+
 	protected abstract void postHandling() throws ControlFlowGraphException; 
 	
+	/**
+	 * Set to <code>true</code> by a visitor hook to stop
+	 * the search. No further nodes are entered.
+	 */
 	protected boolean stopRecurion = false;
+
+	/**
+	 * The stack of the search: the nodes and the
+	 * index of the next edge of each node.
+	 */
+	private INodeExt[] stackNodes = new INodeExt[16];
+	private int[] stackEdges = new int[16];
+
+	/**
+	 * The visited nodes and edges of the current run. The
+	 * state is created by the start methods, the graph itself
+	 * is not modified by the traversal.
+	 */
+	protected TraversalState state = null;
 	
 	/* public visitor hooks */
 	public abstract void visitNode(INodeExt node);
@@ -17,12 +17,11 @@
 package com.drgarbage.algorithms;
 
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
-import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
-import com.drgarbage.controlflowgraph.intf.INodeExt;
 
 /**
  *  Depth first search forward algorithm. Traversing is allowed 
- *  only in arc forward direction.
+ *  only in arc forward direction. The search is implemented
+ *  by {@link DFSBase#dfs(com.drgarbage.controlflowgraph.intf.INodeExt)}.
  *
  *  @author Sergej Alekseev 
  *  @version $Revision$
@@ -30,39 +29,6 @@ import com.drgarbage.controlflowgraph.intf.INodeExt;
  */
 public abstract class DFSForward extends DFSBase {
 
-	/* (non-Javadoc)
-	 * @see com.drgarbage.algorithms.DFSBase#dfs(com.drgarbage.controlflowgraph.intf.INodeExt)
-	 */
-	protected void dfs(INodeExt node){
-		if(stopRecurion)
-			return;
-
-		if(node.isVisited())
-			return;
-		
-		node.setVisited(true);
-
-		/* vertex visitor hook */
-		visitNode(node);
-		
-		IEdgeListExt outList = node.getOutgoingEdgeList();
-		IEdgeExt e = null;
-		for(int i = 0; i < outList.size(); i++){		
-			e = outList.getEdgeExt(i);
-			e.setVisited(true);
-
-			/* edge visitor hook */
-			visitEdge(e);
-
-			dfs(e.getTarget());
-			
-			/* edge post visitor hook */
-			postVisitEdge(e);
-		}
-		
-		postVisitNode(node);
-	}
-	
 	/* (non-Javadoc)
 	 * @see com.drgarbage.algorithms.DFSBase#postVisitEdge(com.drgarbage.controlflowgraph.intf.IEdgeExt)
 	 */
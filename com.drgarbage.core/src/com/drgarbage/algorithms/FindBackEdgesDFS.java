@@ -21,7 +21,6 @@ import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
-import com.drgarbage.controlflowgraph.intf.MarkEnum;
 
 /**
  * 	Finds a set of back edges for the given graph. 
@@ -29,13 +28,15 @@ import com.drgarbage.controlflowgraph.intf.MarkEnum;
  *  any cycles.<br>
  *  <br>
  *  
- *  The DFS colors a vertex WHITE if it visits the 
- *  vertex first time. The vertex is colored BLACK
+ *  The DFS marks a vertex if it visits the 
+ *  vertex first time. The mark is removed
  *  when its edge list has been examined completely.
  *  The recursion has been finished at this vertex.
- *  So any edges to a BLACK vertex cannot be back 
- *  edges. If the DFS revisit the vertex while it
- *  is still WHITE, a back edge has been detected.
+ *  So any edges to an unmarked visited vertex cannot 
+ *  be back edges. If the DFS revisit the vertex while
+ *  it is still marked, a back edge has been detected.
+ *  The marks are kept in the traversal state, the
+ *  colors of the graph are not changed.
  * 
  *  @author Sergej Alekseev  
  *  @version $Revision$
@@ -77,7 +78,7 @@ public class FindBackEdgesDFS extends DFSForward {
 	 */
 	@Override
 	public void visitNode(INodeExt node) {
-		node.setMark(MarkEnum.WHITE);	
+		state.setMarked(node, true);	
 	}
 
 	/* (non-Javadoc)
@@ -85,7 +86,7 @@ public class FindBackEdgesDFS extends DFSForward {
 	 */
 	@Override
 	public void visitEdge(IEdgeExt edge) {
-		if(edge.getTarget().getMark() == MarkEnum.WHITE){
+		if(state.isMarked(edge.getTarget())){
 			log("FOUND: " + edge);
 			backEdgeList.add(edge);
 		}
@@ -103,7 +104,7 @@ public class FindBackEdgesDFS extends DFSForward {
 	 * @see com.drgarbage.algorithms.DFSBase#postVisitNode(com.drgarbage.controlflowgraph.intf.INodeExt)
 	 */
 	public void postVisitNode(INodeExt node){
-		node.setMark(MarkEnum.BLACK);
+		state.setMarked(node, false);
 	}
 
 }
@@ -16,70 +16,50 @@
 package com.drgarbage.algorithms;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
-import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
-import com.drgarbage.controlflowgraph.intf.GraphUtils;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
-import com.drgarbage.controlflowgraph.intf.INodeListExt;
 
 /**
  * Provides the implementation of Hungarian method to solve Optimal Assignment
  * Problem (Finding of the Minimum Weighted Matching in a bipartite weighted graph).
- * 
- * Complexity of the algorithm is <code>O(mn^2)</code>, where <code>m</code> 
- * the number of edges and <code>n</code> the number of nodes 
- * in the graph <code>G</code>.
  * <br>
- * <b>Algorithm steps:</b><br>
- *<b> 1</b>. Reduction the graph is done in two steps: <br>
- * <ul>
- * <li>
- * Find in the first partition for each node the minimum value, 
- * assigned to it's edges and subtract this value from all edges 
- * of that node.
- * </li>
- * <li>
- * Find in the second partition for each node the minimum value, 
- * assigned to it's edges and subtract this value from all edges 
- * of that node.
- * </li>
- * </ul>
- *
- *<b> 2</b>. Return the list of nodes as minimum coverage of the zero elements.<br>
- *<b> 3</b>. While cardinality of covered node is not equal to cardinality of second bipartite graph do the following:
- * <ul>
- * <li>
- * 	Find the minimum weight value of the uncovered edges and add this minimum value to every covered edge. If an element is covered twice then add the minimum element to it twice.
- * </li>
- * <li>
- * Find the minimum weight value of all edges in the graph and subtract this minimum value from every edge in the graph.
- * </li>
- * <li>
- * Repeat step <b>3</b>: return the list of nodes as minimum coverage of the zero elements.
- * </li>
- * </ul>
- * 
- * 
- * 
- * NOTE: The edge property counter is used for storing weights. 
+ * The algorithm of Kuhn and Munkres is implemented with potentials
+ * <code>u</code> for the rows and <code>v</code> for the columns of the
+ * cost matrix. The potentials are maintained so that the reduced cost
+ * <code>c(i,j) - u(i) - v(j)</code> is never negative and is zero for
+ * the assigned elements. The rows are added one after the other, for each
+ * row a shortest augmenting path of reduced costs is searched and the
+ * potentials are updated along the path.
+ * <br>
+ * Complexity of the algorithm is <code>O(n^2m)</code> for a dense 
+ * <code>n x m</code> cost matrix, i.e. <code>O(n^3)</code> for a square 
+ * matrix. The sparse variant {@link #assignSparse(int, int, int[], int[], long[])}
+ * uses a shortest path search with a binary heap and runs in 
+ * <code>O(n(e + n + m) log(n + m))</code>, where <code>e</code> is the number 
+ * of elements of the matrix.
+ * <br>
+ * The method {@link #execute(IDirectedGraphExt, List, List)} is an adapter 
+ * for the bipartite graphs. The weights are read from the edge property 
+ * counter, the graph is not modified.
  * 
  * @author Sergej Alekssev, Artem Garishin
  * @version $Revision$
  * $Id$
  */
 public class HungarianMethod {
-		
+
 	/**
-	 * Map to store original weights.
+	 * Infinite distance. The value is big enough for the sums 
+	 * of the costs, but can not overflow if two of them are added.
 	 */
-	private Map<IEdgeExt, Integer> weights = new HashMap<IEdgeExt, Integer>(); 
+	private static final long INFINITY = Long.MAX_VALUE / 4;
 
 	/**
 	 * Default constructor.
@@ -97,7 +77,13 @@ public class HungarianMethod {
 	}
 
 	/**
-	 * Executes the algorithm Hungarian Method.
+	 * Executes the algorithm Hungarian Method. The edges of the graph
+	 * which connect a node of the first partition with a node of the
+	 * second partition are the elements of a sparse cost matrix, the
+	 * missing edges can not be assigned. If no perfect matching exists,
+	 * a matching of maximum cardinality with the minimum sum 
+	 * of weights is returned.
+	 * 
 	 * @param graph the bipartite graph
 	 * @param partA the first partition
 	 * @param partB the second partition
@@ -105,413 +91,449 @@ public class HungarianMethod {
 	 * @return the list of matched edges 
 	 */
 	public List<IEdgeExt>  execute(IDirectedGraphExt graph, List<INodeExt> partA, List<INodeExt> partB) {
-		GraphUtils.clearGraph(graph);
-		
-		/* store weights in a map */
-		IEdgeListExt edgeList1 = graph.getEdgeList();
-		for(int k = 0; k < edgeList1.size(); k++){
-			IEdgeExt e = edgeList1.getEdgeExt(k);
-			weights.put(e, e.getCounter());
+		Map<INodeExt, Integer> rows = indexNodes(partA);
+		Map<INodeExt, Integer> columns = indexNodes(partB);
+
+		/* the edges of the rows */
+		int n = partA.size();
+		int[] start = new int[n + 1];
+		IEdgeListExt edgeList = graph.getEdgeList();
+		for(int k = 0; k < edgeList.size(); k++){
+			int i = getRow(edgeList.getEdgeExt(k), rows, columns);
+			if(i >= 0){
+				start[i + 1]++;
+			}
+		}
+		for(int i = 0; i < n; i++){
+			start[i + 1] += start[i];
+		}
+
+		int[] column = new int[start[n]];
+		long[] cost = new long[start[n]];
+		IEdgeExt[] edges = new IEdgeExt[start[n]];
+		int[] next = Arrays.copyOf(start, n);
+		for(int k = 0; k < edgeList.size(); k++){
+			IEdgeExt e = edgeList.getEdgeExt(k);
+			int i = getRow(e, rows, columns);
+			if(i >= 0){
+				int pos = next[i]++;
+				INodeExt b = rows.containsKey(e.getSource()) ? e.getTarget() : e.getSource();
+				column[pos] = columns.get(b).intValue();
+				cost[pos] = e.getCounter();
+				edges[pos] = e;
+			}
 		}
 
-		/* subtract minimum value from rows and columns to create lots of zeroes */
-		reduceGraph(partA, partB);
 		printBipartiteGraph(partA, partB);
 
-		/* start iteration */
-		List<INodeExt> coveredNodes = getMin(graph, partA, partB);
-		debug("Min Number of covered rows/column=" + coveredNodes.size());
+		int[] assignment = assignSparse(n, partB.size(), start, column, cost);
 
-		while(coveredNodes.size() != partA.size()){
+		List<IEdgeExt> matchedEdges = new ArrayList<IEdgeExt>();
+		for(int i = 0; i < n; i++){
+			if(assignment[i] >= 0){
+				IEdgeExt e = edges[assignment[i]];
+				matchedEdges.add(e);
 
-			updateGraph(graph, coveredNodes);
-			printBipartiteGraph(partA, partB);
+				debug(e.getSource().getData() + "-" + e.getTarget().getData());
+			}
+		}
 
-			GraphUtils.clearGraph(graph);
-			
-			coveredNodes = getMin(graph, partA, partB);
-			debug("Min Number of covered rows/column=" + coveredNodes.size());
+		return matchedEdges;
+	}
+
+	/**
+	 * Returns the map of the nodes to their indices in the list.
+	 * @param nodes the list of nodes
+	 * @return the map
+	 */
+	private static Map<INodeExt, Integer> indexNodes(List<INodeExt> nodes){
+		Map<INodeExt, Integer> map = new HashMap<INodeExt, Integer>(nodes.size() * 2);
+		for(int i = 0; i < nodes.size(); i++){
+			map.put(nodes.get(i), Integer.valueOf(i));
 		}
 
-		GraphUtils.clearGraph(graph);
-		return findMatching(graph, partA, partB);
+		return map;
+	}
+
+	/**
+	 * Returns the index of the node of the first partition
+	 * connected by the edge. The edges may be directed in both
+	 * directions.
+	 * @param e the edge
+	 * @param rows the indices of the first partition
+	 * @param columns the indices of the second partition
+	 * @return the index or <code>-1</code> if the edge does not connect
+	 *         the two partitions
+	 */
+	private static int getRow(IEdgeExt e, Map<INodeExt, Integer> rows, Map<INodeExt, Integer> columns){
+		Integer i = rows.get(e.getSource());
+		if(i != null && columns.containsKey(e.getTarget())){
+			return i.intValue();
+		}
+
+		i = rows.get(e.getTarget());
+		if(i != null && columns.containsKey(e.getSource())){
+			return i.intValue();
+		}
 
+		return -1;
 	}
 
 	/**
-	 * Returns the list of nodes as minimum coverage
-	 * of the zero elements.
+	 * Solves the assignment problem for a dense cost matrix. Each row 
+	 * is assigned to a different column, so that the sum of the costs of
+	 * the assigned elements is minimal. If the matrix has more rows than
+	 * columns, only as many rows as columns are assigned.
 	 * <br>
-	 * Example: Input graph (matrix)
+	 * Example:
 	 *	<pre>
 	 *  	  b1  b2  b3
-	 *  	  |   |
-	 *  a1	--7---0---0--
-	 *  	  |   |
-	 *  a2	  0   3   3
-	 *  	  |   |
-	 *  a3	  0   0   5
-	 *  	  |   |
+	 *  a1	  10   9   3
+	 *  a2	   5   6   7
+	 *  a3	   1   4   8
 	 *  </pre>
-	 *  The minimum list of nodes includes <code>{a1, b1, b2}</code>.
-	 *   
-	 * @param graph the bipartite graph
-	 * @param partA the first partition
-	 * @param partB the second partition
-	 * @return
+	 *  The result is <code>{2, 1, 0}</code>, the sum is 3 + 6 + 1 = 10.
+	 * 
+	 * @param cost the <code>n x m</code> cost matrix, all rows must 
+	 *        have the same length
+	 * @return the column assigned to each row or <code>-1</code> 
+	 *         if the row is not assigned
 	 */
-	private List<INodeExt> getMin(IDirectedGraphExt graph, List<INodeExt> partA, List<INodeExt> partB){
-
-		List<INodeExt> coveredNodes = new ArrayList<INodeExt>();
-		INodeExt n = null;
-		do{
-			n = countNumberOfZeros(graph.getNodeList());
-			if(n != null){
-				coveredNodes.add(n);
-				debug("Node with most zeros: " + n.getData());
-
-				IEdgeListExt inList = n.getIncomingEdgeList();
-				IEdgeListExt outList = n.getOutgoingEdgeList();
-				for(int i = 0; i < inList.size(); i++){
-					IEdgeExt e = inList.getEdgeExt(i);
-					e.setVisited(true);
-				}
-
-				for(int i = 0; i < outList.size(); i++){
-					IEdgeExt e = outList.getEdgeExt(i);
-					e.setVisited(true);
-				}
-			}
+	public static int[] assign(long[][] cost){
+		int n = cost.length;
+		int m = n == 0 ? 0 : cost[0].length;
+		if(n <= m){
+			return assign(cost, n, m, false);
+		}
 
+		/* assign the columns to the rows of the transposed matrix */
+		int[] columns = assign(cost, m, n, true);
+		int[] rows = new int[n];
+		Arrays.fill(rows, -1);
+		for(int j = 0; j < m; j++){
+			rows[columns[j]] = j;
 		}
-		while(n != null);
 
-		return coveredNodes;
+		return rows;
 	}
 
 	/**
-	 * Counts the number of edges with zero weights for each node.
-	 * @param nodes the list of nodes
-	 * @return the node with highest number of edges with zero weights 
+	 * Solves the assignment problem for a matrix with 
+	 * <code>n &lt;= m</code>. The rows and columns are numbered
+	 * from 1, the column 0 is the start of the augmenting paths.
+	 * 
+	 * @param cost the cost matrix
+	 * @param n the number of rows
+	 * @param m the number of columns
+	 * @param transposed <code>true</code> if the rows are the columns 
+	 *        of the matrix
+	 * @return the column assigned to each row
 	 */
-	private static INodeExt countNumberOfZeros(INodeListExt nodes){
-		INodeExt nodeWithMostZeros = null;
-		int max = 0;
-		for(int j = 0; j < nodes.size(); j++){
-			INodeExt n = nodes.getNodeExt(j);
-			if(!n.isVisited()){
-				int count = 0;
-
-				IEdgeListExt inList = n.getIncomingEdgeList();
-				IEdgeListExt outList = n.getOutgoingEdgeList();
-
-				/* for all incoming edges */
-				for(int i = 0; i < inList.size(); i++){
-					IEdgeExt e = inList.getEdgeExt(i);
-					if(!e.isVisited() && e.getCounter() == 0){
-						count++;
+	private static int[] assign(long[][] cost, int n, int m, boolean transposed){
+		long[] u = new long[n + 1];
+		long[] v = new long[m + 1];
+		int[] p = new int[m + 1];
+		int[] way = new int[m + 1];
+		long[] minv = new long[m + 1];
+		boolean[] used = new boolean[m + 1];
+
+		for(int i = 1; i <= n; i++){
+			p[0] = i;
+			int j0 = 0;
+			Arrays.fill(minv, INFINITY);
+			Arrays.fill(used, false);
+
+			/* find the shortest augmenting path from the row i to a free column */
+			do{
+				used[j0] = true;
+				int i0 = p[j0];
+				long delta = INFINITY;
+				int j1 = 0;
+				for(int j = 1; j <= m; j++){
+					if(!used[j]){
+						long c = transposed ? cost[j - 1][i0 - 1] : cost[i0 - 1][j - 1];
+						long cur = c - u[i0] - v[j];
+						if(cur < minv[j]){
+							minv[j] = cur;
+							way[j] = j0;
+						}
+						if(minv[j] < delta){
+							delta = minv[j];
+							j1 = j;
+						}
 					}
 				}
 
-				/* for all outgoing edges */
-				for(int i = 0; i < outList.size(); i++){
-					IEdgeExt e = outList.getEdgeExt(i);
-					if(!e.isVisited() && e.getCounter() == 0){
-						count++;
+				for(int j = 0; j <= m; j++){
+					if(used[j]){
+						u[p[j]] += delta;
+						v[j] -= delta;
+					}
+					else{
+						minv[j] -= delta;
 					}
 				}
+				j0 = j1;
+			}
+			while(p[j0] != 0);
 
-				if(max < count){
-					max = count;
-					nodeWithMostZeros = n;
-				}
+			/* augment the assignment along the path */
+			do{
+				int j1 = way[j0];
+				p[j0] = p[j1];
+				j0 = j1;
+			}
+			while(j0 != 0);
+		}
+
+		int[] result = new int[n];
+		for(int j = 1; j <= m; j++){
+			if(p[j] != 0){
+				result[p[j] - 1] = j - 1;
 			}
 		}
 
-		return nodeWithMostZeros;
+		return result;
 	}
 
 	/**
-	 * Reduction of the graph is done in two steps: <br>
-	 * <ol>
-	 * <li>
-	 * Find in the first partition for each node the minimum value, 
-	 * assigned to it's edges and subtract this value from all edges 
-	 * of that node.
-	 * </li>
-	 * <li>
-	 * Find in the second partition for each node the minimum value, 
-	 * assigned to it's edges and subtract this value from all edges 
-	 * of that node.
-	 * </li>
-	 * </ol>
+	 * Solves the assignment problem for a sparse cost matrix. The 
+	 * elements of the row <code>i</code> are stored at the positions
+	 * <code>start[i]</code> to <code>start[i + 1] - 1</code> of the 
+	 * arrays <code>column</code> and <code>cost</code>. The missing 
+	 * elements can not be assigned.
+	 * <br>
+	 * In each step the shortest augmenting path from any unassigned 
+	 * row to a free column is searched. The search stops if no such 
+	 * path exists, the result is an assignment of the maximum number 
+	 * of rows with the minimum sum of costs.
 	 * 
-	 * NOTE:
-	 * The reduction is equivalent to the reduction in the matrix: 
-	 * <ol>
-	 * <li>
-	 * Find the smallest element in each row and subtract 
-     * it's values from all elements of that row.
-     * </li>
-     * <li>
-     * Find the smallest element in each column and subtract 
-     * it's values from all elements of that column.
-	 * </li>
-	 * </ol>
-	 *  
-	 * @param partA the first partition
-	 * @param partB the second partition
+	 * @param n the number of rows
+	 * @param m the number of columns
+	 * @param start the start positions of the rows, <code>n + 1</code> elements
+	 * @param column the column of each element
+	 * @param cost the cost of each element
+	 * @return the position of the element assigned to each row or 
+	 *         <code>-1</code> if the row is not assigned
 	 */
-	private static void reduceGraph(List<INodeExt> partA, List<INodeExt> partB) {
-
-		/* find the minimum value in the first partition for each node */
-		for(INodeExt n: partA){
-			int minValInRow = Integer.MAX_VALUE;
-
-			IEdgeListExt inList = n.getIncomingEdgeList();
-			IEdgeListExt outList = n.getOutgoingEdgeList();
-			List<IEdgeExt> allEdges = new ArrayList<IEdgeExt>(inList.size() + outList.size());
-
-			/* for all incoming edges */
-			for(int i = 0; i < inList.size(); i++){
-				IEdgeExt e = inList.getEdgeExt(i);
-				allEdges.add(e);
-				if (minValInRow > e.getCounter()) {
-					minValInRow = e.getCounter();
+	public static int[] assignSparse(int n, int m, int[] start, int[] column, long[] cost){
+		long[] u = new long[n];
+		long[] v = new long[m];
+		int[] rowElement = new int[n];
+		int[] columnRow = new int[m];
+		Arrays.fill(rowElement, -1);
+		Arrays.fill(columnRow, -1);
+
+		/* 
+		 * The reduced costs of all elements are not negative. The potentials
+		 * of the unassigned rows are not less than the bound, the potentials
+		 * of the assigned rows are not greater than the bound.
+		 */
+		long bound = INFINITY;
+		for(int i = 0; i < n; i++){
+			long min = 0;
+			for(int k = start[i]; k < start[i + 1]; k++){
+				if(k == start[i] || cost[k] < min){
+					min = cost[k];
 				}
 			}
+			u[i] = min;
+			bound = Math.min(bound, min);
+		}
 
-			/* for all outgoing edges */
-			for(int i = 0; i < outList.size(); i++){
-				IEdgeExt e = outList.getEdgeExt(i);
-				allEdges.add(e);
-				if (minValInRow > e.getCounter()) {
-					minValInRow = e.getCounter();
+		/* the rows are the nodes 0 to n - 1, the columns n to n + m - 1 */
+		long[] dist = new long[n + m];
+		int[] way = new int[m];
+		int[] wayRow = new int[m];
+		int[] scanned = new int[n + m];
+		Arrays.fill(dist, INFINITY);
+		NodeHeap heap = new NodeHeap(dist);
+
+		int free = 0;
+		while(free >= 0){
+			int count = 0;
+			free = -1;
+			
+			/* shortest path of reduced costs from an unassigned row to a free column */
+			for(int i = 0; i < n; i++){
+				if(rowElement[i] < 0){
+					dist[i] = u[i] - bound;
+					heap.update(i);
 				}
 			}
+			while(!heap.isEmpty()){
+				int x = heap.poll();
+				scanned[count++] = x;
+				if(x < n){
+					relax(x, dist[x], start, column, cost, u, v, dist, way, wayRow, heap);
+					continue;
+				}
+
+				int j = x - n;
+				if(columnRow[j] < 0){
+					free = j;
+					break;
+				}
 
-			/* subtract the minimum value from all edges of the current node */
-			for(IEdgeExt e: allEdges){
-				e.setCounter(e.getCounter() - minValInRow);
+				int i = columnRow[j];
+				relax(i, dist[x], start, column, cost, u, v, dist, way, wayRow, heap);
 			}
 
-		}
+			if(free >= 0){
+				long d = dist[n + free];
 
-		/* find the minimum value in the second partition for each node*/
-		for(INodeExt n: partB){
-			int minValInCol = Integer.MAX_VALUE;
-
-			IEdgeListExt inList = n.getIncomingEdgeList();
-			IEdgeListExt outList = n.getOutgoingEdgeList();
-			List<IEdgeExt> allEdges = new ArrayList<IEdgeExt>(inList.size() + outList.size());
-
-			/* for all incoming edges */
-			for(int i = 0; i < inList.size(); i++){
-				IEdgeExt e = inList.getEdgeExt(i);
-				allEdges.add(e);
-				if (minValInCol > e.getCounter()) {
-					minValInCol = e.getCounter();
+				/* update the potentials, the path gets a reduced cost of zero */
+				for(int k = 0; k < count - 1; k++){
+					int x = scanned[k];
+					if(x < n){
+						u[x] += d - dist[x];
+					}
+					else{
+						v[x - n] += dist[x] - d;
+						u[columnRow[x - n]] += d - dist[x];
+					}
 				}
-			}
-
-			/* for all outgoing edges */
-			for(int i = 0; i < outList.size(); i++){
-				IEdgeExt e = outList.getEdgeExt(i);
-				allEdges.add(e);
-				if (minValInCol > e.getCounter()) {
-					minValInCol = e.getCounter();
+				bound += d;
+
+				/* augment the assignment along the path */
+				int j = free;
+				while(j >= 0){
+					int i = wayRow[j];
+					int previous = rowElement[i] < 0 ? -1 : column[rowElement[i]];
+					rowElement[i] = way[j];
+					columnRow[j] = i;
+					j = previous;
 				}
 			}
 
-			/* subtract the minimum value from all edges of the current node */
-			for(IEdgeExt e: allEdges){
-				e.setCounter(e.getCounter() - minValInCol);
-			}
-
+			heap.reset(scanned, count);
 		}
+
+		return rowElement;
 	}
 
 	/**
-	 * Updates the edge weights. 
-	 * <ul>
-	 * <li>
-	 * Find the minimum weight value of the uncovered edges and 
-	 * add this minimum value to every covered edge. If an element is 
-	 * covered twice, add the minimum element to it twice.
-	 * </li>
-	 * <li>
-	 * Find the minimum weight value of all edges in the graph and
-	 * subtract this minimum value from every edge in the graph.
-	 * </li>
-	 * </ul>
-	 * <br>
-	 * Example as matrix representation:
-	 *	<pre>
-	 *  	  b1  b2  b3
-	 *  	  |
-	 *  a1	--6---0---0--
-	 *  	  |
-	 *  a2	  0   4   4
-	 *  	  |
-	 *  a3	  0   1   6
-	 *  	  |
-	 *  </pre> 
-	 *  Add the minimum value of the uncovered elements to every covered element. 
-	 *  If an element is covered twice, add the minimum element to it twice.
-	 *  <pre>
-	 *  	b1  b2  b3
-	 *  a1	8   1   1
-	 *  a2	1   4   4
-	 *  a3	1   1   6
-	 *  </pre> 
-	 * Subtract the minimum value from every element in the matrix.
-	 * 	<pre>
-	 *  	b1  b2  b3
-	 *  a1	7   0   0
-	 *  a2	0   3   3
-	 *  a3	0   0   5
-	 *  </pre> 
-	 *  
-	 * @param graph the bipartite graph
-	 * @param coveredNodes the set of covered nodes (row or columns in the matrix representation)
+	 * Updates the distances of the columns reachable 
+	 * from the row <code>i</code>.
+	 * @param i the row
+	 * @param d the distance of the row
 	 */
-	private void updateGraph(IDirectedGraphExt graph, List<INodeExt> coveredNodes){
-		
-		/*	find the minimum weight value of the uncovered edges. */
-		int minUncovered = Integer.MAX_VALUE;
-		List<IEdgeExt> uncoveredEdges = new ArrayList<IEdgeExt>();
-		List<IEdgeExt> coveredEdges = new ArrayList<IEdgeExt>();
-		IEdgeListExt edges = graph.getEdgeList();
-		for(int j = 0; j < edges.size(); j++){
-			IEdgeExt e = edges.getEdgeExt(j);
-			if(e.isVisited()){
-				coveredEdges.add(e);
-			}
-			else{
-				uncoveredEdges.add(e);
-				if(minUncovered > e.getCounter()){
-					minUncovered = e.getCounter();
-				}
-			}
-		}
-		debug("MinUncovered=" + minUncovered);
-
-		/*	
-		 * add the minimum value to every covered edge. If an element is 
-		 * covered twice, add the minimum element to it twice.
-		 */
-		for(INodeExt n: coveredNodes){
-			IEdgeListExt inList = n.getIncomingEdgeList();
-			IEdgeListExt outList = n.getOutgoingEdgeList();
-			for(int i = 0; i < inList.size(); i++){
-				IEdgeExt e = inList.getEdgeExt(i);
-				e.setCounter(e.getCounter() + minUncovered);
-			}
-
-			for(int i = 0; i < outList.size(); i++){
-				IEdgeExt e = outList.getEdgeExt(i);
-				e.setCounter(e.getCounter() + minUncovered);
-			}
-		}
-
-		/* find the minimum weight value of all edges in the graph */
-		int min = Integer.MAX_VALUE;
-		edges = graph.getEdgeList();
-		for(int j = 0; j < edges.size(); j++){
-			IEdgeExt e = edges.getEdgeExt(j);
-			if(min > e.getCounter()){
-				min = e.getCounter();
+	private static void relax(int i, long d, int[] start, int[] column, long[] cost, 
+			long[] u, long[] v, long[] dist, int[] way, int[] wayRow, NodeHeap heap){
+		int n = u.length;
+		for(int k = start[i]; k < start[i + 1]; k++){
+			int j = column[k];
+			long cur = d + cost[k] - u[i] - v[j];
+			if(cur < dist[n + j] && !heap.isScanned(n + j)){
+				dist[n + j] = cur;
+				way[j] = k;
+				wayRow[j] = i;
+				heap.update(n + j);
 			}
 		}
-
-		debug("MinElement=" + min);
-
-		/* subtract the minimum element from every element in the graph. */
-		for(int j = 0; j < edges.size(); j++){
-			IEdgeExt e = edges.getEdgeExt(j);
-			e.setCounter(e.getCounter() - min);
-		}
 	}
 
 	/**
-	 * To find the matching in the matrix a set of zeros has to be chosen
-	 * so that each row or column has only one selected.
-	 * <br>
-	 * We construct a bipartite graph by selecting the edges with zero weights
-	 * and apply the augmenting path algorithm to find the matching 
-	 * of maximum cardinality.
-	 * 
-	 * @param graph1 the bipartite graph
-	 * @param partA1 the first partition
-	 * @param partB1 the second partition
-	 * 
-	 * @return the list of matched edges
-	 * 
-	 * @see MaxCardBipartiteMatching
+	 * Binary heap of the nodes ordered by the distances. The nodes 
+	 * removed from the heap are marked as scanned until the 
+	 * distances are reset.
 	 */
-	private List<IEdgeExt> findMatching(IDirectedGraphExt graph1, List<INodeExt> partA1, List<INodeExt> partB1){
-		debug("findMatching ...");
-		
-		/* create a bipartite subgraph */
-		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
-
-		/* create nodes */
-		List<INodeExt> partA2 = new ArrayList<INodeExt>(); 
-		for(INodeExt n: partA1){
-			INodeExt a1 = GraphExtentionFactory.createNodeExtention(n.getData());
-			graph.getNodeList().add(a1);
-			partA2.add(a1); 
+	private static class NodeHeap {
+		private long[] dist;
+		private int[] heap;
+		private int[] position;
+		private int size = 0;
+
+		NodeHeap(long[] dist){
+			this.dist = dist;
+			heap = new int[dist.length];
+			position = new int[dist.length];
+			Arrays.fill(position, -1);
 		}
 
-		List<INodeExt> partB2 = new ArrayList<INodeExt>();
-		for(INodeExt n: partB1){
-			INodeExt b1 = GraphExtentionFactory.createNodeExtention(n.getData());
-			graph.getNodeList().add(b1);
-			partB2.add(b1); 
+		boolean isEmpty(){
+			return size == 0;
 		}
 
-		/* create edges */
-		IEdgeListExt edgeList1 = graph1.getEdgeList();
-		for(int k = 0; k < edgeList1.size(); k++){
-			IEdgeExt e = edgeList1.getEdgeExt(k);
-			if(e.getCounter() == 0){
-				INodeExt a = e.getSource();
-				int i = partA1.indexOf(a);
-				INodeExt b = e.getTarget();
-				int j = partB1.indexOf(b);
-				IEdgeExt edge = GraphExtentionFactory.createEdgeExtention(partA2.get(i), partB2.get(j));				
-				graph.getEdgeList().add(edge);
-				
-				/* assign the reference to the original edge */
-				edge.setData(e);
-			}
+		/**
+		 * Returns <code>true</code> if the node has been
+		 * removed from the heap since the last reset.
+		 */
+		boolean isScanned(int x){
+			return position[x] == -2;
 		}
 
-		printGraph(graph);
-		printBipartiteGraph(partA2, partB2);
+		/**
+		 * Inserts the node or moves it up after its 
+		 * distance has been decreased.
+		 */
+		void update(int x){
+			int pos = position[x];
+			if(pos < 0){
+				pos = size++;
+			}
+			while(pos > 0){
+				int parent = (pos - 1) >>> 1;
+				if(dist[heap[parent]] <= dist[x]){
+					break;
+				}
+				heap[pos] = heap[parent];
+				position[heap[pos]] = pos;
+				pos = parent;
+			}
+			heap[pos] = x;
+			position[x] = pos;
+		}
 
-		/* execute the augmenting path algorithm */
-		MaxCardBipartiteMatching mbm = new MaxCardBipartiteMatching(DEBUG);
-		mbm.start(graph, partA2, partB2);
+		/**
+		 * Removes the node with the minimum distance.
+		 * @return the node
+		 */
+		int poll(){
+			int result = heap[0];
+			position[result] = -2;
+			int x = heap[--size];
+			if(size > 0){
+				int pos = 0;
+				while(true){
+					int child = 2 * pos + 1;
+					if(child >= size){
+						break;
+					}
+					if(child + 1 < size && dist[heap[child + 1]] < dist[heap[child]]){
+						child++;
+					}
+					if(dist[x] <= dist[heap[child]]){
+						break;
+					}
+					heap[pos] = heap[child];
+					position[heap[pos]] = pos;
+					pos = child;
+				}
+				heap[pos] = x;
+				position[x] = pos;
+			}
 
-		Set<IEdgeExt> edges = mbm.getMatchedEdges();
-		
-		/* copy the references of the original edges to the list */
-		List<IEdgeExt> origEdges = new ArrayList<IEdgeExt>();
-		for(IEdgeExt e : edges){
-			IEdgeExt oe = (IEdgeExt) e.getData();
-			
-			/* restore original weights */
-			oe.setCounter(weights.get(oe));
-			
-			origEdges.add(oe);
-			
-			debug(oe.getSource().getData() + "-" + oe.getTarget().getData());
+			return result;
 		}
 
-		return origEdges;
+		/**
+		 * Empties the heap and resets the distances of
+		 * the scanned nodes and the nodes in the heap.
+		 */
+		void reset(int[] scanned, int count){
+			for(int k = 0; k < count; k++){
+				position[scanned[k]] = -1;
+				dist[scanned[k]] = INFINITY;
+			}
+			for(int k = 0; k < size; k++){
+				position[heap[k]] = -1;
+				dist[heap[k]] = INFINITY;
+			}
+			size = 0;
+		}
 	}
-	
+
 	/* 
 	 * The Methods in this section are used for purely debugging purposes 
 	 */
@@ -579,30 +601,4 @@ public class HungarianMethod {
 		
 		debug(buf.toString());
 	}
-
-	/**
-	 * Prints the graph.
-	 * @param g the graph
-	 */
-	private static void printGraph(IDirectedGraphExt g) {
-		if(!DEBUG){
-			return;
-		}
-		
-		System.out.println("Print Graph:");
-
-		System.out.println("Nodes:");
-		for (int i = 0; i < g.getNodeList().size(); i++) {
-			System.out.println("  " + g.getNodeList().getNodeExt(i).getData());
-		}
-
-		System.out.println("Edges:");
-		for (int i = 0; i < g.getEdgeList().size(); i++) {
-			IEdgeExt e = g.getEdgeList().getEdgeExt(i);
-			System.out.println("  " 
-					+ e.getSource().getData() 
-					+ " - "
-					+ e.getTarget().getData());
-		}
-	}
-}
\ No newline at end of file
+}
@@ -16,17 +16,17 @@
 
 package com.drgarbage.algorithms;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import com.drgarbage.controlflowgraph.intf.GraphUtils;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
-import com.drgarbage.controlflowgraph.intf.MarkEnum;
 
 /**
  * Provides an algorithm for finding maximum-cardinality matching that contains 
@@ -37,9 +37,9 @@ import com.drgarbage.controlflowgraph.intf.MarkEnum;
  * is presented in the following figure:
  * <pre> 
  *  Maximum Bipartite Matching
- *    M = 0
+ *    M = 0
  *    While ( exists an augmenting path p)
- *       M = M + (switch) p
+ *       M = M + (switch) p
  *    return M
  * </pre>
  *
@@ -53,19 +53,30 @@ import com.drgarbage.controlflowgraph.intf.MarkEnum;
  * along the path <code>p</code> from in-to-out of M gives
  * a matching with one more edge.
  *
- * The current implementation of the algorithm is presented in the following figure:  
+ * The current implementation is the algorithm of Hopcroft and Karp, 
+ * which switches a maximal set of shortest augmenting paths in each phase:
  * <pre>
  * Maximum Bipartite Matching
- * 1.  Start DFS for all vertices in A.
- * 2.  Visit in alternating order an edge e in M and e not in M 
- * 3.  If at any point the DFS visits an unmatched vertex from B 
- *     then augmenting path p is found.
- * 3.1   Stop DFS and switch the path p 
+ * 1.  Start BFS from all unmatched vertices in A and compute the 
+ *     layers of the alternating paths until an unmatched vertex 
+ *     from B is reached.
+ * 2.  Start DFS for all unmatched vertices in A, follow only the edges 
+ *     to the next layer.
+ * 3.  If the DFS visits an unmatched vertex from B then an
+ *     augmenting path p is found.
+ * 3.1   Switch the path p and continue with the next vertex.
+ * 4.  Repeat until no augmenting path exists.
  * </pre>
  * 
- * Complexity of the algorithm is <code>O(mn)</code>, where <code>m</code> 
+ * Complexity of the algorithm is <code>O(m sqrt(n))</code>, where <code>m</code> 
  * the number of edges and <code>n</code> the number of nodes 
- * in the graph <code>G</code>.
+ * in the graph <code>G</code>, because at most <code>O(sqrt(n))</code>
+ * phases are needed.
+ * <br>
+ * The algorithm works on the adjacency arrays of the nodes of the first 
+ * partition, see {@link #match(int, int, int[], int[])}. The method 
+ * {@link #start(IDirectedGraphExt, List, List)} is an adapter for 
+ * the bipartite graphs, the graph is not modified.
  * 
  * @author Sergej Alekseev
  * @version $Revision$
@@ -73,9 +84,13 @@ import com.drgarbage.controlflowgraph.intf.MarkEnum;
  */
 public class MaxCardBipartiteMatching {
 
-	private List<IEdgeExt> path = null;
 	private Set<IEdgeExt> matchedEdges = new HashSet<IEdgeExt>(); 
 
+	/**
+	 * Distance of the nodes which are not in a layer.
+	 */
+	private static final int INFINITY = Integer.MAX_VALUE;
+
 	/**
 	 * Default constructor.
 	 */
@@ -100,235 +115,177 @@ public class MaxCardBipartiteMatching {
 
 
 	/**
-	 * Starts matching algorithm.
+	 * Starts matching algorithm. The edges between the partitions
+	 * may be directed in both directions.
 	 * @param graph the bipartite graph
 	 * @param partA the first partition
 	 * @param partB the second partition
 	 */
 	public void start(IDirectedGraphExt graph, List<INodeExt> partA, List<INodeExt> partB) {
 		debug("MaxCardBipartiteMatching start ...");
-		
-		for(INodeExt n: partA){
-			path = new ArrayList<IEdgeExt>();
-			GraphUtils.clearGraph(graph);
-			n.setMark(MarkEnum.RED);
-			dfs(n);
-		}
-		
-		GraphUtils.clearGraph(graph);
-		GraphUtils.clearGraphColorMarks(graph);
-		
-		debug("MaxCardBipartiteMatching finished");
-	}
 
-	/**
-	 * Depth first search.
-	 * @param node the start node
-	 * @return <code>true</code> if the DFS has to be stopped, 
-	 * otherwise <code>false</code>.
-	 */
-	protected boolean dfs(INodeExt node){	
-		/* print some debugging information */
-		printNodeInfo(node);
-		printPathInfo(path);
-		
-		if(node.isVisited()){
-			return false;
+		Map<INodeExt, Integer> columns = new HashMap<INodeExt, Integer>(partB.size() * 2);
+		for(int j = 0; j < partB.size(); j++){
+			columns.put(partB.get(j), Integer.valueOf(j));
 		}
 
-		node.setVisited(true);
-		
-		/* 
-		 * Follow edge, already matched in the previous step, 
-		 * if the current node from the partition B is marked
-		 * red (it belongs to the matched edge). 
-		 */
-		if( (path.size() % 2) == 1 &&
-				node.getMark() == MarkEnum.RED){
-
-			IEdgeExt e = findMatchedEdge(node);
-
-			/* print debugging information */
-			printEdgeInfo(e);
-			
-			if(e != null){
-				e.setVisited(true);
-				
-				/* add the edge to the path */
-				path.add(e);
-
-				if(dfs(node.equals(e.getSource()) ? 
-						e.getTarget() : e.getSource())){
-					return true;
-				}
-				
-				/* 
-				 * back from the recursion:
-				 * remove the edge from path 
-				 */
-				path.remove(e);
-				
-				return false;
-			}
-			else{
-				/* should never happen */
-				debug("ERROR: edge not found in the list of mached edges.");
-			}
+		/* the adjacency arrays of the first partition */
+		int n = partA.size();
+		int[] start = new int[n + 1];
+		for(int i = 0; i < n; i++){
+			INodeExt a = partA.get(i);
+			start[i + 1] = start[i] 
+					+ a.getIncomingEdgeList().size() 
+					+ a.getOutgoingEdgeList().size();
 		}
 
-		/* the depth first search recursion */
-		
-		/* for all incoming edges */
-		IEdgeListExt inList = node.getIncomingEdgeList();
-		for(int i = 0; i < inList.size(); i++){
-			IEdgeExt e = inList.getEdgeExt(i);
-			if(!e.isVisited()){
-				e.setVisited(true);
+		int[] adjacent = new int[start[n]];
+		IEdgeExt[] edges = new IEdgeExt[start[n]];
+		int pos = 0;
+		for(int i = 0; i < n; i++){
+			INodeExt a = partA.get(i);
+			start[i] = pos;
 
-				/* add the edge to path */
-				path.add(e);
-				
-				/* for debugging */
-				printPathInfo(path);
-				
-				/* edge visitor hook */
-				if(visitEdge(e)){
-					/* stop the dfs recursion*/
-					return true;
+			/* for all incoming edges */
+			IEdgeListExt inList = a.getIncomingEdgeList();
+			for(int k = 0; k < inList.size(); k++){
+				IEdgeExt e = inList.getEdgeExt(k);
+				Integer j = columns.get(e.getSource());
+				if(j != null){
+					adjacent[pos] = j.intValue();
+					edges[pos++] = e;
 				}
+			}
 
-				/* 
-				 * stop the recursion if the dfs returns true
-				 */
-				if(dfs(e.getSource())){
-					return true; 
+			/* for all outgoing edges */
+			IEdgeListExt outList = a.getOutgoingEdgeList();
+			for(int k = 0; k < outList.size(); k++){
+				IEdgeExt e = outList.getEdgeExt(k);
+				Integer j = columns.get(e.getTarget());
+				if(j != null){
+					adjacent[pos] = j.intValue();
+					edges[pos++] = e;
 				}
-
-				/* 
-				 * back from the recursion:
-				 * remove the edge from path 
-				 */
-				path.remove(e);
 			}
 		}
+		start[n] = pos;
 
-		/* for all outgoing edges */
-		IEdgeListExt outList = node.getOutgoingEdgeList();
-		for(int i = 0; i < outList.size(); i++){		
-			IEdgeExt e = outList.getEdgeExt(i);
-			if(!e.isVisited()){
-				e.setVisited(true);
+		int[] matched = match(n, partB.size(), start, adjacent);
 
-				/* add the edge to path */
-				path.add(e);
-				
-				/* for debugging */
-				printPathInfo(path);
-				
-				/* edge visitor hook */
-				if(visitEdge(e)){ 
-					/* stop the dfs recursion*/
-					return true;
-				}
-
-				/* 
-				 * stop the recursion if the dfs returns true
-				 */
-				if(dfs(e.getTarget())){
-					return true;
-				}
+		matchedEdges = new HashSet<IEdgeExt>();
+		for(int i = 0; i < n; i++){
+			if(matched[i] >= 0){
+				IEdgeExt e = edges[matched[i]];
+				matchedEdges.add(e);
 
-				/* 
-				 * back from the recursion:
-				 * remove the edge from path 
-				 */
-				path.remove(e);
+				debug(e.getSource().getData() + "-" + e.getTarget().getData());
 			}
 		}
-		
-		return false;
+
+		debug("MaxCardBipartiteMatching finished");
 	}
 
 	/**
-	 * Processes an edge and returns <code>true</code>
-	 * if the DFS has to be stopped, otherwise 
-	 * <code>false</code>.
-	 * @param edge the edge has to be processed
-	 * @return <code>true</code> or <code>false</code>
+	 * Finds a maximum-cardinality matching. The edges of the node 
+	 * <code>i</code> of the first partition are stored at the positions 
+	 * <code>start[i]</code> to <code>start[i + 1] - 1</code> of the array
+	 * <code>adjacent</code>, the elements are the indices of the 
+	 * nodes of the second partition.
+	 * 
+	 * @param n the number of nodes of the first partition
+	 * @param m the number of nodes of the second partition
+	 * @param start the start positions of the nodes, <code>n + 1</code> elements
+	 * @param adjacent the adjacent nodes
+	 * @return the position of the matched edge of each node of the
+	 *         first partition or <code>-1</code> if the node is not matched
 	 */
-	public boolean visitEdge(IEdgeExt edge) {
+	public static int[] match(int n, int m, int[] start, int[] adjacent){
+		int[] matchedEdge = new int[n];
+		int[] matchedNode = new int[m];
+		Arrays.fill(matchedEdge, -1);
+		Arrays.fill(matchedNode, -1);
 
-		edge.setVisited(true);
+		int[] dist = new int[n];
+		int[] queue = new int[n];
+		int[] next = new int[n];
+		int[] stack = new int[n];
 
-		if(path.size() % 2 == 1){ /* A -> B */
-			INodeExt n = edge.getSource().isVisited() 
-					? edge.getTarget() /* outgoing edge */
-							: edge.getSource(); /* incoming edge */
+		while(true){
 
-			if(n.getMark() != MarkEnum.RED){ /* an augmenting path found */
-				n.setMark(MarkEnum.RED);
+			/* 
+			 * BFS: compute the layers of the alternating paths 
+			 * starting at the unmatched nodes 
+			 */
+			int head = 0;
+			int tail = 0;
+			for(int i = 0; i < n; i++){
+				if(matchedEdge[i] < 0){
+					dist[i] = 0;
+					queue[tail++] = i;
+				}
+				else{
+					dist[i] = INFINITY;
+				}
+			}
 
-				switchAugementingPath();
+			boolean found = false;
+			while(head < tail){
+				int i = queue[head++];
+				for(int k = start[i]; k < start[i + 1]; k++){
+					int r = matchedNode[adjacent[k]];
+					if(r < 0){
+						found = true;
+					}
+					else if(dist[r] == INFINITY){
+						dist[r] = dist[i] + 1;
+						queue[tail++] = r;
+					}
+				}
+			}
 
-				/* stop dfs */
-				return true;
+			if(!found){
+				break;
 			}
-		}
 
-		return false;
-	}
+			/* DFS: switch a maximal set of disjoint shortest augmenting paths */
+			System.arraycopy(start, 0, next, 0, n);
+			for(int s = 0; s < n; s++){
+				if(matchedEdge[s] >= 0){
+					continue;
+				}
 
-	/**
-	 * Alternates an augmenting path and actualizes 
-	 * the list of matched edges.
-	 */
-	private void switchAugementingPath(){
-		debug("Switch path ...");
-		
-		for(int i = path.size() - 1; i >= 0; i--){
-			IEdgeExt e = path.get(i);
-			if(i % 2 == 0){
-				matchedEdges.add(e);
-				
-				/* mark the matched edge */
-				e.setMark(MarkEnum.RED);
-			}
-			else{
-				matchedEdges.remove(e);
-				
-				/* mark the matched edge */
-				e.setMark(MarkEnum.DEFAULT);
-			}
-		}
-	}
-	
-	/**
-	 * Finds the edge already matched in the previous step.
-	 * @param node the node
-	 * @return the edge or null
-	 */
-	private IEdgeExt findMatchedEdge(INodeExt node) {
-		IEdgeListExt inList = node.getIncomingEdgeList();
-		
-		/* for all incoming edges */
-		for(int i = 0; i < inList.size(); i++){
-			IEdgeExt e = inList.getEdgeExt(i);
-			
-			if(e.isVisited() == false && e.getMark() == MarkEnum.RED){
-				return e;
-			}
-		}
+				int top = 0;
+				stack[top++] = s;
+				while(top > 0){
+					int i = stack[top - 1];
+					if(next[i] == start[i + 1]){
+						/* no augmenting path, remove the node from the layers */
+						dist[i] = INFINITY;
+						top--;
+						continue;
+					}
+
+					int k = next[i]++;
+					int r = matchedNode[adjacent[k]];
+					if(r < 0){
+						/* switch the path, the nodes on the stack used the edge next - 1 */
+						for(int t = 0; t < top; t++){
+							int row = stack[t];
+							int e = next[row] - 1;
+							matchedEdge[row] = e;
+							matchedNode[adjacent[e]] = row;
+						}
+						break;
+					}
 
-		/* for all outgoing edges */
-		IEdgeListExt outList = node.getOutgoingEdgeList();
-		for(int i = 0; i < outList.size(); i++){		
-			IEdgeExt e = outList.getEdgeExt(i);
-			if(e.isVisited() == false && e.getMark() == MarkEnum.RED){
-				return e;
+					if(dist[r] == dist[i] + 1){
+						stack[top++] = r;
+					}
+				}
 			}
 		}
-		
-		return null;
+
+		return matchedEdge;
 	}
 
 	/**
@@ -350,65 +307,4 @@ public class MaxCardBipartiteMatching {
 		
 		System.out.println(msg);
 	}
-	
-	/**
-	 * Prints the elements of paths for debugging purposes.
-	 * <br> 
-	 * NOTE: The method is disabled if the debugging flag is false.
-	 * 
-	 * @param path the ordered list of edges
-	 * @see #DEBUG
-	 */
-	private void printPathInfo(List<IEdgeExt> path){
-		if(!DEBUG) return;
-	
-		StringBuffer buf = new StringBuffer("Path: ");
-		buf.append("size = ");
-		buf.append(path.size());
-		buf.append(" : ");
-		
-		for(IEdgeExt e: path){
-			buf.append(e.getSource().getData());
-			buf.append("-");
-			buf.append(e.getTarget().getData());
-			buf.append(", " );
-		}
-		
-		debug(buf.toString());
-	}
-	
-	/**
-	 * Prints the property of a node.
-	 * <br> 
-	 * NOTE: The method is disabled if the debugging flag is false.
-	 * 
-	 * @param node the node
-	 * @see #DEBUG
-	 */
-	private void printNodeInfo(INodeExt node){
-		if(!DEBUG) return;
-		
-		debug("node " + node.getData() + " visited=" + node.isVisited()
-				+ " red=" + (node.getMark() == MarkEnum.RED ? "true" : "false"));
-	}
-	
-	/**
-	 * Prints the property of an edge.
-	 * <br> 
-	 * NOTE: The method is disabled if the debugging flag is false.
-	 * 
-	 * @param e the edge
-	 * @see #DEBUG
-	 */
-	private void printEdgeInfo(IEdgeExt e){
-		if(!DEBUG) return;
-		
-		debug("Edge: " + (e == null ? 
-				"null" : 
-					e.getSource().getData() + "-" + e.getTarget().getData()
-					+ " visited=" + e.isVisited()
-					+ " red=" + (e.getMark() == MarkEnum.RED ? "true" : "false")
-				));
-	}
-	
 }
@@ -49,9 +49,6 @@ public class SpanningTreeFinder {
 		this.graph = graph;
 	}
 
-	/* static algorithms */
-	private static FindBackEdgesDFS fFindBackEdgesDFS;
-	
 	/**
 	 * Finds and returns a spanning tree (arborescence) of a directed graph.
 	 * 
@@ -148,18 +145,16 @@ public class SpanningTreeFinder {
 
 	/**
 	 * Finds a set of back edges for the given graph. The set is empty if the
-	 * graph doesn't contain any cycles.
+	 * graph doesn't contain any cycles. The graph is not modified,
+	 * the method can be called concurrently.
 	 * 
 	 * @param graph
 	 * @return the spanning tree graph
 	 */
 	public static IEdgeListExt findBackEdges(IDirectedGraphExt graph) {
-		if (fFindBackEdgesDFS == null) {
-			fFindBackEdgesDFS = new FindBackEdgesDFS();
-		}
-
+		FindBackEdgesDFS findBackEdgesDFS = new FindBackEdgesDFS();
 		try {
-			fFindBackEdgesDFS.start(graph);
+			findBackEdgesDFS.start(graph);
 		} catch (ControlFlowGraphException e) {
 			CorePlugin
 					.getDefault()
@@ -168,6 +163,6 @@ public class SpanningTreeFinder {
 							.getMessage(), e));
 		}
 
-		return fFindBackEdgesDFS.getBackEdgeList();
+		return findBackEdgesDFS.getBackEdgeList();
 	}
 }
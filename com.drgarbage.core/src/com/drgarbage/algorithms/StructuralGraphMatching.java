@@ -0,0 +1,827 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+import com.drgarbage.controlflowgraph.intf.INodeListExt;
+
+/**
+ * Matches the nodes of two control flow graphs by their contents and
+ * their neighborhood. In contrast to the subtree isomorphism algorithms
+ * the graphs are not reduced to spanning trees, all edges including
+ * the back edges of loops are taken into account.
+ * <br>
+ * The content of a node is the text of its instructions, e.g.
+ * <code>"12 iload_1"</code> or the lines of a basic block. The bytecode
+ * offsets at the beginning of the lines and the branch targets are
+ * ignored, because they change if code is inserted.
+ * <br>
+ * <b>Algorithm steps:</b><br>
+ *<b> 1</b>. Fingerprints: the hash of the instructions of each node and
+ * the hashes of the opcode n-grams of length {@link #GRAM_LENGTH}.<br>
+ *<b> 2</b>. Anchors: the nodes with a hash unique in both graphs are matched.
+ * The matching is propagated to the successors and predecessors of the
+ * matched nodes, if the hash is unique among the unmatched neighbors.<br>
+ *<b> 3</b>. Refinement: the remaining nodes are matched by the assignment
+ * with the minimum graph edit distance. The cost of a pair of nodes is
+ * the distance of the n-gram fingerprints and the number of neighbors
+ * not matched to neighbors. A node is not matched, if deleting the node
+ * and inserting the other one is cheaper. The number of candidates per node
+ * and the number of refinement rounds are bounded, the assignments are
+ * solved by {@link HungarianMethod#assignSparse(int, int, int[], int[], long[])}.
+ * <br>
+ * The content of the nodes is read by {@link #getContent(INodeExt)},
+ * the default implementation uses the data object of the node. The
+ * graphs are not modified.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class StructuralGraphMatching {
+
+	/**
+	 * The length of the opcode n-grams.
+	 */
+	public static final int GRAM_LENGTH = 3;
+
+	/**
+	 * The units of work reported by {@link #worked(int)}.
+	 */
+	public static final int TOTAL_WORK = 10;
+
+	/**
+	 * The maximum number of refinement rounds.
+	 */
+	private static final int ROUNDS = 3;
+
+	/**
+	 * The maximum number of candidates of a node in a refinement round.
+	 */
+	private static final int MAX_CANDIDATES = 8;
+
+	/**
+	 * The n-grams occurring in more nodes are too common
+	 * to select candidates, e.g. <code>aload_0</code>.
+	 */
+	private static final int MAX_GRAM_NODES = 64;
+
+	/**
+	 * The cost of deleting a node and inserting another one,
+	 * the costs are fixed point values with the scale 1000.
+	 */
+	private static final long SCALE = 1000;
+	private static final long INDEL = 2 * SCALE;
+
+	/**
+	 * A graph as adjacency arrays with the fingerprints of the nodes.
+	 */
+	private static class Graph {
+		private INodeExt[] nodes;
+		private int[] succStart;
+		private int[] succ;
+		private int[] predStart;
+		private int[] pred;
+		private long[] hash;
+		private long[][] grams;
+		private int[] match;
+
+		Graph(IDirectedGraphExt graph) {
+			INodeListExt nodeList = graph.getNodeList();
+			int n = nodeList.size();
+			nodes = new INodeExt[n];
+			Map<INodeExt, Integer> index = new HashMap<INodeExt, Integer>(n * 2);
+			for(int i = 0; i < n; i++){
+				nodes[i] = nodeList.getNodeExt(i);
+				index.put(nodes[i], Integer.valueOf(i));
+			}
+
+			IEdgeListExt edges = graph.getEdgeList();
+			int[] source = new int[edges.size()];
+			int[] target = new int[edges.size()];
+			succStart = new int[n + 1];
+			predStart = new int[n + 1];
+			int count = 0;
+			for(int k = 0; k < edges.size(); k++){
+				IEdgeExt e = edges.getEdgeExt(k);
+				Integer s = index.get(e.getSource());
+				Integer t = index.get(e.getTarget());
+				if(s != null && t != null){
+					source[count] = s.intValue();
+					target[count] = t.intValue();
+					succStart[source[count] + 1]++;
+					predStart[target[count] + 1]++;
+					count++;
+				}
+			}
+
+			for(int i = 0; i < n; i++){
+				succStart[i + 1] += succStart[i];
+				predStart[i + 1] += predStart[i];
+			}
+
+			succ = new int[count];
+			pred = new int[count];
+			int[] nextSucc = Arrays.copyOf(succStart, n);
+			int[] nextPred = Arrays.copyOf(predStart, n);
+			for(int k = 0; k < count; k++){
+				succ[nextSucc[source[k]]++] = target[k];
+				pred[nextPred[target[k]]++] = source[k];
+			}
+
+			hash = new long[n];
+			grams = new long[n][];
+			match = new int[n];
+			Arrays.fill(match, -1);
+		}
+
+		int size() {
+			return nodes.length;
+		}
+
+		boolean hasSuccessor(int v, int w) {
+			for(int k = succStart[v]; k < succStart[v + 1]; k++){
+				if(succ[k] == w){
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	private Graph left = null;
+	private Graph right = null;
+
+	/**
+	 * The edit distance of the last matching.
+	 */
+	private int distance = 0;
+
+	/**
+	 * Matches the nodes of the graphs.
+	 * @param leftGraph the first graph
+	 * @param rightGraph the second graph
+	 * @return map of matched nodes of the first graph to the nodes
+	 *  of the second graph or <code>null</code> if the matching
+	 *  has been canceled
+	 */
+	public Map<INodeExt, INodeExt> execute(IDirectedGraphExt leftGraph, IDirectedGraphExt rightGraph) {
+		left = new Graph(leftGraph);
+		right = new Graph(rightGraph);
+
+		/* fingerprints */
+		computeFingerprints(left);
+		computeFingerprints(right);
+		worked(2);
+
+		/* anchors */
+		List<int[]> matched = matchAnchors();
+		propagate(matched);
+		worked(2);
+
+		/* refinement */
+		for(int round = 0; round < ROUNDS; round++){
+			if(isCanceled()){
+				return null;
+			}
+
+			matched = refine();
+			if(matched == null){
+				return null;
+			}
+			propagate(matched);
+			worked(2);
+
+			if(matched.isEmpty()){
+				worked(2 * (ROUNDS - round - 1));
+				break;
+			}
+		}
+
+		distance = computeDistance();
+
+		Map<INodeExt, INodeExt> map = new LinkedHashMap<INodeExt, INodeExt>();
+		for(int v = 0; v < left.size(); v++){
+			if(left.match[v] >= 0){
+				map.put(left.nodes[v], right.nodes[left.match[v]]);
+			}
+		}
+
+		return map;
+	}
+
+	/**
+	 * Returns the graph edit distance of the last matching. The distance
+	 * is the number of deleted, inserted and relabeled nodes and
+	 * the number of deleted and inserted edges.
+	 * @return the distance
+	 */
+	public int getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Returns the matched nodes of both graphs with different contents.
+	 * @return the set of nodes
+	 */
+	public Set<INodeExt> getChangedNodes() {
+		Set<INodeExt> set = new HashSet<INodeExt>();
+		for(int v = 0; v < left.size(); v++){
+			int w = left.match[v];
+			if(w >= 0 && left.hash[v] != right.hash[w]){
+				set.add(left.nodes[v]);
+				set.add(right.nodes[w]);
+			}
+		}
+
+		return set;
+	}
+
+	/**
+	 * Returns the edges of both graphs which have no counterpart
+	 * between the matched nodes of the other graph.
+	 * @param leftGraph the first graph
+	 * @param rightGraph the second graph
+	 * @return the set of edges
+	 */
+	public Set<IEdgeExt> getUnmatchedEdges(IDirectedGraphExt leftGraph, IDirectedGraphExt rightGraph) {
+		Set<IEdgeExt> set = new HashSet<IEdgeExt>();
+		addUnmatchedEdges(leftGraph, left, right, set);
+		addUnmatchedEdges(rightGraph, right, left, set);
+
+		return set;
+	}
+
+	private static void addUnmatchedEdges(IDirectedGraphExt graph, Graph g, Graph other, Set<IEdgeExt> set) {
+		Map<INodeExt, Integer> index = new HashMap<INodeExt, Integer>(g.size() * 2);
+		for(int i = 0; i < g.size(); i++){
+			index.put(g.nodes[i], Integer.valueOf(i));
+		}
+
+		IEdgeListExt edges = graph.getEdgeList();
+		for(int k = 0; k < edges.size(); k++){
+			IEdgeExt e = edges.getEdgeExt(k);
+			Integer s = index.get(e.getSource());
+			Integer t = index.get(e.getTarget());
+			if(s == null || t == null){
+				continue;
+			}
+
+			int v = g.match[s.intValue()];
+			int w = g.match[t.intValue()];
+			if(v < 0 || w < 0 || !other.hasSuccessor(v, w)){
+				set.add(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the content of a node. The default implementation
+	 * returns the string representation of the data object.
+	 * @param node the node
+	 * @return the content
+	 */
+	protected String getContent(INodeExt node) {
+		Object o = node.getData();
+		return o == null ? "" : o.toString();
+	}
+
+	/**
+	 * Returns <code>true</code> if the matching has to be canceled.
+	 * The default implementation returns <code>false</code>.
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	protected boolean isCanceled() {
+		return false;
+	}
+
+	/**
+	 * Called after a step of the matching has been finished. The
+	 * sum of the units of all steps is {@link #TOTAL_WORK}. The
+	 * default implementation does nothing.
+	 * @param work the units of work
+	 */
+	protected void worked(int work) {
+	}
+
+	/**
+	 * Returns the instructions of the content without the bytecode
+	 * offsets and the branch targets. The empty lines and the
+	 * brackets of basic blocks, e.g. <code>B3 := {</code> and
+	 * <code>}</code> are skipped.
+	 * @param content the content of a node
+	 * @return the list of instructions
+	 */
+	static List<String> getInstructions(String content) {
+		List<String> list = new ArrayList<String>();
+		String[] lines = content.split("\n");
+		for(String line: lines){
+			String[] tokens = line.trim().split("\\s+");
+			int start = 0;
+			if(tokens.length > 1 && isNumber(tokens[0])){
+				start = 1;
+			}
+
+			if(tokens[start].length() == 0
+					|| tokens[start].equals("}")
+					|| line.trim().endsWith(":= {")){
+				continue;
+			}
+
+			/* the branch targets are offsets */
+			String opcode = tokens[start];
+			int end = tokens.length;
+			if(opcode.startsWith("if") || opcode.startsWith("goto")
+					|| opcode.startsWith("jsr") || opcode.endsWith("switch")){
+				end = start + 1;
+			}
+
+			StringBuilder buf = new StringBuilder(opcode);
+			for(int i = start + 1; i < end; i++){
+				buf.append(' ');
+				buf.append(tokens[i]);
+			}
+			list.add(buf.toString());
+		}
+
+		return list;
+	}
+
+	private static boolean isNumber(String s) {
+		for(int i = 0; i < s.length(); i++){
+			if(!Character.isDigit(s.charAt(i))){
+				return false;
+			}
+		}
+
+		return s.length() > 0;
+	}
+
+	/**
+	 * Computes the hashes of the instructions and of the opcode
+	 * n-grams of all nodes. The sequence of the opcodes is padded
+	 * by empty strings at both ends, so that a single opcode results
+	 * in <code>GRAM_LENGTH</code> n-grams.
+	 * @param g the graph
+	 */
+	private void computeFingerprints(Graph g) {
+		for(int v = 0; v < g.size(); v++){
+			List<String> instructions = getInstructions(getContent(g.nodes[v]));
+
+			long h = FNV_OFFSET;
+			String[] opcodes = new String[instructions.size() + 2 * (GRAM_LENGTH - 1)];
+			Arrays.fill(opcodes, "");
+			for(int i = 0; i < instructions.size(); i++){
+				String s = instructions.get(i);
+				h = hash(h, s);
+				int pos = s.indexOf(' ');
+				opcodes[i + GRAM_LENGTH - 1] = pos < 0 ? s : s.substring(0, pos);
+			}
+			g.hash[v] = h;
+
+			long[] grams = new long[opcodes.length - GRAM_LENGTH + 1];
+			for(int i = 0; i < grams.length; i++){
+				long gh = FNV_OFFSET;
+				for(int j = 0; j < GRAM_LENGTH; j++){
+					gh = hash(gh, opcodes[i + j]);
+				}
+				grams[i] = gh;
+			}
+			Arrays.sort(grams);
+			g.grams[v] = grams;
+		}
+	}
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Adds the characters of the string and a separator
+	 * to the FNV-1a hash.
+	 * @param h the hash
+	 * @param s the string
+	 * @return the new hash
+	 */
+	private static long hash(long h, String s) {
+		for(int i = 0; i < s.length(); i++){
+			h = (h ^ s.charAt(i)) * FNV_PRIME;
+		}
+
+		return (h ^ 0xffff) * FNV_PRIME;
+	}
+
+	/**
+	 * Matches the nodes with a hash which is unique in both graphs.
+	 * @return the list of the matched pairs
+	 */
+	private List<int[]> matchAnchors() {
+		Map<Long, Integer> unique = new HashMap<Long, Integer>();
+		for(int w = 0; w < right.size(); w++){
+			Long key = Long.valueOf(right.hash[w]);
+			unique.put(key, unique.containsKey(key) ? Integer.valueOf(-1) : Integer.valueOf(w));
+		}
+
+		Map<Long, Integer> candidates = new HashMap<Long, Integer>();
+		for(int v = 0; v < left.size(); v++){
+			Long key = Long.valueOf(left.hash[v]);
+			Integer w = unique.get(key);
+			if(w != null && w.intValue() >= 0){
+				candidates.put(key, candidates.containsKey(key) ? Integer.valueOf(-1) : Integer.valueOf(v));
+			}
+		}
+
+		List<int[]> matched = new ArrayList<int[]>();
+		for(Map.Entry<Long, Integer> entry: candidates.entrySet()){
+			int v = entry.getValue().intValue();
+			if(v >= 0){
+				int w = unique.get(entry.getKey()).intValue();
+				setMatch(v, w);
+				matched.add(new int[]{v, w});
+			}
+		}
+
+		return matched;
+	}
+
+	private void setMatch(int v, int w) {
+		left.match[v] = w;
+		right.match[w] = v;
+	}
+
+	/**
+	 * Propagates the matching to the neighbors of the matched nodes.
+	 * An unmatched successor (predecessor) of a matched node is matched
+	 * to the unmatched successor (predecessor) of its counterpart, if
+	 * the hash of both nodes is unique among these neighbors.
+	 * @param matched the matched pairs, the list is used as a worklist
+	 */
+	private void propagate(List<int[]> matched) {
+		List<int[]> worklist = new ArrayList<int[]>(matched);
+		while(!worklist.isEmpty()){
+			int[] pair = worklist.remove(worklist.size() - 1);
+			propagate(pair[0], pair[1], left.succStart, left.succ, right.succStart, right.succ, worklist, matched);
+			propagate(pair[0], pair[1], left.predStart, left.pred, right.predStart, right.pred, worklist, matched);
+		}
+	}
+
+	private void propagate(int v, int w, int[] leftStart, int[] leftAdj,
+			int[] rightStart, int[] rightAdj, List<int[]> worklist, List<int[]> matched) {
+		for(int k = leftStart[v]; k < leftStart[v + 1]; k++){
+			int x = leftAdj[k];
+			if(left.match[x] >= 0){
+				continue;
+			}
+
+			long h = left.hash[x];
+			int count = 0;
+			for(int l = leftStart[v]; l < leftStart[v + 1]; l++){
+				int x2 = leftAdj[l];
+				if(x2 != x && left.match[x2] < 0 && left.hash[x2] == h){
+					count++;
+				}
+			}
+			if(count > 0){
+				continue;
+			}
+
+			int y = -1;
+			for(int l = rightStart[w]; l < rightStart[w + 1]; l++){
+				int y2 = rightAdj[l];
+				if(right.match[y2] < 0 && right.hash[y2] == h && y2 != y){
+					if(y >= 0){
+						y = -1;
+						break;
+					}
+					y = y2;
+				}
+			}
+
+			if(y >= 0){
+				setMatch(x, y);
+				int[] pair = new int[]{x, y};
+				worklist.add(pair);
+				matched.add(pair);
+			}
+		}
+	}
+
+	/**
+	 * Matches the unmatched nodes by a minimum cost assignment. Each
+	 * unmatched node of the first graph gets the cheapest candidates and
+	 * a dummy column with the cost of deleting the node and inserting a
+	 * node of the second graph.
+	 * @return the list of the matched pairs or <code>null</code>
+	 *         if the matching has been canceled
+	 */
+	private List<int[]> refine() {
+		List<int[]> matched = new ArrayList<int[]>();
+		int[] rows = unmatched(left);
+		int[] columns = unmatched(right);
+		if(rows.length == 0 || columns.length == 0){
+			return matched;
+		}
+
+		int[] columnIndex = new int[right.size()];
+		for(int j = 0; j < columns.length; j++){
+			columnIndex[columns[j]] = j;
+		}
+
+		/* the unmatched nodes of the second graph by n-grams */
+		Map<Long, List<Integer>> index = new HashMap<Long, List<Integer>>();
+		for(int j = 0; j < columns.length; j++){
+			long[] grams = right.grams[columns[j]];
+			for(int k = 0; k < grams.length; k++){
+				if(k > 0 && grams[k] == grams[k - 1]){
+					continue;
+				}
+				Long key = Long.valueOf(grams[k]);
+				List<Integer> list = index.get(key);
+				if(list == null){
+					list = new ArrayList<Integer>();
+					index.put(key, list);
+				}
+				list.add(Integer.valueOf(columns[j]));
+			}
+		}
+
+		int[] start = new int[rows.length + 1];
+		int[] column = new int[rows.length * (MAX_CANDIDATES + 1)];
+		long[] cost = new long[column.length];
+		int[] stamp = new int[right.size()];
+		Arrays.fill(stamp, -1);
+		int[] candidates = new int[right.size()];
+		int[] keptCandidates = new int[MAX_CANDIDATES];
+		long[] keptCost = new long[MAX_CANDIDATES];
+		int pos = 0;
+		for(int i = 0; i < rows.length; i++){
+			if(isCanceled()){
+				return null;
+			}
+
+			int v = rows[i];
+			start[i] = pos;
+
+			/* candidates with common n-grams */
+			int count = 0;
+			long[] grams = left.grams[v];
+			for(int k = 0; k < grams.length; k++){
+				List<Integer> list = index.get(Long.valueOf(grams[k]));
+				if(list == null || list.size() > MAX_GRAM_NODES){
+					continue;
+				}
+				for(Integer w: list){
+					if(stamp[w.intValue()] != i){
+						stamp[w.intValue()] = i;
+						candidates[count++] = w.intValue();
+					}
+				}
+			}
+
+			/* candidates with matched neighbors */
+			count = addNeighborCandidates(v, left.succStart, left.succ, right.succStart, right.succ,
+					i, stamp, candidates, count);
+			count = addNeighborCandidates(v, left.predStart, left.pred, right.predStart, right.pred,
+					i, stamp, candidates, count);
+
+			/* keep the cheapest candidates */
+			int kept = 0;
+			for(int k = 0; k < count; k++){
+				long c = computeCost(v, candidates[k]);
+				if(c >= INDEL){
+					continue;
+				}
+
+				int p = Math.min(kept, MAX_CANDIDATES - 1);
+				if(kept == MAX_CANDIDATES && c >= keptCost[p]){
+					continue;
+				}
+				while(p > 0 && keptCost[p - 1] > c){
+					keptCost[p] = keptCost[p - 1];
+					keptCandidates[p] = keptCandidates[p - 1];
+					p--;
+				}
+				keptCost[p] = c;
+				keptCandidates[p] = candidates[k];
+				kept = Math.min(kept + 1, MAX_CANDIDATES);
+			}
+
+			for(int k = 0; k < kept; k++){
+				column[pos] = columnIndex[keptCandidates[k]];
+				cost[pos++] = keptCost[k];
+			}
+
+			/* delete the node and insert another one */
+			column[pos] = columns.length + i;
+			cost[pos++] = INDEL;
+		}
+		start[rows.length] = pos;
+
+		int[] assignment = HungarianMethod.assignSparse(rows.length,
+				columns.length + rows.length, start, column, cost);
+		for(int i = 0; i < rows.length; i++){
+			int j = column[assignment[i]];
+			if(j < columns.length){
+				setMatch(rows[i], columns[j]);
+				matched.add(new int[]{rows[i], columns[j]});
+			}
+		}
+
+		return matched;
+	}
+
+	/**
+	 * Adds the unmatched neighbors of the counterparts of the
+	 * matched neighbors of the node to the candidates.
+	 * @return the number of candidates
+	 */
+	private int addNeighborCandidates(int v, int[] leftStart, int[] leftAdj,
+			int[] rightStart, int[] rightAdj, int i, int[] stamp, int[] candidates, int count) {
+		for(int k = leftStart[v]; k < leftStart[v + 1]; k++){
+			int w = left.match[leftAdj[k]];
+			if(w < 0){
+				continue;
+			}
+
+			/* the neighbors of w in the opposite direction lead back */
+			int[] start = rightStart == right.succStart ? right.predStart : right.succStart;
+			int[] adj = rightStart == right.succStart ? right.pred : right.succ;
+			for(int l = start[w]; l < start[w + 1]; l++){
+				int y = adj[l];
+				if(right.match[y] < 0 && stamp[y] != i){
+					stamp[y] = i;
+					candidates[count++] = y;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	private static int[] unmatched(Graph g) {
+		int count = 0;
+		for(int v = 0; v < g.size(); v++){
+			if(g.match[v] < 0){
+				count++;
+			}
+		}
+
+		int[] result = new int[count];
+		count = 0;
+		for(int v = 0; v < g.size(); v++){
+			if(g.match[v] < 0){
+				result[count++] = v;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Computes the cost of matching the node <code>v</code> of the first
+	 * graph to the node <code>w</code> of the second graph. The cost is
+	 * the sum of:
+	 * <ul>
+	 * <li>the label cost <code>2 * (1 - d)</code>, where <code>d</code> is the
+	 *   Dice coefficient of the n-gram fingerprints,</li>
+	 * <li>the part of the matched neighbors, which are not matched to
+	 *   neighbors of the other node, <code>0.5</code> if no neighbor
+	 *   is matched,</li>
+	 * <li>a quarter of the relative difference of the degrees.</li>
+	 * </ul>
+	 * @param v the node of the first graph
+	 * @param w the node of the second graph
+	 * @return the cost scaled by {@link #SCALE}
+	 */
+	long computeCost(int v, int w) {
+		long[] a = left.grams[v];
+		long[] b = right.grams[w];
+		int common = 0;
+		int i = 0;
+		int j = 0;
+		while(i < a.length && j < b.length){
+			if(a[i] == b[j]){
+				common++;
+				i++;
+				j++;
+			}
+			else if(a[i] < b[j]){
+				i++;
+			}
+			else{
+				j++;
+			}
+		}
+		long cost = 2 * SCALE - 4 * SCALE * common / (a.length + b.length);
+
+		int[] neighbors = new int[2];
+		countConflicts(v, w, left.succStart, left.succ, right, true, neighbors);
+		countConflicts(w, v, right.succStart, right.succ, left, true, neighbors);
+		countConflicts(v, w, left.predStart, left.pred, right, false, neighbors);
+		countConflicts(w, v, right.predStart, right.pred, left, false, neighbors);
+		cost += neighbors[0] == 0 ? SCALE / 2 : SCALE * neighbors[1] / neighbors[0];
+
+		int outV = left.succStart[v + 1] - left.succStart[v];
+		int inV = left.predStart[v + 1] - left.predStart[v];
+		int outW = right.succStart[w + 1] - right.succStart[w];
+		int inW = right.predStart[w + 1] - right.predStart[w];
+		int degrees = outV + inV + outW + inW;
+		if(degrees > 0){
+			cost += SCALE * (Math.abs(outV - outW) + Math.abs(inV - inW)) / (4 * degrees);
+		}
+
+		return cost;
+	}
+
+	/**
+	 * Counts the matched neighbors of <code>v</code> and the neighbors
+	 * whose counterparts are not neighbors of <code>w</code>.
+	 * @param v the node
+	 * @param w the candidate of the node in the other graph
+	 * @param start the start positions of the neighbors
+	 * @param adj the neighbors
+	 * @param other the other graph
+	 * @param successors <code>true</code> if the counterparts have to be
+	 *        successors of <code>w</code> in the other graph, <code>false</code>
+	 *        if they have to be predecessors
+	 * @param neighbors the number of matched neighbors and the number of conflicts
+	 */
+	private void countConflicts(int v, int w, int[] start, int[] adj, Graph other,
+			boolean successors, int[] neighbors) {
+		Graph g = other == right ? left : right;
+		for(int k = start[v]; k < start[v + 1]; k++){
+			int y = g.match[adj[k]];
+			if(y < 0){
+				continue;
+			}
+
+			neighbors[0]++;
+			boolean found = successors ? other.hasSuccessor(w, y) : other.hasSuccessor(y, w);
+			if(!found){
+				neighbors[1]++;
+			}
+		}
+	}
+
+	/**
+	 * Computes the graph edit distance of the matching.
+	 * @return the distance
+	 */
+	private int computeDistance() {
+		int d = 0;
+		for(int v = 0; v < left.size(); v++){
+			int w = left.match[v];
+			if(w < 0 || left.hash[v] != right.hash[w]){
+				d++;
+			}
+
+			for(int k = left.succStart[v]; k < left.succStart[v + 1]; k++){
+				int y = left.match[left.succ[k]];
+				if(w < 0 || y < 0 || !right.hasSuccessor(w, y)){
+					d++;
+				}
+			}
+		}
+
+		for(int w = 0; w < right.size(); w++){
+			int v = right.match[w];
+			if(v < 0){
+				d++;
+			}
+
+			for(int k = right.succStart[w]; k < right.succStart[w + 1]; k++){
+				int x = right.match[right.succ[k]];
+				if(v < 0 || x < 0 || !left.hasSuccessor(v, x)){
+					d++;
+				}
+			}
+		}
+
+		return d;
+	}
+}
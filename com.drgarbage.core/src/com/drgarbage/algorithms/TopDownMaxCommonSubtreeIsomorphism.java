@@ -18,22 +18,12 @@ package com.drgarbage.algorithms;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Map.Entry;
-import java.util.Set;
 
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
-import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
-import com.drgarbage.controlflowgraph.intf.GraphUtils;
 import com.drgarbage.controlflowgraph.intf.ISpanningTree;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
-import com.drgarbage.controlflowgraph.intf.IEdgeExt;
-import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
 
 
@@ -83,18 +73,53 @@ import com.drgarbage.controlflowgraph.intf.INodeExt;
 
 public class TopDownMaxCommonSubtreeIsomorphism {
 	
-	Map<INodeExt, List<IEdgeExt>> B = null;
-	
-	protected class MatrixEntry{
-		protected INodeExt v;
-		protected INodeExt w;
-		protected int result = -1;
+	/**
+	 * Result of a pair of nodes which has not been computed yet.
+	 */
+	private static final int UNDECIDED = -1;
+
+	/**
+	 * The weight matrix of the children of the nodes <code>v</code>
+	 * and <code>w</code>. The children are the indices of the nodes
+	 * in the {@link CompactTree}, the elements are computed in the
+	 * order of the rows.
+	 */
+	private static class Matrix {
+		private int v;
+		private int w;
+		private int p;
+		private int q;
+		private int[] result;
+		private int next = 0;
+
+		Matrix(int v, int w, int p, int q) {
+			this.v = v;
+			this.w = w;
+			this.p = p;
+			this.q = q;
+			result = new int[p * q];
+		}
 	}
+
+	/**
+	 * The spanning trees <code>T_1</code> and <code>T_2</code>.
+	 */
+	private CompactTree left = null;
+	private CompactTree right = null;
+
+	/**
+	 * The solutions of the maximum weighted bipartite matching
+	 * problems by the pair of nodes. For each child of the node of
+	 * <code>T_1</code> the index of the matched child of the node
+	 * of <code>T_2</code> or -1.
+	 */
+	private Map<Long, int[]> B = null;
 	
 	/**
 	 * Starts the unordered top-down maximum common subtree isomorphism algorithm.
 	 * The Algorithm works only with spanning trees. Gets root nodes from each input spanning tree
-	 * and proceeds top-down maximum common algorithm.
+	 * and proceeds top-down maximum common algorithm. Only the edges of the spanning
+	 * trees are used, the back edges of the graphs are ignored.
 	 * 
 	 * @param leftGraph spanning tree <i>T_1</i>
 	 * @param rightGraph spanning tree <i>T_2</i>
@@ -106,24 +131,25 @@ public class TopDownMaxCommonSubtreeIsomorphism {
 		
 		ISpanningTree leftTree = new SpanningTreeFinder(leftGraph).find();
 		ISpanningTree rightTree = new SpanningTreeFinder(rightGraph).find();
-
-		GraphUtils.clearGraph(leftTree);
-		GraphUtils.clearGraphColorMarks(leftTree);
-		GraphUtils.clearGraph(rightTree);
-		GraphUtils.clearGraphColorMarks(rightTree);
+		
+		left = new CompactTree(leftTree, leftTree.getRoot());
+		right = new CompactTree(rightTree, rightTree.getRoot());
+		
+		/* isomorphic subtrees get the same label */
+		CompactTree.computeLabels(left, right);
 		
 		/*partial injection*/
-		B = new HashMap<INodeExt, List<IEdgeExt>>();
-		traverseTopDown(leftTree.getRoot(), rightTree.getRoot());
+		B = new HashMap<Long, int[]>();
+		traverseTopDown();
 		
 		/* reconstruct the subtree */
 		Map<INodeExt, INodeExt> mappedNodes = new HashMap<INodeExt, INodeExt>();
-		mappedNodes.put(leftTree.getRoot(), rightTree.getRoot());
-		reconstruct(leftTree.getRoot(), mappedNodes);
+		reconstruct(mappedNodes);
 
 		return mappedNodes;
 	}
 	
+
 	/**
 	 * traverseTopDown
 	 * 
@@ -168,167 +194,126 @@ public class TopDownMaxCommonSubtreeIsomorphism {
 	 *  (v6 w12 <b>5</b>) is build from previous solution. Similarly all other cells in the final matrix are built:
 	 *  recursively considering all branches and finding possible maximum matching
 	 *   
-	 * @param v node of the T_1
-	 * @param w node of the T_2
-	 * @return 0 or 1
+	 *  </br>
+	 *  The matrices are processed by an explicit stack instead of recursive calls.
+	 *  The pairs of nodes with a leaf and the pairs of isomorphic subtrees
+	 *  with the same canonical label are computed directly.
+	 *   
+	 * @return the size of the maximum common subtree of T_1 and T_2
 	 */
-	private int traverseTopDown(INodeExt v, INodeExt w){
-		
-		debug(v.getData().toString() + " <-> " + w.getData().toString());
-		 
-		/* p is number of children of v 
-		 * q is number of children of w
-		 */
-		int p  = v.getOutgoingEdgeList().size();
-		int q = w.getOutgoingEdgeList().size();
-
-		/* v is a leaf*/
-		if(p == 0){
-			return 1;
-		}
+	private int traverseTopDown(){
 		
-		/* w is a leaf*/
-		if(q == 0){
-			return 1;
+		int result = decide(0, 0);
+		if(result != UNDECIDED){
+			return result;
 		}
 
-		IEdgeListExt out1 = v.getOutgoingEdgeList();
-		IEdgeListExt out2 = w.getOutgoingEdgeList();
-
-		MatrixEntry matrix[][] = new MatrixEntry[p][q];
-		for(int i = 0; i < p; i++){
-			for(int j = 0; j < q; j++){
-				INodeExt child1 = out1.getEdgeExt(i).getTarget();
-				INodeExt child2 = out2.getEdgeExt(j).getTarget();
+		List<Matrix> stack = new ArrayList<Matrix>();
+		stack.add(new Matrix(0, 0, left.getChildCount(0), right.getChildCount(0)));
+		while(!stack.isEmpty()){
+			Matrix m = stack.get(stack.size() - 1);
+			if(m.next < m.result.length){
+				int child1 = left.getChild(m.v, m.next / m.q);
+				int child2 = right.getChild(m.w, m.next % m.q);
 
-				MatrixEntry me = new MatrixEntry();
-				me.v = child1;
-				me.w = child2;
-				
-				matrix[i][j] = me;
-				me.result = traverseTopDown(child1, child2);
-			}
-		}
-		
-		/*once leaves are reached  start increase edges-weight of maximum matched nodes*/
-		
-		/*matched leaves get a weight equals one*/
-		int res = 1;
-		if(p != 0 && q != 0){
-			int size[] = {p, q};
-			
-			/* DEBUG */
-			printMatrix(matrix, size);
-			
-			/* create a bipartite graph from the matrix */
-			List<INodeExt> part1 = new ArrayList<INodeExt>();
-			List<INodeExt> part2 = new ArrayList<INodeExt>();
-			IDirectedGraphExt graph = createBibartitGraph(matrix, size, part1, part2);
-			
-			/* an optimization to avoid the creation of an empty matrix */
-			if(graph.getEdgeList().size() == 0){
-				return 1;
+				int r = decide(child1, child2);
+				if(r == UNDECIDED){
+					stack.add(new Matrix(child1, child2, 
+							left.getChildCount(child1), right.getChildCount(child2)));
+				}
+				else{
+					m.result[m.next++] = r;
+				}
+				continue;
 			}
 
-			/* find max bipartite matching in weighted bipartite graph */
-			MaxWeightedBipartiteMatching mwbm = new MaxWeightedBipartiteMatching();
-			List<IEdgeExt> MatchedEdges = mwbm.execute(graph, part1, part2);
-			
-			/*increase edges weight of matched nodes in bipartite graph*/
-			for(IEdgeExt e: MatchedEdges){
-				res += e.getCounter();
+			stack.remove(stack.size() - 1);
+			result = solve(m);
+			if(!stack.isEmpty()){
+				Matrix parent = stack.get(stack.size() - 1);
+				parent.result[parent.next++] = result;
 			}
-			
-			matching(MatchedEdges);
-			
 		}
 
-		return res;
+		return result;
 	}
 
 	/**
-	 * Creates weighted bipartite graph from weight-matrix
-	 * @param matrix
-	 * @param size
-	 * @param part1
-	 * @param part2
-	 * @return
+	 * Computes the size of the maximum common subtree of the
+	 * subtrees rooted at v and w without solving a matching problem.
+	 * 
+	 * @param v node of the T_1
+	 * @param w node of the T_2
+	 * @return the size or {@link #UNDECIDED}
 	 */
-	private static IDirectedGraphExt createBibartitGraph(MatrixEntry[][] matrix,
-			int[] size, 
-			List<INodeExt> part1, 
-			List<INodeExt> part2){
-	
-		Set<INodeExt> set1 = new HashSet<INodeExt>();
-		Set<INodeExt> set2 = new HashSet<INodeExt>();
+	private int decide(int v, int w){
 		
-		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
-		Map<INodeExt, INodeExt> newGraphnodeMap = new HashMap<INodeExt, INodeExt>();
-		
-		for(int i = 0; i < size[0]; i++){
-			for(int j = 0; j < size[1]; j++){
-				MatrixEntry me = matrix[i][j];
-				if(me.result != 0){
-					INodeExt v = newGraphnodeMap.get(me.v);
-					if(v == null){
-						v = GraphExtentionFactory.createNodeExtention(me.v);
-						newGraphnodeMap.put(me.v, v);
-					}
-					set1.add(v);
-	
-					INodeExt w = newGraphnodeMap.get(me.w);
-					if(w == null){
-						w = GraphExtentionFactory.createNodeExtention(me.w);
-						newGraphnodeMap.put(me.w, w);
-					}
-					set2.add(w);
-	
-					IEdgeExt e = GraphExtentionFactory.createEdgeExtention(v, w);
-					e.setCounter(me.result);
-					
-					/* for debugging purposes */
-					if(!DEBUG){
-						String str = me.v.getData().toString() + "->" + me.w.getData().toString(); 
-						e.setData(str);
-					}
-					graph.getEdgeList().add(e);
-				}
-			}
-		}
-	
-		for(INodeExt n: newGraphnodeMap.values()){
-			graph.getNodeList().add(n);
-		}
-	
-		Iterator<INodeExt> it = set1.iterator();
-		while(it.hasNext()){
-			part1.add(it.next());
+		debug(left.getNode(v).getData().toString() + " <-> " + right.getNode(w).getData().toString());
+		 
+		/* v or w is a leaf */
+		if(left.getChildCount(v) == 0 || right.getChildCount(w) == 0){
+			return 1;
 		}
 		
-		it = set2.iterator();
-		while(it.hasNext()){
-			part2.add(it.next());
+		/* isomorphic subtrees */
+		if(left.getLabel(v) == right.getLabel(w)){
+			return left.getSize(v);
 		}
 		
-		/* print the graph if */
-		if(DEBUG){
-			printGraph(graph);
-			debug("PART1:");
-			for(INodeExt n: part1){
-				System.out.print(" " + ((INodeExt)n.getData()).getData());
+		return UNDECIDED;
+	}
+
+	/**
+	 * Solves the maximum weighted bipartite matching problem of
+	 * the matrix and stores the matching in <code>B</code>.
+	 * 
+	 * @param m the matrix
+	 * @return the size of the maximum common subtree of the 
+	 *  subtrees rooted at v and w
+	 */
+	private int solve(Matrix m){
+		
+		/* DEBUG */
+		printMatrix(m);
+		
+		/* find max bipartite matching in the weight matrix */
+		long[][] weights = new long[m.p][m.q];
+		for(int i = 0; i < m.p; i++){
+			for(int j = 0; j < m.q; j++){
+				weights[i][j] = m.result[i * m.q + j];
 			}
-			debug("\n");
-			debug("PART2:");
-			for(INodeExt n: part2){
-				System.out.print(" " + ((INodeExt)n.getData()).getData());
+		}
+		int[] matched = MaxWeightedBipartiteMatching.assignMaximum(weights);
+		
+		/*matched leaves get a weight equals one*/
+		int res = 1;
+		debug(" === Matching ");
+		for(int i = 0; i < m.p; i++){
+			if(matched[i] >= 0){
+				debug(left.getNode(left.getChild(m.v, i)).getData()
+						+ "->" 
+						+ right.getNode(right.getChild(m.w, matched[i])).getData());
+				
+				res += m.result[i * m.q + matched[i]];
 			}
-			debug("\n");
 		}
+		debug(" =======");
 		
-		return graph;
+		B.put(key(m.v, m.w), matched);
+
+		return res;
 	}
-	
-	
+
+	/**
+	 * Returns the key of a pair of nodes in the map <code>B</code>.
+	 * @param v node of the T_1
+	 * @param w node of the T_2
+	 * @return the key
+	 */
+	private Long key(int v, int w){
+		return Long.valueOf((long)v * right.size() + w);
+	}
+
 	/**
 	 * This method reconstructs the top-down max common unordered subtree isomorphism mapping
 	 * <code>V_1 X V_2 subset M</code> included the solution 
@@ -357,90 +342,47 @@ public class TopDownMaxCommonSubtreeIsomorphism {
 	 * </pre>
 	 * @see  TopDownMaxCommonSubtreeIsomorphism
 	 * 
-	 * @param root the root of the tree <code>T_1</code>
+	 * The subtrees with the same canonical label are
+	 * mapped by {@link CompactTree#mapIsomorphicSubtrees(CompactTree, int, CompactTree, int, Map)}.
+	 * 
 	 * @param M the map of the matched nodes
 	 */
-	private void reconstruct(INodeExt root, Map<INodeExt, INodeExt> M){
+	private void reconstruct(Map<INodeExt, INodeExt> M){
 		
-		Queue<INodeExt> queue = new LinkedList<INodeExt>();
-		queue.add(root);
-		
-		/*start bfs from rootLeft*/
-		while(!queue.isEmpty()){
-			INodeExt node = queue.poll();
-			IEdgeListExt outgoingEdges = node.getOutgoingEdgeList();
-			for(int i = 0; i < outgoingEdges.size(); i++){
-				IEdgeExt edge = outgoingEdges.getEdgeExt(i);
-				
-				/*get each node in TreeLeft */
-				INodeExt targetNodeLeft = edge.getTarget();
-				if(!targetNodeLeft.isVisited()){
-					queue.add(targetNodeLeft);
-					List<IEdgeExt> edges = B.get(targetNodeLeft);
-					if(edges != null){
-						for(IEdgeExt e: edges){
-							/*start reconstruct*/
-							INodeExt nodeV = (INodeExt)e.getSource().getData();
-							INodeExt nodeW = (INodeExt)e.getTarget().getData();
-							debug("       +-> match " 
-									+ nodeV.getData().toString() 
-									+ "->" 
-									+ nodeW.getData().toString());
-	
-							INodeExt parentV = nodeV.getIncomingEdgeList().getEdgeExt(0).getSource();
-							INodeExt parentW = nodeW.getIncomingEdgeList().getEdgeExt(0).getSource();
-	
-							debug("         +-> Parent of :" + nodeV.getData() + " is " + parentV.getData());
-							debug("         +-> Parent of :" + nodeW.getData() + " is " + parentW.getData());
-	
-							INodeExt vW = M.get(parentV);
-						
-							if(vW != null){
-								if(vW.equals(parentW)){
-									debug("!!! FOUND " + nodeV.getData() +  " " + nodeW.getData());
-									M.put(nodeV, nodeW);
-								}
-							}
-							else{
-								debug("ERROR ..." + nodeV.getData() +  " " + nodeW.getData());
-							}
-						}
-					}
-				}
+		int[] stack = new int[2 * left.size()];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = 0;
+		while(top > 0){
+			int w = stack[--top];
+			int v = stack[--top];
+			
+			if(left.getLabel(v) == right.getLabel(w)){
+				CompactTree.mapIsomorphicSubtrees(left, v, right, w, M);
+				continue;
 			}
-		}
-		
-	}
-	
-	/**
-	 * puts into list B matched edges for further reconstruction
-	 * @param MatchedEdges
-	 */
-	protected  void matching(List<IEdgeExt> MatchedEdges){
-		
-		debug(" === Matching ");
-		for(IEdgeExt e: MatchedEdges){
-
-			debug(((INodeExt)e.getSource().getData()).getData()
-					+ "->" 
-					+ ((INodeExt)e.getTarget().getData()).getData());
-
 			
-			List<IEdgeExt> list = B.get(e.getSource().getData());
-			if(list == null){
-				list = new ArrayList<IEdgeExt>();
-				B.put((INodeExt) e.getSource().getData(), list);
+			M.put(left.getNode(v), right.getNode(w));
+			
+			int[] matched = B.get(key(v, w));
+			if(matched == null){
+				continue;
 			}
-
-			for(IEdgeExt ee: MatchedEdges){
-				if(ee.getSource().getData().equals(e.getSource().getData())){
-					list.add(ee);
+			
+			for(int i = 0; i < matched.length; i++){
+				if(matched[i] != -1){
+					INodeExt nodeV = left.getNode(left.getChild(v, i));
+					INodeExt nodeW = right.getNode(right.getChild(w, matched[i]));
+					debug("!!! FOUND " + nodeV.getData() +  " " + nodeW.getData());
+					
+					stack[top++] = left.getChild(v, i);
+					stack[top++] = right.getChild(w, matched[i]);
 				}
 			}
 		}
-		debug(" =======");
-
 	}
+	
+
 		/* 
 		 * The Methods in this section are used for purely debugging purposes 
 		 */
@@ -478,50 +420,22 @@ public class TopDownMaxCommonSubtreeIsomorphism {
 		 * NOTE: The method is disabled if the debugging flag set to false.
 		 * 
 		 * @param matrix the matrix
-		 * @param size the matrix size <code>new int [][] = {10, 4}</code>
 		 * @see #DEBUG
 		 */
-		private static void printMatrix(MatrixEntry[][] matrix, int[] size){	
+		private void printMatrix(Matrix matrix){	
 			if(!DEBUG) return;
 			
 			System.out.println("---- Matrix---");
-			for(int i = 0; i < size[0]; i++){
-				for(int j = 0; j < size[1]; j++){
-					MatrixEntry me = matrix[i][j];
-					System.out.print("(" + me.v.getData().toString() 
-							+ " " + me.w.getData().toString() 
-							+ " " + me.result
+			for(int i = 0; i < matrix.p; i++){
+				for(int j = 0; j < matrix.q; j++){
+					System.out.print("(" + left.getNode(left.getChild(matrix.v, i)).getData().toString() 
+							+ " " + right.getNode(right.getChild(matrix.w, j)).getData().toString() 
+							+ " " + matrix.result[i * matrix.q + j]
 							+ ") ");
 				}
 				System.out.println();
 			}
 			System.out.println("--------------");
 		}
-		
-		/**
-		 * printMap
-		 * @param  Map<INodeExt, List<IEdgeExt>> 
-		 * 
-		 */
-		private void printMap(Map<INodeExt, List<IEdgeExt>> map){
-			if(!DEBUG) return;
-			
-			System.out.println("map B:");
-			for(Entry<INodeExt, List<IEdgeExt>> entry: map.entrySet()){
-				System.out.print(entry.getKey().getData() + ": ");
-				
-				for(IEdgeExt e: entry.getValue()){
-					System.out.print(" " + ((INodeExt)e.getTarget().getData()).getData());
-				}
-				System.out.println();
-			}	
-			System.out.println();
-		}
-		
-		private static void printGraph(IDirectedGraphExt g) {
-			if(!DEBUG) return;	
-		}
-
-
 
 }
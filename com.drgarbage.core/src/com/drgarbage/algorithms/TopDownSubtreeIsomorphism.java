@@ -17,20 +17,12 @@
 package com.drgarbage.algorithms;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
-import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
-import com.drgarbage.controlflowgraph.intf.GraphUtils;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
-import com.drgarbage.controlflowgraph.intf.IEdgeExt;
-import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
-import com.drgarbage.controlflowgraph.intf.INodeListExt;
 
 
 /**
@@ -75,6 +67,11 @@ import com.drgarbage.controlflowgraph.intf.INodeListExt;
  */
 public class TopDownSubtreeIsomorphism {
 
+	/**
+	 * Result of a pair of nodes which has not been decided yet.
+	 */
+	private static final int UNDECIDED = -1;
+
 	/**
 	 * The data structure for building the bipartite node relation according 
 	 * to the Algorithm of Gabriel Valiente.
@@ -87,17 +84,42 @@ public class TopDownSubtreeIsomorphism {
 	 *   (v3 w11 1) (v3 w5 0) 
 	 *   --------------
 	 * </pre>
-	 * Each element of the matrix is a set of (v_i, w_j,  <code>true</code> or <code>false</code> ). 
-	 * <code>true</code> if the edge exists and <code>false</code> otherwise. 
+	 * Each element of the matrix is a set of (v_i, w_j,  <code>1</code> or <code>0</code> ). 
+	 * <code>1</code> if the edge exists and <code>0</code> otherwise. 
+	 * The children <code>v_i</code> and <code>w_j</code> are the indices of
+	 * the nodes in the {@link CompactTree}, the elements are computed
+	 * in the order of the rows.
 	 */
-	protected class MatrixEntry{
-		protected INodeExt v;
-		protected INodeExt w;
-		protected int isomorph = -1;
-
+	private static class Matrix {
+		private int v;
+		private int w;
+		private int p;
+		private int q;
+		private int[] isomorph;
+		private int next = 0;
+
+		Matrix(int v, int w, int p, int q) {
+			this.v = v;
+			this.w = w;
+			this.p = p;
+			this.q = q;
+			isomorph = new int[p * q];
+		}
 	}
-	
-	Map<INodeExt, List<IEdgeExt>> B = null;
+
+	/**
+	 * The trees <code>T_1</code> and <code>T_2</code>.
+	 */
+	private CompactTree left = null;
+	private CompactTree right = null;
+
+	/**
+	 * The solutions of the maximum cardinality bipartite matching
+	 * problems by the pair of nodes. For each child of the node of
+	 * <code>T_1</code> the index of the matched child of the node
+	 * of <code>T_2</code> or -1.
+	 */
+	private Map<Long, int[]> B = null;
 
 	/**
 	 * Executes the Top Down Subtree isomorphism algorithm.
@@ -111,26 +133,12 @@ public class TopDownSubtreeIsomorphism {
 			IDirectedGraphExt leftTree, IDirectedGraphExt rightTree) throws ControlFlowGraphException {
 		
 		/* get root nodes */
-		INodeExt rootLeft = null;
-		for(int i = 0; i < leftTree.getNodeList().size(); i++){
-			INodeExt n = leftTree.getNodeList().getNodeExt(i);
-			if(n.getIncomingEdgeList().size() == 0){
-				rootLeft = n;
-			}
-		}
-		
+		INodeExt rootLeft = CompactTree.findRoot(leftTree);
 		if(rootLeft == null){
 			throw new ControlFlowGraphException("The left tree has no root. The graph is propably not a tree.");
 		}
 		
-		INodeExt rootRight = null;
-		for(int i = 0; i < rightTree.getNodeList().size(); i++){
-			INodeExt n = rightTree.getNodeList().getNodeExt(i);
-			if(n.getIncomingEdgeList().size() == 0){
-				rootRight = n;
-			}
-		}
-		
+		INodeExt rootRight = CompactTree.findRoot(rightTree);
 		if(rootRight == null){
 			throw new ControlFlowGraphException("The right tree has no root. The graph is propably not a tree.");
 		}
@@ -141,6 +149,10 @@ public class TopDownSubtreeIsomorphism {
 	
 	/**
 	 * Executes the Top Down Subtree isomorphism algorithm.
+	 * The trees are converted to the {@link CompactTree} representation,
+	 * the nodes of the graphs are only used to return the result.
+	 * If the tree <code>T_1</code> can not be mapped completely, the
+	 * map contains the nodes mapped by the matchings found.
 	 * 
 	 * @param leftTree the tree <code>T_1</code>
 	 * @param rootLeft the root node of the left tree
@@ -154,76 +166,31 @@ public class TopDownSubtreeIsomorphism {
 			IDirectedGraphExt rightTree,
 			INodeExt rootRight) {
 
+		left = new CompactTree(leftTree, rootLeft);
+		right = new CompactTree(rightTree, rootRight);
+
 		/* check tree size */
-		if(leftTree.getNodeList().size() > rightTree.getNodeList().size()){
+		if(left.size() > right.size()){
 			return null;
 		}
 		
-		/* clear tree graphs */
-		GraphUtils.clearGraph(leftTree);
-		GraphUtils.clearGraphColorMarks(leftTree);
-		GraphUtils.clearGraph(rightTree);
-		GraphUtils.clearGraphColorMarks(rightTree);
-
-		/* compute size and heights for all nodes of both trees */
-		compute_Size_Height(rootLeft);
-		compute_Size_Height(rootRight);
+		/* isomorphic subtrees get the same label */
+		CompactTree.computeLabels(left, right);
 		
 		/* DEBUG */
-		printtHeightSize(leftTree.getNodeList());
-		printtHeightSize(rightTree.getNodeList());
-		
+		printtHeightSize(left);
+		printtHeightSize(right);
 		
-		B = new HashMap<INodeExt, List<IEdgeExt>>();
+		B = new HashMap<Long, int[]>();
 		Map<INodeExt, INodeExt> M  = new HashMap<INodeExt, INodeExt>();
-		traverseTopDown(rootLeft, rootRight);
+		traverseTopDown();
 
 		/* reconstruct the subtree */
-		M.put(rootLeft, rootRight);
-		reconstruct(rootLeft, M);
+		reconstruct(M);
 		
 		return M;
 	}
 
-	/**
-	 * Computes for each node of the tree the size of the subtree and
-	 * the height. The values are assigned to the attributes: 
-	 * <pre>
-	 *  Width = <size>
-	 *  Height = <height>
-	 * </pre>
-	 * @param root the root node of the tree
-	 */
-	private static void compute_Size_Height(INodeExt root){
-
-		IEdgeListExt outEdges = root.getOutgoingEdgeList();
-		for(int i = 0; i < outEdges.size(); i++){
-			INodeExt node = outEdges.getEdgeExt(i).getTarget();
-			compute_Size_Height(node); /* call recursive */
-
-			IEdgeListExt out = node.getOutgoingEdgeList();
-			/* child is a leaf */
-			if(out.size() == 0){
-				node.setWidth(1); /* set size */
-				node.setHeight(0); /* set height */
-			}
-			else{
-				int size = 1;
-				int height = 0;
-				for(int j = 0; j < out.size(); j++){
-					INodeExt target = out.getEdgeExt(j).getTarget(); 
-					size += target.getWidth();
-
-					if(target.getHeight() > height){
-						height = target.getHeight();	
-					}
-				}
-				height++;
-				node.setWidth(size); /* set size */
-				node.setHeight(height); /* set height */
-			}
-		}
-	}
 
 	/**
 	 * Citation from: "Algorithms on Trees and Graphs":
@@ -322,20 +289,74 @@ public class TopDownSubtreeIsomorphism {
 	 *   =======
 	 * </pre>
 	 * 
+	 * <br>
+	 * The matrices are processed by an explicit stack instead of
+	 * recursive calls, the pairs of nodes which can be decided
+	 * without a matching are not pushed:
+	 * <ul>
+	 * <li>a leaf <code>v</code> can be mapped to each node,</li>
+	 * <li><code>v</code> can not be mapped to <code>w</code> if <code>v</code>
+	 * has more children, a larger height or size than <code>w</code>,</li>
+	 * <li>isomorphic subtrees with the same canonical label are mapped to each other.</li>
+	 * </ul>
+	 * 
+	 * @return 1 if the root of T_1 can be mapped to the root of T_2, otherwise 0
+	 */
+	private int traverseTopDown(){
+		
+		int result = decide(0, 0);
+		if(result != UNDECIDED){
+			return result;
+		}
+
+		List<Matrix> stack = new ArrayList<Matrix>();
+		stack.add(new Matrix(0, 0, left.getChildCount(0), right.getChildCount(0)));
+		while(!stack.isEmpty()){
+			Matrix m = stack.get(stack.size() - 1);
+			if(m.next < m.isomorph.length){
+				int child1 = left.getChild(m.v, m.next / m.q);
+				int child2 = right.getChild(m.w, m.next % m.q);
+
+				int isomorph = decide(child1, child2);
+				if(isomorph == UNDECIDED){
+					stack.add(new Matrix(child1, child2, 
+							left.getChildCount(child1), right.getChildCount(child2)));
+				}
+				else{
+					m.isomorph[m.next++] = isomorph;
+				}
+				continue;
+			}
+
+			stack.remove(stack.size() - 1);
+			result = solve(m);
+			if(!stack.isEmpty()){
+				Matrix parent = stack.get(stack.size() - 1);
+				parent.isomorph[parent.next++] = result;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Decides if the node v can be mapped to the node w without
+	 * solving a matching problem.
+	 * 
 	 * @param v node of the T_1
 	 * @param w node of the T_2
-	 * @return 0 or 1
+	 * @return 0, 1 or {@link #UNDECIDED}
 	 */
-	private int traverseTopDown(INodeExt v, INodeExt w){
+	private int decide(int v, int w){
 		
-		debug(v.getData().toString() + " <-> " + w.getData().toString());
+		debug(left.getNode(v).getData().toString() + " <-> " + right.getNode(w).getData().toString());
 
 		/* 
 		 * p is number of children of v 
 		 * q is number of chilfren of w
 		 */
-		int p  = v.getOutgoingEdgeList().size();
-		int q = w.getOutgoingEdgeList().size();
+		int p = left.getChildCount(v);
+		int q = right.getChildCount(w);
 
 		/* v is a leaf*/
 		if(p == 0){
@@ -343,74 +364,82 @@ public class TopDownSubtreeIsomorphism {
 		}
 
 		/* if( p > q || v.height > w.height || v.size > w.size */
-		if(p > q || v.getHeight() > w.getHeight() || v.getWidth() > w.getWidth() ){
+		if(p > q || left.getHeight(v) > right.getHeight(w) || left.getSize(v) > right.getSize(w)){
 			return 0;
 		}
 
-		IEdgeListExt out1 = v.getOutgoingEdgeList();
-		IEdgeListExt out2 = w.getOutgoingEdgeList();
-
-		MatrixEntry matrix2[][] = new MatrixEntry[p][q];
-		for(int i = 0; i < p; i++){
-			for(int j = 0; j < q; j++){
-				INodeExt child1 = out1.getEdgeExt(i).getTarget();
-				INodeExt child2 = out2.getEdgeExt(j).getTarget();
+		/* isomorphic subtrees */
+		if(left.getLabel(v) == right.getLabel(w)){
+			return 1;
+		}
 
-				MatrixEntry me = new MatrixEntry();
-				me.v = child1;
-				me.w = child2;
+		return UNDECIDED;
+	}
 
-				matrix2[i][j] = me;
-				me.isomorph = traverseTopDown(child1, child2);
+	/**
+	 * Solves the maximum cardinality bipartite matching problem of
+	 * the matrix and stores the matching in <code>B</code>.
+	 * 
+	 * @param m the matrix
+	 * @return 1 if all children of v are matched, otherwise 0
+	 */
+	private int solve(Matrix m){
+		
+		/* DEBUG */
+		printMatrix(m);
+
+		/* the adjacency arrays of the children of v */
+		int[] start = new int[m.p + 1];
+		int[] adjacent = new int[m.isomorph.length];
+		int pos = 0;
+		for(int i = 0; i < m.p; i++){
+			start[i] = pos;
+			for(int j = 0; j < m.q; j++){
+				if(m.isomorph[i * m.q + j] != 0){
+					adjacent[pos++] = j;
+				}
 			}
 		}
+		start[m.p] = pos;
 
-		if(p != 0 && q != 0){
-			int size[] = {p, q};
-			
-			/* DEBUG */
-			printMatrix(matrix2, size);
-			
-			/* create a bipartite graph from the matrix */
-			List<INodeExt> part1 = new ArrayList<INodeExt>();
-			List<INodeExt> part2 = new ArrayList<INodeExt>();
-			IDirectedGraphExt graph = createBibartitGraph(matrix2, size, part1, part2);
-			
-			/* an optimization to avoid the creation of an empty matrix */
-			if(graph.getEdgeList().size() == 0){
-				return 1;
-			}
-
-			/* find max bipartite matching */
-			MaxCardBipartiteMatching mbm = new MaxCardBipartiteMatching();
-			mbm.start(graph, part1, part2);
+		/* an optimization to avoid the matching of an empty matrix */
+		if(pos == 0){
+			return 0;
+		}
 
-			debug(" === Matching ");
-			for(IEdgeExt e: mbm.getMatchedEdges()){
+		/* find max bipartite matching */
+		int[] edges = MaxCardBipartiteMatching.match(m.p, m.q, start, adjacent);
 
-				debug(((INodeExt)e.getSource().getData()).getData()
+		int[] matched = new int[m.p];
+		int count = 0;
+		debug(" === Matching ");
+		for(int i = 0; i < m.p; i++){
+			matched[i] = edges[i] < 0 ? -1 : adjacent[edges[i]];
+			if(matched[i] != -1){
+				debug(left.getNode(left.getChild(m.v, i)).getData()
 						+ "->" 
-						+ ((INodeExt)e.getTarget().getData()).getData());
-
-				
-				List<IEdgeExt> list = B.get(e.getSource().getData());
-				if(list == null){
-					list = new ArrayList<IEdgeExt>();
-					B.put((INodeExt) e.getSource().getData(), list);
-				}
-
-				for(IEdgeExt ee: mbm.getMatchedEdges()){
-					if(ee.getSource().getData().equals(e.getSource().getData())){
-						list.add(ee);
-					}
-				}
+						+ right.getNode(right.getChild(m.w, matched[i])).getData());
+				count++;
 			}
-			debug(" =======");
 		}
+		debug(" =======");
+
+		B.put(key(m.v, m.w), matched);
+
+		return count == m.p ? 1 : 0;
+	}
 
-		return 1;
+	/**
+	 * Returns the key of a pair of nodes in the map <code>B</code>.
+	 * @param v node of the T_1
+	 * @param w node of the T_2
+	 * @return the key
+	 */
+	private Long key(int v, int w){
+		return Long.valueOf((long)v * right.size() + w);
 	}
 
+
 	/**
 	 * This method reconstructs the top-down unordered subtree isomorphism mapping
 	 * <code>V_1 X V_2 subset M</code> included the solution 
@@ -434,165 +463,45 @@ public class TopDownSubtreeIsomorphism {
 	 * </pre>
 	 * @see  TopDownSubtreeIsomorphism
 	 * 
-	 * @param root the root of the tree <code>T_1</code>
+	 * The subtrees with the same canonical label are
+	 * mapped by {@link CompactTree#mapIsomorphicSubtrees(CompactTree, int, CompactTree, int, Map)}.
+	 * 
 	 * @param M the map of the matched nodes
 	 */
-	private void reconstruct(INodeExt root, Map<INodeExt, INodeExt> M){
-		IEdgeListExt outEdges = root.getOutgoingEdgeList();
-
-		for(int i = 0; i < outEdges.size(); i++){
-			INodeExt  node = outEdges.getEdgeExt(i).getTarget();
-
-			/* for all matchings */
-			debug("    -> Matches for " + node.getData());
-
-			List<IEdgeExt> edges = B.get(node);
-			if(edges == null){
-				debug("ERROR: not matches for " + node.getData());
-				return;
+	private void reconstruct(Map<INodeExt, INodeExt> M){
+		int[] stack = new int[2 * left.size()];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = 0;
+		while(top > 0){
+			int w = stack[--top];
+			int v = stack[--top];
+
+			if(left.getLabel(v) == right.getLabel(w)){
+				CompactTree.mapIsomorphicSubtrees(left, v, right, w, M);
+				continue;
 			}
-			
-			for(IEdgeExt e: edges){
-				INodeExt nodeV = (INodeExt)e.getSource().getData();
-				INodeExt nodeW = (INodeExt)e.getTarget().getData();
-				debug("       +-> match " 
-						+ nodeV.getData().toString() 
-						+ "->" 
-						+ nodeW.getData().toString());
-
-				INodeExt parentV = nodeV.getIncomingEdgeList().getEdgeExt(0).getSource();
-				INodeExt parentW = nodeW.getIncomingEdgeList().getEdgeExt(0).getSource();
-
-				debug("         +-> Parent of :" + nodeV.getData() + " is " + parentV.getData());
-				debug("         +-> Parent of :" + nodeW.getData() + " is " + parentW.getData());
 
-				INodeExt vW = M.get(parentV);
-				if(vW != null){
+			M.put(left.getNode(v), right.getNode(w));
 
-
-					if(vW.equals(parentW)){
-						debug("!!! FOUND " + nodeV.getData() +  " " + nodeW.getData());
-						M.put(nodeV, nodeW);
-					}
-				}
-				else{
-					debug("ERROR ..." + nodeV.getData() +  " " + nodeW.getData());
-				}
+			int[] matched = B.get(key(v, w));
+			if(matched == null){
+				continue;
 			}
-			reconstruct(node, M); /* call recursive */
 
-		}
-	}
-	
-	/**
-	 * Creates a bipartite graph from the matrix.
-	 * 
-	 * @param matrix the matrix 
-	 *  <pre>
-	 *   ---- Matrix---
-	 *   (v4 w11 1) (v4 w5 1) 
-	 *   (v3 w11 1) (v3 w5 0) 
-	 *   --------------
-	 * 	</pre>
-	 * @param size the matrix size <code>new int [][] = {2, 2}</code>
-	 * @param part1 the list for the first bipartite partition
-	 *  				The list is filled with the nodes of the second partition: 
-	 * 	<pre>
-	 *   PART1: v4 v3
-	 * 	</pre>
-	 *  
-	 * @param part2 the list for the second bipartite partition
-	 * 				The list is filled with the nodes of the second partition: 
-	 * 	<pre>
-	 *   PART2: w11 w5
-	 * 	</pre>
-	 * 
-	 * @return the bipartite graph
-	 * 	<pre>
-	 * 	Graph:
-	 * 	Nodes:
-	 * 	  v4
-	 * 	  v3
-	 * 	  w11
-	 * 	  w5
-	 * 	Edges:
-	 * 	  v4 -> w11
-	 * 	  v4 -> w5
-	 * 	  v3 -> w11
-	 * 	</pre> 
-	 */
-	private static IDirectedGraphExt createBibartitGraph(MatrixEntry[][] matrix,
-			int[] size, 
-			List<INodeExt> part1, 
-			List<INodeExt> part2){
+			for(int i = 0; i < matched.length; i++){
+				if(matched[i] != -1){
+					INodeExt nodeV = left.getNode(left.getChild(v, i));
+					INodeExt nodeW = right.getNode(right.getChild(w, matched[i]));
+					debug("!!! FOUND " + nodeV.getData() +  " " + nodeW.getData());
 
-		Set<INodeExt> set1 = new HashSet<INodeExt>();
-		Set<INodeExt> set2 = new HashSet<INodeExt>();
-		
-		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
-
-		Map<INodeExt, INodeExt> newGraphnodeMap = new HashMap<INodeExt, INodeExt>();
-		for(int i = 0; i < size[0]; i++){
-			for(int j = 0; j < size[1]; j++){
-				MatrixEntry me = matrix[i][j];
-				if(me.isomorph != 0){
-					INodeExt v = newGraphnodeMap.get(me.v);
-					if(v == null){
-						v = GraphExtentionFactory.createNodeExtention(me.v);
-						newGraphnodeMap.put(me.v, v);
-					}
-					set1.add(v);
-
-					INodeExt w = newGraphnodeMap.get(me.w);
-					if(w == null){
-						w = GraphExtentionFactory.createNodeExtention(me.w);
-						newGraphnodeMap.put(me.w, w);
-					}
-					set2.add(w);
-
-					IEdgeExt e = GraphExtentionFactory.createEdgeExtention(v, w);
-					
-					/* for debugging purposes */
-					if(DEBUG){
-						String str = me.v.getData().toString() + "->" + me.w.getData().toString(); 
-						e.setData(str);
-					}
-					graph.getEdgeList().add(e);
+					stack[top++] = left.getChild(v, i);
+					stack[top++] = right.getChild(w, matched[i]);
 				}
 			}
 		}
-
-		for(INodeExt n: newGraphnodeMap.values()){
-			graph.getNodeList().add(n);
-		}
-
-		Iterator<INodeExt> it = set1.iterator();
-		while(it.hasNext()){
-			part1.add(it.next());
-		}
-		
-		it = set2.iterator();
-		while(it.hasNext()){
-			part2.add(it.next());
-		}
-		
-		/* print the graph if */
-		if(DEBUG){
-			printGraph(graph);
-			debug("PART1:");
-			for(INodeExt n: part1){
-				System.out.print(" " + ((INodeExt)n.getData()).getData());
-			}
-			debug("\n");
-			debug("PART2:");
-			for(INodeExt n: part2){
-				System.out.print(" " + ((INodeExt)n.getData()).getData());
-			}
-			debug("\n");
-		}
-		
-		return graph;
 	}
+	
 
 	/* 
 	 * The Methods in this section are used for purely debugging purposes 
@@ -618,45 +527,6 @@ public class TopDownSubtreeIsomorphism {
 		System.out.println(msg);
 	}
 	
-	/**
-	 * Prints the graph in the following format:
-	 * <pre>
-	 *   Print Graph:
-	 *   Nodes:
-	 *     w9
-	 *     w10
-	 *     v2
-	 *   Edges:
-	 *     v2 -> w9
-	 *     v2 -> w10
-	 * </pre>
-	 * 
-	 * NOTE: The method is disabled if the debugging flag set to false.
-	 * 
-	 * @param g the graph
-	 * @see #DEBUG
-	 */
-	private static void printGraph(IDirectedGraphExt g) {
-		if(!DEBUG) return;
-		
-		System.out.println("Print Graph:");
-
-		System.out.println("Nodes:");
-		for (int i = 0; i < g.getNodeList().size(); i++) {
-			System.out.println("  " + ((INodeExt)g.getNodeList()
-					.getNodeExt(i).getData()).getData().toString());
-		}
-
-		System.out.println("Edges:");
-		for (int i = 0; i < g.getEdgeList().size(); i++) {
-			IEdgeExt e = g.getEdgeList().getEdgeExt(i);
-			System.out.println("  " 
-					+ ((INodeExt)e.getSource().getData()).getData() 
-					+ " -> "
-					+ ((INodeExt)e.getTarget().getData()).getData());
-		}
-	}
-	
 	/**
 	 * Prints the calculated height and size of each node 
 	 * for the given graph node list in following format:
@@ -673,20 +543,20 @@ public class TopDownSubtreeIsomorphism {
 	 * 
 	 * NOTE: The method is disabled if the debugging flag set to false.
 	 * 
-	 * @param nodeList list of nodes
+	 * @param tree the tree
 	 * @see #DEBUG
 	 */
-	private static void printtHeightSize(INodeListExt nodeList) {
+	private static void printtHeightSize(CompactTree tree) {
 		if(!DEBUG) return;
 		
-		for(int i = 0; i < nodeList.size(); i++){
-			INodeExt n = nodeList.getNodeExt(i);
-			System.out.println(n.getData().toString() 
-					+ " size=" + n.getWidth()
-					+ " height=" + n.getHeight());
+		for(int v = 0; v < tree.size(); v++){
+			System.out.println(tree.getNode(v).getData().toString() 
+					+ " size=" + tree.getSize(v)
+					+ " height=" + tree.getHeight(v));
 		}
 	}
 	
+
 	/**
 	 * Prints the matrix in the following format:
 	 * <pre>
@@ -700,19 +570,17 @@ public class TopDownSubtreeIsomorphism {
 	 * NOTE: The method is disabled if the debugging flag set to false.
 	 * 
 	 * @param matrix the matrix
-	 * @param size the matrix size <code>new int [][] = {10, 4}</code>
 	 * @see #DEBUG
 	 */
-	private static void printMatrix(MatrixEntry[][] matrix, int[] size){	
+	private void printMatrix(Matrix matrix){	
 		if(!DEBUG) return;
 		
 		System.out.println("---- Matrix---");
-		for(int i = 0; i < size[0]; i++){
-			for(int j = 0; j < size[1]; j++){
-				MatrixEntry me = matrix[i][j];
-				System.out.print("(" + me.v.getData().toString() 
-						+ " " + me.w.getData().toString() 
-						+ " " + me.isomorph
+		for(int i = 0; i < matrix.p; i++){
+			for(int j = 0; j < matrix.q; j++){
+				System.out.print("(" + left.getNode(left.getChild(matrix.v, i)).getData().toString() 
+						+ " " + right.getNode(right.getChild(matrix.w, j)).getData().toString() 
+						+ " " + matrix.isomorph[i * matrix.q + j]
 						+ ") ");
 			}
 			System.out.println();
@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.algorithms;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
+import com.drgarbage.controlflowgraph.intf.INodeExt;
+import com.drgarbage.controlflowgraph.intf.INodeListExt;
+
+/**
+ * Working state of one run of an algorithm. The state is kept
+ * in bit sets and integer arrays indexed by a dense id of the
+ * nodes and edges instead of the properties <code>visited</code>,
+ * <code>mark</code> and <code>counter</code> of the graph elements.
+ * The graph is not modified by the algorithm, so that several
+ * algorithms can analyze the same graph at the same time and
+ * the results can be cached.
+ * <br>
+ * The nodes and edges of the graph get the ids in the order of
+ * the node and edge lists. Elements reached by the algorithm which
+ * are not in the lists get the next free id on their first access.
+ * <br>
+ * The state is not thread safe, every run creates its own state.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class TraversalState {
+
+	private Map<INodeExt, Integer> nodeIds;
+	private Map<IEdgeExt, Integer> edgeIds;
+
+	private BitSet visitedNodes = new BitSet();
+	private BitSet visitedEdges = new BitSet();
+	private BitSet markedNodes = new BitSet();
+	private BitSet markedEdges = new BitSet();
+
+	/**
+	 * Integer values of the nodes and edges, e.g. counters or weights.
+	 */
+	private int[] nodeValues;
+	private int[] edgeValues;
+
+	/**
+	 * Creates an empty state. The ids are assigned
+	 * on the first access of the nodes and edges.
+	 */
+	public TraversalState() {
+		nodeIds = new IdentityHashMap<INodeExt, Integer>();
+		edgeIds = new IdentityHashMap<IEdgeExt, Integer>();
+		nodeValues = new int[16];
+		edgeValues = new int[16];
+	}
+
+	/**
+	 * Creates a state for the graph.
+	 * @param graph the graph
+	 */
+	public TraversalState(IDirectedGraphExt graph) {
+		INodeListExt nodes = graph.getNodeList();
+		IEdgeListExt edges = graph.getEdgeList();
+		nodeIds = new IdentityHashMap<INodeExt, Integer>(nodes.size());
+		edgeIds = new IdentityHashMap<IEdgeExt, Integer>(edges.size());
+		nodeValues = new int[Math.max(nodes.size(), 16)];
+		edgeValues = new int[Math.max(edges.size(), 16)];
+
+		for(int i = 0; i < nodes.size(); i++){
+			getId(nodes.getNodeExt(i));
+		}
+		for(int i = 0; i < edges.size(); i++){
+			getId(edges.getEdgeExt(i));
+		}
+	}
+
+	/**
+	 * Returns the id of a node.
+	 * @param node the node
+	 * @return the id
+	 */
+	public int getId(INodeExt node) {
+		Integer id = nodeIds.get(node);
+		if(id == null){
+			id = Integer.valueOf(nodeIds.size());
+			nodeIds.put(node, id);
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * Returns the id of an edge.
+	 * @param edge the edge
+	 * @return the id
+	 */
+	public int getId(IEdgeExt edge) {
+		Integer id = edgeIds.get(edge);
+		if(id == null){
+			id = Integer.valueOf(edgeIds.size());
+			edgeIds.put(edge, id);
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * Returns <code>true</code> if the node has been visited.
+	 * @param node the node
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	public boolean isVisited(INodeExt node) {
+		return visitedNodes.get(getId(node));
+	}
+
+	/**
+	 * Sets the visited flag of a node.
+	 * @param node the node
+	 * @param b the flag
+	 */
+	public void setVisited(INodeExt node, boolean b) {
+		visitedNodes.set(getId(node), b);
+	}
+
+	/**
+	 * Returns <code>true</code> if the edge has been visited.
+	 * @param edge the edge
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	public boolean isVisited(IEdgeExt edge) {
+		return visitedEdges.get(getId(edge));
+	}
+
+	/**
+	 * Sets the visited flag of an edge.
+	 * @param edge the edge
+	 * @param b the flag
+	 */
+	public void setVisited(IEdgeExt edge, boolean b) {
+		visitedEdges.set(getId(edge), b);
+	}
+
+	/**
+	 * Returns <code>true</code> if the node has been marked.
+	 * The meaning of the mark is defined by the algorithm,
+	 * e.g. a matched node or a node on the DFS stack.
+	 * @param node the node
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	public boolean isMarked(INodeExt node) {
+		return markedNodes.get(getId(node));
+	}
+
+	/**
+	 * Sets the mark of a node.
+	 * @param node the node
+	 * @param b the mark
+	 */
+	public void setMarked(INodeExt node, boolean b) {
+		markedNodes.set(getId(node), b);
+	}
+
+	/**
+	 * Returns <code>true</code> if the edge has been marked.
+	 * @param edge the edge
+	 * @return <code>true</code> or <code>false</code>
+	 * @see #isMarked(INodeExt)
+	 */
+	public boolean isMarked(IEdgeExt edge) {
+		return markedEdges.get(getId(edge));
+	}
+
+	/**
+	 * Sets the mark of an edge.
+	 * @param edge the edge
+	 * @param b the mark
+	 */
+	public void setMarked(IEdgeExt edge, boolean b) {
+		markedEdges.set(getId(edge), b);
+	}
+
+	/**
+	 * Returns the value of a node. The default value is 0.
+	 * @param node the node
+	 * @return the value
+	 */
+	public int getValue(INodeExt node) {
+		int id = getId(node);
+		return id < nodeValues.length ? nodeValues[id] : 0;
+	}
+
+	/**
+	 * Sets the value of a node.
+	 * @param node the node
+	 * @param value the value
+	 */
+	public void setValue(INodeExt node, int value) {
+		int id = getId(node);
+		if(id >= nodeValues.length){
+			nodeValues = Arrays.copyOf(nodeValues, Math.max(id + 1, nodeValues.length * 2));
+		}
+		nodeValues[id] = value;
+	}
+
+	/**
+	 * Returns the value of an edge. The default value is 0.
+	 * @param edge the edge
+	 * @return the value
+	 */
+	public int getValue(IEdgeExt edge) {
+		int id = getId(edge);
+		return id < edgeValues.length ? edgeValues[id] : 0;
+	}
+
+	/**
+	 * Sets the value of an edge.
+	 * @param edge the edge
+	 * @param value the value
+	 */
+	public void setValue(IEdgeExt edge, int value) {
+		int id = getId(edge);
+		if(id >= edgeValues.length){
+			edgeValues = Arrays.copyOf(edgeValues, Math.max(id + 1, edgeValues.length * 2));
+		}
+		edgeValues[id] = value;
+	}
+
+	/**
+	 * Clears the visited flags of all nodes and edges.
+	 * The marks and values are kept.
+	 */
+	public void clearVisited() {
+		visitedNodes.clear();
+		visitedEdges.clear();
+	}
+
+	/**
+	 * Clears the visited flags, the marks and
+	 * the values of all nodes and edges.
+	 */
+	public void clear() {
+		clearVisited();
+		markedNodes.clear();
+		markedEdges.clear();
+		Arrays.fill(nodeValues, 0);
+		Arrays.fill(edgeValues, 0);
+	}
+
+}
@@ -20,6 +20,7 @@ import java.util.List;
 
 import com.drgarbage.bytecode.ByteCodeConstants;
 import com.drgarbage.bytecode.ExceptionTableEntry;
+import com.drgarbage.bytecode.StackMapFrame;
 
 /**
  * Representation of a method.
@@ -49,6 +50,8 @@ public interface IMethodSection {
 	
 	/**
 	 * Returns 0-based bytecode document line number for the given source code.
+	 * If the body of the method is not rendered the first line of the method
+	 * is returned for the source code lines of the method.
 	 * @param sourceCodeLine the source code line number
 	 * @return the 0-based bytecode document line.
 	 */
@@ -112,6 +115,15 @@ public interface IMethodSection {
 	 */
 	public boolean hasCode();
 	
+	/**
+	 * Returns true if the instructions of the method
+	 * are rendered in the document, false if the body
+	 * of the method has not been rendered yet. Methods 
+	 * without code are always considered rendered.
+	 * @return true or false
+	 */
+	public boolean isBodyRendered();
+	
 	/**
 	 * True if the LineNumberTable is available
 	 * otherwise false.
@@ -185,6 +197,14 @@ public interface IMethodSection {
 	 * @return true or false
 	 */
 	public boolean isExceptionTableAvailable();
+
+	/**
+	 * Returns the frames of the <code>StackMapTable</code> attribute
+	 * if exists or null. The attribute is present in class files
+	 * of version 50 and above.
+	 * @return frames or null
+	 */
+	public StackMapFrame[] getStackMapTable();
 	
 
 }
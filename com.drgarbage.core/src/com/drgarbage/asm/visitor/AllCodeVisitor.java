@@ -19,22 +19,43 @@ package com.drgarbage.asm.visitor;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import com.drgarbage.asm_ext.ICodeDecodingVisitor;
 import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.ExceptionTableEntry;
 import com.drgarbage.bytecode.InstructionParser;
 import com.drgarbage.bytecode.constant_pool.AbstractConstantPoolEntry;
 import com.drgarbage.bytecode.instructions.AbstractInstruction;
+import com.drgarbage.core.AnalysisCache;
 
 /**
  * All Code Visitor class
  * @version $Revision$
  * $Id$
  */
-public class AllCodeVisitor extends AbstractCodeVisitor {
+public class AllCodeVisitor extends AbstractCodeVisitor implements ICodeDecodingVisitor {
 	private List<Map<String, Object>> instructionLists = new ArrayList<Map<String,Object>>();
 	private String name;
 	private String desc;
 	
+	/**
+	 * Creates a visitor reading the line number table.
+	 */
+	public AllCodeVisitor() {
+		super();
+	}
+	
+	/**
+	 * Creates a visitor reading the line number table
+	 * and the given attributes of the code attribute.
+	 * @param attributeNames names of the additional attributes
+	 */
+	public AllCodeVisitor(Set<String> attributeNames) {
+		super();
+		this.attributeNames.addAll(attributeNames);
+	}
+	
 	public boolean accept(String name, String desc, AbstractConstantPoolEntry[] constantPool) {
 		this.constantPool = constantPool;
 		this.name = name;
@@ -48,14 +69,35 @@ public class AllCodeVisitor extends AbstractCodeVisitor {
 		InstructionParser parser = new InstructionParser(bytes, offset, length);
 
 		List<AbstractInstruction> instructions = parser.parse();
-		parser.parseExceptionTable();
+		ExceptionTableEntry[] exceptionTable = parser.parseExceptionTable();
 		Map<String,Object> attrs = parser.parseAttributes(attributeNames, constantPool);
 		attrs.put(ByteCodeConstants.CODE, instructions);
+		attrs.put(ByteCodeConstants.EXCEPTION_TABLE, exceptionTable);
+		attrs.put(ByteCodeConstants.CODE_HASH, getCodeAttributeHash(bytes, offset));
 		attrs.put(ByteCodeConstants.NAME, name);
 		attrs.put(ByteCodeConstants.DESCRIPTOR, desc);
 		
 		instructionLists.add(attrs);
-		return true;
+		/* decoded by the InstructionParser, skip the ASM callbacks */
+		return false;
+	}
+
+	/**
+	 * Computes the content hash of the complete code attribute,
+	 * i.e. of the instructions, the exception table and the nested
+	 * attributes such as the line number table. Two methods with the
+	 * same hash have the same control flow and the same lines.
+	 * @param bytes the class file
+	 * @param codeOffset the offset of the first instruction
+	 * @return the hash
+	 */
+	private static String getCodeAttributeHash(byte[] bytes, int codeOffset) {
+		/* u4 attribute_length, u2 max_stack, u2 max_locals, u4 code_length, code[] */
+		int start = codeOffset - 8;
+		int p = codeOffset - 12;
+		int attributeLength = ((bytes[p] & 0xFF) << 24) | ((bytes[p + 1] & 0xFF) << 16)
+				| ((bytes[p + 2] & 0xFF) << 8) | (bytes[p + 3] & 0xFF);
+		return AnalysisCache.getContentHash(bytes, start, attributeLength);
 	}
 	/**
 	 * @return the instructionLists
@@ -19,6 +19,7 @@ package com.drgarbage.asm.visitor;
 import java.util.List;
 import java.util.Map;
 
+import com.drgarbage.asm_ext.ICodeDecodingVisitor;
 import com.drgarbage.bytecode.ByteCodeConstants;
 import com.drgarbage.bytecode.InstructionParser;
 import com.drgarbage.bytecode.LineNumberTableEntry;
@@ -30,7 +31,7 @@ import com.drgarbage.bytecode.instructions.AbstractInstruction;
  * @version $Revision$
  * $Id$
  */
-public class FilteringCodeVisitor extends AbstractCodeVisitor {
+public class FilteringCodeVisitor extends AbstractCodeVisitor implements ICodeDecodingVisitor {
 	private String name;
 	private String descriptor;
 	private List<AbstractInstruction> instructions;
@@ -59,7 +60,8 @@ public class FilteringCodeVisitor extends AbstractCodeVisitor {
 			lineNumberTable = (LineNumberTableEntry[]) attrs.get(ByteCodeConstants.LINE_NUMBER_TABLE);
 		}
 		
-		return true;
+		/* decoded by the InstructionParser, skip the ASM callbacks */
+		return false;
 	}
 
 	/**
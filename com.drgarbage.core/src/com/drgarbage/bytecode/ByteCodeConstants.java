@@ -538,11 +538,13 @@ public class ByteCodeConstants implements Opcodes {
 	public static final byte TAG_METHOD_TYPE = 16;
 	public static final byte TAG_INVOKE_DYNAMIC = 18;
 	public static final String COVERS_BYTES_X_TO_Y = "covers bytes {0} to {1}";
+	public static final String X_BYTES_OF_CODE_NOT_RENDERED = "{0} bytes of code, not rendered";
 	public static final String INNER_CLASS = "inner class";
 	public static final String LINE_NUMBER_TABLE = "LineNumberTable";
 	public static final String LINE_NUMBER_TABLE_NOT_AVAILABLE = "LineNumberTable not available";
 	public static final String LOCAL_VARIABLE_TABLE = "LocalVariableTable";
 	public static final String LOCAL_VARIABLE_TYPE_TABLE = "LocalVariableTypeTable";
+	public static final String STACK_MAP_TABLE = "StackMapTable";
 	public static final String EXCEPTION_TABLE = "ExceptionTable";
 	public static final String EXCEPTION_TABLE_NOT_AVAILABLE = "ExceptionTable not available";
 	public static final String EXCEPTION_TABLE_EMPTY = "ExceptionTable (empty)";
@@ -550,6 +552,7 @@ public class ByteCodeConstants implements Opcodes {
 	public static final String MAX_STACK = "max_stack";
 	public static final String MAX_LOCALS = "max_locals";
 	public static final String CODE = "Code";
+	public static final String CODE_HASH = "CodeHash";
 
 	public static final String START_PC = "start_pc";
 	public static final String END_PC = "end_pc";
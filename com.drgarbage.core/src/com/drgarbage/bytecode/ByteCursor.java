@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecode;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+  * {@link CountedDataInput} reading directly from a region of a byte
+  * array or a {@link ByteBuffer}, e.g. a memory mapped class file.
+  * The bytes are not copied, the cursor only keeps its position
+  * in the region. The byte count is the position relative to the
+  * start of the region.
+  * <br>
+  * The cursor is not thread safe. Several cursors may read
+  * the same array or buffer concurrently.
+  *
+  * @version $Revision$
+  * $Id$
+  */
+public class ByteCursor implements CountedDataInput {
+
+	/**
+	 * The bytes, big endian.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Start of the region in the {@link #buffer}.
+	 */
+	private int start;
+
+	/**
+	 * End of the region in the {@link #buffer}, exclusive.
+	 */
+	private int limit;
+
+	/**
+	 * Absolute position of the next byte to read.
+	 */
+	private int position;
+
+	/**
+	 * Creates a cursor over a region of a byte array.
+	 * @param bytes the byte array
+	 * @param offset start of the region
+	 * @param length length of the region
+	 */
+	public ByteCursor(byte[] bytes, int offset, int length) {
+		this(ByteBuffer.wrap(bytes), offset, length, false);
+	}
+
+	/**
+	 * Creates a cursor over a byte array.
+	 * @param bytes the byte array
+	 */
+	public ByteCursor(byte[] bytes) {
+		this(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Creates a cursor over a region of a buffer. The position,
+	 * the limit and the byte order of the buffer are not changed.
+	 * @param buffer the buffer
+	 * @param offset absolute start of the region in the buffer
+	 * @param length length of the region
+	 */
+	public ByteCursor(ByteBuffer buffer, int offset, int length) {
+		this(buffer, offset, length, true);
+	}
+
+	/**
+	 * Creates a cursor over the remaining bytes of a buffer.
+	 * @param buffer the buffer
+	 */
+	public ByteCursor(ByteBuffer buffer) {
+		this(buffer, buffer.position(), buffer.remaining());
+	}
+
+	private ByteCursor(ByteBuffer buffer, int offset, int length, boolean shared) {
+		super();
+		if (offset < 0 || length < 0 || offset + length > buffer.capacity()) {
+			throw new IndexOutOfBoundsException("Region " + offset + "+" + length
+					+ " exceeds the capacity " + buffer.capacity());
+		}
+
+		if (shared) {
+			/* own view, the order of the caller's buffer is not touched */
+			buffer = buffer.duplicate();
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			buffer.clear();
+		}
+
+		this.buffer = buffer;
+		this.start = offset;
+		this.limit = offset + length;
+		this.position = offset;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.drgarbage.bytecode.CountedDataInput#getByteCount()
+	 */
+	public int getByteCount() {
+		return position - start;
+	}
+
+	/**
+	 * Moves the cursor.
+	 * @param byteCount the new position relative to the start of the region
+	 */
+	public void seek(int byteCount) {
+		if (byteCount < 0 || byteCount > limit - start) {
+			throw new IndexOutOfBoundsException("Position: " + byteCount + ", Length: " + (limit - start));
+		}
+		position = start + byteCount;
+	}
+
+	/**
+	 * Returns the number of bytes between the cursor
+	 * and the end of the region.
+	 * @return number of bytes
+	 */
+	public int remaining() {
+		return limit - position;
+	}
+
+	/**
+	 * Returns the byte at the given position without moving the cursor.
+	 * @param byteCount the position relative to the start of the region
+	 * @return the unsigned byte
+	 */
+	public int peekUnsignedByte(int byteCount) {
+		return buffer.get(start + byteCount) & 0xFF;
+	}
+
+	private int advance(int n) throws EOFException {
+		int p = position;
+		if (p + n > limit) {
+			position = limit;
+			throw new EOFException();
+		}
+		position = p + n;
+		return p;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readFully(byte[])
+	 */
+	public void readFully(byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readFully(byte[], int, int)
+	 */
+	public void readFully(byte[] b, int off, int len) throws IOException {
+		int p = advance(len);
+		if (buffer.hasArray()) {
+			System.arraycopy(buffer.array(), buffer.arrayOffset() + p, b, off, len);
+		}
+		else {
+			for (int i = 0; i < len; i++) {
+				b[off + i] = buffer.get(p + i);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#skipBytes(int)
+	 */
+	public int skipBytes(int n) {
+		int skipped = Math.max(0, Math.min(n, limit - position));
+		position += skipped;
+		return skipped;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readBoolean()
+	 */
+	public boolean readBoolean() throws IOException {
+		return buffer.get(advance(1)) != 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readByte()
+	 */
+	public byte readByte() throws IOException {
+		return buffer.get(advance(1));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readUnsignedByte()
+	 */
+	public int readUnsignedByte() throws IOException {
+		return buffer.get(advance(1)) & 0xFF;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readShort()
+	 */
+	public short readShort() throws IOException {
+		return buffer.getShort(advance(2));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readUnsignedShort()
+	 */
+	public int readUnsignedShort() throws IOException {
+		return buffer.getShort(advance(2)) & 0xFFFF;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readChar()
+	 */
+	public char readChar() throws IOException {
+		return buffer.getChar(advance(2));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readInt()
+	 */
+	public int readInt() throws IOException {
+		return buffer.getInt(advance(4));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readLong()
+	 */
+	public long readLong() throws IOException {
+		return buffer.getLong(advance(8));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readFloat()
+	 */
+	public float readFloat() throws IOException {
+		return buffer.getFloat(advance(4));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readDouble()
+	 */
+	public double readDouble() throws IOException {
+		return buffer.getDouble(advance(8));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readLine()
+	 */
+	public String readLine() throws IOException {
+		if (position >= limit) {
+			return null;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		while (position < limit) {
+			int c = buffer.get(position++) & 0xFF;
+			if (c == '\n') {
+				break;
+			}
+			if (c == '\r') {
+				if (position < limit && buffer.get(position) == '\n') {
+					position++;
+				}
+				break;
+			}
+			sb.append((char) c);
+		}
+		return sb.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.DataInput#readUTF()
+	 */
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+
+}
@@ -16,10 +16,8 @@
 
 package com.drgarbage.bytecode;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import com.drgarbage.bytecode.constant_pool.AbstractConstantPoolEntry;
@@ -50,9 +48,9 @@ import com.drgarbage.bytecode.instructions.AbstractInstruction;
 public class ConstantPoolParser {
 
 	/**
-	 * The input stream
+	 * The cursor over the entries.
 	 */
-	private DataInputStream in;
+	private ByteCursor in;
 
 	/**
 	 * NUmebr of byte to read from {@link #in}.
@@ -71,21 +69,25 @@ public class ConstantPoolParser {
 	public ConstantPoolParser(byte[] code, int offset, int length) {
 		super();
 		this.length = length;
-		InputStream tmp = new ByteArrayInputStream(code);
-		if (offset != 0) {
-			/*
-			 * only risk that the stream does not support seek if there is
-			 * something to skip
-			 */
-			try {
-				/* skip the bytes we do not want to count */
-				tmp.skip(offset);
-			} catch (IOException e) {
-				/* should not happen with ByteArrayInputStream */
-				throw new RuntimeException(e);
-			}
-		}
-		in = new DataInputStream(tmp);
+		in = new ByteCursor(code, offset, code.length - offset);
+	}
+
+	/**
+	 * Creates a parser reading directly from the buffer,
+	 * e.g. from a memory mapped class file.
+	 * 
+	 * @param buffer
+	 *            the buffer containing the class file.
+	 * @param offset
+	 *            absolute position in the buffer where the parsing should
+	 *            start.
+	 * @param length
+	 *            number of entries to parse.
+	 */
+	public ConstantPoolParser(ByteBuffer buffer, int offset, int length) {
+		super();
+		this.length = length;
+		in = new ByteCursor(buffer, offset, buffer.limit() - offset);
 	}
 
 	/**
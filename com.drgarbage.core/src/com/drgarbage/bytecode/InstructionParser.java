@@ -16,12 +16,9 @@
 
 package com.drgarbage.bytecode;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -58,9 +55,9 @@ import com.drgarbage.bytecode.instructions.XLoadStoreNInstruction.XStoreNInstruc
 public class InstructionParser implements Opcodes {
 
     /**
-	 * The input stream
+	 * The cursor over the code and the rest of the code attribute.
 	 */
-	private CountedDataInputStream in;
+	private ByteCursor in;
 	
 	/**
 	 * NUmebr of byte to read from {@link #in}. 
@@ -68,7 +65,7 @@ public class InstructionParser implements Opcodes {
 	private int length;
 	private int offset;
 	
-	private byte[] code;
+	private ByteBuffer code;
 	
 	/**
 	 * @param code a byte array containing instruction.
@@ -76,22 +73,24 @@ public class InstructionParser implements Opcodes {
 	 * @param length number of byte to parse.
 	 */
 	public InstructionParser(byte[] code, int offset, int length) {
+		this(ByteBuffer.wrap(code), offset, length);
+	}
+	
+	/**
+	 * Creates a parser reading directly from the buffer, e.g. from
+	 * a memory mapped class file. The exception table and the attributes
+	 * of the code attribute are read behind the code up to the limit
+	 * of the buffer.
+	 * @param code a buffer containing instruction.
+	 * @param offset absolute position in the buffer where the parsing should start.
+	 * @param length number of byte to parse.
+	 */
+	public InstructionParser(ByteBuffer code, int offset, int length) {
 		super();
 		this.length = length;
 		this.code = code;
 		this.offset = offset;
-		InputStream tmp = new ByteArrayInputStream(code);
-		if (offset != 0) {
-			/* only risk that the stream does not support seek if there is something to skip */
-			try {
-				/* skip the bytes we do not want to count */
-				tmp.skip(offset);
-			} catch (IOException e) {
-				/* should not happen with ByteArrayInputStream */
-				throw new RuntimeException(e);
-			}
-		}
-		in = new CountedDataInputStream(tmp);
+		in = new ByteCursor(code, offset, code.limit() - offset);
 	}
 	
 	/**
@@ -103,7 +102,7 @@ public class InstructionParser implements Opcodes {
 	
     public Map<String, Object> parseAttributes(Set<String> attributeNames, AbstractConstantPoolEntry[] constantPool) {
 		HashMap<String, Object> result = new HashMap<String, Object>();
-        if (in.getByteCount() < code.length - offset) {
+        if (in.remaining() > 0) {
         	/* there is still something to read in the code array */
         	try {
     			int attrCount = in.readUnsignedShort();
@@ -125,6 +124,19 @@ public class InstructionParser implements Opcodes {
     					else if (attrName.equals(ByteCodeConstants.LOCAL_VARIABLE_TYPE_TABLE)) {
     						result.put(attrName, parseLocalVariableTypeTable(constantPool));
     					}
+    					else if (attrName.equals(ByteCodeConstants.STACK_MAP_TABLE)) {
+    						int start = in.getByteCount();
+    						try {
+    							result.put(attrName, parseStackMapTable());
+    						} catch (IOException e) {
+    							/* 
+    							 * invalid frame, the frames are dropped and the 
+    							 * analysis is done without them 
+    							 */
+    							in.seek(start);
+    							in.skipBytes(attrLen);
+    						}
+    					}
     					
     					attrsRead++;
     					if (attrsRead == attributeNames.size()) {
@@ -147,7 +159,7 @@ public class InstructionParser implements Opcodes {
     }
     
     private LocalVariableTableEntry[] parseLocalVariableTable(AbstractConstantPoolEntry[] constantPool, LocalVariableTableEntry[] result) throws IOException {
-        if (in.getByteCount() < code.length - offset) {
+        if (in.remaining() > 0) {
         	int len = in.readUnsignedShort();
     		int j = 0;
     		if (result == null) {
@@ -169,7 +181,7 @@ public class InstructionParser implements Opcodes {
         return result;
 	}
     private Object parseLocalVariableTypeTable(AbstractConstantPoolEntry[] constantPool) throws IOException {
-        if (in.getByteCount() < code.length - offset) {
+        if (in.remaining() > 0) {
     		int len = in.readUnsignedShort();
     		LocalVariableTypeTableEntry[] result = new LocalVariableTypeTableEntry[len];
     		for (int j = 0; j < len; j++) {
@@ -184,8 +196,21 @@ public class InstructionParser implements Opcodes {
         }
 	}
 
+	private StackMapFrame[] parseStackMapTable() throws IOException {
+		int len = in.readUnsignedShort();
+		StackMapFrame[] result = new StackMapFrame[len];
+		StackMapFrame previous = null;
+		for (int j = 0; j < len; j++) {
+			StackMapFrame frame = new StackMapFrame();
+			frame.read(in, previous);
+			result[j] = frame;
+			previous = frame;
+		}
+		return result;
+	}
+
 	private LineNumberTableEntry[] parseLineNumberTable(AbstractConstantPoolEntry[] constantPool) throws IOException {
-        if (in.getByteCount() < code.length - offset) {
+        if (in.remaining() > 0) {
     		int len = in.readUnsignedShort();
         	LineNumberTableEntry[] result = new LineNumberTableEntry[len];
     		for (int j = 0; j < len; j++) {
@@ -200,9 +225,25 @@ public class InstructionParser implements Opcodes {
         }
     }
 	
+    /**
+     * Moves the input behind the code and the exception table 
+     * without decoding them. The attributes of the code follow.
+     */
+    public void skipCode() {
+    	in.skipBytes(length);
+    	if (in.remaining() > 0) {
+    		try {
+    			/* an entry of the exception table has 8 bytes */
+    			in.skipBytes(in.readUnsignedShort() * 8);
+    		} catch (IOException e) {
+    			throw new RuntimeException(e);
+    		}
+    	}
+    }
+
     public ExceptionTableEntry[] parseExceptionTable() {
         ExceptionTableEntry[] result = null;
-        if (in.getByteCount() < code.length - offset) {
+        if (in.remaining() > 0) {
         	/* only if there is something to read */
     		try {
     			int len = in.readUnsignedShort();
@@ -221,23 +262,19 @@ public class InstructionParser implements Opcodes {
 
     
     /**
-        Parses the underlying byte array int a {@link List} of {@link AbstractInstruction}s.
+        Parses the underlying byte array into an {@link InstructionStream}.
+        The instruction objects are created lazily on the first access.
         @return the <code>java.util.List</code> with the instructions
      */
-    public List<AbstractInstruction> parse() {
-   
-        List<AbstractInstruction> instructions = new LinkedList<AbstractInstruction>();
-        
-        boolean wide = false;
-        AbstractInstruction currentInstruction;
+    public InstructionStream parse() {
+        InstructionStream instructions;
         try {
-			while (in.getByteCount() < length) {
-			    currentInstruction = parseNextInstruction(wide);
-			    wide = (currentInstruction.getOpcode() == OPCODE_WIDE);
-			    instructions.add(currentInstruction);
-			}
+        	instructions = new InstructionStream(code, offset, length);
+        	
+        	/* move the input behind the code, the exception table follows */
+        	in.skipBytes(length);
 		} catch (IOException e) {
-			/* should not happen with ByteArrayInputStream */
+			/* invalid opcode */
 			throw new RuntimeException(e);
 		}
         
@@ -246,6 +283,18 @@ public class InstructionParser implements Opcodes {
     
     protected AbstractInstruction parseNextInstruction(boolean wide)
         throws IOException {
+    	return readInstruction(in, wide);
+    }
+    
+    /**
+        Reads the next instruction from the given input.
+        @param in the input positioned at the opcode of the instruction
+        @param wide <code>true</code> if the previous instruction was <code>wide</code>
+        @return the instruction
+        @throws IOException if the opcode is invalid
+     */
+    static AbstractInstruction readInstruction(CountedDataInput in, boolean wide)
+        throws IOException {
     	
         AbstractInstruction instruction;
 
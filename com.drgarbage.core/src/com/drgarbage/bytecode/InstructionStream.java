@@ -0,0 +1,375 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import com.drgarbage.bytecode.instructions.AbstractInstruction;
+import com.drgarbage.bytecode.instructions.Opcodes;
+
+/**
+ * Compact random access representation of the instructions of a method.
+ * The offsets and the opcodes are stored in parallel <code>int</code>
+ * arrays, the {@link AbstractInstruction} objects are created lazily
+ * on the first access through {@link #get(int)}.
+ * <br>
+ * The stream implements the {@link java.util.List} interface,
+ * so that it can be passed to all methods expecting an instruction list.
+ * The list is read only.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class InstructionStream extends AbstractList<AbstractInstruction>
+	implements RandomAccess, Opcodes {
+
+	/**
+	 * The bytes containing the code, big endian.
+	 */
+	private ByteBuffer code;
+
+	/**
+	 * Start of the code in the array {@link #code}.
+	 */
+	private int codeOffset;
+
+	/**
+	 * Length of the code in bytes.
+	 */
+	private int codeLength;
+
+	/**
+	 * Number of instructions.
+	 */
+	private int size;
+
+	/**
+	 * Offsets of the instructions relative to the start of the code.
+	 */
+	private int[] offsets;
+
+	/**
+	 * Opcodes of the instructions.
+	 */
+	private int[] opcodes;
+
+	/**
+	 * Maps an offset to the index of the instruction starting
+	 * at this offset or -1 if no instruction starts there.
+	 */
+	private int[] offsetIndex;
+
+	/**
+	 * Instruction objects created so far.
+	 */
+	private AbstractInstruction[] instructions;
+
+	/**
+	 * Scans the code and creates the instruction stream.
+	 * @param code a byte array containing instructions.
+	 * @param codeOffset number of bytes from the beginning of the byte-array where the code starts.
+	 * @param codeLength number of bytes of the code.
+	 * @throws IOException if the code contains an invalid opcode
+	 *          or the last instruction is truncated
+	 */
+	public InstructionStream(byte[] code, int codeOffset, int codeLength) throws IOException {
+		this(ByteBuffer.wrap(code), codeOffset, codeLength);
+	}
+
+	/**
+	 * Scans the code and creates the instruction stream. The bytes
+	 * are not copied, the buffer may be a memory mapped class file.
+	 * The position, the limit and the byte order of the buffer are not changed.
+	 * @param code a buffer containing instructions.
+	 * @param codeOffset absolute position in the buffer where the code starts.
+	 * @param codeLength number of bytes of the code.
+	 * @throws IOException if the code contains an invalid opcode
+	 *          or the last instruction is truncated
+	 */
+	public InstructionStream(ByteBuffer code, int codeOffset, int codeLength) throws IOException {
+		super();
+		this.code = code.duplicate().order(ByteOrder.BIG_ENDIAN);
+		this.codeOffset = codeOffset;
+		this.codeLength = codeLength;
+
+		/* at most one instruction per byte */
+		int[] offs = new int[codeLength];
+		int[] ops = new int[codeLength];
+		offsetIndex = new int[codeLength];
+		Arrays.fill(offsetIndex, -1);
+
+		int pc = 0;
+		int n = 0;
+		boolean wide = false;
+		while (pc < codeLength) {
+			int opcode = code.get(codeOffset + pc) & 0xFF;
+			offs[n] = pc;
+			ops[n] = opcode;
+			offsetIndex[pc] = n;
+			n++;
+
+			pc += getInstructionLength(opcode, pc, wide);
+			wide = (opcode == OPCODE_WIDE);
+		}
+
+		if (pc > codeLength) {
+			throw new IOException("truncated instruction at offset " + offs[n - 1]);
+		}
+
+		size = n;
+		if (n == codeLength) {
+			offsets = offs;
+			opcodes = ops;
+		}
+		else {
+			offsets = new int[n];
+			opcodes = new int[n];
+			System.arraycopy(offs, 0, offsets, 0, n);
+			System.arraycopy(ops, 0, opcodes, 0, n);
+		}
+		instructions = new AbstractInstruction[n];
+	}
+
+	/**
+	 * Returns the length of the instruction in bytes including the opcode.
+	 * The operand length of an instruction prefixed by a <code>wide</code>
+	 * instruction is computed the same way as {@link InstructionParser} does it.
+	 *
+	 * @param opcode the opcode
+	 * @param pc offset of the instruction relative to the start of the code
+	 * @param wide <code>true</code> if the previous instruction is <code>wide</code>
+	 * @return the length in bytes
+	 * @throws IOException if the opcode is invalid or the
+	 *          operands of a switch are out of the code
+	 */
+	private int getInstructionLength(int opcode, int pc, boolean wide) throws IOException {
+		switch (opcode) {
+		case OPCODE_BIPUSH:
+		case OPCODE_LDC:
+		case OPCODE_NEWARRAY:
+		case OPCODE_ILOAD:
+		case OPCODE_LLOAD:
+		case OPCODE_FLOAD:
+		case OPCODE_DLOAD:
+		case OPCODE_ALOAD:
+		case OPCODE_ISTORE:
+		case OPCODE_LSTORE:
+		case OPCODE_FSTORE:
+		case OPCODE_DSTORE:
+		case OPCODE_ASTORE:
+		case OPCODE_RET:
+			return wide ? 3 : 2;
+
+		case OPCODE_IINC:
+			return wide ? 5 : 3;
+
+		case OPCODE_SIPUSH:
+		case OPCODE_LDC_W:
+		case OPCODE_LDC2_W:
+		case OPCODE_IFEQ:
+		case OPCODE_IFNE:
+		case OPCODE_IFLT:
+		case OPCODE_IFGE:
+		case OPCODE_IFGT:
+		case OPCODE_IFLE:
+		case OPCODE_IF_ICMPEQ:
+		case OPCODE_IF_ICMPNE:
+		case OPCODE_IF_ICMPLT:
+		case OPCODE_IF_ICMPGE:
+		case OPCODE_IF_ICMPGT:
+		case OPCODE_IF_ICMPLE:
+		case OPCODE_IF_ACMPEQ:
+		case OPCODE_IF_ACMPNE:
+		case OPCODE_GOTO:
+		case OPCODE_JSR:
+		case OPCODE_IFNULL:
+		case OPCODE_IFNONNULL:
+		case OPCODE_GETSTATIC:
+		case OPCODE_PUTSTATIC:
+		case OPCODE_GETFIELD:
+		case OPCODE_PUTFIELD:
+		case OPCODE_INVOKEVIRTUAL:
+		case OPCODE_INVOKESPECIAL:
+		case OPCODE_INVOKESTATIC:
+		case OPCODE_NEW:
+		case OPCODE_ANEWARRAY:
+		case OPCODE_CHECKCAST:
+		case OPCODE_INSTANCEOF:
+			return 3;
+
+		case OPCODE_MULTIANEWARRAY:
+			return 4;
+
+		case OPCODE_GOTO_W:
+		case OPCODE_JSR_W:
+		case OPCODE_INVOKEINTERFACE:
+		case OPCODE_INVOKEDYNAMIC:
+			return 5;
+
+		case OPCODE_TABLESWITCH: {
+			int p = align(pc + 1);
+			int low = readInt(p + 4);
+			int high = readInt(p + 8);
+			if (high < low || (long) high - low >= codeLength) {
+				throw new IOException("invalid tableswitch at offset " + pc);
+			}
+			return p + 12 + 4 * (high - low + 1) - pc;
+		}
+
+		case OPCODE_LOOKUPSWITCH: {
+			int p = align(pc + 1);
+			int npairs = readInt(p + 4);
+			if (npairs < 0 || npairs > codeLength) {
+				throw new IOException("invalid lookupswitch at offset " + pc);
+			}
+			return p + 8 + 8 * npairs - pc;
+		}
+
+		default:
+			if (ByteCodeConstants.OPCODE_MNEMONICS[opcode] == null) {
+				throw new IOException("invalid opcode 0x" + Integer.toHexString(opcode));
+			}
+			return 1;
+		}
+	}
+
+	/**
+	 * Returns the next offset aligned to four bytes.
+	 * @param pc the offset
+	 * @return the aligned offset
+	 */
+	private static int align(int pc) {
+		return (pc + 3) & ~3;
+	}
+
+	/**
+	 * Reads a big endian int at the given offset of the code.
+	 * @param pc the offset relative to the start of the code
+	 * @return the value
+	 * @throws IOException if the int is not within the code
+	 */
+	private int readInt(int pc) throws IOException {
+		if (pc + 4 > codeLength) {
+			throw new IOException("truncated switch operands at offset " + pc);
+		}
+		return code.getInt(codeOffset + pc);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	public AbstractInstruction get(int index) {
+		AbstractInstruction instruction = instructions[index];
+		if (instruction == null) {
+			instruction = decode(index);
+			instructions[index] = instruction;
+		}
+		return instruction;
+	}
+
+	/**
+	 * Creates the instruction object for the given index.
+	 * @param index the index of the instruction
+	 * @return the instruction
+	 */
+	private AbstractInstruction decode(int index) {
+		/* the byte count of the cursor is the offset in the code */
+		ByteCursor in = new ByteCursor(code, codeOffset, codeLength);
+		in.seek(offsets[index]);
+		try {
+			boolean wide = index > 0 && opcodes[index - 1] == OPCODE_WIDE;
+			return InstructionParser.readInstruction(in, wide);
+		} catch (IOException e) {
+			/* the code has been scanned in the constructor */
+			throw new RuntimeException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the offset of the instruction at the given index
+	 * without creating the instruction object.
+	 * @param index the index of the instruction
+	 * @return the offset
+	 */
+	public int getOffset(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return offsets[index];
+	}
+
+	/**
+	 * Returns the opcode of the instruction at the given index
+	 * without creating the instruction object.
+	 * @param index the index of the instruction
+	 * @return the opcode
+	 */
+	public int getOpcode(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return opcodes[index];
+	}
+
+	/**
+	 * Returns the index of the instruction starting at the given offset.
+	 * @param offset the offset relative to the start of the code
+	 * @return the index or -1 if no instruction starts at the offset
+	 */
+	public int getIndex(int offset) {
+		if (offset < 0 || offset >= codeLength) {
+			return -1;
+		}
+		return offsetIndex[offset];
+	}
+
+	/**
+	 * Returns the instruction starting at the given offset.
+	 * @param offset the offset relative to the start of the code
+	 * @return the instruction or <code>null</code> if no instruction starts at the offset
+	 */
+	public AbstractInstruction getInstructionAt(int offset) {
+		int index = getIndex(offset);
+		if (index < 0) {
+			return null;
+		}
+		return get(index);
+	}
+
+	/**
+	 * Returns the length of the code in bytes.
+	 * @return the code length
+	 */
+	public int getCodeLength() {
+		return codeLength;
+	}
+
+}
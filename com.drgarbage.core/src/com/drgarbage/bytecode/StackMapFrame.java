@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecode;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+import com.drgarbage.bytecode.constant_pool.AbstractConstantPoolEntry;
+import com.drgarbage.bytecode.constant_pool.ConstantClassInfo;
+
+/**
+  * Describes a frame in a <code>StackMapTable</code> attribute structure.
+  * The offsets of the frames are stored as absolute bytecode offsets.
+  * The locals are stored as declared in the attribute, the operand
+  * stack of a frame is always complete.
+  *
+  * @version $Revision$
+  * $Id$
+  */
+public class StackMapFrame {
+
+	/* frame types */
+	public static final int SAME = 0;
+	public static final int SAME_LOCALS_1_STACK_ITEM = 64;
+	public static final int SAME_LOCALS_1_STACK_ITEM_EXTENDED = 247;
+	public static final int CHOP = 248;
+	public static final int SAME_FRAME_EXTENDED = 251;
+	public static final int APPEND = 252;
+	public static final int FULL_FRAME = 255;
+
+	/* verification type tags */
+	public static final int ITEM_TOP = 0;
+	public static final int ITEM_INTEGER = 1;
+	public static final int ITEM_FLOAT = 2;
+	public static final int ITEM_DOUBLE = 3;
+	public static final int ITEM_LONG = 4;
+	public static final int ITEM_NULL = 5;
+	public static final int ITEM_UNINITIALIZED_THIS = 6;
+	public static final int ITEM_OBJECT = 7;
+	public static final int ITEM_UNINITIALIZED = 8;
+
+	private static final VerificationTypeInfo[] EMPTY = new VerificationTypeInfo[0];
+
+	private int frameType;
+	private int offset;
+	private int choppedLocals;
+	private VerificationTypeInfo[] locals = EMPTY;
+	private VerificationTypeInfo[] stack = EMPTY;
+
+	/**
+	 * Describes a <code>verification_type_info</code> structure.
+	 */
+	public static class VerificationTypeInfo {
+
+		private int tag;
+
+		/**
+		 * The constant pool index of the class for <code>ITEM_OBJECT</code>
+		 * or the offset of the <code>new</code> instruction
+		 * for <code>ITEM_UNINITIALIZED</code>.
+		 */
+		private int index;
+
+		/**
+		 * Get the tag of this verification type.
+		 *
+		 * @return one of the <code>ITEM_</code> constants
+		 */
+		public int getTag() {
+			return tag;
+		}
+
+		/**
+		 * Get the constant pool index or the offset of this verification type.
+		 *
+		 * @return the index or the offset
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Returns <code>true</code> if the type occupies two
+		 * slots, i.e. it is a <code>long</code> or a <code>double</code>.
+		 *
+		 * @return <code>true</code> or <code>false</code>
+		 */
+		public boolean isCategory2() {
+			return tag == ITEM_LONG || tag == ITEM_DOUBLE;
+		}
+
+		/**
+		 * Returns the type as a field descriptor character, i.e.
+		 * <code>I</code>, <code>F</code>, <code>J</code>, <code>D</code>,
+		 * <code>L</code> for references and <code>?</code> for <code>top</code>.
+		 *
+		 * @return the type character
+		 */
+		public char getDescriptorType() {
+			switch (tag) {
+			case ITEM_INTEGER:
+				return ByteCodeConstants.I_INT;
+			case ITEM_FLOAT:
+				return ByteCodeConstants.F_FLOAT;
+			case ITEM_DOUBLE:
+				return ByteCodeConstants.D_DOUBLE;
+			case ITEM_LONG:
+				return ByteCodeConstants.J_LONG;
+			case ITEM_NULL:
+			case ITEM_UNINITIALIZED_THIS:
+			case ITEM_OBJECT:
+			case ITEM_UNINITIALIZED:
+				return ByteCodeConstants.L_REFERENCE;
+			default:
+				return '?';
+			}
+		}
+
+		/**
+		 * Returns a readable name of the type, e.g. <code>int</code>
+		 * or <code>java.lang.String</code>.
+		 *
+		 * @param constantPool the constant pool of the class
+		 * @return the name
+		 */
+		public String toString(AbstractConstantPoolEntry[] constantPool) {
+			switch (tag) {
+			case ITEM_TOP:
+				return "top";
+			case ITEM_INTEGER:
+				return "int";
+			case ITEM_FLOAT:
+				return "float";
+			case ITEM_DOUBLE:
+				return "double";
+			case ITEM_LONG:
+				return "long";
+			case ITEM_NULL:
+				return "null";
+			case ITEM_UNINITIALIZED_THIS:
+				return "uninitializedThis";
+			case ITEM_OBJECT:
+				if (constantPool != null && index < constantPool.length
+						&& constantPool[index] instanceof ConstantClassInfo) {
+					return ((ConstantClassInfo) constantPool[index]).getName()
+						.replace(ByteCodeConstants.CLASS_NAME_SLASH, '.');
+				}
+				return "#" + index;
+			case ITEM_UNINITIALIZED:
+				return "uninitialized(" + index + ")";
+			default:
+				return "?";
+			}
+		}
+
+		public void read(DataInput in) throws IOException {
+			tag = in.readUnsignedByte();
+			if (tag == ITEM_OBJECT || tag == ITEM_UNINITIALIZED) {
+				index = in.readUnsignedShort();
+			}
+		}
+	}
+
+	/**
+	 * Get the frame type, one of the frame type constants. For the ranges
+	 * <code>SAME</code>, <code>SAME_LOCALS_1_STACK_ITEM</code>,
+	 * <code>CHOP</code> and <code>APPEND</code> the lower bound is returned.
+	 *
+	 * @return the frame type
+	 */
+	public int getFrameType() {
+		return frameType;
+	}
+
+	/**
+	 * Get the bytecode offset of this frame.
+	 *
+	 * @return the offset
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Get the number of locals removed by a <code>CHOP</code> frame.
+	 *
+	 * @return the number of locals
+	 */
+	public int getChoppedLocals() {
+		return choppedLocals;
+	}
+
+	/**
+	 * Get the locals appended by an <code>APPEND</code> frame
+	 * or all locals of a <code>FULL_FRAME</code>.
+	 *
+	 * @return the locals
+	 */
+	public VerificationTypeInfo[] getLocals() {
+		return locals;
+	}
+
+	/**
+	 * Get the types on the operand stack. The first element
+	 * is the bottom of the stack.
+	 *
+	 * @return the stack
+	 */
+	public VerificationTypeInfo[] getStack() {
+		return stack;
+	}
+
+	/**
+	 * Reads the frame.
+	 *
+	 * @param in the input
+	 * @param previous the previous frame or <code>null</code> for the first frame
+	 * @throws IOException
+	 */
+	public void read(DataInput in, StackMapFrame previous) throws IOException {
+		int type = in.readUnsignedByte();
+		int offsetDelta;
+
+		if (type < SAME_LOCALS_1_STACK_ITEM) {
+			frameType = SAME;
+			offsetDelta = type;
+		}
+		else if (type < 128) {
+			frameType = SAME_LOCALS_1_STACK_ITEM;
+			offsetDelta = type - SAME_LOCALS_1_STACK_ITEM;
+			stack = readTypes(in, 1);
+		}
+		else if (type < SAME_LOCALS_1_STACK_ITEM_EXTENDED) {
+			throw new IOException("Reserved stack map frame type " + type);
+		}
+		else if (type == SAME_LOCALS_1_STACK_ITEM_EXTENDED) {
+			frameType = SAME_LOCALS_1_STACK_ITEM_EXTENDED;
+			offsetDelta = in.readUnsignedShort();
+			stack = readTypes(in, 1);
+		}
+		else if (type < SAME_FRAME_EXTENDED) {
+			frameType = CHOP;
+			offsetDelta = in.readUnsignedShort();
+			choppedLocals = SAME_FRAME_EXTENDED - type;
+		}
+		else if (type == SAME_FRAME_EXTENDED) {
+			frameType = SAME_FRAME_EXTENDED;
+			offsetDelta = in.readUnsignedShort();
+		}
+		else if (type < FULL_FRAME) {
+			frameType = APPEND;
+			offsetDelta = in.readUnsignedShort();
+			locals = readTypes(in, type - SAME_FRAME_EXTENDED);
+		}
+		else {
+			frameType = FULL_FRAME;
+			offsetDelta = in.readUnsignedShort();
+			locals = readTypes(in, in.readUnsignedShort());
+			stack = readTypes(in, in.readUnsignedShort());
+		}
+
+		offset = (previous == null) ? offsetDelta : previous.offset + offsetDelta + 1;
+	}
+
+	private static VerificationTypeInfo[] readTypes(DataInput in, int count) throws IOException {
+		VerificationTypeInfo[] types = new VerificationTypeInfo[count];
+		for (int i = 0; i < count; i++) {
+			types[i] = new VerificationTypeInfo();
+			types[i].read(in);
+		}
+		return types;
+	}
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecode.compare;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+import com.drgarbage.bytecode.compare.ClassDifference.MemberDifference;
+
+/**
+ * Command line comparison of two jar files or directories. The classes
+ * are compared structurally by the {@link ClassComparator}, one line is
+ * printed for each class which is not identical, followed by the changed,
+ * added and removed members.
+ * <br>
+ * The comparison runs without workbench, only the jars of the core and
+ * of the asm plugin have to be on the class path.
+ * <pre>
+ * BatchClassCompare [options] &lt;jar or directory&gt; &lt;jar or directory&gt;
+ *   -threads n   number of worker threads
+ *   -summary     print only the summary of each class
+ * </pre>
+ * The exit code is 0 if all classes are identical and 2 if
+ * differences have been found.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class BatchClassCompare {
+
+	private static final String USAGE =
+		"Usage: BatchClassCompare [options] <jar or directory> <jar or directory>\n" //$NON-NLS-1$
+		+ "  -threads n   number of worker threads\n" //$NON-NLS-1$
+		+ "  -summary     print only the summary of each class"; //$NON-NLS-1$
+
+	/**
+	 * Prints the differences of the classes.
+	 * @param differences the differences returned by
+	 *         {@link ClassComparator#compare(File, File)}
+	 * @param out the output stream
+	 * @param members <code>true</code> if the member differences
+	 *         have to be printed
+	 */
+	public static void print(List<ClassDifference> differences, PrintStream out, boolean members) {
+		for (ClassDifference diff : differences) {
+			out.println(diff);
+			if (!members) {
+				continue;
+			}
+
+			for (MemberDifference m : diff.getMemberDifferences()) {
+				out.print("  "); //$NON-NLS-1$
+				out.println(m);
+			}
+		}
+	}
+
+	/**
+	 * Runs the comparison.
+	 * @param args see the class comment
+	 */
+	public static void main(String[] args) {
+		ClassComparator comparator = new ClassComparator();
+		boolean members = true;
+		File left = null;
+		File right = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (arg.equals("-threads")) { //$NON-NLS-1$
+					comparator.setThreads(Integer.parseInt(args[++i]));
+				}
+				else if (arg.equals("-summary")) { //$NON-NLS-1$
+					members = false;
+				}
+				else if (arg.startsWith("-")) { //$NON-NLS-1$
+					throw new IllegalArgumentException("Unknown option " + arg); //$NON-NLS-1$
+				}
+				else if (left == null) {
+					left = new File(arg);
+				}
+				else if (right == null) {
+					right = new File(arg);
+				}
+				else {
+					throw new IllegalArgumentException("Unexpected argument " + arg); //$NON-NLS-1$
+				}
+			}
+
+			if (left == null || right == null) {
+				throw new IllegalArgumentException("Two jar files or directories have to be specified."); //$NON-NLS-1$
+			}
+
+			if (!left.exists()) {
+				throw new IllegalArgumentException(left + " does not exist."); //$NON-NLS-1$
+			}
+
+			if (!right.exists()) {
+				throw new IllegalArgumentException(right + " does not exist."); //$NON-NLS-1$
+			}
+		} catch (RuntimeException e) {
+			/* IllegalArgumentException, NumberFormatException or missing option value */
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+		}
+
+		try {
+			List<ClassDifference> differences = comparator.compare(left, right);
+			print(differences, System.out, members);
+			System.exit(differences.isEmpty() ? 0 : 2);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.exit(1);
+		}
+	}
+}
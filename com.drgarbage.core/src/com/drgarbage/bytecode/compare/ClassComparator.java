@@ -0,0 +1,442 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecode.compare;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.drgarbage.asm.ClassReader;
+import com.drgarbage.bytecode.compare.ClassDifference.MemberDifference;
+import com.drgarbage.bytecode.compare.ClassFingerprint.Member;
+import com.drgarbage.bytecode.instructions.AbstractInstruction;
+import com.drgarbage.controlflowgraph.ControlFlowGraphException;
+import com.drgarbage.controlflowgraph.ControlFlowGraphGenerator;
+import com.drgarbage.controlflowgraph.intf.IBasicBlock;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
+import com.drgarbage.controlflowgraph.intf.INodeListExt;
+import com.drgarbage.io.IoUtils;
+
+/**
+ * Structural comparator of class files. The members of both versions
+ * are matched by their names and descriptors and compared by the hashes
+ * of their normalized bytecode (see {@link ClassFingerprint}), so that
+ * the identical members are found in linear time. Only for the changed
+ * methods the basic block graphs are generated and compared.
+ * <br>
+ * Two jar files or directories are compared class by class by a pool
+ * of worker threads. Classes with the same bytes are not parsed.
+ * The comparator does not depend on the workbench, see 
+ * {@link BatchClassCompare} for the command line.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ClassComparator {
+
+	/**
+	 * Extension of the class files.
+	 */
+	private static final String CLASS_FILE_EXTENSION = ".class";
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Sets the number of worker threads used to compare
+	 * jar files or directories.
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Invalid number of threads: " + threads); //$NON-NLS-1$
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Compares two versions of a class file.
+	 * @param left the left class file
+	 * @param right the right class file
+	 * @return the difference
+	 * @throws IllegalArgumentException if a class file is not valid
+	 */
+	public ClassDifference compare(byte[] left, byte[] right) {
+		if (Arrays.equals(left, right)) {
+			/* only the header of the class is read */
+			String name = new ClassReader(left).getClassName();
+			return new ClassDifference(name.replace('/', '.'), ClassDifference.KIND_IDENTICAL);
+		}
+
+		return compare(ClassFingerprint.create(left), ClassFingerprint.create(right));
+	}
+
+	/**
+	 * Compares the fingerprints of two versions of a class.
+	 * @param left the left class
+	 * @param right the right class
+	 * @return the difference
+	 */
+	public ClassDifference compare(ClassFingerprint left, ClassFingerprint right) {
+		ClassDifference diff = new ClassDifference(left.getClassName().replace('/', '.'),
+				ClassDifference.KIND_IDENTICAL);
+		diff.setHeaderChanged(!left.getHeaderHash().equals(right.getHeaderHash())
+				|| !left.getClassName().equals(right.getClassName()));
+
+		int identical = 0;
+		for (Member l : left.getMembers()) {
+			Member r = right.getMember(l.getKey());
+			if (r == null) {
+				diff.getMemberDifferences().add(new MemberDifference(ClassDifference.KIND_REMOVED,
+						l.getMemberType(), l.getName(), l.getDescriptor()));
+			}
+			else if (l.getHash().equals(r.getHash())) {
+				identical++;
+			}
+			else {
+				MemberDifference m = new MemberDifference(ClassDifference.KIND_CHANGED,
+						l.getMemberType(), l.getName(), l.getDescriptor());
+				compareBasicBlocks(l, r, m);
+				diff.getMemberDifferences().add(m);
+			}
+		}
+
+		for (Member r : right.getMembers()) {
+			if (left.getMember(r.getKey()) == null) {
+				diff.getMemberDifferences().add(new MemberDifference(ClassDifference.KIND_ADDED,
+						r.getMemberType(), r.getName(), r.getDescriptor()));
+			}
+		}
+
+		diff.setIdenticalMembers(identical);
+		if (diff.isHeaderChanged() || !diff.getMemberDifferences().isEmpty()) {
+			diff.setKind(ClassDifference.KIND_CHANGED);
+		}
+
+		return diff;
+	}
+
+	/**
+	 * Compares the basic block graphs of two versions of a method.
+	 * The blocks are compared by their normalized instructions and
+	 * the labels of their outgoing edges. The result is stored in
+	 * the member difference.
+	 * @param left the left method
+	 * @param right the right method
+	 * @param diff the member difference
+	 */
+	private static void compareBasicBlocks(Member left, Member right, MemberDifference diff) {
+		if (left.getInstructions() == null || right.getInstructions() == null) {
+			return;
+		}
+
+		List<String> leftBlocks;
+		List<String> rightBlocks;
+		try {
+			leftBlocks = getBasicBlocks(left);
+			rightBlocks = getBasicBlocks(right);
+		} catch (ControlFlowGraphException e) {
+			/* the methods are reported as changed without the block statistics */
+			return;
+		} catch (IOException e) {
+			return;
+		}
+
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (String s : leftBlocks) {
+			Integer c = counts.get(s);
+			counts.put(s, Integer.valueOf(c == null ? 1 : c.intValue() + 1));
+		}
+
+		int common = 0;
+		for (String s : rightBlocks) {
+			Integer c = counts.get(s);
+			if (c != null && c.intValue() > 0) {
+				counts.put(s, Integer.valueOf(c.intValue() - 1));
+				common++;
+			}
+		}
+
+		diff.setBlocks(leftBlocks.size(), rightBlocks.size(), common);
+	}
+
+	/**
+	 * Returns the signatures of the basic blocks of a method.
+	 * @param m the method
+	 * @return the list of signatures
+	 * @throws ControlFlowGraphException
+	 * @throws IOException
+	 */
+	private static List<String> getBasicBlocks(Member m)
+	throws ControlFlowGraphException, IOException {
+		List<AbstractInstruction> instructions = m.getInstructions();
+		String[] operations = m.getOperations();
+		Map<Integer, String> operationsByOffset = new HashMap<Integer, String>();
+		for (int i = 0; i < instructions.size(); i++) {
+			operationsByOffset.put(Integer.valueOf(instructions.get(i).getOffset()), operations[i]);
+		}
+
+		IDirectedGraphExt graph = ControlFlowGraphGenerator.generateBasicBlockGraph(
+				instructions, m.getExceptionTable(), null, false, false, false);
+		INodeListExt nodes = graph.getNodeList();
+		List<String> blocks = new ArrayList<String>(nodes.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			IBasicBlock bb = (IBasicBlock) nodes.getNodeExt(i);
+			StringBuilder sb = new StringBuilder();
+			INodeListExt vertices = bb.getBasicBlockVertices();
+			for (int j = 0; j < vertices.size(); j++) {
+				sb.append(operationsByOffset.get(Integer.valueOf(vertices.getNodeExt(j).getByteCodeOffset())))
+					.append('\n');
+			}
+			IEdgeListExt out = bb.getOutgoingEdgeList();
+			for (int j = 0; j < out.size(); j++) {
+				sb.append("-> ").append(out.getEdgeExt(j).getData()).append('\n'); //$NON-NLS-1$
+			}
+			blocks.add(sb.toString());
+		}
+
+		return blocks;
+	}
+
+	/**
+	 * Compares all classes of two jar files or directories. The classes
+	 * are compared by a pool of worker threads, the method returns when
+	 * all classes have been compared.
+	 * @param left the left jar file or directory
+	 * @param right the right jar file or directory
+	 * @return the differences of the classes which are not identical,
+	 *          sorted by the class names. The classes which could not
+	 *          be parsed are reported as {@link ClassDifference#KIND_ERROR}.
+	 * @throws IOException if a class file could not be read
+	 * @throws InterruptedException if the thread has been interrupted
+	 */
+	public List<ClassDifference> compare(File left, File right)
+	throws IOException, InterruptedException {
+		final ClassContainer l = ClassContainer.open(left);
+		final ClassContainer r;
+		try {
+			r = ClassContainer.open(right);
+		}
+		catch (IOException e) {
+			l.close();
+			throw e;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count = 0;
+
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread t = new Thread(runnable, "Class Comparator " + (++count)); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		try {
+			TreeSet<String> names = new TreeSet<String>(l.getClassNames().keySet());
+			names.addAll(r.getClassNames().keySet());
+
+			List<Future<ClassDifference>> futures = new ArrayList<Future<ClassDifference>>(names.size());
+			for (final String name : names) {
+				futures.add(executor.submit(new Callable<ClassDifference>() {
+					public ClassDifference call() throws Exception {
+						byte[] leftBytes = l.getBytes(name);
+						byte[] rightBytes = r.getBytes(name);
+						if (leftBytes == null) {
+							return new ClassDifference(name, ClassDifference.KIND_ADDED);
+						}
+						if (rightBytes == null) {
+							return new ClassDifference(name, ClassDifference.KIND_REMOVED);
+						}
+						if (Arrays.equals(leftBytes, rightBytes)) {
+							return null;
+						}
+
+						ClassDifference diff;
+						try {
+							diff = compare(ClassFingerprint.create(leftBytes),
+									ClassFingerprint.create(rightBytes));
+						} catch (IllegalArgumentException e) {
+							/* a malformed class does not abort the comparison */
+							return new ClassDifference(name, e.toString());
+						}
+						return diff.isIdentical() ? null : diff;
+					}
+				}));
+			}
+
+			List<ClassDifference> result = new ArrayList<ClassDifference>();
+			for (Future<ClassDifference> f : futures) {
+				ClassDifference diff = getResult(f);
+				if (diff != null) {
+					result.add(diff);
+				}
+			}
+			return result;
+		}
+		finally {
+			executor.shutdownNow();
+			l.close();
+			r.close();
+		}
+	}
+
+	/**
+	 * Waits for the result of a comparison and rethrows its exception.
+	 * @param f the future
+	 * @return the result
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static ClassDifference getResult(Future<ClassDifference> f)
+	throws IOException, InterruptedException {
+		try {
+			return f.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * The class files of a jar file or a directory.
+	 */
+	private static class ClassContainer {
+		private ZipFile zip;
+
+		/**
+		 * Class files by class name, the values are
+		 * {@link File} or {@link ZipEntry} objects.
+		 */
+		private Map<String, Object> classNames = new TreeMap<String, Object>();
+
+		/**
+		 * Opens a jar file or a directory.
+		 * @param input the jar file or directory
+		 * @return the container
+		 * @throws IOException if the jar file could not be opened
+		 */
+		static ClassContainer open(File input) throws IOException {
+			ClassContainer c = new ClassContainer();
+			if (input.isDirectory()) {
+				collectClassFiles(input, input.getAbsolutePath().length() + 1, c.classNames);
+			}
+			else {
+				c.zip = new ZipFile(input);
+				Enumeration<? extends ZipEntry> en = c.zip.entries();
+				while (en.hasMoreElements()) {
+					ZipEntry entry = en.nextElement();
+					if (!entry.isDirectory() && entry.getName().endsWith(CLASS_FILE_EXTENSION)) {
+						c.classNames.put(toClassName(entry.getName()), entry);
+					}
+				}
+			}
+			return c;
+		}
+
+		/**
+		 * Collects the class files of the directory recursively.
+		 * @param dir the directory
+		 * @param rootLength the length of the path of the root directory
+		 * @param classNames the class files by class name
+		 */
+		private static void collectClassFiles(File dir, int rootLength, Map<String, Object> classNames) {
+			File[] children = dir.listFiles();
+			if (children == null) {
+				return;
+			}
+			for (File f : children) {
+				if (f.isDirectory()) {
+					collectClassFiles(f, rootLength, classNames);
+				}
+				else if (f.getName().endsWith(CLASS_FILE_EXTENSION)) {
+					String path = f.getAbsolutePath().substring(rootLength);
+					classNames.put(toClassName(path.replace(File.separatorChar, '/')), f);
+				}
+			}
+		}
+
+		/**
+		 * Converts the path of a class file to the class name.
+		 * @param path the path separated by '/'
+		 * @return the fully qualified class name
+		 */
+		private static String toClassName(String path) {
+			return path.substring(0, path.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.');
+		}
+
+		Map<String, Object> getClassNames() {
+			return classNames;
+		}
+
+		/**
+		 * Reads a class file.
+		 * @param className the class name
+		 * @return the bytes or <code>null</code> if the class does not exist
+		 * @throws IOException
+		 */
+		byte[] getBytes(String className) throws IOException {
+			Object o = classNames.get(className);
+			if (o == null) {
+				return null;
+			}
+			if (o instanceof File) {
+				return IoUtils.readFully((File) o);
+			}
+
+			ZipEntry entry = (ZipEntry) o;
+			InputStream in = zip.getInputStream(entry);
+			try {
+				return IoUtils.readFully(in, entry.getSize());
+			}
+			finally {
+				in.close();
+			}
+		}
+
+		void close() throws IOException {
+			if (zip != null) {
+				zip.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecode.compare;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of the structural comparison of two versions of a class.
+ * Only the members which are not identical are listed.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ClassDifference {
+
+	public static final int KIND_IDENTICAL = 0;
+	public static final int KIND_CHANGED = 1;
+	public static final int KIND_ADDED = 2;
+	public static final int KIND_REMOVED = 3;
+	public static final int KIND_ERROR = 4;
+
+	/**
+	 * Difference of a field or a method. For changed methods the
+	 * basic blocks of both versions are compared, the number of
+	 * blocks found in both versions is a measure of the change.
+	 */
+	public static class MemberDifference {
+		private int kind;
+		private int memberType;
+		private String name;
+		private String descriptor;
+		private int leftBlocks;
+		private int rightBlocks;
+		private int commonBlocks;
+
+		MemberDifference(int kind, int memberType, String name, String descriptor) {
+			this.kind = kind;
+			this.memberType = memberType;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+
+		/**
+		 * Returns one of the <code>KIND_*</code> constants.
+		 * @return the kind
+		 */
+		public int getKind() {
+			return kind;
+		}
+
+		/**
+		 * Returns {@link ClassFingerprint#MEMBER_TYPE_FIELD} or
+		 * {@link ClassFingerprint#MEMBER_TYPE_METHOD}.
+		 * @return the member type
+		 */
+		public int getMemberType() {
+			return memberType;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDescriptor() {
+			return descriptor;
+		}
+
+		/**
+		 * Returns the number of basic blocks of the left version.
+		 * @return the number of blocks, 0 if the graphs have not been compared
+		 */
+		public int getLeftBlocks() {
+			return leftBlocks;
+		}
+
+		/**
+		 * Returns the number of basic blocks of the right version.
+		 * @return the number of blocks, 0 if the graphs have not been compared
+		 */
+		public int getRightBlocks() {
+			return rightBlocks;
+		}
+
+		/**
+		 * Returns the number of basic blocks with the same
+		 * instructions and branches in both versions.
+		 * @return the number of common blocks
+		 */
+		public int getCommonBlocks() {
+			return commonBlocks;
+		}
+
+		void setBlocks(int leftBlocks, int rightBlocks, int commonBlocks) {
+			this.leftBlocks = leftBlocks;
+			this.rightBlocks = rightBlocks;
+			this.commonBlocks = commonBlocks;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(getKindText(kind)).append(' ').append(name).append(descriptor);
+			if (leftBlocks + rightBlocks > 0) {
+				sb.append(" (").append(commonBlocks).append(" of ") //$NON-NLS-1$ //$NON-NLS-2$
+					.append(leftBlocks).append('/').append(rightBlocks)
+					.append(" basic blocks unchanged)"); //$NON-NLS-1$
+			}
+			return sb.toString();
+		}
+	}
+
+	private String className;
+	private int kind;
+	private boolean headerChanged;
+	private int identicalMembers;
+	private List<MemberDifference> members = new ArrayList<MemberDifference>();
+	private String errorMessage;
+
+	ClassDifference(String className, int kind) {
+		this.className = className;
+		this.kind = kind;
+	}
+
+	/**
+	 * Creates the difference of a class which could not be compared.
+	 * @param className the class name
+	 * @param errorMessage the reason
+	 */
+	ClassDifference(String className, String errorMessage) {
+		this(className, KIND_ERROR);
+		this.errorMessage = errorMessage;
+	}
+
+	/**
+	 * Returns the fully qualified name of the class.
+	 * @return the class name
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * Returns one of the <code>KIND_*</code> constants.
+	 * @return the kind
+	 */
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns <code>true</code> if both classes are structurally identical.
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	public boolean isIdentical() {
+		return kind == KIND_IDENTICAL;
+	}
+
+	/**
+	 * Returns the reason why the class could not be compared.
+	 * @return the message or <code>null</code> if the kind
+	 *          is not {@link #KIND_ERROR}
+	 */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/**
+	 * Returns <code>true</code> if the access flags, the super
+	 * class or the interfaces of the class have changed.
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	public boolean isHeaderChanged() {
+		return headerChanged;
+	}
+
+	/**
+	 * Returns the number of members which are identical in both versions.
+	 * @return the number of members
+	 */
+	public int getIdenticalMembers() {
+		return identicalMembers;
+	}
+
+	/**
+	 * Returns the changed, added and removed members.
+	 * @return the list of member differences
+	 */
+	public List<MemberDifference> getMemberDifferences() {
+		return members;
+	}
+
+	void setHeaderChanged(boolean headerChanged) {
+		this.headerChanged = headerChanged;
+	}
+
+	void setIdenticalMembers(int identicalMembers) {
+		this.identicalMembers = identicalMembers;
+	}
+
+	void setKind(int kind) {
+		this.kind = kind;
+	}
+
+	/**
+	 * Returns a short summary of the difference, e.g.
+	 * <code>2 changed, 1 added, 0 removed, 25 identical</code>.
+	 * @return the summary
+	 */
+	public String getSummary() {
+		if (kind == KIND_ERROR) {
+			return getKindText(kind) + ": " + errorMessage; //$NON-NLS-1$
+		}
+		if (kind != KIND_CHANGED) {
+			return getKindText(kind);
+		}
+
+		int[] count = new int[4];
+		for (MemberDifference m : members) {
+			count[m.getKind()]++;
+		}
+		StringBuilder sb = new StringBuilder();
+		if (headerChanged) {
+			sb.append("header changed, "); //$NON-NLS-1$
+		}
+		sb.append(count[KIND_CHANGED]).append(" changed, ") //$NON-NLS-1$
+			.append(count[KIND_ADDED]).append(" added, ") //$NON-NLS-1$
+			.append(count[KIND_REMOVED]).append(" removed, ") //$NON-NLS-1$
+			.append(identicalMembers).append(" identical"); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the text of a kind constant.
+	 * @param kind the kind
+	 * @return the text
+	 */
+	public static String getKindText(int kind) {
+		switch (kind) {
+		case KIND_IDENTICAL:
+			return "identical"; //$NON-NLS-1$
+		case KIND_CHANGED:
+			return "changed"; //$NON-NLS-1$
+		case KIND_ADDED:
+			return "added"; //$NON-NLS-1$
+		case KIND_REMOVED:
+			return "removed"; //$NON-NLS-1$
+		case KIND_ERROR:
+			return "error"; //$NON-NLS-1$
+		default:
+			throw new IllegalArgumentException("Unexpected kind '" + kind + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return className + ": " + getSummary(); //$NON-NLS-1$
+	}
+}
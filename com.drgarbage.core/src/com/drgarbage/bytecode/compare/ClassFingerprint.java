@@ -0,0 +1,577 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.bytecode.compare;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.drgarbage.asm.ClassReader;
+import com.drgarbage.asm.ClassVisitor;
+import com.drgarbage.asm.FieldVisitor;
+import com.drgarbage.asm.MethodVisitor;
+import com.drgarbage.asm.Opcodes;
+import com.drgarbage.asm_ext.ICodeDecodingVisitor;
+import com.drgarbage.asm_ext.IConstantPoolVisitor;
+import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.ConstantPoolParser;
+import com.drgarbage.bytecode.ExceptionTableEntry;
+import com.drgarbage.bytecode.InstructionParser;
+import com.drgarbage.bytecode.constant_pool.AbstractConstantPoolEntry;
+import com.drgarbage.bytecode.constant_pool.ConstantClassInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantDoubleInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantFloatInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantIntegerInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantInvokeDynamicInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantLongInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantMethodHandleInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantMethodTypeInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantNameAndTypeInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantPoolTags;
+import com.drgarbage.bytecode.constant_pool.ConstantReference;
+import com.drgarbage.bytecode.constant_pool.ConstantStringInfo;
+import com.drgarbage.bytecode.constant_pool.ConstantUtf8Info;
+import com.drgarbage.bytecode.instructions.AbstractInstruction;
+import com.drgarbage.bytecode.instructions.BranchInstruction;
+import com.drgarbage.bytecode.instructions.IConstantPoolIndexProvider;
+import com.drgarbage.bytecode.instructions.ILocalVariableIndexProvider;
+import com.drgarbage.bytecode.instructions.ImmediateByteInstruction;
+import com.drgarbage.bytecode.instructions.ImmediateIntInstruction;
+import com.drgarbage.bytecode.instructions.ImmediateShortInstruction;
+import com.drgarbage.bytecode.instructions.IncrementInstruction;
+import com.drgarbage.bytecode.instructions.LookupSwitchInstruction;
+import com.drgarbage.bytecode.instructions.LookupSwitchInstruction.MatchOffsetEntry;
+import com.drgarbage.bytecode.instructions.MultianewarrayInstruction;
+import com.drgarbage.bytecode.instructions.TableSwitchInstruction;
+import com.drgarbage.core.AnalysisCache;
+
+/**
+ * Structural fingerprint of a class file. Every field and method is
+ * hashed by its normalized form: the references to the constant pool
+ * are resolved to the symbols they stand for and the branch targets
+ * are replaced by instruction indices. Two members have the same hash
+ * if they have the same bytecode, even if the constant pool of the
+ * classes has been reordered or the debug attributes (line numbers,
+ * local variable names) have changed. The version of the class file,
+ * the annotations, the generic signatures and the other attributes are
+ * not part of the fingerprint, equal fingerprints do not mean equal
+ * class files.
+ * <br>
+ * The instructions and the exception tables of the methods are kept,
+ * so that the control flow graphs of changed methods can be compared.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ClassFingerprint {
+
+	public static final int MEMBER_TYPE_FIELD = 0;
+	public static final int MEMBER_TYPE_METHOD = 1;
+
+	/**
+	 * A field or a method of the class.
+	 */
+	public static class Member {
+		private int memberType;
+		private int access;
+		private String name;
+		private String descriptor;
+		private String header;
+		private String hash;
+
+		private List<AbstractInstruction> instructions;
+		private ExceptionTableEntry[] exceptionTable;
+
+		/**
+		 * Normalized instructions without the branch targets,
+		 * the control flow is compared by the graphs.
+		 */
+		private String[] operations;
+
+		Member(int memberType, int access, String name, String descriptor, String header) {
+			this.memberType = memberType;
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+			this.header = header;
+		}
+
+		/**
+		 * Returns the key of the member, unique within the class.
+		 * @return the key
+		 */
+		public String getKey() {
+			return getMemberKey(memberType, name, descriptor);
+		}
+
+		/**
+		 * Returns {@link ClassFingerprint#MEMBER_TYPE_FIELD} or
+		 * {@link ClassFingerprint#MEMBER_TYPE_METHOD}.
+		 * @return the member type
+		 */
+		public int getMemberType() {
+			return memberType;
+		}
+
+		public int getAccess() {
+			return access;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDescriptor() {
+			return descriptor;
+		}
+
+		/**
+		 * Returns the hash of the normalized member.
+		 * @return the SHA-1 hash as hex string
+		 */
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * Returns the instructions of a method.
+		 * @return the instructions or <code>null</code> for
+		 *          fields, abstract and native methods
+		 */
+		public List<AbstractInstruction> getInstructions() {
+			return instructions;
+		}
+
+		/**
+		 * Returns the exception table of a method.
+		 * @return the exception table or <code>null</code>
+		 */
+		public ExceptionTableEntry[] getExceptionTable() {
+			return exceptionTable;
+		}
+
+		/**
+		 * Returns the normalized instructions of a method without
+		 * the branch targets, in the order of the instruction list.
+		 * @return the normalized instructions or <code>null</code>
+		 */
+		public String[] getOperations() {
+			return operations;
+		}
+	}
+
+	private String className;
+	private String superName;
+	private String contentHash;
+	private String headerHash;
+	private Map<String, Member> members = new LinkedHashMap<String, Member>();
+	private AbstractConstantPoolEntry[] constantPool;
+
+	private ClassFingerprint() {
+	}
+
+	/**
+	 * Creates the fingerprint of a class file.
+	 * @param bytes the class file
+	 * @return the fingerprint
+	 * @throws IllegalArgumentException if the class file is not valid
+	 */
+	public static ClassFingerprint create(byte[] bytes) {
+		ClassFingerprint fp = new ClassFingerprint();
+		fp.contentHash = AnalysisCache.getContentHash(bytes);
+
+		try {
+			FingerprintVisitor visitor = fp.new FingerprintVisitor();
+			ClassReader cr = new ClassReader(bytes, visitor);
+			cr.accept(visitor, 0);
+
+			for (Member m : fp.members.values()) {
+				fp.computeHash(m);
+			}
+		} catch (IllegalArgumentException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			/* e.g. an index out of bounds in a truncated class file */
+			IllegalArgumentException iae = new IllegalArgumentException("Invalid class file: " + e); //$NON-NLS-1$
+			iae.initCause(e);
+			throw iae;
+		}
+		return fp;
+	}
+
+	/**
+	 * Returns the key of a member.
+	 * @param memberType the member type
+	 * @param name the name
+	 * @param descriptor the descriptor
+	 * @return the key
+	 */
+	public static String getMemberKey(int memberType, String name, String descriptor) {
+		return (memberType == MEMBER_TYPE_FIELD ? "F " : "M ") + AnalysisCache.getMethodKey(name, descriptor); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Returns the internal name of the class.
+	 * @return the class name
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * Returns the internal name of the super class.
+	 * @return the super class name or <code>null</code>
+	 */
+	public String getSuperName() {
+		return superName;
+	}
+
+	/**
+	 * Returns the hash of the raw class file.
+	 * @return the SHA-1 hash as hex string
+	 * @see AnalysisCache#getContentHash(byte[])
+	 */
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * Returns the hash of the access flags, the super
+	 * class and the interfaces of the class.
+	 * @return the SHA-1 hash as hex string
+	 */
+	public String getHeaderHash() {
+		return headerHash;
+	}
+
+	/**
+	 * Returns the member with the given key.
+	 * @param key the key
+	 * @return the member or <code>null</code>
+	 * @see #getMemberKey(int, String, String)
+	 */
+	public Member getMember(String key) {
+		return members.get(key);
+	}
+
+	/**
+	 * Returns the members in the order of the class file.
+	 * @return the members
+	 */
+	public Collection<Member> getMembers() {
+		return members.values();
+	}
+
+	/**
+	 * Returns the constant pool of the class.
+	 * @return the constant pool
+	 */
+	public AbstractConstantPoolEntry[] getConstantPool() {
+		return constantPool;
+	}
+
+	/**
+	 * Computes the normalized instructions and the hash of a member.
+	 * @param m the member
+	 */
+	private void computeHash(Member m) {
+		StringBuilder sb = new StringBuilder(m.header);
+		List<AbstractInstruction> instructions = m.instructions;
+		if (instructions != null) {
+			/* instruction index by offset, the end of the code included */
+			AbstractInstruction last = instructions.get(instructions.size() - 1);
+			int[] indices = new int[last.getOffset() + last.getLength() + 1];
+			for (int i = 0; i < instructions.size(); i++) {
+				indices[instructions.get(i).getOffset()] = i;
+			}
+			indices[indices.length - 1] = instructions.size();
+
+			m.operations = new String[instructions.size()];
+			for (int i = 0; i < instructions.size(); i++) {
+				AbstractInstruction instruction = instructions.get(i);
+				m.operations[i] = normalize(instruction);
+
+				sb.append('\n').append(m.operations[i]);
+				appendTargets(sb, instruction, indices);
+			}
+
+			if (m.exceptionTable != null) {
+				for (ExceptionTableEntry e : m.exceptionTable) {
+					sb.append("\ntry ") //$NON-NLS-1$
+						.append(indices[e.getStartPc()]).append(' ')
+						.append(indices[e.getEndPc()]).append(' ')
+						.append(indices[e.getHandlerPc()]).append(' ')
+						.append(e.getCatchType() == 0 ? "any" : toSymbol(e.getCatchType())); //$NON-NLS-1$
+				}
+			}
+		}
+
+		m.hash = getHash(sb.toString());
+	}
+
+	/**
+	 * Returns the normalized form of an instruction: the mnemonic and
+	 * the operands with the constant pool references resolved. The
+	 * branch targets are not included.
+	 * @param instruction the instruction
+	 * @return the normalized instruction
+	 */
+	private String normalize(AbstractInstruction instruction) {
+		StringBuilder sb = new StringBuilder(getMnemonic(instruction));
+		if (instruction instanceof IConstantPoolIndexProvider) {
+			sb.append(' ').append(toSymbol(((IConstantPoolIndexProvider) instruction).getConstantPoolIndex()));
+			if (instruction instanceof MultianewarrayInstruction) {
+				sb.append(' ').append(((MultianewarrayInstruction) instruction).getDimensions());
+			}
+		}
+		else if (instruction instanceof IncrementInstruction) {
+			IncrementInstruction inc = (IncrementInstruction) instruction;
+			sb.append(' ').append(inc.getLocalVariableIndex())
+				.append(' ').append(inc.getIncrementConst());
+		}
+		else if (instruction instanceof ILocalVariableIndexProvider) {
+			sb.append(' ').append(((ILocalVariableIndexProvider) instruction).getLocalVariableIndex());
+		}
+		else if (instruction instanceof ImmediateByteInstruction) {
+			sb.append(' ').append(((ImmediateByteInstruction) instruction).getImmediateByte());
+		}
+		else if (instruction instanceof ImmediateShortInstruction) {
+			sb.append(' ').append(((ImmediateShortInstruction) instruction).getImmediateShort());
+		}
+		else if (instruction instanceof ImmediateIntInstruction) {
+			sb.append(' ').append(((ImmediateIntInstruction) instruction).getImmediateInt());
+		}
+		else if (instruction instanceof TableSwitchInstruction) {
+			TableSwitchInstruction ts = (TableSwitchInstruction) instruction;
+			sb.append(' ').append(ts.getLow()).append(' ').append(ts.getHigh());
+		}
+		else if (instruction instanceof LookupSwitchInstruction) {
+			for (MatchOffsetEntry e : ((LookupSwitchInstruction) instruction).getMatchOffsetPairs()) {
+				sb.append(' ').append(e.getMatch());
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the mnemonic of an instruction. The wide forms of
+	 * <code>ldc</code>, <code>goto</code> and <code>jsr</code> are
+	 * mapped to the short forms, because a reordered constant pool
+	 * may turn an <code>ldc</code> into an <code>ldc_w</code>.
+	 * @param instruction the instruction
+	 * @return the mnemonic
+	 */
+	private static String getMnemonic(AbstractInstruction instruction) {
+		switch (instruction.getOpcode()) {
+		case ByteCodeConstants.OPCODE_LDC_W:
+			return ByteCodeConstants.OPCODE_MNEMONICS[ByteCodeConstants.OPCODE_LDC];
+		case ByteCodeConstants.OPCODE_GOTO_W:
+			return ByteCodeConstants.OPCODE_MNEMONICS[ByteCodeConstants.OPCODE_GOTO];
+		case ByteCodeConstants.OPCODE_JSR_W:
+			return ByteCodeConstants.OPCODE_MNEMONICS[ByteCodeConstants.OPCODE_JSR];
+		default:
+			return instruction.getOpcodeMnemonic();
+		}
+	}
+
+	/**
+	 * Appends the branch targets of an instruction as instruction indices.
+	 * @param sb the buffer
+	 * @param instruction the instruction
+	 * @param indices the instruction indices by offset
+	 */
+	private static void appendTargets(StringBuilder sb, AbstractInstruction instruction, int[] indices) {
+		int start = instruction.getOffset();
+		if (instruction instanceof BranchInstruction) {
+			sb.append(" -> ").append(indices[start + ((BranchInstruction) instruction).getBranchOffset()]); //$NON-NLS-1$
+		}
+		else if (instruction instanceof TableSwitchInstruction) {
+			TableSwitchInstruction ts = (TableSwitchInstruction) instruction;
+			for (int offset : ts.getJumpOffsets()) {
+				sb.append(" -> ").append(indices[start + offset]); //$NON-NLS-1$
+			}
+			sb.append(" default -> ").append(indices[start + ts.getDefaultOffset()]); //$NON-NLS-1$
+		}
+		else if (instruction instanceof LookupSwitchInstruction) {
+			LookupSwitchInstruction ls = (LookupSwitchInstruction) instruction;
+			for (MatchOffsetEntry e : ls.getMatchOffsetPairs()) {
+				sb.append(" -> ").append(indices[start + e.getOffset()]); //$NON-NLS-1$
+			}
+			sb.append(" default -> ").append(indices[start + ls.getDefaultOffset()]); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Resolves a constant pool entry to the symbol it stands for, e.g.
+	 * <code>java/lang/String.length ()I</code> for a method reference.
+	 * @param index the index of the entry
+	 * @return the symbol
+	 */
+	private String toSymbol(int index) {
+		if (index <= 0 || index >= constantPool.length || constantPool[index] == null) {
+			return "#" + index; //$NON-NLS-1$
+		}
+
+		AbstractConstantPoolEntry e = constantPool[index];
+		switch (e.getTag()) {
+		case ConstantPoolTags.CONSTANT_UTF8:
+			return ((ConstantUtf8Info) e).getString();
+		case ConstantPoolTags.CONSTANT_CLASS:
+			return ((ConstantClassInfo) e).getName();
+		case ConstantPoolTags.CONSTANT_STRING:
+			return "\"" + toSymbol(((ConstantStringInfo) e).getStringIndex()) + "\""; //$NON-NLS-1$ //$NON-NLS-2$
+		case ConstantPoolTags.CONSTANT_INTEGER:
+			return "int " + ((ConstantIntegerInfo) e).getInt(); //$NON-NLS-1$
+		case ConstantPoolTags.CONSTANT_FLOAT:
+			return "float " + Float.floatToIntBits(((ConstantFloatInfo) e).getFloat()); //$NON-NLS-1$
+		case ConstantPoolTags.CONSTANT_LONG:
+			return "long " + ((ConstantLongInfo) e).getLong(); //$NON-NLS-1$
+		case ConstantPoolTags.CONSTANT_DOUBLE:
+			return "double " + Double.doubleToLongBits(((ConstantDoubleInfo) e).getDouble()); //$NON-NLS-1$
+		case ConstantPoolTags.CONSTANT_FIELDREF:
+		case ConstantPoolTags.CONSTANT_METHODREF:
+		case ConstantPoolTags.CONSTANT_INTERFACE_METHODREF:
+			ConstantReference ref = (ConstantReference) e;
+			return toSymbol(ref.getClassIndex()) + "." + toSymbol(ref.getNameAndTypeIndex()); //$NON-NLS-1$
+		case ConstantPoolTags.CONSTANT_NAME_AND_TYPE:
+			ConstantNameAndTypeInfo nat = (ConstantNameAndTypeInfo) e;
+			return nat.getName() + " " + nat.getDescriptor(); //$NON-NLS-1$
+		case ConstantPoolTags.CONSTANT_METHOD_HANDLE:
+			ConstantMethodHandleInfo mh = (ConstantMethodHandleInfo) e;
+			return "handle " + mh.getReferenceKind() + " " + toSymbol(mh.getReferenceIndex()); //$NON-NLS-1$ //$NON-NLS-2$
+		case ConstantPoolTags.CONSTANT_METHOD_TYPE:
+			return "type " + toSymbol(((ConstantMethodTypeInfo) e).getDescriptorIndex()); //$NON-NLS-1$
+		case ConstantPoolTags.CONSTANT_INVOKE_DYNAMIC:
+			ConstantInvokeDynamicInfo indy = (ConstantInvokeDynamicInfo) e;
+			return "indy " + indy.getBootstrapMethodAttrIndex() + " " + toSymbol(indy.getNameAndTypeIndex()); //$NON-NLS-1$ //$NON-NLS-2$
+		default:
+			return e.getInfo();
+		}
+	}
+
+	/**
+	 * Returns the hash of a normalized string.
+	 * @param s the string
+	 * @return the SHA-1 hash as hex string
+	 */
+	private static String getHash(String s) {
+		try {
+			return AnalysisCache.getContentHash(s.getBytes("UTF-8")); //$NON-NLS-1$
+		} catch (UnsupportedEncodingException e) {
+			/* every java platform has to support UTF-8 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Collects the members of the class. The instructions of the
+	 * methods are decoded by the {@link InstructionParser}.
+	 */
+	private class FingerprintVisitor extends ClassVisitor implements IConstantPoolVisitor {
+
+		FingerprintVisitor() {
+			super(Opcodes.ASM4);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.drgarbage.asm_ext.IConstantPoolVisitor#visitConstantPool(byte[], int, int)
+		 */
+		public void visitConstantPool(byte[] bytes, int offset, int entryCount) {
+			constantPool = new ConstantPoolParser(bytes, offset, entryCount).parse();
+		}
+
+		/* (non-Javadoc)
+		 * @see com.drgarbage.asm.ClassVisitor#visit(int, int, java.lang.String, java.lang.String, java.lang.String, java.lang.String[])
+		 */
+		public void visit(int version, int access, String name,
+				String signature, String superName, String[] interfaces) {
+			className = name;
+			ClassFingerprint.this.superName = superName;
+
+			StringBuilder sb = new StringBuilder();
+			sb.append(access).append(' ').append(superName);
+			if (interfaces != null) {
+				for (String s : interfaces) {
+					sb.append(' ').append(s);
+				}
+			}
+			headerHash = getHash(sb.toString());
+		}
+
+		/* (non-Javadoc)
+		 * @see com.drgarbage.asm.ClassVisitor#visitField(int, java.lang.String, java.lang.String, java.lang.String, java.lang.Object)
+		 */
+		public FieldVisitor visitField(int access, String name, String desc,
+				String signature, Object value) {
+			String header = access + " " + name + " " + desc; //$NON-NLS-1$ //$NON-NLS-2$
+			if (value != null) {
+				header += " = " + value.getClass().getName() + " " + value; //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			Member m = new Member(MEMBER_TYPE_FIELD, access, name, desc, header);
+			members.put(m.getKey(), m);
+			return null;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.drgarbage.asm.ClassVisitor#visitMethod(int, java.lang.String, java.lang.String, java.lang.String, java.lang.String[])
+		 */
+		public MethodVisitor visitMethod(int access, String name, String desc,
+				String signature, String[] exceptions) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(access).append(' ').append(name).append(desc);
+			if (exceptions != null) {
+				for (String s : exceptions) {
+					sb.append(' ').append(s);
+				}
+			}
+			Member m = new Member(MEMBER_TYPE_METHOD, access, name, desc, sb.toString());
+			members.put(m.getKey(), m);
+			return new CodeVisitor(m);
+		}
+	}
+
+	/**
+	 * Decodes the code attribute of a method.
+	 */
+	private static class CodeVisitor extends MethodVisitor implements ICodeDecodingVisitor {
+		private Member member;
+
+		CodeVisitor(Member member) {
+			super(Opcodes.ASM4);
+			this.member = member;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.drgarbage.asm_ext.ICodeVisitor#visitCode(byte[], int, int)
+		 */
+		public boolean visitCode(byte[] bytes, int offset, int length) {
+			InstructionParser parser = new InstructionParser(bytes, offset, length);
+			List<AbstractInstruction> instructions = parser.parse();
+			if (instructions.size() > 0) {
+				member.instructions = new ArrayList<AbstractInstruction>(instructions);
+				member.exceptionTable = parser.parseExceptionTable();
+			}
+
+			/* decoded by the InstructionParser, skip the ASM callbacks */
+			return false;
+		}
+	}
+}
@@ -0,0 +1,447 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.controlflowgraph;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.drgarbage.asm.visitor.AllCodeVisitor;
+import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.ExceptionTableEntry;
+import com.drgarbage.bytecode.LineNumberTableEntry;
+import com.drgarbage.bytecode.instructions.AbstractInstruction;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.io.IoUtils;
+
+/**
+ * Headless generator of control flow graphs for all classes of a jar
+ * file or a directory. The classes are processed by a pool of worker
+ * threads, the graph of each method is passed to a {@link IGraphHandler}
+ * in the worker thread, so that the results can be streamed to disk
+ * without keeping them in memory.
+ * <br>
+ * The generator does not depend on the workbench. The processing time
+ * of each class and the throughput of the whole run are printed to the
+ * log stream.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class BatchGraphGenerator {
+
+	/**
+	 * Graph types. The values are the same as used by
+	 * the control flow graph factory.
+	 */
+	public static final int GRAPH_TYPE_BYTECODE_GRAPH = 0;
+	public static final int GRAPH_TYPE_BASICBLOCK_GRAPH = 1;
+	public static final int GRAPH_TYPE_SOURCE_GRAPH = 2;
+
+	/**
+	 * Extension of the class files.
+	 */
+	private static final String CLASS_FILE_EXTENSION = ".class";
+
+	/**
+	 * Callback for the generated graphs. The methods are called
+	 * concurrently by the worker threads.
+	 */
+	public interface IGraphHandler {
+
+		/**
+		 * Called for each generated graph.
+		 * @param className the fully qualified class name
+		 * @param methodName the method name
+		 * @param methodDescriptor the method descriptor
+		 * @param graph the graph
+		 * @throws IOException if the graph could not be written
+		 * @throws ControlFlowGraphException if the graph could not be processed
+		 */
+		public void handleGraph(String className,
+				String methodName,
+				String methodDescriptor,
+				IDirectedGraphExt graph)
+		throws IOException, ControlFlowGraphException;
+	}
+
+	/**
+	 * Statistics of a run.
+	 */
+	public static class Statistics {
+		private AtomicInteger classes = new AtomicInteger();
+		private AtomicInteger methods = new AtomicInteger();
+		private AtomicInteger errors = new AtomicInteger();
+		private long time;
+
+		/**
+		 * @return number of processed classes
+		 */
+		public int getClasses() {
+			return classes.get();
+		}
+
+		/**
+		 * @return number of generated graphs
+		 */
+		public int getMethods() {
+			return methods.get();
+		}
+
+		/**
+		 * @return number of classes and methods which could not be processed
+		 */
+		public int getErrors() {
+			return errors.get();
+		}
+
+		/**
+		 * @return the elapsed time in milliseconds
+		 */
+		public long getTime() {
+			return time;
+		}
+	}
+
+	private int graphType = GRAPH_TYPE_BYTECODE_GRAPH;
+	private boolean createStartVertex = false;
+	private boolean createExitVertex = false;
+	private boolean createBackEdge = false;
+	private boolean createExceptionEdges = false;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private PrintStream log = System.out;
+	private boolean verbose = true;
+
+	/**
+	 * Creates a generator for the given graph type.
+	 * @param graphType one of the GRAPH_TYPE constants
+	 */
+	public BatchGraphGenerator(int graphType) {
+		super();
+		if (graphType < GRAPH_TYPE_BYTECODE_GRAPH || graphType > GRAPH_TYPE_SOURCE_GRAPH) {
+			throw new IllegalArgumentException("Unexpected graph type '" + graphType + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.graphType = graphType;
+	}
+
+	public int getGraphType() {
+		return graphType;
+	}
+
+	public void setCreateStartVertex(boolean createStartVertex) {
+		this.createStartVertex = createStartVertex;
+	}
+
+	public void setCreateExitVertex(boolean createExitVertex) {
+		this.createExitVertex = createExitVertex;
+	}
+
+	public void setCreateBackEdge(boolean createBackEdge) {
+		this.createBackEdge = createBackEdge;
+	}
+
+	/**
+	 * Sets the flag if the exception edges from the covered blocks
+	 * to the handlers have to be created. The flag is supported by
+	 * the bytecode and the basic block graphs.
+	 * @param createExceptionEdges <code>true</code> if the exception edges have to be created
+	 */
+	public void setCreateExceptionEdges(boolean createExceptionEdges) {
+		this.createExceptionEdges = createExceptionEdges;
+	}
+
+	/**
+	 * Sets the number of worker threads.
+	 * The default is the number of processors.
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Invalid number of threads: " + threads); //$NON-NLS-1$
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the stream for the timing output and the error messages.
+	 * @param log
+	 */
+	public void setLog(PrintStream log) {
+		this.log = log;
+	}
+
+	/**
+	 * Enables or disables the timing output for each class.
+	 * @param verbose
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Generates the graphs of all classes of the given jar file or directory.
+	 * The method returns when all classes have been processed.
+	 *
+	 * @param input a jar file or a directory containing class files
+	 * @param handler the handler of the generated graphs
+	 * @return the statistics of the run
+	 * @throws IOException if the input could not be opened
+	 * @throws InterruptedException if the thread has been interrupted
+	 */
+	public Statistics run(File input, final IGraphHandler handler)
+	throws IOException, InterruptedException {
+		final Statistics stat = new Statistics();
+		long start = System.currentTimeMillis();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count = 0;
+
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Batch Graph Generator " + (++count)); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		ZipFile zipFile = null;
+		try {
+			if (input.isDirectory()) {
+				List<File> files = new ArrayList<File>();
+				collectClassFiles(input, files);
+				String root = input.getAbsolutePath();
+				for (final File f : files) {
+					String path = f.getAbsolutePath().substring(root.length() + 1);
+					final String className = toClassName(path.replace(File.separatorChar, '/'));
+					executor.execute(new Runnable() {
+						public void run() {
+							try {
+								processClass(className, new FileInputStream(f), f.length(), handler, stat);
+							} catch (IOException e) {
+								error(className, e, stat);
+							} catch (RuntimeException e) {
+								/* malformed class file */
+								error(className, e, stat);
+							}
+						}
+					});
+				}
+			}
+			else {
+				final ZipFile zip = new ZipFile(input);
+				zipFile = zip;
+				Enumeration<? extends ZipEntry> en = zip.entries();
+				while (en.hasMoreElements()) {
+					final ZipEntry entry = en.nextElement();
+					if (entry.isDirectory() || !entry.getName().endsWith(CLASS_FILE_EXTENSION)) {
+						continue;
+					}
+					final String className = toClassName(entry.getName());
+					executor.execute(new Runnable() {
+						public void run() {
+							try {
+								processClass(className, zip.getInputStream(entry), entry.getSize(), handler, stat);
+							} catch (IOException e) {
+								error(className, e, stat);
+							} catch (RuntimeException e) {
+								/* malformed class file */
+								error(className, e, stat);
+							}
+						}
+					});
+				}
+			}
+
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				/* wait */
+			}
+		}
+		finally {
+			executor.shutdownNow();
+			if (zipFile != null) {
+				zipFile.close();
+			}
+		}
+
+		stat.time = System.currentTimeMillis() - start;
+		printSummary(stat);
+
+		return stat;
+	}
+
+	/**
+	 * Collects the class files of the directory recursively.
+	 * @param dir the directory
+	 * @param files the list of class files
+	 */
+	private static void collectClassFiles(File dir, List<File> files) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File f : children) {
+			if (f.isDirectory()) {
+				collectClassFiles(f, files);
+			}
+			else if (f.getName().endsWith(CLASS_FILE_EXTENSION)) {
+				files.add(f);
+			}
+		}
+	}
+
+	/**
+	 * Converts the path of a class file to the class name.
+	 * @param path the path separated by '/'
+	 * @return the fully qualified class name
+	 */
+	private static String toClassName(String path) {
+		return path.substring(0, path.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.');
+	}
+
+	/**
+	 * Generates the graphs of all methods of a class.
+	 * The class file is read into an array of its size
+	 * and parsed in place. The input stream is closed.
+	 *
+	 * @param className the class name
+	 * @param in the class file
+	 * @param size the size of the class file or -1 if not known
+	 * @param handler the graph handler
+	 * @param stat the statistics
+	 * @throws IOException if the class file could not be read
+	 */
+	private void processClass(String className,
+			InputStream in,
+			long size,
+			IGraphHandler handler,
+			Statistics stat)
+	throws IOException {
+		long start = System.nanoTime();
+
+		byte[] bytes;
+		try {
+			bytes = IoUtils.readFully(in, size);
+		}
+		finally {
+			in.close();
+		}
+		AllCodeVisitor codeVisitor = ControlFlowGraphGenerator.getClassFileVisitor(bytes);
+
+		int count = 0;
+		for (Map<String, Object> attr : codeVisitor.getInstructionLists()) {
+			String name = (String) attr.get(ByteCodeConstants.NAME);
+			String descriptor = (String) attr.get(ByteCodeConstants.DESCRIPTOR);
+			try {
+				IDirectedGraphExt graph = generateGraph(attr);
+				if (graph == null) {
+					throw new ControlFlowGraphException("Graph could not be created."); //$NON-NLS-1$
+				}
+				handler.handleGraph(className, name, descriptor, graph);
+				count++;
+			} catch (ControlFlowGraphException e) {
+				error(className + "." + name + descriptor, e, stat); //$NON-NLS-1$
+			} catch (IOException e) {
+				error(className + "." + name + descriptor, e, stat); //$NON-NLS-1$
+			} catch (RuntimeException e) {
+				error(className + "." + name + descriptor, e, stat); //$NON-NLS-1$
+			}
+		}
+
+		stat.classes.incrementAndGet();
+		stat.methods.addAndGet(count);
+
+		if (verbose) {
+			long time = System.nanoTime() - start;
+			log.println(String.format("%10.3f ms %5d methods  %s", //$NON-NLS-1$
+					Double.valueOf(time / 1000000.0), Integer.valueOf(count), className));
+		}
+	}
+
+	/**
+	 * Generates the graph of a method.
+	 * @param attr the method attributes of the {@link AllCodeVisitor}
+	 * @return the graph
+	 * @throws ControlFlowGraphException
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	private IDirectedGraphExt generateGraph(Map<String, Object> attr)
+	throws ControlFlowGraphException, IOException {
+		List<AbstractInstruction> instructions = (List<AbstractInstruction>) attr.get(ByteCodeConstants.CODE);
+		LineNumberTableEntry[] lineNumberTable = (LineNumberTableEntry[]) attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+		ExceptionTableEntry[] exceptionTable = (ExceptionTableEntry[]) attr.get(ByteCodeConstants.EXCEPTION_TABLE);
+
+		switch (graphType) {
+		case GRAPH_TYPE_BYTECODE_GRAPH:
+			return ControlFlowGraphGenerator.generateControlFlowGraph(
+					instructions, createExceptionEdges ? exceptionTable : null,
+					lineNumberTable, createStartVertex,
+					createExitVertex, createBackEdge, false);
+		case GRAPH_TYPE_BASICBLOCK_GRAPH:
+			return ControlFlowGraphGenerator.generateBasicBlockGraph(
+					instructions, exceptionTable,
+					lineNumberTable, createStartVertex,
+					createExitVertex, createBackEdge, createExceptionEdges);
+		case GRAPH_TYPE_SOURCE_GRAPH:
+			return ControlFlowGraphGenerator.generateSourceCodeGraph(
+					instructions, lineNumberTable, createStartVertex,
+					createExitVertex, createBackEdge);
+		default:
+			throw new IllegalStateException("Unexpected graph type '"+ graphType +"'"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Counts and reports an error.
+	 * @param name the class or method name
+	 * @param e the exception
+	 * @param stat the statistics
+	 */
+	private void error(String name, Exception e, Statistics stat) {
+		stat.errors.incrementAndGet();
+		log.println("ERROR " + name + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Prints the throughput of the run.
+	 * @param stat the statistics
+	 */
+	private void printSummary(Statistics stat) {
+		double seconds = Math.max(stat.getTime(), 1) / 1000.0;
+		log.println(String.format("%d classes, %d graphs, %d errors in %.3f s (%.1f classes/s, %.1f graphs/s, %d threads)", //$NON-NLS-1$
+				Integer.valueOf(stat.getClasses()),
+				Integer.valueOf(stat.getMethods()),
+				Integer.valueOf(stat.getErrors()),
+				Double.valueOf(seconds),
+				Double.valueOf(stat.getClasses() / seconds),
+				Double.valueOf(stat.getMethods() / seconds),
+				Integer.valueOf(threads)));
+	}
+}
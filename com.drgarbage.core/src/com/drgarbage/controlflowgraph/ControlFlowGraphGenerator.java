@@ -16,23 +16,24 @@
 
 package com.drgarbage.controlflowgraph;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.TreeMap;
 
-import com.drgarbage.algorithms.BasicBlockGraphVisitor;
 import com.drgarbage.asm.ClassReader;
 import com.drgarbage.asm.render.intf.IInstructionLine;
 import com.drgarbage.asm.visitor.AllCodeVisitor;
-import com.drgarbage.asm.visitor.FilteringCodeVisitor;
 import com.drgarbage.asm.visitor.MethodFilteringVisitor;
 import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.ExceptionTableEntry;
+import com.drgarbage.bytecode.InstructionStream;
 import com.drgarbage.bytecode.LineNumberTableEntry;
 import com.drgarbage.bytecode.instructions.AbstractInstruction;
 import com.drgarbage.bytecode.instructions.BranchInstruction;
@@ -41,13 +42,15 @@ import com.drgarbage.bytecode.instructions.Opcodes;
 import com.drgarbage.bytecode.instructions.TableSwitchInstruction;
 import com.drgarbage.bytecode.instructions.LookupSwitchInstruction.MatchOffsetEntry;
 import com.drgarbage.controlflowgraph.intf.GraphExtentionFactory;
-import com.drgarbage.controlflowgraph.intf.GraphUtils;
+import com.drgarbage.controlflowgraph.intf.IBasicBlock;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeListExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
 import com.drgarbage.controlflowgraph.intf.INodeListExt;
 import com.drgarbage.controlflowgraph.intf.INodeType;
+import com.drgarbage.core.AnalysisCache;
 import com.drgarbage.javalang.JavaLangUtils;
 
 /**
@@ -100,8 +103,10 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 	public static IDirectedGraphExt generateSynchronizedControlFlowGraphFrom (List<IInstructionLine> instructions,
 			boolean setReferenceToIntsrutionList){
 		AbstractInstruction currentInstruction = null;
-		HashMap<Integer, INodeExt> hashTable = new HashMap<Integer, INodeExt>();
-		List<AbstractInstruction> instructionList = new ArrayList<AbstractInstruction>();
+		if(!(instructions instanceof RandomAccess)){
+			instructions = new ArrayList<IInstructionLine>(instructions);
+		}
+		List<AbstractInstruction> instructionList = new ArrayList<AbstractInstruction>(instructions.size());
 
 		/* Create new Control Flow Graph */
 		IDirectedGraphExt cfg = GraphExtentionFactory.createDirectedGraphExtention();
@@ -110,7 +115,6 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 		if(debug) debug("create new Graph"); //$NON-NLS-1$
 
 		/* add vertices */
-		Integer vertex = null;
 		int nodeType = -1;
 		String instrVerbose = null;
 		IInstructionLine instrLine = null;
@@ -118,7 +122,12 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			instrLine = instructions.get(i);
 			currentInstruction = instrLine.getInstruction();
 			instructionList.add(currentInstruction); /* create instruction list */
-			vertex = new Integer(currentInstruction.getOffset());
+		}
+		
+		INodeExt[] nodeTable = createNodeTable(instructionList);
+		for(int i=0; i< instructions.size();i++){
+			instrLine = instructions.get(i);
+			currentInstruction = instructionList.get(i);
 
 			nodeType = ControlFlowGraphUtils.getInstructionNodeType(currentInstruction.getOpcode());
 			instrVerbose = currentInstruction.getOpcodeMnemonic();
@@ -134,12 +143,12 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			node.setVertexType(nodeType);
 
 			nodes.add(node);
-			hashTable.put(vertex, node);
+			nodeTable[currentInstruction.getOffset()] = node;
 
-			if(debug)debug("add Vertex:" + vertex);//$NON-NLS-1$
+			if(debug)debug("add Vertex:" + currentInstruction.getOffset());//$NON-NLS-1$
 		}
 
-		parseInstructionList(instructionList, edges, hashTable);
+		parseInstructionList(instructionList, edges, nodeTable);
 
 		return cfg;
 	}
@@ -216,9 +225,42 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			boolean createBackEdge,
 			boolean setReferenceToIntsrutionList)
 	throws ControlFlowGraphException, IOException
+	{
+		return generateControlFlowGraph(instructions, null, lineNumberTable, createStartVertex, createExitvertex, createBackEdge, setReferenceToIntsrutionList);
+	}
+
+	/**
+	 * Generates a control flow graph from an instruction list.
+	 * If an exception table is passed, exception edges of the type 
+	 * {@link IEdgeType#EDGE_TYPE_EXCEPTION} are created from the covered
+	 * instructions to the start of the handlers. The edges are created 
+	 * per basic block, i.e. from the first covered instruction and from 
+	 * each covered leader.
+	 * @param instructions - list of synchronized instructions
+	 * @param exceptionTable - the exception table or <code>null</code> if no exception edges have to be created
+	 * @param lineNumberTable - the line number table
+	 * @param createStartVertex - flag if a virtual start node has to be created
+	 * @param createExitvertex - flag if a virtual exit node has to be created
+	 * @param createBackEdge - flag if a virtual back edge has to be created
+	 * @param setReferenceToIntsrutionList - flag if a reference to the original instruction object has to be set
+	 * @return The control flow graph 
+	 * @throws ControlFlowGraphException
+	 * @throws IOException
+	 */
+	public static IDirectedGraphExt generateControlFlowGraph (List<AbstractInstruction> instructions,
+			ExceptionTableEntry[] exceptionTable,
+			LineNumberTableEntry[] lineNumberTable,
+			boolean createStartVertex,
+			boolean createExitvertex,
+			boolean createBackEdge,
+			boolean setReferenceToIntsrutionList)
+	throws ControlFlowGraphException, IOException
 	{
 		AbstractInstruction currentInstruction = null;
-		HashMap<Integer, INodeExt> hashTable = new HashMap<Integer, INodeExt>();
+		if(!(instructions instanceof RandomAccess)){
+			instructions = new ArrayList<AbstractInstruction>(instructions);
+		}
+		INodeExt[] nodeTable = createNodeTable(instructions);
 
 		/* Create new Control Flow Graph */
 		IDirectedGraphExt cfg = GraphExtentionFactory.createDirectedGraphExtention();
@@ -227,13 +269,11 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 		if(debug)debug("create new Graph");//$NON-NLS-1$
 
 		/* add vertices */
-		Integer vertex = null;
 		int nodeType = -1;
 		String instrVerbose = null;
 		for(int i = 0; i< instructions.size(); i++){
 
-			currentInstruction = (AbstractInstruction)instructions.get(i);
-			vertex = new Integer(currentInstruction.getOffset());
+			currentInstruction = instructions.get(i);
 
 			/* create vertex property Object */
 			nodeType = ControlFlowGraphUtils.getInstructionNodeType(currentInstruction.getOpcode());
@@ -249,12 +289,17 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			node.setVertexType(nodeType);
 
 			nodes.add(node);
-			hashTable.put(vertex, node);
+			nodeTable[currentInstruction.getOffset()] = node;
 
-			if(debug) debug("add Vertex:" + vertex);//$NON-NLS-1$
+			if(debug) debug("add Vertex:" + currentInstruction.getOffset());//$NON-NLS-1$
 		}
 
-		parseInstructionList(instructions, edges, hashTable);
+		parseInstructionList(instructions, edges, nodeTable);
+
+		if(exceptionTable != null && instructions.size() != 0){
+			BitSet leaders = findLeaders(instructions, nodeTable.length, exceptionTable, true);
+			addExceptionEdges(edges, nodeTable, leaders, exceptionTable);
+		}
 		
 		INodeExt  startNode = null, exitNode = null;
 		/* create start Vertex */
@@ -265,7 +310,7 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			nodes.add(startNode);
 			
 			/* create edge to the first node */
-			edges.add(GraphExtentionFactory.createEdgeExtention(startNode, hashTable.get(0)));
+			edges.add(GraphExtentionFactory.createEdgeExtention(startNode, getNode(nodeTable, 0)));
 		}
 
 		/* create exit Vertex */
@@ -332,8 +377,8 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			boolean createBackEdge) 
 	throws ControlFlowGraphException, IOException
 	{
-		FilteringCodeVisitor codeVisitor = getInstructionList(classPath, packageName, className, methodName, methodSig);
-		return ControlFlowGraphGenerator.generateControlFlowGraph(codeVisitor.getInstructions(), codeVisitor.getLineNumberTable(), createStartVertex, createExitvertex, createBackEdge);
+		Map<String, Object> attr = getInstructionList(classPath, packageName, className, methodName, methodSig);
+		return ControlFlowGraphGenerator.generateControlFlowGraph(getInstructions(attr), getLineNumberTable(attr), createStartVertex, createExitvertex, createBackEdge);
 	}
 
 	
@@ -361,8 +406,8 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			boolean createBackEdge)
 	throws ControlFlowGraphException, IOException
 	{
-		FilteringCodeVisitor codeVisitor = getInstructionList(classPath, packageName, className, methodName, methodSig);
-		return generateSourceCodeGraph(codeVisitor.getInstructions(), codeVisitor.getLineNumberTable(), createStartVertex, createExitvertex, createBackEdge);
+		Map<String, Object> attr = getInstructionList(classPath, packageName, className, methodName, methodSig);
+		return generateSourceCodeGraph(getInstructions(attr), getLineNumberTable(attr), createStartVertex, createExitvertex, createBackEdge);
 
 	}
 
@@ -593,7 +638,6 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 	 * @throws ControlFlowGraphException if the graph could not be created.
 	 * @throws IOException if the class file could not be opened.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<IDirectedGraphExt> generateSourceCodeGraphs (
 			List<String> classList,
 			String[] classPath, 
@@ -607,32 +651,13 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 
 		for(String l: classList){
 
-			InputStream in = JavaLangUtils.findResource(classPath, packageName, l);
-			if(in == null){
+			byte[] bytes = JavaLangUtils.findClassBytes(classPath, packageName, l);
+			if(bytes == null){
 				throw new ControlFlowGraphException(ControlFlowGraphGenerator.class.getSimpleName() + ": Class '" + l +"' not found in the CLASSPATH.");//$NON-NLS-1$
 			}
 
-			if (!(in instanceof BufferedInputStream)) {
-				/* buffer only if necessary */
-				in = new BufferedInputStream(in);
-			}
-			
-			
-	        AllCodeVisitor codeVisitor = new AllCodeVisitor();
-	        MethodFilteringVisitor classVisitor = new MethodFilteringVisitor(codeVisitor);
-	        ClassReader cr = new ClassReader(in, classVisitor);
-	        cr.accept(classVisitor, 0);
-	        
-	        for (Map<String, Object> attr : codeVisitor.getInstructionLists()) {
-	        	List<AbstractInstruction> instructions = (List<AbstractInstruction>) attr.get(ByteCodeConstants.CODE);
-	        	LineNumberTableEntry[] lineNumberTable = (LineNumberTableEntry[]) attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
-	        	
-	        	IDirectedGraphExt cfg = ControlFlowGraphGenerator.generateSourceCodeGraph(instructions, lineNumberTable, createStartVertex, createExitvertex, createBackEdge);
-				cfg.getUserObject().put(ByteCodeConstants.NAME, attr.get(ByteCodeConstants.NAME));
-				cfg.getUserObject().put(ByteCodeConstants.DESCRIPTOR, attr.get(ByteCodeConstants.DESCRIPTOR));
-				cfg.getUserObject().put(ByteCodeConstants.Class_retrieved_from, l); /* set class reference */
-
-				graphs.add(cfg);
+	        for (Map<String, Object> attr : AnalysisCache.getDefault().getDecodedMethods(bytes).values()) {
+				graphs.add(generateSourceCodeGraph(attr, l, createStartVertex, createExitvertex, createBackEdge));
 			}
 
 		}
@@ -641,6 +666,42 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 		return graphs;
 	}
 
+	/**
+	 * Generates the source code graph of a decoded method, see
+	 * {@link AnalysisCache#getDecodedMethods(byte[])}. The method name, the
+	 * descriptor, the content hash of the code attribute and the class
+	 * name are stored in the user object of the graph.
+	 * 
+	 * @param method the attributes of the decoded method
+	 * @param className the name of the class
+	 * @param createStartVertex <code>true</code> if the virtual start vertex has to be created, <code>false</code> otherwise
+	 * @param createExitvertex <code>true</code> if the virtual exit vertex has to be created, <code>false</code> otherwise
+	 * @param createBackEdge <code>true</code> if the virtual back edge has to be created, <code>false</code> otherwise
+	 * @return the graph
+	 * @throws ControlFlowGraphException if the graph could not be created.
+	 * @throws IOException if the instructions could not be read.
+	 */
+	@SuppressWarnings("unchecked")
+	public static IDirectedGraphExt generateSourceCodeGraph(
+			Map<String, Object> method,
+			String className,
+			boolean createStartVertex,
+			boolean createExitvertex,
+			boolean createBackEdge) 
+	throws ControlFlowGraphException, IOException 
+	{
+		List<AbstractInstruction> instructions = (List<AbstractInstruction>) method.get(ByteCodeConstants.CODE);
+		LineNumberTableEntry[] lineNumberTable = (LineNumberTableEntry[]) method.get(ByteCodeConstants.LINE_NUMBER_TABLE);
+
+		IDirectedGraphExt cfg = generateSourceCodeGraph(instructions, lineNumberTable, createStartVertex, createExitvertex, createBackEdge);
+		cfg.getUserObject().put(ByteCodeConstants.NAME, method.get(ByteCodeConstants.NAME));
+		cfg.getUserObject().put(ByteCodeConstants.DESCRIPTOR, method.get(ByteCodeConstants.DESCRIPTOR));
+		cfg.getUserObject().put(ByteCodeConstants.CODE_HASH, method.get(ByteCodeConstants.CODE_HASH));
+		cfg.getUserObject().put(ByteCodeConstants.Class_retrieved_from, className); /* set class reference */
+
+		return cfg;
+	}
+
 	 
 	/**
 	 * Generates a basic block graph graph from an instruction list.
@@ -660,14 +721,65 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			boolean createBackEdge) 
 	throws ControlFlowGraphException, IOException
 	{	
-		IDirectedGraphExt graph = generateControlFlowGraph(instructions, null, false, false, false);
-		
-		/* find basic blocks */
-		GraphUtils.clearGraph(graph);
-		BasicBlockGraphVisitor basicBlockVisitor = new BasicBlockGraphVisitor();
-		basicBlockVisitor.start(graph);
+		return generateBasicBlockGraph(instructions, null, lineNumberTable, createStartVertex, createExitVertex, createBackEdge, false);
+	}
 
-		IDirectedGraphExt basicBlockGraph = basicBlockVisitor.getBasicBlockGraph();
+	/**
+	 * Generates a basic block graph graph from an instruction list.
+	 * The basic blocks are created directly from the instructions,
+	 * the control flow graph of the instructions is not created.
+	 * The starts of the exception handlers begin new basic blocks.
+	 * @param instructions the instruction list
+	 * @param exceptionTable the exception table or <code>null</code>
+	 * @param lineNumberTable the line number table
+	 * @param createStartVertex <code>true</code> if the virtual start vertex has to be created, <code>false</code> otherwise
+	 * @param createExitvertex <code>true</code> if the virtual exit vertex has to be created, <code>false</code> otherwise
+	 * @param createBackEdge <code>true</code> if the virtual back edge has to be created, <code>false</code> otherwise
+	 * @return the control flow graph
+	 * @throws ControlFlowGraphException if the graph could not be created.
+	 * @throws IOException if the class file could not be opened.
+	 */
+	public static IDirectedGraphExt generateBasicBlockGraph(List<AbstractInstruction> instructions,
+			ExceptionTableEntry[] exceptionTable,
+			LineNumberTableEntry[] lineNumberTable,
+			boolean createStartVertex,
+			boolean createExitVertex,
+			boolean createBackEdge) 
+	throws ControlFlowGraphException, IOException
+	{	
+		return generateBasicBlockGraph(instructions, exceptionTable, lineNumberTable, createStartVertex, createExitVertex, createBackEdge, false);
+	}
+
+	/**
+	 * Generates a basic block graph graph from an instruction list.
+	 * If <code>createExceptionEdges</code> is set, the start and the end
+	 * of the ranges of the exception table begin new basic blocks and 
+	 * an exception edge of the type {@link IEdgeType#EDGE_TYPE_EXCEPTION}
+	 * is created from each covered basic block to the handler.
+	 * @param instructions the instruction list
+	 * @param exceptionTable the exception table or <code>null</code>
+	 * @param lineNumberTable the line number table
+	 * @param createStartVertex <code>true</code> if the virtual start vertex has to be created, <code>false</code> otherwise
+	 * @param createExitvertex <code>true</code> if the virtual exit vertex has to be created, <code>false</code> otherwise
+	 * @param createBackEdge <code>true</code> if the virtual back edge has to be created, <code>false</code> otherwise
+	 * @param createExceptionEdges <code>true</code> if the exception edges have to be created, <code>false</code> otherwise
+	 * @return the control flow graph
+	 * @throws ControlFlowGraphException if the graph could not be created.
+	 * @throws IOException if the class file could not be opened.
+	 */
+	public static IDirectedGraphExt generateBasicBlockGraph(List<AbstractInstruction> instructions,
+			ExceptionTableEntry[] exceptionTable,
+			LineNumberTableEntry[] lineNumberTable,
+			boolean createStartVertex,
+			boolean createExitVertex,
+			boolean createBackEdge,
+			boolean createExceptionEdges) 
+	throws ControlFlowGraphException, IOException
+	{	
+		if(!(instructions instanceof RandomAccess)){
+			instructions = new ArrayList<AbstractInstruction>(instructions);
+		}
+		IDirectedGraphExt basicBlockGraph = createBasicBlockGraph(instructions, exceptionTable, createExceptionEdges);
 
 		int nodeWeigth = 48;
 		int nodeHeight = 36;
@@ -691,7 +803,7 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			/* create edges to all exit vertices */
 			for(int i = 0; i < nodes.size(); i++){
 				INodeExt n = nodes.getNodeExt(i);
-				if(n.getOutgoingEdgeList().size() == 0){
+				if(!hasNormalOutgoingEdges(n)){
 					/* create an edge */
 					edges.add(GraphExtentionFactory.createEdgeExtention(n, exitNode));
 				}
@@ -767,8 +879,8 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			
 	throws ControlFlowGraphException, IOException
 	{
-		FilteringCodeVisitor codeVisitor = getInstructionList(classPath, packageName, className, methodName, methodSig);
-		return ControlFlowGraphGenerator.generateBasicBlockGraph(codeVisitor.getInstructions(), codeVisitor.getLineNumberTable(), createStartVertex, createExitvertex, createBackEdge);
+		Map<String, Object> attr = getInstructionList(classPath, packageName, className, methodName, methodSig);
+		return ControlFlowGraphGenerator.generateBasicBlockGraph(getInstructions(attr), getExceptionTable(attr), getLineNumberTable(attr), createStartVertex, createExitvertex, createBackEdge);
 	}
 	
 	/**
@@ -788,56 +900,119 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 	}
 	
 	/**
-	 * Returns instruction list. 
+	 * Returns a code visitor instance for the class file bytes.
+	 * The bytes are parsed in place.
+	 * @param bytes the class file
+	 * @return codeVisitor
+	 */
+	public static AllCodeVisitor getClassFileVisitor(byte[] bytes) {
+		AllCodeVisitor codeVisitor = new AllCodeVisitor();
+        MethodFilteringVisitor classVisitor = new MethodFilteringVisitor(codeVisitor);
+        ClassReader cr = new ClassReader(bytes, classVisitor);
+        cr.accept(classVisitor, 0);
+        
+        return codeVisitor;
+	}
+	
+	/**
+	 * Returns the decoded method. The class is decoded only
+	 * if it is not in the {@link AnalysisCache}.
 	 * @param classPath
 	 * @param packageName
 	 * @param className
 	 * @param methodName
 	 * @param methodSig
-	 * @return instructions
+	 * @return the attributes of the method
 	 * @throws ControlFlowGraphException
 	 * @throws IOException
 	 */
-	private static FilteringCodeVisitor getInstructionList(String classPath[],
+	private static Map<String, Object> getInstructionList(String classPath[],
 			String packageName,
 			String className,
 			String methodName,
 			String methodSig) 
 	throws ControlFlowGraphException, IOException
 	{
-		InputStream in = JavaLangUtils.findResource(classPath, packageName, className);
-		if(in == null){
+		byte[] bytes = JavaLangUtils.findClassBytes(classPath, packageName, className);
+		if(bytes == null){
 			String msg = "Class '" + className +"' not found in the CLASSPATH.";
 			throw new ControlFlowGraphException(msg);
 		}
 		
-		if (!(in instanceof BufferedInputStream)) {
-			/* buffer only if necessary */
-			in = new BufferedInputStream(in);
-		}
-		
-		
-        FilteringCodeVisitor codeVisitor = new FilteringCodeVisitor(methodName, methodSig);
-        MethodFilteringVisitor classVisitor = new MethodFilteringVisitor(codeVisitor);
-        ClassReader cr = new ClassReader(in, classVisitor);
-        cr.accept(classVisitor, 0);
-		if (codeVisitor.getInstructions() == null) {
+		Map<String, Object> attr = AnalysisCache.getDefault().getDecodedMethod(bytes, methodName, methodSig);
+		if (attr == null) {
 			throw new ControlFlowGraphException(
 					"ControlFlowGraphGenerator: can't get method info of the "
 							+ methodName + methodSig);
 
 		}
 		
-		return codeVisitor;
+		return attr;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<AbstractInstruction> getInstructions(Map<String, Object> attr) {
+		return (List<AbstractInstruction>) attr.get(ByteCodeConstants.CODE);
+	}
+
+	private static ExceptionTableEntry[] getExceptionTable(Map<String, Object> attr) {
+		return (ExceptionTableEntry[]) attr.get(ByteCodeConstants.EXCEPTION_TABLE);
+	}
+
+	private static LineNumberTableEntry[] getLineNumberTable(Map<String, Object> attr) {
+		return (LineNumberTableEntry[]) attr.get(ByteCodeConstants.LINE_NUMBER_TABLE);
 	}
 
+	/**
+	 * Creates an empty table for mapping the bytecode offsets 
+	 * of the instructions to the graph nodes.
+	 * @param instructions random access list of instructions
+	 * @return the table indexed by the bytecode offset
+	 */
+	private static INodeExt[] createNodeTable(List<AbstractInstruction> instructions){
+		return new INodeExt[getCodeLength(instructions)];
+	}
+	
+	/**
+	 * Returns the length of the code, i.e. an upper bound
+	 * of the bytecode offsets of the instructions.
+	 * @param instructions random access list of instructions
+	 * @return the length
+	 */
+	private static int getCodeLength(List<AbstractInstruction> instructions){
+		if(instructions instanceof InstructionStream){
+			return ((InstructionStream)instructions).getCodeLength();
+		}
+		
+		int maxOffset = -1;
+		for(int i = 0; i < instructions.size(); i++){
+			maxOffset = Math.max(maxOffset, instructions.get(i).getOffset());
+		}
+		
+		return maxOffset + 1;
+	}
+	
+	/**
+	 * Returns the node for the given bytecode offset.
+	 * @param nodeTable the table created by {@link #createNodeTable(List)}
+	 * @param offset the bytecode offset
+	 * @return the node or <code>null</code> if there is no instruction at the offset
+	 */
+	private static INodeExt getNode(INodeExt[] nodeTable, int offset){
+		if(offset < 0 || offset >= nodeTable.length){
+			return null;
+		}
+		
+		return nodeTable[offset];
+	}
+	
 	/**
 	 * Parse instruction list and generates the list of edges for the control flow graph.
-	 * @param instructions
+	 * @param instructions random access list of instructions
 	 * @param edges
-	 * @param hashTable
+	 * @param nodeTable the table created by {@link #createNodeTable(List)}
 	 */
-	private  static void parseInstructionList(List<AbstractInstruction> instructions, IEdgeListExt edges, HashMap<Integer, INodeExt> hashTable){
+	private  static void parseInstructionList(List<AbstractInstruction> instructions, IEdgeListExt edges, INodeExt[] nodeTable){
 		
 		AbstractInstruction currentInstruction = null;
 
@@ -862,24 +1037,11 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 				int   defaultOffset = tableSwitchInstruction.getDefaultOffset();
 
 				/* get node reference */
-				Integer startVertex = new Integer(start);
-				INodeExt startNode= hashTable.get(startVertex);
+				INodeExt startNode= getNode(nodeTable, start);
 				
 				int low = tableSwitchInstruction.getLow();
 				
-				StringBuffer buf = new StringBuffer();
-//				buf.append(startNode.getByteCodeString());
-				for(int off = 0; off < switchOffsets.length; off++){
-					buf.append("      ");
-					buf.append(String.valueOf(low + off));
-					buf.append(" => ");
-					buf.append(switchOffsets[off] + start);
-					buf.append("\n");
-				}
-				buf.append("      default: ");
-				buf.append(defaultOffset + start);
-				
-				startNode.setLongDescr(buf.toString());				
+				startNode.setLongDescr(createSwitchDescription(tableSwitchInstruction));				
 				
 				/* insert switch arcs */
 				Integer switchVertex = null;
@@ -888,18 +1050,18 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 				for(int j = 0; j < switchOffsets.length; j++){
 					/* switch offsets are relative */
 					switchVertex = new Integer((switchOffsets[j] + start));
-					newEdge = GraphExtentionFactory.createEdgeExtention(startNode, hashTable.get(switchVertex));
+					newEdge = GraphExtentionFactory.createEdgeExtention(startNode, getNode(nodeTable, switchVertex));
 					newEdge.setData(String.valueOf(low + j)); /* set Text label */
 					edges.add(newEdge);      	     			
-					if(debug) debug("addArc: source=" + startVertex + " target=" + switchVertex); 
+					if(debug) debug("addArc: source=" + start + " target=" + switchVertex); 
 				}                  
 
 				/* default */
 				switchVertex = new Integer((defaultOffset + start));
-				newEdge = GraphExtentionFactory.createEdgeExtention(startNode, hashTable.get(switchVertex));
+				newEdge = GraphExtentionFactory.createEdgeExtention(startNode, getNode(nodeTable, switchVertex));
 				newEdge.setData("default"); /*set text label */
 				edges.add(newEdge);  
-				if(debug) debug("default addArc: source=" + startVertex + " target=" + switchVertex);
+				if(debug) debug("default addArc: source=" + start + " target=" + switchVertex);
 				
 				if(i < instructions.size()){
 					currentInstruction = (AbstractInstruction)instructions.get(i);
@@ -918,46 +1080,29 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 				int   defaultOffset = lookupSwitchInstruction.getDefaultOffset(); 
 
 				/* get node reference */
-				Integer startVertex = new Integer(start);
-				INodeExt startNode= hashTable.get(startVertex);
+				INodeExt startNode= getNode(nodeTable, start);
 				
 				
 				
-				StringBuffer buf = new StringBuffer();
-//				buf.append(startNode.getByteCodeString());
-//				buf.append("\n");
-				for(MatchOffsetEntry e: matchOffsetPairs){
-					buf.append("      ");
-					buf.append(e.getMatch());
-					buf.append(" => ");
-					
-					int val = e.getOffset();
-					buf.append(String.valueOf(val + start));
-					buf.append("\n");
-					
-				}
-				buf.append("      default: ");
-				buf.append(defaultOffset + start);
-				
-				startNode.setLongDescr(buf.toString());
+				startNode.setLongDescr(createSwitchDescription(lookupSwitchInstruction));
 				
 				Integer offsetVertex = null;
 				IEdgeExt newEdge;
 				for (int k = 0; k < matchOffsetPairs.size(); k++) {
 					MatchOffsetEntry matchOffsetEntry = (MatchOffsetEntry)matchOffsetPairs.get(k);
 					offsetVertex = new Integer(matchOffsetEntry.getOffset() + start);
-					newEdge = GraphExtentionFactory.createEdgeExtention(startNode, hashTable.get(offsetVertex));
+					newEdge = GraphExtentionFactory.createEdgeExtention(startNode, getNode(nodeTable, offsetVertex));
 					newEdge.setData(String.valueOf(matchOffsetEntry.getMatch()));/* set text label */
 					edges.add(newEdge);         
-					if(debug) debug("default addArc: source=" + startVertex + " target=" + offsetVertex);               
+					if(debug) debug("default addArc: source=" + start + " target=" + offsetVertex);               
 				}
 
 				/* default off*/
 				offsetVertex = new Integer((defaultOffset + start));
-				newEdge = GraphExtentionFactory.createEdgeExtention(startNode, hashTable.get(offsetVertex));
+				newEdge = GraphExtentionFactory.createEdgeExtention(startNode, getNode(nodeTable, offsetVertex));
 				newEdge.setData("default");
 				edges.add(newEdge); 
-				if(debug) debug("default addArc: source=" + startVertex + " target=" + offsetVertex);
+				if(debug) debug("default addArc: source=" + start + " target=" + offsetVertex);
 				
 				if(i < instructions.size()){
 					currentInstruction = (AbstractInstruction)instructions.get(i);
@@ -985,7 +1130,7 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 				 */
 				Integer branchIntruction = new Integer((((BranchInstruction)currentInstruction).getBranchOffset()
 						+ ((BranchInstruction)currentInstruction).getOffset()));
-				IEdgeExt newEdge = GraphExtentionFactory.createEdgeExtention(hashTable.get(start), hashTable.get(branchIntruction));
+				IEdgeExt newEdge = GraphExtentionFactory.createEdgeExtention(getNode(nodeTable, start), getNode(nodeTable, branchIntruction));
 				edges.add(newEdge);				
 				if(debug) debug("addArc: source=" + start + " target=" + branchIntruction); 
 
@@ -993,7 +1138,7 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 				if(!ControlFlowGraphUtils.isJumpInstruction(currentInstruction.getOpcode())){
 					newEdge.setData("true");
 					currentInstruction = (AbstractInstruction)instructions.get(i);
-					newEdge = GraphExtentionFactory.createEdgeExtention(hashTable.get(start), hashTable.get(currentInstruction.getOffset()));
+					newEdge = GraphExtentionFactory.createEdgeExtention(getNode(nodeTable, start), getNode(nodeTable, currentInstruction.getOffset()));
 					newEdge.setData("false");
 					edges.add(newEdge);				
 					if(debug) debug("addArc: source=" + start + " target=" + currentInstruction.getOffset());		
@@ -1030,7 +1175,7 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 				Integer start = new Integer(currentInstruction.getOffset());
 				currentInstruction = (AbstractInstruction)instructions.get(i);
 			
-				edges.add(GraphExtentionFactory.createEdgeExtention(hashTable.get(start), hashTable.get(currentInstruction.getOffset())));				
+				edges.add(GraphExtentionFactory.createEdgeExtention(getNode(nodeTable, start), getNode(nodeTable, currentInstruction.getOffset())));				
 				if(debug) debug("addArc: source=" + start + " target=" + currentInstruction.getOffset());
 				
 				/* to the begin of the loop */
@@ -1054,7 +1199,7 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 			 */
 			Integer branchIntruction = new Integer((((BranchInstruction)currentInstruction).getBranchOffset()
 					+ ((BranchInstruction)currentInstruction).getOffset()));
-			IEdgeExt newEdge = GraphExtentionFactory.createEdgeExtention(hashTable.get(start), hashTable.get(branchIntruction));
+			IEdgeExt newEdge = GraphExtentionFactory.createEdgeExtention(getNode(nodeTable, start), getNode(nodeTable, branchIntruction));
 			edges.add(newEdge);				
 			if(debug) debug("addArc: source=" + start + " target=" + branchIntruction); 
 
@@ -1063,6 +1208,324 @@ public class ControlFlowGraphGenerator  implements Opcodes{
 	}
 
 	
+	/**
+	 * Creates the description of the switch targets of a table switch instruction.
+	 * @param instruction the instruction
+	 * @return the description
+	 */
+	private static String createSwitchDescription(TableSwitchInstruction instruction){
+		int start = instruction.getOffset();
+		int[] switchOffsets = instruction.getJumpOffsets();
+		int low = instruction.getLow();
+
+		StringBuffer buf = new StringBuffer();
+		for(int off = 0; off < switchOffsets.length; off++){
+			buf.append("      ");
+			buf.append(String.valueOf(low + off));
+			buf.append(" => ");
+			buf.append(switchOffsets[off] + start);
+			buf.append("\n");
+		}
+		buf.append("      default: ");
+		buf.append(instruction.getDefaultOffset() + start);
+
+		return buf.toString();
+	}
+
+	/**
+	 * Creates the description of the switch targets of a lookup switch instruction.
+	 * @param instruction the instruction
+	 * @return the description
+	 */
+	private static String createSwitchDescription(LookupSwitchInstruction instruction){
+		int start = instruction.getOffset();
+
+		StringBuffer buf = new StringBuffer();
+		for(MatchOffsetEntry e: instruction.getMatchOffsetPairs()){
+			buf.append("      ");
+			buf.append(e.getMatch());
+			buf.append(" => ");
+			buf.append(String.valueOf(e.getOffset() + start));
+			buf.append("\n");
+		}
+		buf.append("      default: ");
+		buf.append(instruction.getDefaultOffset() + start);
+
+		return buf.toString();
+	}
+
+	/**
+	 * Creates the basic block graph from an instruction list. The leaders,
+	 * i.e. the first instructions of the basic blocks, are computed in one
+	 * scan of the instructions:
+	 * <ul>
+	 *   <li>the first instruction,</li>
+	 *   <li>the targets of the branch and switch instructions,</li>
+	 *   <li>the instructions following a branch, switch, return or athrow instruction,</li>
+	 *   <li>the starts of the exception handlers.</li>
+	 * </ul>
+	 * The basic blocks are numbered in the order of the bytecode offsets.
+	 * The edges are created from the last instruction of each basic block
+	 * with the same labels as in the control flow graph. The vertices of
+	 * the basic blocks have no edges, the control flow graph of the
+	 * instructions is not created.
+	 * @param instructions random access list of instructions
+	 * @param exceptionTable the exception table or <code>null</code>
+	 * @param createExceptionEdges <code>true</code> if the exception edges have to be created
+	 * @return the basic block graph
+	 */
+	static IDirectedGraphExt createBasicBlockGraph(List<AbstractInstruction> instructions, 
+			ExceptionTableEntry[] exceptionTable, boolean createExceptionEdges){
+		IDirectedGraphExt graph = GraphExtentionFactory.createDirectedGraphExtention();
+		if(instructions.size() == 0){
+			return graph;
+		}
+
+		int codeLength = getCodeLength(instructions);
+		createExceptionEdges = createExceptionEdges && exceptionTable != null;
+		BitSet leaders = findLeaders(instructions, codeLength, exceptionTable, createExceptionEdges);
+
+		/* create the basic blocks */
+		INodeListExt nodes = graph.getNodeList();
+		IBasicBlock[] blockTable = new IBasicBlock[codeLength];
+		List<AbstractInstruction> lastInstructions = new ArrayList<AbstractInstruction>();
+		IBasicBlock bb = null;
+		for(int i = 0; i < instructions.size(); i++){
+			AbstractInstruction instruction = instructions.get(i);
+			int offset = instruction.getOffset();
+			if(leaders.get(offset)){
+				bb = GraphExtentionFactory.createBasicBlock();
+				bb.setData("B" + (nodes.size() + 1));
+				nodes.add(bb);
+				blockTable[offset] = bb;
+			}
+
+			INodeExt node = GraphExtentionFactory.createNodeExtention(null);
+			node.setByteCodeOffset(offset);
+			node.setByteCodeString(instruction.getOpcodeMnemonic());
+			node.setVertexType(ControlFlowGraphUtils.getInstructionNodeType(instruction.getOpcode()));
+			if (instruction instanceof TableSwitchInstruction){
+				node.setLongDescr(createSwitchDescription((TableSwitchInstruction)instruction));
+			}
+			else if (instruction instanceof LookupSwitchInstruction){
+				node.setLongDescr(createSwitchDescription((LookupSwitchInstruction)instruction));
+			}
+			node.setBasicBlockReference(bb);
+			bb.addVertex(node);
+
+			if(i + 1 == instructions.size() || leaders.get(instructions.get(i + 1).getOffset())){
+				lastInstructions.add(instruction);
+			}
+		}
+
+		/* create the edges */
+		IEdgeListExt edges = graph.getEdgeList();
+		for(int k = 0; k < nodes.size(); k++){
+			INodeExt source = nodes.getNodeExt(k);
+			INodeExt next = k + 1 < nodes.size() ? nodes.getNodeExt(k + 1) : null;
+			AbstractInstruction instruction = lastInstructions.get(k);
+			int start = instruction.getOffset();
+
+			if (instruction instanceof TableSwitchInstruction){
+				TableSwitchInstruction tableSwitchInstruction = (TableSwitchInstruction)instruction;
+				int[] switchOffsets = tableSwitchInstruction.getJumpOffsets();
+				int low = tableSwitchInstruction.getLow();
+				for(int j = 0; j < switchOffsets.length; j++){
+					addBasicBlockEdge(edges, source, blockTable, switchOffsets[j] + start, String.valueOf(low + j));
+				}
+				addBasicBlockEdge(edges, source, blockTable, tableSwitchInstruction.getDefaultOffset() + start, "default");
+			}
+			else if (instruction instanceof LookupSwitchInstruction){
+				LookupSwitchInstruction lookupSwitchInstruction = (LookupSwitchInstruction)instruction;
+				for(MatchOffsetEntry e: lookupSwitchInstruction.getMatchOffsetPairs()){
+					addBasicBlockEdge(edges, source, blockTable, e.getOffset() + start, String.valueOf(e.getMatch()));
+				}
+				addBasicBlockEdge(edges, source, blockTable, lookupSwitchInstruction.getDefaultOffset() + start, "default");
+			}
+			else if (instruction instanceof BranchInstruction){
+				int target = ((BranchInstruction)instruction).getBranchOffset() + start;
+				if(ControlFlowGraphUtils.isJumpInstruction(instruction.getOpcode())){
+					addBasicBlockEdge(edges, source, blockTable, target, null);
+				}
+				else if(next != null){
+					addBasicBlockEdge(edges, source, blockTable, target, "true");
+					addBasicBlockEdge(edges, source, next, "false");
+				}
+			}
+			else if(!ControlFlowGraphUtils.isReturn(instruction.getOpcode()) && next != null){
+				/* fall through */
+				addBasicBlockEdge(edges, source, next, null);
+			}
+		}
+
+		if(createExceptionEdges){
+			addExceptionEdges(edges, blockTable, leaders, exceptionTable);
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Finds the leaders, i.e. the first instructions of the basic blocks.
+	 * @param instructions random access list of instructions
+	 * @param codeLength the length of the code
+	 * @param exceptionTable the exception table or <code>null</code>
+	 * @param splitTryBlocks <code>true</code> if the start and the end of the
+	 *          ranges of the exception table have to be leaders as well
+	 * @return the leaders by bytecode offset
+	 */
+	static BitSet findLeaders(List<AbstractInstruction> instructions, int codeLength,
+			ExceptionTableEntry[] exceptionTable, boolean splitTryBlocks){
+		BitSet leaders = new BitSet(codeLength);
+		leaders.set(instructions.get(0).getOffset());
+		for(int i = 0; i < instructions.size(); i++){
+			AbstractInstruction instruction = instructions.get(i);
+			if(markBranchTargets(instruction, leaders, codeLength) && i + 1 < instructions.size()){
+				leaders.set(instructions.get(i + 1).getOffset());
+			}
+		}
+
+		if(exceptionTable != null){
+			for(ExceptionTableEntry entry: exceptionTable){
+				markLeader(leaders, entry.getHandlerPc(), codeLength);
+				if(splitTryBlocks){
+					markLeader(leaders, entry.getStartPc(), codeLength);
+					markLeader(leaders, entry.getEndPc(), codeLength);
+				}
+			}
+		}
+
+		return leaders;
+	}
+
+	/**
+	 * Creates the exception edges from the nodes covered by the exception
+	 * table entries to the handlers. An edge is created from each leader in 
+	 * the range of an entry, the start of the range has to be a leader.
+	 * Only one exception edge is created between two nodes.
+	 * @param edges the edge list
+	 * @param nodeTable the nodes by bytecode offset, e.g. the instructions 
+	 *          or the basic blocks by the offset of the first instruction
+	 * @param leaders the leaders by bytecode offset
+	 * @param exceptionTable the exception table
+	 */
+	private static void addExceptionEdges(IEdgeListExt edges, INodeExt[] nodeTable, 
+			BitSet leaders, ExceptionTableEntry[] exceptionTable){
+		for(ExceptionTableEntry entry: exceptionTable){
+			INodeExt handler = getNode(nodeTable, entry.getHandlerPc());
+			if(handler == null){
+				continue;
+			}
+
+			for(int offset = leaders.nextSetBit(entry.getStartPc()); 
+					offset >= 0 && offset < entry.getEndPc();
+					offset = leaders.nextSetBit(offset + 1)){
+				INodeExt source = getNode(nodeTable, offset);
+				if(source == null || hasExceptionEdge(source, handler)){
+					continue;
+				}
+
+				IEdgeExt edge = GraphExtentionFactory.createEdgeExtention(source, handler);
+				edge.setEdgeType(IEdgeType.EDGE_TYPE_EXCEPTION);
+				edges.add(edge);
+			}
+		}
+	}
+
+	private static boolean hasExceptionEdge(INodeExt source, INodeExt target){
+		IEdgeListExt out = source.getOutgoingEdgeList();
+		for(int i = 0; i < out.size(); i++){
+			IEdgeExt e = out.getEdgeExt(i);
+			if(e.getTarget() == target && e.getEdgeType() == IEdgeType.EDGE_TYPE_EXCEPTION){
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code> if the node has an outgoing
+	 * edge which is not an exception edge.
+	 * @param node the node
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	private static boolean hasNormalOutgoingEdges(INodeExt node){
+		IEdgeListExt out = node.getOutgoingEdgeList();
+		for(int i = 0; i < out.size(); i++){
+			if(out.getEdgeExt(i).getEdgeType() != IEdgeType.EDGE_TYPE_EXCEPTION){
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Marks the targets of a branch or switch instruction as leaders.
+	 * @param instruction the instruction
+	 * @param leaders the leaders by bytecode offset
+	 * @param codeLength the length of the code
+	 * @return <code>true</code> if the instruction ends a basic block, 
+	 *          i.e. it is a branch, switch, return or athrow instruction
+	 */
+	private static boolean markBranchTargets(AbstractInstruction instruction, BitSet leaders, int codeLength){
+		int start = instruction.getOffset();
+		if (instruction instanceof TableSwitchInstruction){
+			TableSwitchInstruction tableSwitchInstruction = (TableSwitchInstruction)instruction;
+			for(int offset: tableSwitchInstruction.getJumpOffsets()){
+				markLeader(leaders, offset + start, codeLength);
+			}
+			markLeader(leaders, tableSwitchInstruction.getDefaultOffset() + start, codeLength);
+			return true;
+		}
+		else if (instruction instanceof LookupSwitchInstruction){
+			LookupSwitchInstruction lookupSwitchInstruction = (LookupSwitchInstruction)instruction;
+			for(MatchOffsetEntry e: lookupSwitchInstruction.getMatchOffsetPairs()){
+				markLeader(leaders, e.getOffset() + start, codeLength);
+			}
+			markLeader(leaders, lookupSwitchInstruction.getDefaultOffset() + start, codeLength);
+			return true;
+		}
+		else if (instruction instanceof BranchInstruction){
+			markLeader(leaders, ((BranchInstruction)instruction).getBranchOffset() + start, codeLength);
+			return true;
+		}
+
+		return ControlFlowGraphUtils.isReturn(instruction.getOpcode());
+	}
+
+	private static void markLeader(BitSet leaders, int offset, int codeLength){
+		if(offset >= 0 && offset < codeLength){
+			leaders.set(offset);
+		}
+	}
+
+	/**
+	 * Creates an edge from the basic block to the basic block starting at the offset.
+	 * @param edges the edge list
+	 * @param source the source basic block
+	 * @param blockTable the basic blocks by the offset of the first instruction
+	 * @param offset the target offset
+	 * @param label the label of the edge or <code>null</code>
+	 */
+	private static void addBasicBlockEdge(IEdgeListExt edges, INodeExt source, IBasicBlock[] blockTable, int offset, String label){
+		if(offset < 0 || offset >= blockTable.length || blockTable[offset] == null){
+			if(debug) debug("no instruction at the branch target " + offset);//$NON-NLS-1$
+			return;
+		}
+
+		addBasicBlockEdge(edges, source, blockTable[offset], label);
+	}
+
+	private static void addBasicBlockEdge(IEdgeListExt edges, INodeExt source, INodeExt target, String label){
+		IEdgeExt edge = GraphExtentionFactory.createEdgeExtention(source, target);
+		if(label != null){
+			edge.setData(label);
+		}
+		edges.add(edge);
+	}
+	
 	/**
 	 * Create key of the edge.
 	 * @param sourceNode vertex object
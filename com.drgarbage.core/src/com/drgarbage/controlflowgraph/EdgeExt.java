@@ -20,6 +20,7 @@ import org.eclipse.draw2d.graph.Edge;
 import org.eclipse.draw2d.graph.Node;
 
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
+import com.drgarbage.controlflowgraph.intf.IEdgeType;
 import com.drgarbage.controlflowgraph.intf.INodeExt;
 import com.drgarbage.controlflowgraph.intf.MarkEnum;
 
@@ -38,6 +39,8 @@ public class EdgeExt extends Edge implements IEdgeExt {
 	private MarkEnum mark = MarkEnum.DEFAULT;
 	private int counter;
 
+	private int edgeType = IEdgeType.EDGE_TYPE_SIMPLE;
+
 	/**
 	 * Constructs a new edge extention object with the given source and target nodes.  
 	 * All other fields will have their default values.
@@ -127,6 +130,20 @@ public class EdgeExt extends Edge implements IEdgeExt {
 		this.counter++;
 	}
 
+	/* (non-Javadoc)
+	 * @see com.drgarbage.controlflowgraph.intf.IEdgeExt#getEdgeType()
+	 */
+	public int getEdgeType() {
+		return edgeType;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.drgarbage.controlflowgraph.intf.IEdgeExt#setEdgeType(int)
+	 */
+	public void setEdgeType(int type) {
+		edgeType = type;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
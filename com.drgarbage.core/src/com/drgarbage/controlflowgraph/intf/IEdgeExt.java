@@ -100,4 +100,18 @@ public interface IEdgeExt {
 	 */
 	public void incrementCounter();
 
+	/**
+	 * Returns the type of the edge.
+	 * @return the type
+	 * @see IEdgeType
+	 */
+	public int getEdgeType();
+
+	/**
+	 * Sets the type of the edge.
+	 * @param type the type
+	 * @see IEdgeType
+	 */
+	public void setEdgeType(int type);
+
 }
@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2008-2014, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.controlflowgraph.intf;
+
+/**
+  *  Defines an edge type in the control flow diagram.
+  *  An exception edge leads from a basic block covered by
+  *  an exception table entry to the start of the handler.
+  *
+  *  @version $Revision$
+  *  $Id$
+  */
+public interface IEdgeType {
+	 public static final int EDGE_TYPE_SIMPLE		= 0;
+	 public static final int EDGE_TYPE_EXCEPTION	= 1;
+}
@@ -0,0 +1,420 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.core;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.drgarbage.asm.ClassReader;
+import com.drgarbage.asm.visitor.AllCodeVisitor;
+import com.drgarbage.asm.visitor.MethodFilteringVisitor;
+import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.bytecode.InstructionStream;
+
+/**
+ * Cache of analysis results shared by all editors, views and
+ * generators. The results are keyed by the content hash of the
+ * class file, the method and the kind of the result, so that the
+ * same class opened in the bytecode editor, the source code visualizer
+ * and the graph factory is analyzed only once.
+ * <br>
+ * Every entry has a weight, an estimate of its memory footprint in
+ * bytes. The least recently used entries are evicted as soon as the
+ * total weight exceeds the maximum weight.
+ * <br>
+ * The cached results are shared, they must not be modified. The
+ * decoded methods are returned as unmodifiable maps with copies
+ * of the tables.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class AnalysisCache {
+
+	/**
+	 * Kind of the decoded methods of a class, see {@link #getDecodedMethods(byte[])}.
+	 */
+	public static final String DECODED_METHODS = "decodedMethods";
+
+	/**
+	 * Default maximum weight, 64 MB.
+	 */
+	public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+	/**
+	 * Estimated number of bytes of the decoded methods
+	 * per byte of the class file.
+	 */
+	private static final int DECODED_WEIGHT_FACTOR = 16;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final AnalysisCache defaultCache = new AnalysisCache(DEFAULT_MAX_WEIGHT);
+
+	/**
+	 * Key of an entry.
+	 */
+	private static class Key {
+		private String contentHash;
+		private String method;
+		private String kind;
+
+		Key(String contentHash, String method, String kind) {
+			this.contentHash = contentHash;
+			this.method = method == null ? "" : method;
+			this.kind = kind;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode() {
+			return (contentHash.hashCode() * 31 + method.hashCode()) * 31 + kind.hashCode();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) obj;
+			return contentHash.equals(k.contentHash) && method.equals(k.method) && kind.equals(k.kind);
+		}
+	}
+
+	/**
+	 * Cached value and its weight.
+	 */
+	private static class Entry {
+		private Object value;
+		private long weight;
+
+		Entry(Object value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * Entries in access order, the eldest entry is evicted first.
+	 */
+	private Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true);
+
+	private long weight = 0;
+	private long maxWeight;
+
+	private int hitCount = 0;
+	private int missCount = 0;
+
+	/**
+	 * Creates a cache.
+	 * @param maxWeight the maximum total weight of the entries
+	 */
+	public AnalysisCache(long maxWeight) {
+		super();
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Returns the cache shared by all plugins.
+	 * @return the cache
+	 */
+	public static AnalysisCache getDefault() {
+		return defaultCache;
+	}
+
+	/**
+	 * Computes the content hash of a class file.
+	 * @param classBytes the class file
+	 * @return the SHA-1 hash as hex string
+	 */
+	public static String getContentHash(byte[] classBytes) {
+		return getContentHash(classBytes, 0, classBytes.length);
+	}
+
+	/**
+	 * Computes the content hash of a region of a class file,
+	 * e.g. of the code attribute of a method.
+	 * @param bytes the class file
+	 * @param offset start of the region
+	 * @param length length of the region
+	 * @return the SHA-1 hash as hex string
+	 */
+	public static String getContentHash(byte[] bytes, int offset, int length) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			/* every java platform has to support SHA-1 */
+			throw new IllegalStateException(e);
+		}
+
+		md.update(bytes, offset, length);
+		byte[] digest = md.digest();
+		char[] chars = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			chars[i * 2] = HEX[(digest[i] >> 4) & 0x0F];
+			chars[i * 2 + 1] = HEX[digest[i] & 0x0F];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the key of a method used by the cache.
+	 * @param name the method name
+	 * @param descriptor the method descriptor
+	 * @return the key
+	 */
+	public static String getMethodKey(String name, String descriptor) {
+		return name + descriptor;
+	}
+
+	/**
+	 * Returns a cached result.
+	 * @param contentHash the content hash of the class file
+	 * @param method the method key or <code>null</code> for a result of the whole class
+	 * @param kind the kind of the result
+	 * @return the result or <code>null</code> if it is not cached
+	 */
+	public synchronized Object get(String contentHash, String method, String kind) {
+		Entry e = entries.get(new Key(contentHash, method, kind));
+		if (e == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return e.value;
+	}
+
+	/**
+	 * Stores a result. An existing result of the same key is replaced.
+	 * The least recently used entries are evicted if necessary.
+	 * @param contentHash the content hash of the class file
+	 * @param method the method key or <code>null</code> for a result of the whole class
+	 * @param kind the kind of the result
+	 * @param value the result
+	 * @param valueWeight the estimated memory footprint of the result in bytes
+	 */
+	public synchronized void put(String contentHash, String method, String kind,
+			Object value, long valueWeight) {
+		Entry old = entries.put(new Key(contentHash, method, kind), new Entry(value, valueWeight));
+		if (old != null) {
+			weight -= old.weight;
+		}
+		weight += valueWeight;
+		evict();
+	}
+
+	/**
+	 * Removes all results of a class file.
+	 * @param contentHash the content hash of the class file
+	 */
+	public synchronized void remove(String contentHash) {
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Key, Entry> e = it.next();
+			if (e.getKey().contentHash.equals(contentHash)) {
+				weight -= e.getValue().weight;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all results.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Evicts the least recently used entries until the
+	 * total weight does not exceed the maximum weight.
+	 * The most recent entry is kept even if it alone
+	 * exceeds the maximum weight.
+	 */
+	private void evict() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (weight > maxWeight && entries.size() > 1) {
+			Entry e = it.next();
+			weight -= e.weight;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Returns the decoded methods of a class file. The class file
+	 * is decoded only if the result is not cached. Each method is
+	 * described by the attribute map created by {@link AllCodeVisitor}
+	 * which contains the instructions, the exception table, the line number
+	 * table, the local variable tables, the stack map table and the
+	 * content hash of the code attribute.
+	 * <br>
+	 * The maps are unmodifiable and the tables are copies, the
+	 * instruction lists can not be modified.
+	 * @param classBytes the class file
+	 * @return the attribute maps by the method key in the order
+	 *         of the methods in the class file
+	 * @see #getMethodKey(String, String)
+	 */
+	public Map<String, Map<String, Object>> getDecodedMethods(byte[] classBytes) {
+		return getDecodedMethods(getContentHash(classBytes), classBytes);
+	}
+
+	/**
+	 * Returns the decoded methods of a class file.
+	 * @param contentHash the content hash of the class file
+	 * @param classBytes the class file
+	 * @return the attribute maps by the method key
+	 * @see #getDecodedMethods(byte[])
+	 */
+	public Map<String, Map<String, Object>> getDecodedMethods(String contentHash, byte[] classBytes) {
+		Map<String, Map<String, Object>> methods = getCachedDecodedMethods(contentHash, classBytes);
+		Map<String, Map<String, Object>> view = new LinkedHashMap<String, Map<String, Object>>();
+		for (Map.Entry<String, Map<String, Object>> e : methods.entrySet()) {
+			view.put(e.getKey(), createView(e.getValue()));
+		}
+		return Collections.unmodifiableMap(view);
+	}
+
+	/**
+	 * Returns the cached decoded methods of a class file, the class
+	 * file is decoded if necessary. The result must not be passed
+	 * to the callers of the cache.
+	 * @param contentHash the content hash of the class file
+	 * @param classBytes the class file
+	 * @return the attribute maps by the method key
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Map<String, Object>> getCachedDecodedMethods(String contentHash, byte[] classBytes) {
+		Map<String, Map<String, Object>> methods = (Map<String, Map<String, Object>>) get(contentHash, null, DECODED_METHODS);
+		if (methods != null) {
+			return methods;
+		}
+
+		/* decode outside of the lock, a concurrent decode of the same class is harmless */
+		Set<String> attributeNames = new HashSet<String>();
+		attributeNames.add(ByteCodeConstants.LINE_NUMBER_TABLE);
+		attributeNames.add(ByteCodeConstants.LOCAL_VARIABLE_TABLE);
+		attributeNames.add(ByteCodeConstants.LOCAL_VARIABLE_TYPE_TABLE);
+		attributeNames.add(ByteCodeConstants.STACK_MAP_TABLE);
+		AllCodeVisitor codeVisitor = new AllCodeVisitor(attributeNames);
+		MethodFilteringVisitor classVisitor = new MethodFilteringVisitor(codeVisitor);
+		ClassReader cr = new ClassReader(classBytes, classVisitor);
+		cr.accept(classVisitor, 0);
+
+		methods = new LinkedHashMap<String, Map<String, Object>>();
+		for (Map<String, Object> attr : codeVisitor.getInstructionLists()) {
+			String key = getMethodKey((String) attr.get(ByteCodeConstants.NAME),
+					(String) attr.get(ByteCodeConstants.DESCRIPTOR));
+			methods.put(key, attr);
+		}
+
+		put(contentHash, null, DECODED_METHODS, methods, (long) classBytes.length * DECODED_WEIGHT_FACTOR);
+		return methods;
+	}
+
+	/**
+	 * Creates a view of a cached attribute map which can not be
+	 * used to change the cache. The tables are copied, the lists
+	 * are unmodifiable. The instruction stream is not wrapped, it
+	 * can not be modified.
+	 * @param attr the cached attribute map
+	 * @return the unmodifiable map
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> createView(Map<String, Object> attr) {
+		Map<String, Object> view = new HashMap<String, Object>(attr);
+		for (Map.Entry<String, Object> e : view.entrySet()) {
+			Object value = e.getValue();
+			if (value instanceof Object[]) {
+				e.setValue(((Object[]) value).clone());
+			}
+			else if (value instanceof List && !(value instanceof InstructionStream)) {
+				e.setValue(Collections.unmodifiableList((List<Object>) value));
+			}
+		}
+		return Collections.unmodifiableMap(view);
+	}
+
+	/**
+	 * Returns the decoded method of a class file.
+	 * @param classBytes the class file
+	 * @param name the method name
+	 * @param descriptor the method descriptor
+	 * @return the attribute map or <code>null</code> if the method
+	 *         does not exist or has no code
+	 * @see #getDecodedMethods(byte[])
+	 */
+	public Map<String, Object> getDecodedMethod(byte[] classBytes, String name, String descriptor) {
+		Map<String, Object> attr = getCachedDecodedMethods(getContentHash(classBytes), classBytes)
+				.get(getMethodKey(name, descriptor));
+		return attr == null ? null : createView(attr);
+	}
+
+	/**
+	 * Returns the total weight of the cached entries.
+	 * @return the weight
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Returns the maximum weight.
+	 * @return the maximum weight
+	 */
+	public synchronized long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Sets the maximum weight and evicts entries if necessary.
+	 * @param maxWeight the maximum weight
+	 */
+	public synchronized void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+		evict();
+	}
+
+	/**
+	 * Returns the number of lookups which found a result.
+	 * @return number of hits
+	 */
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups which did not find a result.
+	 * @return number of misses
+	 */
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+}
@@ -109,6 +109,9 @@ public class CoreMessages extends NLS {
 	public static String DefaultEditorText;
 	
 	public static String Bytecodevisualizer_ControlFlowGraphEditorMaxSizeReached;
+	public static String ControlFlowGraphFigureJob_name;
+	public static String ControlFlowGraphFigureJob_lbl_building;
+	public static String ControlFlowGraphFigureJob_routing;
 	public static String CannotGenerateGraph_MethodIsAnAbstractMethod;
 	public static String ExceptionAdditionalMessage;
 	
@@ -16,11 +16,17 @@
 
 package com.drgarbage.draw2d;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.draw2d.AbstractConnectionAnchor;
 import org.eclipse.draw2d.ChopboxAnchor;
 import org.eclipse.draw2d.ColorConstants;
@@ -35,23 +41,19 @@ import org.eclipse.draw2d.RelativeBendpoint;
 import org.eclipse.draw2d.ShortestPathConnectionRouter;
 import org.eclipse.draw2d.geometry.Dimension;
 import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.Rectangle;
 import org.eclipse.draw2d.graph.Edge;
 import org.eclipse.draw2d.graph.Node;
-import org.eclipse.jface.dialogs.ProgressMonitorDialog;
-import org.eclipse.jface.operation.IRunnableWithProgress;
-import org.eclipse.swt.widgets.Shell;
-import org.eclipse.ui.PlatformUI;
+import org.eclipse.osgi.util.NLS;
 
 import com.drgarbage.algorithms.BasicBlockGraphVisitor;
 import com.drgarbage.algorithms.ByteCodeSimpleLayout;
-import com.drgarbage.asm.render.intf.IInstructionLine;
 import com.drgarbage.asm.render.intf.IMethodSection;
 import com.drgarbage.controlflowgraph.ControlFlowGraphException;
 import com.drgarbage.controlflowgraph.ControlFlowGraphGenerator;
 import com.drgarbage.controlflowgraph.anchors.DecisionAnchor;
 import com.drgarbage.controlflowgraph.anchors.SimpleAnchor;
 import com.drgarbage.controlflowgraph.figures.FigureFactory;
-import com.drgarbage.controlflowgraph.intf.GraphUtils;
 import com.drgarbage.controlflowgraph.intf.IBasicBlock;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.controlflowgraph.intf.IEdgeExt;
@@ -76,6 +78,11 @@ public class ControlFlowGraphFigure extends LayeredPane {
 
 	protected  int WARNING_MAX_GRAPH_NODE_COUNT = 3000;
 	protected  int WARNING_MAX_GRAPH_EDGE_COUNT = 1000;
+	
+	/**
+	 * Graphs with more nodes are virtualized, see {@link #setVisibleArea(Rectangle)}.
+	 */
+	protected  int VIRTUAL_GRAPH_NODE_COUNT = 1000;
 
     /**
      * The height of the line, default 17 pixel.
@@ -221,6 +228,44 @@ public class ControlFlowGraphFigure extends LayeredPane {
 		this.validateRoutedConnection = b;
 	}
 
+	/**
+	 * The graph generated and laid out by {@link #prepare(IMethodSection, IProgressMonitor)}.
+	 * The reference is released as soon as the figures have been created.
+	 */
+	private IDirectedGraphExt preparedGraph = null;
+	private ByteCodeSimpleLayout preparedLayout = null;
+	private IDirectedGraphExt preparedBasicBlockGraph = null;
+	
+	/**
+	 * Spatial indexes of a virtualized graph in graph coordinates. 
+	 * The indexes are <code>null</code> if the graph is not virtualized.
+	 */
+	private SpatialIndex<INodeExt> nodeIndex = null;
+	private SpatialIndex<IEdgeExt> edgeIndex = null;
+	private SpatialIndex<IBasicBlock> basicBlockIndex = null;
+	
+	/**
+	 * The figures created for the visible area of a virtualized graph.
+	 * The routing objects and connections created for an edge or a node
+	 * are removed together with the edge or node.
+	 */
+	private Map<INodeExt, IFigure> nodeFigures = null;
+	private Map<INodeExt, List<IFigure>> nodeRoutingObjects = null;
+	private Map<IEdgeExt, List<IFigure>> edgeFigures = null;
+	private Map<IBasicBlock, IFigure> basicBlockFigures = null;
+	
+	/**
+	 * Node figures removed from the visible area by the node type. 
+	 * The figures are reused for other nodes of the same type.
+	 */
+	private Map<Integer, List<IFigure>> figurePool = null;
+	
+	/**
+	 * The area the figures of a virtualized graph have been 
+	 * created for, in graph coordinates.
+	 */
+	private Rectangle virtualArea = null;
+
 	/**
 	 * RoutedConnectionsLayer contains objects have to be routed by the 
 	 * {@link ShortestPathConnectionRouter} router.
@@ -228,48 +273,42 @@ public class ControlFlowGraphFigure extends LayeredPane {
 	protected class RoutedConnectionsLayer extends ConnectionLayer {		
 
 		/**
-		 * This method is called if the flag {@link ControlFlowGraphFigure#hugeGraph} 
-		 * is set.
+		 * Routes the connections and reports the progress. The figure
+		 * must not be displayed by a canvas if this method is called 
+		 * outside of the UI thread.
+		 * @param monitor the progress monitor
+		 * @throws OperationCanceledException if the monitor has been canceled
 		 */
-		public void validateRoutedConnections() {
+		public void validateRoutedConnections(IProgressMonitor monitor) {
 
 			layout();
 
-			Shell shell = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getShell();
-			ProgressMonitorDialog dialog = 
-					new ProgressMonitorDialog(shell);
-			try {
-				dialog.run(false, true, new IRunnableWithProgress() {
-					public void run(final IProgressMonitor monitor) throws InvocationTargetException {
-						int size = getChildren().size();
-						
-						if(methodRef == null){
-							monitor.beginTask("Rendering arcs.", size + 10);
-						}
-						else{
-							monitor.beginTask("Rendering arcs for the method '" + methodRef.getName() + "()'.", size + 10);
-						}
-						
-						monitor.subTask("Initializing routing objects.");
-						monitor.worked(10);
-
-						for (int i = 0; i < getChildren().size(); i++){
-							IFigure f = (IFigure) getChildren().get(i);									
-							f.validate();								
-							monitor.worked(1);
-							monitor.subTask("Rendering ...");
-						}
-
-						monitor.done();
-					}
-				});
-			} catch (InvocationTargetException e) {
-				CorePlugin.log(e);
-			} catch (InterruptedException e) {
-				CorePlugin.log(e);
+			int size = getChildren().size();
+			
+			if(methodRef == null){
+				monitor.beginTask("Rendering arcs.", size + 10);
+			}
+			else{
+				monitor.beginTask(NLS.bind(CoreMessages.ControlFlowGraphFigureJob_routing, methodRef.getName()), size + 10);
 			}
+			
+			try{
+				monitor.subTask("Initializing routing objects.");
+				monitor.worked(10);
 
-			return;
+				for (int i = 0; i < getChildren().size(); i++){
+					if(monitor.isCanceled()){
+						throw new OperationCanceledException();
+					}
+
+					IFigure f = (IFigure) getChildren().get(i);									
+					f.validate();								
+					monitor.worked(1);
+				}
+			}
+			finally{
+				monitor.done();
+			}
 		}
 
 		/* (non-Javadoc)
@@ -281,15 +320,29 @@ public class ControlFlowGraphFigure extends LayeredPane {
 				return;
 			setValidateRoutedConnection(true);
 			
-			if(isHugeGraph()){
-				validateRoutedConnections();
-				return;
-			}
-
 			super.validate();
 		}
 	}
 	
+	/**
+	 * Routes the connections of a figure which is not displayed yet.
+	 * The routing of huge graphs takes a while, so the method is usually
+	 * called by a {@link ControlFlowGraphFigureJob} after the figures have 
+	 * been created by {@link #documentUpdated(IMethodSection)}. The routed
+	 * connections are not validated again if the figure is displayed.
+	 * @param monitor the progress monitor
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public void routeConnections(IProgressMonitor monitor) {
+		if(isValidateRoutedConnection()){
+			monitor.done();
+			return;
+		}
+
+		routedConnectionsLayer.validateRoutedConnections(monitor);
+		setValidateRoutedConnection(true);
+	}
+	
 	/**
 	 * Create control flow graph view.
 	 * @param lineH the size of the line in the text editor
@@ -358,22 +411,83 @@ public class ControlFlowGraphFigure extends LayeredPane {
 	}
 
 	/**
-	 * Redraw graphics.
+	 * Redraw graphics. The graph prepared by 
+	 * {@link #prepare(IMethodSection, IProgressMonitor)} is used
+	 * if available, so that only the figures are created.
 	 */
 	public void documentUpdated(IMethodSection method){
+		setMethod(method);
+		documentUpdated();
+	}	
+
+	/**
+	 * Sets the method section and the line count.
+	 * @param method the method section or <code>null</code>
+	 */
+	private void setMethod(IMethodSection method){
 		if(method != null){
 			methodRef = method;
 			lineCount = method.getLastLine() + method.getFirstLine();
 		}
-		
-		documentUpdated();
-	}	
+	}
+
+	/**
+	 * Generates the graph and computes the layout of the nodes and the 
+	 * basic blocks without creating any figures. The method does not access
+	 * the UI, it is called in a background job before the figures are created
+	 * in the UI thread by {@link #documentUpdated(IMethodSection)}.
+	 * @param method the method section or <code>null</code> if the graph
+	 *         is provided by a subclass
+	 * @param monitor the progress monitor
+	 * @throws ControlFlowGraphException if the layout has failed
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 * @see #createGraph()
+	 */
+	public void prepare(IMethodSection method, IProgressMonitor monitor) throws ControlFlowGraphException {
+		setMethod(method);
+
+		monitor.beginTask(methodRef == null ? "" : methodRef.getName(), 3);
+		try{
+			IDirectedGraphExt graph = createGraph();
+			monitor.worked(1);
+			if(monitor.isCanceled()){
+				throw new OperationCanceledException();
+			}
+
+			ByteCodeSimpleLayout byteCodeSimpleLayout = new ByteCodeSimpleLayout(graph, lineHight);
+			byteCodeSimpleLayout.visit();
+			monitor.worked(1);
+			if(monitor.isCanceled()){
+				throw new OperationCanceledException();
+			}
+
+			preparedBasicBlockGraph = createBasicBlockGraph(graph);
+			preparedLayout = byteCodeSimpleLayout;
+			preparedGraph = graph;
+			monitor.worked(1);
+		}
+		finally{
+			monitor.done();
+		}
+	}
 	
 	/**
 	 * Redraw graphics.
 	 */
 	private void documentUpdated(){
+		/* 
+		 * The figures are created relative to the origin, the figure
+		 * is moved back to its location afterwards. The location may
+		 * have been set before the figures are built by a job.
+		 */
+		Point location = getLocation().getCopy();
+		setLocation(new Point(0, 0));
+		
 		this.removeAll();
+		nodeIndex = null;
+		edgeIndex = null;
+		basicBlockIndex = null;
+		virtualArea = null;
 
 		/* create visual layers */
 		verticesLayer = new Layer();
@@ -433,8 +547,15 @@ public class ControlFlowGraphFigure extends LayeredPane {
 	    router.setSpacing(space);
 
 	    createControlFlowGraphs();
+	    
+	    /* the prepared graph is visualized only once */
+	    preparedGraph = null;
+	    preparedLayout = null;
+	    preparedBasicBlockGraph = null;
+	    
 		updateNodePositions();
 		setSize();
+		setLocation(location);
 		
 		setValidateRoutedConnection(false);
 	}
@@ -443,20 +564,35 @@ public class ControlFlowGraphFigure extends LayeredPane {
 	 * Update x and y-positions of the nodes.
 	 */
 	protected void updateNodePositions(){
-		int offsetY = (methodRef.getFirstLine() + 1) * lineHight;
+		Point offset = getNodeOffset();
 		List<?> children = verticesLayer.getChildren();
-		IFigure f = null;
 		for(Object o : children){
-			f = (IFigure)o;
-			f.setLocation(new Point(f.getClientArea().x + Math.abs(minX) + xMargin, f.getClientArea().y - offsetY));
+			moveFigure((IFigure)o, offset);
 		}
 			
 		children = routingObjectsLayer.getChildren();
 		for(Object o : children){
-			f = (IFigure)o;
-			f.setLocation(new Point(f.getClientArea().x + Math.abs(minX) + xMargin, f.getClientArea().y - offsetY));
+			moveFigure((IFigure)o, offset);
 		}
 	}
+	
+	/**
+	 * Returns the offset between the coordinates of the 
+	 * graph nodes and the coordinates of the node figures.
+	 * @return the offset
+	 */
+	protected Point getNodeOffset(){
+		return new Point(Math.abs(minX) + xMargin, -(methodRef.getFirstLine() + 1) * lineHight);
+	}
+	
+	/**
+	 * Moves a figure by the given offset.
+	 * @param f the figure
+	 * @param offset the offset
+	 */
+	private static void moveFigure(IFigure f, Point offset){
+		f.setLocation(new Point(f.getClientArea().x + offset.x, f.getClientArea().y + offset.y));
+	}
 
 	/**
 	 * Returns the height of the line.
@@ -487,14 +623,32 @@ public class ControlFlowGraphFigure extends LayeredPane {
         this.setSize(lineWight, height);
 	}
 	
+	/**
+	 * Generates the control flow graph of the method.
+	 * @return the graph
+	 */
+	protected IDirectedGraphExt createGraph() {
+		return ControlFlowGraphGenerator.generateSynchronizedControlFlowGraphFrom(methodRef.getInstructionLines());
+	}
+
+	/**
+	 * Returns the graph laid out by {@link #prepare(IMethodSection, IProgressMonitor)} 
+	 * or a new graph if the figure has not been prepared.
+	 * @return the graph
+	 */
+	protected IDirectedGraphExt getGraph() {
+		if(preparedGraph != null){
+			return preparedGraph;
+		}
+
+		return createGraph();
+	}
+	
 	/**
 	 * Creates control flow graphs and adds they to the view.
 	 */
 	protected void createControlFlowGraphs() {
-		IDirectedGraphExt graph = null;
-		List<IInstructionLine> instructions = null;
-		instructions = methodRef.getInstructionLines();
-		graph = ControlFlowGraphGenerator.generateSynchronizedControlFlowGraphFrom(instructions);
+		IDirectedGraphExt graph = getGraph();
 
 		/* check the size of the Graph */
 		if(!checkGraphSize(graph, 
@@ -513,13 +667,40 @@ public class ControlFlowGraphFigure extends LayeredPane {
 	 */
 	protected void visualizeGraph(IDirectedGraphExt graph){
 		ByteCodeSimpleLayout byteCodeSimpleLayout = null;
+		IDirectedGraphExt basicBlockGraph = null;
 		
-		/* set node layout */	
-		try {
-			byteCodeSimpleLayout = new ByteCodeSimpleLayout(graph, lineHight);
-			byteCodeSimpleLayout.visit();
-		} catch (ControlFlowGraphException e) {
-			CorePlugin.log(e);
+		if(graph == preparedGraph){
+			/* already laid out, the layout must not be repeated */
+			byteCodeSimpleLayout = preparedLayout;
+			basicBlockGraph = preparedBasicBlockGraph;
+		}
+		else {
+			/* set node layout */	
+			try {
+				byteCodeSimpleLayout = new ByteCodeSimpleLayout(graph, lineHight);
+				byteCodeSimpleLayout.visit();
+			} catch (ControlFlowGraphException e) {
+				CorePlugin.log(e);
+				return;
+			}
+		}
+
+		/* update min max values */
+		if(minX > byteCodeSimpleLayout.getMinX()){
+			minX = byteCodeSimpleLayout.getMinX();
+		}
+
+		if(maxX < byteCodeSimpleLayout.getMaxX()){
+			maxX = byteCodeSimpleLayout.getMaxX();
+		}
+		
+		if(basicBlockGraph == null){
+			basicBlockGraph = createBasicBlockGraph(graph);
+		}
+
+		if(graph.getNodeList().size() > VIRTUAL_GRAPH_NODE_COUNT){
+			/* the figures are created for the visible area only */
+			createSpatialIndex(graph, basicBlockGraph);
 			return;
 		}
 		
@@ -545,25 +726,17 @@ public class ControlFlowGraphFigure extends LayeredPane {
 			createEdge(edge);
 		}
 
-		/* update min max values */
-		if(minX > byteCodeSimpleLayout.getMinX()){
-			minX = byteCodeSimpleLayout.getMinX();
-		}
-
-		if(maxX < byteCodeSimpleLayout.getMaxX()){
-			maxX = byteCodeSimpleLayout.getMaxX();
-		}
-		
-		createRoutingObjects(graph);
+		createRoutingObjects(basicBlockGraph);
 	}
 	
 	/**
-	 * Creates basic blocks and put they into the routing layer.
-	 * @param graph
+	 * Finds the basic blocks of a laid out graph and computes 
+	 * their bounds. No figures are created.
+	 * @param graph the laid out graph
+	 * @return the basic block graph
 	 */
-	private void createRoutingObjects(IDirectedGraphExt graph){
+	private IDirectedGraphExt createBasicBlockGraph(IDirectedGraphExt graph){
 		/* find basic blocks */
-		GraphUtils.clearGraph(graph);
 		BasicBlockGraphVisitor basicBlockVisitor = new BasicBlockGraphVisitor();
 		try {
 			basicBlockVisitor.start(graph);
@@ -617,25 +790,309 @@ public class ControlFlowGraphFigure extends LayeredPane {
 			bb.setY(bbMinY);
 			bb.setHeight(bbMaxY - bbMinY + n.getHeight());
 			bb.setWidth(bbMaxX - bbMinX + n.getWidth());
+		}
+		
+		return basicBlockGraph;
+	}
+	
+	/**
+	 * Creates the figures of the basic blocks and put they into the routing layer.
+	 * @param basicBlockGraph the basic block graph
+	 */
+	private void createRoutingObjects(IDirectedGraphExt basicBlockGraph){
+		INodeListExt basicBlocks = basicBlockGraph.getNodeList();
+		for(int j = 0; j < basicBlocks.size(); j++){
+			routingObjectsLayer.add(createBasicBlockFigure((IBasicBlock)basicBlocks.getNodeExt(j)));
+		}
+	}
+	
+	/**
+	 * Creates the figure of a basic block.
+	 * @param bb the basic block
+	 * @return the figure
+	 */
+	private IFigure createBasicBlockFigure(IBasicBlock bb){
+		StringBuffer buf = new StringBuffer(" ");
+		buf.append(bb.getData().toString());
+		INodeListExt basicBlockvertices = bb.getBasicBlockVertices();
+		for(int k = 0; k < basicBlockvertices.size(); k++){
+			buf.append("\n ");
+			buf.append(basicBlockvertices.getNodeExt(k).getByteCodeOffset());
+			buf.append(" - ");
+			buf.append(basicBlockvertices.getNodeExt(k).getByteCodeString());
+			buf.append(" ");
+		}
+		
+		IFigure f = FigureFactory.createSimpleBasicBlockVertex(buf.toString(), false);
+		f.setLocation(new Point(bb.getX(), bb.getY()));
+		f.setSize(bb.getWidth(), bb.getHeight());			
+		
+		//f.setToolTip(new Label(buf.toString()));
+
+		return f;
+	}
+	
+	/**
+	 * Returns <code>true</code> if only the figures intersecting
+	 * the visible area are created for this graph.
+	 * @return <code>true</code> or  <code>false</code>
+	 * @see #setVisibleArea(Rectangle)
+	 */
+	public boolean isVirtualized() {
+		return nodeIndex != null;
+	}
+	
+	/**
+	 * Creates the spatial indexes of a huge graph. No figures are 
+	 * created, they are created by {@link #setVisibleArea(Rectangle)}.
+	 * @param graph the laid out graph
+	 * @param basicBlockGraph the basic block graph
+	 */
+	private void createSpatialIndex(IDirectedGraphExt graph, IDirectedGraphExt basicBlockGraph){
+		int bucketHeight = lineHight * 32;
+		nodeIndex = new SpatialIndex<INodeExt>(bucketHeight);
+		edgeIndex = new SpatialIndex<IEdgeExt>(bucketHeight);
+		basicBlockIndex = new SpatialIndex<IBasicBlock>(bucketHeight);
+
+		INodeListExt nodes = graph.getNodeList();
+		for(int i = 0; i < nodes.size(); i++){
+			INodeExt n = nodes.getNodeExt(i);
+			nodeIndex.add(getBounds(n), n);
+		}
+		
+		IEdgeListExt edges = graph.getEdgeList();
+		for(int i = 0; i < edges.size(); i++){
+			IEdgeExt e = edges.getEdgeExt(i);
+			INodeExt source = e.getSource();
 			
-			StringBuffer buf = new StringBuffer(" ");
-			buf.append(bb.getData().toString());
-			INodeListExt basicBlockvertices = bb.getBasicBlockVertices();
-			for(int k = 0; k < basicBlockvertices.size(); k++){
-				buf.append("\n ");
-				buf.append(basicBlockvertices.getNodeExt(k).getByteCodeOffset());
-				buf.append(" - ");
-				buf.append(basicBlockvertices.getNodeExt(k).getByteCodeString());
-				buf.append(" ");
+			/* the bendpoints and routing objects are placed beside the nodes */
+			Rectangle r = getBounds(source).union(getBounds(e.getTarget()));
+			r.expand(source.getWidth() * 2, source.getHeight() * 2);
+			edgeIndex.add(r, e);
+		}
+
+		INodeListExt basicBlocks = basicBlockGraph.getNodeList();
+		for(int i = 0; i < basicBlocks.size(); i++){
+			IBasicBlock bb = (IBasicBlock)basicBlocks.getNodeExt(i);
+			basicBlockIndex.add(getBounds(bb), bb);
+		}
+		
+		nodeFigures = new IdentityHashMap<INodeExt, IFigure>();
+		nodeRoutingObjects = new IdentityHashMap<INodeExt, List<IFigure>>();
+		edgeFigures = new IdentityHashMap<IEdgeExt, List<IFigure>>();
+		basicBlockFigures = new IdentityHashMap<IBasicBlock, IFigure>();
+		figurePool = new HashMap<Integer, List<IFigure>>();
+	}
+	
+	private static Rectangle getBounds(INodeExt n){
+		return new Rectangle(n.getX(), n.getY(), n.getWidth(), n.getHeight());
+	}
+	
+	/**
+	 * Sets the visible area of a virtualized graph. The figures of the nodes,
+	 * edges and basic blocks intersecting the area are created and the figures
+	 * outside of the area are removed. The node figures are recycled. Only the
+	 * connections of the area are routed, so the costs of painting, validation
+	 * and routing do not grow with the size of the graph. The method does 
+	 * nothing if the graph is not virtualized.
+	 * @param area the visible area in the coordinates of the parent figure, 
+	 *         e.g. the client area of the viewport
+	 */
+	public void setVisibleArea(Rectangle area){
+		if(!isVirtualized()){
+			return;
+		}
+
+		/* graph coordinates */
+		Point offset = getLocation().getTranslated(getNodeOffset());
+		Rectangle a = area.getCopy().translate(offset.getNegated());
+		if(virtualArea != null && virtualArea.contains(a)){
+			return;
+		}
+
+		/* one screen above and below, small scrolls do not change the figures */
+		virtualArea = a.expand(0, a.height);
+
+		Set<IEdgeExt> edges = Collections.newSetFromMap(new IdentityHashMap<IEdgeExt, Boolean>());
+		edgeIndex.query(virtualArea, edges);
+		
+		Set<INodeExt> nodes = Collections.newSetFromMap(new IdentityHashMap<INodeExt, Boolean>());
+		nodeIndex.query(virtualArea, nodes);
+		for(IEdgeExt e: edges){
+			/* the anchors of the connections */
+			nodes.add(e.getSource());
+			nodes.add(e.getTarget());
+		}
+		
+		Set<IBasicBlock> basicBlocks = Collections.newSetFromMap(new IdentityHashMap<IBasicBlock, Boolean>());
+		basicBlockIndex.query(virtualArea, basicBlocks);
+
+		/* remove the figures outside of the area, the connections first */
+		Iterator<Map.Entry<IEdgeExt, List<IFigure>>> edgeIterator = edgeFigures.entrySet().iterator();
+		while(edgeIterator.hasNext()){
+			Map.Entry<IEdgeExt, List<IFigure>> entry = edgeIterator.next();
+			if(!edges.contains(entry.getKey())){
+				removeFigures(entry.getValue());
+				edgeIterator.remove();
 			}
-			
-			IFigure f = FigureFactory.createSimpleBasicBlockVertex(buf.toString(), false);
-			f.setLocation(new Point(bb.getX(), bb.getY()));
-			f.setSize(bb.getWidth(), bb.getHeight());			
-			
-			//f.setToolTip(new Label(buf.toString()));
+		}
+		
+		Iterator<Map.Entry<INodeExt, IFigure>> nodeIterator = nodeFigures.entrySet().iterator();
+		while(nodeIterator.hasNext()){
+			Map.Entry<INodeExt, IFigure> entry = nodeIterator.next();
+			INodeExt n = entry.getKey();
+			if(!nodes.contains(n)){
+				IFigure f = entry.getValue();
+				verticesLayer.remove(f);
+				removeFigures(nodeRoutingObjects.remove(n));
+				n.setFigure(null);
+				recycleFigure(n.getVertexType(), f);
+				nodeIterator.remove();
+			}
+		}
+		
+		Iterator<Map.Entry<IBasicBlock, IFigure>> basicBlockIterator = basicBlockFigures.entrySet().iterator();
+		while(basicBlockIterator.hasNext()){
+			Map.Entry<IBasicBlock, IFigure> entry = basicBlockIterator.next();
+			if(!basicBlocks.contains(entry.getKey())){
+				routingObjectsLayer.remove(entry.getValue());
+				basicBlockIterator.remove();
+			}
+		}
+		
+		/* create the figures inside of the area, the nodes first */
+		for(INodeExt n: nodes){
+			if(!nodeFigures.containsKey(n)){
+				createNodeFigure(n, offset);
+			}
+		}
+		
+		for(IEdgeExt e: edges){
+			if(!edgeFigures.containsKey(e)){
+				createEdgeFigures(e, offset);
+			}
+		}
+		
+		for(IBasicBlock bb: basicBlocks){
+			if(!basicBlockFigures.containsKey(bb)){
+				IFigure f = createBasicBlockFigure(bb);
+				moveFigure(f, offset);
+				routingObjectsLayer.add(f);
+				basicBlockFigures.put(bb, f);
+			}
+		}
+
+		/* route the connections of the area */
+		setValidateRoutedConnection(false);
+		revalidate();
+	}
+	
+	/**
+	 * Creates the figure of a node of a virtualized graph.
+	 * @param node the node
+	 * @param offset the offset between the graph and the figure coordinates
+	 */
+	private void createNodeFigure(INodeExt node, Point offset){
+		int routingObjectCount = routingObjectsLayer.getChildren().size();
 
-			routingObjectsLayer.add(f);
+		IFigure f = null;
+		List<IFigure> pool = figurePool.get(node.getVertexType());
+		if(pool != null && pool.size() > 0){
+			f = pool.remove(pool.size() - 1);
+			f.setSize(node.getWidth(),node.getHeight());
+			f.setLocation(new Point(node.getX(),node.getY()));
+		}
+		else{
+			f = createVisualNode(node, node.getVertexType());
+		}
+		
+		f.setToolTip(new Label(node.getToolTipText()));
+		moveFigure(f, offset);
+		verticesLayer.add(f);
+		
+		/* set figure reference */
+		node.setFigure(f);
+		nodeFigures.put(node, f);
+		
+		List<IFigure> routingObjects = new ArrayList<IFigure>();
+		collectAddedFigures(routingObjectsLayer, routingObjectCount, offset, routingObjects);
+		if(routingObjects.size() > 0){
+			nodeRoutingObjects.put(node, routingObjects);
+		}
+	}
+	
+	/**
+	 * Puts a node figure into the pool. The figures of switch nodes are
+	 * not recycled because they are created together with a routing object.
+	 * @param nodeType the node type
+	 * @param f the figure
+	 */
+	private void recycleFigure(int nodeType, IFigure f){
+		if(nodeType == INodeType.NODE_TYPE_SWITCH){
+			return;
+		}
+		
+		List<IFigure> pool = figurePool.get(nodeType);
+		if(pool == null){
+			pool = new ArrayList<IFigure>();
+			figurePool.put(nodeType, pool);
+		}
+		pool.add(f);
+	}
+	
+	/**
+	 * Creates the connection and the routing objects of an edge of a 
+	 * virtualized graph. The figures of the source and the target node
+	 * have to exist.
+	 * @param edge the edge
+	 * @param offset the offset between the graph and the figure coordinates
+	 */
+	private void createEdgeFigures(IEdgeExt edge, Point offset){
+		int routedCount = routedConnectionsLayer.getChildren().size();
+		int notRoutedCount = notRoutetConnectionsLayer.getChildren().size();
+		int routingObjectCount = routingObjectsLayer.getChildren().size();
+
+		createEdge(edge);
+
+		/* the connections follow their anchors */
+		List<IFigure> figures = new ArrayList<IFigure>();
+		collectAddedFigures(routedConnectionsLayer, routedCount, null, figures);
+		collectAddedFigures(notRoutetConnectionsLayer, notRoutedCount, null, figures);
+		collectAddedFigures(routingObjectsLayer, routingObjectCount, offset, figures);
+		edgeFigures.put(edge, figures);
+	}
+	
+	/**
+	 * Collects the figures added to a layer after the given index.
+	 * @param layer the layer
+	 * @param index the number of children before the figures have been added
+	 * @param offset the offset the figures are moved by or <code>null</code>
+	 * @param result the list of figures
+	 */
+	private static void collectAddedFigures(IFigure layer, int index, Point offset, List<IFigure> result){
+		List<?> children = layer.getChildren();
+		for(int i = index; i < children.size(); i++){
+			IFigure f = (IFigure)children.get(i);
+			if(offset != null){
+				moveFigure(f, offset);
+			}
+			result.add(f);
+		}
+	}
+	
+	/**
+	 * Removes the figures from their parents.
+	 * @param figures the figures or <code>null</code>
+	 */
+	private static void removeFigures(List<IFigure> figures){
+		if(figures == null){
+			return;
+		}
+		
+		for(IFigure f: figures){
+			if(f.getParent() != null){
+				f.getParent().remove(f);
+			}
 		}
 	}
 	
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.draw2d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.draw2d.IFigure;
+import org.eclipse.draw2d.Label;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.widgets.Display;
+
+import com.drgarbage.asm.render.intf.IMethodSection;
+import com.drgarbage.controlflowgraph.ControlFlowGraphException;
+import com.drgarbage.core.CoreMessages;
+import com.drgarbage.core.CorePlugin;
+
+/**
+ * Job building control flow graph figures outside of the UI thread.
+ * The graphs are generated and laid out and the connections are routed
+ * by the job, only the figures are created in the UI thread. A placeholder
+ * is displayed until the figure is ready, then the placeholder is replaced
+ * by the figure. Opening a large method does not block the workbench.
+ * <br>
+ * The job belongs to the family passed to the constructor, usually
+ * the canvas displaying the figures. The jobs of a canvas are canceled
+ * if the canvas is initialized again or disposed:
+ * <pre>
+ *   Job.getJobManager().cancel(canvas);
+ * </pre>
+ * A figure is not built any more if its placeholder has been
+ * removed from the canvas.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ControlFlowGraphFigureJob extends Job {
+
+	/**
+	 * A figure to be built.
+	 */
+	private static class Entry {
+		private ControlFlowGraphFigure figure;
+		private IMethodSection method;
+		private IFigure placeholder;
+
+		Entry(ControlFlowGraphFigure figure, IMethodSection method, IFigure placeholder) {
+			this.figure = figure;
+			this.method = method;
+			this.placeholder = placeholder;
+		}
+	}
+
+	private Object family;
+	private Display display;
+	private List<Entry> entries = new ArrayList<Entry>();
+
+	/**
+	 * Creates a job.
+	 * @param family the family of the job, e.g. the canvas
+	 * @param display the display of the canvas
+	 */
+	public ControlFlowGraphFigureJob(Object family, Display display) {
+		super(CoreMessages.ControlFlowGraphFigureJob_name);
+		this.family = family;
+		this.display = display;
+		setPriority(Job.SHORT);
+	}
+
+	/**
+	 * Creates a placeholder figure displayed while the graph is built.
+	 * The method has to be called in the UI thread.
+	 * @return the placeholder
+	 */
+	public static IFigure createPlaceholder() {
+		Label l = new Label(CoreMessages.ControlFlowGraphFigureJob_lbl_building);
+		l.setSize(l.getPreferredSize());
+		return l;
+	}
+
+	/**
+	 * Adds a figure to be built. The figure has to be created by
+	 * {@link ControlFlowGraphFigure#ControlFlowGraphFigure(int)} and
+	 * must not be displayed. The placeholder has to be displayed by
+	 * the canvas. The figures are built in the order they have been added.
+	 * @param figure the figure
+	 * @param method the method section or <code>null</code> if
+	 *         the graph is provided by the figure
+	 * @param placeholder the placeholder of the figure
+	 */
+	public void add(ControlFlowGraphFigure figure, IMethodSection method, IFigure placeholder) {
+		entries.add(new Entry(figure, method, placeholder));
+	}
+
+	/**
+	 * Returns <code>true</code> if no figure has been added.
+	 * @return <code>true</code> or <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
+	 */
+	public boolean belongsTo(Object family) {
+		return this.family == family;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	protected IStatus run(final IProgressMonitor monitor) {
+		monitor.beginTask(getName(), entries.size() * 3);
+		try {
+			for (final Entry e : entries) {
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+
+				/* generate and lay out the graph */
+				try {
+					e.figure.prepare(e.method, new SubProgressMonitor(monitor, 1));
+				} catch (ControlFlowGraphException ex) {
+					CorePlugin.log(ex);
+
+					/* remove the placeholder */
+					e.figure = null;
+					syncExec(e, monitor);
+					monitor.worked(2);
+					continue;
+				}
+
+				/* create the figures, fonts and images are only available in the UI thread */
+				if (!syncExec(new Runnable() {
+						public void run() {
+							e.figure.documentUpdated(null);
+						}
+					}, e.placeholder, monitor)) {
+					monitor.worked(2);
+					continue;
+				}
+
+				/* route the connections, the figure is not displayed yet */
+				e.figure.routeConnections(new SubProgressMonitor(monitor, 1));
+
+				/* replace the placeholder */
+				syncExec(e, monitor);
+				monitor.worked(1);
+			}
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} finally {
+			monitor.done();
+		}
+
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Replaces the placeholder of the entry by its figure in the UI thread.
+	 * The placeholder is only removed if the figure is <code>null</code>.
+	 * @param e the entry
+	 * @param monitor the progress monitor
+	 * @return <code>false</code> if the placeholder has not been replaced
+	 */
+	private boolean syncExec(final Entry e, IProgressMonitor monitor) {
+		return syncExec(new Runnable() {
+			public void run() {
+				IFigure parent = e.placeholder.getParent();
+				int index = parent.getChildren().indexOf(e.placeholder);
+				parent.remove(e.placeholder);
+
+				if (e.figure != null) {
+					parent.add(e.figure, index);
+					figureAdded(e.figure);
+				}
+			}
+		}, e.placeholder, monitor);
+	}
+
+	/**
+	 * Executes the runnable in the UI thread if the job has not been
+	 * canceled and the placeholder is still displayed.
+	 * @param runnable the runnable
+	 * @param placeholder the placeholder
+	 * @param monitor the progress monitor
+	 * @return <code>false</code> if the runnable has not been executed
+	 */
+	private boolean syncExec(final Runnable runnable, final IFigure placeholder, final IProgressMonitor monitor) {
+		final boolean[] executed = new boolean[1];
+		try {
+			display.syncExec(new Runnable() {
+				public void run() {
+					/* the job has been canceled or the placeholder removed */
+					if (monitor.isCanceled() || placeholder.getParent() == null) {
+						return;
+					}
+
+					runnable.run();
+					executed[0] = true;
+				}
+			});
+		} catch (SWTException e) {
+			/* the display has been disposed or the runnable has failed */
+			if (e.throwable != null) {
+				CorePlugin.log(e.throwable);
+			}
+			return false;
+		}
+
+		return executed[0];
+	}
+
+	/**
+	 * Called in the UI thread after a figure has replaced its placeholder.
+	 * The default implementation does nothing, a canvas can update its
+	 * size or the visible layers of the figure.
+	 * @param figure the figure
+	 */
+	protected void figureAdded(ControlFlowGraphFigure figure) {
+	}
+
+}
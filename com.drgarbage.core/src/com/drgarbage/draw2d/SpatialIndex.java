@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.draw2d;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.draw2d.geometry.Rectangle;
+
+/**
+ * Spatial index of objects by their bounds. The control flow graphs
+ * are synchronized with the lines of an editor, they are high and
+ * narrow. Therefore the index divides the y-axis into buckets of the
+ * same height. An object is stored in all buckets its bounds intersect.
+ * A query only checks the objects of the buckets intersecting the
+ * queried area, the cost grows with the size of the area and not with
+ * the size of the graph.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class SpatialIndex<T> {
+
+	/**
+	 * An object and its bounds.
+	 */
+	private static class Entry<T> {
+		private Rectangle bounds;
+		private T item;
+
+		Entry(Rectangle bounds, T item) {
+			this.bounds = bounds;
+			this.item = item;
+		}
+	}
+
+	/**
+	 * Height of a bucket in pixel.
+	 */
+	private int bucketHeight;
+
+	/**
+	 * Buckets by index, the bucket <code>i</code> contains the
+	 * objects intersecting the range
+	 * <code>[i * bucketHeight, (i + 1) * bucketHeight)</code>.
+	 * Negative coordinates are stored in the first bucket.
+	 */
+	private List<List<Entry<T>>> buckets = new ArrayList<List<Entry<T>>>();
+
+	private int size = 0;
+
+	/**
+	 * Creates an empty index.
+	 * @param bucketHeight the height of a bucket, e.g. a multiple of the line height
+	 */
+	public SpatialIndex(int bucketHeight) {
+		super();
+		if (bucketHeight <= 0) {
+			throw new IllegalArgumentException("Invalid bucket height: " + bucketHeight);
+		}
+		this.bucketHeight = bucketHeight;
+	}
+
+	/**
+	 * Adds an object.
+	 * @param bounds the bounds of the object, the rectangle is copied
+	 * @param item the object
+	 */
+	public void add(Rectangle bounds, T item) {
+		Entry<T> e = new Entry<T>(bounds.getCopy(), item);
+		int last = getBucket(bounds.bottom());
+		for (int i = getBucket(bounds.y); i <= last; i++) {
+			while (buckets.size() <= i) {
+				buckets.add(null);
+			}
+			List<Entry<T>> bucket = buckets.get(i);
+			if (bucket == null) {
+				bucket = new ArrayList<Entry<T>>();
+				buckets.set(i, bucket);
+			}
+			bucket.add(e);
+		}
+		size++;
+	}
+
+	/**
+	 * Finds the objects whose bounds intersect the area. An object
+	 * stored in several buckets is added to the result several times,
+	 * so the result is usually a set.
+	 * @param area the area
+	 * @param result the collection the objects are added to
+	 */
+	public void query(Rectangle area, Collection<T> result) {
+		int last = Math.min(getBucket(area.bottom()), buckets.size() - 1);
+		for (int i = getBucket(area.y); i <= last; i++) {
+			List<Entry<T>> bucket = buckets.get(i);
+			if (bucket == null) {
+				continue;
+			}
+			for (Entry<T> e : bucket) {
+				if (e.bounds.intersects(area)) {
+					result.add(e.item);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of objects in the index.
+	 * @return the number of objects
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all objects.
+	 */
+	public void clear() {
+		buckets.clear();
+		size = 0;
+	}
+
+	private int getBucket(int y) {
+		return y < 0 ? 0 : y / bucketHeight;
+	}
+}
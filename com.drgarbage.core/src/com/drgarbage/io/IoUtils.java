@@ -16,7 +16,11 @@
 
 package com.drgarbage.io;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
 public class IoUtils {
 	
@@ -84,6 +88,74 @@ public class IoUtils {
 	}
 	
 	
+	/**
+	 * Reads the stream to the end. If the size is known the bytes are
+	 * read directly into an array of this size, otherwise the array grows
+	 * as needed. The stream is not closed.
+	 * @param in the input stream
+	 * @param size the expected number of bytes or -1 if not known
+	 * @return the bytes
+	 * @throws IOException
+	 */
+	public static byte[] readFully(InputStream in, long size) throws IOException {
+		if (size >= 0 && size <= Integer.MAX_VALUE) {
+			byte[] b = new byte[(int) size];
+			int n = 0;
+			while (n < b.length) {
+				int len = in.read(b, n, b.length - n);
+				if (len == -1) {
+					break;
+				}
+				n += len;
+			}
+			if (n < b.length) {
+				/* the stream is shorter than expected */
+				byte[] result = new byte[n];
+				System.arraycopy(b, 0, result, 0, n);
+				return result;
+			}
+			int next = in.read();
+			if (next == -1) {
+				return b;
+			}
+
+			/* the stream is longer than expected, continue with a growing buffer */
+			ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(n * 2, 4096));
+			out.write(b, 0, n);
+			out.write(next);
+			copy(in, out);
+			return out.toByteArray();
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+		copy(in, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Reads a file into an array of the file size.
+	 * @param file the file
+	 * @return the bytes
+	 * @throws IOException
+	 */
+	public static byte[] readFully(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			return readFully(in, file.length());
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static void copy(InputStream in, ByteArrayOutputStream out) throws IOException {
+		byte[] buf = new byte[4096];
+		int len;
+		while ((len = in.read(buf)) != -1) {
+			out.write(buf, 0, len);
+		}
+	}
+
 	public static void main(String[] args) {
 		test("/root/something");
 		test("/ro.ot/something");
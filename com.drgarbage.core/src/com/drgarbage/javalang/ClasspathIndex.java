@@ -0,0 +1,514 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.javalang;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.drgarbage.io.IoUtils;
+
+/**
+ * Index of a class path. The index records once per class path
+ * which jar file or directory contains which class. The jar files
+ * are kept open in a bounded pool shared by all indexes.
+ * <br>
+ * The index is checked at most once per {@link #CHECK_INTERVAL}
+ * milliseconds: the jar files with a changed modification time are
+ * indexed again. The directories are scanned again only if a class
+ * has not been found in the index but its class file exists in one
+ * of the directories, because the modification time of a directory
+ * does not reflect changes in its subdirectories. The class files
+ * created after the check are therefore found immediately. A class
+ * file which has been removed after the check is detected on reading
+ * and results in an immediate check.
+ * <br>
+ * The class files are returned as byte arrays of the exact size,
+ * so that the pooled jar files can be closed at any time. The
+ * lookups of different threads are only serialized while the
+ * index is checked, the entries of different jar files are
+ * read concurrently.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class ClasspathIndex {
+
+	/**
+	 * Minimal time in milliseconds between two checks of the
+	 * class path entries.
+	 */
+	public static final long CHECK_INTERVAL = 2000;
+
+	/**
+	 * Maximal number of class path indexes kept in the cache.
+	 */
+	private static final int MAX_INDEXES = 8;
+
+	/**
+	 * Maximal number of jar files kept open.
+	 */
+	private static final int MAX_OPEN_JARS = 32;
+
+	/**
+	 * Extension of the class files.
+	 */
+	private static final String CLASS_FILE_EXTENSION = ".class";
+
+	/**
+	 * Cache of the class path indexes. The least recently
+	 * used index is removed if the cache is full.
+	 */
+	private static final Map<List<String>, ClasspathIndex> indexes =
+		new LinkedHashMap<List<String>, ClasspathIndex>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<String>, ClasspathIndex> eldest) {
+			return size() > MAX_INDEXES;
+		}
+	};
+
+	/**
+	 * Pool of the open jar files. The least recently
+	 * used jar file is closed if the pool is full.
+	 * The lock of the pool is held only while a jar file
+	 * is looked up, never while a jar file is read.
+	 */
+	private static final Map<File, PooledJar> jarFiles =
+		new LinkedHashMap<File, PooledJar>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, PooledJar> eldest) {
+			if (size() > MAX_OPEN_JARS) {
+				eldest.getValue().close();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Open jar file of the pool. The jar file is read and
+	 * closed while holding the lock of this object.
+	 */
+	private static class PooledJar {
+		private JarFile jarFile;
+
+		PooledJar(JarFile jarFile) {
+			this.jarFile = jarFile;
+		}
+
+		/**
+		 * Closes the jar file and ignores all errors.
+		 */
+		synchronized void close() {
+			if (jarFile != null) {
+				try {
+					jarFile.close();
+				} catch (IOException e) {
+					/* nothing to do */
+				}
+				jarFile = null;
+			}
+		}
+	}
+
+	/**
+	 * Class path entry.
+	 */
+	private static class Entry {
+		File file;
+		boolean directory;
+		long lastModified;
+
+		/**
+		 * The jar relative paths of the class files of the entry,
+		 * <code>null</code> if the entry has not been scanned yet.
+		 */
+		List<String> classes;
+	}
+
+	/**
+	 * The class path entries.
+	 */
+	private Entry[] entries;
+
+	/**
+	 * Maps the jar relative path of a class file to the index
+	 * of the first class path entry containing this class.
+	 * <code>null</code> if the index has not been built yet.
+	 */
+	private Map<String, Integer> classIndex;
+
+	/**
+	 * <code>true</code> if the class path contains directories.
+	 */
+	private boolean hasDirectories;
+
+	/**
+	 * Time of the last check of the class path entries.
+	 */
+	private long lastCheck;
+
+	/**
+	 * Creates an index for the given class path.
+	 * @param classPath the class path
+	 */
+	private ClasspathIndex(String[] classPath) {
+		entries = new Entry[classPath.length];
+		for (int i = 0; i < classPath.length; i++) {
+			Entry e = new Entry();
+			e.file = new File(classPath[i]);
+			entries[i] = e;
+		}
+	}
+
+	/**
+	 * Returns the shared index of the given class path.
+	 * @param classPath the class path
+	 * @return the index
+	 */
+	public static ClasspathIndex getIndex(String[] classPath) {
+		List<String> key = Arrays.asList(classPath.clone());
+		synchronized (indexes) {
+			ClasspathIndex index = indexes.get(key);
+			if (index == null) {
+				index = new ClasspathIndex(classPath);
+				indexes.put(key, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Removes all indexes from the cache and closes all open jar files.
+	 */
+	public static void clearCache() {
+		synchronized (indexes) {
+			indexes.clear();
+		}
+		synchronized (jarFiles) {
+			for (PooledJar jar : jarFiles.values()) {
+				jar.close();
+			}
+			jarFiles.clear();
+		}
+	}
+
+	/**
+	 * Finds a class in the class path.
+	 * @param packageName the package name or <code>null</code> for the default package
+	 * @param className the simple class name
+	 * @return the input stream of the class file or <code>null</code> if the class has not been found
+	 * @throws IOException if the class file could not be read
+	 */
+	public InputStream findResource(String packageName, String className) throws IOException {
+		byte[] bytes = findClassBytes(packageName, className);
+		if (bytes == null) {
+			return null;
+		}
+		return new ByteArrayInputStream(bytes);
+	}
+
+	/**
+	 * Finds a class in the class path and reads the class file
+	 * into an array of the exact size.
+	 * @param packageName the package name or <code>null</code> for the default package
+	 * @param className the simple class name
+	 * @return the content of the class file or <code>null</code> if the class has not been found
+	 * @throws IOException if the class file could not be read
+	 */
+	public byte[] findClassBytes(String packageName, String className) throws IOException {
+		if (packageName == null) {
+			packageName = "";
+		}
+		String relativePath = packageName.replace('.', File.separatorChar) + (packageName.length() == 0 ? "" : File.separator) + className + CLASS_FILE_EXTENSION;
+		String jarRelativePath = relativePath.replace(File.separatorChar, '/');
+
+		for (int attempt = 0; attempt < 2; attempt++) {
+			int i = lookup(jarRelativePath, attempt > 0);
+			if (i < 0) {
+				return null;
+			}
+
+			Entry e = entries[i];
+			if (e.directory) {
+				File file = new File(e.file, relativePath);
+				if (file.isFile()) {
+					return IoUtils.readFully(file);
+				}
+			}
+			else {
+				byte[] bytes = readJarEntry(e.file, jarRelativePath);
+				if (bytes != null) {
+					return bytes;
+				}
+			}
+
+			/* the class file has been removed, check the index and try again */
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the class path entry containing the class file.
+	 * The index is built or checked if necessary.
+	 * @param name the jar relative path of the class file
+	 * @param check <code>true</code> if the index has to be checked
+	 *         regardless of the time of the last check
+	 * @return the index of the class path entry or -1 if the class has not been found
+	 */
+	private synchronized int lookup(String name, boolean check) {
+		boolean checkDirectories = check;
+		if (classIndex == null) {
+			check = true;
+			checkDirectories = true;
+		}
+		else if (System.currentTimeMillis() - lastCheck >= CHECK_INTERVAL) {
+			check = true;
+		}
+
+		if (check) {
+			update(checkDirectories);
+		}
+
+		Integer i = classIndex.get(name);
+		if (i == null && !checkDirectories && hasDirectories && existsInDirectory(name)) {
+			/* the class has been created in a directory since the last check */
+			update(true);
+			i = classIndex.get(name);
+		}
+
+		return (i == null) ? -1 : i.intValue();
+	}
+
+	/**
+	 * Checks if the class file exists in one of the directories
+	 * of the class path.
+	 * @param name the jar relative path of the class file
+	 * @return <code>true</code> if the class file exists
+	 */
+	private boolean existsInDirectory(String name) {
+		String relativePath = name.replace('/', File.separatorChar);
+		for (Entry e : entries) {
+			if (e.directory && new File(e.file, relativePath).isFile()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Scans the changed jar files and optionally all directories of
+	 * the class path and rebuilds the index if an entry has been changed.
+	 * @param scanDirectories <code>true</code> if the directories have to be scanned
+	 */
+	private void update(boolean scanDirectories) {
+		boolean changed = (classIndex == null);
+		for (Entry e : entries) {
+			long lastModified = e.file.lastModified();
+			boolean directory = e.file.isDirectory();
+			if (e.classes != null && !directory && !e.directory && lastModified == e.lastModified) {
+				/* unchanged jar file */
+				continue;
+			}
+			if (e.classes != null && directory && e.directory && !scanDirectories) {
+				continue;
+			}
+
+			e.lastModified = lastModified;
+			e.directory = directory;
+			List<String> classes = directory ? scanDirectory(e.file) : scanJarFile(e.file);
+			if (!classes.equals(e.classes)) {
+				e.classes = classes;
+				changed = true;
+			}
+		}
+
+		if (changed) {
+			Map<String, Integer> index = new HashMap<String, Integer>();
+			hasDirectories = false;
+			for (int i = entries.length - 1; i >= 0; i--) {
+				/* the first entry of the class path takes precedence */
+				Integer entry = Integer.valueOf(i);
+				for (String name : entries[i].classes) {
+					index.put(name, entry);
+				}
+				hasDirectories |= entries[i].directory;
+			}
+			classIndex = index;
+		}
+
+		lastCheck = System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the class files of a jar file.
+	 * @param file the jar file
+	 * @return the jar relative paths of the class files, an empty list
+	 *          if the file does not exist or is not a valid jar file
+	 */
+	private static List<String> scanJarFile(File file) {
+		List<String> classes = new ArrayList<String>();
+		if (!file.isFile()) {
+			return classes;
+		}
+
+		PooledJar jar;
+		try {
+			jar = getJarFile(file, true);
+		} catch (IOException ex) {
+			/* not a valid jar file, ignore it like the java launcher does */
+			return classes;
+		}
+
+		synchronized (jar) {
+			if (jar.jarFile != null) {
+				Enumeration<JarEntry> en = jar.jarFile.entries();
+				while (en.hasMoreElements()) {
+					String name = en.nextElement().getName();
+					if (name.endsWith(CLASS_FILE_EXTENSION)) {
+						classes.add(name);
+					}
+				}
+			}
+		}
+
+		return classes;
+	}
+
+	/**
+	 * Returns the class files of a directory and its subdirectories.
+	 * @param directory the directory
+	 * @return the paths of the class files relative to the directory,
+	 *          separated by <code>'/'</code>
+	 */
+	private static List<String> scanDirectory(File directory) {
+		List<String> classes = new ArrayList<String>();
+		List<File> dirs = new ArrayList<File>();
+		List<String> prefixes = new ArrayList<String>();
+		dirs.add(directory);
+		prefixes.add("");
+
+		while (!dirs.isEmpty()) {
+			File dir = dirs.remove(dirs.size() - 1);
+			String prefix = prefixes.remove(prefixes.size() - 1);
+			File[] files = dir.listFiles();
+			if (files == null) {
+				continue;
+			}
+
+			for (File f : files) {
+				String name = f.getName();
+				if (f.isDirectory()) {
+					dirs.add(f);
+					prefixes.add(prefix + name + '/');
+				}
+				else if (name.endsWith(CLASS_FILE_EXTENSION)) {
+					classes.add(prefix + name);
+				}
+			}
+		}
+
+		return classes;
+	}
+
+	/**
+	 * Reads an entry of a jar file. Only the jar file is locked
+	 * while the entry is read.
+	 * @param file the jar file
+	 * @param name the name of the entry
+	 * @return the content of the entry or <code>null</code> if the entry does not exist
+	 * @throws IOException if the entry could not be read
+	 */
+	private static byte[] readJarEntry(File file, String name) throws IOException {
+		while (true) {
+			PooledJar jar = getJarFile(file, false);
+			synchronized (jar) {
+				if (jar.jarFile == null) {
+					/* closed by the pool in the meantime */
+					continue;
+				}
+
+				JarEntry jarEntry = jar.jarFile.getJarEntry(name);
+				if (jarEntry == null) {
+					return null;
+				}
+
+				InputStream in = jar.jarFile.getInputStream(jarEntry);
+				try {
+					return IoUtils.readFully(in, jarEntry.getSize());
+				}
+				finally {
+					in.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the pooled jar file handle. The file is opened if necessary.
+	 * @param file the jar file
+	 * @param reopen <code>true</code> if an already open handle has to be replaced
+	 * @return the jar file
+	 * @throws IOException if the jar file could not be opened
+	 */
+	private static PooledJar getJarFile(File file, boolean reopen) throws IOException {
+		synchronized (jarFiles) {
+			PooledJar jar = jarFiles.get(file);
+			if (jar != null && reopen) {
+				jarFiles.remove(file);
+				jar.close();
+				jar = null;
+			}
+			if (jar == null) {
+				jar = new PooledJar(new JarFile(file));
+				jarFiles.put(file, jar);
+			}
+			return jar;
+		}
+	}
+
+	/**
+	 * Closes all pooled jar files of this class path.
+	 */
+	public void close() {
+		synchronized (jarFiles) {
+			for (Entry e : entries) {
+				PooledJar jar = jarFiles.remove(e.file);
+				if (jar != null) {
+					jar.close();
+				}
+			}
+		}
+	}
+}
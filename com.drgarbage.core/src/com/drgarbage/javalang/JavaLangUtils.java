@@ -17,11 +17,8 @@
 package com.drgarbage.javalang;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jdt.core.IJavaProject;
@@ -58,37 +55,30 @@ public class JavaLangUtils {
 	    return null;
 	}
 	
+	/**
+	 * Finds a class file in the class path. The lookup uses the
+	 * shared {@link ClasspathIndex} of the class path.
+	 * @param classPath the class path
+	 * @param packageName the package name
+	 * @param className the simple class name
+	 * @return the input stream or <code>null</code> if the class has not been found
+	 * @throws IOException if the class file could not be read
+	 */
 	public static InputStream findResource(String[] classPath, String packageName, String className) throws IOException {
-		if(packageName == null){
-			packageName= "";
-		}
-	    String relativePath = packageName.replace('.', File.separatorChar) + (packageName.length() == 0 ? "" : File.separator) + className + ".class";
-	    String jarRelativePath = relativePath.replace(File.separatorChar, '/');
-	    for (int i = 0; i <  classPath.length; i++) {
-	        File currentClassPathEntry = new File(classPath[i]);
-	        if (!currentClassPathEntry.exists()) {
-	            continue;
-	        }
-	        if (currentClassPathEntry.isDirectory()) {
-	            File file = new File(currentClassPathEntry, relativePath);
-	            if (file.exists()) {
-	                return new FileInputStream(file);
-	            }
-	        } else if (currentClassPathEntry.isFile()) {
-	        	JarFile jarFile = null;
-            	jarFile = new JarFile(currentClassPathEntry);
-                JarEntry jarEntry = jarFile.getJarEntry(jarRelativePath);
-                if (jarEntry != null) {
-                    return jarFile.getInputStream(jarEntry);
-                }
-                else {
-	            	if (jarFile != null) {
-		                jarFile.close();
-	            	}
-                }
-	        }
-	    }
-	    return null;
+		return ClasspathIndex.getIndex(classPath).findResource(packageName, className);
+	}
+	
+	/**
+	 * Finds a class file in the class path and returns its content.
+	 * The lookup uses the shared {@link ClasspathIndex} of the class path.
+	 * @param classPath the class path
+	 * @param packageName the package name
+	 * @param className the simple class name
+	 * @return the bytes or <code>null</code> if the class has not been found
+	 * @throws IOException if the class file could not be read
+	 */
+	public static byte[] findClassBytes(String[] classPath, String packageName, String className) throws IOException {
+		return ClasspathIndex.getIndex(classPath).findClassBytes(packageName, className);
 	}
 	
 	public static String[] computeRuntimeClassPath(IJavaProject jp) throws CoreException{
@@ -58,6 +58,9 @@ public class SourcecodeVisualizerMessages extends NLS {
 	public static String Sourcecodevisualizer_RefreshAction_Text;
 	public static String Sourcecodevisualizer_RefreshAction_TooltipText;
 	
+	/* jobs */
+	public static String Sourcecodevisualizer_UpdateGraphsJob_Name;
+	
 	/* error handling */
 	public static String ExceptionAdditionalMessage;
 	public static String GraphNotGenerated_ClassFileNotCompiled;
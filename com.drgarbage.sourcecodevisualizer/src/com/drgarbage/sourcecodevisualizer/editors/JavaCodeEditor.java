@@ -16,17 +16,28 @@
 
 package com.drgarbage.sourcecodevisualizer.editors;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.draw2d.FigureCanvas;
 import org.eclipse.draw2d.MouseEvent;
 import org.eclipse.draw2d.MouseListener;
 import org.eclipse.draw2d.geometry.Point;
 import org.eclipse.jdt.core.ICompilationUnit;
-import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.ISourceReference;
+import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.javaeditor.CompilationUnitEditor;
 import org.eclipse.jdt.internal.ui.javaeditor.ICompilationUnitDocumentProvider;
@@ -71,6 +82,7 @@ import org.eclipse.swt.layout.FormAttachment;
 import org.eclipse.swt.layout.FormData;
 import org.eclipse.swt.layout.FormLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Menu;
@@ -92,6 +104,7 @@ import com.drgarbage.core.preferences.CorePreferenceConstants;
 import com.drgarbage.core.views.ControlFlowGraphViewPage;
 import com.drgarbage.core.views.IControlFlowGraphView;
 import com.drgarbage.core.views.IControlFlowGraphViewPage;
+import com.drgarbage.sourcecodevisualizer.SourcecodeVisualizerMessages;
 import com.drgarbage.sourcecodevisualizer.SourcecodeVisualizerPlugin;
 import com.drgarbage.sourcecodevisualizer.actions.ConstructorFilterAction;
 import com.drgarbage.sourcecodevisualizer.actions.MethodGraphFilterAction;
@@ -146,7 +159,95 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 	 * Reference to the selcted Method.
 	 */
 	private IMethod selectedMethod = null;
-	
+
+	/**
+	 * The source code graphs of the edited compilation unit.
+	 */
+	private SourceCodeGraphModel graphModel = null;
+
+	/**
+	 * Scheduling rule of the jobs generating the graphs. The jobs run
+	 * one after another in the order they have been scheduled, so the
+	 * graphs are displayed in the same order.
+	 */
+	private final ISchedulingRule graphJobRule = new ISchedulingRule(){
+
+		public boolean contains(ISchedulingRule rule) {
+			return rule == this;
+		}
+
+		public boolean isConflicting(ISchedulingRule rule) {
+			return rule == this;
+		}
+	};
+
+	/**
+	 * Updates the graphs of the classes changed by a build. The graphs
+	 * are generated by a job, the builder is not blocked. The jobs belong
+	 * to the family of the editor and are canceled if the editor is disposed.
+	 * 
+	 * @see IWorkspace#addResourceChangeListener(IResourceChangeListener, int)
+	 */
+	private IResourceChangeListener buildListener = new IResourceChangeListener(){
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+		 */
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResourceDelta delta = event.getDelta();
+			final SourceCodeGraphModel model = graphModel;
+			if (delta == null || model == null) {
+				return;
+			}
+
+			final Set<String> changedClasses;
+			try {
+				changedClasses = model.getChangedClasses(delta);
+			} catch (JavaModelException e) {
+				SourcecodeVisualizerPlugin.getDefault().getLog().log(
+						new Status(IStatus.ERROR, SourcecodeVisualizerPlugin.PLUGIN_ID, e.getMessage(), e));
+				return;
+			}
+
+			if (changedClasses.isEmpty()) {
+				return;
+			}
+
+			/* the delta is only valid during the notification, generate the graphs later */
+			Job job = new Job(SourcecodeVisualizerMessages.Sourcecodevisualizer_UpdateGraphsJob_Name) {
+
+				/* (non-Javadoc)
+				 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
+				 */
+				public boolean belongsTo(Object family) {
+					return family == JavaCodeEditor.this;
+				}
+
+				/* (non-Javadoc)
+				 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+				 */
+				protected IStatus run(IProgressMonitor monitor) {
+					if (monitor.isCanceled()) {
+						return Status.CANCEL_STATUS;
+					}
+
+					final boolean updated = model.update(changedClasses) != null;
+
+					/* update the viewer inside the UI thread */
+					Display.getDefault().asyncExec(new Runnable() {
+						public void run() {
+							updateGraphPanel(updated);
+						}
+					});
+					return Status.OK_STATUS;
+				}
+			};
+			job.setPriority(Job.SHORT);
+			job.setRule(graphJobRule);
+			job.schedule();
+		}
+	};
+
 	/**
 	 * Default Contructor.
 	 */
@@ -286,9 +387,9 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 		
 		/* canvas for the control flow graph viewer */
 		canvasControlFlowGraph = new SourceCodeGraphCanvas(parent);
-		List<IDirectedGraphExt> graphs = createGraphs();
 		lineCount = textWidget.getLineCount();
-		canvasControlFlowGraph.init(lineCount, textWidget.getLineHeight(), graphs);
+		canvasControlFlowGraph.init(lineCount, textWidget.getLineHeight(), new ArrayList<IDirectedGraphExt>());
+		createGraphs();
 	
 		/* Wrap the second view: Control Flow Graph Viewer */
 		FormData editorParentFormData2 = new FormData ();
@@ -317,7 +418,6 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 		sashFormData.bottom = new FormAttachment (100, 0);
 		sash.setLayoutData (sashFormData);
 
-		final int graphAreaWidht = canvasControlFlowGraph.getFigureWidth();
 		final int sashWidthoffset = 24; //sash + balks
 
 		/* resize of the editor shell */
@@ -329,7 +429,9 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 			/* set the left are = size of the graph view, but maximal 50% of the whole view */
 			public void controlResized(ControlEvent e) {
 				Rectangle shellRect = parent.getClientArea ();
-				int right = shellRect.width - graphAreaWidht - sashWidthoffset;
+				
+				/* the width grows while the graphs are built in background */
+				int right = shellRect.width - canvasControlFlowGraph.getFigureWidth() - sashWidthoffset;
 				right = Math.max(right, shellRect.width/2);
 				sashFormData.left.offset = right;
 				parent.layout ();
@@ -346,7 +448,7 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 				e.x = Math.max (Math.min (e.x, right), limit);
 
 				if((shellRect.width - e.x - sashWidthoffset) < 0){/*check the minimum size*/
-					e.x = shellRect.width  - graphAreaWidht - sashWidthoffset;
+					e.x = shellRect.width  - canvasControlFlowGraph.getFigureWidth() - sashWidthoffset;
 				}
 
 				if (e.x != sashRect.x)  {
@@ -415,18 +517,106 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
     }
 
 	/**
-	 * Create a list of graphs.
-	 * @return list of graphs
+	 * Creates new graphs for all methods and initializes the
+	 * canvas with them. The graphs are generated by a job.
+	 * @see #scheduleGraphRefresh(boolean)
+	 */
+	private void createGraphs(){
+		scheduleGraphRefresh(true);
+	}
+
+	/**
+	 * Reloads the class path and the classes of the edited compilation
+	 * unit and generates the graphs in a job. Reading the classes and
+	 * generating the graphs does not block the UI thread, only the 
+	 * graphs are passed to the canvas in the UI thread.
+	 * @param init <code>true</code> if new graphs have to be generated for
+	 *         all methods and passed to {@link SourceCodeGraphCanvas#init(int, int, List)},
+	 *         <code>false</code> if the graphs of the unchanged methods are reused
+	 *         and passed to {@link SourceCodeGraphCanvas#update(int, int, List)}
 	 */
-	private List<IDirectedGraphExt> createGraphs(){
+	private void scheduleGraphRefresh(final boolean init){
+		final SourceCodeGraphModel model = getGraphModel();
+		if (model == null) {
+			displayGraphs(init, null);
+			return;
+		}
+
+		Job job = new Job(SourcecodeVisualizerMessages.Sourcecodevisualizer_UpdateGraphsJob_Name) {
 
+			/* (non-Javadoc)
+			 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
+			 */
+			public boolean belongsTo(Object family) {
+				return family == JavaCodeEditor.this;
+			}
+
+			/* (non-Javadoc)
+			 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+			 */
+			protected IStatus run(IProgressMonitor monitor) {
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+
+				if (init) {
+					model.clear();
+				}
+				final List<IDirectedGraphExt> graphs = model.refresh();
+
+				/* update the viewer inside the UI thread */
+				Display.getDefault().asyncExec(new Runnable() {
+					public void run() {
+						displayGraphs(init, graphs);
+					}
+				});
+				return Status.OK_STATUS;
+			}
+		};
+		job.setPriority(Job.SHORT);
+		job.setRule(graphJobRule);
+		job.schedule();
+	}
+
+	/**
+	 * Passes the graphs generated by {@link #scheduleGraphRefresh(boolean)}
+	 * to the canvas. The method has to be called in the UI thread.
+	 * @param init <code>true</code> if the canvas has to be initialized
+	 * @param graphs the graphs or <code>null</code> if the graphs
+	 *         could not be created
+	 */
+	private void displayGraphs(boolean init, List<IDirectedGraphExt> graphs){
+		if(canvasControlFlowGraph == null || canvasControlFlowGraph.isDisposed() 
+				|| textWidget == null || textWidget.isDisposed()){
+			return;
+		}
+
+		if(init){
+			canvasControlFlowGraph.init(textWidget.getLineCount(), textWidget.getLineHeight(), graphs);
+		}
+		else{
+			canvasControlFlowGraph.update(textWidget.getLineCount(), textWidget.getLineHeight(), graphs);
+		}
+	}
+
+	/**
+	 * Returns the graph model of the edited compilation unit.
+	 * @return the model or <code>null</code>
+	 */
+	private SourceCodeGraphModel getGraphModel(){
         IDocumentProvider p = getDocumentProvider();
 		if (p instanceof ICompilationUnitDocumentProvider) {
 			ICompilationUnitDocumentProvider cp= (ICompilationUnitDocumentProvider) p;
 			ICompilationUnit unit = cp.getWorkingCopy(getEditorInput());                   
-			IJavaProject jp = unit.getJavaProject();
-			
-			return SourcecodeGraphUtils.createGraphs(unit, jp);
+			if (unit == null) {
+				return null;
+			}
+
+			if (graphModel == null || !unit.equals(graphModel.getCompilationUnit())) {
+				graphModel = new SourceCodeGraphModel(unit);
+			}
+
+			return graphModel;
 		}
 
 		return null;
@@ -469,14 +659,12 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 				textWidget.setFont(f);
 
 				//TODO: define better update method without new generation of graphs
-				List<IDirectedGraphExt> graphs = createGraphs();
-				canvasControlFlowGraph.init(textWidget.getLineCount(), textWidget.getLineHeight(), graphs);
+				createGraphs();
 			}
 			else if(event.getProperty().startsWith(CorePreferenceConstants.GRAPH_COLOR_PREFIX)){
 				/* bytecode visualizer property */
 				//TODO: define better update method without new generation of graphs
-				List<IDirectedGraphExt> graphs = createGraphs();
-				canvasControlFlowGraph.init(textWidget.getLineCount(), textWidget.getLineHeight(), graphs);
+				createGraphs();
 			}
 			else{
 				/* other references which are not matched before */
@@ -502,6 +690,9 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 
 		/* bytecode visualizer property */
 		SourcecodeVisualizerPlugin.getDefault().getPreferenceStore().addPropertyChangeListener(preferenceListener);
+
+		/* class files changed by the builder */
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(buildListener, IResourceChangeEvent.POST_BUILD);
 	}
 
 	/* (non-Javadoc)
@@ -518,6 +709,9 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 
 		/* bytecode visualizer property */
 		SourcecodeVisualizerPlugin.getDefault().getPreferenceStore().removePropertyChangeListener(preferenceListener);
+
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(buildListener);
+		Job.getJobManager().cancel(this);
 		
 		/* call default dispose method */
 		super.dispose();
@@ -690,30 +884,38 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 	public void doSave(IProgressMonitor progressMonitor) {
 		super.doSave(progressMonitor);
 		
-		/* simple implementation. The compilation is done by separate thread.
-		 * Just wait a second. It should be enough to compile a source. */
-		try {
-			Thread.sleep(1000);
-		} catch (InterruptedException e) {
-			e.printStackTrace(System.err);
-		}
-		
-		//TODO: imlement synchronisation of the threads by using of JavaCore listener.
-//		JavaCore.addPreProcessingResourceChangedListener(new IResourceChangeListener(){
-//			public void resourceChanged(IResourceChangeEvent event) {
-//			}
-//		}, IResourceChangeEvent.POST_CHANGE);
-		
-		refreshGraphPanel();
-
+		/* 
+		 * The compilation is done by the builder. The graphs of the 
+		 * changed classes are updated by the build listener.
+		 */
 	}
 	
+	/**
+	 * Reloads the class path and updates the graphs of all classes.
+	 * Only the graphs of the changed methods are generated again,
+	 * the graphs are generated by a job.
+	 */
 	public void refreshGraphPanel(){
-		if(canvasControlFlowGraph !=null){
-			List<IDirectedGraphExt> graphs = createGraphs();
-			canvasControlFlowGraph.init(textWidget.getLineCount(), textWidget.getLineHeight(), graphs);
+		if(canvasControlFlowGraph !=null && textWidget != null){
+			scheduleGraphRefresh(false);
 		}
 	}
+
+	/**
+	 * Displays the graphs updated after a build. The current graphs are 
+	 * taken from the model, the model may have been refreshed in the 
+	 * meantime.
+	 * @param updated <code>false</code> if the graphs could not be created
+	 */
+	private void updateGraphPanel(boolean updated){
+		if(canvasControlFlowGraph == null || canvasControlFlowGraph.isDisposed() 
+				|| textWidget == null || textWidget.isDisposed() || graphModel == null){
+			return;
+		}
+
+		List<IDirectedGraphExt> graphs = updated ? graphModel.getGraphs() : null;
+		canvasControlFlowGraph.update(textWidget.getLineCount(), textWidget.getLineHeight(), graphs);
+	}
 	
     /**
      * Creates this editor's standard actions and connects them with the global
@@ -820,9 +1022,9 @@ public class JavaCodeEditor extends CompilationUnitEditor implements IControlFlo
 
 		/* canvas for the control flow graph viewer */
 		canvasControlFlowGraph = new SourceCodeGraphCanvas(parent);
-		List<IDirectedGraphExt> graphs = createGraphs();
 		lineCount = textWidget.getLineCount();
-		canvasControlFlowGraph.init(lineCount, textWidget.getLineHeight(), graphs);
+		canvasControlFlowGraph.init(lineCount, textWidget.getLineHeight(), new ArrayList<IDirectedGraphExt>());
+		createGraphs();
 		
 		/* init control flow graph view */
 		setControlFlowViewBackGround();
@@ -16,20 +16,29 @@
 
 package com.drgarbage.sourcecodevisualizer.editors;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.draw2d.ColorConstants;
 import org.eclipse.draw2d.Figure;
 import org.eclipse.draw2d.FigureCanvas;
+import org.eclipse.draw2d.IFigure;
 import org.eclipse.draw2d.Label;
 import org.eclipse.draw2d.LightweightSystem;
 import org.eclipse.draw2d.LineBorder;
+import org.eclipse.draw2d.Viewport;
 import org.eclipse.draw2d.geometry.Dimension;
 import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.Rectangle;
 import org.eclipse.swt.events.ControlEvent;
 import org.eclipse.swt.events.ControlListener;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Composite;
@@ -38,6 +47,8 @@ import com.drgarbage.bytecode.ByteCodeConstants;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
 import com.drgarbage.core.CoreMessages;
 import com.drgarbage.core.img.CoreImg;
+import com.drgarbage.draw2d.ControlFlowGraphFigure;
+import com.drgarbage.draw2d.ControlFlowGraphFigureJob;
 import com.drgarbage.sourcecodevisualizer.SourcecodeVisualizerMessages;
 import com.drgarbage.utils.Messages;
 
@@ -99,6 +110,23 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 	 */
 	private List<Figure> methodGraphsList = new ArrayList<Figure>();
 	
+	/**
+	 * Figures of the displayed graphs. The graphs rejected by 
+	 * the user because of their size are mapped to <code>null</code>.
+	 */
+	private Map<IDirectedGraphExt, SourceCodeGraphFigure> graphFigures = new IdentityHashMap<IDirectedGraphExt, SourceCodeGraphFigure>();
+	
+	/**
+	 * Placeholders of the figures which are still built by a
+	 * {@link ControlFlowGraphFigureJob}.
+	 */
+	private Map<SourceCodeGraphFigure, IFigure> placeholders = new IdentityHashMap<SourceCodeGraphFigure, IFigure>();
+	
+	/**
+	 * The line count of the last update.
+	 */
+	private int lineCount = 0;
+	
 	
 	private boolean showContructorGraphs = true;
 	private boolean showMethodGraphs = true;
@@ -127,9 +155,17 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 
 			public void controlResized(ControlEvent e) {
 				rootFigure.setSize(w, h);
+				updateVisibleArea();
 			}
 			
 		});
+
+		/* create the figures of the virtualized graphs while scrolling */
+		getViewport().addPropertyChangeListener(Viewport.PROPERTY_VIEW_LOCATION, new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent evt) {
+				updateVisibleArea();
+			}
+		});
 		
 		/* init Dr. Garbage label */
 		Image image = CoreImg.labelDrGarbage_148x30.createImage();
@@ -145,6 +181,13 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 		b.setColor(ColorConstants.white);
 		rootFigure.setBorder(b);
 
+		/* stop building the graphs */
+		this.addDisposeListener(new DisposeListener() {
+
+			public void widgetDisposed(DisposeEvent e) {
+				Job.getJobManager().cancel(SourceCodeGraphCanvas.this);
+			}
+		});
 	}
 
 	
@@ -178,20 +221,48 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 	
 	/**
 	 * Initialization of the canvas. The canvas object can be used only
-	 * after its initialization. 
+	 * after its initialization. All figures are created again, the
+	 * graphs have to be new objects because the layout modifies them.
 	 * @param lineCount
 	 * @param lineHeight
 	 * @param sourcecodegraph
 	 */
 	public void init(int lineCount, int lineHeight, List<IDirectedGraphExt> sourcecodegraphs){
+		/* the figures of the previous graphs are not built any more */
+		Job.getJobManager().cancel(this);
+		placeholders.clear();
+		
+		graphFigures.clear();
+		update(lineCount, lineHeight, sourcecodegraphs);
+	}
+	
+	/**
+	 * Updates the canvas. The figures of the graphs which have been 
+	 * displayed before are reused without a new layout, the figures 
+	 * are only created for the new graphs. The line height has to be
+	 * the same as by the last initialization.
+	 * <br>
+	 * The new figures are built by a {@link ControlFlowGraphFigureJob}, 
+	 * a placeholder is displayed until a figure is ready.
+	 * @param lineCount
+	 * @param lineHeight
+	 * @param sourcecodegraphs the graphs, unchanged graphs have to be 
+	 *         the same objects as passed before
+	 * @see SourceCodeGraphModel
+	 */
+	public void update(int lineCount, int lineHeight, List<IDirectedGraphExt> sourcecodegraphs){
 		this.lineHight = lineHeight;
+		this.lineCount = lineCount;
 		
 		/* first initialization */
 		if(rootFigure.getChildren().size() == 0){
 			setContents(rootFigure);
 		}
 
-		rootFigure.removeAll(); //TODO: update only changed graphs
+		rootFigure.removeAll();
+		constructorGraphsList.clear();
+		methodGraphsList.clear();
+		Map<IDirectedGraphExt, SourceCodeGraphFigure> figures = new IdentityHashMap<IDirectedGraphExt, SourceCodeGraphFigure>();
 		
 		/* add line selector */
 		rootFigure.add(lineSelector);
@@ -199,6 +270,29 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 		/* Add Dr. Garbage image */
 		rootFigure.add(label);
 		
+		ControlFlowGraphFigureJob job = new ControlFlowGraphFigureJob(this, getDisplay()){
+			protected void figureAdded(ControlFlowGraphFigure figure) {
+				SourceCodeGraphFigure f = (SourceCodeGraphFigure) figure;
+				placeholders.remove(f);
+
+				/* the document may have been changed while the figure has been built */
+				f.setHeightByLineCount(SourceCodeGraphCanvas.this.lineCount);
+				if(constructorGraphsList.contains(f)){
+					f.setVisible(showContructorGraphs);
+				}
+				else{
+					f.setVisible(showMethodGraphs);
+				}
+
+				f.setVisibleArea(getViewport().getClientArea());
+
+				if( w < f.getSize().width + f.getLocation().x){
+					w = f.getSize().width + f.getLocation().x;
+					rootFigure.setSize(w, h);
+				}
+			}
+		};
+				
 		int x = 0;
 		int y = 0;
 		if(sourcecodegraphs != null){
@@ -214,8 +308,24 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 					continue;
 				}
 				
+				SourceCodeGraphFigure controlFlowGraphFigure = null;
+				boolean created = false;
+				if(graphFigures.containsKey(graph)){
+					/* unchanged graph, already laid out */
+					controlFlowGraphFigure = graphFigures.get(graph);
+					figures.put(graph, controlFlowGraphFigure);
+					if(controlFlowGraphFigure == null){
+						/* rejected by the user */
+						continue;
+					}
+					
+					/* a figure still built by a job is resized when it is ready */
+					if(!placeholders.containsKey(controlFlowGraphFigure)){
+						controlFlowGraphFigure.setHeightByLineCount(lineCount);
+					}
+				}
 				/* check the size of the Graph */
-				if(graph.getNodeList().size() > WARNING_MAX_GRAPH_NODE_COUNT 
+				else if(graph.getNodeList().size() > WARNING_MAX_GRAPH_NODE_COUNT 
 						|| graph.getEdgeList().size()	> WARNING_MAX_GRAPH_EDGE_COUNT){ 
 						
 					StringBuffer buf = new StringBuffer("The Graph '");
@@ -234,11 +344,16 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 
 					boolean b = Messages.openConfirm(buf.toString());
 					if(!b){
+						figures.put(graph, null);
 						continue;
 					}
 				}
 				
-				SourceCodeGraphFigure controlFlowGraphFigure = new SourceCodeGraphFigure(lineCount, lineHeight, graph);
+				if(controlFlowGraphFigure == null){
+					controlFlowGraphFigure = new SourceCodeGraphFigure(lineCount, lineHeight, graph);
+					figures.put(graph, controlFlowGraphFigure);
+					created = true;
+				}
 
 				/* get user info including:
 				 * - method name
@@ -270,19 +385,42 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 				/* 
 				 * All figures added to the (0, 0) - location
 				 * But the graph is synchronized with the lines.
+				 * A figure still built by a job is not touched.
 				 */
-				controlFlowGraphFigure.setLocation(new Point(x, y));
-
-				/* set line height if the property has been changed */
-				controlFlowGraphFigure.setLineHight(lineHight);
+				if(!placeholders.containsKey(controlFlowGraphFigure)){
+					controlFlowGraphFigure.setLocation(new Point(x, y));
+				}
 
-				controlFlowGraphFigure.documentUpdated(null);
+				if(created){
+					/* set line height if the property has been changed */
+					controlFlowGraphFigure.setLineHight(lineHight);
+
+					/* 
+					 * The graph is built by the job, the y-coordinates 
+					 * of the nodes are the line numbers before the layout.
+					 */
+					IFigure placeholder = ControlFlowGraphFigureJob.createPlaceholder();
+					placeholder.setLocation(new Point(x + 10, graph.getNodeList().getNodeExt(0).getY() * lineHight));
+					placeholders.put(controlFlowGraphFigure, placeholder);
+					job.add(controlFlowGraphFigure, null, placeholder);
+				}
+				
+				IFigure placeholder = placeholders.get(controlFlowGraphFigure);
+				if(placeholder != null){
+					rootFigure.add(placeholder);
+					continue;
+				}
+				
 				rootFigure.add(controlFlowGraphFigure);	
 
 				if( w < controlFlowGraphFigure.getSize().width + x){
 					w = controlFlowGraphFigure.getSize().width + x;
 				}				
 			}
+			
+			/* figures of the removed graphs are released */
+			graphFigures = figures;
+			placeholders.keySet().retainAll(figures.values());
 		}
 		else{
 			Messages.warning(SourcecodeVisualizerMessages.GraphNotGenerated_ClassFileNotCompiled);
@@ -294,6 +432,24 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 		/* set graph visibility */
 		setVisibleGraphsRepresentingConstructors(showContructorGraphs);
 		setVisibleGraphsRepresentingMethods(showMethodGraphs);
+		updateVisibleArea();
+		
+		if(!job.isEmpty()){
+			job.schedule();
+		}
+	}
+	
+	/**
+	 * Passes the visible area of the viewport to the graph figures.
+	 * @see ControlFlowGraphFigure#setVisibleArea(Rectangle)
+	 */
+	private void updateVisibleArea(){
+		Rectangle area = getViewport().getClientArea();
+		for(Object o : rootFigure.getChildren()){
+			if(o instanceof ControlFlowGraphFigure){
+				((ControlFlowGraphFigure)o).setVisibleArea(area);
+			}
+		}
 	}
 	
 	private static int isAnonumus(String text){
@@ -386,7 +542,10 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 	public void setVisibleGraphsRepresentingConstructors(boolean b){
 		showContructorGraphs = b;
 		for( Figure f: constructorGraphsList){
-			f.setVisible(b);
+			/* figures still built by a job are updated when they are ready */
+			if(!placeholders.containsKey(f)){
+				f.setVisible(b);
+			}
 		}		
 	}
 
@@ -397,7 +556,9 @@ public class SourceCodeGraphCanvas extends FigureCanvas {
 	public void setVisibleGraphsRepresentingMethods(boolean b){
 		showMethodGraphs = b;
 		for( Figure f: methodGraphsList){
-			f.setVisible(b);
+			if(!placeholders.containsKey(f)){
+				f.setVisible(b);
+			}
 		}
 	}
 }
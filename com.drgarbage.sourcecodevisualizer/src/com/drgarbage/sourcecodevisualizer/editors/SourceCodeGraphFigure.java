@@ -17,7 +17,6 @@
 package com.drgarbage.sourcecodevisualizer.editors;
 
 import java.util.ArrayList;
-import java.util.List;
 
 import org.eclipse.draw2d.AbstractConnectionAnchor;
 import org.eclipse.draw2d.Bendpoint;
@@ -56,37 +55,38 @@ public class SourceCodeGraphFigure extends com.drgarbage.draw2d.ControlFlowGraph
 		sourcecodegraph = graph;
 	}
 
+	/* (non-Javadoc)
+	 * @see com.drgarbage.draw2d.ControlFlowGraphFigure#createGraph()
+	 */
+	protected IDirectedGraphExt createGraph() {
+		return sourcecodegraph;
+	}
+
 	/**
 	 * Creates control flow graphs and adds they to the view.
 	 */
 	protected void createControlFlowGraphs() {
+		IDirectedGraphExt graph = getGraph();
+
 		/* check the size of the Graph */
-		if(!checkGraphSize(sourcecodegraph, 
+		if(!checkGraphSize(graph, 
 				WARNING_MAX_GRAPH_NODE_COUNT/8, 
 				WARNING_MAX_GRAPH_EDGE_COUNT/8))
 		{
 			return;
 		}
 
-		visualizeGraph(sourcecodegraph);
+		visualizeGraph(graph);
 	}
 
 	/**
-	 * Update x and y-positions of the nodes.
+	 * Returns the offset of the nodes. The nodes are located 
+	 * in the lines of the source code, they are only moved 
+	 * in the x-direction.
+	 * @see com.drgarbage.draw2d.ControlFlowGraphFigure#getNodeOffset()
 	 */	
-	protected void updateNodePositions(){
-		List<?> children = verticesLayer.getChildren();
-		IFigure f = null;
-		for(Object o : children){
-			f = (IFigure)o;
-			f.setLocation(new Point(f.getClientArea().x + Math.abs(minX) + xMargin, f.getClientArea().y));
-		}
-			
-		children = routingObjectsLayer.getChildren();
-		for(Object o : children){
-			f = (IFigure)o;
-			f.setLocation(new Point(f.getClientArea().x + Math.abs(minX) + xMargin, f.getClientArea().y ));
-		}
+	protected Point getNodeOffset(){
+		return new Point(Math.abs(minX) + xMargin, 0);
 	}
 	
 	/**
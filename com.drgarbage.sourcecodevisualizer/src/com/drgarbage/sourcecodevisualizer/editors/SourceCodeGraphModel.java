@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) 2008-2013, Dr. Garbage Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drgarbage.sourcecodevisualizer.editors;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.internal.core.SourceType;
+import org.eclipse.jdt.launching.JavaRuntime;
+
+import com.drgarbage.bytecode.ByteCodeConstants;
+import com.drgarbage.controlflowgraph.ControlFlowGraphException;
+import com.drgarbage.controlflowgraph.ControlFlowGraphGenerator;
+import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
+import com.drgarbage.core.AnalysisCache;
+import com.drgarbage.javalang.JavaLangUtils;
+import com.drgarbage.sourcecodevisualizer.SourcecodeVisualizerPlugin;
+import com.drgarbage.utils.ClassFileDocumentsUtils;
+
+/**
+ * Source code graphs of the classes of a compilation unit. The graphs
+ * are updated incrementally: a class is reloaded only if its class file
+ * has been changed by the build and only the graphs of the methods whose
+ * code attribute has been changed are regenerated. The graphs of the other
+ * methods are kept, so that their figures can be reused by the
+ * {@link SourceCodeGraphCanvas}.
+ * <br>
+ * The code attribute contains the line number table, so a method
+ * moved to other lines is regenerated as well.
+ * <br>
+ * The model is thread safe, the changed classes are usually
+ * computed in the thread of the builder.
+ *
+ * @version $Revision$
+ * $Id$
+ */
+public class SourceCodeGraphModel {
+
+	private static final String CLASS_FILE_EXTENSION = "class";
+	private static final String CLASSPATH_FILE = ".classpath";
+
+	private ICompilationUnit unit;
+
+	/**
+	 * The runtime class path of the project,
+	 * computed on the first use.
+	 */
+	private String[] classpath = null;
+
+	private String packageName = "";
+
+	/**
+	 * The top level and nested classes of the compilation unit.
+	 */
+	private List<String> classList = new ArrayList<String>();
+
+	/**
+	 * Content hashes of the loaded class files by class name.
+	 */
+	private Map<String, String> classHashes = new HashMap<String, String>();
+
+	/**
+	 * Graphs in the order of the methods by class name.
+	 */
+	private Map<String, List<IDirectedGraphExt>> classGraphs = new HashMap<String, List<IDirectedGraphExt>>();
+
+	/**
+	 * Creates an empty model.
+	 * @param unit the compilation unit
+	 */
+	public SourceCodeGraphModel(ICompilationUnit unit) {
+		super();
+		this.unit = unit;
+	}
+
+	/**
+	 * Returns the compilation unit of this model.
+	 * @return the compilation unit
+	 */
+	public ICompilationUnit getCompilationUnit() {
+		return unit;
+	}
+
+	/**
+	 * Returns the graphs of all classes in the order of the class list.
+	 * @return list of graphs
+	 */
+	public synchronized List<IDirectedGraphExt> getGraphs() {
+		List<IDirectedGraphExt> graphs = new ArrayList<IDirectedGraphExt>();
+		for (String c : classList) {
+			List<IDirectedGraphExt> l = classGraphs.get(c);
+			if (l != null) {
+				graphs.addAll(l);
+			}
+		}
+
+		return graphs;
+	}
+
+	/**
+	 * Removes all graphs. The next update generates new
+	 * graphs for all methods.
+	 */
+	public synchronized void clear() {
+		classHashes.clear();
+		classGraphs.clear();
+	}
+
+	/**
+	 * Recomputes the class path and the class list and updates
+	 * all classes of the compilation unit.
+	 * @return list of graphs or <code>null</code> if the graphs
+	 *         could not be created
+	 */
+	public synchronized List<IDirectedGraphExt> refresh() {
+		classpath = null;
+		try {
+			collectClasses();
+			return update(classList, true);
+		} catch (CoreException e) {
+			handleException(e);
+		} catch (IOException e) {
+			handleException(e);
+		} catch (ControlFlowGraphException e) {
+			handleException(e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Updates the given classes. Classes which are not found
+	 * in the class path any more are removed.
+	 * @param classNames the classes, e.g. the classes returned by
+	 *        {@link #getChangedClasses(IResourceDelta)}
+	 * @return list of graphs or <code>null</code> if the graphs
+	 *         could not be created
+	 */
+	public synchronized List<IDirectedGraphExt> update(Collection<String> classNames) {
+		try {
+			return update(classNames, false);
+		} catch (CoreException e) {
+			handleException(e);
+		} catch (IOException e) {
+			handleException(e);
+		} catch (ControlFlowGraphException e) {
+			handleException(e);
+		}
+
+		return null;
+	}
+
+	private List<IDirectedGraphExt> update(Collection<String> classNames, boolean failIfNotFound)
+		throws CoreException, IOException, ControlFlowGraphException
+	{
+		if (classpath == null) {
+			classpath = JavaRuntime.computeDefaultRuntimeClassPath(unit.getJavaProject());
+		}
+
+		for (String c : classNames) {
+			byte[] bytes = JavaLangUtils.findClassBytes(classpath, packageName, c);
+			if (bytes == null) {
+				if (failIfNotFound) {
+					throw new ControlFlowGraphException(ControlFlowGraphGenerator.class.getSimpleName() + ": Class '" + c +"' not found in the CLASSPATH.");//$NON-NLS-1$
+				}
+
+				/* the class has been removed */
+				classHashes.remove(c);
+				classGraphs.remove(c);
+				continue;
+			}
+
+			String hash = AnalysisCache.getContentHash(bytes);
+			if (hash.equals(classHashes.get(c))) {
+				/* class file not changed */
+				continue;
+			}
+
+			classGraphs.put(c, updateClass(c, hash, bytes));
+			classHashes.put(c, hash);
+		}
+
+		return getGraphs();
+	}
+
+	/**
+	 * Generates the graphs of the changed methods of a class.
+	 * @param className the class name
+	 * @param hash the content hash of the class file
+	 * @param bytes the class file
+	 * @return the graphs of all methods of the class
+	 * @throws ControlFlowGraphException
+	 * @throws IOException
+	 */
+	private List<IDirectedGraphExt> updateClass(String className, String hash, byte[] bytes)
+		throws ControlFlowGraphException, IOException
+	{
+		/* graphs of the previous version by method */
+		Map<String, IDirectedGraphExt> oldGraphs = new HashMap<String, IDirectedGraphExt>();
+		List<IDirectedGraphExt> l = classGraphs.get(className);
+		if (l != null) {
+			for (IDirectedGraphExt g : l) {
+				oldGraphs.put(getMethodKey(g.getUserObject()), g);
+			}
+		}
+
+		List<IDirectedGraphExt> graphs = new ArrayList<IDirectedGraphExt>();
+		for (Map<String, Object> method : AnalysisCache.getDefault().getDecodedMethods(hash, bytes).values()) {
+			IDirectedGraphExt g = oldGraphs.get(getMethodKey(method));
+			if (g == null || !method.get(ByteCodeConstants.CODE_HASH).equals(g.getUserObject().get(ByteCodeConstants.CODE_HASH))) {
+				g = ControlFlowGraphGenerator.generateSourceCodeGraph(method, className, false, false, false);
+			}
+
+			graphs.add(g);
+		}
+
+		return graphs;
+	}
+
+	private static String getMethodKey(Map<String, Object> attr) {
+		return AnalysisCache.getMethodKey((String) attr.get(ByteCodeConstants.NAME),
+				(String) attr.get(ByteCodeConstants.DESCRIPTOR));
+	}
+
+	/**
+	 * Collects the package name and the classes of the compilation unit.
+	 * @throws JavaModelException
+	 */
+	private void collectClasses() throws JavaModelException {
+		List<String> classes = new ArrayList<String>();
+		IJavaElement[] elements = unit.getChildren();
+		for(IJavaElement element: elements){
+			if(element.getElementType() == IJavaElement.PACKAGE_DECLARATION){
+				packageName = element.getElementName();
+			}
+			else if(element.getElementType() == IJavaElement.TYPE){
+				ClassFileDocumentsUtils.collectNestedClasses((SourceType) element, classes);
+			}
+		}
+
+		/* drop the graphs of the removed classes */
+		classGraphs.keySet().retainAll(classes);
+		classHashes.keySet().retainAll(classes);
+
+		classList = classes;
+	}
+
+	/**
+	 * Returns the classes of the compilation unit whose
+	 * class files have been changed by a build.
+	 * @param delta the delta of a <code>POST_BUILD</code> event
+	 * @return the class names, empty if no class has been changed
+	 * @throws JavaModelException
+	 */
+	public synchronized Set<String> getChangedClasses(IResourceDelta delta) throws JavaModelException {
+		Set<String> result = new HashSet<String>();
+		IJavaProject jp = unit.getJavaProject();
+
+		/* the class list may contain new nested classes */
+		collectClasses();
+
+		if (delta.findMember(jp.getProject().getFullPath().append(CLASSPATH_FILE)) != null) {
+			/* the build path has been changed, reload all */
+			classpath = null;
+			result.addAll(classList);
+			return result;
+		}
+
+		IPath packagePath = new Path(packageName.replace('.', IPath.SEPARATOR));
+		for (IPath output : getOutputLocations(jp)) {
+			IResourceDelta folder = delta.findMember(output.append(packagePath));
+			if (folder == null) {
+				continue;
+			}
+
+			for (IResourceDelta d : folder.getAffectedChildren()) {
+				IResource r = d.getResource();
+				if (r.getType() == IResource.FILE && CLASS_FILE_EXTENSION.equals(r.getFileExtension())) {
+					String className = r.getFullPath().removeFileExtension().lastSegment();
+					if (classList.contains(className)) {
+						result.add(className);
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the default output location and the output
+	 * locations of the source folders of a project.
+	 * @param jp the project
+	 * @return the workspace relative paths
+	 * @throws JavaModelException
+	 */
+	private static Set<IPath> getOutputLocations(IJavaProject jp) throws JavaModelException {
+		Set<IPath> locations = new HashSet<IPath>();
+		locations.add(jp.getOutputLocation());
+		for (IClasspathEntry entry : jp.getRawClasspath()) {
+			if (entry.getEntryKind() == IClasspathEntry.CPE_SOURCE && entry.getOutputLocation() != null) {
+				locations.add(entry.getOutputLocation());
+			}
+		}
+
+		return locations;
+	}
+
+	/**
+	 * Exceptions handler. Just to reduce number of code lines.
+	 * @param e
+	 */
+	private static void handleException(Throwable e){
+		SourcecodeVisualizerPlugin.getDefault().getLog().log(
+				new Status(IStatus.ERROR, SourcecodeVisualizerPlugin.PLUGIN_ID, e.getMessage(), e));
+
+	}
+}
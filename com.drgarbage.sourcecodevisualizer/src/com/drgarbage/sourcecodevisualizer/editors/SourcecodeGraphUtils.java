@@ -16,25 +16,12 @@
 
 package com.drgarbage.sourcecodevisualizer.editors;
 
-import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.core.ICompilationUnit;
-import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jdt.internal.core.SourceType;
-import org.eclipse.jdt.launching.JavaRuntime;
 
-import com.drgarbage.controlflowgraph.ControlFlowGraphException;
-import com.drgarbage.controlflowgraph.ControlFlowGraphGenerator;
 import com.drgarbage.controlflowgraph.intf.IDirectedGraphExt;
-import com.drgarbage.sourcecodevisualizer.SourcecodeVisualizerPlugin;
-import com.drgarbage.utils.ClassFileDocumentsUtils;
 
 /**
  * Utilities for generation of source code graphs.
@@ -48,59 +35,9 @@ public class SourcecodeGraphUtils {
 	/**
 	 * Create a list of graphs.
 	 * @return list of graphs
+	 * @see SourceCodeGraphModel
 	 */
 	public static List<IDirectedGraphExt> createGraphs(ICompilationUnit unit, IJavaProject jp){
-
-		String[] classpath = null;
-		String packageName = "";
-		List<String> classList = new ArrayList<String>();
-
-		try {
-			/* get class path */
-			classpath = JavaRuntime.computeDefaultRuntimeClassPath(jp);
-
-			/* get package name and classes */
-			IJavaElement[] elements = unit.getChildren();
-			for(IJavaElement element: elements){
-				if(element.getElementType() == IJavaElement.PACKAGE_DECLARATION){
-					packageName = element.getElementName();
-				} 
-				else if(element.getElementType() == IJavaElement.TYPE){                                               
-					ClassFileDocumentsUtils.collectNestedClasses((SourceType) element, classList);                                          
-				}
-			}
-
-		} catch (JavaModelException e) {
-			handleException(e);
-			return null;
-		} catch (CoreException e) {
-			handleException(e);
-			return null;
-		}
-
-		List<IDirectedGraphExt> graphs = null;
-
-		/* Load compiled class files */
-		try {
-			graphs = ControlFlowGraphGenerator.generateSourceCodeGraphs(classList, classpath, packageName, false, false, false);
-		} catch (IOException e) {
-			handleException(e);
-			return null;
-		} catch (ControlFlowGraphException e) {
-			handleException(e);
-			return null;
-		}
-
-		return graphs;
-	}
-
-	/**
-	 * Exceptions handler. Just to reduce number of code lines.
-	 * @param e
-	 */
-	private static void handleException(Throwable e){
-		SourcecodeVisualizerPlugin.getDefault().getLog().log(
-				new Status(IStatus.ERROR, SourcecodeVisualizerPlugin.PLUGIN_ID, e.getMessage(), e));
-
+		return new SourceCodeGraphModel(unit).refresh();
 	}
 }